@@ -20,6 +20,8 @@ package org.apache.flink.configuration;
 
 import org.apache.flink.annotation.docs.Documentation;
 
+import java.time.Duration;
+
 /**
  * A collection of all configuration options that relate to checkpoints
  * and savepoints.
@@ -78,6 +80,115 @@ public class CheckpointingOptions {
 				" only represents the delta checkpoint size instead of full checkpoint size." +
 				" Some state backends may not support incremental checkpoints and ignore this option.");
 
+	/**
+	 * Option whether the heap keyed state backend creates incremental checkpoints. This is separate from
+	 * {@link #INCREMENTAL_CHECKPOINTS}, so that enabling incremental checkpoints for RocksDB does not change the
+	 * checkpoints of jobs that use the heap keyed state backend.
+	 */
+	public static final ConfigOption<Boolean> HEAP_INCREMENTAL_CHECKPOINTS = ConfigOptions
+			.key("state.backend.heap.incremental")
+			.defaultValue(false)
+			.withDescription("Option whether the heap keyed state backend of the FsStateBackend creates incremental" +
+				" checkpoints, which only write the key/value mappings that changed since the previous checkpoint." +
+				" Incremental checkpoints require asynchronous snapshots. This option is independent of '" +
+				INCREMENTAL_CHECKPOINTS.key() + "'.");
+
+	/**
+	 * The maximum number of incremental checkpoints that the heap keyed state backend chains onto a full checkpoint
+	 * before it creates a new full checkpoint.
+	 */
+	public static final ConfigOption<Integer> HEAP_INCREMENTAL_MAX_DELTA_CHAIN_LENGTH = ConfigOptions
+			.key("state.backend.heap.incremental.max-delta-chain-length")
+			.defaultValue(10)
+			.withDescription("The maximum number of incremental checkpoints that the heap keyed state backend of" +
+				" the FsStateBackend chains onto a full checkpoint when '" +
+				HEAP_INCREMENTAL_CHECKPOINTS.key() + "' is enabled. Longer chains make checkpoints cheaper, but" +
+				" recovery has to read more files.");
+
+	/**
+	 * The implementation of the timer queues of the heap keyed state backend.
+	 */
+	public static final ConfigOption<String> HEAP_TIMER_SERVICE_FACTORY = ConfigOptions
+			.key("state.backend.heap.timer-service.factory")
+			.defaultValue("HEAP")
+			.withDescription("This determines the implementation of the timer queues of the heap keyed state backends" +
+				" (MemoryStateBackend and FsStateBackend). 'HEAP' keeps each timer as an object in a binary heap." +
+				" 'TIMING_WHEEL' keeps the timers serialized in the buckets of a timing wheel, which needs far less" +
+				" memory and creates less garbage for large numbers of timers. Both store timers in the same" +
+				" snapshot format.");
+
+	/**
+	 * The range of timestamps covered by one bucket of the timing wheel timer queues.
+	 */
+	public static final ConfigOption<Duration> HEAP_TIMER_SERVICE_TIMING_WHEEL_BUCKET_WIDTH = ConfigOptions
+			.key("state.backend.heap.timer-service.timing-wheel.bucket-width")
+			.durationType()
+			.defaultValue(Duration.ofSeconds(1))
+			.withDescription("The range of timestamps covered by one bucket of the timer queues when '" +
+				HEAP_TIMER_SERVICE_FACTORY.key() + "' is 'TIMING_WHEEL'. Each bucket has a fixed overhead, so" +
+				" the width should be large enough that many timers share a bucket.");
+
+	/**
+	 * The interval of the background cleanup of expired state with TTL in the heap keyed state backend.
+	 */
+	public static final ConfigOption<Duration> HEAP_TTL_BACKGROUND_CLEANUP_INTERVAL = ConfigOptions
+			.key("state.backend.heap.ttl.background-cleanup.interval")
+			.durationType()
+			.defaultValue(Duration.ZERO)
+			.withDescription("The interval in which the heap keyed state backend removes expired entries of states" +
+				" with TTL in the background. The backend indexes the key-groups of every state by the time at" +
+				" which their entries expire, and only scans the key-groups in which entries may have expired." +
+				" The cleanup runs in the task thread between records. A zero interval disables the cleanup.");
+
+	/**
+	 * The time that one run of the background cleanup of expired state with TTL may take.
+	 */
+	public static final ConfigOption<Duration> HEAP_TTL_BACKGROUND_CLEANUP_TIME_BUDGET = ConfigOptions
+			.key("state.backend.heap.ttl.background-cleanup.time-budget")
+			.durationType()
+			.defaultValue(Duration.ofMillis(5))
+			.withDescription("The time that one run of the background cleanup of '" +
+				HEAP_TTL_BACKGROUND_CLEANUP_INTERVAL.key() + "' may take. Remaining expired entries are" +
+				" removed by the next runs.");
+
+	/**
+	 * Whether to wrap the configured state backend with a changelog of all keyed state changes.
+	 */
+	public static final ConfigOption<Boolean> CHANGELOG_ENABLED = ConfigOptions
+			.key("state.backend.changelog.enabled")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Whether the keyed state backends log all state changes. A checkpoint then only" +
+				" uploads the changes since the previous checkpoint, while the state of the configured state" +
+				" backend is only snapshotted from time to time, see '" +
+				"state.backend.changelog.materialization-interval'.");
+
+	/**
+	 * The interval of the snapshots of the state backend that is wrapped by the changelog.
+	 */
+	public static final ConfigOption<Duration> CHANGELOG_MATERIALIZATION_INTERVAL = ConfigOptions
+			.key("state.backend.changelog.materialization-interval")
+			.durationType()
+			.defaultValue(Duration.ofMinutes(10))
+			.withDescription("The interval in which the keyed state is materialized when '" +
+				CHANGELOG_ENABLED.key() + "' is set. The state is materialized in the background by taking a" +
+				" snapshot of the configured state backend, after which the changes logged before are no longer" +
+				" needed once a checkpoint with the materialization is completed. Checkpoints only upload the" +
+				" logged changes since the materialization, which are replayed on recovery. A zero interval" +
+				" disables the materialization.");
+
+	/**
+	 * The size of the logged state changes at which they are spilled to a local file.
+	 */
+	public static final ConfigOption<MemorySize> CHANGELOG_FLUSH_THRESHOLD = ConfigOptions
+			.key("state.backend.changelog.flush-threshold")
+			.memoryType()
+			.defaultValue(MemorySize.parse("1mb"))
+			.withDescription("The size of the buffered state changes at which they are written to a local file" +
+				" in the temporary directories of the task manager when '" + CHANGELOG_ENABLED.key() + "' is" +
+				" set, so that the changes between two checkpoints do not need to fit into memory. The next" +
+				" checkpoint uploads them.");
+
 	/**
 	 * This option configures local recovery for this state backend. By default, local recovery is deactivated.
 	 *
@@ -156,4 +267,17 @@ public class CheckpointingOptions {
 		.withDescription(String.format("The default size of the write buffer for the checkpoint streams that write to file systems. " +
 			"The actual write buffer size is determined to be the maximum of the value of this option and option '%s'.", FS_SMALL_FILE_THRESHOLD.key()));
 
+	/**
+	 * Whether the checkpoint streams of a task that write to file systems share files.
+	 */
+	@Documentation.Section(Documentation.Sections.EXPERT_STATE_BACKENDS)
+	public static final ConfigOption<Boolean> FS_SEGMENT_FILES = ConfigOptions
+		.key("state.backend.fs.segment-files")
+		.booleanType()
+		.defaultValue(false)
+		.withDescription(String.format("Whether the exclusive state of a checkpoint that a task writes to the file system is" +
+			" written as segments of a few shared files, rather than one file per state stream. This reduces the number of" +
+			" files per checkpoint when there are many operators or small states above option '%s'. Savepoints always" +
+			" use one file per state stream.", FS_SMALL_FILE_THRESHOLD.key()));
+
 }
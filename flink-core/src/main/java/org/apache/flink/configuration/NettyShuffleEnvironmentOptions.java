@@ -21,6 +21,8 @@ package org.apache.flink.configuration;
 import org.apache.flink.annotation.PublicEvolving;
 import org.apache.flink.annotation.docs.Documentation;
 
+import java.time.Duration;
+
 import static org.apache.flink.configuration.ConfigOptions.key;
 
 /**
@@ -79,6 +81,36 @@ public class NettyShuffleEnvironmentOptions {
 				" more effective for IO bounded scenario when data compression ratio is high. Currently, shuffle data " +
 				"compression is an experimental feature and the config option can be changed in the future.");
 
+	/**
+	 * Boolean flag indicating whether the shuffle data of pipelined result partitions will be compressed
+	 * when sent over the network.
+	 */
+	@Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+	public static final ConfigOption<Boolean> PIPELINED_SHUFFLE_COMPRESSION_ENABLED =
+		key("taskmanager.network.pipelined-shuffle.compression.enabled")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Boolean flag indicating whether the shuffle data will be compressed for pipelined" +
+				" shuffle mode when it is sent to a remote task. Data is compressed per buffer and only as long as" +
+				" compression pays off: if the compression ratio of a subpartition is poor, its data is sent" +
+				" uncompressed and compression is retried periodically. Data consumed by local tasks is never" +
+				" compressed. Note that compression can incur extra CPU overhead, so it is more effective for network" +
+				" bounded scenarios when data compression ratio is high.");
+
+	/**
+	 * Boolean flag indicating whether record timestamps are written in a compact variable-length encoding
+	 * when records are sent to downstream tasks.
+	 */
+	@Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+	public static final ConfigOption<Boolean> COMPACT_RECORD_TIMESTAMPS_ENABLED =
+		key("taskmanager.network.compact-timestamps.enabled")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Boolean flag indicating whether the timestamps of stream records are written in a" +
+				" variable-length encoding when records are sent to downstream tasks. This saves about two bytes per" +
+				" record for epoch millisecond timestamps, which is noticeable for small records. Every" +
+				" record carries its own encoding tag, so consumers can read both encodings regardless of this setting.");
+
 	/**
 	 * The codec to be used when compressing shuffle data.
 	 */
@@ -187,6 +219,65 @@ public class NettyShuffleEnvironmentOptions {
 				" and can be ignored by things like flatMap operators, records spanning multiple buffers or single timer" +
 				" producing large amount of data.");
 
+	/**
+	 * Boolean flag to enable/disable the automatic adjustment of the in-flight data of the input gates.
+	 */
+	@Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+	public static final ConfigOption<Boolean> NETWORK_BUFFER_DEBLOAT_ENABLED =
+		key("taskmanager.network.memory.buffer-debloat.enabled")
+			.booleanType()
+			.defaultValue(false)
+			.withDescription("Boolean flag to enable/disable buffer debloating. If enabled, every input gate measures its" +
+				" throughput and adjusts the size and the number of the buffers it announces as credit, so that the data in" +
+				" flight can be consumed within the configured target time. This limits the amount of in-flight data under" +
+				" back pressure and speeds up the checkpoint alignment.");
+
+	/**
+	 * The target time to consume the in-flight data of an input gate when buffer debloating is enabled.
+	 */
+	@Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+	public static final ConfigOption<Duration> NETWORK_BUFFER_DEBLOAT_TARGET =
+		key("taskmanager.network.memory.buffer-debloat.target")
+			.durationType()
+			.defaultValue(Duration.ofSeconds(1))
+			.withDescription("The target time to consume the data in flight of an input gate, if buffer debloating is" +
+				" enabled. The buffer size is chosen, so that the data in flight is consumed within this time at the" +
+				" currently measured throughput.");
+
+	/**
+	 * The period between two recalculations of the buffer size when buffer debloating is enabled.
+	 */
+	@Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+	public static final ConfigOption<Duration> NETWORK_BUFFER_DEBLOAT_PERIOD =
+		key("taskmanager.network.memory.buffer-debloat.period")
+			.durationType()
+			.defaultValue(Duration.ofMillis(200))
+			.withDescription("The minimum period between two recalculations of the buffer size, if buffer debloating is" +
+				" enabled. Shorter periods adapt faster to throughput changes, but cause more announcements to the producers.");
+
+	/**
+	 * The minimum size of the buffers announced by an input gate when buffer debloating is enabled.
+	 */
+	@Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+	public static final ConfigOption<MemorySize> NETWORK_BUFFER_DEBLOAT_MIN_BUFFER_SIZE =
+		key("taskmanager.network.memory.buffer-debloat.min-buffer-size")
+			.memoryType()
+			.defaultValue(MemorySize.parse("1kb"))
+			.withDescription("The minimum buffer size an input gate announces to its producers, if buffer debloating is" +
+				" enabled. If even buffers of this size hold more data than can be consumed within the target time, the" +
+				" number of floating buffers the input channels request is limited instead.");
+
+	/**
+	 * The minimum relative change of the buffer size that is announced to the producers.
+	 */
+	@Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+	public static final ConfigOption<Integer> NETWORK_BUFFER_DEBLOAT_THRESHOLD_PERCENTAGES =
+		key("taskmanager.network.memory.buffer-debloat.threshold-percentages")
+			.intType()
+			.defaultValue(25)
+			.withDescription("The minimum change of the buffer size in percent, relative to the last announced buffer" +
+				" size, for the new buffer size to be announced to the producers, if buffer debloating is enabled.");
+
 	/**
 	 * The timeout for requesting exclusive buffers for each channel.
 	 */
@@ -206,7 +297,38 @@ public class NettyShuffleEnvironmentOptions {
 			.withDescription("The blocking shuffle type, either \"mmap\" or \"file\". The \"auto\" means selecting the property type automatically" +
 					" based on system memory architecture (64 bit for mmap and 32 bit for file). Note that the memory usage of mmap is not accounted" +
 					" by configured memory limits, but some resource frameworks like yarn would track this memory usage and kill the container once" +
-					" memory exceeding some threshold. Also note that this option is experimental and might be changed future.");
+					" memory exceeding some threshold. With \"file\" and SSL disabled, the data is transferred from the file to the network" +
+					" without being copied into user space (zero-copy). Also note that this option is experimental and might be changed future.");
+
+	/**
+	 * Parallelism threshold to switch between the subpartition-based and the sort-merge based blocking shuffle.
+	 */
+	@Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+	public static final ConfigOption<Integer> NETWORK_SORT_SHUFFLE_MIN_PARALLELISM =
+		key("taskmanager.network.sort-shuffle.min-parallelism")
+			.intType()
+			.defaultValue(Integer.MAX_VALUE)
+			.withDescription("Parallelism threshold to switch between sort-merge blocking shuffle and the default" +
+				" subpartition-based blocking shuffle, which means for blocking result partitions with a number of" +
+				" subpartitions not smaller than this threshold, the sort-merge blocking shuffle will be used. The" +
+				" sort-merge blocking shuffle writes all subpartitions of a result partition into one data file plus" +
+				" a region index file instead of one file per subpartition, which reduces the number of files and" +
+				" turns the random reads of the consumers into sequential reads. Note that this option is" +
+				" experimental and might be changed future.");
+
+	/**
+	 * Size of the in-memory sort buffer of one sort-merge blocking result partition.
+	 */
+	@Documentation.Section(Documentation.Sections.ALL_TASK_MANAGER_NETWORK)
+	public static final ConfigOption<MemorySize> NETWORK_SORT_SHUFFLE_BUFFER_SIZE =
+		key("taskmanager.network.sort-shuffle.sort-buffer-size")
+			.memoryType()
+			.defaultValue(MemorySize.parse("8m"))
+			.withDescription("Size of the in-memory buffer in which a sort-merge blocking result partition collects" +
+				" the data of all its subpartitions before writing them, grouped by subpartition, as one region to" +
+				" the shared data file. Larger buffers result in fewer and larger regions and thus more sequential" +
+				" reads. The buffer consists of network buffers of the result partition and is thus part of the" +
+				" network memory.");
 
 	// ------------------------------------------------------------------------
 	//  Netty Options
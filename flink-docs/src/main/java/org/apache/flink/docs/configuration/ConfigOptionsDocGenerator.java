@@ -75,6 +75,7 @@ public class ConfigOptionsDocGenerator {
 		new OptionsClassLocation("flink-metrics/flink-metrics-prometheus", "org.apache.flink.metrics.prometheus"),
 		new OptionsClassLocation("flink-metrics/flink-metrics-influxdb", "org.apache.flink.metrics.influxdb"),
 		new OptionsClassLocation("flink-state-backends/flink-statebackend-rocksdb", "org.apache.flink.contrib.streaming.state"),
+		new OptionsClassLocation("flink-state-backends/flink-statebackend-heap-spillable", "org.apache.flink.runtime.state.heap"),
 		new OptionsClassLocation("flink-table/flink-table-api-java", "org.apache.flink.table.api.config"),
 		new OptionsClassLocation("flink-python", "org.apache.flink.python"),
 		new OptionsClassLocation("flink-kubernetes", "org.apache.flink.kubernetes.configuration")
@@ -94,6 +94,13 @@ public class CheckpointCoordinator {
 	/** Coordinator-wide lock to safeguard the checkpoint updates. */
 	private final Object lock = new Object();
 
+	/**
+	 * Lock that serializes the finalization of fully acknowledged checkpoints, i.e. writing the
+	 * metadata and adding the checkpoint to the completed checkpoint store. It is acquired before
+	 * the coordinator-wide lock and is never held by the coordinator while it waits for it.
+	 */
+	private final Object finalizationLock = new Object();
+
 	/** The job whose checkpoint this coordinator coordinates. */
 	private final JobID job;
 
@@ -182,6 +189,16 @@ public class CheckpointCoordinator {
 	@Nullable
 	private CheckpointStatsTracker statsTracker;
 
+	/** The checkpoint whose metadata is currently written, which must not be aborted concurrently.
+	 * Non-volatile, because only accessed in synchronized scope */
+	@Nullable
+	private PendingCheckpoint finalizingCheckpoint;
+
+	/** Incremented whenever all pending checkpoints are aborted or the state is restored, e.g. on a failover.
+	 * A checkpoint whose metadata was written across such an event is discarded instead of completed.
+	 * Non-volatile, because only accessed in synchronized scope */
+	private long failoverEpoch;
+
 	/** A factory for SharedStateRegistry objects. */
 	private final SharedStateRegistryFactory sharedStateRegistryFactory;
 
@@ -947,6 +964,7 @@ public class CheckpointCoordinator {
 		}
 
 		final long checkpointId = message.getCheckpointId();
+		final PendingCheckpoint checkpoint;
 
 		synchronized (lock) {
 			// we need to check inside the lock for being shutdown as well, otherwise we
@@ -955,49 +973,9 @@ public class CheckpointCoordinator {
 				return false;
 			}
 
-			final PendingCheckpoint checkpoint = pendingCheckpoints.get(checkpointId);
-
-			if (checkpoint != null && !checkpoint.isDiscarded()) {
-
-				switch (checkpoint.acknowledgeTask(message.getTaskExecutionId(), message.getSubtaskState(), message.getCheckpointMetrics())) {
-					case SUCCESS:
-						LOG.debug("Received acknowledge message for checkpoint {} from task {} of job {} at {}.",
-							checkpointId, message.getTaskExecutionId(), message.getJob(), taskManagerLocationInfo);
-
-						if (checkpoint.areTasksFullyAcknowledged()) {
-							completePendingCheckpoint(checkpoint);
-						}
-						break;
-					case DUPLICATE:
-						LOG.debug("Received a duplicate acknowledge message for checkpoint {}, task {}, job {}, location {}.",
-							message.getCheckpointId(), message.getTaskExecutionId(), message.getJob(), taskManagerLocationInfo);
-						break;
-					case UNKNOWN:
-						LOG.warn("Could not acknowledge the checkpoint {} for task {} of job {} at {}, " +
-								"because the task's execution attempt id was unknown. Discarding " +
-								"the state handle to avoid lingering state.", message.getCheckpointId(),
-							message.getTaskExecutionId(), message.getJob(), taskManagerLocationInfo);
-
-						discardSubtaskState(message.getJob(), message.getTaskExecutionId(), message.getCheckpointId(), message.getSubtaskState());
-
-						break;
-					case DISCARDED:
-						LOG.warn("Could not acknowledge the checkpoint {} for task {} of job {} at {}, " +
-							"because the pending checkpoint had been discarded. Discarding the " +
-								"state handle tp avoid lingering state.",
-							message.getCheckpointId(), message.getTaskExecutionId(), message.getJob(), taskManagerLocationInfo);
-
-						discardSubtaskState(message.getJob(), message.getTaskExecutionId(), message.getCheckpointId(), message.getSubtaskState());
-				}
+			checkpoint = pendingCheckpoints.get(checkpointId);
 
-				return true;
-			}
-			else if (checkpoint != null) {
-				// this should not happen
-				throw new IllegalStateException(
-						"Received message for discarded but non-removed checkpoint " + checkpointId);
-			}
-			else {
+			if (checkpoint == null) {
 				boolean wasPendingCheckpoint;
 
 				// message is for an unknown checkpoint, or comes too late (checkpoint disposed)
@@ -1017,47 +995,149 @@ public class CheckpointCoordinator {
 
 				return wasPendingCheckpoint;
 			}
+			else if (checkpoint.isDiscarded()) {
+				// this should not happen
+				throw new IllegalStateException(
+						"Received message for discarded but non-removed checkpoint " + checkpointId);
+			}
 		}
+
+		// the acknowledgement itself only needs the lock of the pending checkpoint, so that the
+		// acknowledgements of many tasks are not serialized on the coordinator-wide lock
+		switch (checkpoint.acknowledgeTask(message.getTaskExecutionId(), message.getSubtaskState(), message.getCheckpointMetrics())) {
+			case SUCCESS:
+				LOG.debug("Received acknowledge message for checkpoint {} from task {} of job {} at {}.",
+					checkpointId, message.getTaskExecutionId(), message.getJob(), taskManagerLocationInfo);
+
+				if (checkpoint.areTasksFullyAcknowledged()) {
+					completePendingCheckpoint(checkpoint);
+				}
+				break;
+			case DUPLICATE:
+				LOG.debug("Received a duplicate acknowledge message for checkpoint {}, task {}, job {}, location {}.",
+					message.getCheckpointId(), message.getTaskExecutionId(), message.getJob(), taskManagerLocationInfo);
+				break;
+			case UNKNOWN:
+				LOG.warn("Could not acknowledge the checkpoint {} for task {} of job {} at {}, " +
+						"because the task's execution attempt id was unknown. Discarding " +
+						"the state handle to avoid lingering state.", message.getCheckpointId(),
+					message.getTaskExecutionId(), message.getJob(), taskManagerLocationInfo);
+
+				discardSubtaskState(message.getJob(), message.getTaskExecutionId(), message.getCheckpointId(), message.getSubtaskState());
+
+				break;
+			case DISCARDED:
+				LOG.warn("Could not acknowledge the checkpoint {} for task {} of job {} at {}, " +
+					"because the pending checkpoint had been discarded. Discarding the " +
+						"state handle tp avoid lingering state.",
+					message.getCheckpointId(), message.getTaskExecutionId(), message.getJob(), taskManagerLocationInfo);
+
+				discardSubtaskState(message.getJob(), message.getTaskExecutionId(), message.getCheckpointId(), message.getSubtaskState());
+		}
+
+		return true;
 	}
 
 	/**
 	 * Try to complete the given pending checkpoint.
 	 *
-	 * <p>Important: This method should only be called in the checkpoint lock scope.
+	 * <p>The metadata of the checkpoint is written outside of the coordinator-wide lock, so that
+	 * acknowledgements of other checkpoints and triggering are not blocked by it. Only one
+	 * checkpoint is finalized at a time, and a checkpoint that is finalized can not be aborted
+	 * anymore. If the given checkpoint is completed by a concurrent call or is aborted before its
+	 * finalization starts, this method does nothing. If the pending checkpoints are aborted or the
+	 * state is restored while the metadata is written, the finalized checkpoint is discarded.
+	 *
+	 * <p>Important: This method must not be called in the checkpoint lock scope.
 	 *
 	 * @param pendingCheckpoint to complete
 	 * @throws CheckpointException if the completion failed
 	 */
 	private void completePendingCheckpoint(PendingCheckpoint pendingCheckpoint) throws CheckpointException {
-		final long checkpointId = pendingCheckpoint.getCheckpointId();
-		final CompletedCheckpoint completedCheckpoint;
+		assert(!Thread.holdsLock(lock));
 
-		// As a first step to complete the checkpoint, we register its state with the registry
-		Map<OperatorID, OperatorState> operatorStates = pendingCheckpoint.getOperatorStates();
-		sharedStateRegistry.registerAll(operatorStates.values());
+		synchronized (finalizationLock) {
+			final long checkpointId = pendingCheckpoint.getCheckpointId();
+			final long finalizationEpoch;
+
+			synchronized (lock) {
+				if (shutdown || pendingCheckpoint.isDiscarded()) {
+					// completed by another acknowledgement, or aborted in the meantime
+					return;
+				}
+				finalizationEpoch = failoverEpoch;
+
+				// As a first step to complete the checkpoint, we register its state with the registry
+				Map<OperatorID, OperatorState> operatorStates = pendingCheckpoint.getOperatorStates();
+				sharedStateRegistry.registerAll(operatorStates.values());
+
+				finalizingCheckpoint = pendingCheckpoint;
+			}
+
+			final long finalizationStart = clock.relativeTimeMillis();
+			final CompletedCheckpoint completedCheckpoint;
 
-		try {
 			try {
 				completedCheckpoint = pendingCheckpoint.finalizeCheckpoint();
-				failureManager.handleCheckpointSuccess(pendingCheckpoint.getCheckpointId());
 			}
 			catch (Exception e1) {
-				// abort the current pending checkpoint if we fails to finalize the pending checkpoint.
-				if (!pendingCheckpoint.isDiscarded()) {
-					abortPendingCheckpoint(
-						pendingCheckpoint,
-						new CheckpointException(
-							CheckpointFailureReason.FINALIZE_CHECKPOINT_FAILURE, e1));
+				synchronized (lock) {
+					finalizingCheckpoint = null;
+
+					// abort the current pending checkpoint if we fails to finalize the pending checkpoint.
+					if (!pendingCheckpoint.isDiscarded()) {
+						abortPendingCheckpoint(
+							pendingCheckpoint,
+							new CheckpointException(
+								CheckpointFailureReason.FINALIZE_CHECKPOINT_FAILURE, e1));
+					}
 				}
 
 				throw new CheckpointException("Could not finalize the pending checkpoint " + checkpointId + '.',
 					CheckpointFailureReason.FINALIZE_CHECKPOINT_FAILURE, e1);
 			}
 
-			// the pending checkpoint must be discarded after the finalization
-			Preconditions.checkState(pendingCheckpoint.isDiscarded() && completedCheckpoint != null);
+			final long finalizationDuration = clock.relativeTimeMillis() - finalizationStart;
+
+			synchronized (lock) {
+				completeFinalizedCheckpoint(pendingCheckpoint, completedCheckpoint, finalizationEpoch, finalizationDuration);
+			}
+		}
+	}
+
+	/**
+	 * Adds the finalized checkpoint to the completed checkpoint store and notifies the tasks and
+	 * coordinators about its completion. The checkpoint is discarded if the coordinator was shut
+	 * down, or if the pending checkpoints were aborted or the state was restored since the given
+	 * epoch, because the tasks that acknowledged it were failed over in the meantime.
+	 *
+	 * <p>Important: This method should only be called in the checkpoint lock scope.
+	 */
+	private void completeFinalizedCheckpoint(
+			PendingCheckpoint pendingCheckpoint,
+			CompletedCheckpoint completedCheckpoint,
+			long finalizationEpoch,
+			long finalizationDuration) throws CheckpointException {
+
+		assert(Thread.holdsLock(lock));
+
+		final long checkpointId = pendingCheckpoint.getCheckpointId();
+		final long storeRegistrationStart = clock.relativeTimeMillis();
 
+		// the pending checkpoint must be discarded after the finalization
+		Preconditions.checkState(pendingCheckpoint.isDiscarded() && completedCheckpoint != null);
+
+		try {
 			try {
+				if (shutdown) {
+					throw new CheckpointException(CheckpointFailureReason.CHECKPOINT_COORDINATOR_SHUTDOWN);
+				}
+				if (failoverEpoch != finalizationEpoch) {
+					throw new CheckpointException(
+						"The pending checkpoints were aborted while the metadata was written.",
+						CheckpointFailureReason.JOB_FAILURE);
+				}
+
 				completedCheckpointStore.addCheckpoint(completedCheckpoint);
 			} catch (Exception exception) {
 				// we failed to store the completed checkpoint. Let's clean up
@@ -1075,12 +1155,22 @@ public class CheckpointCoordinator {
 				throw new CheckpointException("Could not complete the pending checkpoint " + checkpointId + '.',
 					CheckpointFailureReason.FINALIZE_CHECKPOINT_FAILURE, exception);
 			}
+
+			failureManager.handleCheckpointSuccess(checkpointId);
 		} finally {
+			finalizingCheckpoint = null;
+
 			pendingCheckpoints.remove(checkpointId);
 
 			resumePeriodicTriggering();
 		}
 
+		if (statsTracker != null) {
+			statsTracker.reportCompletionPhaseDurations(
+				finalizationDuration,
+				clock.relativeTimeMillis() - storeRegistrationStart);
+		}
+
 		rememberRecentCheckpointId(checkpointId);
 
 		// drop those pending checkpoints that are at prior to the completed one
@@ -1243,6 +1333,9 @@ public class CheckpointCoordinator {
 				throw new IllegalStateException("CheckpointCoordinator is shut down");
 			}
 
+			// the checkpoint that is finalized concurrently must not be added to the store after the restore
+			failoverEpoch++;
+
 			// We create a new shared state registry object, so that all pending async disposal requests from previous
 			// runs will go against the old object (were they can do no harm).
 			// This must happen under the checkpoint lock.
@@ -1451,6 +1544,8 @@ public class CheckpointCoordinator {
 	 */
 	public void abortPendingCheckpoints(CheckpointException exception) {
 		synchronized (lock) {
+			// the checkpoint that is finalized concurrently is discarded afterwards
+			failoverEpoch++;
 			abortPendingCheckpoints(ignored -> true, exception);
 		}
 	}
@@ -1600,7 +1695,8 @@ public class CheckpointCoordinator {
 
 		assert(Thread.holdsLock(lock));
 
-		if (!pendingCheckpoint.isDiscarded()) {
+		// a checkpoint whose metadata is written is completed or failed by its finalization
+		if (!pendingCheckpoint.isDiscarded() && pendingCheckpoint != finalizingCheckpoint) {
 			try {
 				// release resource here
 				pendingCheckpoint.abort(
@@ -101,6 +101,12 @@ public class CheckpointStatsTracker {
 	@Nullable
 	private volatile CompletedCheckpointStats latestCompletedCheckpoint;
 
+	/** Time it took the coordinator to write the metadata of the latest completed checkpoint. */
+	private volatile long latestFinalizationDuration = -1L;
+
+	/** Time it took the coordinator to add the latest completed checkpoint to the completed checkpoint store. */
+	private volatile long latestStoreRegistrationDuration = -1L;
+
 	/**
 	 * Creates a new checkpoint stats tracker.
 	 *
@@ -259,6 +265,17 @@ public class CheckpointStatsTracker {
 		}
 	}
 
+	/**
+	 * Callback with the durations of the phases of the completion of a checkpoint on the coordinator.
+	 *
+	 * @param finalizationDuration Time to serialize and write the checkpoint metadata (in milliseconds).
+	 * @param storeRegistrationDuration Time to add the checkpoint to the completed checkpoint store (in milliseconds).
+	 */
+	void reportCompletionPhaseDurations(long finalizationDuration, long storeRegistrationDuration) {
+		latestFinalizationDuration = finalizationDuration;
+		latestStoreRegistrationDuration = storeRegistrationDuration;
+	}
+
 	/**
 	 * Callback when a checkpoint fails.
 	 *
@@ -344,6 +361,12 @@ public class CheckpointStatsTracker {
 	@VisibleForTesting
 	static final String LATEST_COMPLETED_CHECKPOINT_EXTERNAL_PATH_METRIC = "lastCheckpointExternalPath";
 
+	@VisibleForTesting
+	static final String LATEST_COMPLETED_CHECKPOINT_FINALIZATION_DURATION_METRIC = "lastCheckpointFinalizationDuration";
+
+	@VisibleForTesting
+	static final String LATEST_COMPLETED_CHECKPOINT_STORE_REGISTRATION_DURATION_METRIC = "lastCheckpointStoreRegistrationDuration";
+
 	/**
 	 * Register the exposed metrics.
 	 *
@@ -358,6 +381,8 @@ public class CheckpointStatsTracker {
 		metricGroup.gauge(LATEST_COMPLETED_CHECKPOINT_SIZE_METRIC, new LatestCompletedCheckpointSizeGauge());
 		metricGroup.gauge(LATEST_COMPLETED_CHECKPOINT_DURATION_METRIC, new LatestCompletedCheckpointDurationGauge());
 		metricGroup.gauge(LATEST_COMPLETED_CHECKPOINT_EXTERNAL_PATH_METRIC, new LatestCompletedCheckpointExternalPathGauge());
+		metricGroup.gauge(LATEST_COMPLETED_CHECKPOINT_FINALIZATION_DURATION_METRIC, new LatestCompletedCheckpointFinalizationDurationGauge());
+		metricGroup.gauge(LATEST_COMPLETED_CHECKPOINT_STORE_REGISTRATION_DURATION_METRIC, new LatestCompletedCheckpointStoreRegistrationDurationGauge());
 	}
 
 	private class CheckpointsCounter implements Gauge<Long> {
@@ -436,4 +461,18 @@ public class CheckpointStatsTracker {
 		}
 	}
 
+	private class LatestCompletedCheckpointFinalizationDurationGauge implements Gauge<Long> {
+		@Override
+		public Long getValue() {
+			return latestFinalizationDuration;
+		}
+	}
+
+	private class LatestCompletedCheckpointStoreRegistrationDurationGauge implements Gauge<Long> {
+		@Override
+		public Long getValue() {
+			return latestStoreRegistrationDuration;
+		}
+	}
+
 }
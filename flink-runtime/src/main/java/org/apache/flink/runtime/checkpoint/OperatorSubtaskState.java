@@ -19,13 +19,17 @@
 package org.apache.flink.runtime.checkpoint;
 
 import org.apache.flink.runtime.state.CompositeStateHandle;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
 import org.apache.flink.runtime.state.InputChannelStateHandle;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.OperatorStateHandle;
 import org.apache.flink.runtime.state.ResultSubpartitionStateHandle;
 import org.apache.flink.runtime.state.SharedStateRegistry;
 import org.apache.flink.runtime.state.StateObject;
 import org.apache.flink.runtime.state.StateUtil;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.SegmentFileStateHandle;
 import org.apache.flink.util.Preconditions;
 
 import org.slf4j.Logger;
@@ -243,6 +247,22 @@ public class OperatorSubtaskState implements CompositeStateHandle {
 	public void registerSharedStates(SharedStateRegistry sharedStateRegistry) {
 		registerSharedState(sharedStateRegistry, managedKeyedState);
 		registerSharedState(sharedStateRegistry, rawKeyedState);
+
+		// the files that state is written to as segments are shared by the handles of the segments
+		for (OperatorStateHandle stateHandle : managedOperatorState) {
+			registerSegmentFile(sharedStateRegistry, stateHandle.getDelegateStateHandle());
+		}
+		for (OperatorStateHandle stateHandle : rawOperatorState) {
+			registerSegmentFile(sharedStateRegistry, stateHandle.getDelegateStateHandle());
+		}
+		registerSegmentFiles(sharedStateRegistry, managedKeyedState);
+		registerSegmentFiles(sharedStateRegistry, rawKeyedState);
+		for (InputChannelStateHandle stateHandle : inputChannelState) {
+			registerSegmentFile(sharedStateRegistry, stateHandle.getDelegate());
+		}
+		for (ResultSubpartitionStateHandle stateHandle : resultSubpartitionState) {
+			registerSegmentFile(sharedStateRegistry, stateHandle.getDelegate());
+		}
 	}
 
 	private static void registerSharedState(
@@ -255,6 +275,31 @@ public class OperatorSubtaskState implements CompositeStateHandle {
 		}
 	}
 
+	private static void registerSegmentFiles(
+		SharedStateRegistry sharedStateRegistry,
+		Iterable<KeyedStateHandle> stateHandles) {
+		for (KeyedStateHandle stateHandle : stateHandles) {
+			if (stateHandle instanceof KeyGroupsStateHandle) {
+				registerSegmentFile(sharedStateRegistry, ((KeyGroupsStateHandle) stateHandle).getDelegateStateHandle());
+			} else if (stateHandle instanceof IncrementalRemoteKeyedStateHandle) {
+				IncrementalRemoteKeyedStateHandle incrementalStateHandle = (IncrementalRemoteKeyedStateHandle) stateHandle;
+				registerSegmentFile(sharedStateRegistry, incrementalStateHandle.getMetaStateHandle());
+				incrementalStateHandle.getPrivateState().values().forEach(
+					handle -> registerSegmentFile(sharedStateRegistry, handle));
+				// the shared state was consolidated with the registry before, so that only the handle that
+				// is kept by the registry references the file
+				incrementalStateHandle.getSharedState().values().forEach(
+					handle -> registerSegmentFile(sharedStateRegistry, handle));
+			}
+		}
+	}
+
+	private static void registerSegmentFile(SharedStateRegistry sharedStateRegistry, StreamStateHandle stateHandle) {
+		if (stateHandle instanceof SegmentFileStateHandle) {
+			((SegmentFileStateHandle) stateHandle).registerSharedStates(sharedStateRegistry);
+		}
+	}
+
 	@Override
 	public long getStateSize() {
 		return stateSize;
@@ -113,7 +113,7 @@ public class PendingCheckpoint {
 
 	private int numAcknowledgedTasks;
 
-	private boolean discarded;
+	private volatile boolean discarded;
 
 	/** Optional stats tracker callback. */
 	@Nullable
@@ -215,11 +215,15 @@ public class PendingCheckpoint {
 	}
 
 	boolean areTasksFullyAcknowledged() {
-		return notYetAcknowledgedTasks.isEmpty() && !discarded;
+		synchronized (lock) {
+			return notYetAcknowledgedTasks.isEmpty() && !discarded;
+		}
 	}
 
 	public boolean isAcknowledgedBy(ExecutionAttemptID executionAttemptId) {
-		return !notYetAcknowledgedTasks.containsKey(executionAttemptId);
+		synchronized (lock) {
+			return !notYetAcknowledgedTasks.containsKey(executionAttemptId);
+		}
 	}
 
 	public boolean isDiscarded() {
@@ -50,6 +50,8 @@ import static org.apache.flink.util.Preconditions.checkState;
  *     <li>reader/writer indices of the passed buffer are respected and updated</li>
  *     <li>buffers must be prepared (cleared) before passing to reader</li>
  *     <li>buffers must be released after use</li>
+ *     <li>input and output state are read from separate streams, so the state of input channels can be read
+ *     concurrently with the state of result subpartitions (by one thread each)</li>
  * </ol>
  */
 @NotThreadSafe
@@ -66,12 +68,13 @@ public class ChannelStateReaderImpl implements ChannelStateReader {
 	}
 
 	ChannelStateReaderImpl(TaskStateSnapshot snapshot, ChannelStateDeserializer serializer) {
-		RefCountingFSDataInputStreamFactory streamFactory = new RefCountingFSDataInputStreamFactory(serializer);
+		RefCountingFSDataInputStreamFactory inputStreamFactory = new RefCountingFSDataInputStreamFactory(serializer);
+		RefCountingFSDataInputStreamFactory outputStreamFactory = new RefCountingFSDataInputStreamFactory(serializer);
 		final HashMap<InputChannelInfo, ChannelStateStreamReader> inputChannelHandleReadersTmp = new HashMap<>();
 		final HashMap<ResultSubpartitionInfo, ChannelStateStreamReader> resultSubpartitionHandleReadersTmp = new HashMap<>();
 		for (Map.Entry<OperatorID, OperatorSubtaskState> e : snapshot.getSubtaskStateMappings()) {
-			addReaders(inputChannelHandleReadersTmp, e.getValue().getInputChannelState(), streamFactory);
-			addReaders(resultSubpartitionHandleReadersTmp, e.getValue().getResultSubpartitionState(), streamFactory);
+			addReaders(inputChannelHandleReadersTmp, e.getValue().getInputChannelState(), inputStreamFactory);
+			addReaders(resultSubpartitionHandleReadersTmp, e.getValue().getResultSubpartitionState(), outputStreamFactory);
 		}
 		inputChannelHandleReaders = inputChannelHandleReadersTmp; // memory barrier to allow another thread call clear()
 		resultSubpartitionHandleReaders = resultSubpartitionHandleReadersTmp; // memory barrier to allow another thread call clear()
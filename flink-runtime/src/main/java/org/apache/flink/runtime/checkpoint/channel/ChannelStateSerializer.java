@@ -18,6 +18,9 @@
 package org.apache.flink.runtime.checkpoint.channel;
 
 import org.apache.flink.annotation.Internal;
+import org.apache.flink.runtime.io.compression.BlockCompressor;
+import org.apache.flink.runtime.io.compression.BlockDecompressor;
+import org.apache.flink.runtime.io.compression.Lz4BlockCompressionFactory;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
 import org.apache.flink.util.Preconditions;
@@ -26,6 +29,7 @@ import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
 
 import javax.annotation.concurrent.NotThreadSafe;
 
+import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -43,7 +47,11 @@ interface ChannelStateSerializer {
 
 interface ChannelStateDeserializer {
 
-	void readHeader(InputStream stream) throws IOException;
+	/**
+	 * Reads the header of a stream.
+	 * @return the deserializer to read the data of this stream with.
+	 */
+	ChannelStateDeserializer readHeader(InputStream stream) throws IOException;
 
 	int readLength(InputStream stream) throws IOException;
 
@@ -128,16 +136,41 @@ interface ChannelStateByteBuffer {
 	}
 }
 
+/**
+ * Writes the data of each {@link #writeData(DataOutputStream, Buffer...) call} as a length-prefixed record, which can
+ * be read independently. If compression is enabled, each record is compressed as a separate LZ4 block, so that records
+ * can still be read starting at their offsets.
+ */
+@NotThreadSafe
 class ChannelStateSerializerImpl implements ChannelStateSerializer, ChannelStateDeserializer {
 	private static final int SERIALIZATION_VERSION = 0;
+	private static final int COMPRESSED_SERIALIZATION_VERSION = 1;
+
+	private final boolean compressionEnabled;
+	private final BlockCompressor compressor;
+	private byte[] uncompressed = new byte[0];
+	private byte[] compressed = new byte[0];
+
+	ChannelStateSerializerImpl() {
+		this(false);
+	}
+
+	ChannelStateSerializerImpl(boolean compressionEnabled) {
+		this.compressionEnabled = compressionEnabled;
+		this.compressor = compressionEnabled ? new Lz4BlockCompressionFactory().getCompressor() : null;
+	}
 
 	@Override
 	public void writeHeader(DataOutputStream dataStream) throws IOException {
-		dataStream.writeInt(SERIALIZATION_VERSION);
+		dataStream.writeInt(compressionEnabled ? COMPRESSED_SERIALIZATION_VERSION : SERIALIZATION_VERSION);
 	}
 
 	@Override
 	public void writeData(DataOutputStream stream, Buffer... flinkBuffers) throws IOException {
+		if (compressionEnabled) {
+			writeCompressedData(stream, flinkBuffers);
+			return;
+		}
 		stream.writeInt(getSize(flinkBuffers));
 		for (Buffer buffer : flinkBuffers) {
 			ByteBuf nettyByteBuf = buffer.asByteBuf();
@@ -145,6 +178,34 @@ class ChannelStateSerializerImpl implements ChannelStateSerializer, ChannelState
 		}
 	}
 
+	private void writeCompressedData(DataOutputStream stream, Buffer[] flinkBuffers) throws IOException {
+		final int size = getSize(flinkBuffers);
+		stream.writeInt(size);
+		if (size == 0) {
+			stream.writeInt(0);
+			return;
+		}
+
+		if (uncompressed.length < size) {
+			uncompressed = new byte[size];
+		}
+		int copied = 0;
+		for (Buffer buffer : flinkBuffers) {
+			ByteBuf nettyByteBuf = buffer.asByteBuf();
+			int length = nettyByteBuf.readableBytes();
+			nettyByteBuf.getBytes(nettyByteBuf.readerIndex(), uncompressed, copied, length);
+			copied += length;
+		}
+
+		int maxCompressedSize = compressor.getMaxCompressedSize(size);
+		if (compressed.length < maxCompressedSize) {
+			compressed = new byte[maxCompressedSize];
+		}
+		int compressedSize = compressor.compress(uncompressed, 0, size, compressed, 0);
+		stream.writeInt(compressedSize);
+		stream.write(compressed, 0, compressedSize);
+	}
+
 	private int getSize(Buffer[] buffers) {
 		int len = 0;
 		for (Buffer buffer : buffers) {
@@ -154,9 +215,13 @@ class ChannelStateSerializerImpl implements ChannelStateSerializer, ChannelState
 	}
 
 	@Override
-	public void readHeader(InputStream stream) throws IOException {
+	public ChannelStateDeserializer readHeader(InputStream stream) throws IOException {
 		int version = readInt(stream);
+		if (version == COMPRESSED_SERIALIZATION_VERSION) {
+			return new CompressedChannelStateDeserializer();
+		}
 		Preconditions.checkArgument(version == SERIALIZATION_VERSION, "unsupported version: " + version);
+		return this;
 	}
 
 	@Override
@@ -171,7 +236,56 @@ class ChannelStateSerializerImpl implements ChannelStateSerializer, ChannelState
 		return buffer.writeBytes(stream, bytes);
 	}
 
-	private static int readInt(InputStream stream) throws IOException {
+	static int readInt(InputStream stream) throws IOException {
 		return new DataInputStream(stream).readInt();
 	}
 }
+
+/**
+ * Reads the data of a stream written by a {@link ChannelStateSerializerImpl} with compression enabled. The record at
+ * the current offset is decompressed at once by {@link #readLength(InputStream)}, so the state of a channel must be
+ * read completely before the stream is positioned at another offset.
+ */
+@NotThreadSafe
+class CompressedChannelStateDeserializer implements ChannelStateDeserializer {
+
+	private final BlockDecompressor decompressor = new Lz4BlockCompressionFactory().getDecompressor();
+	private byte[] compressed = new byte[0];
+	private byte[] uncompressed = new byte[0];
+	private InputStream record = new ByteArrayInputStream(uncompressed);
+
+	/**
+	 * This deserializer is only returned by {@link ChannelStateSerializerImpl#readHeader(InputStream)}, after the
+	 * header of the stream was read.
+	 */
+	@Override
+	public ChannelStateDeserializer readHeader(InputStream stream) {
+		throw new IllegalStateException("The header of the stream was already read.");
+	}
+
+	@Override
+	public int readLength(InputStream stream) throws IOException {
+		int len = ChannelStateSerializerImpl.readInt(stream);
+		Preconditions.checkArgument(len >= 0, "negative state size");
+		int compressedLen = ChannelStateSerializerImpl.readInt(stream);
+		Preconditions.checkArgument(compressedLen >= 0, "negative compressed state size");
+
+		if (compressed.length < compressedLen) {
+			compressed = new byte[compressedLen];
+		}
+		new DataInputStream(stream).readFully(compressed, 0, compressedLen);
+		if (uncompressed.length < len) {
+			uncompressed = new byte[len];
+		}
+		int decompressedLen = len == 0 ? 0 : decompressor.decompress(compressed, 0, compressedLen, uncompressed, 0);
+		Preconditions.checkState(decompressedLen == len, "corrupted channel state");
+		record = new ByteArrayInputStream(uncompressed, 0, len);
+		return len;
+	}
+
+	@Override
+	public int readData(InputStream stream, ChannelStateByteBuffer buffer, int bytes) throws IOException {
+		// unlike the underlying stream, the record returns -1 once it is exhausted
+		return record.available() == 0 ? 0 : buffer.writeBytes(record, bytes);
+	}
+}
@@ -45,19 +45,17 @@ import static org.apache.flink.runtime.checkpoint.channel.ChannelStateReader.Rea
 class ChannelStateStreamReader implements Closeable {
 
 	private final RefCountingFSDataInputStream stream;
-	private final ChannelStateDeserializer serializer;
 	private final Queue<Long> offsets;
 	private int remainingBytes = -1;
 	private boolean closed = false;
 
 	ChannelStateStreamReader(AbstractChannelStateHandle<?> handle, RefCountingFSDataInputStreamFactory streamFactory) {
-		this(streamFactory.getOrCreate(handle), handle.getOffsets(), streamFactory.getSerializer());
+		this(streamFactory.getOrCreate(handle), handle.getOffsets());
 	}
 
-	private ChannelStateStreamReader(RefCountingFSDataInputStream stream, List<Long> offsets, ChannelStateDeserializer serializer) {
+	private ChannelStateStreamReader(RefCountingFSDataInputStream stream, List<Long> offsets) {
 		this.stream = stream;
 		this.stream.incRef();
-		this.serializer = serializer;
 		this.offsets = new LinkedList<>(offsets);
 	}
 
@@ -86,7 +84,7 @@ class ChannelStateStreamReader implements Closeable {
 			if (remainingBytes <= 0) {
 				advanceOffset();
 			}
-			int bytesRead = serializer.readData(stream, buffer, remainingBytes);
+			int bytesRead = stream.getDeserializer().readData(stream, buffer, remainingBytes);
 			remainingBytes -= bytesRead;
 		}
 	}
@@ -98,7 +96,7 @@ class ChannelStateStreamReader implements Closeable {
 	@SuppressWarnings("ConstantConditions")
 	private void advanceOffset() throws IOException {
 		stream.seek(offsets.poll());
-		remainingBytes = serializer.readLength(stream);
+		remainingBytes = stream.getDeserializer().readLength(stream);
 	}
 
 	@Override
@@ -63,7 +63,16 @@ public class ChannelStateWriterImpl implements ChannelStateWriter {
 	 * Creates a {@link ChannelStateWriterImpl} with {@link #DEFAULT_MAX_CHECKPOINTS} as {@link #maxCheckpoints}.
 	 */
 	public ChannelStateWriterImpl(CheckpointStorageWorkerView streamFactoryResolver) {
-		this(streamFactoryResolver, DEFAULT_MAX_CHECKPOINTS);
+		this(streamFactoryResolver, false);
+	}
+
+	/**
+	 * Creates a {@link ChannelStateWriterImpl} with {@link #DEFAULT_MAX_CHECKPOINTS} as {@link #maxCheckpoints}.
+	 *
+	 * @param compressionEnabled whether to compress the channel state with LZ4.
+	 */
+	public ChannelStateWriterImpl(CheckpointStorageWorkerView streamFactoryResolver, boolean compressionEnabled) {
+		this(streamFactoryResolver, DEFAULT_MAX_CHECKPOINTS, compressionEnabled);
 	}
 
 	/**
@@ -74,9 +83,15 @@ public class ChannelStateWriterImpl implements ChannelStateWriter {
 	 * @param streamFactoryResolver a factory to obtain output stream factory for a given checkpoint
 	 */
 	ChannelStateWriterImpl(CheckpointStorageWorkerView streamFactoryResolver, int maxCheckpoints) {
+		this(streamFactoryResolver, maxCheckpoints, false);
+	}
+
+	ChannelStateWriterImpl(CheckpointStorageWorkerView streamFactoryResolver, int maxCheckpoints, boolean compressionEnabled) {
 		this(
 			new ConcurrentHashMap<>(maxCheckpoints),
-			new ChannelStateWriteRequestExecutorImpl(new ChannelStateWriteRequestDispatcherImpl(streamFactoryResolver, new ChannelStateSerializerImpl())),
+			new ChannelStateWriteRequestExecutorImpl(new ChannelStateWriteRequestDispatcherImpl(
+				streamFactoryResolver,
+				new ChannelStateSerializerImpl(compressionEnabled))),
 			maxCheckpoints
 		);
 	}
@@ -40,6 +40,7 @@ class RefCountingFSDataInputStream extends FSDataInputStream {
 	private final SupplierWithException<FSDataInputStream, IOException> streamSupplier;
 	private FSDataInputStream stream;
 	private final ChannelStateDeserializer serializer;
+	private ChannelStateDeserializer dataDeserializer;
 	private int refCount = 0;
 	private State state = State.NEW;
 
@@ -69,6 +70,12 @@ class RefCountingFSDataInputStream extends FSDataInputStream {
 		return stream.read();
 	}
 
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		ensureOpen();
+		return stream.read(b, off, len);
+	}
+
 	@Override
 	public void seek(long pos) throws IOException {
 		ensureOpen();
@@ -81,6 +88,14 @@ class RefCountingFSDataInputStream extends FSDataInputStream {
 		return stream.getPos();
 	}
 
+	/**
+	 * Returns the deserializer for the data of this stream, as determined by its header.
+	 */
+	ChannelStateDeserializer getDeserializer() throws IOException {
+		ensureOpen();
+		return dataDeserializer;
+	}
+
 	public void close() throws IOException {
 		state = State.CLOSED;
 		if (stream != null) {
@@ -93,7 +108,7 @@ class RefCountingFSDataInputStream extends FSDataInputStream {
 		checkNotClosed();
 		if (state == State.NEW) {
 			stream = Preconditions.checkNotNull(streamSupplier.get());
-			serializer.readHeader(stream);
+			dataDeserializer = serializer.readHeader(stream);
 			state = State.OPENED;
 		}
 	}
@@ -120,10 +135,6 @@ class RefCountingFSDataInputStream extends FSDataInputStream {
 			}
 			return stream;
 		}
-
-		ChannelStateDeserializer getSerializer() {
-			return serializer;
-		}
 	}
 
 }
@@ -38,6 +38,7 @@ import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StateObject;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.filesystem.FileStateHandle;
+import org.apache.flink.runtime.state.filesystem.SegmentFileStateHandle;
 import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
 import org.apache.flink.util.function.BiConsumerWithException;
 import org.apache.flink.util.function.FunctionWithException;
@@ -88,6 +89,7 @@ public abstract class MetadataV2V3SerializerBase {
 	private static final byte KEY_GROUPS_HANDLE = 3;
 	private static final byte PARTITIONABLE_OPERATOR_STATE_HANDLE = 4;
 	private static final byte INCREMENTAL_KEY_GROUPS_HANDLE = 5;
+	private static final byte SEGMENT_FILE_STREAM_STATE_HANDLE = 6;
 
 	// ------------------------------------------------------------------------
 	//  (De)serialization entry points
@@ -454,6 +456,13 @@ public abstract class MetadataV2V3SerializerBase {
 			dos.writeLong(stateHandle.getStateSize());
 			dos.writeUTF(fileStateHandle.getFilePath().toString());
 
+		} else if (stateHandle instanceof SegmentFileStateHandle) {
+			dos.writeByte(SEGMENT_FILE_STREAM_STATE_HANDLE);
+			SegmentFileStateHandle segmentFileStateHandle = (SegmentFileStateHandle) stateHandle;
+			dos.writeLong(segmentFileStateHandle.getStartPosition());
+			dos.writeLong(stateHandle.getStateSize());
+			dos.writeUTF(segmentFileStateHandle.getFilePath().toString());
+
 		} else if (stateHandle instanceof ByteStreamStateHandle) {
 			dos.writeByte(BYTE_STREAM_STATE_HANDLE);
 			ByteStreamStateHandle byteStreamStateHandle = (ByteStreamStateHandle) stateHandle;
@@ -476,6 +485,11 @@ public abstract class MetadataV2V3SerializerBase {
 			long size = dis.readLong();
 			String pathString = dis.readUTF();
 			return new FileStateHandle(new Path(pathString), size);
+		} else if (SEGMENT_FILE_STREAM_STATE_HANDLE == type) {
+			long startPosition = dis.readLong();
+			long size = dis.readLong();
+			String pathString = dis.readUTF();
+			return new SegmentFileStateHandle(new Path(pathString), startPosition, size);
 		} else if (BYTE_STREAM_STATE_HANDLE == type) {
 			String handleName = dis.readUTF();
 			int numBytes = dis.readInt();
@@ -31,6 +31,7 @@ import org.apache.flink.runtime.clusterframework.types.AllocationID;
 import org.apache.flink.runtime.clusterframework.types.ResourceProfile;
 import org.apache.flink.runtime.execution.ExecutionState;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.jobgraph.DistributionPattern;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
 import org.apache.flink.runtime.jobgraph.JobEdge;
@@ -770,13 +771,14 @@ public class ExecutionVertex implements AccessExecutionVertex, Archiveable<Archi
 
 		partition.markDataProduced();
 
-		if (partition.getIntermediateResult().getResultType().isPipelined()) {
+		final ResultPartitionType resultType = partition.getIntermediateResult().getResultType();
+		if (resultType.isPipelined() || resultType.isHybrid()) {
 			// Schedule or update receivers of this partition
 			execution.scheduleOrUpdateConsumers(partition.getConsumers());
 		}
 		else {
-			throw new IllegalArgumentException("ScheduleOrUpdateConsumers msg is only valid for" +
-					"pipelined partitions.");
+			throw new IllegalArgumentException("ScheduleOrUpdateConsumers msg is only valid for " +
+					"pipelined and hybrid partitions.");
 		}
 	}
 
@@ -41,6 +41,11 @@ public class IntermediateResultPartition {
 	 */
 	private boolean hasDataProduced = false;
 
+	/**
+	 * Whether the producer of this blocking or hybrid partition has finished.
+	 */
+	private boolean isFinished = false;
+
 	public IntermediateResultPartition(IntermediateResult totalResult, ExecutionVertex producer, int partitionNumber) {
 		this.totalResult = totalResult;
 		this.producer = producer;
@@ -78,7 +83,7 @@ public class IntermediateResultPartition {
 	}
 
 	public boolean isConsumable() {
-		if (getResultType().isPipelined()) {
+		if (getResultType().isPipelined() || getResultType().isHybrid()) {
 			return hasDataProduced;
 		} else {
 			return totalResult.areAllPartitionsFinished();
@@ -86,12 +91,13 @@ public class IntermediateResultPartition {
 	}
 
 	void resetForNewExecution() {
-		if (getResultType().isBlocking() && hasDataProduced) {
-			// A BLOCKING result partition with data produced means it is finished
-			// Need to add the running producer count of the result on resetting it
+		if (getResultType().isBlocking() && isFinished) {
+			// Need to add the running producer count of the result on resetting a finished
+			// BLOCKING or HYBRID result partition
 			totalResult.incrementNumberOfRunningProducersAndGetRemaining();
 		}
 		hasDataProduced = false;
+		isFinished = false;
 	}
 
 	int addConsumerGroup() {
@@ -117,6 +123,7 @@ public class IntermediateResultPartition {
 		}
 
 		hasDataProduced = true;
+		isFinished = true;
 
 		final int refCnt = totalResult.decrementNumberOfRunningProducersAndGetRemaining();
 
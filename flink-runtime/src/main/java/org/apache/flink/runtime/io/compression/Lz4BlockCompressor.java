@@ -54,7 +54,10 @@ public class Lz4BlockCompressor implements BlockCompressor {
 			final int prevSrcOff = src.position() + srcOff;
 			final int prevDstOff = dst.position() + dstOff;
 
-			int maxCompressedSize = compressor.maxCompressedLength(srcLen);
+			// compress into whatever room the destination has, LZ4 fails if it is not sufficient
+			int maxCompressedSize = Math.min(
+				compressor.maxCompressedLength(srcLen),
+				dst.limit() - prevDstOff - HEADER_LENGTH);
 			int compressedLength = compressor.compress(
 					src,
 					prevSrcOff,
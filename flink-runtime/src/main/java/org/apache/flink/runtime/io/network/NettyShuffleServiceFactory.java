@@ -38,6 +38,7 @@ import org.apache.flink.runtime.shuffle.ShuffleEnvironmentContext;
 import org.apache.flink.runtime.shuffle.ShuffleServiceFactory;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
 
+import static org.apache.flink.runtime.io.network.metrics.NettyShuffleMetricFactory.registerConnectionMetrics;
 import static org.apache.flink.runtime.io.network.metrics.NettyShuffleMetricFactory.registerShuffleMetrics;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
@@ -85,9 +86,15 @@ public class NettyShuffleServiceFactory implements ShuffleServiceFactory<NettySh
 
 		FileChannelManager fileChannelManager = new FileChannelManagerImpl(config.getTempDirs(), DIR_NAME_PREFIX);
 
-		ConnectionManager connectionManager = nettyConfig != null ?
-			new NettyConnectionManager(resultPartitionManager, taskEventPublisher, nettyConfig) :
-			new LocalConnectionManager();
+		ConnectionManager connectionManager;
+		if (nettyConfig != null) {
+			NettyConnectionManager nettyConnectionManager =
+				new NettyConnectionManager(resultPartitionManager, taskEventPublisher, nettyConfig);
+			registerConnectionMetrics(metricGroup, nettyConnectionManager.getNumControlMessagesOut());
+			connectionManager = nettyConnectionManager;
+		} else {
+			connectionManager = new LocalConnectionManager();
+		}
 
 		NetworkBufferPool networkBufferPool = new NetworkBufferPool(
 			config.numNetworkBuffers(),
@@ -107,8 +114,12 @@ public class NettyShuffleServiceFactory implements ShuffleServiceFactory<NettySh
 			config.networkBufferSize(),
 			config.isForcePartitionReleaseOnConsumption(),
 			config.isBlockingShuffleCompressionEnabled(),
+			config.isPipelinedShuffleCompressionEnabled(),
 			config.getCompressionCodec(),
-			config.getMaxBuffersPerChannel());
+			config.getMaxBuffersPerChannel(),
+			config.getSortShuffleMinParallelism(),
+			config.getSortShuffleBufferSize(),
+			nettyConfig != null && nettyConfig.getSSLEnabled());
 
 		SingleInputGateFactory singleInputGateFactory = new SingleInputGateFactory(
 			taskExecutorResourceId,
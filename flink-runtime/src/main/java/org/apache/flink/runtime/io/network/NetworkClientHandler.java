@@ -56,4 +56,12 @@ public interface NetworkClientHandler extends ChannelHandler {
 	 * @param inputChannel The input channel to resume data consumption.
 	 */
 	void resumeConsumption(RemoteInputChannel inputChannel);
+
+	/**
+	 * Announces the buffer size the input channel wants to receive to the producer.
+	 *
+	 * @param inputChannel The input channel announcing the new buffer size.
+	 * @param bufferSize The new buffer size.
+	 */
+	void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize);
 }
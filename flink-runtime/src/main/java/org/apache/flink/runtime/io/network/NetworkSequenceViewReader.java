@@ -50,6 +50,11 @@ public interface NetworkSequenceViewReader {
 	 */
 	void resumeConsumption();
 
+	/**
+	 * Notifies the buffer size the consumer wants to receive.
+	 */
+	void notifyNewBufferSize(int newBufferSize);
+
 	/**
 	 * Checks whether this reader is available or not.
 	 *
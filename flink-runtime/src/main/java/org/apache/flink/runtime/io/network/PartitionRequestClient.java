@@ -57,6 +57,14 @@ public interface PartitionRequestClient {
 	 */
 	void resumeConsumption(RemoteInputChannel inputChannel);
 
+	/**
+	 * Notifies the producer of the buffer size the remote input channel wants to receive.
+	 *
+	 * @param inputChannel The remote input channel who announces the new buffer size.
+	 * @param bufferSize The new buffer size.
+	 */
+	void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize);
+
 	/**
 	 * Sends a task event backwards to an intermediate result partition.
 	 *
@@ -72,6 +72,16 @@ public interface RecordSerializer<T extends IOReadableWritable> {
 	 */
 	void serializeRecord(T record) throws IOException;
 
+	/**
+	 * Serializes the given record to the intermediate data buffer, behind the records serialized
+	 * since the last call to {@link #serializeRecord(IOReadableWritable)}. This allows copying a
+	 * batch of records to the target buffers at once, and must not be called after the copying
+	 * started.
+	 *
+	 * @param record the record to serialize
+	 */
+	void appendRecord(T record) throws IOException;
+
 	/**
 	 * Copies the intermediate data serialization buffer to the given target buffer.
 	 *
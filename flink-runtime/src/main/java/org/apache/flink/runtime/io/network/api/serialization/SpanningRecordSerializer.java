@@ -78,6 +78,34 @@ public class SpanningRecordSerializer<T extends IOReadableWritable> implements R
 		dataBuffer = serializationBuffer.wrapAsByteBuffer();
 	}
 
+	/**
+	 * Serializes the record with its length behind the already serialized records.
+	 *
+	 * @param record the record to serialize
+	 */
+	@Override
+	public void appendRecord(T record) throws IOException {
+		if (CHECKED) {
+			if (dataBuffer.position() > 0) {
+				throw new IllegalStateException("Copying of the previous records already started.");
+			}
+		}
+
+		final int start = serializationBuffer.length();
+		// unlike skipping, writing a placeholder grows the buffer if needed
+		serializationBuffer.writeInt(0);
+
+		// write data and length
+		record.write(serializationBuffer);
+
+		int len = serializationBuffer.length() - start - 4;
+		serializationBuffer.setPosition(start);
+		serializationBuffer.writeInt(len);
+		serializationBuffer.skipBytesToWrite(len);
+
+		dataBuffer = serializationBuffer.wrapAsByteBuffer();
+	}
+
 	/**
 	 * Copies an intermediate data serialization buffer into the target BufferBuilder.
 	 *
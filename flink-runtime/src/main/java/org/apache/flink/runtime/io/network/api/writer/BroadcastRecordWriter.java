@@ -26,6 +26,7 @@ import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
+import java.util.List;
 
 import static org.apache.flink.util.Preconditions.checkState;
 
@@ -62,6 +63,12 @@ public final class BroadcastRecordWriter<T extends IOReadableWritable> extends R
 		broadcastEmit(record);
 	}
 
+	@Override
+	public void emitAll(List<T> records) throws IOException, InterruptedException {
+		// all the channels share the same BufferBuilder, so the whole batch is copied only once
+		emitAll(records, 0);
+	}
+
 	@Override
 	public void randomEmit(T record) throws IOException, InterruptedException {
 		randomEmit(record, rng.nextInt(numberOfChannels));
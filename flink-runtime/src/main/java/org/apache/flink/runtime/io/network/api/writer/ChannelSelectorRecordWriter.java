@@ -22,6 +22,8 @@ import org.apache.flink.core.io.IOReadableWritable;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
@@ -42,6 +44,15 @@ public final class ChannelSelectorRecordWriter<T extends IOReadableWritable> ext
 	/** Every subpartition maintains a separate buffer builder which might be null. */
 	private final BufferBuilder[] bufferBuilders;
 
+	/** The start offsets of the channels in {@link #batchOrder}, reused across {@link #emitAll(List)} calls. */
+	private final int[] channelOffsets;
+
+	/** The selected channel of every record of the current batch. */
+	private int[] batchChannels = new int[0];
+
+	/** The indices of the records of the current batch, grouped by their channel. */
+	private int[] batchOrder = new int[0];
+
 	ChannelSelectorRecordWriter(
 			ResultPartitionWriter writer,
 			ChannelSelector<T> channelSelector,
@@ -53,6 +64,7 @@ public final class ChannelSelectorRecordWriter<T extends IOReadableWritable> ext
 		this.channelSelector.setup(numberOfChannels);
 
 		this.bufferBuilders = new BufferBuilder[numberOfChannels];
+		this.channelOffsets = new int[numberOfChannels + 1];
 	}
 
 	@Override
@@ -60,6 +72,64 @@ public final class ChannelSelectorRecordWriter<T extends IOReadableWritable> ext
 		emit(record, channelSelector.selectChannel(record));
 	}
 
+	/**
+	 * Selects the channels for the whole batch first and groups the records by their channel, so
+	 * that the records of every channel are serialized in one tight loop and copied into the
+	 * channel's {@link BufferBuilder} at once.
+	 */
+	@Override
+	public void emitAll(List<T> records) throws IOException, InterruptedException {
+		checkErroneous();
+
+		final int numRecords = records.size();
+		if (numRecords <= 1) {
+			if (numRecords == 1) {
+				emit(records.get(0));
+			}
+			return;
+		}
+
+		if (batchChannels.length < numRecords) {
+			batchChannels = new int[numRecords];
+			batchOrder = new int[numRecords];
+		}
+
+		// counting sort of the records by their channel, which keeps the order within a channel
+		Arrays.fill(channelOffsets, 0);
+		for (int i = 0; i < numRecords; i++) {
+			final int targetChannel = channelSelector.selectChannel(records.get(i));
+			batchChannels[i] = targetChannel;
+			channelOffsets[targetChannel + 1]++;
+		}
+		for (int channel = 0; channel < numberOfChannels; channel++) {
+			channelOffsets[channel + 1] += channelOffsets[channel];
+		}
+		for (int i = 0; i < numRecords; i++) {
+			batchOrder[channelOffsets[batchChannels[i]]++] = i;
+		}
+
+		// after the previous loop, the offset of every channel is the start of the next channel
+		boolean pruneAfterCopying = false;
+		int start = 0;
+		for (int targetChannel = 0; targetChannel < numberOfChannels; targetChannel++) {
+			final int end = channelOffsets[targetChannel];
+			if (end > start) {
+				serializer.serializeRecord(records.get(batchOrder[start]));
+				for (int i = start + 1; i < end; i++) {
+					serializer.appendRecord(records.get(batchOrder[i]));
+				}
+				if (copyFromSerializerToTargetChannel(targetChannel)) {
+					pruneAfterCopying = true;
+				}
+			}
+			start = end;
+		}
+
+		if (pruneAfterCopying) {
+			serializer.prune();
+		}
+	}
+
 	@Override
 	public void randomEmit(T record) throws IOException, InterruptedException {
 		emit(record, rng.nextInt(numberOfChannels));
@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.api.writer;
+
+import org.apache.flink.annotation.VisibleForTesting;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Periodically flushes the outputs of the registered {@link RecordWriter}s, to set upper latency
+ * bounds. A single daemon thread per JVM, i.e. per TaskManager, serves all writers, instead of one
+ * thread per writer.
+ *
+ * <p>The flushes are scheduled on a hashed timer wheel with a tick of one millisecond. A writer that
+ * is due in {@code n} ticks is put into the slot {@code (currentTick + n) % WHEEL_SIZE}, together with
+ * the number of full rounds of the wheel it still has to wait. Registering, cancelling and
+ * triggering a writer thus take constant time, independent of the number of registered writers.
+ *
+ * <p>Every writer is checked {@link #CHECKS_PER_TIMEOUT} times per timeout. Besides the regular
+ * flush once the timeout has elapsed, a writer is flushed early if it has not been written to since
+ * the previous check but still holds unflushed data, because no further records are likely to join
+ * that data before the timeout.
+ *
+ * <p>The wheel is only advanced under the lock. The writers that are due are flushed after the lock
+ * was released, so that a slow flush does not block the registration and cancellation of the writers
+ * of other tasks.
+ */
+public final class OutputFlushScheduler {
+
+	private static final Logger LOG = LoggerFactory.getLogger(OutputFlushScheduler.class);
+
+	/** Number of slots of the wheel, must be a power of two. */
+	@VisibleForTesting
+	static final int WHEEL_SIZE = 512;
+
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	/** How often a writer is checked for idleness within its timeout. */
+	@VisibleForTesting
+	static final int CHECKS_PER_TIMEOUT = 4;
+
+	private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+	private static final OutputFlushScheduler INSTANCE = new OutputFlushScheduler(true);
+
+	private final Object lock = new Object();
+
+	@GuardedBy("lock")
+	private final List<Registration>[] wheel;
+
+	/** The list to swap with the slot which is currently processed, to avoid allocations per tick. */
+	@GuardedBy("lock")
+	private List<Registration> spareSlot = new ArrayList<>();
+
+	/** The registrations to flush after the current tick, only accessed by the thread that calls {@link #tick()}. */
+	private final List<Registration> dueFlushes = new ArrayList<>();
+
+	@GuardedBy("lock")
+	private long currentTick;
+
+	@GuardedBy("lock")
+	private int numberOfRegisteredWriters;
+
+	/** Whether ticks are driven by a dedicated thread, which is started on the first registration. */
+	private final boolean runsTicker;
+
+	@GuardedBy("lock")
+	private Thread ticker;
+
+	@SuppressWarnings("unchecked")
+	@VisibleForTesting
+	OutputFlushScheduler(boolean runsTicker) {
+		this.runsTicker = runsTicker;
+		this.wheel = new List[WHEEL_SIZE];
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			wheel[i] = new ArrayList<>();
+		}
+	}
+
+	/**
+	 * Returns the scheduler shared by all writers of this JVM.
+	 */
+	public static OutputFlushScheduler getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Registers the writer to be flushed at least every {@code timeoutMillis} milliseconds.
+	 *
+	 * @return The registration, which has to be cancelled once the writer is closed.
+	 */
+	Registration register(RecordWriter<?> writer, long timeoutMillis) {
+		checkArgument(timeoutMillis > 0, "The flush timeout must be positive.");
+		Registration registration = new Registration(checkNotNull(writer), timeoutMillis);
+
+		synchronized (lock) {
+			registration.lastFlushTick = currentTick;
+			registration.numberOfWritesAtLastCheck = writer.getNumberOfWrites();
+			registration.numberOfWritesAtLastFlush = registration.numberOfWritesAtLastCheck;
+			schedule(registration, registration.checkIntervalTicks);
+			if (numberOfRegisteredWriters++ == 0) {
+				if (runsTicker && ticker == null) {
+					ticker = new Thread(this::runTicker, RecordWriter.DEFAULT_OUTPUT_FLUSH_THREAD_NAME);
+					ticker.setDaemon(true);
+					ticker.start();
+				}
+				lock.notifyAll();
+			}
+		}
+		return registration;
+	}
+
+	@VisibleForTesting
+	int getNumberOfRegisteredWriters() {
+		synchronized (lock) {
+			return numberOfRegisteredWriters;
+		}
+	}
+
+	/**
+	 * Advances the wheel by one tick and flushes the writers that are due.
+	 */
+	@VisibleForTesting
+	void tick() {
+		synchronized (lock) {
+			currentTick++;
+			int slot = (int) (currentTick & WHEEL_MASK);
+
+			List<Registration> dueRegistrations = wheel[slot];
+			wheel[slot] = spareSlot;
+			spareSlot = dueRegistrations;
+
+			for (Registration registration : dueRegistrations) {
+				if (registration.cancelled) {
+					continue;
+				}
+				if (registration.remainingRounds > 0) {
+					registration.remainingRounds--;
+					wheel[slot].add(registration);
+				} else if (check(registration)) {
+					dueFlushes.add(registration);
+				}
+			}
+			dueRegistrations.clear();
+		}
+
+		for (Registration registration : dueFlushes) {
+			flush(registration);
+		}
+		dueFlushes.clear();
+	}
+
+	/**
+	 * Checks the writer and schedules its next check.
+	 *
+	 * @return Whether the writer has to be flushed.
+	 */
+	@GuardedBy("lock")
+	private boolean check(Registration registration) {
+		long numberOfWrites = registration.writer.getNumberOfWrites();
+		boolean idle = numberOfWrites == registration.numberOfWritesAtLastCheck;
+		boolean dirty = numberOfWrites != registration.numberOfWritesAtLastFlush;
+		registration.numberOfWritesAtLastCheck = numberOfWrites;
+
+		long ticksSinceFlush = currentTick - registration.lastFlushTick;
+		boolean due = ticksSinceFlush >= registration.timeoutTicks || (idle && dirty);
+		if (due) {
+			registration.numberOfWritesAtLastFlush = numberOfWrites;
+			registration.lastFlushTick = currentTick;
+			ticksSinceFlush = 0;
+		}
+
+		schedule(registration, Math.min(
+			registration.checkIntervalTicks,
+			registration.timeoutTicks - ticksSinceFlush));
+		return due;
+	}
+
+	/**
+	 * Flushes the writer outside of the lock. The flush holds the monitor of the registration, so that
+	 * {@link Registration#cancel()} can wait for it to complete.
+	 */
+	private void flush(Registration registration) {
+		synchronized (registration) {
+			if (registration.cancelled) {
+				return;
+			}
+
+			try {
+				registration.writer.flushAll();
+			}
+			catch (Throwable t) {
+				// any errors here should stop the flushing and be recognized by the writer
+				registration.writer.notifyFlusherException(t);
+				synchronized (lock) {
+					cancel(registration);
+				}
+			}
+		}
+	}
+
+	@GuardedBy("lock")
+	private void schedule(Registration registration, long delayTicks) {
+		registration.remainingRounds = (delayTicks - 1) / WHEEL_SIZE;
+		wheel[(int) ((currentTick + delayTicks) & WHEEL_MASK)].add(registration);
+	}
+
+	@GuardedBy("lock")
+	private void cancel(Registration registration) {
+		if (!registration.cancelled) {
+			registration.cancelled = true;
+			numberOfRegisteredWriters--;
+		}
+	}
+
+	private void runTicker() {
+		long nextTickNanos = System.nanoTime();
+		while (true) {
+			try {
+				synchronized (lock) {
+					if (numberOfRegisteredWriters == 0) {
+						// drop the cancelled registrations so that closed writers can be garbage collected
+						for (List<Registration> slot : wheel) {
+							slot.clear();
+						}
+						while (numberOfRegisteredWriters == 0) {
+							lock.wait();
+						}
+						nextTickNanos = System.nanoTime();
+					}
+				}
+
+				nextTickNanos += TICK_NANOS;
+				long sleepNanos = nextTickNanos - System.nanoTime();
+				if (sleepNanos > 0) {
+					TimeUnit.NANOSECONDS.sleep(sleepNanos);
+				}
+				tick();
+			}
+			catch (InterruptedException e) {
+				// the thread is shared by all writers and must not stop
+				LOG.debug("Ignoring interruption of the output flush thread.", e);
+			}
+			catch (Throwable t) {
+				LOG.error("Unexpected error in the output flush thread.", t);
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * The registration of a {@link RecordWriter} at the {@link OutputFlushScheduler}.
+	 */
+	final class Registration {
+
+		private final RecordWriter<?> writer;
+
+		private final long timeoutTicks;
+
+		private final long checkIntervalTicks;
+
+		@GuardedBy("lock")
+		private long remainingRounds;
+
+		@GuardedBy("lock")
+		private long lastFlushTick;
+
+		@GuardedBy("lock")
+		private long numberOfWritesAtLastCheck;
+
+		@GuardedBy("lock")
+		private long numberOfWritesAtLastFlush;
+
+		/** Only set under the lock, but read by the flushes outside of it. */
+		private volatile boolean cancelled;
+
+		private Registration(RecordWriter<?> writer, long timeoutMillis) {
+			this.writer = writer;
+			this.timeoutTicks = timeoutMillis;
+			this.checkIntervalTicks = Math.max(1, timeoutMillis / CHECKS_PER_TIMEOUT);
+		}
+
+		boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * Stops flushing the writer. No flush of the writer is in progress once this method returns.
+		 */
+		void cancel() {
+			synchronized (lock) {
+				OutputFlushScheduler.this.cancel(this);
+			}
+
+			// wait for a flush that is in progress, without holding the lock that the flush may need
+			synchronized (this) {
+				// nothing to do
+			}
+		}
+	}
+}
@@ -40,6 +40,7 @@ import org.slf4j.LoggerFactory;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
 
@@ -62,7 +63,7 @@ import static org.apache.flink.util.Preconditions.checkState;
  */
 public abstract class RecordWriter<T extends IOReadableWritable> implements AvailabilityProvider {
 
-	/** Default name for the output flush thread, if no name with a task reference is given. */
+	/** Name of the thread of the {@link OutputFlushScheduler} that periodically flushes the outputs. */
 	@VisibleForTesting
 	public static final String DEFAULT_OUTPUT_FLUSH_THREAD_NAME = "OutputFlusher";
 
@@ -84,9 +85,17 @@ public abstract class RecordWriter<T extends IOReadableWritable> implements Avai
 
 	private final boolean flushAlways;
 
-	/** The thread that periodically flushes the output, to give an upper latency bound. */
+	/** The registration at the shared scheduler that periodically flushes the output, to give an upper latency bound. */
 	@Nullable
-	private final OutputFlusher outputFlusher;
+	private final OutputFlushScheduler.Registration outputFlusherRegistration;
+
+	private final String taskName;
+
+	/**
+	 * The number of records copied to the target channels, which tells the {@link OutputFlushScheduler}
+	 * whether the output has been touched since its last check. Best-effort visibility is enough here.
+	 */
+	private long numberOfWrites;
 
 	/** To avoid synchronization overhead on the critical path, best-effort error tracking is enough here.*/
 	private Throwable flusherException;
@@ -97,17 +106,14 @@ public abstract class RecordWriter<T extends IOReadableWritable> implements Avai
 
 		this.serializer = new SpanningRecordSerializer<T>();
 
+		this.taskName = taskName;
+
 		checkArgument(timeout >= -1);
 		this.flushAlways = (timeout == 0);
 		if (timeout == -1 || timeout == 0) {
-			outputFlusher = null;
+			outputFlusherRegistration = null;
 		} else {
-			String threadName = taskName == null ?
-				DEFAULT_OUTPUT_FLUSH_THREAD_NAME :
-				DEFAULT_OUTPUT_FLUSH_THREAD_NAME + " for " + taskName;
-
-			outputFlusher = new OutputFlusher(threadName, timeout);
-			outputFlusher.start();
+			outputFlusherRegistration = OutputFlushScheduler.getInstance().register(this, timeout);
 		}
 	}
 
@@ -122,6 +128,26 @@ public abstract class RecordWriter<T extends IOReadableWritable> implements Avai
 		}
 	}
 
+	/**
+	 * Serializes the given records back to back and copies them into the target channel at once.
+	 */
+	protected void emitAll(List<T> records, int targetChannel) throws IOException, InterruptedException {
+		checkErroneous();
+
+		if (records.isEmpty()) {
+			return;
+		}
+
+		serializer.serializeRecord(records.get(0));
+		for (int i = 1; i < records.size(); i++) {
+			serializer.appendRecord(records.get(i));
+		}
+
+		if (copyFromSerializerToTargetChannel(targetChannel)) {
+			serializer.prune();
+		}
+	}
+
 	/**
 	 * @param targetChannel
 	 * @return <tt>true</tt> if the intermediate serialization buffer should be pruned
@@ -150,6 +176,7 @@ public abstract class RecordWriter<T extends IOReadableWritable> implements Avai
 			result = serializer.copyToBufferBuilder(bufferBuilder);
 		}
 		checkState(!serializer.hasSerializedData(), "All data should be written at once");
+		numberOfWrites++;
 
 		if (flushAlways) {
 			flushTargetPartition(targetChannel);
@@ -208,6 +235,18 @@ public abstract class RecordWriter<T extends IOReadableWritable> implements Avai
 	 */
 	public abstract void emit(T record) throws IOException, InterruptedException;
 
+	/**
+	 * This is used to send a batch of regular records. The records end up in the same channels and
+	 * in the same order per channel as if they were sent one by one with {@link #emit(IOReadableWritable)},
+	 * but subclasses may amortize the per-record costs of selecting the channels and copying the
+	 * serialized data over the whole batch.
+	 */
+	public void emitAll(List<T> records) throws IOException, InterruptedException {
+		for (T record : records) {
+			emit(record);
+		}
+	}
+
 	/**
 	 * This is used to send LatencyMarks to a random target channel.
 	 */
@@ -245,31 +284,40 @@ public abstract class RecordWriter<T extends IOReadableWritable> implements Avai
 	public abstract void clearBuffers();
 
 	/**
-	 * Closes the writer. This stops the flushing thread (if there is one).
+	 * Closes the writer. This stops the periodic flushing of the output (if there is one).
 	 */
 	public void close() {
 		clearBuffers();
-		// make sure we terminate the thread in any case
-		if (outputFlusher != null) {
-			outputFlusher.terminate();
-			try {
-				outputFlusher.join();
-			} catch (InterruptedException e) {
-				// ignore on close
-				// restore interrupt flag to fast exit further blocking calls
-				Thread.currentThread().interrupt();
-			}
+		// make sure we stop the flushing in any case
+		if (outputFlusherRegistration != null) {
+			outputFlusherRegistration.cancel();
 		}
 	}
 
 	/**
-	 * Notifies the writer that the output flusher thread encountered an exception.
+	 * Returns whether the output of this writer is currently flushed periodically.
+	 */
+	@VisibleForTesting
+	public boolean isFlushedPeriodically() {
+		return outputFlusherRegistration != null && !outputFlusherRegistration.isCancelled();
+	}
+
+	/**
+	 * Returns the number of records copied to the target channels so far. This is only used by the
+	 * {@link OutputFlushScheduler} to detect idle outputs and is not guaranteed to be up to date.
+	 */
+	long getNumberOfWrites() {
+		return numberOfWrites;
+	}
+
+	/**
+	 * Notifies the writer that the output flusher encountered an exception.
 	 *
 	 * @param t The exception to report.
 	 */
-	private void notifyFlusherException(Throwable t) {
+	void notifyFlusherException(Throwable t) {
 		if (flusherException == null) {
-			LOG.error("An exception happened while flushing the outputs", t);
+			LOG.error("An exception happened while flushing the outputs of {}", taskName, t);
 			flusherException = t;
 		}
 	}
@@ -301,52 +349,4 @@ public abstract class RecordWriter<T extends IOReadableWritable> implements Avai
 	public Meter getIdleTimeMsPerSecond() {
 		return idleTimeMsPerSecond;
 	}
-
-	// ------------------------------------------------------------------------
-
-	/**
-	 * A dedicated thread that periodically flushes the output buffers, to set upper latency bounds.
-	 *
-	 * <p>The thread is daemonic, because it is only a utility thread.
-	 */
-	private class OutputFlusher extends Thread {
-
-		private final long timeout;
-
-		private volatile boolean running = true;
-
-		OutputFlusher(String name, long timeout) {
-			super(name);
-			setDaemon(true);
-			this.timeout = timeout;
-		}
-
-		public void terminate() {
-			running = false;
-			interrupt();
-		}
-
-		@Override
-		public void run() {
-			try {
-				while (running) {
-					try {
-						Thread.sleep(timeout);
-					} catch (InterruptedException e) {
-						// propagate this if we are still running, because it should not happen
-						// in that case
-						if (running) {
-							throw new Exception(e);
-						}
-					}
-
-					// any errors here should let the thread come to a halt and be
-					// recognized by the writer
-					flushAll();
-				}
-			} catch (Throwable t) {
-				notifyFlusherException(t);
-			}
-		}
-	}
 }
@@ -26,6 +26,7 @@ import javax.annotation.concurrent.ThreadSafe;
 
 import java.nio.ByteBuffer;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
 
@@ -41,9 +42,13 @@ public class BufferBuilder {
 
 	private final SettablePositionMarker positionMarker = new SettablePositionMarker();
 
+	/** The number of bytes that can be written, at most the size of the memory segment. */
+	private int maxCapacity;
+
 	public BufferBuilder(MemorySegment memorySegment, BufferRecycler recycler) {
 		this.memorySegment = checkNotNull(memorySegment);
 		this.recycler = checkNotNull(recycler);
+		this.maxCapacity = memorySegment.size();
 	}
 
 	/**
@@ -124,7 +129,17 @@ public class BufferBuilder {
 	}
 
 	public int getMaxCapacity() {
-		return memorySegment.size();
+		return maxCapacity;
+	}
+
+	/**
+	 * Limits the number of bytes that can be written to this builder, so that smaller buffers than
+	 * the memory segment are produced. The capacity never drops below the number of bytes already
+	 * written and never exceeds the size of the memory segment.
+	 */
+	public void trim(int newSize) {
+		checkArgument(newSize > 0, "The size must be positive.");
+		maxCapacity = Math.min(memorySegment.size(), Math.max(newSize, positionMarker.getCached()));
 	}
 
 	@VisibleForTesting
@@ -57,8 +57,10 @@ public class BufferCompressor {
 	 * <p>Notes that the compression will always start from offset 0 to the size of the input {@link Buffer}.
 	 */
 	public Buffer compressToIntermediateBuffer(Buffer buffer) {
+		checkState(internalBuffer.refCnt() == 1, "Illegal reference count, buffer need to be released.");
+
 		int compressedLen;
-		if ((compressedLen = compress(buffer)) == 0) {
+		if ((compressedLen = compress(buffer, internalBuffer)) == 0) {
 			return buffer;
 		}
 
@@ -74,8 +76,10 @@ public class BufferCompressor {
 	 * <p>The caller must guarantee that the input {@link Buffer} is writable.
 	 */
 	public Buffer compressToOriginalBuffer(Buffer buffer) {
+		checkState(internalBuffer.refCnt() == 1, "Illegal reference count, buffer need to be released.");
+
 		int compressedLen;
-		if ((compressedLen = compress(buffer)) == 0) {
+		if ((compressedLen = compress(buffer, internalBuffer)) == 0) {
 			return buffer;
 		}
 
@@ -88,24 +92,45 @@ public class BufferCompressor {
 	}
 
 	/**
-	 * Compresses the given {@link Buffer} into the intermediate buffer and returns the compressed data size.
+	 * The difference between this method and {@link #compressToIntermediateBuffer(Buffer)} is that this method
+	 * compresses the data directly into the given target {@link Buffer} owned by the caller. If the compression
+	 * succeeds, the target {@link Buffer} is returned, otherwise the input {@link Buffer}. Either way, the caller
+	 * remains responsible for recycling both of them.
+	 *
+	 * <p>As the intermediate buffer is not used, this method can be called concurrently.
 	 */
-	private int compress(Buffer buffer) {
+	public Buffer compressToBuffer(Buffer buffer, Buffer target) {
+		checkArgument(target != null, "The target buffer must not be null.");
+		checkArgument(target.readableBytes() == 0, "The target buffer must be empty.");
+
+		int compressedLen;
+		if ((compressedLen = compress(buffer, target)) == 0) {
+			return buffer;
+		}
+
+		target.setCompressed(true);
+		target.setSize(compressedLen);
+		return target;
+	}
+
+	/**
+	 * Compresses the given {@link Buffer} into the target buffer and returns the compressed data size.
+	 */
+	private int compress(Buffer buffer, Buffer target) {
 		checkArgument(buffer != null, "The input buffer must not be null.");
 		checkArgument(buffer.isBuffer(), "Event can not be compressed.");
 		checkArgument(!buffer.isCompressed(), "Buffer already compressed.");
 		checkArgument(buffer.getReaderIndex() == 0, "Reader index of the input buffer must be 0.");
 		checkArgument(buffer.readableBytes() > 0, "No data to be compressed.");
-		checkState(internalBuffer.refCnt() == 1, "Illegal reference count, buffer need to be released.");
 
 		try {
 			int length = buffer.getSize();
-			// compress the given buffer into the internal heap buffer
+			// compress the given buffer into the target buffer
 			int compressedLen = blockCompressor.compress(
 				buffer.getNioBuffer(0, length),
 				0,
 				length,
-				internalBuffer.getNioBuffer(0, internalBuffer.capacity()),
+				target.getNioBuffer(0, target.getMaxCapacity()),
 				0);
 			return compressedLen < length ? compressedLen : 0;
 		} catch (Throwable throwable) {
@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.buffer;
+
+import org.apache.flink.core.memory.MemorySegment;
+
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBufAllocator;
+import org.apache.flink.shaded.netty4.io.netty.channel.DefaultFileRegion;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link Buffer} that does not hold its data in memory, but refers to a region of a file. It is
+ * handed to Netty as a {@link DefaultFileRegion}, so that the data is transferred from the file to the
+ * socket without being copied into user space (<tt>sendfile</tt>).
+ *
+ * <p>Only the meta data of the buffer is accessible; all methods that need access to the memory
+ * of the buffer throw an {@link UnsupportedOperationException}. Consumers that need the data in memory
+ * (like local input channels) have to copy it via {@link #readInto(MemorySegment, BufferRecycler)}.
+ *
+ * <p>The file channel is shared with the reader that created this buffer and is not closed when the
+ * buffer is released. Instead, the optional release callback is invoked, which lets the reader close the
+ * file channel once all buffers referring to it are released.
+ */
+public class FileRegionBuffer extends DefaultFileRegion implements Buffer {
+
+	private final FileChannel fileChannel;
+
+	/** The position of the data of this buffer in the file. */
+	private final long fileChannelPosition;
+
+	/** The size of the data of this buffer. */
+	private final int bufferSize;
+
+	private final DataType dataType;
+
+	private final boolean isCompressed;
+
+	@Nullable
+	private final Runnable releaseCallback;
+
+	public FileRegionBuffer(
+			FileChannel fileChannel,
+			long fileChannelPosition,
+			int bufferSize,
+			DataType dataType,
+			boolean isCompressed,
+			@Nullable Runnable releaseCallback) {
+
+		super(checkNotNull(fileChannel), fileChannelPosition, bufferSize);
+		checkArgument(bufferSize >= 0, "Illegal buffer size.");
+
+		this.fileChannel = fileChannel;
+		this.fileChannelPosition = fileChannelPosition;
+		this.bufferSize = bufferSize;
+		this.dataType = checkNotNull(dataType);
+		this.isCompressed = isCompressed;
+		this.releaseCallback = releaseCallback;
+	}
+
+	/**
+	 * Reads the data of this file region into the given memory segment and returns it as a regular
+	 * {@link NetworkBuffer}. This file region buffer is released afterwards.
+	 */
+	public Buffer readInto(MemorySegment segment, BufferRecycler recycler) throws IOException {
+		checkArgument(segment.size() >= bufferSize, "The memory segment is too small for the file region.");
+
+		try {
+			final ByteBuffer target = segment.wrap(0, bufferSize);
+			long position = fileChannelPosition;
+			while (target.hasRemaining()) {
+				final int read = fileChannel.read(target, position);
+				if (read == -1) {
+					throw new IOException("Premature end of file while reading file region.");
+				}
+				position += read;
+			}
+		}
+		finally {
+			recycleBuffer();
+		}
+
+		return new NetworkBuffer(segment, recycler, dataType, isCompressed, bufferSize);
+	}
+
+	@Override
+	protected void deallocate() {
+		// the file channel is owned by the reader, so we do not close it here
+		if (releaseCallback != null) {
+			releaseCallback.run();
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Buffer meta data
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean isBuffer() {
+		return dataType.isBuffer();
+	}
+
+	@Override
+	public int getSize() {
+		return bufferSize;
+	}
+
+	@Override
+	public int readableBytes() {
+		return bufferSize;
+	}
+
+	@Override
+	public boolean isCompressed() {
+		return isCompressed;
+	}
+
+	@Override
+	public DataType getDataType() {
+		return dataType;
+	}
+
+	@Override
+	public int getMaxCapacity() {
+		return bufferSize;
+	}
+
+	@Override
+	public int getReaderIndex() {
+		return 0;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Reference counting
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void recycleBuffer() {
+		release();
+	}
+
+	@Override
+	public boolean isRecycled() {
+		return refCnt() == 0;
+	}
+
+	@Override
+	public FileRegionBuffer retainBuffer() {
+		return (FileRegionBuffer) retain();
+	}
+
+	// ------------------------------------------------------------------------
+	//  Unsupported operations on the memory of the buffer
+	// ------------------------------------------------------------------------
+
+	@Override
+	public MemorySegment getMemorySegment() {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public int getMemorySegmentOffset() {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public BufferRecycler getRecycler() {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public Buffer readOnlySlice() {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public Buffer readOnlySlice(int index, int length) {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public void setReaderIndex(int readerIndex) {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public void setSize(int writerIndex) {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public ByteBuffer getNioBufferReadable() {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public ByteBuffer getNioBuffer(int index, int length) {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public void setAllocator(ByteBufAllocator allocator) {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public ByteBuf asByteBuf() {
+		throw new UnsupportedOperationException("File region buffers are not backed by memory.");
+	}
+
+	@Override
+	public void setCompressed(boolean isCompressed) {
+		throw new UnsupportedOperationException("File region buffers are read-only.");
+	}
+
+	@Override
+	public void setDataType(DataType dataType) {
+		throw new UnsupportedOperationException("File region buffers are read-only.");
+	}
+}
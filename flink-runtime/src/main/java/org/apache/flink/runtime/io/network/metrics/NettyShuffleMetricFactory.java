@@ -18,7 +18,9 @@
 
 package org.apache.flink.runtime.io.network.metrics;
 
+import org.apache.flink.metrics.Counter;
 import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MeterView;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.io.network.api.writer.ResultPartitionWriter;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
@@ -48,6 +50,8 @@ public class NettyShuffleMetricFactory {
 
 	private static final String METRIC_TOTAL_MEMORY_SEGMENT = "TotalMemorySegments";
 	private static final String METRIC_AVAILABLE_MEMORY_SEGMENT = "AvailableMemorySegments";
+	private static final String METRIC_NUM_CONTROL_MESSAGES_OUT = "numControlMessagesOut";
+	private static final String METRIC_NUM_CONTROL_MESSAGES_OUT_RATE = "numControlMessagesOutPerSecond";
 
 	// task level metric group structure: Shuffle.Netty.<Input|Output>.Buffers
 
@@ -68,6 +72,7 @@ public class NettyShuffleMetricFactory {
 	private static final String METRIC_INPUT_POOL_USAGE = "inPoolUsage";
 	private static final String METRIC_INPUT_FLOATING_BUFFERS_USAGE = "inputFloatingBuffersUsage";
 	private static final String METRIC_INPUT_EXCLUSIVE_BUFFERS_USAGE = "inputExclusiveBuffersUsage";
+	private static final String METRIC_INPUT_DEBLOATED_BUFFER_SIZE = "debloatedBufferSize";
 
 	private NettyShuffleMetricFactory() {
 	}
@@ -94,6 +99,19 @@ public class NettyShuffleMetricFactory {
 			networkBufferPool::getNumberOfAvailableMemorySegments);
 	}
 
+	/**
+	 * Registers the metrics of the netty connections, which only exist for the shuffle environment
+	 * with netty network communication.
+	 */
+	public static void registerConnectionMetrics(MetricGroup metricGroup, Counter numControlMessagesOut) {
+		checkNotNull(metricGroup);
+		checkNotNull(numControlMessagesOut);
+
+		MetricGroup networkGroup = metricGroup.addGroup(METRIC_GROUP_SHUFFLE).addGroup(METRIC_GROUP_NETTY);
+		networkGroup.counter(METRIC_NUM_CONTROL_MESSAGES_OUT, numControlMessagesOut);
+		networkGroup.meter(METRIC_NUM_CONTROL_MESSAGES_OUT_RATE, new MeterView(numControlMessagesOut));
+	}
+
 	public static MetricGroup createShuffleIOOwnerMetricGroup(MetricGroup parentGroup) {
 		return parentGroup.addGroup(METRIC_GROUP_SHUFFLE).addGroup(METRIC_GROUP_NETTY);
 	}
@@ -175,6 +193,7 @@ public class NettyShuffleMetricFactory {
 		}
 
 		buffersGroup.gauge(METRIC_INPUT_QUEUE_LENGTH, new InputBuffersGauge(inputGates));
+		buffersGroup.gauge(METRIC_INPUT_DEBLOATED_BUFFER_SIZE, new DebloatedBufferSizeGauge(inputGates));
 
 		FloatingBuffersUsageGauge floatingBuffersUsageGauge = new FloatingBuffersUsageGauge(inputGates);
 		ExclusiveBuffersUsageGauge exclusiveBuffersUsageGauge = new ExclusiveBuffersUsageGauge(inputGates);
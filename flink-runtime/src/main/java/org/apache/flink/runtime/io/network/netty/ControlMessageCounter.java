@@ -0,0 +1,52 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.netty;
+
+import org.apache.flink.metrics.Counter;
+
+import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandler;
+import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandlerContext;
+import org.apache.flink.shaded.netty4.io.netty.channel.ChannelOutboundHandlerAdapter;
+import org.apache.flink.shaded.netty4.io.netty.channel.ChannelPromise;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Counts the control messages written by the client side of the connections, i.e. partition
+ * requests, credit announcements and the other messages sent from consumers to producers.
+ *
+ * <p>The handler is shared by all client channels, so the counter must be thread-safe.
+ */
+@ChannelHandler.Sharable
+class ControlMessageCounter extends ChannelOutboundHandlerAdapter {
+
+	private final Counter numControlMessagesOut;
+
+	ControlMessageCounter(Counter numControlMessagesOut) {
+		this.numControlMessagesOut = checkNotNull(numControlMessagesOut);
+	}
+
+	@Override
+	public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+		if (msg instanceof NettyMessage) {
+			numControlMessagesOut.inc();
+		}
+		ctx.write(msg, promise);
+	}
+}
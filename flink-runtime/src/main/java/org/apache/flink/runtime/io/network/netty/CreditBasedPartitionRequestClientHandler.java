@@ -23,6 +23,8 @@ import org.apache.flink.runtime.io.network.netty.exception.LocalTransportExcepti
 import org.apache.flink.runtime.io.network.netty.exception.RemoteTransportException;
 import org.apache.flink.runtime.io.network.netty.exception.TransportException;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.BatchedAddCredit;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.NewBufferSize;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ResumeConsumption;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
@@ -40,6 +42,8 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.net.SocketAddress;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicReference;
@@ -120,6 +124,11 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
 		ctx.executor().execute(() -> ctx.pipeline().fireUserEventTriggered(new ResumeConsumptionMessage(inputChannel)));
 	}
 
+	@Override
+	public void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize) {
+		ctx.executor().execute(() -> ctx.pipeline().fireUserEventTriggered(new NewBufferSizeMessage(inputChannel, bufferSize)));
+	}
+
 	// ------------------------------------------------------------------------
 	// Network events
 	// ------------------------------------------------------------------------
@@ -309,6 +318,10 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
 	/**
 	 * Tries to write&flush unannounced credits for the next input channel in queue.
 	 *
+	 * <p>The credits of consecutive input channels in the queue are announced with a single
+	 * {@link BatchedAddCredit} message, so that the number of control messages does not grow with
+	 * the number of input channels sharing this connection.
+	 *
 	 * <p>This method may be called by the first input channel enqueuing, or the complete
 	 * future's callback in previous input channel, or the channel writability changed event.
 	 */
@@ -328,7 +341,9 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
 
 			//It is no need to notify credit or resume data consumption for the released channel.
 			if (!outboundMessage.inputChannel.isReleased()) {
-				Object msg = outboundMessage.buildMessage();
+				Object msg = outboundMessage instanceof AddCreditMessage ?
+					buildCreditAnnouncement((AddCreditMessage) outboundMessage) :
+					outboundMessage.buildMessage();
 
 				// Write and flush and wait until this is done before
 				// trying to continue with the next input channel.
@@ -339,6 +354,24 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
 		}
 	}
 
+	/**
+	 * Builds the announcement of the given credit and of the credits of all credit announcements
+	 * directly following it in the queue.
+	 */
+	private NettyMessage buildCreditAnnouncement(AddCreditMessage firstMessage) {
+		List<AddCredit> credits = new ArrayList<>();
+		credits.add(firstMessage.buildMessage());
+
+		while (clientOutboundMessages.peek() instanceof AddCreditMessage) {
+			ClientOutboundMessage nextMessage = clientOutboundMessages.poll();
+			if (!nextMessage.inputChannel.isReleased()) {
+				credits.add(((AddCreditMessage) nextMessage).buildMessage());
+			}
+		}
+
+		return credits.size() == 1 ? credits.get(0) : new BatchedAddCredit(credits);
+	}
+
 	private class WriteAndFlushNextMessageIfPossibleListener implements ChannelFutureListener {
 
 		@Override
@@ -374,7 +407,7 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
 		}
 
 		@Override
-		public Object buildMessage() {
+		public AddCredit buildMessage() {
 			return new AddCredit(inputChannel.getAndResetUnannouncedCredit(), inputChannel.getInputChannelId());
 		}
 	}
@@ -390,4 +423,19 @@ class CreditBasedPartitionRequestClientHandler extends ChannelInboundHandlerAdap
 			return new ResumeConsumption(inputChannel.getInputChannelId());
 		}
 	}
+
+	private static class NewBufferSizeMessage extends ClientOutboundMessage {
+
+		private final int bufferSize;
+
+		NewBufferSizeMessage(RemoteInputChannel inputChannel, int bufferSize) {
+			super(checkNotNull(inputChannel));
+			this.bufferSize = bufferSize;
+		}
+
+		@Override
+		Object buildMessage() {
+			return new NewBufferSize(bufferSize, inputChannel.getInputChannelId());
+		}
+	}
 }
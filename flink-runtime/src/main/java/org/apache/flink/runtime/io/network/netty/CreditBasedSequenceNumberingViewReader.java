@@ -87,6 +87,8 @@ class CreditBasedSequenceNumberingViewReader implements BufferAvailabilityListen
 					resultPartitionId,
 					subPartitionIndex,
 					this);
+				// the buffers are sent over the network, so compressing them may pay off
+				this.subpartitionView.enableCompression();
 			} else {
 				throw new IllegalStateException("Subpartition already requested");
 			}
@@ -103,6 +105,11 @@ class CreditBasedSequenceNumberingViewReader implements BufferAvailabilityListen
 		subpartitionView.resumeConsumption();
 	}
 
+	@Override
+	public void notifyNewBufferSize(int newBufferSize) {
+		subpartitionView.notifyNewBufferSize(newBufferSize);
+	}
+
 	@Override
 	public void setRegisteredAsAvailable(boolean isRegisteredAvailable) {
 		this.isRegisteredAsAvailable = isRegisteredAvailable;
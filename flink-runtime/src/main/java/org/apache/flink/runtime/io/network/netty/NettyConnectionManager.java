@@ -18,6 +18,8 @@
 
 package org.apache.flink.runtime.io.network.netty;
 
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.ThreadSafeSimpleCounter;
 import org.apache.flink.runtime.io.network.ConnectionID;
 import org.apache.flink.runtime.io.network.ConnectionManager;
 import org.apache.flink.runtime.io.network.PartitionRequestClient;
@@ -40,6 +42,8 @@ public class NettyConnectionManager implements ConnectionManager {
 
 	private final NettyProtocol nettyProtocol;
 
+	private final Counter numControlMessagesOut = new ThreadSafeSimpleCounter();
+
 	public NettyConnectionManager(
 		ResultPartitionProvider partitionProvider,
 		TaskEventPublisher taskEventPublisher,
@@ -51,7 +55,10 @@ public class NettyConnectionManager implements ConnectionManager {
 
 		this.partitionRequestClientFactory = new PartitionRequestClientFactory(client);
 
-		this.nettyProtocol = new NettyProtocol(checkNotNull(partitionProvider), checkNotNull(taskEventPublisher));
+		this.nettyProtocol = new NettyProtocol(
+			checkNotNull(partitionProvider),
+			checkNotNull(taskEventPublisher),
+			numControlMessagesOut);
 	}
 
 	@Override
@@ -77,6 +84,14 @@ public class NettyConnectionManager implements ConnectionManager {
 		return partitionRequestClientFactory.getNumberOfActiveClients();
 	}
 
+	/**
+	 * Returns the counter of control messages, such as partition requests and credit announcements,
+	 * sent by the consumers of this task manager.
+	 */
+	public Counter getNumControlMessagesOut() {
+		return numControlMessagesOut;
+	}
+
 	@Override
 	public void shutdown() {
 		client.shutdown();
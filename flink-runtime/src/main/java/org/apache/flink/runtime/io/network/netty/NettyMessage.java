@@ -22,6 +22,7 @@ import org.apache.flink.runtime.event.TaskEvent;
 import org.apache.flink.runtime.executiongraph.ExecutionAttemptID;
 import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.FileRegionBuffer;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannel;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
@@ -37,6 +38,7 @@ import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandler;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelHandlerContext;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelOutboundHandlerAdapter;
 import org.apache.flink.shaded.netty4.io.netty.channel.ChannelPromise;
+import org.apache.flink.shaded.netty4.io.netty.channel.FileRegion;
 import org.apache.flink.shaded.netty4.io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 
 import javax.annotation.Nullable;
@@ -46,6 +48,8 @@ import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.net.ProtocolException;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -69,6 +73,27 @@ public abstract class NettyMessage {
 
 	abstract ByteBuf write(ByteBufAllocator allocator) throws Exception;
 
+	/**
+	 * Writes this message to the given channel handler context. By default, the message is serialized
+	 * into a single {@link ByteBuf} via {@link #write(ByteBufAllocator)}. Messages may override this to
+	 * hand more than one object to Netty, e.g. a header followed by a {@link FileRegion}.
+	 */
+	void writeTo(ChannelHandlerContext ctx, ChannelPromise promise) throws IOException {
+		ByteBuf serialized = null;
+
+		try {
+			serialized = write(ctx.alloc());
+		}
+		catch (Throwable t) {
+			throw new IOException("Error while serializing message: " + this, t);
+		}
+		finally {
+			if (serialized != null) {
+				ctx.write(serialized, promise);
+			}
+		}
+	}
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -167,20 +192,7 @@ public abstract class NettyMessage {
 		@Override
 		public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
 			if (msg instanceof NettyMessage) {
-
-				ByteBuf serialized = null;
-
-				try {
-					serialized = ((NettyMessage) msg).write(ctx.alloc());
-				}
-				catch (Throwable t) {
-					throw new IOException("Error while serializing message: " + msg, t);
-				}
-				finally {
-					if (serialized != null) {
-						ctx.write(serialized, promise);
-					}
-				}
+				((NettyMessage) msg).writeTo(ctx, promise);
 			}
 			else {
 				ctx.write(msg, promise);
@@ -246,6 +258,15 @@ public abstract class NettyMessage {
 					case ResumeConsumption.ID:
 						decodedMsg = ResumeConsumption.readFrom(msg);
 						break;
+					case NewBufferSize.ID:
+						decodedMsg = NewBufferSize.readFrom(msg);
+						break;
+					case BatchedPartitionRequest.ID:
+						decodedMsg = BatchedPartitionRequest.readFrom(msg);
+						break;
+					case BatchedAddCredit.ID:
+						decodedMsg = BatchedAddCredit.readFrom(msg);
+						break;
 					default:
 						throw new ProtocolException(
 							"Received unknown message from producer: " + msg);
@@ -335,6 +356,28 @@ public abstract class NettyMessage {
 		// Serialization
 		// --------------------------------------------------------------------
 
+		@Override
+		void writeTo(ChannelHandlerContext ctx, ChannelPromise promise) throws IOException {
+			if (!(buffer instanceof FileRegionBuffer)) {
+				super.writeTo(ctx, promise);
+				return;
+			}
+
+			// zero-copy transfer: we write the header and let netty transfer the data of the
+			// file region directly from the file to the socket
+			final ByteBuf headerBuf;
+			try {
+				headerBuf = allocateHeader(ctx.alloc());
+			}
+			catch (Throwable t) {
+				buffer.recycleBuffer();
+				throw new IOException("Error while serializing message: " + this, t);
+			}
+
+			ctx.write(headerBuf);
+			ctx.write(buffer, promise);
+		}
+
 		@Override
 		ByteBuf write(ByteBufAllocator allocator) throws IOException {
 			ByteBuf headerBuf = null;
@@ -343,14 +386,7 @@ public abstract class NettyMessage {
 				buffer.setAllocator(allocator);
 
 				// only allocate header buffer - we will combine it with the data buffer below
-				headerBuf = allocateBuffer(allocator, ID, MESSAGE_HEADER_LENGTH, bufferSize, false);
-
-				receiverId.writeTo(headerBuf);
-				headerBuf.writeInt(sequenceNumber);
-				headerBuf.writeInt(backlog);
-				headerBuf.writeBoolean(isBuffer);
-				headerBuf.writeBoolean(isCompressed);
-				headerBuf.writeInt(buffer.readableBytes());
+				headerBuf = allocateHeader(allocator);
 
 				CompositeByteBuf composityBuf = allocator.compositeDirectBuffer();
 				composityBuf.addComponent(headerBuf);
@@ -370,6 +406,27 @@ public abstract class NettyMessage {
 			}
 		}
 
+		/**
+		 * Allocates a buffer holding the frame header and the message header, without the data.
+		 */
+		private ByteBuf allocateHeader(ByteBufAllocator allocator) {
+			final ByteBuf headerBuf = allocateBuffer(allocator, ID, MESSAGE_HEADER_LENGTH, bufferSize, false);
+
+			try {
+				receiverId.writeTo(headerBuf);
+				headerBuf.writeInt(sequenceNumber);
+				headerBuf.writeInt(backlog);
+				headerBuf.writeBoolean(isBuffer);
+				headerBuf.writeBoolean(isCompressed);
+				headerBuf.writeInt(buffer.readableBytes());
+				return headerBuf;
+			}
+			catch (Throwable t) {
+				headerBuf.release();
+				throw t;
+			}
+		}
+
 		/**
 		 * Parses the message header part and composes a new BufferResponse with an empty data buffer. The
 		 * data buffer will be filled in later.
@@ -491,6 +548,9 @@ public abstract class NettyMessage {
 
 		private static final byte ID = 2;
 
+		/** The serialized length of a partition request, without the frame header. */
+		private static final int LENGTH = 20 + 16 + 4 + 16 + 4;
+
 		final ResultPartitionID partitionId;
 
 		final int queueIndex;
@@ -511,13 +571,8 @@ public abstract class NettyMessage {
 			ByteBuf result = null;
 
 			try {
-				result = allocateBuffer(allocator, ID, 20 + 16 + 4 + 16 + 4);
-
-				partitionId.getPartitionId().writeTo(result);
-				partitionId.getProducerId().writeTo(result);
-				result.writeInt(queueIndex);
-				receiverId.writeTo(result);
-				result.writeInt(credit);
+				result = allocateBuffer(allocator, ID, LENGTH);
+				writeTo(result);
 
 				return result;
 			}
@@ -530,6 +585,14 @@ public abstract class NettyMessage {
 			}
 		}
 
+		private void writeTo(ByteBuf buffer) {
+			partitionId.getPartitionId().writeTo(buffer);
+			partitionId.getProducerId().writeTo(buffer);
+			buffer.writeInt(queueIndex);
+			receiverId.writeTo(buffer);
+			buffer.writeInt(credit);
+		}
+
 		static PartitionRequest readFrom(ByteBuf buffer) {
 			ResultPartitionID partitionId =
 				new ResultPartitionID(
@@ -679,6 +742,9 @@ public abstract class NettyMessage {
 
 		private static final byte ID = 6;
 
+		/** The serialized length of a credit announcement, without the frame header. */
+		private static final int LENGTH = 4 + 16;
+
 		final int credit;
 
 		final InputChannelID receiverId;
@@ -694,9 +760,8 @@ public abstract class NettyMessage {
 			ByteBuf result = null;
 
 			try {
-				result = allocateBuffer(allocator, ID, 4 + 16);
-				result.writeInt(credit);
-				receiverId.writeTo(result);
+				result = allocateBuffer(allocator, ID, LENGTH);
+				writeTo(result);
 
 				return result;
 			}
@@ -709,6 +774,11 @@ public abstract class NettyMessage {
 			}
 		}
 
+		private void writeTo(ByteBuf buffer) {
+			buffer.writeInt(credit);
+			receiverId.writeTo(buffer);
+		}
+
 		static AddCredit readFrom(ByteBuf buffer) {
 			int credit = buffer.readInt();
 			InputChannelID receiverId = InputChannelID.fromByteBuf(buffer);
@@ -763,4 +833,158 @@ public abstract class NettyMessage {
 			return String.format("ResumeConsumption(%s)", receiverId);
 		}
 	}
+
+	/**
+	 * Announcement of the buffer size the client wants to receive, calculated by the buffer debloating.
+	 */
+	static class NewBufferSize extends NettyMessage {
+
+		private static final byte ID = 8;
+
+		final int bufferSize;
+
+		final InputChannelID receiverId;
+
+		NewBufferSize(int bufferSize, InputChannelID receiverId) {
+			checkArgument(bufferSize > 0, "The announced buffer size should be greater than 0");
+			this.bufferSize = bufferSize;
+			this.receiverId = receiverId;
+		}
+
+		@Override
+		ByteBuf write(ByteBufAllocator allocator) throws IOException {
+			ByteBuf result = null;
+
+			try {
+				result = allocateBuffer(allocator, ID, 4 + 16);
+				result.writeInt(bufferSize);
+				receiverId.writeTo(result);
+
+				return result;
+			}
+			catch (Throwable t) {
+				if (result != null) {
+					result.release();
+				}
+
+				throw new IOException(t);
+			}
+		}
+
+		static NewBufferSize readFrom(ByteBuf buffer) {
+			int bufferSize = buffer.readInt();
+			InputChannelID receiverId = InputChannelID.fromByteBuf(buffer);
+
+			return new NewBufferSize(bufferSize, receiverId);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("NewBufferSize(%s : %d)", receiverId, bufferSize);
+		}
+	}
+
+	/**
+	 * Partition requests of several input channels, which are sent at once over the same connection.
+	 */
+	static class BatchedPartitionRequest extends NettyMessage {
+
+		private static final byte ID = 9;
+
+		final List<PartitionRequest> requests;
+
+		BatchedPartitionRequest(List<PartitionRequest> requests) {
+			checkArgument(!requests.isEmpty(), "The batch should contain at least one partition request");
+			this.requests = requests;
+		}
+
+		@Override
+		ByteBuf write(ByteBufAllocator allocator) throws IOException {
+			ByteBuf result = null;
+
+			try {
+				result = allocateBuffer(allocator, ID, 4 + requests.size() * PartitionRequest.LENGTH);
+				result.writeInt(requests.size());
+				for (PartitionRequest request : requests) {
+					request.writeTo(result);
+				}
+
+				return result;
+			}
+			catch (Throwable t) {
+				if (result != null) {
+					result.release();
+				}
+
+				throw new IOException(t);
+			}
+		}
+
+		static BatchedPartitionRequest readFrom(ByteBuf buffer) {
+			int numberOfRequests = buffer.readInt();
+			List<PartitionRequest> requests = new ArrayList<>(numberOfRequests);
+			for (int i = 0; i < numberOfRequests; i++) {
+				requests.add(PartitionRequest.readFrom(buffer));
+			}
+
+			return new BatchedPartitionRequest(requests);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("BatchedPartitionRequest(%s)", requests);
+		}
+	}
+
+	/**
+	 * Credit announcements of several input channels, which are sent at once over the same connection.
+	 */
+	static class BatchedAddCredit extends NettyMessage {
+
+		private static final byte ID = 10;
+
+		final List<AddCredit> credits;
+
+		BatchedAddCredit(List<AddCredit> credits) {
+			checkArgument(!credits.isEmpty(), "The batch should contain at least one credit announcement");
+			this.credits = credits;
+		}
+
+		@Override
+		ByteBuf write(ByteBufAllocator allocator) throws IOException {
+			ByteBuf result = null;
+
+			try {
+				result = allocateBuffer(allocator, ID, 4 + credits.size() * AddCredit.LENGTH);
+				result.writeInt(credits.size());
+				for (AddCredit credit : credits) {
+					credit.writeTo(result);
+				}
+
+				return result;
+			}
+			catch (Throwable t) {
+				if (result != null) {
+					result.release();
+				}
+
+				throw new IOException(t);
+			}
+		}
+
+		static BatchedAddCredit readFrom(ByteBuf buffer) {
+			int numberOfCredits = buffer.readInt();
+			List<AddCredit> credits = new ArrayList<>(numberOfCredits);
+			for (int i = 0; i < numberOfCredits; i++) {
+				credits.add(AddCredit.readFrom(buffer));
+			}
+
+			return new BatchedAddCredit(credits);
+		}
+
+		@Override
+		public String toString() {
+			return String.format("BatchedAddCredit(%s)", credits);
+		}
+	}
 }
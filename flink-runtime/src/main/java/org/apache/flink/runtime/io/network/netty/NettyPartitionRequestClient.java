@@ -34,10 +34,16 @@ import org.apache.flink.shaded.netty4.io.netty.channel.ChannelFutureListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.concurrent.GuardedBy;
+
 import java.io.IOException;
 import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
+import static org.apache.flink.runtime.io.network.netty.NettyMessage.BatchedPartitionRequest;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.PartitionRequest;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.TaskEventRequest;
 import static org.apache.flink.util.Preconditions.checkNotNull;
@@ -60,6 +66,10 @@ public class NettyPartitionRequestClient implements PartitionRequestClient {
 
 	private final PartitionRequestClientFactory clientFactory;
 
+	/** Partition requests waiting to be sent by the event loop of the TCP channel. */
+	@GuardedBy("pendingPartitionRequests")
+	private final List<PendingPartitionRequest> pendingPartitionRequests = new ArrayList<>();
+
 	/** If zero, the underlying TCP channel can be safely closed. */
 	private final AtomicDisposableReferenceCounter closeReferenceCounter = new AtomicDisposableReferenceCounter();
 
@@ -112,34 +122,65 @@ public class NettyPartitionRequestClient implements PartitionRequestClient {
 		final PartitionRequest request = new PartitionRequest(
 				partitionId, subpartitionIndex, inputChannel.getInputChannelId(), inputChannel.getInitialCredit());
 
-		final ChannelFutureListener listener = new ChannelFutureListener() {
-			@Override
-			public void operationComplete(ChannelFuture future) throws Exception {
-				if (!future.isSuccess()) {
-					clientHandler.removeInputChannel(inputChannel);
-					SocketAddress remoteAddr = future.channel().remoteAddress();
-					inputChannel.onError(
-							new LocalTransportException(
-								String.format("Sending the partition request to '%s' failed.", remoteAddr),
-								future.channel().localAddress(), future.cause()
-							));
-				}
+		if (delayMs == 0) {
+			enqueuePartitionRequest(request, inputChannel);
+		} else {
+			tcpChannel.eventLoop().schedule(
+				() -> enqueuePartitionRequest(request, inputChannel),
+				delayMs,
+				TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Enqueues the partition request to be sent by the event loop. All requests which are enqueued
+	 * until the event loop gets to them, e.g. when a gate requests all its partitions at once, are
+	 * sent with a single {@link BatchedPartitionRequest} message.
+	 */
+	private void enqueuePartitionRequest(PartitionRequest request, RemoteInputChannel inputChannel) {
+		boolean triggerWrite;
+		synchronized (pendingPartitionRequests) {
+			triggerWrite = pendingPartitionRequests.isEmpty();
+			pendingPartitionRequests.add(new PendingPartitionRequest(request, inputChannel));
+		}
+
+		if (triggerWrite) {
+			if (tcpChannel.eventLoop().inEventLoop()) {
+				writePendingPartitionRequests();
+			} else {
+				tcpChannel.eventLoop().execute(this::writePendingPartitionRequests);
 			}
-		};
+		}
+	}
 
-		if (delayMs == 0) {
-			ChannelFuture f = tcpChannel.writeAndFlush(request);
-			f.addListener(listener);
+	private void writePendingPartitionRequests() {
+		final List<PendingPartitionRequest> requests;
+		synchronized (pendingPartitionRequests) {
+			requests = new ArrayList<>(pendingPartitionRequests);
+			pendingPartitionRequests.clear();
+		}
+
+		final NettyMessage msg;
+		if (requests.size() == 1) {
+			msg = requests.get(0).request;
 		} else {
-			final ChannelFuture[] f = new ChannelFuture[1];
-			tcpChannel.eventLoop().schedule(new Runnable() {
-				@Override
-				public void run() {
-					f[0] = tcpChannel.writeAndFlush(request);
-					f[0].addListener(listener);
-				}
-			}, delayMs, TimeUnit.MILLISECONDS);
+			msg = new BatchedPartitionRequest(
+				requests.stream().map(pending -> pending.request).collect(Collectors.toList()));
 		}
+
+		tcpChannel.writeAndFlush(msg).addListener((ChannelFutureListener) future -> {
+			if (!future.isSuccess()) {
+				SocketAddress remoteAddr = future.channel().remoteAddress();
+				for (PendingPartitionRequest pending : requests) {
+					clientHandler.removeInputChannel(pending.inputChannel);
+					pending.inputChannel.onError(
+						new LocalTransportException(
+							String.format("Sending the partition request to '%s' failed.", remoteAddr),
+							future.channel().localAddress(), future.cause()
+						));
+				}
+			}
+		});
 	}
 
 	/**
@@ -180,6 +221,11 @@ public class NettyPartitionRequestClient implements PartitionRequestClient {
 		clientHandler.resumeConsumption(inputChannel);
 	}
 
+	@Override
+	public void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize) {
+		clientHandler.notifyNewBufferSize(inputChannel, bufferSize);
+	}
+
 	@Override
 	public void close(RemoteInputChannel inputChannel) throws IOException {
 
@@ -205,4 +251,18 @@ public class NettyPartitionRequestClient implements PartitionRequestClient {
 			throw new LocalTransportException(String.format("Channel to '%s' closed.", remoteAddr), localAddr);
 		}
 	}
+
+	// ------------------------------------------------------------------------
+
+	private static final class PendingPartitionRequest {
+
+		private final PartitionRequest request;
+
+		private final RemoteInputChannel inputChannel;
+
+		PendingPartitionRequest(PartitionRequest request, RemoteInputChannel inputChannel) {
+			this.request = request;
+			this.inputChannel = inputChannel;
+		}
+	}
 }
@@ -18,6 +18,8 @@
 
 package org.apache.flink.runtime.io.network.netty;
 
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.ThreadSafeSimpleCounter;
 import org.apache.flink.runtime.io.network.NetworkClientHandler;
 import org.apache.flink.runtime.io.network.TaskEventPublisher;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
@@ -35,9 +37,19 @@ public class NettyProtocol {
 	private final ResultPartitionProvider partitionProvider;
 	private final TaskEventPublisher taskEventPublisher;
 
+	private final ControlMessageCounter controlMessageCounter;
+
 	NettyProtocol(ResultPartitionProvider partitionProvider, TaskEventPublisher taskEventPublisher) {
+		this(partitionProvider, taskEventPublisher, new ThreadSafeSimpleCounter());
+	}
+
+	NettyProtocol(
+			ResultPartitionProvider partitionProvider,
+			TaskEventPublisher taskEventPublisher,
+			Counter numControlMessagesOut) {
 		this.partitionProvider = partitionProvider;
 		this.taskEventPublisher = taskEventPublisher;
+		this.controlMessageCounter = new ControlMessageCounter(numControlMessagesOut);
 	}
 
 	/**
@@ -125,6 +137,7 @@ public class NettyProtocol {
 
 		return new ChannelHandler[]{
 			messageEncoder,
+			controlMessageCounter,
 			new NettyMessageClientDecoderDelegate(networkClientHandler),
 			networkClientHandler};
 	}
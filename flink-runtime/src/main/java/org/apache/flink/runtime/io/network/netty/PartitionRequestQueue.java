@@ -164,6 +164,24 @@ class PartitionRequestQueue extends ChannelInboundHandlerAdapter {
 		}
 	}
 
+	/**
+	 * Notifies the reader of the given consumer about the buffer size the consumer wants to receive.
+	 * The announcement is dropped if the reader was already released.
+	 *
+	 * @param receiverId The input channel id to identify the consumer.
+	 * @param bufferSize The new buffer size.
+	 */
+	void notifyNewBufferSize(InputChannelID receiverId, int bufferSize) {
+		if (fatalError) {
+			return;
+		}
+
+		NetworkSequenceViewReader reader = allReaders.get(receiverId);
+		if (reader != null) {
+			reader.notifyNewBufferSize(bufferSize);
+		}
+	}
+
 	@Override
 	public void userEventTriggered(ChannelHandlerContext ctx, Object msg) throws Exception {
 		// The user event triggered event loop callback is used for thread-safe
@@ -21,8 +21,11 @@ package org.apache.flink.runtime.io.network.netty;
 import org.apache.flink.runtime.io.network.NetworkSequenceViewReader;
 import org.apache.flink.runtime.io.network.TaskEventPublisher;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.BatchedAddCredit;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.BatchedPartitionRequest;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.CancelPartitionRequest;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.CloseRequest;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.NewBufferSize;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ResumeConsumption;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionProvider;
@@ -34,6 +37,8 @@ import org.apache.flink.shaded.netty4.io.netty.channel.SimpleChannelInboundHandl
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.PartitionRequest;
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.TaskEventRequest;
 
@@ -79,25 +84,10 @@ class PartitionRequestServerHandler extends SimpleChannelInboundHandler<NettyMes
 			// Intermediate result partition requests
 			// ----------------------------------------------------------------
 			if (msgClazz == PartitionRequest.class) {
-				PartitionRequest request = (PartitionRequest) msg;
-
-				LOG.debug("Read channel on {}: {}.", ctx.channel().localAddress(), request);
-
-				try {
-					NetworkSequenceViewReader reader;
-					reader = new CreditBasedSequenceNumberingViewReader(
-						request.receiverId,
-						request.credit,
-						outboundQueue);
-
-					reader.requestSubpartitionView(
-						partitionProvider,
-						request.partitionId,
-						request.queueIndex);
-
-					outboundQueue.notifyReaderCreated(reader);
-				} catch (PartitionNotFoundException notFound) {
-					respondWithError(ctx, notFound, request.receiverId);
+				requestPartition(ctx, (PartitionRequest) msg);
+			} else if (msgClazz == BatchedPartitionRequest.class) {
+				for (PartitionRequest request : ((BatchedPartitionRequest) msg).requests) {
+					requestPartition(ctx, request);
 				}
 			}
 			// ----------------------------------------------------------------
@@ -119,10 +109,18 @@ class PartitionRequestServerHandler extends SimpleChannelInboundHandler<NettyMes
 				AddCredit request = (AddCredit) msg;
 
 				outboundQueue.addCreditOrResumeConsumption(request.receiverId, reader -> reader.addCredit(request.credit));
+			} else if (msgClazz == BatchedAddCredit.class) {
+				for (AddCredit request : ((BatchedAddCredit) msg).credits) {
+					outboundQueue.addCreditOrResumeConsumption(request.receiverId, reader -> reader.addCredit(request.credit));
+				}
 			} else if (msgClazz == ResumeConsumption.class) {
 				ResumeConsumption request = (ResumeConsumption) msg;
 
 				outboundQueue.addCreditOrResumeConsumption(request.receiverId, NetworkSequenceViewReader::resumeConsumption);
+			} else if (msgClazz == NewBufferSize.class) {
+				NewBufferSize request = (NewBufferSize) msg;
+
+				outboundQueue.notifyNewBufferSize(request.receiverId, request.bufferSize);
 			} else {
 				LOG.warn("Received unexpected client request: {}", msg);
 			}
@@ -131,6 +129,27 @@ class PartitionRequestServerHandler extends SimpleChannelInboundHandler<NettyMes
 		}
 	}
 
+	private void requestPartition(ChannelHandlerContext ctx, PartitionRequest request) throws IOException {
+		LOG.debug("Read channel on {}: {}.", ctx.channel().localAddress(), request);
+
+		try {
+			NetworkSequenceViewReader reader;
+			reader = new CreditBasedSequenceNumberingViewReader(
+				request.receiverId,
+				request.credit,
+				outboundQueue);
+
+			reader.requestSubpartitionView(
+				partitionProvider,
+				request.partitionId,
+				request.queueIndex);
+
+			outboundQueue.notifyReaderCreated(reader);
+		} catch (PartitionNotFoundException notFound) {
+			respondWithError(ctx, notFound, request.receiverId);
+		}
+	}
+
 	private void respondWithError(ChannelHandlerContext ctx, Throwable error) {
 		ctx.writeAndFlush(new NettyMessage.ErrorResponse(error));
 	}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
+import org.apache.flink.runtime.io.network.buffer.BufferProvider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Compresses the data buffers of a pipelined subpartition as long as the compression pays off.
+ *
+ * <p>The compressor tracks the compression ratio (compressed size / original size) of the
+ * subpartition as an exponential moving average. If it exceeds {@link #MAX_COMPRESSION_RATIO},
+ * the buffers are passed through uncompressed, and only every {@link #PROBE_INTERVAL}-th buffer is
+ * compressed to check whether the data became compressible again.
+ *
+ * <p>The buffers are compressed into buffers requested from the given {@link BufferProvider}
+ * without blocking, which are recycled to it once they are sent. If none is available, the buffer
+ * is passed through uncompressed.
+ */
+@NotThreadSafe
+class AdaptiveBufferCompressor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(AdaptiveBufferCompressor.class);
+
+	/** The compression ratio above which the compression is considered to not pay off. */
+	@VisibleForTesting
+	static final double MAX_COMPRESSION_RATIO = 0.9;
+
+	/** The number of buffers after which an inactive compressor probes the compression again. */
+	@VisibleForTesting
+	static final int PROBE_INTERVAL = 100;
+
+	/** Weight of the latest compression ratio in the exponential moving average. */
+	private static final double RATIO_SMOOTHING_FACTOR = 0.2;
+
+	private final BufferCompressor bufferCompressor;
+
+	private final BufferProvider bufferProvider;
+
+	/** The smoothed compression ratio, or -1 if not measured yet. */
+	private double compressionRatio = -1;
+
+	private boolean active = true;
+
+	/** The number of buffers passed through uncompressed since the compressor became inactive. */
+	private int skippedBuffers;
+
+	AdaptiveBufferCompressor(BufferCompressor bufferCompressor, BufferProvider bufferProvider) {
+		this.bufferCompressor = checkNotNull(bufferCompressor);
+		this.bufferProvider = checkNotNull(bufferProvider);
+	}
+
+	/**
+	 * Compresses the given buffer, if the compression pays off. If the compressed buffer is
+	 * returned, the given one is recycled.
+	 */
+	Buffer compress(Buffer buffer) {
+		if (!buffer.isBuffer() || buffer.isCompressed() || buffer.readableBytes() == 0) {
+			return buffer;
+		}
+
+		final boolean probing = !active;
+		if (probing && ++skippedBuffers < PROBE_INTERVAL) {
+			return buffer;
+		}
+
+		final Buffer target;
+		try {
+			target = bufferProvider.requestBuffer();
+		}
+		catch (IOException | IllegalStateException e) {
+			// the buffer pool may have been destroyed concurrently, do not compress then
+			LOG.debug("Could not request a buffer for compression.", e);
+			return buffer;
+		}
+		if (target == null) {
+			return buffer;
+		}
+
+		final Buffer compressed = bufferCompressor.compressToBuffer(buffer, target);
+		final double ratio;
+		if (compressed == buffer) {
+			target.recycleBuffer();
+			ratio = 1.0;
+		}
+		else {
+			ratio = (double) compressed.getSize() / buffer.getSize();
+			buffer.recycleBuffer();
+		}
+
+		updateCompressionRatio(ratio, probing);
+		return compressed;
+	}
+
+	private void updateCompressionRatio(double ratio, boolean probing) {
+		if (probing || compressionRatio < 0) {
+			compressionRatio = ratio;
+			skippedBuffers = 0;
+		}
+		else {
+			compressionRatio = RATIO_SMOOTHING_FACTOR * ratio + (1 - RATIO_SMOOTHING_FACTOR) * compressionRatio;
+		}
+		active = compressionRatio <= MAX_COMPRESSION_RATIO;
+	}
+
+	@VisibleForTesting
+	boolean isActive() {
+		return active;
+	}
+}
@@ -279,7 +279,23 @@ final class BoundedBlockingSubpartition extends ResultSubpartition {
 	public static BoundedBlockingSubpartition createWithFileChannel(
 			int index, ResultPartition parent, File tempFile, int readBufferSize) throws IOException {
 
-		final FileChannelBoundedData bd = FileChannelBoundedData.create(tempFile.toPath(), readBufferSize);
+		return createWithFileChannel(index, parent, tempFile, readBufferSize, false);
+	}
+
+	/**
+	 * Creates a BoundedBlockingSubpartition that simply stores the partition data in a file.
+	 * Data is eagerly spilled (written to disk). If zero-copy transfer is enabled, readers return
+	 * file regions that are transferred by Netty directly from the file to the socket, otherwise
+	 * readers directly read from the file.
+	 */
+	public static BoundedBlockingSubpartition createWithFileChannel(
+			int index,
+			ResultPartition parent,
+			File tempFile,
+			int readBufferSize,
+			boolean zeroCopyTransferEnabled) throws IOException {
+
+		final FileChannelBoundedData bd = FileChannelBoundedData.create(tempFile.toPath(), readBufferSize, zeroCopyTransferEnabled);
 		return new BoundedBlockingSubpartition(index, parent, bd);
 	}
 
@@ -309,4 +325,16 @@ final class BoundedBlockingSubpartition extends ResultSubpartition {
 		final FileChannelMemoryMappedBoundedData bd = FileChannelMemoryMappedBoundedData.create(tempFile.toPath());
 		return new BoundedBlockingSubpartition(index, parent, bd);
 	}
+
+	/**
+	 * Creates a BoundedBlockingSubpartition that stores the partition data in a file shared with all other
+	 * subpartitions of the result partition. The data is sorted by subpartition in memory and written region
+	 * by region, so that readers can read the data of this subpartition (mostly) sequentially.
+	 */
+	public static BoundedBlockingSubpartition createWithPartitionedFile(
+			int index, ResultPartition parent, PartitionedFileWriter fileWriter, int readBufferSize) {
+
+		final SortMergeBoundedData bd = new SortMergeBoundedData(fileWriter, index, readBufferSize);
+		return new BoundedBlockingSubpartition(index, parent, bd);
+	}
 }
@@ -150,6 +150,16 @@ final class BoundedBlockingSubpartitionReader implements ResultSubpartitionView
 		throw new UnsupportedOperationException("Method should never be called.");
 	}
 
+	@Override
+	public void notifyNewBufferSize(int newBufferSize) {
+		// the data is already written, so the buffer size cannot be changed any more
+	}
+
+	@Override
+	public void enableCompression() {
+		// the data is already compressed when written, if configured
+	}
+
 	@Override
 	public boolean isAvailable(int numCreditsAvailable) {
 		if (numCreditsAvailable > 0) {
@@ -29,12 +29,15 @@ public enum BoundedBlockingSubpartitionType {
 	/**
 	 * A BoundedBlockingSubpartition type that simply stores the partition data in a file.
 	 * Data is eagerly spilled (written to disk) and readers directly read from the file.
+	 *
+	 * <p>If SSL is disabled, the data is not read into memory but transferred by Netty directly from
+	 * the file to the socket (zero-copy).
 	 */
 	FILE {
 
 		@Override
-		public BoundedBlockingSubpartition create(int index, ResultPartition parent, File tempFile, int readBufferSize) throws IOException {
-			return BoundedBlockingSubpartition.createWithFileChannel(index, parent, tempFile, readBufferSize);
+		public BoundedBlockingSubpartition create(int index, ResultPartition parent, File tempFile, int readBufferSize, boolean sslEnabled) throws IOException {
+			return BoundedBlockingSubpartition.createWithFileChannel(index, parent, tempFile, readBufferSize, !sslEnabled);
 		}
 	},
 
@@ -46,7 +49,7 @@ public enum BoundedBlockingSubpartitionType {
 	MMAP {
 
 		@Override
-		public BoundedBlockingSubpartition create(int index, ResultPartition parent, File tempFile, int readBufferSize) throws IOException {
+		public BoundedBlockingSubpartition create(int index, ResultPartition parent, File tempFile, int readBufferSize, boolean sslEnabled) throws IOException {
 			return BoundedBlockingSubpartition.createWithMemoryMappedFile(index, parent, tempFile);
 		}
 	},
@@ -61,7 +64,7 @@ public enum BoundedBlockingSubpartitionType {
 	FILE_MMAP {
 
 		@Override
-		public BoundedBlockingSubpartition create(int index, ResultPartition parent, File tempFile, int readBufferSize) throws IOException {
+		public BoundedBlockingSubpartition create(int index, ResultPartition parent, File tempFile, int readBufferSize, boolean sslEnabled) throws IOException {
 			return BoundedBlockingSubpartition.createWithFileAndMemoryMappedReader(index, parent, tempFile);
 		}
 	},
@@ -74,8 +77,8 @@ public enum BoundedBlockingSubpartitionType {
 	AUTO {
 
 		@Override
-		public BoundedBlockingSubpartition create(int index, ResultPartition parent, File tempFile, int readBufferSize) throws IOException {
-			return ResultPartitionFactory.getBoundedBlockingType().create(index, parent, tempFile, readBufferSize);
+		public BoundedBlockingSubpartition create(int index, ResultPartition parent, File tempFile, int readBufferSize, boolean sslEnabled) throws IOException {
+			return ResultPartitionFactory.getBoundedBlockingType().create(index, parent, tempFile, readBufferSize, sslEnabled);
 		}
 	};
 
@@ -83,6 +86,9 @@ public enum BoundedBlockingSubpartitionType {
 
 	/**
 	 * Creates BoundedBlockingSubpartition of this type.
+	 *
+	 * @param sslEnabled whether the data is sent through SSL encrypted connections, in which case the
+	 *                   data can not be transferred directly from the file to the socket
 	 */
-	public abstract BoundedBlockingSubpartition create(int index, ResultPartition parent, File tempFile, int readBufferSize) throws IOException;
+	public abstract BoundedBlockingSubpartition create(int index, ResultPartition parent, File tempFile, int readBufferSize, boolean sslEnabled) throws IOException;
 }
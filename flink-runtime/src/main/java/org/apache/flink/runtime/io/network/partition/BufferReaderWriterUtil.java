@@ -22,6 +22,7 @@ import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.FileRegionBuffer;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
 import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 
@@ -63,13 +64,20 @@ final class BufferReaderWriterUtil {
 			return false;
 		}
 
-		memory.putShort(buffer.isBuffer() ? HEADER_VALUE_IS_BUFFER : HEADER_VALUE_IS_EVENT);
-		memory.putShort(buffer.isCompressed() ? BUFFER_IS_COMPRESSED : BUFFER_IS_NOT_COMPRESSED);
-		memory.putInt(bufferSize);
+		writeHeader(buffer, memory);
 		memory.put(buffer.getNioBufferReadable());
 		return true;
 	}
 
+	/**
+	 * Writes the header of the given buffer to the given memory, without the data of the buffer.
+	 */
+	static void writeHeader(Buffer buffer, ByteBuffer memory) {
+		memory.putShort(buffer.isBuffer() ? HEADER_VALUE_IS_BUFFER : HEADER_VALUE_IS_EVENT);
+		memory.putShort(buffer.isCompressed() ? BUFFER_IS_COMPRESSED : BUFFER_IS_NOT_COMPRESSED);
+		memory.putInt(buffer.getSize());
+	}
+
 	@Nullable
 	static Buffer sliceNextBuffer(ByteBuffer memory) {
 		final int remaining = memory.remaining();
@@ -107,9 +115,7 @@ final class BufferReaderWriterUtil {
 
 		final ByteBuffer headerBuffer = arrayWithHeaderBuffer[0];
 		headerBuffer.clear();
-		headerBuffer.putShort(buffer.isBuffer() ? HEADER_VALUE_IS_BUFFER : HEADER_VALUE_IS_EVENT);
-		headerBuffer.putShort(buffer.isCompressed() ? BUFFER_IS_COMPRESSED : BUFFER_IS_NOT_COMPRESSED);
-		headerBuffer.putInt(buffer.getSize());
+		writeHeader(buffer, headerBuffer);
 		headerBuffer.flip();
 
 		final ByteBuffer dataBuffer = buffer.getNioBufferReadable();
@@ -177,6 +183,46 @@ final class BufferReaderWriterUtil {
 		return new NetworkBuffer(memorySegment, bufferRecycler, dataType, isCompressed, size);
 	}
 
+	/**
+	 * Reads the header of the next buffer and returns a {@link FileRegionBuffer} referring to the data of
+	 * the buffer in the file, without reading the data itself. The channel is positioned after the data.
+	 */
+	@Nullable
+	static Buffer readFileRegionFromByteChannel(
+			FileChannel channel,
+			ByteBuffer headerBuffer,
+			@Nullable Runnable releaseCallback) throws IOException {
+
+		headerBuffer.clear();
+		if (!tryReadByteBuffer(channel, headerBuffer)) {
+			return null;
+		}
+		headerBuffer.flip();
+
+		final boolean isEvent;
+		final boolean isCompressed;
+		final int size;
+
+		try {
+			isEvent = headerBuffer.getShort() == HEADER_VALUE_IS_EVENT;
+			isCompressed = headerBuffer.getShort() == BUFFER_IS_COMPRESSED;
+			size = headerBuffer.getInt();
+		}
+		catch (BufferUnderflowException e) {
+			throwCorruptDataException();
+			return null; // silence compiler
+		}
+
+		final long position = channel.position();
+		if (size < 0 || position + size > channel.size()) {
+			throwCorruptDataException();
+		}
+		channel.position(position + size);
+
+		Buffer.DataType dataType = isEvent ? Buffer.DataType.EVENT_BUFFER : Buffer.DataType.DATA_BUFFER;
+		return new FileRegionBuffer(channel, position, size, dataType, isCompressed, releaseCallback);
+	}
+
 	static ByteBuffer allocatedHeaderBuffer() {
 		ByteBuffer bb = ByteBuffer.allocateDirect(HEADER_LENGTH);
 		configureByteBuffer(bb);
@@ -33,6 +33,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
@@ -40,6 +41,10 @@ import static org.apache.flink.util.Preconditions.checkState;
 /**
  * An implementation of {@link BoundedData} that writes directly into a File Channel.
  * The readers are simple file channel readers using a simple dedicated buffer pool.
+ *
+ * <p>If zero-copy transfer is enabled, the readers do not read the data into memory, but return
+ * {@link org.apache.flink.runtime.io.network.buffer.FileRegionBuffer FileRegionBuffers} that Netty
+ * transfers directly from the file to the socket.
  */
 final class FileChannelBoundedData implements BoundedData {
 
@@ -53,14 +58,19 @@ final class FileChannelBoundedData implements BoundedData {
 
 	private final int memorySegmentSize;
 
+	/** Whether readers return file regions instead of reading the data into memory. */
+	private final boolean zeroCopyTransferEnabled;
+
 	FileChannelBoundedData(
 			Path filePath,
 			FileChannel fileChannel,
-			int memorySegmentSize) {
+			int memorySegmentSize,
+			boolean zeroCopyTransferEnabled) {
 
 		this.filePath = checkNotNull(filePath);
 		this.fileChannel = checkNotNull(fileChannel);
 		this.memorySegmentSize = memorySegmentSize;
+		this.zeroCopyTransferEnabled = zeroCopyTransferEnabled;
 		this.headerAndBufferArray = BufferReaderWriterUtil.allocatedWriteBufferArray();
 	}
 
@@ -79,7 +89,9 @@ final class FileChannelBoundedData implements BoundedData {
 		checkState(!fileChannel.isOpen());
 
 		final FileChannel fc = FileChannel.open(filePath, StandardOpenOption.READ);
-		return new FileBufferReader(fc, memorySegmentSize, subpartitionView);
+		return zeroCopyTransferEnabled
+			? new FileRegionReader(fc)
+			: new FileBufferReader(fc, memorySegmentSize, subpartitionView);
 	}
 
 	@Override
@@ -96,13 +108,22 @@ final class FileChannelBoundedData implements BoundedData {
 	// ------------------------------------------------------------------------
 
 	public static FileChannelBoundedData create(Path filePath, int memorySegmentSize) throws IOException {
+		return create(filePath, memorySegmentSize, false);
+	}
+
+	public static FileChannelBoundedData create(
+			Path filePath,
+			int memorySegmentSize,
+			boolean zeroCopyTransferEnabled) throws IOException {
+
 		final FileChannel fileChannel = FileChannel.open(
 				filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
 
 		return new FileChannelBoundedData(
 				filePath,
 				fileChannel,
-				memorySegmentSize);
+				memorySegmentSize,
+				zeroCopyTransferEnabled);
 	}
 
 	// ------------------------------------------------------------------------
@@ -165,4 +186,69 @@ final class FileChannelBoundedData implements BoundedData {
 			}
 		}
 	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A reader that returns {@link org.apache.flink.runtime.io.network.buffer.FileRegionBuffer
+	 * FileRegionBuffers} referring to the data in the file, rather than reading the data into memory.
+	 * The data is only read when Netty transfers the region to the socket.
+	 *
+	 * <p>Because Netty may still transfer regions after the reader was closed (for example when the
+	 * consumer cancels while a region is in flight), the file channel is reference counted and closed
+	 * once the reader is closed and all its regions are released.
+	 */
+	static final class FileRegionReader implements BoundedData.Reader {
+
+		private final FileChannel fileChannel;
+
+		private final ByteBuffer headerBuffer;
+
+		/** One reference for the reader itself plus one per unreleased file region. */
+		private final AtomicInteger references = new AtomicInteger(1);
+
+		private final Runnable releaseCallback = this::releaseReference;
+
+		private boolean isClosed;
+
+		FileRegionReader(FileChannel fileChannel) {
+			this.fileChannel = checkNotNull(fileChannel);
+			this.headerBuffer = BufferReaderWriterUtil.allocatedHeaderBuffer();
+		}
+
+		@Nullable
+		@Override
+		public Buffer nextBuffer() throws IOException {
+			checkState(!isClosed, "reader already closed");
+
+			references.incrementAndGet();
+			final Buffer next;
+			try {
+				next = BufferReaderWriterUtil.readFileRegionFromByteChannel(fileChannel, headerBuffer, releaseCallback);
+			}
+			catch (Throwable t) {
+				releaseReference();
+				throw t;
+			}
+
+			if (next == null) {
+				releaseReference();
+			}
+			return next;
+		}
+
+		@Override
+		public void close() throws IOException {
+			if (!isClosed) {
+				isClosed = true;
+				releaseReference();
+			}
+		}
+
+		private void releaseReference() {
+			if (references.decrementAndGet() == 0) {
+				IOUtils.closeQuietly(fileChannel);
+			}
+		}
+	}
 }
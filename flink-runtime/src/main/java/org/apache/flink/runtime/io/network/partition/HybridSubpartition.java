@@ -0,0 +1,574 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.disk.FileChannelManager;
+import org.apache.flink.runtime.io.network.api.EndOfPartitionEvent;
+import org.apache.flink.runtime.io.network.api.serialization.EventSerializer;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.util.IOUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.List;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * A subpartition of a {@link ResultPartitionType#HYBRID} partition, which can be consumed once.
+ *
+ * <p>As long as a read view is attached and keeps up with the producer, the subpartition behaves
+ * like a {@link PipelinedSubpartition} and hands the buffers over in memory. When no read view is
+ * attached yet, or when more than {@code maxBuffersInMemory} finished buffers queue up because the
+ * consumer falls behind, the finished buffers are written to a spill file and recycled right away.
+ * The finished buffers are also spilled when the buffer pool of the partition has no buffer left for
+ * the producer, see {@link #releaseMemory()}, so that the producer never waits for the consumers. The
+ * reader always drains the spilled buffers before the in-memory ones, which preserves the order of
+ * the data.
+ *
+ * <p>Spilling happens in the producer thread when buffers are added or requested, and reading the
+ * spilled data happens in the consumer thread, both under the lock of the subpartition. The spill
+ * file is created lazily, so subpartitions with a fast consumer never touch the disk.
+ */
+final class HybridSubpartition extends ResultSubpartition {
+
+	private static final Logger LOG = LoggerFactory.getLogger(HybridSubpartition.class);
+
+	/** The in-memory buffers of this subpartition, which follow all the spilled buffers. */
+	private final ArrayDeque<BufferConsumer> buffers = new ArrayDeque<>();
+
+	/** Whether each of the spilled but not yet read buffers is a data buffer, in file order. */
+	@GuardedBy("buffers")
+	private final ArrayDeque<Boolean> spilledBuffers = new ArrayDeque<>();
+
+	/** The memory segments to read the spilled buffers into, which are recycled by the consumer. */
+	@GuardedBy("readSegments")
+	private final ArrayDeque<MemorySegment> readSegments = new ArrayDeque<>();
+
+	private final FileChannelManager channelManager;
+
+	/** The number of finished in-memory buffers above which the buffers are spilled. */
+	private final int maxBuffersInMemory;
+
+	/** The size of the memory segments to read the spilled buffers into. */
+	private final int memorySegmentSize;
+
+	private final ByteBuffer[] headerAndBufferArray = BufferReaderWriterUtil.allocatedWriteBufferArray();
+
+	private final ByteBuffer headerBuffer = BufferReaderWriterUtil.allocatedHeaderBuffer();
+
+	/** The spill file, created when the first buffer is spilled. */
+	@GuardedBy("buffers")
+	@Nullable
+	private Path spillFilePath;
+
+	@GuardedBy("buffers")
+	@Nullable
+	private FileChannel spillFileChannel;
+
+	@GuardedBy("buffers")
+	private long spillWritePosition;
+
+	@GuardedBy("buffers")
+	private long spillReadPosition;
+
+	/** The number of non-event buffers currently in this subpartition, both spilled and in memory. */
+	@GuardedBy("buffers")
+	private int buffersInBacklog;
+
+	/** The read view to consume this subpartition. */
+	@GuardedBy("buffers")
+	private HybridSubpartitionView readView;
+
+	@GuardedBy("buffers")
+	private boolean isFinished;
+
+	@GuardedBy("buffers")
+	private boolean flushRequested;
+
+	private volatile boolean isReleased;
+
+	/** The total number of buffers (both data and event buffers). */
+	private long totalNumberOfBuffers;
+
+	/** The total number of bytes (both data and event buffers). */
+	private long totalNumberOfBytes;
+
+	/** The total number of buffers (both data and event buffers) written to the spill file. */
+	private long totalNumberOfSpilledBuffers;
+
+	HybridSubpartition(
+			int index,
+			ResultPartition parent,
+			FileChannelManager channelManager,
+			int maxBuffersInMemory,
+			int memorySegmentSize) {
+
+		super(index, parent);
+
+		checkArgument(maxBuffersInMemory > 0, "The maximum number of in-memory buffers must be positive.");
+		this.channelManager = checkNotNull(channelManager);
+		this.maxBuffersInMemory = maxBuffersInMemory;
+		this.memorySegmentSize = memorySegmentSize;
+	}
+
+	@Override
+	public boolean add(BufferConsumer bufferConsumer, boolean isPriorityEvent) throws IOException {
+		// priority events only exist for unaligned checkpoints, which batch jobs do not support
+		return addInternal(bufferConsumer, false);
+	}
+
+	@Override
+	public void finish() throws IOException {
+		addInternal(EventSerializer.toBufferConsumer(EndOfPartitionEvent.INSTANCE), true);
+		LOG.debug("{}: Finished {}.", parent.getOwningTaskName(), this);
+	}
+
+	private boolean addInternal(BufferConsumer bufferConsumer, boolean finish) throws IOException {
+		checkNotNull(bufferConsumer);
+
+		final boolean notifyDataAvailable;
+		synchronized (buffers) {
+			if (isFinished || isReleased) {
+				bufferConsumer.close();
+				return false;
+			}
+
+			final boolean wasDataAvailable = isDataAvailableUnsafe();
+
+			buffers.add(bufferConsumer);
+			totalNumberOfBuffers++;
+			if (bufferConsumer.isBuffer()) {
+				buffersInBacklog++;
+			}
+			isFinished |= finish;
+
+			if (readView == null || getNumberOfFinishedBuffers() > maxBuffersInMemory) {
+				spillFinishedBuffers();
+			}
+
+			notifyDataAvailable = readView != null && !wasDataAvailable && isDataAvailableUnsafe();
+		}
+
+		if (notifyDataAvailable) {
+			notifyDataAvailable();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Moves all finished in-memory buffers to the end of the spill file. Because all spilled buffers
+	 * precede the in-memory buffers, this keeps the order of the data.
+	 *
+	 * @return the number of spilled data buffers, which were recycled to the buffer pool
+	 */
+	@GuardedBy("buffers")
+	private int spillFinishedBuffers() throws IOException {
+		assert Thread.holdsLock(buffers);
+
+		int numSpilledBuffers = 0;
+		// We assume that only the last buffer may not be finished, like getNumberOfFinishedBuffers().
+		while (buffers.size() > 1 || (!buffers.isEmpty() && buffers.peek().isFinished())) {
+			final BufferConsumer bufferConsumer = buffers.poll();
+			if (bufferConsumer.isBuffer()) {
+				numSpilledBuffers++;
+			}
+			final Buffer buffer = bufferConsumer.build();
+			try {
+				if (buffer.readableBytes() > 0) {
+					writeToSpillFile(buffer);
+				}
+				else if (bufferConsumer.isBuffer()) {
+					buffersInBacklog--;
+				}
+			}
+			finally {
+				buffer.recycleBuffer();
+				bufferConsumer.close();
+			}
+		}
+
+		if (buffers.isEmpty()) {
+			flushRequested = false;
+		}
+		return numSpilledBuffers;
+	}
+
+	@GuardedBy("buffers")
+	private void writeToSpillFile(Buffer buffer) throws IOException {
+		if (spillFileChannel == null) {
+			spillFilePath = channelManager.createChannel().getPathFile().toPath();
+			spillFileChannel = FileChannel.open(
+				spillFilePath,
+				StandardOpenOption.CREATE_NEW,
+				StandardOpenOption.READ,
+				StandardOpenOption.WRITE);
+
+			LOG.debug("{}: Spilling subpartition {} of partition {} to {}.",
+				parent.getOwningTaskName(), getSubPartitionIndex(), parent.getPartitionId(), spillFilePath);
+		}
+
+		spillFileChannel.position(spillWritePosition);
+		if (canBeCompressed(buffer)) {
+			final Buffer compressedBuffer = parent.bufferCompressor.compressToIntermediateBuffer(buffer);
+			spillWritePosition += BufferReaderWriterUtil.writeToByteChannel(
+				spillFileChannel, compressedBuffer, headerAndBufferArray);
+			if (compressedBuffer != buffer) {
+				compressedBuffer.recycleBuffer();
+			}
+		}
+		else {
+			spillWritePosition += BufferReaderWriterUtil.writeToByteChannel(
+				spillFileChannel, buffer, headerAndBufferArray);
+		}
+
+		spilledBuffers.add(buffer.isBuffer());
+		totalNumberOfSpilledBuffers++;
+	}
+
+	@Nullable
+	BufferAndBacklog pollBuffer() throws IOException {
+		synchronized (buffers) {
+			if (isReleased) {
+				return null;
+			}
+
+			final Buffer buffer = spilledBuffers.isEmpty() ? pollInMemoryBuffer() : readSpilledBuffer();
+			if (buffer == null) {
+				return null;
+			}
+
+			totalNumberOfBytes += buffer.getSize();
+			return new BufferAndBacklog(
+				buffer,
+				isDataAvailableUnsafe(),
+				getBuffersInBacklog(),
+				isEventAvailableUnsafe());
+		}
+	}
+
+	@GuardedBy("buffers")
+	private Buffer readSpilledBuffer() throws IOException {
+		assert Thread.holdsLock(buffers);
+
+		MemorySegment segment;
+		synchronized (readSegments) {
+			segment = readSegments.poll();
+		}
+		if (segment == null) {
+			segment = MemorySegmentFactory.allocateUnpooledSegment(memorySegmentSize);
+		}
+
+		spillFileChannel.position(spillReadPosition);
+		final Buffer buffer = BufferReaderWriterUtil.readFromByteChannel(
+			spillFileChannel, headerBuffer, segment, this::recycleReadSegment);
+		checkState(buffer != null, "Premature end of the spill file of subpartition %s.", getSubPartitionIndex());
+		spillReadPosition = spillFileChannel.position();
+
+		if (spilledBuffers.poll()) {
+			buffersInBacklog--;
+		}
+		return buffer;
+	}
+
+	@GuardedBy("buffers")
+	@Nullable
+	private Buffer pollInMemoryBuffer() {
+		assert Thread.holdsLock(buffers);
+
+		Buffer buffer = null;
+
+		if (buffers.isEmpty()) {
+			flushRequested = false;
+		}
+
+		while (!buffers.isEmpty()) {
+			BufferConsumer bufferConsumer = buffers.peek();
+
+			buffer = bufferConsumer.build();
+
+			checkState(bufferConsumer.isFinished() || buffers.size() == 1,
+				"When there are multiple buffers, an unfinished bufferConsumer can not be at the head of the buffers queue.");
+
+			if (buffers.size() == 1) {
+				// turn off flushRequested flag if we drained all of the available data
+				flushRequested = false;
+			}
+
+			if (bufferConsumer.isFinished()) {
+				buffers.pop().close();
+				if (bufferConsumer.isBuffer()) {
+					buffersInBacklog--;
+				}
+			}
+
+			if (buffer.readableBytes() > 0) {
+				break;
+			}
+			buffer.recycleBuffer();
+			buffer = null;
+			if (!bufferConsumer.isFinished()) {
+				break;
+			}
+		}
+
+		return buffer;
+	}
+
+	private void recycleReadSegment(MemorySegment segment) {
+		synchronized (readSegments) {
+			if (!isReleased) {
+				readSegments.add(segment);
+			}
+		}
+	}
+
+	@Override
+	public void release() throws IOException {
+		// view reference accessible outside the lock, but assigned inside the locked scope
+		final HybridSubpartitionView view;
+
+		synchronized (buffers) {
+			if (isReleased) {
+				return;
+			}
+
+			// Release all available buffers
+			for (BufferConsumer buffer : buffers) {
+				buffer.close();
+			}
+			buffers.clear();
+			spilledBuffers.clear();
+
+			view = readView;
+			readView = null;
+
+			// Make sure that no further buffers are added to the subpartition
+			isReleased = true;
+
+			if (spillFileChannel != null) {
+				IOUtils.closeQuietly(spillFileChannel);
+				Files.deleteIfExists(spillFilePath);
+			}
+		}
+
+		synchronized (readSegments) {
+			readSegments.clear();
+		}
+
+		LOG.debug("{}: Released {}.", parent.getOwningTaskName(), this);
+
+		if (view != null) {
+			view.releaseAllResources();
+		}
+	}
+
+	@Override
+	public List<Buffer> requestInflightBufferSnapshot() {
+		throw new UnsupportedOperationException("The batch job does not support unaligned checkpoint.");
+	}
+
+	/**
+	 * Spills the finished in-memory buffers. This is called by the producer thread when the buffer pool
+	 * has no buffer left, see {@link ResultPartition#getBufferBuilder(int)}, and never by the buffer pool
+	 * itself, because the pool would hold its own lock, which the consumer acquires after the lock of
+	 * this subpartition when recycling buffers.
+	 */
+	@Override
+	int releaseMemory() throws IOException {
+		synchronized (buffers) {
+			if (isReleased) {
+				return 0;
+			}
+			return spillFinishedBuffers();
+		}
+	}
+
+	@Override
+	public boolean isReleased() {
+		return isReleased;
+	}
+
+	@Override
+	public HybridSubpartitionView createReadView(BufferAvailabilityListener availabilityListener) {
+		final boolean notifyDataAvailable;
+		synchronized (buffers) {
+			checkState(!isReleased);
+			checkState(readView == null,
+				"Subpartition %s of is being (or already has been) consumed, " +
+				"but hybrid subpartitions can only be consumed once.",
+				getSubPartitionIndex(),
+				parent.getPartitionId());
+
+			LOG.debug("{}: Creating read view for subpartition {} of partition {}.",
+				parent.getOwningTaskName(), getSubPartitionIndex(), parent.getPartitionId());
+
+			readView = new HybridSubpartitionView(this, availabilityListener);
+			notifyDataAvailable = !buffers.isEmpty() || !spilledBuffers.isEmpty();
+		}
+		if (notifyDataAvailable) {
+			notifyDataAvailable();
+		}
+
+		return readView;
+	}
+
+	boolean isAvailable(int numCreditsAvailable) {
+		synchronized (buffers) {
+			if (numCreditsAvailable > 0) {
+				return isDataAvailableUnsafe();
+			}
+
+			return isEventAvailableUnsafe();
+		}
+	}
+
+	private boolean isDataAvailableUnsafe() {
+		assert Thread.holdsLock(buffers);
+
+		return !spilledBuffers.isEmpty() || flushRequested || getNumberOfFinishedBuffers() > 0;
+	}
+
+	private boolean isEventAvailableUnsafe() {
+		assert Thread.holdsLock(buffers);
+
+		if (!spilledBuffers.isEmpty()) {
+			return !spilledBuffers.peek();
+		}
+		return !buffers.isEmpty() && !buffers.peekFirst().isBuffer();
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public void flush() {
+		final boolean notifyDataAvailable;
+		synchronized (buffers) {
+			if (buffers.isEmpty() || flushRequested) {
+				return;
+			}
+
+			final boolean wasDataAvailable = isDataAvailableUnsafe();
+			flushRequested = buffers.size() > 1 || buffers.peek().isDataAvailable();
+			notifyDataAvailable = readView != null && !wasDataAvailable && isDataAvailableUnsafe();
+		}
+		if (notifyDataAvailable) {
+			notifyDataAvailable();
+		}
+	}
+
+	@Override
+	protected long getTotalNumberOfBuffers() {
+		return totalNumberOfBuffers;
+	}
+
+	@Override
+	protected long getTotalNumberOfBytes() {
+		return totalNumberOfBytes;
+	}
+
+	@VisibleForTesting
+	long getTotalNumberOfSpilledBuffers() {
+		return totalNumberOfSpilledBuffers;
+	}
+
+	Throwable getFailureCause() {
+		return parent.getFailureCause();
+	}
+
+	/**
+	 * Gets the number of non-event buffers in this subpartition.
+	 *
+	 * <p><strong>Beware:</strong> This method should only be used in tests in non-concurrent access
+	 * scenarios since it does not make any concurrency guarantees.
+	 */
+	@SuppressWarnings("FieldAccessNotGuarded")
+	@Override
+	int getBuffersInBacklog() {
+		if (flushRequested || isFinished || buffers.isEmpty()) {
+			return buffersInBacklog;
+		} else {
+			// the last in-memory buffer is not reported, as it is still being written
+			return Math.max(buffersInBacklog - 1, 0);
+		}
+	}
+
+	@Override
+	public int unsynchronizedGetNumberOfQueuedBuffers() {
+		// since we do not synchronize, the size may actually be lower than 0!
+		return Math.max(buffers.size() + spilledBuffers.size(), 0);
+	}
+
+	private void notifyDataAvailable() {
+		if (readView != null) {
+			readView.notifyDataAvailable();
+		}
+	}
+
+	private int getNumberOfFinishedBuffers() {
+		assert Thread.holdsLock(buffers);
+
+		if (buffers.size() == 1 && buffers.peekLast().isFinished()) {
+			return 1;
+		}
+
+		// We assume that only last buffer is not finished.
+		return Math.max(0, buffers.size() - 1);
+	}
+
+	@Override
+	public String toString() {
+		final long numBuffers;
+		final long numBytes;
+		final long numSpilledBuffers;
+		final boolean finished;
+		final boolean hasReadView;
+
+		synchronized (buffers) {
+			numBuffers = getTotalNumberOfBuffers();
+			numBytes = getTotalNumberOfBytes();
+			numSpilledBuffers = getTotalNumberOfSpilledBuffers();
+			finished = isFinished;
+			hasReadView = readView != null;
+		}
+
+		return String.format(
+			"HybridSubpartition#%d [number of buffers: %d (%d bytes), number of spilled buffers: %d, " +
+				"number of buffers in backlog: %d, finished? %s, read view? %s]",
+			getSubPartitionIndex(), numBuffers, numBytes, numSpilledBuffers, getBuffersInBacklog(), finished, hasReadView);
+	}
+}
@@ -47,6 +47,14 @@ public class NoOpResultSubpartitionView implements ResultSubpartitionView {
 	public void resumeConsumption() {
 	}
 
+	@Override
+	public void notifyNewBufferSize(int newBufferSize) {
+	}
+
+	@Override
+	public void enableCompression() {
+	}
+
 	@Override
 	public Throwable getFailureCause() {
 		return null;
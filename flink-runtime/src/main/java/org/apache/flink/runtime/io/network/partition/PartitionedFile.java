@@ -0,0 +1,274 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferRecycler;
+import org.apache.flink.util.IOUtils;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkElementIndex;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A finished file holding the data of all subpartitions of one result partition, as written by the
+ * {@link PartitionedFileWriter}.
+ *
+ * <p>The data file consists of a sequence of regions. Within each region, the buffers of every subpartition
+ * are stored contiguously, ordered by subpartition index. The index file contains one entry per region and
+ * subpartition, consisting of the offset of the subpartition's data in the data file and its number of buffers.
+ * The index entry of subpartition {@code s} in region {@code r} is located at
+ * {@code (r * numSubpartitions + s) * INDEX_ENTRY_SIZE}.
+ */
+final class PartitionedFile {
+
+	/** Size of an index entry: 8 bytes for the file offset and 4 bytes for the number of buffers. */
+	static final int INDEX_ENTRY_SIZE = 8 + 4;
+
+	static final String INDEX_FILE_SUFFIX = ".index";
+
+	private final Path dataFilePath;
+
+	private final Path indexFilePath;
+
+	private final int numSubpartitions;
+
+	private final int numRegions;
+
+	private final long dataFileSize;
+
+	PartitionedFile(Path dataFilePath, Path indexFilePath, int numSubpartitions, int numRegions, long dataFileSize) {
+		checkArgument(numSubpartitions > 0, "Illegal number of subpartitions.");
+		checkArgument(numRegions >= 0, "Illegal number of regions.");
+
+		this.dataFilePath = checkNotNull(dataFilePath);
+		this.indexFilePath = checkNotNull(indexFilePath);
+		this.numSubpartitions = numSubpartitions;
+		this.numRegions = numRegions;
+		this.dataFileSize = dataFileSize;
+	}
+
+	Path getDataFilePath() {
+		return dataFilePath;
+	}
+
+	Path getIndexFilePath() {
+		return indexFilePath;
+	}
+
+	int getNumSubpartitions() {
+		return numSubpartitions;
+	}
+
+	int getNumRegions() {
+		return numRegions;
+	}
+
+	long getDataFileSize() {
+		return dataFileSize;
+	}
+
+	/**
+	 * Creates a reader that reads the buffers of the given subpartition, region by region.
+	 */
+	BoundedData.Reader createReader(
+			int subpartitionIndex,
+			int readBufferSize,
+			ResultSubpartitionView subpartitionView) throws IOException {
+
+		checkElementIndex(subpartitionIndex, numSubpartitions);
+
+		final FileChannel dataFileChannel = FileChannel.open(dataFilePath, StandardOpenOption.READ);
+		final FileChannel indexFileChannel;
+		try {
+			indexFileChannel = FileChannel.open(indexFilePath, StandardOpenOption.READ);
+		}
+		catch (IOException e) {
+			IOUtils.closeQuietly(dataFileChannel);
+			throw e;
+		}
+
+		return new PartitionedFileReader(
+			this, subpartitionIndex, dataFileChannel, indexFileChannel, readBufferSize, subpartitionView);
+	}
+
+	@Override
+	public String toString() {
+		return "PartitionedFile{" +
+			"dataFilePath=" + dataFilePath +
+			", indexFilePath=" + indexFilePath +
+			", numSubpartitions=" + numSubpartitions +
+			", numRegions=" + numRegions +
+			", dataFileSize=" + dataFileSize +
+			'}';
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Reader for the data of one subpartition in a {@link PartitionedFile}. The reader looks up the index
+	 * entry of the subpartition for one region at a time and then reads the contiguous buffers of that region
+	 * sequentially. Like the {@link FileChannelBoundedData.FileBufferReader}, it uses a small dedicated set
+	 * of memory segments for reading.
+	 */
+	static final class PartitionedFileReader implements BoundedData.Reader, BufferRecycler {
+
+		private static final int NUM_BUFFERS = 2;
+
+		private final PartitionedFile partitionedFile;
+
+		private final int subpartitionIndex;
+
+		private final FileChannel dataFileChannel;
+
+		private final FileChannel indexFileChannel;
+
+		private final ByteBuffer headerBuffer;
+
+		private final ByteBuffer indexEntryBuffer;
+
+		private final ArrayDeque<MemorySegment> buffers;
+
+		private final ResultSubpartitionView subpartitionView;
+
+		/** The index of the next region to read the index entry for. */
+		private int nextRegionIndex;
+
+		/** The number of buffers of this subpartition left in the current region. */
+		private int numRemainingBuffersInRegion;
+
+		/** The tag indicates whether we have read all data of this subpartition. */
+		private boolean isFinished;
+
+		PartitionedFileReader(
+				PartitionedFile partitionedFile,
+				int subpartitionIndex,
+				FileChannel dataFileChannel,
+				FileChannel indexFileChannel,
+				int bufferSize,
+				ResultSubpartitionView subpartitionView) {
+
+			this.partitionedFile = checkNotNull(partitionedFile);
+			this.subpartitionIndex = subpartitionIndex;
+			this.dataFileChannel = checkNotNull(dataFileChannel);
+			this.indexFileChannel = checkNotNull(indexFileChannel);
+			this.headerBuffer = BufferReaderWriterUtil.allocatedHeaderBuffer();
+			this.indexEntryBuffer = ByteBuffer.allocateDirect(INDEX_ENTRY_SIZE);
+			BufferReaderWriterUtil.configureByteBuffer(indexEntryBuffer);
+			this.buffers = new ArrayDeque<>(NUM_BUFFERS);
+
+			for (int i = 0; i < NUM_BUFFERS; i++) {
+				buffers.addLast(MemorySegmentFactory.allocateUnpooledOffHeapMemory(bufferSize, null));
+			}
+
+			this.subpartitionView = checkNotNull(subpartitionView);
+		}
+
+		@Nullable
+		@Override
+		public Buffer nextBuffer() throws IOException {
+			final MemorySegment memory = buffers.pollFirst();
+			if (memory == null) {
+				return null;
+			}
+
+			if (!moveToNextBuffer()) {
+				isFinished = true;
+				recycle(memory);
+				return null;
+			}
+
+			final Buffer next = BufferReaderWriterUtil.readFromByteChannel(dataFileChannel, headerBuffer, memory, this);
+			if (next == null) {
+				recycle(memory);
+				throw new IOException("The partitioned file is corrupt: premature end of file " + partitionedFile);
+			}
+
+			numRemainingBuffersInRegion--;
+			return next;
+		}
+
+		/**
+		 * Positions the data file channel at the next buffer of this subpartition, advancing to the next
+		 * region with data for this subpartition if necessary.
+		 *
+		 * @return false if there is no more data for this subpartition
+		 */
+		private boolean moveToNextBuffer() throws IOException {
+			while (numRemainingBuffersInRegion == 0) {
+				if (nextRegionIndex >= partitionedFile.getNumRegions()) {
+					return false;
+				}
+
+				readIndexEntry(nextRegionIndex++);
+				final long regionOffset = indexEntryBuffer.getLong();
+				numRemainingBuffersInRegion = indexEntryBuffer.getInt();
+
+				if (numRemainingBuffersInRegion > 0) {
+					dataFileChannel.position(regionOffset);
+				}
+			}
+			return true;
+		}
+
+		private void readIndexEntry(int regionIndex) throws IOException {
+			long position = ((long) regionIndex * partitionedFile.getNumSubpartitions() + subpartitionIndex) * INDEX_ENTRY_SIZE;
+
+			indexEntryBuffer.clear();
+			while (indexEntryBuffer.hasRemaining()) {
+				final int read = indexFileChannel.read(indexEntryBuffer, position);
+				if (read == -1) {
+					throw new IOException("The partitioned file index is corrupt: premature end of file " + partitionedFile);
+				}
+				position += read;
+			}
+			indexEntryBuffer.flip();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				dataFileChannel.close();
+			}
+			finally {
+				indexFileChannel.close();
+			}
+		}
+
+		@Override
+		public void recycle(MemorySegment memorySegment) {
+			buffers.addLast(memorySegment);
+
+			if (!isFinished) {
+				subpartitionView.notifyDataAvailable();
+			}
+		}
+	}
+}
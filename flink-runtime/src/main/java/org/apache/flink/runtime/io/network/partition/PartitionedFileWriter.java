@@ -0,0 +1,517 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.util.IOUtils;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkElementIndex;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * Writes the buffers of all subpartitions of one result partition into a single {@link PartitionedFile}.
+ *
+ * <p>Buffers are first appended to an in-memory sort buffer. Every entry in the sort buffer is prefixed with
+ * the offset of the next entry of the same subpartition, so that the entries form one linked list per
+ * subpartition. When the sort buffer is full (or all subpartitions are finished), the buffered data is written
+ * out as one <i>region</i>: the entries are written grouped by subpartition, so that the data of each subpartition
+ * is contiguous within the region, and one index entry (file offset and number of buffers) per subpartition is
+ * appended to the index file.
+ *
+ * <p>The sort buffer consists of network buffers of the buffer pool of the result partition, so that its memory
+ * is part of the network memory. The buffers are requested without blocking, and the sort buffer never holds
+ * more buffers than the pool can spare while the producer holds one buffer per subpartition, so that the
+ * producer cannot wait for a buffer that only the sort buffer could return. Entries are aligned to four bytes
+ * and may span several network buffers.
+ *
+ * <p>The buffers are stored in the data file in the same format as written by {@link BufferReaderWriterUtil},
+ * so readers can decode them with the same utilities as the subpartition-based blocking shuffle.
+ *
+ * <h2>Life cycle and thread safety</h2>
+ *
+ * <p>There is a single writer thread that writes buffers and finishes subpartitions. Once all subpartitions
+ * have been finished, the {@link PartitionedFile} becomes available for reading. The files are deleted once
+ * all subpartitions have been released, which may happen from different threads.
+ */
+final class PartitionedFileWriter {
+
+	/** Size of the pointer to the next entry of the same subpartition that prefixes each entry in the sort buffer. */
+	private static final int NEXT_POINTER_LENGTH = 4;
+
+	/** Marks the end of the linked list of entries of one subpartition. */
+	private static final int NO_NEXT_ENTRY = -1;
+
+	/** Maximum number of byte buffers handed to one gathering write. */
+	private static final int MAX_WRITE_BATCH_SIZE = 512;
+
+	/** The alignment of the entries in the sort buffer, so that the next pointers never span two segments. */
+	private static final int ENTRY_ALIGNMENT = 4;
+
+	private final Object lock = new Object();
+
+	private final Path dataFilePath;
+
+	private final Path indexFilePath;
+
+	private final int numSubpartitions;
+
+	private final FileChannel dataFileChannel;
+
+	private final FileChannel indexFileChannel;
+
+	/** Supplies the buffer pool of the result partition, which is only set up after the writer was created. */
+	private final Supplier<BufferPool> bufferPoolSupplier;
+
+	/** The maximum number of network buffers of the sort buffer. */
+	private final int maxSortBuffers;
+
+	/** The network buffers of the sort buffer. */
+	@GuardedBy("lock")
+	private final List<Buffer> sortBuffers;
+
+	/** The memory of the network buffers of the sort buffer, in the byte order of the data file. */
+	@GuardedBy("lock")
+	private final List<ByteBuffer> sortBufferMemory;
+
+	/** The size of the network buffers, only known once the first buffer was requested. */
+	private int segmentSize;
+
+	/** The number of bytes written to the sort buffer. */
+	private int sortBufferPosition;
+
+	/** The offset of the first entry of each subpartition in the sort buffer. */
+	private final int[] firstEntryOffsets;
+
+	/** The offset of the last entry of each subpartition in the sort buffer. */
+	private final int[] lastEntryOffsets;
+
+	/** The number of buffers of each subpartition in the sort buffer. */
+	private final int[] numBuffersInSortBuffer;
+
+	/** Reusable buffer holding the index entries of one region. */
+	private final ByteBuffer indexBuffer;
+
+	/** Reusable array for gathering writes of the data of one region. */
+	private final ByteBuffer[] writeBatch;
+
+	/** Reusable array for writing buffers that bypass the sort buffer, and for the headers of entries. */
+	private final ByteBuffer[] headerAndBufferArray;
+
+	private final boolean[] finishedSubpartitions;
+
+	private long dataFileSize;
+
+	private int numRegions;
+
+	private int numFinishedSubpartitions;
+
+	/** The finished file, only non-null after all subpartitions were finished. */
+	@Nullable
+	private volatile PartitionedFile partitionedFile;
+
+	@GuardedBy("lock")
+	private int numReleasedSubpartitions;
+
+	@GuardedBy("lock")
+	private boolean isReleased;
+
+	private PartitionedFileWriter(
+			Path dataFilePath,
+			Path indexFilePath,
+			FileChannel dataFileChannel,
+			FileChannel indexFileChannel,
+			int numSubpartitions,
+			int maxSortBuffers,
+			Supplier<BufferPool> bufferPoolSupplier) {
+
+		this.dataFilePath = checkNotNull(dataFilePath);
+		this.indexFilePath = checkNotNull(indexFilePath);
+		this.dataFileChannel = checkNotNull(dataFileChannel);
+		this.indexFileChannel = checkNotNull(indexFileChannel);
+		this.numSubpartitions = numSubpartitions;
+
+		this.maxSortBuffers = maxSortBuffers;
+		this.bufferPoolSupplier = checkNotNull(bufferPoolSupplier);
+		this.sortBuffers = new ArrayList<>(maxSortBuffers);
+		this.sortBufferMemory = new ArrayList<>(maxSortBuffers);
+
+		this.firstEntryOffsets = new int[numSubpartitions];
+		this.lastEntryOffsets = new int[numSubpartitions];
+		this.numBuffersInSortBuffer = new int[numSubpartitions];
+		Arrays.fill(firstEntryOffsets, NO_NEXT_ENTRY);
+		Arrays.fill(lastEntryOffsets, NO_NEXT_ENTRY);
+
+		this.indexBuffer = ByteBuffer.allocateDirect(numSubpartitions * PartitionedFile.INDEX_ENTRY_SIZE);
+		BufferReaderWriterUtil.configureByteBuffer(indexBuffer);
+
+		this.writeBatch = new ByteBuffer[MAX_WRITE_BATCH_SIZE];
+		this.headerAndBufferArray = BufferReaderWriterUtil.allocatedWriteBufferArray();
+		this.finishedSubpartitions = new boolean[numSubpartitions];
+	}
+
+	// ------------------------------------------------------------------------
+	//  writing
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Appends the given buffer to the data of the given subpartition. The buffer is copied, so the
+	 * caller keeps the ownership of the buffer.
+	 *
+	 * @return the number of bytes the buffer occupies in the data file (including the buffer header)
+	 */
+	long writeBuffer(int subpartitionIndex, Buffer buffer) throws IOException {
+		checkElementIndex(subpartitionIndex, numSubpartitions);
+		checkState(!finishedSubpartitions[subpartitionIndex], "subpartition already finished");
+
+		synchronized (lock) {
+			checkState(!isReleased, "partitioned file already released");
+
+			final int entrySize = alignedEntrySize(buffer);
+			if (!ensureSortBufferCapacity(entrySize)) {
+				writeRegion();
+			}
+
+			if (!ensureSortBufferCapacity(entrySize)) {
+				// the buffer does not fit into an empty sort buffer, so we write it as a region of its own
+				writeSingleBufferRegion(subpartitionIndex, buffer);
+			} else {
+				appendToSortBuffer(subpartitionIndex, buffer);
+			}
+		}
+
+		return BufferReaderWriterUtil.HEADER_LENGTH + buffer.getSize();
+	}
+
+	/**
+	 * Finishes the write phase of the given subpartition. After all subpartitions have been finished,
+	 * the remaining data is written and the {@link PartitionedFile} becomes available for reading.
+	 */
+	void finishSubpartition(int subpartitionIndex) throws IOException {
+		checkElementIndex(subpartitionIndex, numSubpartitions);
+		checkState(!finishedSubpartitions[subpartitionIndex], "subpartition already finished");
+
+		finishedSubpartitions[subpartitionIndex] = true;
+		if (++numFinishedSubpartitions < numSubpartitions) {
+			return;
+		}
+
+		synchronized (lock) {
+			checkState(!isReleased, "partitioned file already released");
+
+			writeRegion();
+			recycleSortBuffers(0);
+		}
+		dataFileChannel.close();
+		indexFileChannel.close();
+
+		partitionedFile = new PartitionedFile(dataFilePath, indexFilePath, numSubpartitions, numRegions, dataFileSize);
+	}
+
+	private static int alignedEntrySize(Buffer buffer) {
+		final int entrySize = NEXT_POINTER_LENGTH + BufferReaderWriterUtil.HEADER_LENGTH + buffer.getSize();
+		return (entrySize + ENTRY_ALIGNMENT - 1) / ENTRY_ALIGNMENT * ENTRY_ALIGNMENT;
+	}
+
+	/**
+	 * Makes sure that the given number of bytes can be appended to the sort buffer, by requesting further
+	 * network buffers if necessary and possible.
+	 *
+	 * @return true, if the bytes fit into the sort buffer, false otherwise
+	 */
+	@GuardedBy("lock")
+	private boolean ensureSortBufferCapacity(int numBytes) throws IOException {
+		while ((long) sortBuffers.size() * segmentSize - sortBufferPosition < numBytes) {
+			if (sortBuffers.size() >= getSortBufferLimit()) {
+				return false;
+			}
+
+			final Buffer buffer = bufferPoolSupplier.get().requestBuffer();
+			if (buffer == null) {
+				return false;
+			}
+
+			final MemorySegment segment = buffer.getMemorySegment();
+			if (segmentSize == 0) {
+				checkState(segment.size() % ENTRY_ALIGNMENT == 0, "Illegal network buffer size.");
+				segmentSize = segment.size();
+			}
+
+			final ByteBuffer memory = segment.wrap(0, segmentSize);
+			BufferReaderWriterUtil.configureByteBuffer(memory);
+			sortBuffers.add(buffer);
+			sortBufferMemory.add(memory);
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the number of network buffers that the sort buffer may hold. The producer holds up to one buffer
+	 * per subpartition and must always be able to request one more.
+	 */
+	private int getSortBufferLimit() {
+		final BufferPool bufferPool = checkNotNull(bufferPoolSupplier.get(), "buffer pool not set up");
+		return Math.min(maxSortBuffers, bufferPool.getNumBuffers() - numSubpartitions - 1);
+	}
+
+	@GuardedBy("lock")
+	private void appendToSortBuffer(int subpartitionIndex, Buffer buffer) {
+		final int entryOffset = sortBufferPosition;
+
+		final ByteBuffer header = headerAndBufferArray[0];
+		header.clear();
+		BufferReaderWriterUtil.writeHeader(buffer, header);
+		header.flip();
+
+		putInt(entryOffset, NO_NEXT_ENTRY);
+		copyToSortBuffer(header, entryOffset + NEXT_POINTER_LENGTH);
+		copyToSortBuffer(
+			buffer.getNioBufferReadable(),
+			entryOffset + NEXT_POINTER_LENGTH + BufferReaderWriterUtil.HEADER_LENGTH);
+		sortBufferPosition += alignedEntrySize(buffer);
+
+		if (lastEntryOffsets[subpartitionIndex] == NO_NEXT_ENTRY) {
+			firstEntryOffsets[subpartitionIndex] = entryOffset;
+		} else {
+			putInt(lastEntryOffsets[subpartitionIndex], entryOffset);
+		}
+		lastEntryOffsets[subpartitionIndex] = entryOffset;
+		numBuffersInSortBuffer[subpartitionIndex]++;
+	}
+
+	private void putInt(int offset, int value) {
+		sortBufferMemory.get(offset / segmentSize).putInt(offset % segmentSize, value);
+	}
+
+	private int getInt(int offset) {
+		return sortBufferMemory.get(offset / segmentSize).getInt(offset % segmentSize);
+	}
+
+	private void copyToSortBuffer(ByteBuffer source, int offset) {
+		while (source.hasRemaining()) {
+			final ByteBuffer target = sortBufferMemory.get(offset / segmentSize).duplicate();
+			target.position(offset % segmentSize);
+
+			final int numBytes = Math.min(source.remaining(), target.remaining());
+			final ByteBuffer chunk = source.slice();
+			chunk.limit(numBytes);
+			target.put(chunk);
+
+			source.position(source.position() + numBytes);
+			offset += numBytes;
+		}
+	}
+
+	/**
+	 * Writes the content of the sort buffer as one region, grouped by subpartition.
+	 */
+	@GuardedBy("lock")
+	private void writeRegion() throws IOException {
+		if (sortBufferPosition == 0) {
+			return;
+		}
+
+		indexBuffer.clear();
+		int batchSize = 0;
+
+		for (int subpartition = 0; subpartition < numSubpartitions; subpartition++) {
+			indexBuffer.putLong(dataFileSize);
+			indexBuffer.putInt(numBuffersInSortBuffer[subpartition]);
+
+			int entryOffset = firstEntryOffsets[subpartition];
+			while (entryOffset != NO_NEXT_ENTRY) {
+				final int nextEntryOffset = getInt(entryOffset);
+				final int headerOffset = entryOffset + NEXT_POINTER_LENGTH;
+				final int bufferSize = getInt(headerOffset + 4);
+
+				// the entry may span several network buffers
+				int offset = headerOffset;
+				final int end = headerOffset + BufferReaderWriterUtil.HEADER_LENGTH + bufferSize;
+				while (offset < end) {
+					final ByteBuffer chunk = sortBufferMemory.get(offset / segmentSize).duplicate();
+					chunk.position(offset % segmentSize);
+					chunk.limit(Math.min(segmentSize, chunk.position() + end - offset));
+					offset += chunk.remaining();
+
+					dataFileSize += chunk.remaining();
+					writeBatch[batchSize++] = chunk;
+					if (batchSize == writeBatch.length) {
+						writeFully(dataFileChannel, writeBatch, batchSize);
+						batchSize = 0;
+					}
+				}
+
+				entryOffset = nextEntryOffset;
+			}
+		}
+
+		writeFully(dataFileChannel, writeBatch, batchSize);
+		writeIndex();
+
+		sortBufferPosition = 0;
+		Arrays.fill(firstEntryOffsets, NO_NEXT_ENTRY);
+		Arrays.fill(lastEntryOffsets, NO_NEXT_ENTRY);
+		Arrays.fill(numBuffersInSortBuffer, 0);
+
+		// the pool may have shrunk since the buffers were requested
+		recycleSortBuffers(Math.max(getSortBufferLimit(), 0));
+	}
+
+	/**
+	 * Returns the network buffers of the sort buffer to the pool, except for the given number of buffers.
+	 * The sort buffer must be empty.
+	 */
+	@GuardedBy("lock")
+	private void recycleSortBuffers(int numBuffersToKeep) {
+		while (sortBuffers.size() > numBuffersToKeep) {
+			sortBufferMemory.remove(sortBuffers.size() - 1);
+			sortBuffers.remove(sortBuffers.size() - 1).recycleBuffer();
+		}
+	}
+
+	private void writeSingleBufferRegion(int subpartitionIndex, Buffer buffer) throws IOException {
+		indexBuffer.clear();
+		for (int subpartition = 0; subpartition < numSubpartitions; subpartition++) {
+			indexBuffer.putLong(dataFileSize);
+			indexBuffer.putInt(subpartition == subpartitionIndex ? 1 : 0);
+		}
+
+		dataFileSize += BufferReaderWriterUtil.writeToByteChannel(dataFileChannel, buffer, headerAndBufferArray);
+		writeIndex();
+	}
+
+	private void writeIndex() throws IOException {
+		indexBuffer.flip();
+		while (indexBuffer.hasRemaining()) {
+			indexFileChannel.write(indexBuffer);
+		}
+		numRegions++;
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer[] buffers, int numBuffers) throws IOException {
+		int first = 0;
+		while (first < numBuffers) {
+			channel.write(buffers, first, numBuffers - first);
+			while (first < numBuffers && !buffers[first].hasRemaining()) {
+				buffers[first++] = null;
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  reading and release
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Gets the finished file, or null, if not all subpartitions have been finished yet.
+	 */
+	@Nullable
+	PartitionedFile getPartitionedFile() {
+		return partitionedFile;
+	}
+
+	boolean isReleased() {
+		synchronized (lock) {
+			return isReleased;
+		}
+	}
+
+	/**
+	 * Releases the given subpartition. The files are closed and deleted once all subpartitions were released.
+	 */
+	void releaseSubpartition(int subpartitionIndex) throws IOException {
+		checkElementIndex(subpartitionIndex, numSubpartitions);
+
+		synchronized (lock) {
+			if (isReleased || ++numReleasedSubpartitions < numSubpartitions) {
+				return;
+			}
+
+			isReleased = true;
+			recycleSortBuffers(0);
+		}
+
+		IOUtils.closeQuietly(dataFileChannel);
+		IOUtils.closeQuietly(indexFileChannel);
+		Files.deleteIfExists(dataFilePath);
+		Files.deleteIfExists(indexFilePath);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Creates a writer for a partitioned file with the given number of subpartitions. The data is written to the
+	 * given path, the index to a file next to it.
+	 *
+	 * <p>The sort buffer consists of up to the given number of network buffers, which are requested from the
+	 * buffer pool of the result partition. The pool is supplied lazily, because it is only set up after the
+	 * subpartitions have been created.
+	 */
+	static PartitionedFileWriter create(
+			Path dataFilePath,
+			int numSubpartitions,
+			int maxSortBuffers,
+			Supplier<BufferPool> bufferPoolSupplier) throws IOException {
+
+		checkArgument(numSubpartitions > 0, "Illegal number of subpartitions.");
+		checkArgument(maxSortBuffers > 0, "Illegal number of sort buffers.");
+
+		final Path indexFilePath = dataFilePath.resolveSibling(
+			dataFilePath.getFileName() + PartitionedFile.INDEX_FILE_SUFFIX);
+
+		final FileChannel dataFileChannel = FileChannel.open(
+			dataFilePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		final FileChannel indexFileChannel;
+		try {
+			indexFileChannel = FileChannel.open(
+				indexFilePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+		}
+		catch (IOException e) {
+			IOUtils.closeQuietly(dataFileChannel);
+			Files.deleteIfExists(dataFilePath);
+			throw e;
+		}
+
+		return new PartitionedFileWriter(
+			dataFilePath,
+			indexFilePath,
+			dataFileChannel,
+			indexFileChannel,
+			numSubpartitions,
+			maxSortBuffers,
+			bufferPoolSupplier);
+	}
+}
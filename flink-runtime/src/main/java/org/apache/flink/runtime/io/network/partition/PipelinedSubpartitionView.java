@@ -41,6 +41,10 @@ public class PipelinedSubpartitionView implements ResultSubpartitionView {
 	/** Flag indicating whether this view has been released. */
 	private final AtomicBoolean isReleased;
 
+	/** Compresses the returned buffers, if compression was enabled by the consumer. */
+	@Nullable
+	private AdaptiveBufferCompressor bufferCompressor;
+
 	public PipelinedSubpartitionView(PipelinedSubpartition parent, BufferAvailabilityListener listener) {
 		this.parent = checkNotNull(parent);
 		this.availabilityListener = checkNotNull(listener);
@@ -50,7 +54,17 @@ public class PipelinedSubpartitionView implements ResultSubpartitionView {
 	@Nullable
 	@Override
 	public BufferAndBacklog getNextBuffer() {
-		return parent.pollBuffer();
+		BufferAndBacklog next = parent.pollBuffer();
+		if (next == null || bufferCompressor == null) {
+			return next;
+		}
+
+		// compress outside of the subpartition's lock to not block the producer
+		return new BufferAndBacklog(
+			bufferCompressor.compress(next.buffer()),
+			next.isDataAvailable(),
+			next.buffersInBacklog(),
+			next.isEventAvailable());
 	}
 
 	@Override
@@ -77,6 +91,19 @@ public class PipelinedSubpartitionView implements ResultSubpartitionView {
 		parent.resumeConsumption();
 	}
 
+	@Override
+	public void notifyNewBufferSize(int newBufferSize) {
+		parent.setBufferSize(newBufferSize);
+	}
+
+	@Override
+	public void enableCompression() {
+		ResultPartition partition = parent.parent;
+		if (partition.bufferCompressor != null && bufferCompressor == null) {
+			bufferCompressor = new AdaptiveBufferCompressor(partition.bufferCompressor, partition.getBufferPool());
+		}
+	}
+
 	@Override
 	public boolean isAvailable(int numCreditsAvailable) {
 		return parent.isAvailable(numCreditsAvailable);
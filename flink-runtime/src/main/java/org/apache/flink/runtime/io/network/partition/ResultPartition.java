@@ -104,7 +104,7 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 
 	private final FunctionWithException<BufferPoolOwner, BufferPool, IOException> bufferPoolFactory;
 
-	/** Used to compress buffer to reduce IO. */
+	/** Used to compress buffer to reduce IO, or the network traffic of pipelined partitions. */
 	@Nullable
 	protected final BufferCompressor bufferCompressor;
 
@@ -209,12 +209,39 @@ public class ResultPartition implements ResultPartitionWriter, BufferPoolOwner {
 	public BufferBuilder getBufferBuilder(int targetChannel) throws IOException, InterruptedException {
 		checkInProduceState();
 
-		return bufferPool.requestBufferBuilderBlocking(targetChannel);
+		BufferBuilder bufferBuilder = null;
+		if (partitionType.isHybrid()) {
+			bufferBuilder = bufferPool.requestBufferBuilder(targetChannel);
+			if (bufferBuilder == null) {
+				spillHybridSubpartitions();
+			}
+		}
+		if (bufferBuilder == null) {
+			bufferBuilder = bufferPool.requestBufferBuilderBlocking(targetChannel);
+		}
+		bufferBuilder.trim(subpartitions[targetChannel].getBufferSize());
+		return bufferBuilder;
+	}
+
+	/**
+	 * Hybrid subpartitions keep finished buffers in memory while their consumers keep up. If consumers
+	 * fall behind, the buffer pool may run empty, so the finished buffers of the subpartitions are
+	 * spilled before the producer waits for a buffer, until some buffers were recycled.
+	 */
+	private void spillHybridSubpartitions() throws IOException {
+		for (ResultSubpartition subpartition : subpartitions) {
+			if (subpartition.releaseMemory() > 0) {
+				return;
+			}
+		}
 	}
 
 	@Override
 	public BufferBuilder tryGetBufferBuilder(int targetChannel) throws IOException {
 		BufferBuilder bufferBuilder = bufferPool.requestBufferBuilder(targetChannel);
+		if (bufferBuilder != null) {
+			bufferBuilder.trim(subpartitions[targetChannel].getBufferSize());
+		}
 		return bufferBuilder;
 	}
 
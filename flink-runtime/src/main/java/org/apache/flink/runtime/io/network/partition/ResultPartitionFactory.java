@@ -62,10 +62,18 @@ public class ResultPartitionFactory {
 
 	private final boolean blockingShuffleCompressionEnabled;
 
+	private final boolean pipelinedShuffleCompressionEnabled;
+
 	private final String compressionCodec;
 
 	private final int maxBuffersPerChannel;
 
+	private final int sortShuffleMinParallelism;
+
+	private final int sortShuffleBufferSize;
+
+	private final boolean sslEnabled;
+
 	public ResultPartitionFactory(
 		ResultPartitionManager partitionManager,
 		FileChannelManager channelManager,
@@ -76,8 +84,12 @@ public class ResultPartitionFactory {
 		int networkBufferSize,
 		boolean forcePartitionReleaseOnConsumption,
 		boolean blockingShuffleCompressionEnabled,
+		boolean pipelinedShuffleCompressionEnabled,
 		String compressionCodec,
-		int maxBuffersPerChannel) {
+		int maxBuffersPerChannel,
+		int sortShuffleMinParallelism,
+		int sortShuffleBufferSize,
+		boolean sslEnabled) {
 
 		this.partitionManager = partitionManager;
 		this.channelManager = channelManager;
@@ -88,8 +100,12 @@ public class ResultPartitionFactory {
 		this.networkBufferSize = networkBufferSize;
 		this.forcePartitionReleaseOnConsumption = forcePartitionReleaseOnConsumption;
 		this.blockingShuffleCompressionEnabled = blockingShuffleCompressionEnabled;
+		this.pipelinedShuffleCompressionEnabled = pipelinedShuffleCompressionEnabled;
 		this.compressionCodec = compressionCodec;
 		this.maxBuffersPerChannel = maxBuffersPerChannel;
+		this.sortShuffleMinParallelism = sortShuffleMinParallelism;
+		this.sortShuffleBufferSize = sortShuffleBufferSize;
+		this.sslEnabled = sslEnabled;
 	}
 
 	public ResultPartition create(
@@ -116,12 +132,12 @@ public class ResultPartitionFactory {
 			int maxParallelism,
 			FunctionWithException<BufferPoolOwner, BufferPool, IOException> bufferPoolFactory) {
 		BufferCompressor bufferCompressor = null;
-		if (type.isBlocking() && blockingShuffleCompressionEnabled) {
+		if (type.isBlocking() ? blockingShuffleCompressionEnabled : pipelinedShuffleCompressionEnabled) {
 			bufferCompressor = new BufferCompressor(networkBufferSize, compressionCodec);
 		}
 
 		ResultSubpartition[] subpartitions = new ResultSubpartition[numberOfSubpartitions];
-		ResultPartition partition = forcePartitionReleaseOnConsumption || !type.isBlocking()
+		ResultPartition partition = forcePartitionReleaseOnConsumption || !type.isBlocking() || type.isHybrid()
 			? new ReleaseOnConsumptionResultPartition(
 				taskNameWithSubtaskAndId,
 				partitionIndex,
@@ -156,13 +172,26 @@ public class ResultPartitionFactory {
 			BoundedBlockingSubpartitionType blockingSubpartitionType,
 			ResultSubpartition[] subpartitions) {
 		// Create the subpartitions.
-		if (type.isBlocking()) {
+		if (type.isHybrid()) {
+			for (int i = 0; i < subpartitions.length; i++) {
+				subpartitions[i] = new HybridSubpartition(
+					i, partition, channelManager, Math.max(networkBuffersPerChannel, 1), networkBufferSize);
+			}
+		} else if (isSortMergePartition(type, subpartitions.length)) {
+			initializeSortMergeBlockingPartitions(
+				subpartitions,
+				partition,
+				networkBufferSize,
+				getNumberOfSortBuffers(),
+				channelManager);
+		} else if (type.isBlocking()) {
 			initializeBoundedBlockingPartitions(
 				subpartitions,
 				partition,
 				blockingSubpartitionType,
 				networkBufferSize,
-				channelManager);
+				channelManager,
+				sslEnabled);
 		} else {
 			for (int i = 0; i < subpartitions.length; i++) {
 				subpartitions[i] = new PipelinedSubpartition(i, partition);
@@ -175,12 +204,13 @@ public class ResultPartitionFactory {
 			ResultPartition parent,
 			BoundedBlockingSubpartitionType blockingSubpartitionType,
 			int networkBufferSize,
-			FileChannelManager channelManager) {
+			FileChannelManager channelManager,
+			boolean sslEnabled) {
 		int i = 0;
 		try {
 			for (i = 0; i < subpartitions.length; i++) {
 				final File spillFile = channelManager.createChannel().getPathFile();
-				subpartitions[i] = blockingSubpartitionType.create(i, parent, spillFile, networkBufferSize);
+				subpartitions[i] = blockingSubpartitionType.create(i, parent, spillFile, networkBufferSize, sslEnabled);
 			}
 		}
 		catch (IOException e) {
@@ -195,6 +225,40 @@ public class ResultPartitionFactory {
 		}
 	}
 
+	private static void initializeSortMergeBlockingPartitions(
+			ResultSubpartition[] subpartitions,
+			ResultPartition parent,
+			int networkBufferSize,
+			int numSortBuffers,
+			FileChannelManager channelManager) {
+		final PartitionedFileWriter fileWriter;
+		try {
+			final File dataFile = channelManager.createChannel().getPathFile();
+			fileWriter = PartitionedFileWriter.create(
+				dataFile.toPath(), subpartitions.length, numSortBuffers, parent::getBufferPool);
+		}
+		catch (IOException e) {
+			// see initializeBoundedBlockingPartitions() for why this is wrapped
+			throw new FlinkRuntimeException(e);
+		}
+
+		for (int i = 0; i < subpartitions.length; i++) {
+			subpartitions[i] = BoundedBlockingSubpartition.createWithPartitionedFile(
+				i, parent, fileWriter, networkBufferSize);
+		}
+	}
+
+	private boolean isSortMergePartition(ResultPartitionType type, int numberOfSubpartitions) {
+		return !type.isHybrid() && type.isBlocking() && numberOfSubpartitions >= sortShuffleMinParallelism;
+	}
+
+	/**
+	 * Gets the number of network buffers that the sort buffer of a sort-merge partition consists of.
+	 */
+	private int getNumberOfSortBuffers() {
+		return Math.max(2, sortShuffleBufferSize / networkBufferSize);
+	}
+
 	private static void releasePartitionsQuietly(ResultSubpartition[] partitions, int until) {
 		for (int i = 0; i < until; i++) {
 			final ResultSubpartition subpartition = partitions[i];
@@ -211,6 +275,9 @@ public class ResultPartitionFactory {
 	 *
 	 * <p>2. Increases one more buffer for every output LocalBufferPool to void performance regression if processing input is
 	 * based on at-least one buffer available on output side.
+	 *
+	 * <p>The sort buffer of a sort-merge partition consists of buffers of the same pool, which are added to the
+	 * minimum pool size, so that they are accounted for in the network memory.
 	 */
 	@VisibleForTesting
 	FunctionWithException<BufferPoolOwner, BufferPool, IOException> createBufferPoolFactory(
@@ -219,12 +286,14 @@ public class ResultPartitionFactory {
 		return bufferPoolOwner -> {
 			int maxNumberOfMemorySegments = type.isBounded() ?
 				numberOfSubpartitions * networkBuffersPerChannel + floatingNetworkBuffersPerGate : Integer.MAX_VALUE;
+			int numberOfSortBuffers = isSortMergePartition(type, numberOfSubpartitions) ? getNumberOfSortBuffers() : 0;
 			// If the partition type is back pressure-free, we register with the buffer pool for
-			// callbacks to release memory.
+			// callbacks to release memory. Hybrid partitions release memory in the producer thread
+			// before requesting buffers instead.
 			return bufferPoolFactory.createBufferPool(
-				numberOfSubpartitions + 1,
+				numberOfSubpartitions + 1 + numberOfSortBuffers,
 				maxNumberOfMemorySegments,
-				type.hasBackPressure() ? null : bufferPoolOwner,
+				type.hasBackPressure() || type.isHybrid() ? null : bufferPoolOwner,
 				numberOfSubpartitions,
 				maxBuffersPerChannel);
 		};
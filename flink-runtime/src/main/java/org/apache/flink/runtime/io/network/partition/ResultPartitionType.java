@@ -34,7 +34,7 @@ public enum ResultPartitionType {
 	 * {@link #PIPELINED} partitions), but only released through the scheduler, when it determines
 	 * that the partition is no longer needed.
 	 */
-	BLOCKING(false, false, false, false),
+	BLOCKING(false, false, false, false, false),
 
 	/**
 	 * BLOCKING_PERSISTENT partitions are similar to {@link #BLOCKING} partitions, but have
@@ -47,7 +47,7 @@ public enum ResultPartitionType {
 	 * scenarios, like when the TaskManager exits or when the TaskManager looses connection
 	 * to JobManager / ResourceManager for too long.
 	 */
-	BLOCKING_PERSISTENT(false, false, false, true),
+	BLOCKING_PERSISTENT(false, false, false, true, false),
 
 	/**
 	 * A pipelined streaming data exchange. This is applicable to both bounded and unbounded streams.
@@ -58,7 +58,7 @@ public enum ResultPartitionType {
 	 * <p>This result partition type may keep an arbitrary amount of data in-flight, in contrast to
 	 * the {@link #PIPELINED_BOUNDED} variant.
 	 */
-	PIPELINED(true, true, false, false),
+	PIPELINED(true, true, false, false, false),
 
 	/**
 	 * Pipelined partitions with a bounded (local) buffer pool.
@@ -71,7 +71,22 @@ public enum ResultPartitionType {
 	 * <p>For batch jobs, it will be best to keep this unlimited ({@link #PIPELINED}) since there are
 	 * no checkpoint barriers.
 	 */
-	PIPELINED_BOUNDED(true, true, true, false);
+	PIPELINED_BOUNDED(true, true, true, false, false),
+
+	/**
+	 * Hybrid partitions stream the data to a consumer that is running and keeping up, and spill
+	 * it to local files when there is no consumer yet or when the consumer falls behind. This is an
+	 * option that is only applicable to bounded streams.
+	 *
+	 * <p>Like {@link #BLOCKING} partitions, hybrid partitions do not produce back pressure, so
+	 * producers and consumers do not need to be scheduled at the same time and are placed in
+	 * different pipelined regions. Unlike them, the consumers may already be scheduled once the
+	 * producer has produced data, as soon as resources allow.
+	 *
+	 * <p>Hybrid partitions can be consumed only once and are automatically disposed when they
+	 * have been consumed.
+	 */
+	HYBRID(false, false, true, false, true);
 
 	/** Can the partition be consumed while being produced? */
 	private final boolean isPipelined;
@@ -85,14 +100,23 @@ public enum ResultPartitionType {
 	/** This partition will not be released after consuming if 'isPersistent' is true. */
 	private final boolean isPersistent;
 
+	/** Can the partition be consumed while being produced, without requiring back pressure? */
+	private final boolean isHybrid;
+
 	/**
 	 * Specifies the behaviour of an intermediate result partition at runtime.
 	 */
-	ResultPartitionType(boolean isPipelined, boolean hasBackPressure, boolean isBounded, boolean isPersistent) {
+	ResultPartitionType(
+			boolean isPipelined,
+			boolean hasBackPressure,
+			boolean isBounded,
+			boolean isPersistent,
+			boolean isHybrid) {
 		this.isPipelined = isPipelined;
 		this.hasBackPressure = hasBackPressure;
 		this.isBounded = isBounded;
 		this.isPersistent = isPersistent;
+		this.isHybrid = isHybrid;
 	}
 
 	public boolean hasBackPressure() {
@@ -119,4 +143,14 @@ public enum ResultPartitionType {
 	public boolean isPersistent() {
 		return isPersistent;
 	}
+
+	/**
+	 * Whether this partition can be consumed while being produced, even though it is treated like
+	 * a blocking partition for the purpose of building pipelined regions.
+	 *
+	 * @return <tt>true</tt> if the consumers may be scheduled once the partition has data
+	 */
+	public boolean isHybrid() {
+		return isHybrid;
+	}
 }
@@ -27,6 +27,7 @@ import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
 import java.io.IOException;
 import java.util.List;
 
+import static org.apache.flink.util.Preconditions.checkArgument;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
 /**
@@ -40,6 +41,9 @@ public abstract class ResultSubpartition {
 	/** The parent partition this subpartition belongs to. */
 	protected final ResultPartition parent;
 
+	/** The buffer size announced by the consumer, which limits the size of the produced buffers. */
+	private volatile int bufferSize = Integer.MAX_VALUE;
+
 	// - Statistics ----------------------------------------------------------
 
 	public ResultSubpartition(int index, ResultPartition parent) {
@@ -70,6 +74,23 @@ public abstract class ResultSubpartition {
 		return subpartitionInfo.getSubPartitionIdx();
 	}
 
+	/**
+	 * Returns the size of the buffers the consumer wants to receive, or {@link Integer#MAX_VALUE}
+	 * if the consumer did not announce a buffer size.
+	 */
+	public int getBufferSize() {
+		return bufferSize;
+	}
+
+	/**
+	 * Sets the size of the buffers the consumer wants to receive. It applies to the buffers
+	 * requested for this subpartition afterwards.
+	 */
+	public void setBufferSize(int bufferSize) {
+		checkArgument(bufferSize > 0, "The buffer size must be positive.");
+		this.bufferSize = bufferSize;
+	}
+
 	/**
 	 * Notifies the parent partition about a consumed {@link ResultSubpartitionView}.
 	 */
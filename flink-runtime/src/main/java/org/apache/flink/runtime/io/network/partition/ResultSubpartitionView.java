@@ -52,6 +52,19 @@ public interface ResultSubpartitionView {
 
 	void resumeConsumption();
 
+	/**
+	 * Notifies the size of the buffers the consumer wants to receive, as calculated by its buffer
+	 * debloating. Views that do not produce buffers on demand may ignore it.
+	 */
+	void notifyNewBufferSize(int newBufferSize);
+
+	/**
+	 * Enables the compression of the data buffers returned by {@link #getNextBuffer()}, if the
+	 * partition is configured for it. Only consumers that send the buffers over the network enable
+	 * it, local consumers read the buffers uncompressed.
+	 */
+	void enableCompression();
+
 	Throwable getFailureCause();
 
 	boolean isAvailable(int numCreditsAvailable);
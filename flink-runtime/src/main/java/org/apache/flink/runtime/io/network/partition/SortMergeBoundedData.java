@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+import static org.apache.flink.util.Preconditions.checkState;
+
+/**
+ * An implementation of {@link BoundedData} that stores the data of one subpartition in a
+ * {@link PartitionedFile} shared by all subpartitions of the result partition.
+ *
+ * <p>Writes go through the shared {@link PartitionedFileWriter}, which sorts the buffers by subpartition
+ * and writes them region by region. Readers read the regions of this subpartition sequentially.
+ */
+final class SortMergeBoundedData implements BoundedData {
+
+	private final PartitionedFileWriter fileWriter;
+
+	private final int subpartitionIndex;
+
+	private final int readBufferSize;
+
+	private long size;
+
+	private boolean isWriteFinished;
+
+	private boolean isClosed;
+
+	SortMergeBoundedData(PartitionedFileWriter fileWriter, int subpartitionIndex, int readBufferSize) {
+		this.fileWriter = checkNotNull(fileWriter);
+		this.subpartitionIndex = subpartitionIndex;
+		this.readBufferSize = readBufferSize;
+	}
+
+	@Override
+	public void writeBuffer(Buffer buffer) throws IOException {
+		checkState(!isWriteFinished, "write phase already finished");
+		size += fileWriter.writeBuffer(subpartitionIndex, buffer);
+	}
+
+	@Override
+	public void finishWrite() throws IOException {
+		checkState(!isWriteFinished, "write phase already finished");
+		isWriteFinished = true;
+		fileWriter.finishSubpartition(subpartitionIndex);
+	}
+
+	@Override
+	public Reader createReader(ResultSubpartitionView subpartitionView) throws IOException {
+		final PartitionedFile partitionedFile = fileWriter.getPartitionedFile();
+		checkState(partitionedFile != null, "write phase of the partitioned file not yet finished");
+		checkState(!fileWriter.isReleased(), "partitioned file already released");
+
+		return partitionedFile.createReader(subpartitionIndex, readBufferSize, subpartitionView);
+	}
+
+	@Override
+	public long getSize() {
+		return size;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!isClosed) {
+			isClosed = true;
+			fileWriter.releaseSubpartition(subpartitionIndex);
+		}
+	}
+}
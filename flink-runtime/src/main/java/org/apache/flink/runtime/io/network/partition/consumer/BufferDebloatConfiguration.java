@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
+import org.apache.flink.runtime.util.ConfigurationParserUtils;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Configuration of the {@link BufferDebloater buffer debloating} of the input gates.
+ */
+public final class BufferDebloatConfiguration {
+
+	private final boolean enabled;
+
+	/** The target time to consume the in-flight data of an input gate. */
+	private final Duration targetTotalTime;
+
+	/** The minimum period between two recalculations of the buffer size. */
+	private final Duration updatePeriod;
+
+	private final int minBufferSize;
+
+	/** The minimum relative change of the buffer size to be announced. */
+	private final int thresholdPercentages;
+
+	public BufferDebloatConfiguration(
+			boolean enabled,
+			Duration targetTotalTime,
+			Duration updatePeriod,
+			int minBufferSize,
+			int thresholdPercentages) {
+
+		this.enabled = enabled;
+		this.targetTotalTime = checkNotNull(targetTotalTime);
+		this.updatePeriod = checkNotNull(updatePeriod);
+		this.minBufferSize = minBufferSize;
+		this.thresholdPercentages = thresholdPercentages;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public Duration getTargetTotalTime() {
+		return targetTotalTime;
+	}
+
+	public Duration getUpdatePeriod() {
+		return updatePeriod;
+	}
+
+	public int getMinBufferSize() {
+		return minBufferSize;
+	}
+
+	public int getThresholdPercentages() {
+		return thresholdPercentages;
+	}
+
+	/**
+	 * Extracts the buffer debloating parameters from the configuration and sanity checks them.
+	 */
+	public static BufferDebloatConfiguration fromConfiguration(Configuration config) {
+		final Duration targetTotalTime = config.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_TARGET);
+		ConfigurationParserUtils.checkConfigParameter(
+			!targetTotalTime.isNegative() && !targetTotalTime.isZero(),
+			targetTotalTime,
+			NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_TARGET.key(),
+			"The target time must be positive.");
+
+		final Duration updatePeriod = config.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_PERIOD);
+		ConfigurationParserUtils.checkConfigParameter(
+			!updatePeriod.isNegative() && !updatePeriod.isZero(),
+			updatePeriod,
+			NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_PERIOD.key(),
+			"The update period must be positive.");
+
+		final long minBufferSize = config.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_MIN_BUFFER_SIZE).getBytes();
+		ConfigurationParserUtils.checkConfigParameter(
+			minBufferSize > 0 && minBufferSize <= Integer.MAX_VALUE,
+			minBufferSize,
+			NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_MIN_BUFFER_SIZE.key(),
+			"The minimum buffer size must be positive and smaller than 2 GB.");
+
+		final int thresholdPercentages = config.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_THRESHOLD_PERCENTAGES);
+		ConfigurationParserUtils.checkConfigParameter(
+			thresholdPercentages >= 0,
+			thresholdPercentages,
+			NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_THRESHOLD_PERCENTAGES.key(),
+			"The threshold must not be negative.");
+
+		return new BufferDebloatConfiguration(
+			config.get(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_ENABLED),
+			targetTotalTime,
+			updatePeriod,
+			(int) minBufferSize,
+			thresholdPercentages);
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+		BufferDebloatConfiguration that = (BufferDebloatConfiguration) o;
+		return enabled == that.enabled &&
+			minBufferSize == that.minBufferSize &&
+			thresholdPercentages == that.thresholdPercentages &&
+			targetTotalTime.equals(that.targetTotalTime) &&
+			updatePeriod.equals(that.updatePeriod);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(enabled, targetTotalTime, updatePeriod, minBufferSize, thresholdPercentages);
+	}
+
+	@Override
+	public String toString() {
+		return "BufferDebloatConfiguration{" +
+			"enabled=" + enabled +
+			", targetTotalTime=" + targetTotalTime +
+			", updatePeriod=" + updatePeriod +
+			", minBufferSize=" + minBufferSize +
+			", thresholdPercentages=" + thresholdPercentages +
+			'}';
+	}
+}
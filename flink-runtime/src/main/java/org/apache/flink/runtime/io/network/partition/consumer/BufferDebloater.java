@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import org.apache.flink.runtime.util.clock.Clock;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Calculates the size of the buffers an input gate announces to its producers, so that the data in
+ * flight can be consumed within a target time.
+ *
+ * <p>The debloater measures the throughput of the gate, i.e. the number of consumed bytes per second
+ * while the gate was not idle (waiting for data). After each update period, it derives the amount of
+ * data that can be consumed within the target time and divides it by the number of buffers in use by
+ * the input channels. The result is bounded by the minimum buffer size and the memory segment size.
+ * It is only announced if it differs from the last announced size by more than the configured
+ * threshold, to not flood the producers with announcements.
+ *
+ * <p>If even buffers of the minimum size hold more data than desired, the number of buffers is
+ * limited as well, see {@link #getDesiredNumberOfBuffers()}.
+ *
+ * <p>The debloater is only accessed by the task thread consuming the gate.
+ */
+@NotThreadSafe
+class BufferDebloater {
+
+	/** Weight of the latest throughput measurement in the exponential moving average. */
+	private static final double THROUGHPUT_SMOOTHING_FACTOR = 0.5;
+
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private final Clock clock;
+
+	private final long targetTotalTimeNanos;
+
+	private final long updatePeriodNanos;
+
+	private final int minBufferSize;
+
+	private final int maxBufferSize;
+
+	private final int thresholdPercentages;
+
+	/** The number of bytes consumed since the last update. */
+	private long consumedBytes;
+
+	/** The accumulated idle time since the last update, excluding the current idle phase. */
+	private long idleTimeNanos;
+
+	/** The start of the current idle phase, or -1 if the gate is not idle. */
+	private long idleStartNanos = -1;
+
+	private long lastUpdateNanos;
+
+	/** The smoothed throughput in bytes per second, or -1 if not measured yet. */
+	private long throughput = -1;
+
+	/** The buffer size last announced to the producers. */
+	private int lastBufferSize;
+
+	private int desiredNumberOfBuffers = Integer.MAX_VALUE;
+
+	BufferDebloater(BufferDebloatConfiguration configuration, int maxBufferSize, Clock clock) {
+		checkArgument(configuration.getMinBufferSize() <= maxBufferSize,
+			"The minimum buffer size must not be larger than the memory segment size.");
+
+		this.clock = checkNotNull(clock);
+		this.targetTotalTimeNanos = configuration.getTargetTotalTime().toNanos();
+		this.updatePeriodNanos = configuration.getUpdatePeriod().toNanos();
+		this.minBufferSize = configuration.getMinBufferSize();
+		this.maxBufferSize = maxBufferSize;
+		this.thresholdPercentages = configuration.getThresholdPercentages();
+		this.lastBufferSize = maxBufferSize;
+		this.lastUpdateNanos = clock.relativeTimeNanos();
+	}
+
+	void onBufferConsumed(int size) {
+		markActive();
+		consumedBytes += size;
+	}
+
+	/**
+	 * Marks the start of an idle phase, in which the gate waits for data. The time spent idle does
+	 * not count towards the throughput measurement.
+	 */
+	void markIdle() {
+		if (idleStartNanos < 0) {
+			idleStartNanos = clock.relativeTimeNanos();
+		}
+	}
+
+	private void markActive() {
+		if (idleStartNanos >= 0) {
+			idleTimeNanos += clock.relativeTimeNanos() - idleStartNanos;
+			idleStartNanos = -1;
+		}
+	}
+
+	boolean shouldRecalculate() {
+		return clock.relativeTimeNanos() - lastUpdateNanos >= updatePeriodNanos;
+	}
+
+	/**
+	 * Updates the throughput measurement and recalculates the buffer size.
+	 *
+	 * @param totalBuffersInUse the number of buffers the input channels use at their current demand
+	 * @return the new buffer size, if it should be announced to the producers
+	 */
+	OptionalInt recalculateBufferSize(int totalBuffersInUse) {
+		final long now = clock.relativeTimeNanos();
+		long idleTime = idleTimeNanos;
+		if (idleStartNanos >= 0) {
+			idleTime += now - idleStartNanos;
+			idleStartNanos = now;
+		}
+		final long activeTime = now - lastUpdateNanos - idleTime;
+		final long bytes = consumedBytes;
+
+		lastUpdateNanos = now;
+		idleTimeNanos = 0;
+		consumedBytes = 0;
+
+		if (activeTime <= 0) {
+			// the gate was idle the whole time, there is nothing to learn about its throughput
+			return OptionalInt.empty();
+		}
+
+		final long currentThroughput = (long) ((double) bytes * NANOS_PER_SECOND / activeTime);
+		throughput = throughput < 0
+			? currentThroughput
+			: (long) (THROUGHPUT_SMOOTHING_FACTOR * currentThroughput + (1 - THROUGHPUT_SMOOTHING_FACTOR) * throughput);
+
+		final long desiredTotalBytes = (long) ((double) throughput * targetTotalTimeNanos / NANOS_PER_SECOND);
+		final long desiredBufferSize = desiredTotalBytes / Math.max(1, totalBuffersInUse);
+		final int newBufferSize = (int) Math.max(minBufferSize, Math.min(maxBufferSize, desiredBufferSize));
+
+		desiredNumberOfBuffers = desiredBufferSize < minBufferSize
+			? (int) Math.min(Integer.MAX_VALUE, desiredTotalBytes / minBufferSize)
+			: Integer.MAX_VALUE;
+
+		final long difference = Math.abs((long) newBufferSize - lastBufferSize);
+		if (difference == 0 || difference * 100 < (long) lastBufferSize * thresholdPercentages) {
+			return OptionalInt.empty();
+		}
+
+		lastBufferSize = newBufferSize;
+		return OptionalInt.of(newBufferSize);
+	}
+
+	/**
+	 * Returns the buffer size last announced to the producers.
+	 */
+	int getBufferSize() {
+		return lastBufferSize;
+	}
+
+	/**
+	 * Returns the total number of buffers the channels of the gate should use at most, or
+	 * {@link Integer#MAX_VALUE} if the number does not need to be limited, because the data in flight
+	 * is already bounded by the buffer size.
+	 */
+	int getDesiredNumberOfBuffers() {
+		return desiredNumberOfBuffers;
+	}
+
+	/**
+	 * Returns the smoothed throughput in bytes per second, or -1 if not measured yet.
+	 */
+	long getThroughput() {
+		return throughput;
+	}
+}
@@ -188,6 +188,25 @@ public abstract class InputChannel {
 	 */
 	abstract void sendTaskEvent(TaskEvent event) throws IOException;
 
+	// ------------------------------------------------------------------------
+	// Buffer debloating
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Announces the buffer size calculated by the {@link BufferDebloater} of the input gate to the
+	 * producer. Channels without a connected producer ignore the announcement.
+	 */
+	void announceBufferSize(int newBufferSize) {
+	}
+
+	/**
+	 * Returns the number of buffers this channel uses at its current demand, including the
+	 * buffers queued for processing.
+	 */
+	int getBuffersInUseCount() {
+		return Math.max(1, unsynchronizedGetNumberOfQueuedBuffers());
+	}
+
 	// ------------------------------------------------------------------------
 	// Life cycle
 	// ------------------------------------------------------------------------
@@ -18,12 +18,16 @@
 
 package org.apache.flink.runtime.io.network.partition.consumer;
 
+import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.event.TaskEvent;
 import org.apache.flink.runtime.execution.CancelTaskException;
 import org.apache.flink.runtime.io.network.TaskEventPublisher;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.FileRegionBuffer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
 import org.apache.flink.runtime.io.network.metrics.InputChannelMetrics;
 import org.apache.flink.runtime.io.network.partition.BufferAvailabilityListener;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
@@ -196,9 +200,41 @@ public class LocalInputChannel extends InputChannel implements BufferAvailabilit
 			}
 		}
 
-		numBytesIn.inc(next.buffer().getSize());
+		Buffer buffer = next.buffer();
+		if (buffer instanceof FileRegionBuffer) {
+			buffer = readFileRegion((FileRegionBuffer) buffer);
+		}
+
+		numBytesIn.inc(buffer.getSize());
 		numBuffersIn.inc();
-		return Optional.of(new BufferAndAvailability(next.buffer(), next.isDataAvailable(), next.buffersInBacklog()));
+		return Optional.of(new BufferAndAvailability(buffer, next.isDataAvailable(), next.buffersInBacklog()));
+	}
+
+	/**
+	 * File region buffers are meant to be transferred by Netty directly from the file to the socket.
+	 * Local consumers need the data in memory, so we read it into a buffer of the input gate's pool,
+	 * which returns to the pool when it is recycled. If the pool has no buffer available right now, we
+	 * read into an unpooled segment instead of blocking the task.
+	 */
+	private Buffer readFileRegion(FileRegionBuffer fileRegionBuffer) throws IOException {
+		final BufferPool bufferPool = inputGate.getBufferPool();
+		final Buffer target = bufferPool == null ? null : bufferPool.requestBuffer();
+
+		if (target != null && target.getMemorySegment().size() >= fileRegionBuffer.getSize()) {
+			try {
+				return fileRegionBuffer.readInto(target.getMemorySegment(), target.getRecycler());
+			} catch (Throwable t) {
+				target.recycleBuffer();
+				throw t;
+			}
+		}
+
+		if (target != null) {
+			target.recycleBuffer();
+		}
+		return fileRegionBuffer.readInto(
+			MemorySegmentFactory.allocateUnpooledSegment(fileRegionBuffer.getSize()),
+			FreeingBufferRecycler.INSTANCE);
 	}
 
 	@Override
@@ -228,6 +264,15 @@ public class LocalInputChannel extends InputChannel implements BufferAvailabilit
 		}
 	}
 
+	@Override
+	void announceBufferSize(int newBufferSize) {
+		ResultSubpartitionView view = subpartitionView;
+
+		if (view != null) {
+			view.notifyNewBufferSize(newBufferSize);
+		}
+	}
+
 	// ------------------------------------------------------------------------
 	// Task events
 	// ------------------------------------------------------------------------
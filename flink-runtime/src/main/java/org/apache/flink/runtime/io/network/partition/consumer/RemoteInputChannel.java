@@ -27,6 +27,7 @@ import org.apache.flink.runtime.io.network.ConnectionManager;
 import org.apache.flink.runtime.io.network.PartitionRequestClient;
 import org.apache.flink.runtime.io.network.api.CheckpointBarrier;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
 import org.apache.flink.runtime.io.network.buffer.BufferListener;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
 import org.apache.flink.runtime.io.network.buffer.BufferReceivedListener;
@@ -103,6 +104,15 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 	@GuardedBy("bufferQueue")
 	private int numRequiredBuffers;
 
+	/** The latest backlog announced by the sender. */
+	private volatile int senderBacklog;
+
+	/**
+	 * The maximum number of floating buffers this channel requests for the sender's backlog. It is
+	 * lowered by the buffer debloating, if even buffers of minimum size would hold too much data.
+	 */
+	private volatile int maxFloatingBuffers = Integer.MAX_VALUE;
+
 	/** The tag indicates whether this channel is waiting for additional floating buffers from the buffer pool. */
 	@GuardedBy("bufferQueue")
 	private boolean isWaitingForFloatingBuffers;
@@ -361,7 +371,7 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 	}
 
 	public int getSenderBacklog() {
-		return numRequiredBuffers - initialCredit;
+		return senderBacklog;
 	}
 
 	@VisibleForTesting
@@ -428,6 +438,32 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 		// Nothing to do actually.
 	}
 
+	// ------------------------------------------------------------------------
+	// Buffer debloating
+	// ------------------------------------------------------------------------
+
+	@Override
+	void announceBufferSize(int newBufferSize) {
+		if (partitionRequestClient != null && !isReleased.get()) {
+			partitionRequestClient.notifyNewBufferSize(this, newBufferSize);
+		}
+	}
+
+	@Override
+	int getBuffersInUseCount() {
+		// the unlimited demand, so that limiting the floating buffers does not feed back into the buffer size
+		return Math.max(1, unsynchronizedGetNumberOfQueuedBuffers() + initialCredit + senderBacklog);
+	}
+
+	/**
+	 * Limits the number of floating buffers requested for the sender's backlog. Takes effect with the
+	 * next backlog announcement of the sender.
+	 */
+	void setMaxFloatingBuffers(int maxFloatingBuffers) {
+		checkArgument(maxFloatingBuffers >= 0, "The number of floating buffers must not be negative.");
+		this.maxFloatingBuffers = maxFloatingBuffers;
+	}
+
 	@Override
 	public void resumeConsumption() {
 		checkState(!isReleased.get(), "Channel released.");
@@ -531,7 +567,8 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 				return;
 			}
 
-			numRequiredBuffers = backlog + initialCredit;
+			senderBacklog = backlog;
+			numRequiredBuffers = Math.min(backlog, maxFloatingBuffers) + initialCredit;
 			while (bufferQueue.getAvailableBufferSize() < numRequiredBuffers && !isWaitingForFloatingBuffers) {
 				Buffer buffer = inputGate.getBufferPool().requestBuffer();
 				if (buffer != null) {
@@ -559,6 +596,10 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 				return;
 			}
 
+			if (buffer.isCompressed() && inputGate.getConsumedPartitionType().isPipelined()) {
+				buffer = decompress(buffer);
+			}
+
 			final boolean wasEmpty;
 			final CheckpointBarrier notifyReceivedBarrier;
 			final Buffer notifyReceivedBuffer;
@@ -606,6 +647,20 @@ public class RemoteInputChannel extends InputChannel implements BufferRecycler,
 		}
 	}
 
+	/**
+	 * Decompresses a buffer of a pipelined partition in place when it is received, so that the task
+	 * thread does not have to, and unaligned checkpoints persist the uncompressed data. Buffers of
+	 * blocking partitions are still decompressed by the input gate, which also consumes compressed
+	 * buffers of local channels.
+	 */
+	private Buffer decompress(Buffer buffer) {
+		BufferDecompressor decompressor = checkNotNull(inputGate.getBufferDecompressor(), "Buffer decompressor not set.");
+		// the decompressor is shared by all remote channels of the gate
+		synchronized (decompressor) {
+			return decompressor.decompressToOriginalBuffer(buffer);
+		}
+	}
+
 	public void onEmptyBuffer(int sequenceNumber, int backlog) throws IOException {
 		boolean success = false;
 
@@ -55,6 +55,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.Timer;
 import java.util.concurrent.CompletableFuture;
 
@@ -184,6 +185,10 @@ public class SingleInputGate extends IndexedInputGate {
 	@Nullable
 	private final BufferDecompressor bufferDecompressor;
 
+	/** Adjusts the buffer size to the throughput of this gate, if buffer debloating is enabled. */
+	@Nullable
+	private final BufferDebloater bufferDebloater;
+
 	public SingleInputGate(
 		String owningTaskName,
 		int gateIndex,
@@ -193,7 +198,8 @@ public class SingleInputGate extends IndexedInputGate {
 		int numberOfInputChannels,
 		PartitionProducerStateProvider partitionProducerStateProvider,
 		SupplierWithException<BufferPool, IOException> bufferPoolFactory,
-		@Nullable BufferDecompressor bufferDecompressor) {
+		@Nullable BufferDecompressor bufferDecompressor,
+		@Nullable BufferDebloater bufferDebloater) {
 
 		this.owningTaskName = checkNotNull(owningTaskName);
 		Preconditions.checkArgument(0 <= gateIndex, "The gate index must be positive.");
@@ -217,6 +223,7 @@ public class SingleInputGate extends IndexedInputGate {
 		this.partitionProducerStateProvider = checkNotNull(partitionProducerStateProvider);
 
 		this.bufferDecompressor = bufferDecompressor;
+		this.bufferDebloater = bufferDebloater;
 
 		this.closeFuture = new CompletableFuture<>();
 	}
@@ -294,6 +301,11 @@ public class SingleInputGate extends IndexedInputGate {
 		return consumedPartitionType;
 	}
 
+	@Nullable
+	BufferDecompressor getBufferDecompressor() {
+		return bufferDecompressor;
+	}
+
 	BufferProvider getBufferProvider() {
 		return bufferPool;
 	}
@@ -320,6 +332,14 @@ public class SingleInputGate extends IndexedInputGate {
 		return 0;
 	}
 
+	/**
+	 * Returns the buffer size this gate currently announces to its producers, or -1 if buffer
+	 * debloating is disabled.
+	 */
+	public int getDebloatedBufferSize() {
+		return bufferDebloater != null ? bufferDebloater.getBufferSize() : -1;
+	}
+
 	public CompletableFuture<Void> getCloseFuture() {
 		return closeFuture;
 	}
@@ -531,6 +551,9 @@ public class SingleInputGate extends IndexedInputGate {
 		}
 
 		InputWithData<InputChannel, BufferAndAvailability> inputWithData = next.get();
+		if (bufferDebloater != null) {
+			debloatBuffers(inputWithData.data.buffer().getSize());
+		}
 		return Optional.of(transformToBufferOrEvent(
 			inputWithData.data.buffer(),
 			inputWithData.moreAvailable,
@@ -570,6 +593,41 @@ public class SingleInputGate extends IndexedInputGate {
 		}
 	}
 
+	/**
+	 * Feeds the consumed bytes into the {@link BufferDebloater} and, once per update period, announces
+	 * the recalculated buffer size to the producers and limits the floating buffers of the remote
+	 * channels, if even buffers of minimum size would hold too much data.
+	 */
+	private void debloatBuffers(int consumedBytes) {
+		bufferDebloater.onBufferConsumed(consumedBytes);
+		if (!bufferDebloater.shouldRecalculate()) {
+			return;
+		}
+
+		// like for resumeConsumption(), the channels are accessed without the request lock
+		int totalBuffersInUse = 0;
+		for (InputChannel channel : channels) {
+			totalBuffersInUse += channel.getBuffersInUseCount();
+		}
+
+		OptionalInt newBufferSize = bufferDebloater.recalculateBufferSize(totalBuffersInUse);
+		if (newBufferSize.isPresent()) {
+			for (InputChannel channel : channels) {
+				channel.announceBufferSize(newBufferSize.getAsInt());
+			}
+		}
+
+		int desiredNumberOfBuffers = bufferDebloater.getDesiredNumberOfBuffers();
+		for (InputChannel channel : channels) {
+			if (channel instanceof RemoteInputChannel) {
+				RemoteInputChannel remoteChannel = (RemoteInputChannel) channel;
+				remoteChannel.setMaxFloatingBuffers(desiredNumberOfBuffers == Integer.MAX_VALUE
+					? Integer.MAX_VALUE
+					: Math.max(0, desiredNumberOfBuffers / numberOfInputChannels - remoteChannel.getInitialCredit()));
+			}
+		}
+	}
+
 	private BufferOrEvent transformToBufferOrEvent(
 			Buffer buffer,
 			boolean moreAvailable,
@@ -715,6 +773,10 @@ public class SingleInputGate extends IndexedInputGate {
 					throw new IllegalStateException("Released");
 				}
 
+				if (bufferDebloater != null) {
+					bufferDebloater.markIdle();
+				}
+
 				if (blocking) {
 					inputChannelsWithData.wait();
 				}
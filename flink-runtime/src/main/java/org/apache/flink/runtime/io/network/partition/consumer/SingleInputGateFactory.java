@@ -36,6 +36,7 @@ import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.shuffle.NettyShuffleDescriptor;
 import org.apache.flink.runtime.shuffle.ShuffleDescriptor;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
+import org.apache.flink.runtime.util.clock.SystemClock;
 import org.apache.flink.util.function.SupplierWithException;
 
 import org.slf4j.Logger;
@@ -78,10 +79,14 @@ public class SingleInputGateFactory {
 
 	private final boolean blockingShuffleCompressionEnabled;
 
+	private final boolean pipelinedShuffleCompressionEnabled;
+
 	private final String compressionCodec;
 
 	private final int networkBufferSize;
 
+	private final BufferDebloatConfiguration bufferDebloatConfiguration;
+
 	public SingleInputGateFactory(
 			@Nonnull ResourceID taskExecutorResourceId,
 			@Nonnull NettyShuffleEnvironmentConfiguration networkConfig,
@@ -95,8 +100,10 @@ public class SingleInputGateFactory {
 		this.networkBuffersPerChannel = networkConfig.networkBuffersPerChannel();
 		this.floatingNetworkBuffersPerGate = networkConfig.floatingNetworkBuffersPerGate();
 		this.blockingShuffleCompressionEnabled = networkConfig.isBlockingShuffleCompressionEnabled();
+		this.pipelinedShuffleCompressionEnabled = networkConfig.isPipelinedShuffleCompressionEnabled();
 		this.compressionCodec = networkConfig.getCompressionCodec();
 		this.networkBufferSize = networkConfig.networkBufferSize();
+		this.bufferDebloatConfiguration = networkConfig.getBufferDebloatConfiguration();
 		this.connectionManager = connectionManager;
 		this.partitionManager = partitionManager;
 		this.taskEventPublisher = taskEventPublisher;
@@ -120,10 +127,17 @@ public class SingleInputGateFactory {
 			igdd.getConsumedPartitionType());
 
 		BufferDecompressor bufferDecompressor = null;
-		if (igdd.getConsumedPartitionType().isBlocking() && blockingShuffleCompressionEnabled) {
+		if (igdd.getConsumedPartitionType().isBlocking()
+				? blockingShuffleCompressionEnabled
+				: pipelinedShuffleCompressionEnabled) {
 			bufferDecompressor = new BufferDecompressor(networkBufferSize, compressionCodec);
 		}
 
+		BufferDebloater bufferDebloater = null;
+		if (bufferDebloatConfiguration.isEnabled() && igdd.getConsumedPartitionType().isPipelined()) {
+			bufferDebloater = new BufferDebloater(bufferDebloatConfiguration, networkBufferSize, SystemClock.getInstance());
+		}
+
 		SingleInputGate inputGate = new SingleInputGate(
 			owningTaskName,
 			gateIndex,
@@ -133,7 +147,8 @@ public class SingleInputGateFactory {
 			igdd.getShuffleDescriptors().length,
 			partitionProducerStateProvider,
 			bufferPoolFactory,
-			bufferDecompressor);
+			bufferDecompressor,
+			bufferDebloater);
 
 		createInputChannels(owningTaskName, igdd, inputGate, metrics);
 		return inputGate;
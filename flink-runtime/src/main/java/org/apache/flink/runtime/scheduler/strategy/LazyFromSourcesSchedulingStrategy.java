@@ -19,6 +19,7 @@
 package org.apache.flink.runtime.scheduler.strategy;
 
 import org.apache.flink.runtime.execution.ExecutionState;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.jobgraph.IntermediateResultPartitionID;
 import org.apache.flink.runtime.scheduler.DeploymentOption;
 import org.apache.flink.runtime.scheduler.ExecutionVertexDeploymentOption;
@@ -70,7 +71,7 @@ public class LazyFromSourcesSchedulingStrategy implements SchedulingStrategy {
 		for (SchedulingExecutionVertex schedulingVertex : schedulingTopology.getVertices()) {
 			DeploymentOption option = nonUpdateOption;
 			for (SchedulingResultPartition srp : schedulingVertex.getProducedResults()) {
-				if (srp.getResultType().isPipelined()) {
+				if (srp.getResultType().isPipelined() || srp.getResultType().isHybrid()) {
 					option = updateOption;
 				}
 				inputConstraintChecker.addSchedulingResultPartition(srp);
@@ -115,7 +116,8 @@ public class LazyFromSourcesSchedulingStrategy implements SchedulingStrategy {
 		final SchedulingResultPartition resultPartition = schedulingTopology
 			.getResultPartition(resultPartitionId);
 
-		if (!resultPartition.getResultType().isPipelined()) {
+		final ResultPartitionType resultType = resultPartition.getResultType();
+		if (!resultType.isPipelined() && !resultType.isHybrid()) {
 			return;
 		}
 
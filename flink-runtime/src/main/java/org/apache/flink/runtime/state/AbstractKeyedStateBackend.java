@@ -170,9 +170,19 @@ public abstract class AbstractKeyedStateBackend<K> implements
 	 */
 	@Override
 	public void setCurrentKey(K newKey) {
+		setCurrentKeyAndKeyGroup(newKey, KeyGroupRangeAssignment.assignToKeyGroup(newKey, numberOfKeyGroups));
+	}
+
+	/**
+	 * Sets the current key together with its key-group, which the caller already computed via
+	 * {@link KeyGroupRangeAssignment#assignToKeyGroup(Object, int)} for the number of key-groups
+	 * of this backend. Backends that react to a change of the current key should override this
+	 * method rather than {@link #setCurrentKey(Object)}, which delegates here.
+	 */
+	public void setCurrentKeyAndKeyGroup(K newKey, int keyGroup) {
 		notifyKeySelected(newKey);
 		this.keyContext.setCurrentKey(newKey);
-		this.keyContext.setCurrentKeyGroupIndex(KeyGroupRangeAssignment.assignToKeyGroup(newKey, numberOfKeyGroups));
+		this.keyContext.setCurrentKeyGroupIndex(keyGroup);
 	}
 
 	private void notifyKeySelected(K newKey) {
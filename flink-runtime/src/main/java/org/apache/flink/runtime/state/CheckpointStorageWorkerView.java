@@ -68,4 +68,18 @@ public interface CheckpointStorageWorkerView {
 	 * @throws IOException Thrown, if the stream cannot be opened.
 	 */
 	CheckpointStreamFactory.CheckpointStateOutputStream createTaskOwnedStateStream() throws IOException;
+
+	/**
+	 * Finishes the state streams of the given checkpoint. This is called after all streams that were
+	 * created for the checkpoint have been closed, before the handles of their state are reported, and
+	 * when the checkpoint is aborted on the task.
+	 *
+	 * <p>Storages whose streams write into resources that they share with each other, like files, release
+	 * these resources of the checkpoint here. Storages whose streams are durable once they are closed do not
+	 * need to do anything.
+	 *
+	 * @param checkpointId The ID of the checkpoint whose streams are finished.
+	 * @throws IOException Thrown, if the state of the streams cannot be made durable.
+	 */
+	default void finishCheckpointStreams(long checkpointId) throws IOException {}
 }
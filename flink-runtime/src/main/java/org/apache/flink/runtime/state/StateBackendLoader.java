@@ -23,6 +23,7 @@ import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.IllegalConfigurationException;
 import org.apache.flink.configuration.ReadableConfig;
 import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.changelog.ChangelogStateBackend;
 import org.apache.flink.runtime.state.filesystem.FsStateBackend;
 import org.apache.flink.runtime.state.filesystem.FsStateBackendFactory;
 import org.apache.flink.runtime.state.memory.MemoryStateBackend;
@@ -230,6 +231,14 @@ public class StateBackendLoader {
 			}
 		}
 
+		// (4) wrap the backend to log the changes of the keyed state, if configured
+		if (config.get(CheckpointingOptions.CHANGELOG_ENABLED) && !(backend instanceof ChangelogStateBackend)) {
+			if (logger != null) {
+				logger.info("Logging the changes of the keyed state of {}", backend);
+			}
+			return new ChangelogStateBackend(backend).configure(config, classLoader);
+		}
+
 		return backend;
 	}
 
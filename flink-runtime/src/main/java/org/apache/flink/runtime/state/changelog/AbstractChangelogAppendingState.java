@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalAppendingState;
+
+/**
+ * Base class for the appending states of a {@link ChangelogKeyedStateBackend}. By default, the new internal value
+ * of the state is logged after every addition.
+ *
+ * @param <K> The type of key the state is associated to
+ * @param <N> The type of the namespace
+ * @param <IN> The type of the values that are added into the state
+ * @param <SV> The type of the internal value of the state
+ * @param <OUT> The type of the value that is returned from the state
+ * @param <S> The type of the wrapped state
+ */
+abstract class AbstractChangelogAppendingState<K, N, IN, SV, OUT, S extends InternalAppendingState<K, N, IN, SV, OUT>>
+	extends AbstractChangelogState<K, N, SV, S>
+	implements InternalAppendingState<K, N, IN, SV, OUT> {
+
+	AbstractChangelogAppendingState(S delegate, StateChangeLogger<K> logger, int stateId, InternalKeyContext<K> keyContext) {
+		super(delegate, logger, stateId, keyContext);
+	}
+
+	@Override
+	public OUT get() throws Exception {
+		return delegate.get();
+	}
+
+	@Override
+	public void add(IN value) throws Exception {
+		delegate.add(value);
+		logValue(currentNamespace, delegate.getInternal());
+	}
+
+	@Override
+	public SV getInternal() throws Exception {
+		return delegate.getInternal();
+	}
+
+	@Override
+	public void updateInternal(SV valueToStore) throws Exception {
+		delegate.updateInternal(valueToStore);
+		logValue(currentNamespace, valueToStore);
+	}
+}
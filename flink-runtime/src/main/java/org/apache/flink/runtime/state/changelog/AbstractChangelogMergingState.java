@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalMergingState;
+
+import java.util.Collection;
+
+/**
+ * Base class for the merging states of a {@link ChangelogKeyedStateBackend}. A merge of namespaces is logged as
+ * the clearing of the source namespaces and the new value of the target namespace.
+ *
+ * @param <K> The type of key the state is associated to
+ * @param <N> The type of the namespace
+ * @param <IN> The type of the values that are added into the state
+ * @param <SV> The type of the internal value of the state
+ * @param <OUT> The type of the value that is returned from the state
+ * @param <S> The type of the wrapped state
+ */
+abstract class AbstractChangelogMergingState<K, N, IN, SV, OUT, S extends InternalMergingState<K, N, IN, SV, OUT>>
+	extends AbstractChangelogAppendingState<K, N, IN, SV, OUT, S>
+	implements InternalMergingState<K, N, IN, SV, OUT> {
+
+	AbstractChangelogMergingState(S delegate, StateChangeLogger<K> logger, int stateId, InternalKeyContext<K> keyContext) {
+		super(delegate, logger, stateId, keyContext);
+	}
+
+	@Override
+	public void mergeNamespaces(N target, Collection<N> sources) throws Exception {
+		delegate.mergeNamespaces(target, sources);
+		if (sources == null || sources.isEmpty()) {
+			return;
+		}
+
+		for (N source : sources) {
+			if (source != null) {
+				logClear(source);
+			}
+		}
+
+		delegate.setCurrentNamespace(target);
+		try {
+			logValue(target, delegate.getInternal());
+		}
+		finally {
+			delegate.setCurrentNamespace(currentNamespace);
+		}
+	}
+}
@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.util.FlinkRuntimeException;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+
+/**
+ * Base class for the states of a {@link ChangelogKeyedStateBackend}, which forward all accesses to the state of the
+ * wrapped backend and log every change with the {@link StateChangeLogger}.
+ *
+ * @param <K> The type of key the state is associated to
+ * @param <N> The type of the namespace
+ * @param <V> The type of values kept internally in state
+ * @param <S> The type of the wrapped state
+ */
+abstract class AbstractChangelogState<K, N, V, S extends InternalKvState<K, N, V>> implements InternalKvState<K, N, V> {
+
+	/** The state of the wrapped backend. */
+	final S delegate;
+
+	final StateChangeLogger<K> logger;
+
+	/** The id of this state in the log. */
+	final int stateId;
+
+	final InternalKeyContext<K> keyContext;
+
+	N currentNamespace;
+
+	AbstractChangelogState(S delegate, StateChangeLogger<K> logger, int stateId, InternalKeyContext<K> keyContext) {
+		this.delegate = delegate;
+		this.logger = logger;
+		this.stateId = stateId;
+		this.keyContext = keyContext;
+	}
+
+	@Override
+	public TypeSerializer<K> getKeySerializer() {
+		return delegate.getKeySerializer();
+	}
+
+	@Override
+	public TypeSerializer<N> getNamespaceSerializer() {
+		return delegate.getNamespaceSerializer();
+	}
+
+	@Override
+	public TypeSerializer<V> getValueSerializer() {
+		return delegate.getValueSerializer();
+	}
+
+	@Override
+	public void setCurrentNamespace(N namespace) {
+		delegate.setCurrentNamespace(namespace);
+		this.currentNamespace = namespace;
+	}
+
+	@Override
+	public byte[] getSerializedValue(
+		byte[] serializedKeyAndNamespace,
+		TypeSerializer<K> safeKeySerializer,
+		TypeSerializer<N> safeNamespaceSerializer,
+		TypeSerializer<V> safeValueSerializer) throws Exception {
+		return delegate.getSerializedValue(
+			serializedKeyAndNamespace, safeKeySerializer, safeNamespaceSerializer, safeValueSerializer);
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+		try {
+			logClear(currentNamespace);
+		} catch (IOException e) {
+			throw new FlinkRuntimeException("Could not log the clearing of the state.", e);
+		}
+	}
+
+	@Override
+	public StateIncrementalVisitor<K, N, V> getStateIncrementalVisitor(int recommendedMaxNumberOfReturnedRecords) {
+		return new ChangeLoggingStateIncrementalVisitor(
+			delegate.getStateIncrementalVisitor(recommendedMaxNumberOfReturnedRecords));
+	}
+
+	/**
+	 * Starts a record of the current key and namespace with the given value. The record is only appended to the log
+	 * by {@link #appendRecord(byte)}, so that changes which the wrapped state rejects are not logged.
+	 */
+	void beginRecord(V value) throws IOException {
+		getValueSerializer().serialize(value, logger.beginRecord(currentNamespace, getNamespaceSerializer()));
+	}
+
+	void appendRecord(byte operation) throws IOException {
+		logger.endRecord(operation, stateId);
+	}
+
+	/**
+	 * Logs that the state of the current key and the given namespace was cleared.
+	 */
+	void logClear(N namespace) throws IOException {
+		logger.beginRecord(namespace, getNamespaceSerializer());
+		logger.endRecord(StateChangeLogger.CLEAR, stateId);
+	}
+
+	/**
+	 * Logs the new value of the state of the current key and the given namespace. A null value clears the state.
+	 */
+	void logValue(N namespace, @Nullable V value) throws IOException {
+		if (value == null) {
+			logClear(namespace);
+		} else {
+			DataOutputView out = logger.beginRecord(namespace, getNamespaceSerializer());
+			getValueSerializer().serialize(value, out);
+			logger.endRecord(StateChangeLogger.SET, stateId);
+		}
+	}
+
+	/**
+	 * A visitor that logs the entries which it removes or updates.
+	 */
+	private class ChangeLoggingStateIncrementalVisitor implements StateIncrementalVisitor<K, N, V> {
+
+		private final StateIncrementalVisitor<K, N, V> visitor;
+
+		ChangeLoggingStateIncrementalVisitor(StateIncrementalVisitor<K, N, V> visitor) {
+			this.visitor = visitor;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return visitor.hasNext();
+		}
+
+		@Override
+		public Collection<StateEntry<K, N, V>> nextEntries() {
+			return visitor.nextEntries();
+		}
+
+		@Override
+		public void remove(StateEntry<K, N, V> stateEntry) {
+			visitor.remove(stateEntry);
+			log(stateEntry, null);
+		}
+
+		@Override
+		public void update(StateEntry<K, N, V> stateEntry, V newValue) {
+			visitor.update(stateEntry, newValue);
+			log(stateEntry, newValue);
+		}
+
+		private void log(StateEntry<K, N, V> stateEntry, @Nullable V newValue) {
+			try {
+				DataOutputView out = logger.beginRecord(
+					stateEntry.getKey(), stateEntry.getNamespace(), getNamespaceSerializer());
+				if (newValue == null) {
+					logger.endRecord(StateChangeLogger.CLEAR, stateId);
+				} else {
+					getValueSerializer().serialize(newValue, out);
+					logger.endRecord(StateChangeLogger.SET, stateId);
+				}
+			} catch (IOException e) {
+				throw new FlinkRuntimeException("Could not log the change of a state entry.", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalAggregatingState;
+
+/**
+ * Aggregating state of a {@link ChangelogKeyedStateBackend}.
+ *
+ * @param <K> The type of key the state is associated to
+ * @param <N> The type of the namespace
+ * @param <IN> The type of the values that are added into the state
+ * @param <ACC> The type of the accumulator
+ * @param <OUT> The type of the value that is returned from the state
+ */
+class ChangelogAggregatingState<K, N, IN, ACC, OUT>
+	extends AbstractChangelogMergingState<K, N, IN, ACC, OUT, InternalAggregatingState<K, N, IN, ACC, OUT>>
+	implements InternalAggregatingState<K, N, IN, ACC, OUT> {
+
+	ChangelogAggregatingState(
+		InternalAggregatingState<K, N, IN, ACC, OUT> delegate,
+		StateChangeLogger<K> logger,
+		int stateId,
+		InternalKeyContext<K> keyContext) {
+		super(delegate, logger, stateId, keyContext);
+	}
+}
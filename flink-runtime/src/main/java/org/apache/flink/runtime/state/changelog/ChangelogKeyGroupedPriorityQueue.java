@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
+import org.apache.flink.runtime.state.Keyed;
+import org.apache.flink.util.CloseableIterator;
+import org.apache.flink.util.FlinkRuntimeException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Priority queue state of a {@link ChangelogKeyedStateBackend}, which logs every added and removed element.
+ *
+ * @param <T> The type of the elements in the queue, which must be {@link Keyed}.
+ */
+class ChangelogKeyGroupedPriorityQueue<T> implements KeyGroupedInternalPriorityQueue<T> {
+
+	/** The queue of the wrapped backend. */
+	private final KeyGroupedInternalPriorityQueue<T> delegate;
+
+	private final TypeSerializer<T> elementSerializer;
+
+	private final StateChangeLogger<?> logger;
+
+	/** The id of this state in the log. */
+	private final int stateId;
+
+	ChangelogKeyGroupedPriorityQueue(
+		KeyGroupedInternalPriorityQueue<T> delegate,
+		TypeSerializer<T> elementSerializer,
+		StateChangeLogger<?> logger,
+		int stateId) {
+		this.delegate = delegate;
+		this.elementSerializer = elementSerializer;
+		this.logger = logger;
+		this.stateId = stateId;
+	}
+
+	@Nullable
+	@Override
+	public T poll() {
+		T element = delegate.poll();
+		if (element != null) {
+			log(StateChangeLogger.REMOVE_ELEMENT, element);
+		}
+		return element;
+	}
+
+	@Nullable
+	@Override
+	public T peek() {
+		return delegate.peek();
+	}
+
+	@Override
+	public boolean add(@Nonnull T toAdd) {
+		boolean headChanged = delegate.add(toAdd);
+		log(StateChangeLogger.ADD_ELEMENT, toAdd);
+		return headChanged;
+	}
+
+	@Override
+	public boolean remove(@Nonnull T toRemove) {
+		boolean headChanged = delegate.remove(toRemove);
+		log(StateChangeLogger.REMOVE_ELEMENT, toRemove);
+		return headChanged;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return delegate.isEmpty();
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	@Override
+	public void addAll(@Nullable Collection<? extends T> toAdd) {
+		delegate.addAll(toAdd);
+		if (toAdd != null) {
+			for (T element : toAdd) {
+				log(StateChangeLogger.ADD_ELEMENT, element);
+			}
+		}
+	}
+
+	@Nonnull
+	@Override
+	public CloseableIterator<T> iterator() {
+		return delegate.iterator();
+	}
+
+	@Nonnull
+	@Override
+	public Set<T> getSubsetForKeyGroup(int keyGroupId) {
+		return delegate.getSubsetForKeyGroup(keyGroupId);
+	}
+
+	private void log(byte operation, T element) {
+		try {
+			DataOutputView out = logger.beginElementRecord(((Keyed<?>) element).getKey());
+			elementSerializer.serialize(element, out);
+			logger.endRecord(operation, stateId);
+		} catch (IOException e) {
+			throw new FlinkRuntimeException("Could not log the change of a priority queue.", e);
+		}
+	}
+}
@@ -0,0 +1,329 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.State;
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
+import org.apache.flink.runtime.state.Keyed;
+import org.apache.flink.runtime.state.KeyedStateFunction;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.PriorityComparable;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateSnapshotTransformer.StateSnapshotTransformFactory;
+import org.apache.flink.runtime.state.heap.HeapPriorityQueueElement;
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalAggregatingState;
+import org.apache.flink.runtime.state.internal.InternalFoldingState;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.internal.InternalListState;
+import org.apache.flink.runtime.state.internal.InternalMapState;
+import org.apache.flink.runtime.state.internal.InternalReducingState;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.runtime.state.ttl.TtlBackgroundCleanup;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.FlinkRuntimeException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.RunnableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A keyed state backend that wraps another keyed state backend and logs all changes of its state, so that
+ * checkpoints only need to upload the changes since the previous checkpoint. The state of the wrapped backend is
+ * materialized periodically in the background, see {@link ChangelogSnapshotStrategy}.
+ *
+ * <p>The changes of restored states are applied to the wrapped backend when the states are registered again.
+ *
+ * @param <K> The type of the keys.
+ */
+public class ChangelogKeyedStateBackend<K> extends AbstractKeyedStateBackend<K>
+	implements TtlBackgroundCleanup, PeriodicMaterialization {
+
+	/** The wrapped backend, which holds the state. */
+	private final AbstractKeyedStateBackend<K> delegate;
+
+	private final StateChangeLogger<K> logger;
+
+	/** The restored changes of states that were not registered again yet. */
+	private final RestoredStateChanges<K> restoredChanges;
+
+	private final ChangelogSnapshotStrategy<K> snapshotStrategy;
+
+	/** The interval of the materializations, in milliseconds. */
+	private final long materializationInterval;
+
+	ChangelogKeyedStateBackend(
+		AbstractKeyedStateBackend<K> delegate,
+		TaskKvStateRegistry kvStateRegistry,
+		ClassLoader userCodeClassLoader,
+		ExecutionConfig executionConfig,
+		TtlTimeProvider ttlTimeProvider,
+		CloseableRegistry cancelStreamRegistry,
+		InternalKeyContext<K> keyContext,
+		RestoredStateChanges<K> restoredChanges,
+		UUID backendIdentifier,
+		@Nullable ChangelogSnapshot confirmedSnapshot,
+		long lastMaterializationId,
+		CheckpointStreamFactory materializationStreamFactory,
+		long materializationInterval,
+		int flushThreshold,
+		File[] spillDirectories) {
+		super(
+			kvStateRegistry,
+			delegate.getKeySerializer(),
+			userCodeClassLoader,
+			executionConfig,
+			ttlTimeProvider,
+			cancelStreamRegistry,
+			keyContext);
+		this.delegate = delegate;
+		this.logger = new StateChangeLogger<>(delegate.getKeySerializer(), keyContext, flushThreshold, spillDirectories);
+		this.restoredChanges = restoredChanges;
+		this.snapshotStrategy = new ChangelogSnapshotStrategy<>(
+			delegate,
+			logger,
+			restoredChanges,
+			keyGroupRange,
+			backendIdentifier,
+			materializationStreamFactory,
+			cancelStreamRegistry,
+			confirmedSnapshot,
+			lastMaterializationId);
+		this.materializationInterval = materializationInterval;
+	}
+
+	@Override
+	public void setCurrentKeyAndKeyGroup(K newKey, int keyGroup) {
+		super.setCurrentKeyAndKeyGroup(newKey, keyGroup);
+		delegate.setCurrentKeyAndKeyGroup(newKey, keyGroup);
+	}
+
+	@Nonnull
+	@Override
+	@SuppressWarnings("unchecked")
+	public <N, SV, SEV, S extends State, IS extends S> IS createInternalState(
+		@Nonnull TypeSerializer<N> namespaceSerializer,
+		@Nonnull StateDescriptor<S, SV> stateDesc,
+		@Nonnull StateSnapshotTransformFactory<SEV> snapshotTransformFactory) throws Exception {
+
+		InternalKvState<K, N, SV> state = delegate.createInternalState(
+			namespaceSerializer, stateDesc, snapshotTransformFactory);
+		int stateId = logger.registerKvState(stateDesc.getType(), stateDesc.getName(), state);
+
+		if (!restoredChanges.isEmpty()) {
+			K currentKey = getCurrentKey();
+			try {
+				restoredChanges.applyToKvState(stateDesc.getName(), state, delegate);
+			}
+			finally {
+				if (currentKey != null) {
+					delegate.setCurrentKeyAndKeyGroup(currentKey, getCurrentKeyGroupIndex());
+				}
+			}
+		}
+
+		switch (stateDesc.getType()) {
+			case VALUE:
+				return (IS) new ChangelogValueState<>(
+					(InternalValueState<K, N, SV>) state, logger, stateId, keyContext);
+			case LIST:
+				return (IS) new ChangelogListState<>(
+					(InternalListState<K, N, Object>) state, logger, stateId, keyContext);
+			case MAP:
+				return (IS) new ChangelogMapState<>(
+					(InternalMapState<K, N, Object, Object>) state, logger, stateId, keyContext);
+			case REDUCING:
+				return (IS) new ChangelogReducingState<>(
+					(InternalReducingState<K, N, SV>) state, logger, stateId, keyContext);
+			case AGGREGATING:
+				return (IS) new ChangelogAggregatingState<>(
+					(InternalAggregatingState<K, N, Object, SV, Object>) state, logger, stateId, keyContext);
+			case FOLDING:
+				return (IS) new ChangelogFoldingState<>(
+					(InternalFoldingState<K, N, Object, SV>) state, logger, stateId, keyContext);
+			default:
+				String message = String.format("State %s is not supported by %s",
+					stateDesc.getClass(), this.getClass());
+				throw new FlinkRuntimeException(message);
+		}
+	}
+
+	@Nonnull
+	@Override
+	public <T extends HeapPriorityQueueElement & PriorityComparable & Keyed> KeyGroupedInternalPriorityQueue<T> create(
+		@Nonnull String stateName,
+		@Nonnull TypeSerializer<T> byteOrderedElementSerializer) {
+
+		KeyGroupedInternalPriorityQueue<T> queue = delegate.create(stateName, byteOrderedElementSerializer);
+		int stateId = logger.registerPriorityQueueState(stateName, byteOrderedElementSerializer);
+
+		if (!restoredChanges.isEmpty()) {
+			try {
+				restoredChanges.applyToPriorityQueue(stateName, queue);
+			} catch (IOException e) {
+				throw new FlinkRuntimeException("Could not apply the restored changes of state " + stateName + '.', e);
+			}
+		}
+
+		return new ChangelogKeyGroupedPriorityQueue<>(queue, byteOrderedElementSerializer, logger, stateId);
+	}
+
+	@Nonnull
+	@Override
+	public RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot(
+		long checkpointId,
+		long timestamp,
+		@Nonnull CheckpointStreamFactory streamFactory,
+		@Nonnull CheckpointOptions checkpointOptions) throws Exception {
+		return snapshotStrategy.snapshot(checkpointId, timestamp, streamFactory, checkpointOptions);
+	}
+
+	@Override
+	public void notifyCheckpointComplete(long checkpointId) throws Exception {
+		// notifies the wrapped backend about the materializations that are confirmed by the checkpoint
+		snapshotStrategy.notifyCheckpointComplete(checkpointId);
+	}
+
+	@Override
+	public long getMaterializationInterval() {
+		return materializationInterval;
+	}
+
+	@Override
+	public void triggerMaterialization() {
+		snapshotStrategy.triggerMaterialization();
+	}
+
+	/**
+	 * Waits until the running materialization, if any, is completed.
+	 */
+	@VisibleForTesting
+	void awaitMaterialization() throws InterruptedException {
+		snapshotStrategy.awaitMaterialization();
+	}
+
+	@Override
+	public <N> Stream<K> getKeys(String state, N namespace) {
+		return delegate.getKeys(state, namespace);
+	}
+
+	@Override
+	public <N, S extends State, T> void applyToAllKeys(
+		final N namespace,
+		final TypeSerializer<N> namespaceSerializer,
+		final StateDescriptor<S, T> stateDescriptor,
+		final KeyedStateFunction<K, S> function) throws Exception {
+
+		try (Stream<K> keyStream = getKeys(stateDescriptor.getName(), namespace)) {
+
+			// the keys are copied into a list, because the function may change the state of the wrapped backend
+			final List<K> keys = keyStream.collect(Collectors.toList());
+
+			final S state = getPartitionedState(
+				namespace,
+				namespaceSerializer,
+				stateDescriptor);
+
+			for (K key : keys) {
+				setCurrentKey(key);
+				function.process(key, state);
+			}
+		}
+	}
+
+	@Override
+	public int numKeyValueStateEntries() {
+		return delegate.numKeyValueStateEntries();
+	}
+
+	@Override
+	public boolean supportsAsynchronousSnapshots() {
+		return delegate.supportsAsynchronousSnapshots();
+	}
+
+	@Override
+	public boolean requiresLegacySynchronousTimerSnapshots() {
+		return delegate.requiresLegacySynchronousTimerSnapshots();
+	}
+
+	@Nullable
+	@Override
+	public <S> Runnable registerTtlState(
+		@Nonnull String stateName,
+		long ttl,
+		@Nonnull Function<S, S> unexpiredOrNull) {
+		return delegate instanceof TtlBackgroundCleanup ?
+			((TtlBackgroundCleanup) delegate).registerTtlState(stateName, ttl, unexpiredOrNull) : null;
+	}
+
+	@Override
+	public long getBackgroundCleanupInterval() {
+		return delegate instanceof TtlBackgroundCleanup ?
+			((TtlBackgroundCleanup) delegate).getBackgroundCleanupInterval() : 0L;
+	}
+
+	@Override
+	public void runBackgroundCleanup() {
+		if (delegate instanceof TtlBackgroundCleanup) {
+			((TtlBackgroundCleanup) delegate).runBackgroundCleanup();
+		}
+	}
+
+	@Override
+	public void dispose() {
+		snapshotStrategy.dispose();
+		super.dispose();
+		delegate.dispose();
+	}
+
+	@Override
+	public void close() throws IOException {
+		super.close();
+		delegate.close();
+	}
+
+	/**
+	 * Returns the wrapped backend, which holds the state.
+	 */
+	public AbstractKeyedStateBackend<K> getDelegate() {
+		return delegate;
+	}
+
+	@Override
+	public String toString() {
+		return "ChangelogKeyedStateBackend{delegate=" + delegate + '}';
+	}
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalListState;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * List state of a {@link ChangelogKeyedStateBackend}. Additions are logged as the added elements only.
+ *
+ * @param <K> The type of key the state is associated to
+ * @param <N> The type of the namespace
+ * @param <V> The type of the elements in the list
+ */
+class ChangelogListState<K, N, V>
+	extends AbstractChangelogMergingState<K, N, V, List<V>, Iterable<V>, InternalListState<K, N, V>>
+	implements InternalListState<K, N, V> {
+
+	ChangelogListState(
+		InternalListState<K, N, V> delegate,
+		StateChangeLogger<K> logger,
+		int stateId,
+		InternalKeyContext<K> keyContext) {
+		super(delegate, logger, stateId, keyContext);
+	}
+
+	@Override
+	public void add(V value) throws Exception {
+		if (value == null) {
+			// the wrapped state rejects null values
+			delegate.add(null);
+			return;
+		}
+		beginRecord(Collections.singletonList(value));
+		delegate.add(value);
+		appendRecord(StateChangeLogger.ADD);
+	}
+
+	@Override
+	public void addAll(List<V> values) throws Exception {
+		if (values == null || values.isEmpty()) {
+			delegate.addAll(values);
+			return;
+		}
+		beginRecord(values);
+		delegate.addAll(values);
+		appendRecord(StateChangeLogger.ADD);
+	}
+
+	@Override
+	public void update(List<V> values) throws Exception {
+		if (values == null || values.isEmpty()) {
+			delegate.update(values);
+			logClear(currentNamespace);
+			return;
+		}
+		beginRecord(values);
+		delegate.update(values);
+		appendRecord(StateChangeLogger.SET);
+	}
+}
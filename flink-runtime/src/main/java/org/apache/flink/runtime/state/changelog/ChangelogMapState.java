@@ -0,0 +1,235 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.api.common.typeutils.base.MapSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalMapState;
+import org.apache.flink.util.FlinkRuntimeException;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Map state of a {@link ChangelogKeyedStateBackend}. Every put and removal of a user key is logged separately,
+ * including the ones through the iterators of the state.
+ *
+ * @param <K> The type of key the state is associated to
+ * @param <N> The type of the namespace
+ * @param <UK> The type of the user keys in the map
+ * @param <UV> The type of the user values in the map
+ */
+class ChangelogMapState<K, N, UK, UV>
+	extends AbstractChangelogState<K, N, Map<UK, UV>, InternalMapState<K, N, UK, UV>>
+	implements InternalMapState<K, N, UK, UV> {
+
+	ChangelogMapState(
+		InternalMapState<K, N, UK, UV> delegate,
+		StateChangeLogger<K> logger,
+		int stateId,
+		InternalKeyContext<K> keyContext) {
+		super(delegate, logger, stateId, keyContext);
+	}
+
+	@Override
+	public UV get(UK key) throws Exception {
+		return delegate.get(key);
+	}
+
+	@Override
+	public void put(UK key, UV value) throws Exception {
+		beginPut(keyContext.getCurrentKey(), currentNamespace, key, value);
+		delegate.put(key, value);
+		appendRecord(StateChangeLogger.PUT);
+	}
+
+	@Override
+	public void putAll(Map<UK, UV> map) throws Exception {
+		delegate.putAll(map);
+		if (map != null) {
+			K currentKey = keyContext.getCurrentKey();
+			for (Map.Entry<UK, UV> entry : map.entrySet()) {
+				beginPut(currentKey, currentNamespace, entry.getKey(), entry.getValue());
+				appendRecord(StateChangeLogger.PUT);
+			}
+		}
+	}
+
+	@Override
+	public void remove(UK key) throws Exception {
+		delegate.remove(key);
+		logRemove(keyContext.getCurrentKey(), currentNamespace, key);
+	}
+
+	@Override
+	public boolean contains(UK key) throws Exception {
+		return delegate.contains(key);
+	}
+
+	@Override
+	public Iterable<Map.Entry<UK, UV>> entries() throws Exception {
+		return entries(entry -> entry);
+	}
+
+	@Override
+	public Iterable<UK> keys() throws Exception {
+		return entries(Map.Entry::getKey);
+	}
+
+	@Override
+	public Iterable<UV> values() throws Exception {
+		return entries(Map.Entry::getValue);
+	}
+
+	@Override
+	public Iterator<Map.Entry<UK, UV>> iterator() throws Exception {
+		Iterable<Map.Entry<UK, UV>> entries = entries();
+		return entries == null ? null : entries.iterator();
+	}
+
+	@Override
+	public boolean isEmpty() throws Exception {
+		return delegate.isEmpty();
+	}
+
+	private <R> Iterable<R> entries(Function<Map.Entry<UK, UV>, R> resultMapper) throws Exception {
+		Iterable<Map.Entry<UK, UV>> entries = delegate.entries();
+		if (entries == null) {
+			return null;
+		}
+		K currentKey = keyContext.getCurrentKey();
+		N namespace = currentNamespace;
+		return () -> new ChangeLoggingIterator<>(entries.iterator(), currentKey, namespace, resultMapper);
+	}
+
+	/**
+	 * Starts the record of a put, which is appended to the log by {@link #appendRecord(byte)}.
+	 */
+	private void beginPut(K key, N namespace, UK userKey, UV userValue) throws IOException {
+		MapSerializer<UK, UV> mapSerializer = (MapSerializer<UK, UV>) getValueSerializer();
+		DataOutputView out = logger.beginRecord(key, namespace, getNamespaceSerializer());
+		mapSerializer.getKeySerializer().serialize(userKey, out);
+		if (userValue == null) {
+			out.writeBoolean(true);
+		} else {
+			out.writeBoolean(false);
+			mapSerializer.getValueSerializer().serialize(userValue, out);
+		}
+	}
+
+	private void logRemove(K key, N namespace, UK userKey) throws IOException {
+		MapSerializer<UK, UV> mapSerializer = (MapSerializer<UK, UV>) getValueSerializer();
+		DataOutputView out = logger.beginRecord(key, namespace, getNamespaceSerializer());
+		mapSerializer.getKeySerializer().serialize(userKey, out);
+		logger.endRecord(StateChangeLogger.REMOVE, stateId);
+	}
+
+	/**
+	 * Iterates over the entries of the map of a key and namespace, and logs the changes through the iterator and
+	 * the returned entries.
+	 */
+	private class ChangeLoggingIterator<R> implements Iterator<R> {
+
+		private final Iterator<Map.Entry<UK, UV>> iterator;
+
+		private final K key;
+
+		private final N namespace;
+
+		private final Function<Map.Entry<UK, UV>, R> resultMapper;
+
+		private Map.Entry<UK, UV> current;
+
+		ChangeLoggingIterator(
+			Iterator<Map.Entry<UK, UV>> iterator,
+			K key,
+			N namespace,
+			Function<Map.Entry<UK, UV>, R> resultMapper) {
+			this.iterator = iterator;
+			this.key = key;
+			this.namespace = namespace;
+			this.resultMapper = resultMapper;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return iterator.hasNext();
+		}
+
+		@Override
+		public R next() {
+			current = new ChangeLoggingEntry(iterator.next(), key, namespace);
+			return resultMapper.apply(current);
+		}
+
+		@Override
+		public void remove() {
+			UK userKey = current == null ? null : current.getKey();
+			iterator.remove();
+			try {
+				logRemove(key, namespace, userKey);
+			} catch (IOException e) {
+				throw new FlinkRuntimeException("Could not log the removal of a map entry.", e);
+			}
+		}
+	}
+
+	/**
+	 * An entry of the map of a key and namespace, which logs the changes of its value.
+	 */
+	private class ChangeLoggingEntry implements Map.Entry<UK, UV> {
+
+		private final Map.Entry<UK, UV> entry;
+
+		private final K key;
+
+		private final N namespace;
+
+		ChangeLoggingEntry(Map.Entry<UK, UV> entry, K key, N namespace) {
+			this.entry = entry;
+			this.key = key;
+			this.namespace = namespace;
+		}
+
+		@Override
+		public UK getKey() {
+			return entry.getKey();
+		}
+
+		@Override
+		public UV getValue() {
+			return entry.getValue();
+		}
+
+		@Override
+		public UV setValue(UV value) {
+			try {
+				beginPut(key, namespace, entry.getKey(), value);
+				UV oldValue = entry.setValue(value);
+				appendRecord(StateChangeLogger.PUT);
+				return oldValue;
+			} catch (IOException e) {
+				throw new FlinkRuntimeException("Could not log the update of a map entry.", e);
+			}
+		}
+	}
+}
@@ -0,0 +1,364 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateObject;
+import org.apache.flink.runtime.state.StreamStateHandle;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A materialization of a {@link ChangelogKeyedStateBackend}, i.e. a snapshot of the wrapped backend that contains all
+ * changes up to a chunk of the log. Materializations are taken periodically in the background, and are shared by the
+ * snapshots of the checkpoints until the next materialization is confirmed.
+ *
+ * <p>The snapshot of the wrapped backend may be a {@link KeyGroupsStateHandle} or an
+ * {@link IncrementalRemoteKeyedStateHandle}, whose files are added to the shared state of the checkpoints. The shared
+ * files of an incremental snapshot keep an id that is derived from their id in the wrapped backend, so that the
+ * placeholders that the wrapped backend creates for the files of its previous snapshot resolve to the files of the
+ * previous materialization. The meta data of a changelog snapshot describes how the state handle of the wrapped
+ * backend is reassembled from the files on restore.
+ */
+final class ChangelogMaterialization {
+
+	private static final byte NO_STATE = 0;
+
+	private static final byte KEY_GROUPS = 1;
+
+	private static final byte INCREMENTAL = 2;
+
+	/** The id of the materialization, which is the checkpoint id of the snapshot of the wrapped backend. */
+	final long id;
+
+	/** The sequence number of the last chunk of changes that is contained in this materialization. */
+	final long lastChunkSequenceNumber;
+
+	/** The snapshot of the wrapped backend, or null if it has no state. */
+	@Nullable
+	private final KeyedStateHandle delegateStateHandle;
+
+	/**
+	 * The id of the file of a full snapshot of the wrapped backend, or of the meta data file of an incremental one.
+	 */
+	@Nullable
+	private final StateHandleID mainFileId;
+
+	/** The ids of the shared files of an incremental snapshot of the wrapped backend, by their id in it. */
+	private final Map<StateHandleID, StateHandleID> sharedFileIds;
+
+	/** The ids of the private files of an incremental snapshot of the wrapped backend, by their id in it. */
+	private final Map<StateHandleID, StateHandleID> privateFileIds;
+
+	/**
+	 * The log file with the restored changes of states that were not accessed again before the materialization,
+	 * if any. It must be applied before the logs of the snapshot.
+	 */
+	@Nullable
+	final ChangelogSnapshot.SharedFile baseLog;
+
+	private ChangelogMaterialization(
+		long id,
+		long lastChunkSequenceNumber,
+		@Nullable KeyedStateHandle delegateStateHandle,
+		@Nullable StateHandleID mainFileId,
+		Map<StateHandleID, StateHandleID> sharedFileIds,
+		Map<StateHandleID, StateHandleID> privateFileIds,
+		@Nullable ChangelogSnapshot.SharedFile baseLog) {
+		this.id = id;
+		this.lastChunkSequenceNumber = lastChunkSequenceNumber;
+		this.delegateStateHandle = delegateStateHandle;
+		this.mainFileId = mainFileId;
+		this.sharedFileIds = sharedFileIds;
+		this.privateFileIds = privateFileIds;
+		this.baseLog = baseLog;
+	}
+
+	/**
+	 * Returns the materialization of a backend without any state.
+	 */
+	static ChangelogMaterialization empty(long id, long lastChunkSequenceNumber) {
+		return new ChangelogMaterialization(
+			id, lastChunkSequenceNumber, null, null, Collections.emptyMap(), Collections.emptyMap(), null);
+	}
+
+	/**
+	 * Creates a materialization from the snapshot of the wrapped backend.
+	 *
+	 * @throws IllegalStateException if the state handle is neither a {@link KeyGroupsStateHandle} nor an
+	 *                               {@link IncrementalRemoteKeyedStateHandle}.
+	 */
+	static ChangelogMaterialization of(
+		long id,
+		long lastChunkSequenceNumber,
+		@Nullable KeyedStateHandle delegateStateHandle,
+		@Nullable ChangelogSnapshot.SharedFile baseLog) {
+
+		if (delegateStateHandle == null) {
+			return new ChangelogMaterialization(
+				id, lastChunkSequenceNumber, null, null, Collections.emptyMap(), Collections.emptyMap(), baseLog);
+		} else if (delegateStateHandle instanceof KeyGroupsStateHandle) {
+			return new ChangelogMaterialization(
+				id,
+				lastChunkSequenceNumber,
+				delegateStateHandle,
+				createFileId(),
+				Collections.emptyMap(),
+				Collections.emptyMap(),
+				baseLog);
+		} else if (delegateStateHandle instanceof IncrementalRemoteKeyedStateHandle) {
+			IncrementalRemoteKeyedStateHandle incrementalHandle = (IncrementalRemoteKeyedStateHandle) delegateStateHandle;
+			Map<StateHandleID, StateHandleID> sharedFileIds = new LinkedHashMap<>();
+			for (StateHandleID delegateFileId : incrementalHandle.getSharedState().keySet()) {
+				sharedFileIds.put(
+					delegateFileId,
+					new StateHandleID(incrementalHandle.getBackendIdentifier() + "-" + delegateFileId));
+			}
+			Map<StateHandleID, StateHandleID> privateFileIds = new LinkedHashMap<>();
+			for (StateHandleID delegateFileId : incrementalHandle.getPrivateState().keySet()) {
+				privateFileIds.put(delegateFileId, createFileId());
+			}
+			return new ChangelogMaterialization(
+				id,
+				lastChunkSequenceNumber,
+				delegateStateHandle,
+				createFileId(),
+				sharedFileIds,
+				privateFileIds,
+				baseLog);
+		} else {
+			throw new IllegalStateException("The changelog state backend requires full or incremental snapshots " +
+				"of the wrapped state backend, but got " + delegateStateHandle.getClass().getSimpleName() + '.');
+		}
+	}
+
+	private static StateHandleID createFileId() {
+		return new StateHandleID(UUID.randomUUID().toString());
+	}
+
+	boolean isEmpty() {
+		return delegateStateHandle == null && baseLog == null;
+	}
+
+	/**
+	 * Returns the state handle from which the wrapped backend restores this materialization, or null if it has no
+	 * state.
+	 */
+	@Nullable
+	KeyedStateHandle getDelegateStateHandle() {
+		return delegateStateHandle;
+	}
+
+	/**
+	 * Returns the files of the snapshot of the wrapped backend and the base log.
+	 */
+	List<ChangelogSnapshot.SharedFile> getFiles() {
+		List<ChangelogSnapshot.SharedFile> files = new ArrayList<>(sharedFileIds.size() + privateFileIds.size() + 2);
+		if (delegateStateHandle instanceof KeyGroupsStateHandle) {
+			files.add(new ChangelogSnapshot.SharedFile(
+				mainFileId, ((KeyGroupsStateHandle) delegateStateHandle).getDelegateStateHandle()));
+		} else if (delegateStateHandle instanceof IncrementalRemoteKeyedStateHandle) {
+			IncrementalRemoteKeyedStateHandle incrementalHandle = (IncrementalRemoteKeyedStateHandle) delegateStateHandle;
+			files.add(new ChangelogSnapshot.SharedFile(mainFileId, incrementalHandle.getMetaStateHandle()));
+			addFiles(files, sharedFileIds, incrementalHandle.getSharedState());
+			addFiles(files, privateFileIds, incrementalHandle.getPrivateState());
+		}
+		if (baseLog != null) {
+			files.add(baseLog);
+		}
+		return files;
+	}
+
+	private static void addFiles(
+		List<ChangelogSnapshot.SharedFile> files,
+		Map<StateHandleID, StateHandleID> fileIds,
+		Map<StateHandleID, StreamStateHandle> handles) {
+		for (Map.Entry<StateHandleID, StateHandleID> fileId : fileIds.entrySet()) {
+			files.add(new ChangelogSnapshot.SharedFile(fileId.getValue(), handles.get(fileId.getKey())));
+		}
+	}
+
+	/**
+	 * Returns the state objects that must be discarded if this materialization is not referenced by any checkpoint.
+	 * The placeholders that the wrapped backend created for the files of its previous snapshot are not discarded.
+	 */
+	List<StateObject> getStateObjects() {
+		List<StateObject> stateObjects = new ArrayList<>(2);
+		if (delegateStateHandle != null) {
+			stateObjects.add(delegateStateHandle);
+		}
+		if (baseLog != null) {
+			stateObjects.add(baseLog.handle);
+		}
+		return stateObjects;
+	}
+
+	void writeMetaData(DataOutputView out) throws IOException {
+		out.writeLong(id);
+
+		if (delegateStateHandle instanceof KeyGroupsStateHandle) {
+			out.writeByte(KEY_GROUPS);
+			out.writeUTF(mainFileId.getKeyString());
+			KeyGroupRangeOffsets offsets = ((KeyGroupsStateHandle) delegateStateHandle).getGroupRangeOffsets();
+			KeyGroupRange keyGroupRange = offsets.getKeyGroupRange();
+			out.writeInt(keyGroupRange.getStartKeyGroup());
+			out.writeInt(keyGroupRange.getNumberOfKeyGroups());
+			for (int keyGroup : keyGroupRange) {
+				out.writeLong(offsets.getKeyGroupOffset(keyGroup));
+			}
+		} else if (delegateStateHandle instanceof IncrementalRemoteKeyedStateHandle) {
+			IncrementalRemoteKeyedStateHandle incrementalHandle = (IncrementalRemoteKeyedStateHandle) delegateStateHandle;
+			out.writeByte(INCREMENTAL);
+			out.writeUTF(mainFileId.getKeyString());
+			out.writeUTF(incrementalHandle.getBackendIdentifier().toString());
+			out.writeInt(incrementalHandle.getKeyGroupRange().getStartKeyGroup());
+			out.writeInt(incrementalHandle.getKeyGroupRange().getEndKeyGroup());
+			out.writeLong(incrementalHandle.getCheckpointId());
+			writeFileIds(out, sharedFileIds);
+			writeFileIds(out, privateFileIds);
+		} else {
+			out.writeByte(NO_STATE);
+		}
+
+		out.writeBoolean(baseLog != null);
+		if (baseLog != null) {
+			out.writeUTF(baseLog.id.getKeyString());
+		}
+	}
+
+	private static void writeFileIds(DataOutputView out, Map<StateHandleID, StateHandleID> fileIds) throws IOException {
+		out.writeInt(fileIds.size());
+		for (Map.Entry<StateHandleID, StateHandleID> fileId : fileIds.entrySet()) {
+			out.writeUTF(fileId.getKey().getKeyString());
+			out.writeUTF(fileId.getValue().getKeyString());
+		}
+	}
+
+	/**
+	 * Reads the meta data of a materialization, and resolves the referenced files from the shared state of the
+	 * restored state handle.
+	 *
+	 * @param lastChunkSequenceNumber The sequence number under which the changes of the materialization are
+	 *                                continued.
+	 */
+	static ChangelogMaterialization readMetaData(
+		DataInputView in,
+		Map<StateHandleID, StreamStateHandle> sharedState,
+		long lastChunkSequenceNumber) throws IOException {
+
+		long id = in.readLong();
+
+		KeyedStateHandle delegateStateHandle = null;
+		StateHandleID mainFileId = null;
+		Map<StateHandleID, StateHandleID> sharedFileIds = Collections.emptyMap();
+		Map<StateHandleID, StateHandleID> privateFileIds = Collections.emptyMap();
+
+		byte type = in.readByte();
+		if (type == KEY_GROUPS) {
+			mainFileId = new StateHandleID(in.readUTF());
+			int startKeyGroup = in.readInt();
+			long[] offsets = new long[in.readInt()];
+			for (int i = 0; i < offsets.length; ++i) {
+				offsets[i] = in.readLong();
+			}
+			delegateStateHandle = new KeyGroupsStateHandle(
+				new KeyGroupRangeOffsets(KeyGroupRange.of(startKeyGroup, startKeyGroup + offsets.length - 1), offsets),
+				resolve(mainFileId, sharedState));
+		} else if (type == INCREMENTAL) {
+			mainFileId = new StateHandleID(in.readUTF());
+			UUID backendIdentifier = UUID.fromString(in.readUTF());
+			KeyGroupRange keyGroupRange = KeyGroupRange.of(in.readInt(), in.readInt());
+			long checkpointId = in.readLong();
+			sharedFileIds = readFileIds(in);
+			privateFileIds = readFileIds(in);
+			delegateStateHandle = new IncrementalRemoteKeyedStateHandle(
+				backendIdentifier,
+				keyGroupRange,
+				checkpointId,
+				resolve(sharedFileIds, sharedState),
+				resolve(privateFileIds, sharedState),
+				resolve(mainFileId, sharedState));
+		} else if (type != NO_STATE) {
+			throw new IOException("Unknown type of materialized state: " + type);
+		}
+
+		ChangelogSnapshot.SharedFile baseLog = null;
+		if (in.readBoolean()) {
+			StateHandleID baseLogId = new StateHandleID(in.readUTF());
+			baseLog = new ChangelogSnapshot.SharedFile(baseLogId, resolve(baseLogId, sharedState));
+		}
+
+		return new ChangelogMaterialization(
+			id, lastChunkSequenceNumber, delegateStateHandle, mainFileId, sharedFileIds, privateFileIds, baseLog);
+	}
+
+	private static Map<StateHandleID, StateHandleID> readFileIds(DataInputView in) throws IOException {
+		int numFiles = in.readInt();
+		Map<StateHandleID, StateHandleID> fileIds = new LinkedHashMap<>(numFiles);
+		for (int i = 0; i < numFiles; ++i) {
+			fileIds.put(new StateHandleID(in.readUTF()), new StateHandleID(in.readUTF()));
+		}
+		return fileIds;
+	}
+
+	private static Map<StateHandleID, StreamStateHandle> resolve(
+		Map<StateHandleID, StateHandleID> fileIds,
+		Map<StateHandleID, StreamStateHandle> sharedState) throws IOException {
+		Map<StateHandleID, StreamStateHandle> handles = new LinkedHashMap<>(fileIds.size());
+		for (Map.Entry<StateHandleID, StateHandleID> fileId : fileIds.entrySet()) {
+			handles.put(fileId.getKey(), resolve(fileId.getValue(), sharedState));
+		}
+		return handles;
+	}
+
+	static StreamStateHandle resolve(
+		StateHandleID fileId,
+		Map<StateHandleID, StreamStateHandle> sharedState) throws IOException {
+		StreamStateHandle handle = sharedState.get(fileId);
+		if (handle == null) {
+			throw new IOException("Missing file " + fileId + " of changelog snapshot.");
+		}
+		return handle;
+	}
+
+	@Override
+	public String toString() {
+		return "ChangelogMaterialization{" +
+			"id=" + id +
+			", lastChunkSequenceNumber=" + lastChunkSequenceNumber +
+			", delegateStateHandle=" + delegateStateHandle +
+			", baseLog=" + baseLog +
+			'}';
+	}
+}
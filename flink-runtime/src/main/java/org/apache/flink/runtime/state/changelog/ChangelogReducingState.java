@@ -0,0 +1,42 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalReducingState;
+
+/**
+ * Reducing state of a {@link ChangelogKeyedStateBackend}.
+ *
+ * @param <K> The type of key the state is associated to
+ * @param <N> The type of the namespace
+ * @param <V> The type of the values in the state
+ */
+class ChangelogReducingState<K, N, V>
+	extends AbstractChangelogMergingState<K, N, V, V, V, InternalReducingState<K, N, V>>
+	implements InternalReducingState<K, N, V> {
+
+	ChangelogReducingState(
+		InternalReducingState<K, N, V> delegate,
+		StateChangeLogger<K> logger,
+		int stateId,
+		InternalKeyContext<K> keyContext) {
+		super(delegate, logger, stateId, keyContext);
+	}
+}
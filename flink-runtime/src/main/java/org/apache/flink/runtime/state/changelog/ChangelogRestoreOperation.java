@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.RestoreOperation;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.StateMigrationException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Restores a {@link ChangelogKeyedStateBackend}. The materialized snapshots in the restored changelog snapshots are
+ * restored by the wrapped backend, together with all state handles of other backends, and the logs are read into
+ * {@link RestoredStateChanges}.
+ *
+ * <p>If the backend restores exactly the key-group range of a single changelog snapshot, it continues with the files
+ * of that snapshot, so that the next checkpoint only needs to upload the new changes. Otherwise, the state must be
+ * materialized before or by the next checkpoint.
+ *
+ * @param <K> The type of the keys.
+ */
+class ChangelogRestoreOperation<K> implements RestoreOperation<Void> {
+
+	private final Collection<KeyedStateHandle> restoreStateHandles;
+
+	private final KeyGroupRange keyGroupRange;
+
+	private final ClassLoader userCodeClassLoader;
+
+	private final CloseableRegistry cancelStreamRegistry;
+
+	private final RestoredStateChanges<K> restoredChanges;
+
+	/** The state handles that are restored by the wrapped backend. */
+	private final List<KeyedStateHandle> delegateStateHandles;
+
+	private UUID backendIdentifier;
+
+	@Nullable
+	private ChangelogSnapshot confirmedSnapshot;
+
+	/** The highest checkpoint id of the restored snapshots of the wrapped backend. */
+	private long lastMaterializationId;
+
+	ChangelogRestoreOperation(
+		@Nonnull Collection<KeyedStateHandle> restoreStateHandles,
+		@Nonnull KeyGroupRange keyGroupRange,
+		@Nonnull ClassLoader userCodeClassLoader,
+		@Nonnull CloseableRegistry cancelStreamRegistry,
+		@Nonnull RestoredStateChanges<K> restoredChanges) {
+		this.restoreStateHandles = restoreStateHandles;
+		this.keyGroupRange = keyGroupRange;
+		this.userCodeClassLoader = userCodeClassLoader;
+		this.cancelStreamRegistry = cancelStreamRegistry;
+		this.restoredChanges = restoredChanges;
+		this.delegateStateHandles = new ArrayList<>(restoreStateHandles.size());
+	}
+
+	@Override
+	public Void restore() throws Exception {
+		IncrementalRemoteKeyedStateHandle adoptableStateHandle = null;
+		ChangelogSnapshot adoptableSnapshot = null;
+		int numRestoredStateHandles = 0;
+
+		for (KeyedStateHandle stateHandle : restoreStateHandles) {
+			if (stateHandle == null) {
+				continue;
+			}
+			++numRestoredStateHandles;
+
+			ChangelogSnapshot snapshot = stateHandle instanceof IncrementalRemoteKeyedStateHandle ?
+				readSnapshot((IncrementalRemoteKeyedStateHandle) stateHandle) : null;
+			if (snapshot == null) {
+				delegateStateHandles.add(stateHandle);
+				if (stateHandle instanceof IncrementalRemoteKeyedStateHandle) {
+					lastMaterializationId = Math.max(
+						lastMaterializationId, ((IncrementalRemoteKeyedStateHandle) stateHandle).getCheckpointId());
+				}
+				continue;
+			}
+
+			ChangelogMaterialization materialization = snapshot.materialization;
+			lastMaterializationId = Math.max(lastMaterializationId, materialization.id);
+			KeyedStateHandle delegateStateHandle = materialization.getDelegateStateHandle() == null ?
+				null : materialization.getDelegateStateHandle().getIntersection(keyGroupRange);
+			if (delegateStateHandle != null) {
+				delegateStateHandles.add(delegateStateHandle);
+			}
+			if (materialization.baseLog != null) {
+				readLog(materialization.baseLog.handle);
+			}
+			for (ChangelogSnapshot.SharedFile log : snapshot.logs) {
+				readLog(log.handle);
+			}
+
+			if (stateHandle.getKeyGroupRange().equals(keyGroupRange)) {
+				adoptableStateHandle = (IncrementalRemoteKeyedStateHandle) stateHandle;
+				adoptableSnapshot = snapshot;
+			}
+		}
+
+		if (numRestoredStateHandles == 0) {
+			backendIdentifier = UUID.randomUUID();
+			confirmedSnapshot = ChangelogSnapshot.empty(lastMaterializationId);
+		} else if (numRestoredStateHandles == 1 && adoptableSnapshot != null) {
+			backendIdentifier = adoptableStateHandle.getBackendIdentifier();
+			confirmedSnapshot = adoptableSnapshot;
+		} else {
+			backendIdentifier = UUID.randomUUID();
+			confirmedSnapshot = null;
+		}
+		return null;
+	}
+
+	/**
+	 * Reads the meta data of a changelog snapshot, or returns null if the state handle belongs to another backend.
+	 */
+	@Nullable
+	private ChangelogSnapshot readSnapshot(IncrementalRemoteKeyedStateHandle stateHandle) throws IOException {
+		FSDataInputStream in = stateHandle.getMetaStateHandle().openInputStream();
+		cancelStreamRegistry.registerCloseable(in);
+		try {
+			DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(in);
+			if (inView.readInt() != ChangelogSnapshot.MAGIC_NUMBER) {
+				return null;
+			}
+			return ChangelogSnapshot.readMetaData(inView, stateHandle.getSharedState());
+		} finally {
+			if (cancelStreamRegistry.unregisterCloseable(in)) {
+				IOUtils.closeQuietly(in);
+			}
+		}
+	}
+
+	private void readLog(StreamStateHandle log) throws IOException, StateMigrationException {
+		FSDataInputStream in = log.openInputStream();
+		cancelStreamRegistry.registerCloseable(in);
+		try {
+			restoredChanges.readLog(new DataInputViewStreamWrapper(in), userCodeClassLoader, keyGroupRange);
+		} finally {
+			if (cancelStreamRegistry.unregisterCloseable(in)) {
+				IOUtils.closeQuietly(in);
+			}
+		}
+	}
+
+	/**
+	 * Returns the state handles that must be restored by the wrapped backend.
+	 */
+	List<KeyedStateHandle> getDelegateStateHandles() {
+		return delegateStateHandles;
+	}
+
+	UUID getBackendIdentifier() {
+		return backendIdentifier;
+	}
+
+	/**
+	 * Returns the snapshot that the next checkpoint can be based on, or null if the state must be materialized.
+	 */
+	@Nullable
+	ChangelogSnapshot getConfirmedSnapshot() {
+		return confirmedSnapshot;
+	}
+
+	/**
+	 * Returns the id after which the ids of the materializations continue, so that they are higher than the
+	 * checkpoint ids of the restored snapshots of the wrapped backend.
+	 */
+	long getLastMaterializationId() {
+		return lastMaterializationId;
+	}
+}
@@ -0,0 +1,192 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A snapshot of a {@link ChangelogKeyedStateBackend}, which consists of a {@link ChangelogMaterialization} and one
+ * log file for every chunk of changes since then. The files are shared between the snapshots of consecutive
+ * checkpoints.
+ *
+ * <p>The meta data file of a snapshot references the files by their {@link StateHandleID} in the shared state of
+ * the checkpoint.
+ */
+final class ChangelogSnapshot {
+
+	/** Identifies the meta data file of a changelog snapshot. */
+	static final int MAGIC_NUMBER = 0x4c4f4721;
+
+	static final int VERSION = 1;
+
+	/** The sequence number of the last chunk of changes that is contained in this snapshot. */
+	final long lastChunkSequenceNumber;
+
+	final ChangelogMaterialization materialization;
+
+	/**
+	 * The log files with the chunks after the materialization, in order. The chunks are numbered consecutively, so
+	 * the first log file contains the chunk after the last chunk of the materialization.
+	 */
+	final List<SharedFile> logs;
+
+	ChangelogSnapshot(
+		long lastChunkSequenceNumber,
+		@Nonnull ChangelogMaterialization materialization,
+		@Nonnull List<SharedFile> logs) {
+		this.lastChunkSequenceNumber = lastChunkSequenceNumber;
+		this.materialization = materialization;
+		this.logs = logs;
+	}
+
+	/**
+	 * Returns the snapshot of a backend without any state.
+	 *
+	 * @param materializationId The id of the last materialization, which continues in the next materialization.
+	 */
+	static ChangelogSnapshot empty(long materializationId) {
+		return new ChangelogSnapshot(
+			-1L, ChangelogMaterialization.empty(materializationId, -1L), Collections.emptyList());
+	}
+
+	boolean isEmpty() {
+		return materialization.isEmpty() && logs.isEmpty();
+	}
+
+	/**
+	 * Returns the log file with the given chunk, or null if the chunk is not contained in a log of this snapshot.
+	 */
+	@Nullable
+	SharedFile getLog(long chunkSequenceNumber) {
+		long index = chunkSequenceNumber - materialization.lastChunkSequenceNumber - 1;
+		return index >= 0 && index < logs.size() ? logs.get((int) index) : null;
+	}
+
+	/**
+	 * Returns all files of this snapshot, i.e. the files of the materialization and the logs.
+	 */
+	List<SharedFile> getFiles() {
+		List<SharedFile> files = materialization.getFiles();
+		files.addAll(logs);
+		return files;
+	}
+
+	void writeMetaData(DataOutputView out) throws IOException {
+		out.writeInt(MAGIC_NUMBER);
+		out.writeInt(VERSION);
+
+		out.writeInt(logs.size());
+		for (SharedFile log : logs) {
+			out.writeUTF(log.id.getKeyString());
+		}
+
+		materialization.writeMetaData(out);
+	}
+
+	/**
+	 * Reads the meta data file of a snapshot, after its magic number, and resolves the referenced files from the
+	 * shared state of the restored state handle. The chunks of the restored logs are numbered up to -1, so that the
+	 * chunks of this run continue after them.
+	 */
+	static ChangelogSnapshot readMetaData(
+		DataInputView in,
+		Map<StateHandleID, StreamStateHandle> sharedState) throws IOException {
+
+		int version = in.readInt();
+		if (version != VERSION) {
+			throw new IOException("Unsupported version of changelog snapshot: " + version);
+		}
+
+		int numLogs = in.readInt();
+		List<SharedFile> logs = new ArrayList<>(numLogs);
+		for (int i = 0; i < numLogs; ++i) {
+			StateHandleID logId = new StateHandleID(in.readUTF());
+			logs.add(new SharedFile(logId, ChangelogMaterialization.resolve(logId, sharedState)));
+		}
+
+		ChangelogMaterialization materialization = ChangelogMaterialization.readMetaData(in, sharedState, -1L - numLogs);
+		return new ChangelogSnapshot(-1L, materialization, logs);
+	}
+
+	/**
+	 * Returns the shared state of a checkpoint with this snapshot, in which the files of the given base snapshot are
+	 * only referenced by placeholders.
+	 */
+	Map<StateHandleID, StreamStateHandle> toSharedState(@Nullable ChangelogSnapshot base) {
+		Set<StateHandleID> baseFileIds = new HashSet<>();
+		if (base != null) {
+			for (SharedFile file : base.getFiles()) {
+				baseFileIds.add(file.id);
+			}
+		}
+
+		Map<StateHandleID, StreamStateHandle> sharedState = new LinkedHashMap<>();
+		for (SharedFile file : getFiles()) {
+			sharedState.put(
+				file.id,
+				baseFileIds.contains(file.id) ? new PlaceholderStreamStateHandle() : file.handle);
+		}
+		return sharedState;
+	}
+
+	@Override
+	public String toString() {
+		return "ChangelogSnapshot{" +
+			"lastChunkSequenceNumber=" + lastChunkSequenceNumber +
+			", materialization=" + materialization +
+			", logs=" + logs +
+			'}';
+	}
+
+	/**
+	 * A file in the shared state of the checkpoints.
+	 */
+	static final class SharedFile {
+
+		final StateHandleID id;
+
+		final StreamStateHandle handle;
+
+		SharedFile(StateHandleID id, StreamStateHandle handle) {
+			this.id = id;
+			this.handle = handle;
+		}
+
+		@Override
+		public String toString() {
+			return id.toString();
+		}
+	}
+}
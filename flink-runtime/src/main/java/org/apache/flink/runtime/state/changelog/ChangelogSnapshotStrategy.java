@@ -0,0 +1,689 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.concurrent.FutureUtils;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.AsyncSnapshotCallable;
+import org.apache.flink.runtime.state.CheckpointListener;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.SnapshotStrategy;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateObject;
+import org.apache.flink.runtime.state.StateUtil;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.function.ThrowingConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RunnableFuture;
+
+/**
+ * Snapshot strategy of a {@link ChangelogKeyedStateBackend}.
+ *
+ * <p>The state of the wrapped backend is materialized periodically in the background, see
+ * {@link #triggerMaterialization()}. A checkpoint references a materialization and uploads one log file for every
+ * chunk of changes after it that is not contained in the last confirmed snapshot yet. The files of the last confirmed
+ * snapshot are only referenced by placeholders, like the files of incremental snapshots of the RocksDB backend. The
+ * result is an {@link IncrementalRemoteKeyedStateHandle}, which is identified on restore by the magic number of its
+ * meta data file.
+ *
+ * <p>The files of a checkpoint are owned by the checkpoint coordinator, which discards them if the checkpoint is
+ * aborted. A new materialization is therefore only referenced by the next checkpoint, while the following checkpoints
+ * reference the last confirmed materialization until that checkpoint is confirmed. If a later checkpoint is confirmed
+ * instead, the new materialization is dropped and the next one is triggered. Only the first checkpoint after a
+ * restore that did not continue a single changelog snapshot, e.g. after rescaling, has no materialization that it
+ * could reference, and materializes the state itself.
+ *
+ * <p>Savepoints are snapshots of the wrapped backend. If restored changes were not applied yet because their states
+ * were not accessed again, they are added to the savepoint as the base log of a changelog snapshot whose files all
+ * belong to the savepoint.
+ *
+ * @param <K> The type of the keys.
+ */
+class ChangelogSnapshotStrategy<K>
+	implements SnapshotStrategy<SnapshotResult<KeyedStateHandle>>, CheckpointListener {
+
+	private static final Logger LOG = LoggerFactory.getLogger(ChangelogSnapshotStrategy.class);
+
+	private final AbstractKeyedStateBackend<K> delegate;
+
+	private final StateChangeLogger<K> logger;
+
+	/** The restored changes of states that were not accessed again yet. */
+	private final RestoredStateChanges<K> restoredChanges;
+
+	private final KeyGroupRange keyGroupRange;
+
+	/** Identifies the backend in the keys of the files in the shared state registry. */
+	private final UUID backendIdentifier;
+
+	/** Creates the streams of the materializations, which are written to the shared state of the checkpoints. */
+	private final CheckpointStreamFactory materializationStreamFactory;
+
+	private final CloseableRegistry cancelStreamRegistry;
+
+	/** The sealed chunks of changes which are not contained in the last confirmed snapshot, in order. */
+	private final ArrayDeque<StateChangeLogger.Chunk> chunks;
+
+	/** The id of the last materialization, which is the checkpoint id of the snapshot of the wrapped backend. */
+	private long lastMaterializationId;
+
+	/** Runs the asynchronous part of the materializations, created with the first materialization. */
+	@Nullable
+	private ExecutorService materializationExecutor;
+
+	private final Object lock;
+
+	/** The snapshots of the pending checkpoints, by checkpoint id. */
+	@GuardedBy("lock")
+	private final SortedMap<Long, ChangelogSnapshot> pendingSnapshots;
+
+	/** The snapshot of the last completed checkpoint, or null if there is none that the next checkpoint can use. */
+	@GuardedBy("lock")
+	@Nullable
+	private ChangelogSnapshot confirmedSnapshot;
+
+	@GuardedBy("lock")
+	private boolean materializationRunning;
+
+	/** The last completed materialization, until it is confirmed or dropped. */
+	@GuardedBy("lock")
+	@Nullable
+	private ChangelogMaterialization pendingMaterialization;
+
+	/** The checkpoint that references the pending materialization, or -1 if it is not referenced yet. */
+	@GuardedBy("lock")
+	private long pendingMaterializationCheckpointId;
+
+	@GuardedBy("lock")
+	private boolean disposed;
+
+	ChangelogSnapshotStrategy(
+		@Nonnull AbstractKeyedStateBackend<K> delegate,
+		@Nonnull StateChangeLogger<K> logger,
+		@Nonnull RestoredStateChanges<K> restoredChanges,
+		@Nonnull KeyGroupRange keyGroupRange,
+		@Nonnull UUID backendIdentifier,
+		@Nonnull CheckpointStreamFactory materializationStreamFactory,
+		@Nonnull CloseableRegistry cancelStreamRegistry,
+		@Nullable ChangelogSnapshot confirmedSnapshot,
+		long lastMaterializationId) {
+		this.delegate = delegate;
+		this.logger = logger;
+		this.restoredChanges = restoredChanges;
+		this.keyGroupRange = keyGroupRange;
+		this.backendIdentifier = backendIdentifier;
+		this.materializationStreamFactory = materializationStreamFactory;
+		this.cancelStreamRegistry = cancelStreamRegistry;
+		this.chunks = new ArrayDeque<>();
+		this.lastMaterializationId = lastMaterializationId;
+		this.lock = new Object();
+		this.pendingSnapshots = new TreeMap<>();
+		this.confirmedSnapshot = confirmedSnapshot;
+		this.pendingMaterializationCheckpointId = -1L;
+	}
+
+	@Nonnull
+	@Override
+	public RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot(
+		long checkpointId,
+		long timestamp,
+		@Nonnull CheckpointStreamFactory streamFactory,
+		@Nonnull CheckpointOptions checkpointOptions) throws Exception {
+
+		if (checkpointOptions.getCheckpointType().isSavepoint()) {
+			if (restoredChanges.isEmpty()) {
+				return delegate.snapshot(checkpointId, timestamp, streamFactory, checkpointOptions);
+			}
+			MaterializationInProgress materialization = new MaterializationInProgress(
+				checkpointId,
+				-1L,
+				delegate.snapshot(checkpointId, timestamp, streamFactory, checkpointOptions),
+				restoredChanges.toLog());
+			return new ChangelogAsyncSnapshotCallable(
+				checkpointId,
+				streamFactory,
+				true,
+				null,
+				null,
+				materialization,
+				Collections.emptyList(),
+				Collections.emptyList(),
+				Collections.emptyMap(),
+				-1L).toAsyncSnapshotFutureTask(cancelStreamRegistry);
+		}
+
+		chunks.addAll(logger.sealChunks());
+		final long lastChunkSequenceNumber = logger.getLastChunkSequenceNumber();
+
+		final ChangelogSnapshot base;
+		final ChangelogMaterialization materialization;
+		synchronized (lock) {
+			base = confirmedSnapshot;
+			if (pendingMaterialization != null && pendingMaterializationCheckpointId < 0) {
+				materialization = pendingMaterialization;
+				pendingMaterializationCheckpointId = checkpointId;
+			} else {
+				materialization = base != null ? base.materialization : null;
+			}
+		}
+
+		if (materialization == null) {
+			// the changes of all chunks are contained in the materialization of this checkpoint
+			MaterializationInProgress materializationInProgress = startMaterialization(
+				timestamp, toSharedScope(streamFactory), checkpointOptions);
+			return new ChangelogAsyncSnapshotCallable(
+				checkpointId,
+				streamFactory,
+				false,
+				null,
+				null,
+				materializationInProgress,
+				Collections.emptyList(),
+				Collections.emptyList(),
+				Collections.emptyMap(),
+				lastChunkSequenceNumber).toAsyncSnapshotFutureTask(cancelStreamRegistry);
+		}
+
+		// the chunks up to the last confirmed chunk are contained in the logs of the confirmed snapshot, and the
+		// following chunks are not dropped yet
+		final List<ChangelogSnapshot.SharedFile> confirmedLogs = new ArrayList<>();
+		if (base != null) {
+			for (long chunk = materialization.lastChunkSequenceNumber + 1; chunk <= base.lastChunkSequenceNumber; ++chunk) {
+				confirmedLogs.add(Preconditions.checkNotNull(base.getLog(chunk)));
+			}
+		}
+		final List<StateChangeLogger.Chunk> newChunks = new ArrayList<>();
+		for (StateChangeLogger.Chunk chunk : chunks) {
+			if (chunk.sequenceNumber > materialization.lastChunkSequenceNumber) {
+				chunk.retain();
+				newChunks.add(chunk);
+			}
+		}
+		Preconditions.checkState(
+			confirmedLogs.size() + newChunks.size() == lastChunkSequenceNumber - materialization.lastChunkSequenceNumber,
+			"Missing chunks of changes after materialization %s.", materialization);
+
+		return new ChangelogAsyncSnapshotCallable(
+			checkpointId,
+			streamFactory,
+			false,
+			base,
+			materialization,
+			null,
+			confirmedLogs,
+			newChunks,
+			newChunks.isEmpty() ? Collections.emptyMap() : logger.snapshotMetaInfos(),
+			lastChunkSequenceNumber).toAsyncSnapshotFutureTask(cancelStreamRegistry);
+	}
+
+	/**
+	 * Triggers a materialization of the state, whose asynchronous part runs in the background. Nothing happens if a
+	 * materialization is running, if the last one is not confirmed yet, or if nothing changed since the confirmed one.
+	 * Must be called from the task thread.
+	 */
+	void triggerMaterialization() {
+		final ChangelogSnapshot base;
+		synchronized (lock) {
+			if (disposed || materializationRunning || pendingMaterialization != null) {
+				return;
+			}
+			base = confirmedSnapshot;
+		}
+
+		chunks.addAll(logger.sealChunks());
+		if (base != null && base.materialization.lastChunkSequenceNumber == logger.getLastChunkSequenceNumber()) {
+			return;
+		}
+
+		final MaterializationInProgress materialization;
+		try {
+			materialization = startMaterialization(
+				System.currentTimeMillis(),
+				toSharedScope(materializationStreamFactory),
+				CheckpointOptions.forCheckpointWithDefaultLocation());
+		} catch (Exception e) {
+			LOG.warn("Could not trigger the materialization of {}.", delegate, e);
+			return;
+		}
+
+		synchronized (lock) {
+			materializationRunning = true;
+		}
+		try {
+			if (materializationExecutor == null) {
+				materializationExecutor = Executors.newSingleThreadExecutor(
+					new ExecutorThreadFactory("changelog-materialization"));
+			}
+			materializationExecutor.execute(() -> completeMaterialization(materialization));
+		} catch (RejectedExecutionException e) {
+			materialization.cancel();
+			synchronized (lock) {
+				materializationRunning = false;
+				lock.notifyAll();
+			}
+		}
+	}
+
+	private MaterializationInProgress startMaterialization(
+		long timestamp,
+		CheckpointStreamFactory streamFactory,
+		CheckpointOptions checkpointOptions) throws Exception {
+
+		chunks.addAll(logger.sealChunks());
+		final long materializationId = ++lastMaterializationId;
+		return new MaterializationInProgress(
+			materializationId,
+			logger.getLastChunkSequenceNumber(),
+			delegate.snapshot(materializationId, timestamp, streamFactory, checkpointOptions),
+			restoredChanges.isEmpty() ? null : restoredChanges.toLog());
+	}
+
+	private void completeMaterialization(MaterializationInProgress materialization) {
+		final long startTime = System.currentTimeMillis();
+		final List<StateObject> uploadedFiles = new ArrayList<>();
+		ChangelogMaterialization completed = null;
+		try (CloseableRegistry closeableRegistry = new CloseableRegistry()) {
+			cancelStreamRegistry.registerCloseable(closeableRegistry);
+			try {
+				completed = materialization.complete(
+					materializationStreamFactory, CheckpointedStateScope.SHARED, closeableRegistry, uploadedFiles);
+			} finally {
+				cancelStreamRegistry.unregisterCloseable(closeableRegistry);
+			}
+		} catch (Exception e) {
+			LOG.warn("Could not complete materialization {} of {}.", materialization.id, delegate, e);
+		}
+
+		boolean accepted = false;
+		synchronized (lock) {
+			materializationRunning = false;
+			if (completed != null && !disposed) {
+				pendingMaterialization = completed;
+				pendingMaterializationCheckpointId = -1L;
+				accepted = true;
+			}
+			lock.notifyAll();
+		}
+
+		if (accepted) {
+			LOG.debug("Materialization {} of {} took {} ms.",
+				materialization.id, delegate, System.currentTimeMillis() - startTime);
+		} else {
+			materialization.cancel();
+			discardQuietly(uploadedFiles);
+		}
+	}
+
+	/**
+	 * Waits until the running materialization, if any, is completed.
+	 */
+	@VisibleForTesting
+	void awaitMaterialization() throws InterruptedException {
+		synchronized (lock) {
+			while (materializationRunning) {
+				lock.wait();
+			}
+		}
+	}
+
+	@Override
+	public void notifyCheckpointComplete(long checkpointId) throws Exception {
+		final ChangelogSnapshot completedSnapshot;
+		final ChangelogMaterialization previousMaterialization;
+		synchronized (lock) {
+			completedSnapshot = pendingSnapshots.remove(checkpointId);
+			if (completedSnapshot == null) {
+				return;
+			}
+			pendingSnapshots.headMap(checkpointId).clear();
+			if (pendingMaterialization != null &&
+				pendingMaterializationCheckpointId >= 0 &&
+				pendingMaterializationCheckpointId <= checkpointId) {
+				// the materialization is either confirmed, or dropped with the subsumed checkpoint that referenced it
+				pendingMaterialization = null;
+				pendingMaterializationCheckpointId = -1L;
+			}
+			previousMaterialization = confirmedSnapshot != null ? confirmedSnapshot.materialization : null;
+			confirmedSnapshot = completedSnapshot;
+		}
+
+		while (!chunks.isEmpty() && chunks.peekFirst().sequenceNumber <= completedSnapshot.lastChunkSequenceNumber) {
+			chunks.removeFirst().drop();
+		}
+
+		if (completedSnapshot.materialization != previousMaterialization) {
+			// the wrapped backend only knows the materializations
+			delegate.notifyCheckpointComplete(completedSnapshot.materialization.id);
+		}
+	}
+
+	/**
+	 * Stops the materializations and deletes the chunks of changes. The files of the pending materialization are
+	 * discarded if no checkpoint references it.
+	 */
+	void dispose() {
+		ChangelogMaterialization unreferencedMaterialization = null;
+		synchronized (lock) {
+			disposed = true;
+			if (pendingMaterialization != null && pendingMaterializationCheckpointId < 0) {
+				unreferencedMaterialization = pendingMaterialization;
+			}
+			pendingMaterialization = null;
+		}
+
+		if (materializationExecutor != null) {
+			materializationExecutor.shutdownNow();
+		}
+		if (unreferencedMaterialization != null) {
+			discardQuietly(unreferencedMaterialization.getStateObjects());
+		}
+
+		for (StateChangeLogger.Chunk chunk : chunks) {
+			chunk.drop();
+		}
+		chunks.clear();
+		logger.dispose();
+	}
+
+	private static CheckpointStreamFactory toSharedScope(CheckpointStreamFactory streamFactory) {
+		// the materialized state is shared by the checkpoints until the next materialization
+		return (scope) -> streamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.SHARED);
+	}
+
+	private static StreamStateHandle upload(
+		CheckpointStreamFactory streamFactory,
+		CheckpointedStateScope scope,
+		CloseableRegistry closeableRegistry,
+		List<StateObject> uploadedFiles,
+		ThrowingConsumer<DataOutputView, IOException> writer) throws IOException {
+
+		CheckpointStreamFactory.CheckpointStateOutputStream out = streamFactory.createCheckpointStateOutputStream(scope);
+		closeableRegistry.registerCloseable(out);
+		try {
+			writer.accept(new DataOutputViewStreamWrapper(out));
+		} catch (IOException e) {
+			if (closeableRegistry.unregisterCloseable(out)) {
+				IOUtils.closeQuietly(out);
+			}
+			throw e;
+		}
+		if (closeableRegistry.unregisterCloseable(out)) {
+			StreamStateHandle handle = out.closeAndGetHandle();
+			if (handle != null) {
+				uploadedFiles.add(handle);
+			}
+			return handle;
+		} else {
+			throw new IOException("Stream already unregistered.");
+		}
+	}
+
+	private static void discardQuietly(List<StateObject> stateObjects) {
+		try {
+			StateUtil.bestEffortDiscardAllStateObjects(stateObjects);
+		} catch (Exception e) {
+			LOG.warn("Could not discard the files of a changelog snapshot.", e);
+		}
+	}
+
+	private static StateHandleID createFileId() {
+		return new StateHandleID(UUID.randomUUID().toString());
+	}
+
+	@Override
+	public String toString() {
+		return "ChangelogSnapshotStrategy{" +
+			"backendIdentifier=" + backendIdentifier +
+			", lastMaterializationId=" + lastMaterializationId +
+			", bufferedChunks=" + chunks.size() +
+			'}';
+	}
+
+	/**
+	 * A materialization whose synchronous part is done.
+	 */
+	private static final class MaterializationInProgress {
+
+		final long id;
+
+		final long lastChunkSequenceNumber;
+
+		final RunnableFuture<SnapshotResult<KeyedStateHandle>> delegateSnapshot;
+
+		/** The restored changes that were not applied yet, as log file. */
+		@Nullable
+		final byte[] baseLog;
+
+		MaterializationInProgress(
+			long id,
+			long lastChunkSequenceNumber,
+			RunnableFuture<SnapshotResult<KeyedStateHandle>> delegateSnapshot,
+			@Nullable byte[] baseLog) {
+			this.id = id;
+			this.lastChunkSequenceNumber = lastChunkSequenceNumber;
+			this.delegateSnapshot = delegateSnapshot;
+			this.baseLog = baseLog;
+		}
+
+		/**
+		 * Completes the snapshot of the wrapped backend and uploads the base log. The new files are added to the
+		 * given list, so that they can be discarded if the snapshot fails.
+		 */
+		ChangelogMaterialization complete(
+			CheckpointStreamFactory streamFactory,
+			CheckpointedStateScope scope,
+			CloseableRegistry closeableRegistry,
+			List<StateObject> uploadedFiles) throws Exception {
+
+			KeyedStateHandle delegateStateHandle = null;
+			SnapshotResult<KeyedStateHandle> result = FutureUtils.runIfNotDoneAndGet(delegateSnapshot);
+			if (result != null) {
+				if (result.getTaskLocalSnapshot() != null) {
+					result.getTaskLocalSnapshot().discardState();
+				}
+				delegateStateHandle = result.getJobManagerOwnedSnapshot();
+				if (delegateStateHandle != null) {
+					uploadedFiles.add(delegateStateHandle);
+				}
+			}
+
+			ChangelogSnapshot.SharedFile baseLogFile = baseLog == null ? null : new ChangelogSnapshot.SharedFile(
+				createFileId(),
+				upload(streamFactory, scope, closeableRegistry, uploadedFiles, (out) -> out.write(baseLog)));
+
+			return ChangelogMaterialization.of(id, lastChunkSequenceNumber, delegateStateHandle, baseLogFile);
+		}
+
+		void cancel() {
+			if (!delegateSnapshot.isDone()) {
+				delegateSnapshot.cancel(true);
+			}
+		}
+	}
+
+	/**
+	 * Uploads the new files of a snapshot and its meta data.
+	 */
+	private final class ChangelogAsyncSnapshotCallable extends AsyncSnapshotCallable<SnapshotResult<KeyedStateHandle>> {
+
+		private final long checkpointId;
+
+		private final CheckpointStreamFactory streamFactory;
+
+		/** Whether the snapshot is a savepoint, which owns all its files. */
+		private final boolean savepoint;
+
+		/** The last confirmed snapshot, whose files are only referenced by placeholders. */
+		@Nullable
+		private final ChangelogSnapshot base;
+
+		/** The materialization that the snapshot references, or null if it is materialized by the snapshot. */
+		@Nullable
+		private final ChangelogMaterialization materialization;
+
+		@Nullable
+		private final MaterializationInProgress materializationInProgress;
+
+		/** The log files of the confirmed snapshot that are referenced by this snapshot. */
+		private final List<ChangelogSnapshot.SharedFile> confirmedLogs;
+
+		/** The chunks that are uploaded as new log files. */
+		private final List<StateChangeLogger.Chunk> newChunks;
+
+		private final Map<Integer, StateMetaInfoSnapshot> metaInfos;
+
+		private final long lastChunkSequenceNumber;
+
+		/** The new files, which must be discarded if the snapshot fails. */
+		private final List<StateObject> uploadedFiles;
+
+		private boolean completed;
+
+		ChangelogAsyncSnapshotCallable(
+			long checkpointId,
+			CheckpointStreamFactory streamFactory,
+			boolean savepoint,
+			@Nullable ChangelogSnapshot base,
+			@Nullable ChangelogMaterialization materialization,
+			@Nullable MaterializationInProgress materializationInProgress,
+			List<ChangelogSnapshot.SharedFile> confirmedLogs,
+			List<StateChangeLogger.Chunk> newChunks,
+			Map<Integer, StateMetaInfoSnapshot> metaInfos,
+			long lastChunkSequenceNumber) {
+			this.checkpointId = checkpointId;
+			this.streamFactory = streamFactory;
+			this.savepoint = savepoint;
+			this.base = base;
+			this.materialization = materialization;
+			this.materializationInProgress = materializationInProgress;
+			this.confirmedLogs = confirmedLogs;
+			this.newChunks = newChunks;
+			this.metaInfos = metaInfos;
+			this.lastChunkSequenceNumber = lastChunkSequenceNumber;
+			this.uploadedFiles = new ArrayList<>();
+		}
+
+		@Override
+		protected SnapshotResult<KeyedStateHandle> callInternal() throws Exception {
+			ChangelogMaterialization snapshotMaterialization = materialization != null ?
+				materialization :
+				materializationInProgress.complete(
+					streamFactory,
+					savepoint ? CheckpointedStateScope.EXCLUSIVE : CheckpointedStateScope.SHARED,
+					snapshotCloseableRegistry,
+					uploadedFiles);
+
+			List<ChangelogSnapshot.SharedFile> logs = new ArrayList<>(confirmedLogs.size() + newChunks.size());
+			logs.addAll(confirmedLogs);
+			for (StateChangeLogger.Chunk chunk : newChunks) {
+				logs.add(new ChangelogSnapshot.SharedFile(
+					createFileId(),
+					upload(streamFactory, CheckpointedStateScope.SHARED, snapshotCloseableRegistry, uploadedFiles,
+						(out) -> StateChangeLogger.writeLog(out, delegate.getKeySerializer(), metaInfos, chunk::writeTo))));
+			}
+
+			ChangelogSnapshot snapshot = new ChangelogSnapshot(lastChunkSequenceNumber, snapshotMaterialization, logs);
+			if (!savepoint) {
+				synchronized (lock) {
+					pendingSnapshots.put(checkpointId, snapshot);
+				}
+			}
+
+			if (snapshot.isEmpty()) {
+				completed = true;
+				return SnapshotResult.empty();
+			}
+
+			StreamStateHandle metaDataHandle = upload(
+				streamFactory, CheckpointedStateScope.EXCLUSIVE, snapshotCloseableRegistry, uploadedFiles,
+				snapshot::writeMetaData);
+			completed = true;
+			return SnapshotResult.of(new IncrementalRemoteKeyedStateHandle(
+				savepoint ? UUID.randomUUID() : backendIdentifier,
+				keyGroupRange,
+				checkpointId,
+				snapshot.toSharedState(base),
+				Collections.emptyMap(),
+				metaDataHandle));
+		}
+
+		@Override
+		protected void cleanupProvidedResources() {
+			for (StateChangeLogger.Chunk chunk : newChunks) {
+				chunk.release();
+			}
+			if (completed) {
+				return;
+			}
+
+			if (materializationInProgress != null) {
+				materializationInProgress.cancel();
+			}
+			synchronized (lock) {
+				pendingSnapshots.remove(checkpointId);
+				if (pendingMaterializationCheckpointId == checkpointId) {
+					// the materialization was not handed over, so the next checkpoint can reference it
+					pendingMaterializationCheckpointId = -1L;
+				}
+			}
+			discardQuietly(uploadedFiles);
+		}
+
+		@Override
+		protected void logAsyncSnapshotComplete(long startTime) {
+			LOG.debug("Asynchronous part of changelog snapshot of checkpoint {} took {} ms{}.",
+				checkpointId,
+				System.currentTimeMillis() - startTime,
+				materialization == null ? " including the materialization" : "");
+		}
+	}
+}
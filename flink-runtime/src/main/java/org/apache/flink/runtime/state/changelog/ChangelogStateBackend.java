@@ -0,0 +1,287 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.annotation.PublicEvolving;
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.CheckpointingOptions;
+import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.configuration.MemorySize;
+import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.BackendBuildingException;
+import org.apache.flink.runtime.state.CheckpointStorage;
+import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CompletedCheckpointStorageLocation;
+import org.apache.flink.runtime.state.ConfigurableStateBackend;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.OperatorStateBackend;
+import org.apache.flink.runtime.state.OperatorStateHandle;
+import org.apache.flink.runtime.state.StateBackend;
+import org.apache.flink.runtime.state.heap.InternalKeyContextImpl;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+
+import javax.annotation.Nonnull;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A state backend that wraps another state backend and logs all changes of the keyed state, so that checkpoints
+ * only upload the changes since the previous checkpoint instead of a full or incremental snapshot of the state.
+ * The wrapped backend still holds the state. Its state is materialized periodically in the background with a
+ * snapshot of the wrapped backend, which bounds the length of the log that has to be replayed on recovery.
+ * The changes between two checkpoints are spilled to local files once they exceed the flush threshold.
+ *
+ * <p>The operator state, the checkpoint storage and savepoints are handled by the wrapped backend. The snapshots of
+ * the keyed state backend of the wrapped backend may be full or incremental.
+ *
+ * <p>The backend can be enabled for the configured state backend with
+ * {@link CheckpointingOptions#CHANGELOG_ENABLED}.
+ */
+@PublicEvolving
+public class ChangelogStateBackend extends AbstractStateBackend implements ConfigurableStateBackend {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The wrapped state backend. */
+	private final StateBackend delegate;
+
+	/** The minimum time between two materializations, in milliseconds.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final long materializationInterval;
+
+	/** The size of the buffered changes at which they are spilled to a local file, in bytes.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final long flushThreshold;
+
+	/**
+	 * Creates a new changelog state backend that wraps the given state backend. The materialization interval is
+	 * taken from the configuration.
+	 *
+	 * @param delegate The state backend that holds the state.
+	 */
+	public ChangelogStateBackend(StateBackend delegate) {
+		this.delegate = checkNotNull(delegate);
+		this.materializationInterval = -1L;
+		this.flushThreshold = -1L;
+	}
+
+	/**
+	 * Creates a new changelog state backend that wraps the given state backend. The flush threshold is taken from
+	 * the configuration.
+	 *
+	 * @param delegate The state backend that holds the state.
+	 * @param materializationInterval The interval of the materializations of the state, or zero to disable them.
+	 */
+	public ChangelogStateBackend(StateBackend delegate, Duration materializationInterval) {
+		checkArgument(!materializationInterval.isNegative(), "The materialization interval must not be negative.");
+		this.delegate = checkNotNull(delegate);
+		this.materializationInterval = materializationInterval.toMillis();
+		this.flushThreshold = -1L;
+	}
+
+	/**
+	 * Creates a new changelog state backend that wraps the given state backend.
+	 *
+	 * @param delegate The state backend that holds the state.
+	 * @param materializationInterval The interval of the materializations of the state, or zero to disable them.
+	 * @param flushThreshold The size of the buffered changes at which they are spilled to a local file.
+	 */
+	public ChangelogStateBackend(StateBackend delegate, Duration materializationInterval, MemorySize flushThreshold) {
+		checkArgument(!materializationInterval.isNegative(), "The materialization interval must not be negative.");
+		checkArgument(flushThreshold.getBytes() > 0 && flushThreshold.getBytes() <= Integer.MAX_VALUE,
+			"The flush threshold must be positive and less than 2 GB.");
+		this.delegate = checkNotNull(delegate);
+		this.materializationInterval = materializationInterval.toMillis();
+		this.flushThreshold = flushThreshold.getBytes();
+	}
+
+	/**
+	 * Private constructor that creates a re-configured copy of the state backend.
+	 *
+	 * @param original The state backend to re-configure
+	 * @param configuration The configuration
+	 * @param classLoader The class loader
+	 */
+	private ChangelogStateBackend(ChangelogStateBackend original, ReadableConfig configuration, ClassLoader classLoader) {
+		this.delegate = original.delegate instanceof ConfigurableStateBackend ?
+			((ConfigurableStateBackend) original.delegate).configure(configuration, classLoader) :
+			original.delegate;
+
+		this.materializationInterval = original.materializationInterval >= 0 ?
+			original.materializationInterval :
+			configuration.get(CheckpointingOptions.CHANGELOG_MATERIALIZATION_INTERVAL).toMillis();
+
+		this.flushThreshold = original.flushThreshold >= 0 ?
+			original.flushThreshold :
+			configuration.get(CheckpointingOptions.CHANGELOG_FLUSH_THRESHOLD).getBytes();
+	}
+
+	// ------------------------------------------------------------------------
+	//  Properties
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Gets the wrapped state backend, which holds the state.
+	 */
+	public StateBackend getDelegate() {
+		return delegate;
+	}
+
+	/**
+	 * Gets the interval of the materializations of the state, in milliseconds.
+	 */
+	public long getMaterializationInterval() {
+		return materializationInterval >= 0 ?
+			materializationInterval :
+			CheckpointingOptions.CHANGELOG_MATERIALIZATION_INTERVAL.defaultValue().toMillis();
+	}
+
+	/**
+	 * Gets the size of the buffered changes at which they are spilled to a local file, in bytes.
+	 */
+	public int getFlushThreshold() {
+		return (int) (flushThreshold >= 0 ?
+			flushThreshold :
+			CheckpointingOptions.CHANGELOG_FLUSH_THRESHOLD.defaultValue().getBytes());
+	}
+
+	// ------------------------------------------------------------------------
+	//  Reconfiguration
+	// ------------------------------------------------------------------------
+
+	@Override
+	public ChangelogStateBackend configure(ReadableConfig config, ClassLoader classLoader)
+		throws IllegalConfigurationException {
+		return new ChangelogStateBackend(this, config, classLoader);
+	}
+
+	// ------------------------------------------------------------------------
+	//  Checkpoint storage and state backends
+	// ------------------------------------------------------------------------
+
+	@Override
+	public CompletedCheckpointStorageLocation resolveCheckpoint(String externalPointer) throws IOException {
+		return delegate.resolveCheckpoint(externalPointer);
+	}
+
+	@Override
+	public CheckpointStorage createCheckpointStorage(JobID jobId) throws IOException {
+		return delegate.createCheckpointStorage(jobId);
+	}
+
+	@Override
+	public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+		Environment env,
+		JobID jobID,
+		String operatorIdentifier,
+		TypeSerializer<K> keySerializer,
+		int numberOfKeyGroups,
+		KeyGroupRange keyGroupRange,
+		TaskKvStateRegistry kvStateRegistry,
+		TtlTimeProvider ttlTimeProvider,
+		MetricGroup metricGroup,
+		@Nonnull Collection<KeyedStateHandle> stateHandles,
+		CloseableRegistry cancelStreamRegistry) throws IOException {
+
+		RestoredStateChanges<K> restoredChanges = new RestoredStateChanges<>(keySerializer);
+		ChangelogRestoreOperation<K> restoreOperation = new ChangelogRestoreOperation<>(
+			stateHandles,
+			keyGroupRange,
+			env.getUserClassLoader(),
+			cancelStreamRegistry,
+			restoredChanges);
+
+		AbstractKeyedStateBackend<K> keyedStateBackend;
+		CheckpointStreamFactory materializationStreamFactory;
+		try {
+			// the materializations only write to the shared state, which does not depend on the checkpoint
+			materializationStreamFactory = delegate.createCheckpointStorage(jobID)
+				.resolveCheckpointStorageLocation(0L, CheckpointStorageLocationReference.getDefault());
+			restoreOperation.restore();
+			keyedStateBackend = delegate.createKeyedStateBackend(
+				env,
+				jobID,
+				operatorIdentifier,
+				keySerializer,
+				numberOfKeyGroups,
+				keyGroupRange,
+				kvStateRegistry,
+				ttlTimeProvider,
+				metricGroup,
+				restoreOperation.getDelegateStateHandles(),
+				cancelStreamRegistry);
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new BackendBuildingException("Failed when trying to restore changelog state backend", e);
+		}
+
+		return new ChangelogKeyedStateBackend<>(
+			keyedStateBackend,
+			kvStateRegistry,
+			env.getUserClassLoader(),
+			env.getExecutionConfig(),
+			ttlTimeProvider,
+			cancelStreamRegistry,
+			new InternalKeyContextImpl<>(keyGroupRange, numberOfKeyGroups),
+			restoredChanges,
+			restoreOperation.getBackendIdentifier(),
+			restoreOperation.getConfirmedSnapshot(),
+			restoreOperation.getLastMaterializationId(),
+			materializationStreamFactory,
+			getMaterializationInterval(),
+			getFlushThreshold(),
+			env.getIOManager() != null ? env.getIOManager().getSpillingDirectories() : new File[0]);
+	}
+
+	@Override
+	public OperatorStateBackend createOperatorStateBackend(
+		Environment env,
+		String operatorIdentifier,
+		@Nonnull Collection<OperatorStateHandle> stateHandles,
+		CloseableRegistry cancelStreamRegistry) throws Exception {
+		return delegate.createOperatorStateBackend(env, operatorIdentifier, stateHandles, cancelStreamRegistry);
+	}
+
+	// ------------------------------------------------------------------------
+	//  utilities
+	// ------------------------------------------------------------------------
+
+	@Override
+	public String toString() {
+		return "Changelog State Backend (delegate: " + delegate +
+			", materializationInterval: " + materializationInterval +
+			", flushThreshold: " + flushThreshold + ")";
+	}
+}
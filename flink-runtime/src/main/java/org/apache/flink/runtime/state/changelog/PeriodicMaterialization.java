@@ -0,0 +1,38 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+/**
+ * A keyed state backend that materializes its state periodically in the background, like the
+ * {@link ChangelogKeyedStateBackend}. The task calls {@link #triggerMaterialization()} periodically from its main
+ * thread.
+ */
+public interface PeriodicMaterialization {
+
+	/**
+	 * Returns the interval in milliseconds in which {@link #triggerMaterialization()} should be called, or 0 if the
+	 * periodic materialization is disabled.
+	 */
+	long getMaterializationInterval();
+
+	/**
+	 * Triggers a materialization of the state, which completes asynchronously. Must be called from the task thread.
+	 */
+	void triggerMaterialization();
+}
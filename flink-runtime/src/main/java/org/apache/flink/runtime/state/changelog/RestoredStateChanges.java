@@ -0,0 +1,328 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerSchemaCompatibility;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshot;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshotSerializationUtil;
+import org.apache.flink.api.common.typeutils.base.MapSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
+import org.apache.flink.runtime.state.KeyedStateBackend;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.RegisteredPriorityQueueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.internal.InternalAppendingState;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.internal.InternalListState;
+import org.apache.flink.runtime.state.internal.InternalMapState;
+import org.apache.flink.runtime.state.internal.InternalValueState;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoReader;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshotReadersWriters;
+import org.apache.flink.util.StateMigrationException;
+
+import javax.annotation.Nonnull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The state changes that were restored from the log files of a {@link ChangelogKeyedStateBackend}, but not yet
+ * applied to the wrapped backend. The log only contains the serializers of the states, so the changes of a state are
+ * applied once the state is registered again, e.g. when the operator asks for it with its state descriptor.
+ *
+ * @param <K> The type of the keys.
+ */
+final class RestoredStateChanges<K> {
+
+	private final TypeSerializer<K> keySerializer;
+
+	/** The changes of every state that was not yet registered again, in the order of the logs. */
+	private final Map<String, List<Changes>> changesByStateName;
+
+	RestoredStateChanges(TypeSerializer<K> keySerializer) {
+		this.keySerializer = keySerializer;
+		this.changesByStateName = new LinkedHashMap<>();
+	}
+
+	boolean isEmpty() {
+		return changesByStateName.isEmpty();
+	}
+
+	/**
+	 * Reads the changes in the given key-group range from a log file, see {@link StateChangeLogger}.
+	 */
+	void readLog(
+		@Nonnull DataInputView in,
+		@Nonnull ClassLoader userCodeClassLoader,
+		@Nonnull KeyGroupRange keyGroupRange) throws IOException, StateMigrationException {
+
+		final TypeSerializerSnapshot<K> keySerializerSnapshot =
+			TypeSerializerSnapshotSerializationUtil.readSerializerSnapshot(in, userCodeClassLoader, null);
+		final TypeSerializerSchemaCompatibility<K> keySerializerCompatibility =
+			keySerializerSnapshot.resolveSchemaCompatibility(keySerializer);
+		if (keySerializerCompatibility.isCompatibleAfterMigration() || keySerializerCompatibility.isIncompatible()) {
+			throw new StateMigrationException("The new key serializer must be compatible.");
+		}
+
+		final StateMetaInfoReader metaInfoReader = StateMetaInfoSnapshotReadersWriters.getReader(
+			in.readInt(),
+			StateMetaInfoSnapshotReadersWriters.StateTypeHint.KEYED_STATE);
+
+		final int numStates = in.readInt();
+		final Map<Integer, Changes> changesByStateId = new HashMap<>(numStates);
+		for (int i = 0; i < numStates; ++i) {
+			final int stateId = in.readInt();
+			changesByStateId.put(stateId, new Changes(metaInfoReader.readStateMetaInfoSnapshot(in, userCodeClassLoader)));
+		}
+
+		byte operation;
+		while ((operation = in.readByte()) != StateChangeLogger.END) {
+			final Changes changes = changesByStateId.get(in.readInt());
+			final int keyGroup = in.readInt();
+			final int length = in.readInt();
+			if (changes == null) {
+				throw new IOException("Change of unknown state in state changelog.");
+			}
+			if (keyGroupRange.contains(keyGroup)) {
+				changes.records.writeByte(operation);
+				changes.records.writeInt(keyGroup);
+				changes.records.writeInt(length);
+				changes.records.write(in, length);
+			} else {
+				in.skipBytesToRead(length);
+			}
+		}
+
+		for (Changes changes : changesByStateId.values()) {
+			if (changes.records.length() > 0) {
+				changesByStateName
+					.computeIfAbsent(changes.metaInfo.getName(), (name) -> new ArrayList<>())
+					.add(changes);
+			}
+		}
+	}
+
+	/**
+	 * Applies the restored changes of the given key/value state, if any. This changes the current key of the backend.
+	 */
+	<N, V> void applyToKvState(
+		String stateName,
+		InternalKvState<K, N, V> state,
+		KeyedStateBackend<K> backend) throws Exception {
+
+		final List<Changes> stateChanges = changesByStateName.remove(stateName);
+		if (stateChanges == null) {
+			return;
+		}
+
+		for (Changes changes : stateChanges) {
+			checkBackendStateType(changes, StateMetaInfoSnapshot.BackendStateType.KEY_VALUE);
+			final RegisteredKeyValueStateBackendMetaInfo<N, V> metaInfo =
+				new RegisteredKeyValueStateBackendMetaInfo<>(changes.metaInfo);
+			final TypeSerializer<N> namespaceSerializer = metaInfo.getPreviousNamespaceSerializer();
+			final TypeSerializer<V> valueSerializer = metaInfo.getPreviousStateSerializer();
+
+			final DataInputDeserializer in = changes.recordsInput();
+			while (in.available() > 0) {
+				final byte operation = in.readByte();
+				in.skipBytesToRead(8); // key-group and length
+
+				backend.setCurrentKey(keySerializer.deserialize(in));
+				state.setCurrentNamespace(namespaceSerializer.deserialize(in));
+
+				switch (operation) {
+					case StateChangeLogger.SET:
+						setValue(metaInfo.getStateType(), state, valueSerializer.deserialize(in));
+						break;
+					case StateChangeLogger.CLEAR:
+						state.clear();
+						break;
+					case StateChangeLogger.ADD:
+						addToList(state, valueSerializer.deserialize(in));
+						break;
+					case StateChangeLogger.PUT:
+					case StateChangeLogger.REMOVE:
+						changeMap(operation, state, valueSerializer, in);
+						break;
+					default:
+						throw new IOException("Unknown operation in state changelog: " + operation);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Applies the restored changes of the given priority queue state, if any.
+	 */
+	<T> void applyToPriorityQueue(String stateName, KeyGroupedInternalPriorityQueue<T> queue) throws IOException {
+		final List<Changes> stateChanges = changesByStateName.remove(stateName);
+		if (stateChanges == null) {
+			return;
+		}
+
+		for (Changes changes : stateChanges) {
+			checkBackendStateType(changes, StateMetaInfoSnapshot.BackendStateType.PRIORITY_QUEUE);
+			final TypeSerializer<T> elementSerializer =
+				new RegisteredPriorityQueueStateBackendMetaInfo<T>(changes.metaInfo).getPreviousElementSerializer();
+
+			final DataInputDeserializer in = changes.recordsInput();
+			while (in.available() > 0) {
+				final byte operation = in.readByte();
+				in.skipBytesToRead(8); // key-group and length
+
+				final T element = elementSerializer.deserialize(in);
+				switch (operation) {
+					case StateChangeLogger.ADD_ELEMENT:
+						queue.add(element);
+						break;
+					case StateChangeLogger.REMOVE_ELEMENT:
+						queue.remove(element);
+						break;
+					default:
+						throw new IOException("Unknown operation in state changelog: " + operation);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns a log file with all changes that were not applied yet, see {@link StateChangeLogger}.
+	 */
+	byte[] toLog() throws IOException {
+		final Map<Integer, StateMetaInfoSnapshot> metaInfos = new HashMap<>();
+		final DataOutputSerializer records = new DataOutputSerializer(4096);
+
+		for (List<Changes> stateChanges : changesByStateName.values()) {
+			for (Changes changes : stateChanges) {
+				final int stateId = metaInfos.size();
+				// the restored meta info has no serializers, which are required to write it
+				metaInfos.put(
+					stateId,
+					changes.metaInfo.getBackendStateType() == StateMetaInfoSnapshot.BackendStateType.PRIORITY_QUEUE ?
+						new RegisteredPriorityQueueStateBackendMetaInfo<>(changes.metaInfo).snapshot() :
+						new RegisteredKeyValueStateBackendMetaInfo<>(changes.metaInfo).snapshot());
+
+				final DataInputDeserializer in = changes.recordsInput();
+				while (in.available() > 0) {
+					records.writeByte(in.readByte());
+					records.writeInt(stateId);
+					records.writeInt(in.readInt());
+					final int length = in.readInt();
+					records.writeInt(length);
+					records.write(in, length);
+				}
+			}
+		}
+
+		final DataOutputSerializer log = new DataOutputSerializer(records.length() + 1024);
+		StateChangeLogger.writeLog(
+			log, keySerializer, metaInfos, (out) -> out.write(records.getSharedBuffer(), 0, records.length()));
+		return log.getCopyOfBuffer();
+	}
+
+	/**
+	 * Returns the names of the states whose changes were not applied yet.
+	 */
+	Iterable<String> getStateNames() {
+		return Collections.unmodifiableSet(changesByStateName.keySet());
+	}
+
+	private static void checkBackendStateType(Changes changes, StateMetaInfoSnapshot.BackendStateType expected) {
+		if (changes.metaInfo.getBackendStateType() != expected) {
+			throw new IllegalStateException("The state " + changes.metaInfo.getName() + " was logged as " +
+				changes.metaInfo.getBackendStateType() + " state, but is registered as " + expected + " state.");
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> void setValue(StateDescriptor.Type stateType, InternalKvState<?, ?, V> state, V value) throws Exception {
+		switch (stateType) {
+			case VALUE:
+				((InternalValueState<?, ?, V>) state).update(value);
+				break;
+			case LIST:
+				((InternalListState<?, ?, Object>) state).update((List<Object>) value);
+				break;
+			case MAP:
+				state.clear();
+				((InternalMapState<?, ?, Object, Object>) state).putAll((Map<Object, Object>) value);
+				break;
+			case REDUCING:
+			case AGGREGATING:
+			case FOLDING:
+				((InternalAppendingState<?, ?, ?, V, ?>) state).updateInternal(value);
+				break;
+			default:
+				throw new IllegalStateException("Unsupported state type: " + stateType);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addToList(InternalKvState<?, ?, ?> state, Object values) throws Exception {
+		((InternalListState<?, ?, Object>) state).addAll((List<Object>) values);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void changeMap(
+		byte operation,
+		InternalKvState<?, ?, ?> state,
+		TypeSerializer<?> valueSerializer,
+		DataInputView in) throws Exception {
+
+		final MapSerializer<Object, Object> mapSerializer = (MapSerializer<Object, Object>) valueSerializer;
+		final InternalMapState<?, ?, Object, Object> mapState = (InternalMapState<?, ?, Object, Object>) state;
+		final Object userKey = mapSerializer.getKeySerializer().deserialize(in);
+		if (operation == StateChangeLogger.PUT) {
+			mapState.put(userKey, in.readBoolean() ? null : mapSerializer.getValueSerializer().deserialize(in));
+		} else {
+			mapState.remove(userKey);
+		}
+	}
+
+	/**
+	 * The changes of a state from one log file, with the meta info of the state in that file.
+	 */
+	private static final class Changes {
+
+		final StateMetaInfoSnapshot metaInfo;
+
+		/** The records without the state id, i.e. operation, key-group, length and payload. */
+		final DataOutputSerializer records;
+
+		Changes(StateMetaInfoSnapshot metaInfo) {
+			this.metaInfo = metaInfo;
+			this.records = new DataOutputSerializer(1024);
+		}
+
+		DataInputDeserializer recordsInput() {
+			return new DataInputDeserializer(records.getSharedBuffer(), 0, records.length());
+		}
+	}
+}
@@ -0,0 +1,406 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.TypeSerializerSnapshotSerializationUtil;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.RegisteredPriorityQueueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.heap.InternalKeyContext;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshotReadersWriters;
+import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.function.ThrowingConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Appends the changes of the keyed state of a {@link ChangelogKeyedStateBackend} to an in-memory buffer, which is
+ * sealed into chunks of changes that are uploaded by the checkpoints. Once the buffered changes reach the flush
+ * threshold, they are sealed into a chunk that is spilled to a local file, so that the changes between two
+ * checkpoints do not need to fit into memory.
+ *
+ * <p>A log file starts with the snapshot of the key serializer, the version of the meta info format and the meta info
+ * of every state that changes in it, each prefixed with the id of the state. It is followed by the change records,
+ * and ends with {@link #END}. Each record consists of the operation, the state id, the key-group and the length of
+ * the payload, followed by the payload. For key/value states, the payload starts with the key and the namespace,
+ * followed by the serialized values of the operation. For priority queue states, the payload is the element.
+ *
+ * @param <K> The type of the keys.
+ */
+final class StateChangeLogger<K> {
+
+	/** Marks the end of the records of a log file. */
+	static final byte END = 0;
+
+	/** Sets the value of a key/value state, i.e. the value, list, map or accumulator. */
+	static final byte SET = 1;
+
+	/** Clears a key/value state. */
+	static final byte CLEAR = 2;
+
+	/** Adds the elements of a list to a list state. */
+	static final byte ADD = 3;
+
+	/** Puts a key and value into a map state. */
+	static final byte PUT = 4;
+
+	/** Removes a key from a map state. */
+	static final byte REMOVE = 5;
+
+	/** Adds an element to a priority queue state. */
+	static final byte ADD_ELEMENT = 6;
+
+	/** Removes an element from a priority queue state. */
+	static final byte REMOVE_ELEMENT = 7;
+
+	private static final Logger LOG = LoggerFactory.getLogger(StateChangeLogger.class);
+
+	private final TypeSerializer<K> keySerializer;
+
+	private final InternalKeyContext<K> keyContext;
+
+	/** The states that were registered with this logger, by name. */
+	private final Map<String, LoggedState> statesByName;
+
+	/** The changes since the last chunk was sealed. */
+	private final DataOutputSerializer changes;
+
+	/** The size of the buffered changes at which they are spilled as a chunk. */
+	private final int flushThreshold;
+
+	/** The directories to which chunks are spilled, in round-robin order. */
+	private final File[] spillDirectories;
+
+	private int nextSpillDirectory;
+
+	/** The chunks that were sealed since the last call of {@link #sealChunks()}, in order. */
+	private final List<Chunk> sealedChunks;
+
+	private long nextChunkSequenceNumber;
+
+	/** The payload of the record that is currently written. */
+	private final DataOutputSerializer payload;
+
+	/** The key-group of the record that is currently written. */
+	private int payloadKeyGroup;
+
+	StateChangeLogger(
+		TypeSerializer<K> keySerializer,
+		InternalKeyContext<K> keyContext,
+		int flushThreshold,
+		File[] spillDirectories) {
+		Preconditions.checkArgument(flushThreshold > 0, "The flush threshold must be positive.");
+		this.keySerializer = Preconditions.checkNotNull(keySerializer);
+		this.keyContext = Preconditions.checkNotNull(keyContext);
+		this.flushThreshold = flushThreshold;
+		this.spillDirectories = Preconditions.checkNotNull(spillDirectories);
+		this.statesByName = new HashMap<>();
+		this.changes = new DataOutputSerializer(4096);
+		this.payload = new DataOutputSerializer(128);
+		this.sealedChunks = new ArrayList<>();
+	}
+
+	/**
+	 * Registers a key/value state, or updates the serializers of a state that was registered before.
+	 *
+	 * @return The id of the state in the log.
+	 */
+	<N, V> int registerKvState(StateDescriptor.Type stateType, String name, InternalKvState<K, N, V> state) {
+		return register(name, () -> new RegisteredKeyValueStateBackendMetaInfo<>(
+			stateType,
+			name,
+			state.getNamespaceSerializer(),
+			state.getValueSerializer()).snapshot());
+	}
+
+	/**
+	 * Registers a priority queue state, or updates the serializer of a state that was registered before.
+	 *
+	 * @return The id of the state in the log.
+	 */
+	<T> int registerPriorityQueueState(String name, TypeSerializer<T> elementSerializer) {
+		return register(name, () -> new RegisteredPriorityQueueStateBackendMetaInfo<>(
+			name,
+			elementSerializer).snapshot());
+	}
+
+	private int register(String name, Supplier<StateMetaInfoSnapshot> metaInfoSupplier) {
+		LoggedState previous = statesByName.get(name);
+		int id = previous != null ? previous.id : statesByName.size();
+		statesByName.put(name, new LoggedState(id, metaInfoSupplier));
+		return id;
+	}
+
+	/**
+	 * Starts a record for the current key and the given namespace, and returns the output for the values of the
+	 * operation. The record must be finished with {@link #endRecord(byte, int)}.
+	 */
+	<N> DataOutputView beginRecord(N namespace, TypeSerializer<N> namespaceSerializer) throws IOException {
+		return beginRecord(
+			keyContext.getCurrentKey(),
+			keyContext.getCurrentKeyGroupIndex(),
+			namespace,
+			namespaceSerializer);
+	}
+
+	/**
+	 * Starts a record for the given key and namespace, and returns the output for the values of the operation.
+	 * The record must be finished with {@link #endRecord(byte, int)}.
+	 */
+	<N> DataOutputView beginRecord(K key, N namespace, TypeSerializer<N> namespaceSerializer) throws IOException {
+		return beginRecord(
+			key,
+			KeyGroupRangeAssignment.assignToKeyGroup(key, keyContext.getNumberOfKeyGroups()),
+			namespace,
+			namespaceSerializer);
+	}
+
+	private <N> DataOutputView beginRecord(
+		K key,
+		int keyGroup,
+		N namespace,
+		TypeSerializer<N> namespaceSerializer) throws IOException {
+
+		payload.clear();
+		payloadKeyGroup = keyGroup;
+		keySerializer.serialize(key, payload);
+		namespaceSerializer.serialize(namespace, payload);
+		return payload;
+	}
+
+	/**
+	 * Starts a record for an element of a priority queue with the given key, and returns the output for the element.
+	 * The record must be finished with {@link #endRecord(byte, int)}.
+	 */
+	DataOutputView beginElementRecord(Object elementKey) {
+		payload.clear();
+		payloadKeyGroup = KeyGroupRangeAssignment.assignToKeyGroup(elementKey, keyContext.getNumberOfKeyGroups());
+		return payload;
+	}
+
+	/**
+	 * Appends the record that was started last to the log, and spills the buffered changes if they reached the
+	 * flush threshold.
+	 */
+	void endRecord(byte operation, int stateId) throws IOException {
+		changes.writeByte(operation);
+		changes.writeInt(stateId);
+		changes.writeInt(payloadKeyGroup);
+		changes.writeInt(payload.length());
+		changes.write(payload.getSharedBuffer(), 0, payload.length());
+
+		if (changes.length() >= flushThreshold && spillDirectories.length > 0) {
+			File directory = spillDirectories[nextSpillDirectory];
+			nextSpillDirectory = (nextSpillDirectory + 1) % spillDirectories.length;
+			File file = File.createTempFile("changelog-", ".chunk", directory);
+			try {
+				Files.write(file.toPath(), changes.getCopyOfBuffer());
+			} catch (IOException e) {
+				deleteQuietly(file);
+				throw e;
+			}
+			sealedChunks.add(new Chunk(nextChunkSequenceNumber++, null, file));
+			changes.clear();
+		}
+	}
+
+	/**
+	 * Seals the buffered changes into a chunk, and returns all chunks that were sealed since the last call, in order.
+	 * The chunks are numbered consecutively.
+	 */
+	List<Chunk> sealChunks() {
+		if (changes.length() > 0) {
+			sealedChunks.add(new Chunk(nextChunkSequenceNumber++, changes.getCopyOfBuffer(), null));
+			changes.clear();
+		}
+		List<Chunk> chunks = new ArrayList<>(sealedChunks);
+		sealedChunks.clear();
+		return chunks;
+	}
+
+	/**
+	 * Returns the sequence number of the last sealed chunk, or -1 if no chunk was sealed yet.
+	 */
+	long getLastChunkSequenceNumber() {
+		return nextChunkSequenceNumber - 1;
+	}
+
+	/**
+	 * Drops the chunks that were sealed but not returned by {@link #sealChunks()} yet.
+	 */
+	void dispose() {
+		for (Chunk chunk : sealedChunks) {
+			chunk.drop();
+		}
+		sealedChunks.clear();
+	}
+
+	/**
+	 * Returns the meta info of all registered states by their id.
+	 */
+	Map<Integer, StateMetaInfoSnapshot> snapshotMetaInfos() {
+		Map<Integer, StateMetaInfoSnapshot> metaInfos = new HashMap<>(statesByName.size());
+		for (LoggedState state : statesByName.values()) {
+			metaInfos.put(state.id, state.metaInfoSupplier.get());
+		}
+		return metaInfos;
+	}
+
+	/**
+	 * Writes a log file with the given meta info and the records that are written by the given writer.
+	 */
+	static <K> void writeLog(
+		@Nonnull DataOutputView out,
+		@Nonnull TypeSerializer<K> keySerializer,
+		@Nonnull Map<Integer, StateMetaInfoSnapshot> metaInfos,
+		@Nonnull ThrowingConsumer<DataOutputView, IOException> recordsWriter) throws IOException {
+
+		TypeSerializerSnapshotSerializationUtil.writeSerializerSnapshot(
+			out,
+			keySerializer.snapshotConfiguration(),
+			keySerializer);
+		out.writeInt(StateMetaInfoSnapshotReadersWriters.CURRENT_STATE_META_INFO_SNAPSHOT_VERSION);
+		out.writeInt(metaInfos.size());
+		for (Map.Entry<Integer, StateMetaInfoSnapshot> metaInfo : metaInfos.entrySet()) {
+			out.writeInt(metaInfo.getKey());
+			StateMetaInfoSnapshotReadersWriters.getWriter().writeStateMetaInfoSnapshot(metaInfo.getValue(), out);
+		}
+		recordsWriter.accept(out);
+		out.writeByte(END);
+	}
+
+	private static void deleteQuietly(File file) {
+		if (!file.delete() && file.exists()) {
+			LOG.warn("Could not delete spilled changelog chunk {}.", file);
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "StateChangeLogger{" +
+			"states=" + statesByName.keySet() +
+			", bufferedChanges=" + changes.length() +
+			", sealedChunks=" + sealedChunks.size() +
+			'}';
+	}
+
+	/**
+	 * A sealed chunk of change records, which is kept in memory or spilled to a local file. A chunk is dropped once
+	 * it is no longer needed, and its file is deleted as soon as no upload reads it anymore.
+	 */
+	static final class Chunk {
+
+		final long sequenceNumber;
+
+		@Nullable
+		private final byte[] changes;
+
+		@Nullable
+		private final File file;
+
+		/** The number of uploads that read the chunk. Guarded by this chunk. */
+		private int references;
+
+		private boolean dropped;
+
+		Chunk(long sequenceNumber, @Nullable byte[] changes, @Nullable File file) {
+			this.sequenceNumber = sequenceNumber;
+			this.changes = changes;
+			this.file = file;
+		}
+
+		/**
+		 * Prevents that the file of the chunk is deleted until {@link #release()} is called.
+		 */
+		synchronized void retain() {
+			++references;
+		}
+
+		synchronized void release() {
+			--references;
+			deleteIfUnused();
+		}
+
+		synchronized void drop() {
+			dropped = true;
+			deleteIfUnused();
+		}
+
+		private void deleteIfUnused() {
+			if (dropped && references == 0 && file != null) {
+				deleteQuietly(file);
+			}
+		}
+
+		void writeTo(DataOutputView out) throws IOException {
+			if (changes != null) {
+				out.write(changes);
+			} else {
+				try (InputStream in = Files.newInputStream(file.toPath())) {
+					byte[] buffer = new byte[4096];
+					int read;
+					while ((read = in.read(buffer)) >= 0) {
+						out.write(buffer, 0, read);
+					}
+				}
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "Chunk{sequenceNumber=" + sequenceNumber + (file != null ? ", file=" + file : "") + '}';
+		}
+	}
+
+	/**
+	 * A state whose changes are logged.
+	 */
+	private static final class LoggedState {
+
+		final int id;
+
+		/** Creates the meta info of the state with its current serializers. */
+		final Supplier<StateMetaInfoSnapshot> metaInfoSupplier;
+
+		LoggedState(int id, Supplier<StateMetaInfoSnapshot> metaInfoSupplier) {
+			this.id = id;
+			this.metaInfoSupplier = metaInfoSupplier;
+		}
+	}
+}
@@ -52,6 +52,10 @@ public class FsCheckpointStorage extends AbstractFsCheckpointStorage {
 
 	private final int writeBufferSize;
 
+	/** The manager of the files that the exclusive state of checkpoints is written to as segments, null if disabled. */
+	@Nullable
+	private final FsSegmentFileManager segmentFileManager;
+
 	private boolean baseLocationsInitialized = false;
 
 	public FsCheckpointStorage(
@@ -61,12 +65,24 @@ public class FsCheckpointStorage extends AbstractFsCheckpointStorage {
 			int fileSizeThreshold,
 			int writeBufferSize) throws IOException {
 
+		this(checkpointBaseDirectory, defaultSavepointDirectory, jobId, fileSizeThreshold, writeBufferSize, false);
+	}
+
+	public FsCheckpointStorage(
+			Path checkpointBaseDirectory,
+			@Nullable Path defaultSavepointDirectory,
+			JobID jobId,
+			int fileSizeThreshold,
+			int writeBufferSize,
+			boolean segmentFilesEnabled) throws IOException {
+
 		this(checkpointBaseDirectory.getFileSystem(),
 				checkpointBaseDirectory,
 				defaultSavepointDirectory,
 				jobId,
 				fileSizeThreshold,
-				writeBufferSize);
+				writeBufferSize,
+				segmentFilesEnabled);
 	}
 
 	public FsCheckpointStorage(
@@ -77,6 +93,18 @@ public class FsCheckpointStorage extends AbstractFsCheckpointStorage {
 			int fileSizeThreshold,
 			int writeBufferSize) throws IOException {
 
+		this(fs, checkpointBaseDirectory, defaultSavepointDirectory, jobId, fileSizeThreshold, writeBufferSize, false);
+	}
+
+	public FsCheckpointStorage(
+			FileSystem fs,
+			Path checkpointBaseDirectory,
+			@Nullable Path defaultSavepointDirectory,
+			JobID jobId,
+			int fileSizeThreshold,
+			int writeBufferSize,
+			boolean segmentFilesEnabled) throws IOException {
+
 		super(jobId, defaultSavepointDirectory);
 
 		checkArgument(fileSizeThreshold >= 0);
@@ -88,6 +116,7 @@ public class FsCheckpointStorage extends AbstractFsCheckpointStorage {
 		this.taskOwnedStateDirectory = new Path(checkpointsDirectory, CHECKPOINT_TASK_OWNED_STATE_DIR);
 		this.fileSizeThreshold = fileSizeThreshold;
 		this.writeBufferSize = writeBufferSize;
+		this.segmentFileManager = segmentFilesEnabled ? new FsSegmentFileManager(fs) : null;
 	}
 
 	// ------------------------------------------------------------------------
@@ -150,7 +179,9 @@ public class FsCheckpointStorage extends AbstractFsCheckpointStorage {
 					taskOwnedStateDirectory,
 					reference,
 					fileSizeThreshold,
-					writeBufferSize);
+					writeBufferSize,
+					segmentFileManager,
+					checkpointId);
 		}
 		else {
 			// location encoded in the reference
@@ -176,6 +207,13 @@ public class FsCheckpointStorage extends AbstractFsCheckpointStorage {
 				fileSizeThreshold);
 	}
 
+	@Override
+	public void finishCheckpointStreams(long checkpointId) throws IOException {
+		if (segmentFileManager != null) {
+			segmentFileManager.closeFiles(checkpointId);
+		}
+	}
+
 	@Override
 	protected CheckpointStorageLocation createSavepointLocation(FileSystem fs, Path location) {
 		final CheckpointStorageLocationReference reference = encodePathAsReference(location);
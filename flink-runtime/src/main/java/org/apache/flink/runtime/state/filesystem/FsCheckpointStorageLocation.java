@@ -26,6 +26,8 @@ import org.apache.flink.runtime.state.CheckpointMetadataOutputStream;
 import org.apache.flink.runtime.state.CheckpointStorageLocation;
 import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -61,7 +63,21 @@ public class FsCheckpointStorageLocation extends FsCheckpointStreamFactory imple
 			int fileStateSizeThreshold,
 			int writeBufferSize) {
 
-		super(fileSystem, checkpointDir, sharedStateDir, fileStateSizeThreshold, writeBufferSize);
+		this(fileSystem, checkpointDir, sharedStateDir, taskOwnedStateDir, reference, fileStateSizeThreshold, writeBufferSize, null, -1L);
+	}
+
+	FsCheckpointStorageLocation(
+			FileSystem fileSystem,
+			Path checkpointDir,
+			Path sharedStateDir,
+			Path taskOwnedStateDir,
+			CheckpointStorageLocationReference reference,
+			int fileStateSizeThreshold,
+			int writeBufferSize,
+			@Nullable FsSegmentFileManager segmentFileManager,
+			long checkpointId) {
+
+		super(fileSystem, checkpointDir, sharedStateDir, fileStateSizeThreshold, writeBufferSize, segmentFileManager, checkpointId);
 
 		checkArgument(fileStateSizeThreshold >= 0);
 		checkArgument(writeBufferSize >= 0);
@@ -84,6 +84,13 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 	/** Cached handle to the file system for file operations. */
 	private final FileSystem filesystem;
 
+	/** The manager of the files that exclusive state is written to as segments, null if disabled. */
+	@Nullable
+	private final FsSegmentFileManager segmentFileManager;
+
+	/** The ID of the checkpoint that the streams of this factory write state for. */
+	private final long checkpointId;
+
 	/**
 	 * Creates a new stream factory that stores its checkpoint data in the file system and location
 	 * defined by the given Path.
@@ -105,6 +112,23 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 			int fileStateSizeThreshold,
 			int writeBufferSize) {
 
+		this(fileSystem, checkpointDirectory, sharedStateDirectory, fileStateSizeThreshold, writeBufferSize, null, -1L);
+	}
+
+	/**
+	 * Creates a new stream factory like {@link #FsCheckpointStreamFactory(FileSystem, Path, Path, int, int)},
+	 * whose streams for exclusive state write their state as segments of the files of the given manager,
+	 * if it is not null.
+	 */
+	FsCheckpointStreamFactory(
+			FileSystem fileSystem,
+			Path checkpointDirectory,
+			Path sharedStateDirectory,
+			int fileStateSizeThreshold,
+			int writeBufferSize,
+			@Nullable FsSegmentFileManager segmentFileManager,
+			long checkpointId) {
+
 		if (fileStateSizeThreshold < 0) {
 			throw new IllegalArgumentException("The threshold for file state size must be zero or larger.");
 		}
@@ -123,15 +147,22 @@ public class FsCheckpointStreamFactory implements CheckpointStreamFactory {
 		this.sharedStateDirectory = checkNotNull(sharedStateDirectory);
 		this.fileStateThreshold = fileStateSizeThreshold;
 		this.writeBufferSize = writeBufferSize;
+		this.segmentFileManager = segmentFileManager;
+		this.checkpointId = checkpointId;
 	}
 
 	// ------------------------------------------------------------------------
 
 	@Override
-	public FsCheckpointStateOutputStream createCheckpointStateOutputStream(CheckpointedStateScope scope) throws IOException {
+	public CheckpointStateOutputStream createCheckpointStateOutputStream(CheckpointedStateScope scope) throws IOException {
 		Path target = scope == CheckpointedStateScope.EXCLUSIVE ? checkpointDirectory : sharedStateDirectory;
 		int bufferSize = Math.max(writeBufferSize, fileStateThreshold);
 
+		if (segmentFileManager != null && scope == CheckpointedStateScope.EXCLUSIVE) {
+			return new FsSegmentCheckpointStateOutputStream(
+				checkpointId, target, segmentFileManager, bufferSize, fileStateThreshold);
+		}
+
 		return new FsCheckpointStateOutputStream(target, filesystem, bufferSize, fileStateThreshold);
 	}
 
@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.FsSegmentFileManager.SegmentFile;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A {@link CheckpointStreamFactory.CheckpointStateOutputStream} that writes its state as a segment of a
+ * file that is shared with the other exclusive state streams of the same checkpoint, and returns a
+ * {@link SegmentFileStateHandle} upon closing.
+ *
+ * <p>Like the {@link FsCheckpointStreamFactory.FsCheckpointStateOutputStream}, the stream returns state
+ * that is not larger than the threshold inline in the handle, without writing to a file. The file of the
+ * stream is only taken from the {@link FsSegmentFileManager} on the first flush.
+ */
+final class FsSegmentCheckpointStateOutputStream extends CheckpointStreamFactory.CheckpointStateOutputStream {
+
+	private final byte[] writeBuffer;
+
+	private int pos;
+
+	private final int localStateThreshold;
+
+	private final long checkpointId;
+
+	private final Path basePath;
+
+	private final FsSegmentFileManager segmentFileManager;
+
+	/** The file that the segment is written to, null before the first flush and after closing. */
+	@Nullable
+	private SegmentFile segmentFile;
+
+	/** The position of the segment in the file. */
+	private long startPosition;
+
+	private volatile boolean closed;
+
+	FsSegmentCheckpointStateOutputStream(
+			long checkpointId,
+			Path basePath,
+			FsSegmentFileManager segmentFileManager,
+			int bufferSize,
+			int localStateThreshold) {
+
+		if (bufferSize < localStateThreshold) {
+			throw new IllegalArgumentException();
+		}
+
+		this.checkpointId = checkpointId;
+		this.basePath = checkNotNull(basePath);
+		this.segmentFileManager = checkNotNull(segmentFileManager);
+		this.writeBuffer = new byte[bufferSize];
+		this.localStateThreshold = localStateThreshold;
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (pos >= writeBuffer.length) {
+			flush();
+		}
+		writeBuffer[pos++] = (byte) b;
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (len < writeBuffer.length) {
+			// copy it into our write buffer first
+			final int remaining = writeBuffer.length - pos;
+			if (len > remaining) {
+				// copy as much as fits
+				System.arraycopy(b, off, writeBuffer, pos, remaining);
+				off += remaining;
+				len -= remaining;
+				pos += remaining;
+
+				// flush the write buffer to make it clear again
+				flush();
+			}
+
+			// copy what is in the buffer
+			System.arraycopy(b, off, writeBuffer, pos, len);
+			pos += len;
+		}
+		else {
+			// flush the current buffer
+			flush();
+			// write the bytes directly
+			segmentFile.stream.write(b, off, len);
+		}
+	}
+
+	@Override
+	public long getPos() throws IOException {
+		return pos + (segmentFile == null ? 0 : segmentFile.stream.getPos() - startPosition);
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (!closed) {
+			// take a file if this is the first flush
+			if (segmentFile == null) {
+				SegmentFile file = segmentFileManager.acquire(checkpointId, basePath);
+				try {
+					startPosition = file.stream.getPos();
+				} catch (IOException e) {
+					segmentFileManager.discard(file);
+					throw e;
+				}
+				segmentFile = file;
+			}
+
+			if (pos > 0) {
+				segmentFile.stream.write(writeBuffer, 0, pos);
+				pos = 0;
+			}
+		}
+		else {
+			throw new IOException("closed");
+		}
+	}
+
+	@Override
+	public void sync() throws IOException {
+		segmentFile.stream.sync();
+	}
+
+	/**
+	 * If the stream is only closed, the file of the stream is closed and no further segments are
+	 * appended to it. The file is not deleted, because it may contain the segments of other streams.
+	 */
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+
+			// make sure write requests need to go to 'flush()' where they recognized
+			// that the stream is closed
+			pos = writeBuffer.length;
+
+			if (segmentFile != null) {
+				segmentFileManager.discard(segmentFile);
+				segmentFile = null;
+			}
+		}
+	}
+
+	@Nullable
+	@Override
+	public StreamStateHandle closeAndGetHandle() throws IOException {
+		// check if there was nothing ever written
+		if (segmentFile == null && pos == 0) {
+			return null;
+		}
+
+		synchronized (this) {
+			if (!closed) {
+				if (segmentFile == null && pos <= localStateThreshold) {
+					closed = true;
+					byte[] bytes = Arrays.copyOf(writeBuffer, pos);
+					pos = writeBuffer.length;
+					return new ByteStreamStateHandle(new Path(basePath, UUID.randomUUID().toString()).toString(), bytes);
+				}
+				else {
+					try {
+						flush();
+
+						pos = writeBuffer.length;
+
+						SegmentFile file = segmentFile;
+						long size = file.stream.getPos() - startPosition;
+						segmentFile = null;
+						segmentFileManager.release(file);
+
+						return new SegmentFileStateHandle(file.path, startPosition, size);
+					} catch (Exception exception) {
+						Path path = segmentFile == null ? null : segmentFile.path;
+						if (segmentFile != null) {
+							segmentFileManager.discard(segmentFile);
+							segmentFile = null;
+						}
+
+						throw new IOException("Could not flush the segment of the file system " +
+							"output stream to " + path + " in order to obtain the " +
+							"stream state handle", exception);
+					} finally {
+						closed = true;
+					}
+				}
+			}
+			else {
+				throw new IOException("Stream has already been closed and discarded.");
+			}
+		}
+	}
+}
@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.core.fs.EntropyInjector;
+import org.apache.flink.core.fs.FSDataOutputStream;
+import org.apache.flink.core.fs.FileSystem;
+import org.apache.flink.core.fs.FileSystem.WriteMode;
+import org.apache.flink.core.fs.OutputStreamAndPath;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.util.ExceptionUtils;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * Manages the files that the exclusive state streams of the checkpoints of a task write their state to
+ * as segments, see {@link FsSegmentCheckpointStateOutputStream}.
+ *
+ * <p>A file is used by one stream at a time. When the stream is closed and its handle is created, the file
+ * is returned to the pool of its checkpoint, so that the next stream of the same checkpoint appends its
+ * state to it. Streams that run concurrently use different files. The files of a checkpoint are closed
+ * with {@link #closeFiles(long)} once all of its streams have been closed, which makes the state of the
+ * segments durable.
+ */
+final class FsSegmentFileManager {
+
+	private static final Logger LOG = LoggerFactory.getLogger(FsSegmentFileManager.class);
+
+	private final FileSystem fileSystem;
+
+	private final Object lock = new Object();
+
+	/** The files that are not used by a stream at the moment, by checkpoint. */
+	@GuardedBy("lock")
+	private final Map<Long, ArrayDeque<SegmentFile>> idleFiles = new HashMap<>();
+
+	/** All files that are open, by checkpoint. */
+	@GuardedBy("lock")
+	private final Map<Long, List<SegmentFile>> openFiles = new HashMap<>();
+
+	FsSegmentFileManager(FileSystem fileSystem) {
+		this.fileSystem = checkNotNull(fileSystem);
+	}
+
+	/**
+	 * Takes an idle file of the given checkpoint, or creates a new one in the given directory.
+	 */
+	SegmentFile acquire(long checkpointId, Path directory) throws IOException {
+		synchronized (lock) {
+			ArrayDeque<SegmentFile> idle = idleFiles.get(checkpointId);
+			if (idle != null && !idle.isEmpty()) {
+				return idle.poll();
+			}
+		}
+
+		// create the file outside of the lock, the streams of other operators should not wait for it
+		SegmentFile file = createFile(checkpointId, directory);
+		synchronized (lock) {
+			openFiles.computeIfAbsent(checkpointId, k -> new ArrayList<>()).add(file);
+		}
+		return file;
+	}
+
+	/**
+	 * Returns a file whose last segment was completed to the pool of its checkpoint.
+	 */
+	void release(SegmentFile file) {
+		file.segmentCount++;
+		synchronized (lock) {
+			if (isOpen(file)) {
+				idleFiles.computeIfAbsent(file.checkpointId, k -> new ArrayDeque<>()).add(file);
+			}
+		}
+	}
+
+	/**
+	 * Closes a file whose last segment could not be completed, so that no further segments are appended
+	 * after the incomplete one. The file is deleted if it contains no other segment.
+	 */
+	void discard(SegmentFile file) {
+		synchronized (lock) {
+			List<SegmentFile> files = openFiles.get(file.checkpointId);
+			if (files != null && files.remove(file) && files.isEmpty()) {
+				openFiles.remove(file.checkpointId);
+			}
+		}
+
+		try {
+			file.stream.close();
+		} catch (Throwable t) {
+			LOG.warn("Could not close the segment file {}.", file.path, t);
+		}
+
+		if (file.segmentCount == 0) {
+			try {
+				fileSystem.delete(file.path, false);
+			} catch (Exception e) {
+				LOG.warn("Cannot delete discarded segment file {}.", file.path, e);
+			}
+		}
+	}
+
+	/**
+	 * Closes all files of the given checkpoint. Must be called after all streams of the checkpoint have
+	 * been closed, and before the handles of their state are reported.
+	 */
+	void closeFiles(long checkpointId) throws IOException {
+		List<SegmentFile> files;
+		synchronized (lock) {
+			idleFiles.remove(checkpointId);
+			files = openFiles.remove(checkpointId);
+		}
+
+		if (files == null) {
+			return;
+		}
+
+		IOException exception = null;
+		for (SegmentFile file : files) {
+			try {
+				file.stream.close();
+			} catch (IOException e) {
+				exception = ExceptionUtils.firstOrSuppressed(
+					new IOException("Could not close the segment file " + file.path + '.', e), exception);
+			}
+		}
+
+		if (exception != null) {
+			throw exception;
+		}
+	}
+
+	@VisibleForTesting
+	int getNumberOfOpenFiles(long checkpointId) {
+		synchronized (lock) {
+			List<SegmentFile> files = openFiles.get(checkpointId);
+			return files == null ? 0 : files.size();
+		}
+	}
+
+	@GuardedBy("lock")
+	private boolean isOpen(SegmentFile file) {
+		List<SegmentFile> files = openFiles.get(file.checkpointId);
+		return files != null && files.contains(file);
+	}
+
+	private SegmentFile createFile(long checkpointId, Path directory) throws IOException {
+		Exception latestException = null;
+		for (int attempt = 0; attempt < 10; attempt++) {
+			try {
+				OutputStreamAndPath streamAndPath = EntropyInjector.createEntropyAware(
+					fileSystem, new Path(directory, UUID.randomUUID().toString()), WriteMode.NO_OVERWRITE);
+				return new SegmentFile(checkpointId, streamAndPath.path(), streamAndPath.stream());
+			}
+			catch (Exception e) {
+				latestException = e;
+			}
+		}
+
+		throw new IOException("Could not open output stream for state backend", latestException);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * A file that the state of several streams is written to, one after the other.
+	 */
+	static final class SegmentFile {
+
+		final long checkpointId;
+
+		final Path path;
+
+		final FSDataOutputStream stream;
+
+		/** The number of completed segments, only accessed by the stream that uses the file. */
+		int segmentCount;
+
+		SegmentFile(long checkpointId, Path path, FSDataOutputStream stream) {
+			this.checkpointId = checkpointId;
+			this.path = checkNotNull(path);
+			this.stream = checkNotNull(stream);
+		}
+	}
+}
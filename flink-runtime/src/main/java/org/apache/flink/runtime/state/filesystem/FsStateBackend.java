@@ -40,9 +40,12 @@ import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.LocalRecoveryConfig;
 import org.apache.flink.runtime.state.OperatorStateBackend;
 import org.apache.flink.runtime.state.OperatorStateHandle;
+import org.apache.flink.runtime.state.PriorityQueueSetFactory;
 import org.apache.flink.runtime.state.TaskStateManager;
 import org.apache.flink.runtime.state.heap.HeapKeyedStateBackendBuilder;
 import org.apache.flink.runtime.state.heap.HeapPriorityQueueSetFactory;
+import org.apache.flink.runtime.state.heap.HeapPriorityQueueStateType;
+import org.apache.flink.runtime.state.heap.TimingWheelPriorityQueueSetFactory;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.util.TernaryBoolean;
 
@@ -120,6 +123,35 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 	 * */
 	private final int writeBufferSize;
 
+	/** Switch to enable incremental checkpoints of the keyed state.
+	 * A value of 'undefined' means not yet configured, in which case the default will be used. */
+	private final TernaryBoolean incrementalCheckpoints;
+
+	/** The maximum number of incremental checkpoints on top of a full checkpoint.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final int maxDeltaChainLength;
+
+	/** Switch to write the exclusive checkpoint state of a task as segments of shared files.
+	 * A value of 'undefined' means not yet configured, in which case the default will be used. */
+	private final TernaryBoolean segmentFiles;
+
+	/** The implementation of the timer queues.
+	 * A value of 'null' means not yet configured, in which case the default will be used. */
+	@Nullable
+	private final HeapPriorityQueueStateType priorityQueueStateType;
+
+	/** The range of timestamps covered by one bucket of timing wheel timer queues, in milliseconds.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final long timingWheelBucketWidth;
+
+	/** The interval of the background cleanup of states with TTL, in milliseconds.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final long ttlBackgroundCleanupInterval;
+
+	/** The time that one run of the background cleanup of states with TTL may take, in milliseconds.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final long ttlBackgroundCleanupTimeBudget;
+
 	// -----------------------------------------------------------------------
 
 	/**
@@ -347,6 +379,13 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 		this.fileStateThreshold = fileStateSizeThreshold;
 		this.writeBufferSize = writeBufferSize;
 		this.asynchronousSnapshots = asynchronousSnapshots;
+		this.incrementalCheckpoints = TernaryBoolean.UNDEFINED;
+		this.maxDeltaChainLength = -1;
+		this.segmentFiles = TernaryBoolean.UNDEFINED;
+		this.priorityQueueStateType = null;
+		this.timingWheelBucketWidth = -1L;
+		this.ttlBackgroundCleanupInterval = -1L;
+		this.ttlBackgroundCleanupTimeBudget = -1L;
 	}
 
 	/**
@@ -386,6 +425,33 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 			configuration.get(CheckpointingOptions.FS_WRITE_BUFFER_SIZE);
 
 		this.writeBufferSize = Math.max(bufferSize, this.fileStateThreshold);
+
+		this.incrementalCheckpoints = original.incrementalCheckpoints.resolveUndefined(
+			configuration.get(CheckpointingOptions.HEAP_INCREMENTAL_CHECKPOINTS));
+
+		this.maxDeltaChainLength = original.maxDeltaChainLength >= 0 ?
+			original.maxDeltaChainLength :
+			configuration.get(CheckpointingOptions.HEAP_INCREMENTAL_MAX_DELTA_CHAIN_LENGTH);
+
+		this.segmentFiles = original.segmentFiles.resolveUndefined(
+			configuration.get(CheckpointingOptions.FS_SEGMENT_FILES));
+
+		this.priorityQueueStateType = original.priorityQueueStateType != null ?
+			original.priorityQueueStateType :
+			HeapPriorityQueueStateType.valueOf(
+				configuration.get(CheckpointingOptions.HEAP_TIMER_SERVICE_FACTORY).toUpperCase());
+
+		this.timingWheelBucketWidth = original.timingWheelBucketWidth >= 0 ?
+			original.timingWheelBucketWidth :
+			configuration.get(CheckpointingOptions.HEAP_TIMER_SERVICE_TIMING_WHEEL_BUCKET_WIDTH).toMillis();
+
+		this.ttlBackgroundCleanupInterval = original.ttlBackgroundCleanupInterval >= 0 ?
+			original.ttlBackgroundCleanupInterval :
+			configuration.get(CheckpointingOptions.HEAP_TTL_BACKGROUND_CLEANUP_INTERVAL).toMillis();
+
+		this.ttlBackgroundCleanupTimeBudget = original.ttlBackgroundCleanupTimeBudget >= 0 ?
+			original.ttlBackgroundCleanupTimeBudget :
+			configuration.get(CheckpointingOptions.HEAP_TTL_BACKGROUND_CLEANUP_TIME_BUDGET).toMillis();
 	}
 
 	// ------------------------------------------------------------------------
@@ -459,6 +525,89 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 		return asynchronousSnapshots.getOrDefault(CheckpointingOptions.ASYNC_SNAPSHOTS.defaultValue());
 	}
 
+	/**
+	 * Gets whether incremental checkpoints of the keyed state are enabled. Incremental checkpoints require
+	 * asynchronous snapshots.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#HEAP_INCREMENTAL_CHECKPOINTS}.
+	 */
+	public boolean isIncrementalCheckpointsEnabled() {
+		return incrementalCheckpoints.getOrDefault(CheckpointingOptions.HEAP_INCREMENTAL_CHECKPOINTS.defaultValue());
+	}
+
+	/**
+	 * Gets the maximum number of incremental checkpoints on top of a full checkpoint.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#HEAP_INCREMENTAL_MAX_DELTA_CHAIN_LENGTH}.
+	 */
+	public int getMaxDeltaChainLength() {
+		return maxDeltaChainLength >= 0 ?
+			maxDeltaChainLength :
+			CheckpointingOptions.HEAP_INCREMENTAL_MAX_DELTA_CHAIN_LENGTH.defaultValue();
+	}
+
+	/**
+	 * Gets whether the exclusive state of a checkpoint that a task writes is stored as segments of shared
+	 * files, rather than one file per state stream.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#FS_SEGMENT_FILES}.
+	 */
+	public boolean isSegmentFilesEnabled() {
+		return segmentFiles.getOrDefault(CheckpointingOptions.FS_SEGMENT_FILES.defaultValue());
+	}
+
+	/**
+	 * Gets the implementation of the timer queues of the keyed state backend.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#HEAP_TIMER_SERVICE_FACTORY}.
+	 */
+	public HeapPriorityQueueStateType getPriorityQueueStateType() {
+		return priorityQueueStateType != null ?
+			priorityQueueStateType :
+			HeapPriorityQueueStateType.valueOf(CheckpointingOptions.HEAP_TIMER_SERVICE_FACTORY.defaultValue());
+	}
+
+	/**
+	 * Gets the range of timestamps, in milliseconds, covered by one bucket of timing wheel timer queues.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#HEAP_TIMER_SERVICE_TIMING_WHEEL_BUCKET_WIDTH}.
+	 */
+	public long getTimingWheelBucketWidth() {
+		return timingWheelBucketWidth >= 0 ?
+			timingWheelBucketWidth :
+			CheckpointingOptions.HEAP_TIMER_SERVICE_TIMING_WHEEL_BUCKET_WIDTH.defaultValue().toMillis();
+	}
+
+	/**
+	 * Gets the interval, in milliseconds, of the background cleanup of states with TTL. Zero means that the
+	 * background cleanup is disabled.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#HEAP_TTL_BACKGROUND_CLEANUP_INTERVAL}.
+	 */
+	public long getTtlBackgroundCleanupInterval() {
+		return ttlBackgroundCleanupInterval >= 0 ?
+			ttlBackgroundCleanupInterval :
+			CheckpointingOptions.HEAP_TTL_BACKGROUND_CLEANUP_INTERVAL.defaultValue().toMillis();
+	}
+
+	/**
+	 * Gets the time, in milliseconds, that one run of the background cleanup of states with TTL may take.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#HEAP_TTL_BACKGROUND_CLEANUP_TIME_BUDGET}.
+	 */
+	public long getTtlBackgroundCleanupTimeBudget() {
+		return ttlBackgroundCleanupTimeBudget > 0 ?
+			ttlBackgroundCleanupTimeBudget :
+			CheckpointingOptions.HEAP_TTL_BACKGROUND_CLEANUP_TIME_BUDGET.defaultValue().toMillis();
+	}
+
 	// ------------------------------------------------------------------------
 	//  Reconfiguration
 	// ------------------------------------------------------------------------
@@ -487,7 +636,8 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 			getSavepointPath(),
 			jobId,
 			getMinFileSizeThreshold(),
-			getWriteBufferSize());
+			getWriteBufferSize(),
+			isSegmentFilesEnabled());
 	}
 
 	// ------------------------------------------------------------------------
@@ -510,8 +660,10 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 
 		TaskStateManager taskStateManager = env.getTaskStateManager();
 		LocalRecoveryConfig localRecoveryConfig = taskStateManager.createLocalRecoveryConfig();
-		HeapPriorityQueueSetFactory priorityQueueSetFactory =
-			new HeapPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, 128);
+		PriorityQueueSetFactory priorityQueueSetFactory =
+			getPriorityQueueStateType() == HeapPriorityQueueStateType.TIMING_WHEEL ?
+				new TimingWheelPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, getTimingWheelBucketWidth()) :
+				new HeapPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, 128);
 
 		return new HeapKeyedStateBackendBuilder<>(
 			kvStateRegistry,
@@ -526,7 +678,11 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 			localRecoveryConfig,
 			priorityQueueSetFactory,
 			isUsingAsynchronousSnapshots(),
-			cancelStreamRegistry).build();
+			cancelStreamRegistry)
+			.setEnableIncrementalCheckpointing(isIncrementalCheckpointsEnabled())
+			.setMaxDeltaChainLength(getMaxDeltaChainLength())
+			.setTtlBackgroundCleanup(getTtlBackgroundCleanupInterval(), getTtlBackgroundCleanupTimeBudget())
+			.build();
 	}
 
 	@Override
@@ -554,6 +710,7 @@ public class FsStateBackend extends AbstractFileStateBackend implements Configur
 				"checkpoints: '" + getCheckpointPath() +
 				"', savepoints: '" + getSavepointPath() +
 				"', asynchronous: " + asynchronousSnapshots +
+				", incremental: " + incrementalCheckpoints +
 				", fileStateThreshold: " + fileStateThreshold + ")";
 	}
 }
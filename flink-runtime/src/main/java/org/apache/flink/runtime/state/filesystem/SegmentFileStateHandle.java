@@ -0,0 +1,244 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SharedStateRegistryKey;
+import org.apache.flink.runtime.state.StreamStateHandle;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * {@link StreamStateHandle} for state that was written as a segment of a file that is shared with
+ * the state of other streams of the same checkpoint and task.
+ *
+ * <p>The file is deleted once no handle references any of its segments anymore. After the
+ * handles were registered with a {@link SharedStateRegistry}, the registry counts the references
+ * to the file. A handle that was not registered discards the whole file, because all segments of
+ * a file belong to the same checkpoint and are discarded together when it is not registered.
+ */
+public class SegmentFileStateHandle implements StreamStateHandle {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The path to the shared file. */
+	private final Path filePath;
+
+	/** The position of the segment in the file. */
+	private final long startPosition;
+
+	/** The size of the segment. */
+	private final long stateSize;
+
+	/** The registry that counts the references to the file, if this handle was registered. */
+	private transient SharedStateRegistry sharedStateRegistry;
+
+	/** Whether the reference of this handle was released from the registry already. */
+	private transient boolean unregistered;
+
+	public SegmentFileStateHandle(Path filePath, long startPosition, long stateSize) {
+		checkArgument(startPosition >= 0);
+		checkArgument(stateSize >= 0);
+		this.filePath = checkNotNull(filePath);
+		this.startPosition = startPosition;
+		this.stateSize = stateSize;
+	}
+
+	/**
+	 * Gets the path to the file that contains the segment.
+	 */
+	public Path getFilePath() {
+		return filePath;
+	}
+
+	/**
+	 * Gets the position of the segment in the file.
+	 */
+	public long getStartPosition() {
+		return startPosition;
+	}
+
+	@Override
+	public long getStateSize() {
+		return stateSize;
+	}
+
+	@Override
+	public FSDataInputStream openInputStream() throws IOException {
+		FSDataInputStream in = filePath.getFileSystem().open(filePath);
+		try {
+			in.seek(startPosition);
+			return new SegmentInputStream(in, startPosition, stateSize);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Registers a reference to the file of this segment with the given registry, which deletes the
+	 * file once all registered handles of the file have been discarded.
+	 */
+	public void registerSharedStates(SharedStateRegistry stateRegistry) {
+		if (sharedStateRegistry == stateRegistry) {
+			return;
+		}
+
+		stateRegistry.registerReference(createSharedStateRegistryKey(), new FileStateHandle(filePath, -1L));
+		sharedStateRegistry = stateRegistry;
+		unregistered = false;
+	}
+
+	@Override
+	public void discardState() throws Exception {
+		// the handle can be discarded several times, if several state handles share it as their delegate
+		if (unregistered) {
+			return;
+		}
+
+		SharedStateRegistry registry = this.sharedStateRegistry;
+
+		if (registry != null) {
+			unregistered = true;
+			if (registry.unregisterReference(createSharedStateRegistryKey()).getReferenceCount() > 0) {
+				return;
+			}
+			// the registry deletes the file asynchronously, we also delete it right away, so that the
+			// checkpoint directory is empty when it is disposed after its state
+		}
+
+		filePath.getFileSystem().delete(filePath, false);
+	}
+
+	private SharedStateRegistryKey createSharedStateRegistryKey() {
+		return new SharedStateRegistryKey(filePath.toString());
+	}
+
+	// ------------------------------------------------------------------------
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) {
+			return true;
+		}
+		if (o == null || getClass() != o.getClass()) {
+			return false;
+		}
+
+		SegmentFileStateHandle that = (SegmentFileStateHandle) o;
+		return startPosition == that.startPosition &&
+			stateSize == that.stateSize &&
+			filePath.equals(that.filePath);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(filePath, startPosition, stateSize);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SegmentFileStateHandle State: %s [%d, %d bytes]", filePath, startPosition, stateSize);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Reads one segment of a file. Positions are relative to the start of the segment.
+	 */
+	private static final class SegmentInputStream extends FSDataInputStream {
+
+		private final FSDataInputStream in;
+
+		private final long startPosition;
+
+		private final long endPosition;
+
+		private long position;
+
+		SegmentInputStream(FSDataInputStream in, long startPosition, long size) {
+			this.in = in;
+			this.startPosition = startPosition;
+			this.endPosition = startPosition + size;
+			this.position = startPosition;
+		}
+
+		@Override
+		public void seek(long desired) throws IOException {
+			checkArgument(desired >= 0 && startPosition + desired <= endPosition, "Position out of segment: %s", desired);
+			in.seek(startPosition + desired);
+			position = startPosition + desired;
+		}
+
+		@Override
+		public long getPos() {
+			return position - startPosition;
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (position >= endPosition) {
+				return -1;
+			}
+			int b = in.read();
+			if (b >= 0) {
+				position++;
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (len == 0) {
+				return 0;
+			}
+			if (position >= endPosition) {
+				return -1;
+			}
+			int read = in.read(b, off, (int) Math.min(len, endPosition - position));
+			if (read > 0) {
+				position += read;
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = in.skip(Math.min(Math.max(n, 0L), endPosition - position));
+			position += skipped;
+			return skipped;
+		}
+
+		@Override
+		public int available() throws IOException {
+			return (int) Math.min(in.available(), endPosition - position);
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+}
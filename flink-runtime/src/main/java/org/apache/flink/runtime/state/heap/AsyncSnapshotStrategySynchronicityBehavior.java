@@ -38,6 +38,10 @@ class AsyncSnapshotStrategySynchronicityBehavior<K> implements SnapshotStrategyS
 		InternalKeyContext<K> keyContext,
 		RegisteredKeyValueStateBackendMetaInfo<N, V> newMetaInfo,
 		TypeSerializer<K> keySerializer) {
+		// states with long or int keys and without namespaces are kept in more compact tables
+		if (PrimitiveKeyStateTable.isSupported(keySerializer, newMetaInfo.getNamespaceSerializer())) {
+			return new PrimitiveKeyStateTable<>(keyContext, newMetaInfo, keySerializer);
+		}
 		return new CopyOnWriteStateTable<>(keyContext, newMetaInfo, keySerializer);
 	}
 }
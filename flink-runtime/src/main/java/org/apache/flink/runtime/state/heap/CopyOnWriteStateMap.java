@@ -34,8 +34,10 @@ import javax.annotation.Nullable;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Set;
@@ -190,6 +192,18 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
 	 */
 	private int highestRequiredSnapshotVersion;
 
+	/**
+	 * Whether this map keeps track of modified and removed mappings for incremental snapshots. If enabled, every
+	 * access that can modify a state object stamps the entry with the current map version and every removal is
+	 * recorded in {@link #removedMappings}.
+	 */
+	private boolean trackChanges;
+
+	/**
+	 * The mappings that were removed while change tracking was enabled, ordered by the map version of their removal.
+	 */
+	private final ArrayList<RemovedMapping<K, N>> removedMappings;
+
 	/**
 	 * The last namespace that was actually inserted. This is a small optimization to reduce duplicate namespace objects.
 	 */
@@ -242,6 +256,8 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
 		this.stateMapVersion = 0;
 		this.highestRequiredSnapshotVersion = 0;
 		this.snapshotVersions = new TreeSet<>();
+		this.trackChanges = false;
+		this.removedMappings = new ArrayList<>();
 
 		if (capacity < 0) {
 			throw new IllegalArgumentException("Capacity: " + capacity);
@@ -295,6 +311,12 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
 					}
 					e.stateVersion = stateMapVersion;
 					e.state = getStateSerializer().copy(e.state);
+				} else if (trackChanges && e.stateVersion < stateMapVersion) {
+					// the returned state object might be mutated in place, so we have to consider it modified
+					if (e.entryVersion < requiredVersion) {
+						e = handleChainedEntryCopyOnWrite(tab, hash & (tab.length - 1), e);
+					}
+					e.stateVersion = stateMapVersion;
 				}
 
 				return e.state;
@@ -444,6 +466,9 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
 				} else {
 					--incrementalRehashTableSize;
 				}
+				if (trackChanges) {
+					removedMappings.add(new RemovedMapping<>(e.key, e.namespace, stateMapVersion));
+				}
 				return e;
 			}
 		}
@@ -531,6 +556,41 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
 		return stateMapVersion;
 	}
 
+	// Change tracking for incremental snapshots -----------------------------------------------------------------------
+
+	/**
+	 * Enables tracking of modified and removed mappings. Changes that happened before this call are not tracked, so
+	 * the first snapshot after enabling must be a full one.
+	 */
+	void enableChangeTracking() {
+		trackChanges = true;
+	}
+
+	boolean isTrackingChanges() {
+		return trackChanges;
+	}
+
+	/**
+	 * Returns a copy of the mappings that were removed since the last pruning. This method must be called by the same
+	 * Thread that does modifications to the {@link CopyOnWriteStateMap}.
+	 */
+	List<RemovedMapping<K, N>> snapshotRemovedMappings() {
+		return removedMappings.isEmpty() ? Collections.emptyList() : new ArrayList<>(removedMappings);
+	}
+
+	/**
+	 * Drops all recorded removals that happened before the given map version, i.e. that are contained in a completed
+	 * snapshot of that version. This method must be called by the same Thread that does modifications to the
+	 * {@link CopyOnWriteStateMap}.
+	 */
+	void pruneRemovedMappings(int version) {
+		int numPruned = 0;
+		while (numPruned < removedMappings.size() && removedMappings.get(numPruned).version < version) {
+			++numPruned;
+		}
+		removedMappings.subList(0, numPruned).clear();
+	}
+
 	/**
 	 * Allocate a table of the given capacity and set the threshold accordingly.
 	 *
@@ -1043,6 +1103,38 @@ public class CopyOnWriteStateMap<K, N, S> extends StateMap<K, N, S> {
 		}
 	}
 
+	/**
+	 * A mapping that was removed from the map while change tracking was enabled.
+	 *
+	 * @param <K> type of key.
+	 * @param <N> type of namespace.
+	 */
+	static final class RemovedMapping<K, N> {
+
+		/**
+		 * The key of the removed mapping.
+		 */
+		@Nonnull
+		final K key;
+
+		/**
+		 * The namespace of the removed mapping.
+		 */
+		@Nonnull
+		final N namespace;
+
+		/**
+		 * The version of the map when the mapping was removed.
+		 */
+		final int version;
+
+		RemovedMapping(@Nonnull K key, @Nonnull N namespace, int version) {
+			this.key = key;
+			this.namespace = namespace;
+			this.version = version;
+		}
+	}
+
 	/**
 	 * Incremental visitor over state entries in a {@link CopyOnWriteStateMap}.
 	 */
@@ -29,9 +29,11 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 
@@ -70,6 +72,13 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
 	@Nonnegative
 	private final int numberOfEntriesInSnapshotData;
 
+	/**
+	 * The mappings that were removed from the {@link CopyOnWriteStateMap} before this snapshot was created and that
+	 * are not yet pruned. Only populated if the map tracks changes.
+	 */
+	@Nonnull
+	private final List<CopyOnWriteStateMap.RemovedMapping<K, N>> removedMappings;
+
 	/**
 	 * Whether this snapshot has been released.
 	 */
@@ -86,6 +95,7 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
 		this.snapshotData = owningStateMap.snapshotMapArrays();
 		this.snapshotVersion = owningStateMap.getStateMapVersion();
 		this.numberOfEntriesInSnapshotData = owningStateMap.size();
+		this.removedMappings = owningStateMap.snapshotRemovedMappings();
 		this.released = false;
 	}
 
@@ -130,6 +140,85 @@ public class CopyOnWriteStateMapSnapshot<K, N, S>
 		}
 	}
 
+	/**
+	 * Writes the mappings that changed since the snapshot with the given base version of the owning map. The format
+	 * first lists the namespace and key of all removed mappings, followed by namespace, key, and state of all added or
+	 * modified mappings. Removals and upserts of the same mapping can both be present, so readers must apply the
+	 * removals first. If the base version is negative, all mappings are written as upserts.
+	 *
+	 * <p>This requires that the owning map tracked changes since the snapshot with the base version was created.
+	 */
+	public void writeStateChanges(
+		TypeSerializer<K> keySerializer,
+		TypeSerializer<N> namespaceSerializer,
+		TypeSerializer<S> stateSerializer,
+		@Nonnull DataOutputView dov,
+		@Nullable StateSnapshotTransformer<S> stateSnapshotTransformer,
+		int baseVersion) throws IOException {
+
+		final boolean full = baseVersion < 0;
+		final List<CopyOnWriteStateMap.StateMapEntry<K, N, S>> upserts = new ArrayList<>();
+		final List<CopyOnWriteStateMap.StateMapEntry<K, N, S>> filtered = new ArrayList<>();
+
+		SnapshotIterator<K, N, S> snapshotIterator =
+			new NonTransformSnapshotIterator<>(numberOfEntriesInSnapshotData, snapshotData);
+		while (snapshotIterator.hasNext()) {
+			CopyOnWriteStateMap.StateMapEntry<K, N, S> entry = snapshotIterator.next();
+			if (!full && entry.stateVersion < baseVersion) {
+				continue;
+			}
+
+			if (stateSnapshotTransformer == null) {
+				upserts.add(entry);
+			} else {
+				S transformedValue = stateSnapshotTransformer.filterOrTransform(entry.state);
+				if (transformedValue == null) {
+					// a filtered mapping that changed since the base snapshot has to be removed on restore
+					if (!full) {
+						filtered.add(entry);
+					}
+				} else {
+					CopyOnWriteStateMap.StateMapEntry<K, N, S> transformedEntry = entry;
+					if (transformedValue != entry.state) {
+						transformedEntry = new CopyOnWriteStateMap.StateMapEntry<>(entry, entry.entryVersion);
+						transformedEntry.state = transformedValue;
+					}
+					upserts.add(transformedEntry);
+				}
+			}
+		}
+
+		int numRemovals = filtered.size();
+		if (!full) {
+			for (CopyOnWriteStateMap.RemovedMapping<K, N> removedMapping : removedMappings) {
+				if (removedMapping.version >= baseVersion) {
+					++numRemovals;
+				}
+			}
+		}
+
+		dov.writeInt(numRemovals);
+		if (!full) {
+			for (CopyOnWriteStateMap.RemovedMapping<K, N> removedMapping : removedMappings) {
+				if (removedMapping.version >= baseVersion) {
+					namespaceSerializer.serialize(removedMapping.namespace, dov);
+					keySerializer.serialize(removedMapping.key, dov);
+				}
+			}
+		}
+		for (CopyOnWriteStateMap.StateMapEntry<K, N, S> entry : filtered) {
+			namespaceSerializer.serialize(entry.namespace, dov);
+			keySerializer.serialize(entry.key, dov);
+		}
+
+		dov.writeInt(upserts.size());
+		for (CopyOnWriteStateMap.StateMapEntry<K, N, S> entry : upserts) {
+			namespaceSerializer.serialize(entry.namespace, dov);
+			keySerializer.serialize(entry.key, dov);
+			stateSerializer.serialize(entry.state, dov);
+		}
+	}
+
 	/**
 	 * Iterator over state entries in a {@link CopyOnWriteStateMapSnapshot}.
 	 */
@@ -72,6 +72,22 @@ public class CopyOnWriteStateTable<K, N, S> extends StateTable<K, N, S> {
 			getMetaInfo().getStateSnapshotTransformFactory().createForDeserializedState().orElse(null));
 	}
 
+	/**
+	 * Enables tracking of modified and removed mappings in all state maps, as required for incremental snapshots.
+	 */
+	void enableChangeTracking() {
+		for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+			((CopyOnWriteStateMap<K, N, S>) stateMap).enableChangeTracking();
+		}
+	}
+
+	/**
+	 * Drops the removals recorded for the given key-group that are contained in the snapshot with the given version.
+	 */
+	void pruneRemovedMappings(int keyGroup, int version) {
+		((CopyOnWriteStateMap<K, N, S>) getMapForKeyGroup(keyGroup)).pruneRemovedMappings(version);
+	}
+
 	@SuppressWarnings("unchecked")
 	List<CopyOnWriteStateMapSnapshot<K, N, S>> getStateMapSnapshotList() {
 		List<CopyOnWriteStateMapSnapshot<K, N, S>> snapshotList = new ArrayList<>(keyGroupedStateMaps.length);
@@ -20,10 +20,12 @@ package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.annotation.Internal;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.runtime.state.StateSnapshotTransformer;
 
 import javax.annotation.Nonnull;
 
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -80,6 +82,30 @@ public class CopyOnWriteStateTableSnapshot<K, N, S> extends AbstractStateTableSn
 		return stateMapSnapshot;
 	}
 
+	/**
+	 * Returns the version of the state map snapshot for the given key-group. Changes made to the map after this
+	 * snapshot was created carry at least this version.
+	 */
+	int getSnapshotVersion(int keyGroup) {
+		return stateMapSnapshots.get(keyGroup - keyGroupOffset).getSnapshotVersion();
+	}
+
+	/**
+	 * Writes the mappings of the given key-group that changed since the snapshot with the given base version, see
+	 * {@link CopyOnWriteStateMapSnapshot#writeStateChanges}. A negative base version writes all mappings.
+	 */
+	public void writeStateChangesInKeyGroup(@Nonnull DataOutputView dov, int keyGroupId, int baseVersion) throws IOException {
+		CopyOnWriteStateMapSnapshot<K, N, S> stateMapSnapshot = stateMapSnapshots.get(keyGroupId - keyGroupOffset);
+		stateMapSnapshot.writeStateChanges(
+			localKeySerializer,
+			localNamespaceSerializer,
+			localStateSerializer,
+			dov,
+			stateSnapshotTransformer,
+			baseVersion);
+		stateMapSnapshot.release();
+	}
+
 	@Override
 	public void release() {
 		for (CopyOnWriteStateMapSnapshot snapshot : stateMapSnapshots) {
@@ -0,0 +1,455 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.state.AsyncSnapshotCallable;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.DoneFuture;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StateSerializerProvider;
+import org.apache.flink.runtime.state.StateSnapshot;
+import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.UncompressedStreamCompressionDecorator;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RunnableFuture;
+
+/**
+ * Snapshot strategy for the heap backend that creates incremental checkpoints. Every checkpoint uploads one shared
+ * file that contains only the key/value mappings which changed since the last confirmed checkpoint, so that a
+ * checkpoint consists of a chain of such files on top of a full one. Once the chain exceeds the configured maximum
+ * length, the next checkpoint starts a new chain with a full file. The files of a chain are referenced through the
+ * {@link org.apache.flink.runtime.state.SharedStateRegistry} as shared state of an
+ * {@link IncrementalRemoteKeyedStateHandle}.
+ *
+ * <p>Priority queue state is not tracked incrementally. It is written completely with every checkpoint into the
+ * exclusive meta data file of the checkpoint, which also contains the meta information of all states.
+ *
+ * <p>Both kinds of files consist of a {@link KeyedBackendSerializationProxy}, the data of all key-groups and an index
+ * of the key-group offsets, followed by the position of that index as the last long value of the file.
+ *
+ * <p>This strategy requires {@link CopyOnWriteStateTable}s, which track the changed mappings, and therefore only
+ * works with asynchronous snapshots. Savepoints are always full snapshots.
+ */
+class HeapIncrementalSnapshotStrategy<K> extends HeapSnapshotStrategy<K> {
+
+	/** The prefix of the handle ids for the files of a chain, followed by the zero-padded checkpoint id. */
+	private static final String CHAIN_FILE_ID_PREFIX = "heap-chain-";
+
+	/** Base version to write all mappings of a key-group. */
+	private static final int FULL_SNAPSHOT_BASE_VERSION = -1;
+
+	private final Map<String, StateTable<K, ?, ?>> registeredKVStates;
+	private final Map<String, HeapPriorityQueueSnapshotRestoreWrapper> registeredPQStates;
+	private final StreamCompressionDecorator keyGroupCompressionDecorator;
+	private final KeyGroupRange keyGroupRange;
+	private final CloseableRegistry cancelStreamRegistry;
+
+	/** The maximum number of incremental files on top of a full file in a chain. */
+	private final int maxDeltaChainLength;
+
+	/** The identifier of this backend, used to register the chain files with the shared state registry. */
+	private final UUID backendUID;
+
+	/** The chains of checkpoints that are not yet confirmed, by checkpoint id. */
+	private final SortedMap<Long, SnapshotChain> pendingChains;
+
+	/** The chain of the last confirmed checkpoint, or null if the next checkpoint must be full. */
+	@Nullable
+	private SnapshotChain confirmedChain;
+
+	/** The id of the last confirmed checkpoint. */
+	private long lastCompletedCheckpointId;
+
+	HeapIncrementalSnapshotStrategy(
+		SnapshotStrategySynchronicityBehavior<K> snapshotStrategySynchronicityTrait,
+		Map<String, StateTable<K, ?, ?>> registeredKVStates,
+		Map<String, HeapPriorityQueueSnapshotRestoreWrapper> registeredPQStates,
+		StreamCompressionDecorator keyGroupCompressionDecorator,
+		LocalRecoveryConfig localRecoveryConfig,
+		KeyGroupRange keyGroupRange,
+		CloseableRegistry cancelStreamRegistry,
+		StateSerializerProvider<K> keySerializerProvider,
+		int maxDeltaChainLength) {
+		super(
+			snapshotStrategySynchronicityTrait,
+			registeredKVStates,
+			registeredPQStates,
+			keyGroupCompressionDecorator,
+			localRecoveryConfig,
+			keyGroupRange,
+			cancelStreamRegistry,
+			keySerializerProvider);
+
+		Preconditions.checkArgument(snapshotStrategySynchronicityTrait.isAsynchronous(),
+			"Incremental heap snapshots require asynchronous snapshots.");
+		Preconditions.checkArgument(maxDeltaChainLength >= 0,
+			"The maximum delta chain length must not be negative.");
+
+		this.registeredKVStates = registeredKVStates;
+		this.registeredPQStates = registeredPQStates;
+		this.keyGroupCompressionDecorator = keyGroupCompressionDecorator;
+		this.keyGroupRange = keyGroupRange;
+		this.cancelStreamRegistry = cancelStreamRegistry;
+		this.maxDeltaChainLength = maxDeltaChainLength;
+		this.backendUID = UUID.randomUUID();
+		this.pendingChains = new TreeMap<>();
+		this.confirmedChain = null;
+		this.lastCompletedCheckpointId = -1L;
+	}
+
+	/**
+	 * Always creates {@link CopyOnWriteStateTable}s, because only these track the changed mappings.
+	 */
+	@Override
+	public <N, V> StateTable<K, N, V> newStateTable(
+		InternalKeyContext<K> keyContext,
+		RegisteredKeyValueStateBackendMetaInfo<N, V> newMetaInfo,
+		TypeSerializer<K> keySerializer) {
+		return new CopyOnWriteStateTable<>(keyContext, newMetaInfo, keySerializer);
+	}
+
+	@Nonnull
+	@Override
+	public RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshot(
+		long checkpointId,
+		long timestamp,
+		@Nonnull CheckpointStreamFactory primaryStreamFactory,
+		@Nonnull CheckpointOptions checkpointOptions) throws IOException {
+
+		if (checkpointOptions.getCheckpointType().isSavepoint()) {
+			return super.snapshot(checkpointId, timestamp, primaryStreamFactory, checkpointOptions);
+		}
+
+		if (registeredKVStates.isEmpty() && registeredPQStates.isEmpty()) {
+			return DoneFuture.of(SnapshotResult.empty());
+		}
+
+		int numStates = registeredKVStates.size() + registeredPQStates.size();
+
+		Preconditions.checkState(numStates <= Short.MAX_VALUE,
+			"Too many states: " + numStates +
+				". Currently at most " + Short.MAX_VALUE + " states are supported");
+
+		final SnapshotChain baseChain;
+		synchronized (pendingChains) {
+			baseChain = confirmedChain != null && confirmedChain.files.size() <= maxDeltaChainLength ?
+				confirmedChain : null;
+		}
+
+		final int numberOfKeyGroups = keyGroupRange.getNumberOfKeyGroups();
+		final List<StateMetaInfoSnapshot> metaInfoSnapshots = new ArrayList<>(numStates);
+		final List<CopyOnWriteStateTableSnapshot<K, ?, ?>> kvStateSnapshots = new ArrayList<>(registeredKVStates.size());
+		final List<int[]> kvStateBaseVersions = new ArrayList<>(registeredKVStates.size());
+		final Map<String, int[]> snapshotVersions = new HashMap<>(registeredKVStates.size());
+
+		for (Map.Entry<String, StateTable<K, ?, ?>> kvState : registeredKVStates.entrySet()) {
+			final CopyOnWriteStateTable<K, ?, ?> stateTable = (CopyOnWriteStateTable<K, ?, ?>) kvState.getValue();
+			stateTable.enableChangeTracking();
+
+			final CopyOnWriteStateTableSnapshot<K, ?, ?> stateSnapshot = stateTable.stateSnapshot();
+			final int[] versions = new int[numberOfKeyGroups];
+			for (int keyGroupPos = 0; keyGroupPos < numberOfKeyGroups; ++keyGroupPos) {
+				versions[keyGroupPos] = stateSnapshot.getSnapshotVersion(keyGroupRange.getKeyGroupId(keyGroupPos));
+			}
+
+			int[] baseVersions = baseChain != null ? baseChain.snapshotVersions.get(kvState.getKey()) : null;
+			if (baseVersions == null) {
+				// the state was registered after the base checkpoint
+				baseVersions = new int[numberOfKeyGroups];
+				Arrays.fill(baseVersions, FULL_SNAPSHOT_BASE_VERSION);
+			}
+
+			metaInfoSnapshots.add(stateSnapshot.getMetaInfoSnapshot());
+			kvStateSnapshots.add(stateSnapshot);
+			kvStateBaseVersions.add(baseVersions);
+			snapshotVersions.put(kvState.getKey(), versions);
+		}
+
+		final List<StateSnapshot> pqStateSnapshots = new ArrayList<>(registeredPQStates.size());
+		for (HeapPriorityQueueSnapshotRestoreWrapper pqState : registeredPQStates.values()) {
+			final StateSnapshot stateSnapshot = pqState.stateSnapshot();
+			metaInfoSnapshots.add(stateSnapshot.getMetaInfoSnapshot());
+			pqStateSnapshots.add(stateSnapshot);
+		}
+
+		final boolean compression =
+			!Objects.equals(UncompressedStreamCompressionDecorator.INSTANCE, keyGroupCompressionDecorator);
+
+		final KeyedBackendSerializationProxy<K> chainSerializationProxy =
+			new KeyedBackendSerializationProxy<>(
+				getKeySerializer(),
+				new ArrayList<>(metaInfoSnapshots.subList(0, kvStateSnapshots.size())),
+				compression);
+
+		final KeyedBackendSerializationProxy<K> metaSerializationProxy =
+			new KeyedBackendSerializationProxy<>(getKeySerializer(), metaInfoSnapshots, compression);
+
+		final List<StateHandleID> chainFiles = new ArrayList<>();
+		if (baseChain != null) {
+			chainFiles.addAll(baseChain.files);
+		}
+		final StateHandleID chainFileId = new StateHandleID(String.format("%s%019d", CHAIN_FILE_ID_PREFIX, checkpointId));
+		chainFiles.add(chainFileId);
+
+		final SnapshotChain snapshotChain = new SnapshotChain(chainFiles, snapshotVersions);
+
+		//--------------------------------------------------- this becomes the end of sync part
+
+		final AsyncSnapshotCallable<SnapshotResult<KeyedStateHandle>> asyncSnapshotCallable =
+			new AsyncSnapshotCallable<SnapshotResult<KeyedStateHandle>>() {
+				@Override
+				protected SnapshotResult<KeyedStateHandle> callInternal() throws Exception {
+
+					final StreamStateHandle chainFileHandle = writeFile(
+						primaryStreamFactory,
+						CheckpointedStateScope.SHARED,
+						chainSerializationProxy,
+						(outputStream, keyGroupId) -> {
+							for (int i = 0; i < kvStateSnapshots.size(); ++i) {
+								final int baseVersion = kvStateBaseVersions.get(i)[keyGroupId - keyGroupRange.getStartKeyGroup()];
+								try (OutputStream kgCompressionOut = keyGroupCompressionDecorator.decorateWithCompression(outputStream)) {
+									DataOutputViewStreamWrapper kgCompressionView = new DataOutputViewStreamWrapper(kgCompressionOut);
+									kgCompressionView.writeShort(i);
+									kvStateSnapshots.get(i).writeStateChangesInKeyGroup(kgCompressionView, keyGroupId, baseVersion);
+								} // this will just close the outer compression stream
+							}
+						});
+
+					final StreamStateHandle metaFileHandle = writeFile(
+						primaryStreamFactory,
+						CheckpointedStateScope.EXCLUSIVE,
+						metaSerializationProxy,
+						(outputStream, keyGroupId) -> {
+							for (int i = 0; i < pqStateSnapshots.size(); ++i) {
+								try (OutputStream kgCompressionOut = keyGroupCompressionDecorator.decorateWithCompression(outputStream)) {
+									DataOutputViewStreamWrapper kgCompressionView = new DataOutputViewStreamWrapper(kgCompressionOut);
+									kgCompressionView.writeShort(kvStateSnapshots.size() + i);
+									pqStateSnapshots.get(i).getKeyGroupWriter().writeStateInKeyGroup(kgCompressionView, keyGroupId);
+								} // this will just close the outer compression stream
+							}
+						});
+
+					final Map<StateHandleID, StreamStateHandle> sharedState = new HashMap<>(chainFiles.size());
+					for (StateHandleID chainFile : chainFiles) {
+						// files of the base chain are already registered by the confirmed checkpoint
+						sharedState.put(chainFile, new PlaceholderStreamStateHandle());
+					}
+					sharedState.put(chainFileId, chainFileHandle);
+
+					synchronized (pendingChains) {
+						pendingChains.put(checkpointId, snapshotChain);
+					}
+
+					return SnapshotResult.of(
+						new IncrementalRemoteKeyedStateHandle(
+							backendUID,
+							keyGroupRange,
+							checkpointId,
+							sharedState,
+							Collections.emptyMap(),
+							metaFileHandle));
+				}
+
+				private StreamStateHandle writeFile(
+					CheckpointStreamFactory streamFactory,
+					CheckpointedStateScope scope,
+					KeyedBackendSerializationProxy<K> serializationProxy,
+					KeyGroupWriter keyGroupWriter) throws Exception {
+
+					final CheckpointStreamFactory.CheckpointStateOutputStream outputStream =
+						streamFactory.createCheckpointStateOutputStream(scope);
+
+					snapshotCloseableRegistry.registerCloseable(outputStream);
+
+					final DataOutputViewStreamWrapper outView = new DataOutputViewStreamWrapper(outputStream);
+					serializationProxy.write(outView);
+
+					final long[] keyGroupRangeOffsets = new long[numberOfKeyGroups];
+					for (int keyGroupPos = 0; keyGroupPos < numberOfKeyGroups; ++keyGroupPos) {
+						int keyGroupId = keyGroupRange.getKeyGroupId(keyGroupPos);
+						keyGroupRangeOffsets[keyGroupPos] = outputStream.getPos();
+						outView.writeInt(keyGroupId);
+						keyGroupWriter.writeKeyGroup(outputStream, keyGroupId);
+					}
+
+					final long indexOffset = outputStream.getPos();
+					for (long keyGroupOffset : keyGroupRangeOffsets) {
+						outView.writeLong(keyGroupOffset);
+					}
+					outView.writeLong(indexOffset);
+
+					if (snapshotCloseableRegistry.unregisterCloseable(outputStream)) {
+						return outputStream.closeAndGetHandle();
+					} else {
+						throw new IOException("Stream already unregistered.");
+					}
+				}
+
+				@Override
+				protected void cleanupProvidedResources() {
+					for (StateSnapshot tableSnapshot : kvStateSnapshots) {
+						tableSnapshot.release();
+					}
+					for (StateSnapshot pqSnapshot : pqStateSnapshots) {
+						pqSnapshot.release();
+					}
+				}
+
+				@Override
+				protected void logAsyncSnapshotComplete(long startTime) {
+					logAsyncCompleted(primaryStreamFactory, startTime);
+				}
+			};
+
+		final FutureTask<SnapshotResult<KeyedStateHandle>> task =
+			asyncSnapshotCallable.toAsyncSnapshotFutureTask(cancelStreamRegistry);
+		finalizeSnapshotBeforeReturnHook(task);
+
+		return task;
+	}
+
+	@Override
+	void notifyCheckpointComplete(long checkpointId) {
+		final SnapshotChain completedChain;
+		synchronized (pendingChains) {
+			if (checkpointId <= lastCompletedCheckpointId) {
+				return;
+			}
+			completedChain = pendingChains.get(checkpointId);
+			pendingChains.headMap(checkpointId + 1).clear();
+			if (completedChain == null) {
+				// e.g. a savepoint, which does not change the base of the next incremental checkpoint
+				return;
+			}
+			confirmedChain = completedChain;
+			lastCompletedCheckpointId = checkpointId;
+		}
+
+		// removals that are contained in the confirmed checkpoint are no longer needed for the next checkpoints
+		for (Map.Entry<String, int[]> stateVersions : completedChain.snapshotVersions.entrySet()) {
+			final CopyOnWriteStateTable<K, ?, ?> stateTable =
+				(CopyOnWriteStateTable<K, ?, ?>) registeredKVStates.get(stateVersions.getKey());
+			final int[] versions = stateVersions.getValue();
+			for (int keyGroupPos = 0; keyGroupPos < versions.length; ++keyGroupPos) {
+				stateTable.pruneRemovedMappings(keyGroupRange.getKeyGroupId(keyGroupPos), versions[keyGroupPos]);
+			}
+		}
+	}
+
+	// ------------------------------------------------------------------------
+	//  Restore utilities
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the chain files of the given handle, in the order in which they have to be applied.
+	 */
+	static List<StreamStateHandle> getChainFiles(IncrementalRemoteKeyedStateHandle stateHandle) {
+		final TreeMap<String, StreamStateHandle> chainFiles = new TreeMap<>();
+		for (Map.Entry<StateHandleID, StreamStateHandle> sharedState : stateHandle.getSharedState().entrySet()) {
+			final String id = sharedState.getKey().getKeyString();
+			if (!id.startsWith(CHAIN_FILE_ID_PREFIX)) {
+				throw new IllegalStateException("Unexpected shared state in incremental heap snapshot: " + id);
+			}
+			chainFiles.put(id, sharedState.getValue());
+		}
+		return new ArrayList<>(chainFiles.values());
+	}
+
+	/**
+	 * Reads the key-group index at the end of a file written by this strategy and returns the offsets of the
+	 * key-groups that intersect with the given range.
+	 */
+	static KeyGroupRangeOffsets readKeyGroupRangeOffsets(
+		FSDataInputStream inputStream,
+		StreamStateHandle fileHandle,
+		KeyGroupRange writtenKeyGroupRange,
+		KeyGroupRange keyGroupRange) throws IOException {
+
+		final DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(inputStream);
+		inputStream.seek(fileHandle.getStateSize() - Long.BYTES);
+		inputStream.seek(inView.readLong());
+
+		final long[] offsets = new long[writtenKeyGroupRange.getNumberOfKeyGroups()];
+		for (int i = 0; i < offsets.length; ++i) {
+			offsets[i] = inView.readLong();
+		}
+		return new KeyGroupRangeOffsets(writtenKeyGroupRange, offsets).getIntersection(keyGroupRange);
+	}
+
+	/**
+	 * Writes the state of one key-group into a file.
+	 */
+	@FunctionalInterface
+	private interface KeyGroupWriter {
+		void writeKeyGroup(OutputStream outputStream, int keyGroupId) throws IOException;
+	}
+
+	/**
+	 * The files of a checkpoint and the state map versions that the checkpoint contains, which are the base for
+	 * the changes of the next checkpoint.
+	 */
+	private static final class SnapshotChain {
+
+		/** The handle ids of the files, in the order in which they have to be applied. */
+		final List<StateHandleID> files;
+
+		/** The snapshot versions of the state maps, by state name and key-group position. */
+		final Map<String, int[]> snapshotVersions;
+
+		SnapshotChain(List<StateHandleID> files, Map<String, int[]> snapshotVersions) {
+			this.files = files;
+			this.snapshotVersions = snapshotVersions;
+		}
+	}
+}
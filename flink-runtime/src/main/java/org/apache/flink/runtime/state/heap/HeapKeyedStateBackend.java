@@ -43,6 +43,7 @@ import org.apache.flink.runtime.state.KeyedStateFunction;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.LocalRecoveryConfig;
 import org.apache.flink.runtime.state.PriorityComparable;
+import org.apache.flink.runtime.state.PriorityQueueSetFactory;
 import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.RegisteredPriorityQueueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.SnapshotResult;
@@ -50,6 +51,7 @@ import org.apache.flink.runtime.state.StateSnapshotRestore;
 import org.apache.flink.runtime.state.StateSnapshotTransformer.StateSnapshotTransformFactory;
 import org.apache.flink.runtime.state.StateSnapshotTransformers;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.ttl.TtlBackgroundCleanup;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.util.FlinkRuntimeException;
 import org.apache.flink.util.StateMigrationException;
@@ -58,11 +60,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.RunnableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -72,7 +76,7 @@ import java.util.stream.Stream;
  *
  * @param <K> The key by which state is keyed.
  */
-public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
+public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> implements TtlBackgroundCleanup {
 
 	private static final Logger LOG = LoggerFactory.getLogger(HeapKeyedStateBackend.class);
 
@@ -109,7 +113,13 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	/**
 	 * Factory for state that is organized as priority queue.
 	 */
-	private final HeapPriorityQueueSetFactory priorityQueueSetFactory;
+	private final PriorityQueueSetFactory priorityQueueSetFactory;
+
+	/**
+	 * The background cleanup of the states with TTL, or null if it is disabled.
+	 */
+	@Nullable
+	private final HeapTtlBackgroundCleanup ttlBackgroundCleanup;
 
 	public HeapKeyedStateBackend(
 		TaskKvStateRegistry kvStateRegistry,
@@ -122,9 +132,10 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		Map<String, StateTable<K, ?, ?>> registeredKVStates,
 		Map<String, HeapPriorityQueueSnapshotRestoreWrapper> registeredPQStates,
 		LocalRecoveryConfig localRecoveryConfig,
-		HeapPriorityQueueSetFactory priorityQueueSetFactory,
+		PriorityQueueSetFactory priorityQueueSetFactory,
 		HeapSnapshotStrategy<K> snapshotStrategy,
-		InternalKeyContext<K> keyContext) {
+		InternalKeyContext<K> keyContext,
+		@Nullable HeapTtlBackgroundCleanup ttlBackgroundCleanup) {
 		super(
 			kvStateRegistry,
 			keySerializer,
@@ -140,6 +151,7 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		LOG.info("Initializing heap keyed state backend with stream factory.");
 		this.priorityQueueSetFactory = priorityQueueSetFactory;
 		this.snapshotStrategy = snapshotStrategy;
+		this.ttlBackgroundCleanup = ttlBackgroundCleanup;
 	}
 
 	// ------------------------------------------------------------------------
@@ -168,7 +180,9 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 			} else {
 				registeredPQStates.put(
 					stateName,
-					existingState.forUpdatedSerializer(byteOrderedElementSerializer));
+					existingState.forUpdatedSerializer(
+						byteOrderedElementSerializer,
+						!compatibilityResult.isCompatibleAsIs()));
 			}
 
 			return existingState.getPriorityQueue();
@@ -184,7 +198,7 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo) {
 
 		final String stateName = metaInfo.getName();
-		final HeapPriorityQueueSet<T> priorityQueue = priorityQueueSetFactory.create(
+		final KeyGroupedInternalPriorityQueue<T> priorityQueue = priorityQueueSetFactory.create(
 			stateName,
 			metaInfo.getElementSerializer());
 
@@ -308,7 +322,7 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 	@Override
 	public void notifyCheckpointComplete(long checkpointId) {
-		//Nothing to do
+		snapshotStrategy.notifyCheckpointComplete(checkpointId);
 	}
 
 	@Override
@@ -336,6 +350,33 @@ public class HeapKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		}
 	}
 
+	@Nullable
+	@Override
+	@SuppressWarnings("unchecked")
+	public <S> Runnable registerTtlState(
+		@Nonnull String stateName,
+		long ttl,
+		@Nonnull Function<S, S> unexpiredOrNull) {
+
+		final StateTable<K, ?, S> stateTable = (StateTable<K, ?, S>) registeredKVStates.get(stateName);
+		if (ttlBackgroundCleanup == null || stateTable == null) {
+			return null;
+		}
+		return ttlBackgroundCleanup.register(stateName, stateTable, ttl, unexpiredOrNull);
+	}
+
+	@Override
+	public long getBackgroundCleanupInterval() {
+		return ttlBackgroundCleanup != null ? ttlBackgroundCleanup.getInterval() : 0L;
+	}
+
+	@Override
+	public void runBackgroundCleanup() {
+		if (ttlBackgroundCleanup != null) {
+			ttlBackgroundCleanup.run();
+		}
+	}
+
 	@Override
 	public String toString() {
 		return "HeapKeyedStateBackend";
@@ -20,6 +20,7 @@ package org.apache.flink.runtime.state.heap;
 
 import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.runtime.query.TaskKvStateRegistry;
 import org.apache.flink.runtime.state.AbstractKeyedStateBackendBuilder;
@@ -27,8 +28,10 @@ import org.apache.flink.runtime.state.BackendBuildingException;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.PriorityQueueSetFactory;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.Preconditions;
 
 import javax.annotation.Nonnull;
 import java.util.Collection;
@@ -48,12 +51,27 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
 	/**
 	 * Factory for state that is organized as priority queue.
 	 */
-	private final HeapPriorityQueueSetFactory priorityQueueSetFactory;
+	private final PriorityQueueSetFactory priorityQueueSetFactory;
 	/**
 	 * Whether asynchronous snapshot is enabled.
 	 */
 	private final boolean asynchronousSnapshots;
-
+	/**
+	 * Whether incremental checkpoints are enabled, only supported with asynchronous snapshots.
+	 */
+	private boolean enableIncrementalCheckpointing;
+	/**
+	 * The maximum number of incremental checkpoints on top of a full checkpoint.
+	 */
+	private int maxDeltaChainLength;
+	/**
+	 * The interval of the background cleanup of states with TTL in milliseconds, 0 if it is disabled.
+	 */
+	private long ttlBackgroundCleanupInterval;
+	/**
+	 * The time that one run of the background cleanup of states with TTL may take, in milliseconds.
+	 */
+	private long ttlBackgroundCleanupTimeBudget;
 
 	public HeapKeyedStateBackendBuilder(
 		TaskKvStateRegistry kvStateRegistry,
@@ -66,7 +84,7 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
 		@Nonnull Collection<KeyedStateHandle> stateHandles,
 		StreamCompressionDecorator keyGroupCompressionDecorator,
 		LocalRecoveryConfig localRecoveryConfig,
-		HeapPriorityQueueSetFactory priorityQueueSetFactory,
+		PriorityQueueSetFactory priorityQueueSetFactory,
 		boolean asynchronousSnapshots,
 		CloseableRegistry cancelStreamRegistry) {
 		super(
@@ -83,6 +101,29 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
 		this.localRecoveryConfig = localRecoveryConfig;
 		this.priorityQueueSetFactory = priorityQueueSetFactory;
 		this.asynchronousSnapshots = asynchronousSnapshots;
+		this.enableIncrementalCheckpointing = false;
+		this.maxDeltaChainLength = CheckpointingOptions.HEAP_INCREMENTAL_MAX_DELTA_CHAIN_LENGTH.defaultValue();
+		this.ttlBackgroundCleanupInterval = CheckpointingOptions.HEAP_TTL_BACKGROUND_CLEANUP_INTERVAL.defaultValue().toMillis();
+		this.ttlBackgroundCleanupTimeBudget = CheckpointingOptions.HEAP_TTL_BACKGROUND_CLEANUP_TIME_BUDGET.defaultValue().toMillis();
+	}
+
+	public HeapKeyedStateBackendBuilder<K> setEnableIncrementalCheckpointing(boolean enableIncrementalCheckpointing) {
+		this.enableIncrementalCheckpointing = enableIncrementalCheckpointing;
+		return this;
+	}
+
+	public HeapKeyedStateBackendBuilder<K> setMaxDeltaChainLength(int maxDeltaChainLength) {
+		Preconditions.checkArgument(maxDeltaChainLength >= 0, "The maximum delta chain length must not be negative.");
+		this.maxDeltaChainLength = maxDeltaChainLength;
+		return this;
+	}
+
+	public HeapKeyedStateBackendBuilder<K> setTtlBackgroundCleanup(long interval, long timeBudget) {
+		Preconditions.checkArgument(interval >= 0, "The cleanup interval must not be negative.");
+		Preconditions.checkArgument(timeBudget > 0, "The cleanup time budget must be positive.");
+		this.ttlBackgroundCleanupInterval = interval;
+		this.ttlBackgroundCleanupTimeBudget = timeBudget;
+		return this;
 	}
 
 	@Override
@@ -115,6 +156,10 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
 		} catch (Exception e) {
 			throw new BackendBuildingException("Failed when trying to restore heap backend", e);
 		}
+		HeapTtlBackgroundCleanup ttlBackgroundCleanup = ttlBackgroundCleanupInterval > 0 ?
+			new HeapTtlBackgroundCleanup(
+				ttlBackgroundCleanupInterval, ttlBackgroundCleanupTimeBudget, ttlTimeProvider, keyContext) :
+			null;
 		return new HeapKeyedStateBackend<>(
 			kvStateRegistry,
 			keySerializerProvider.currentSchemaSerializer(),
@@ -128,7 +173,8 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
 			localRecoveryConfig,
 			priorityQueueSetFactory,
 			snapshotStrategy,
-			keyContext);
+			keyContext,
+			ttlBackgroundCleanup);
 	}
 
 	private HeapSnapshotStrategy<K> initSnapshotStrategy(
@@ -139,6 +185,19 @@ public class HeapKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBu
 		SnapshotStrategySynchronicityBehavior<K> synchronicityTrait = asynchronousSnapshots ?
 			new AsyncSnapshotStrategySynchronicityBehavior<>() :
 			new SyncSnapshotStrategySynchronicityBehavior<>();
+		// incremental snapshots rely on the change tracking of the copy-on-write state tables
+		if (enableIncrementalCheckpointing && asynchronousSnapshots) {
+			return new HeapIncrementalSnapshotStrategy<>(
+				synchronicityTrait,
+				registeredKVStates,
+				registeredPQStates,
+				keyGroupCompressionDecorator,
+				localRecoveryConfig,
+				keyGroupRange,
+				cancelStreamRegistry,
+				keySerializerProvider,
+				maxDeltaChainLength);
+		}
 		return new HeapSnapshotStrategy<>(
 			synchronicityTrait,
 			registeredKVStates,
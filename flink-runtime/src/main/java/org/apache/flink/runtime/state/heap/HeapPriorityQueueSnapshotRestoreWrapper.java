@@ -22,6 +22,7 @@ import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.KeyExtractorFunction;
 import org.apache.flink.runtime.state.KeyGroupPartitioner;
 import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
 import org.apache.flink.runtime.state.RegisteredPriorityQueueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.StateSnapshot;
 import org.apache.flink.runtime.state.StateSnapshotKeyGroupReader;
@@ -39,7 +40,7 @@ public class HeapPriorityQueueSnapshotRestoreWrapper<T extends HeapPriorityQueue
 	implements StateSnapshotRestore {
 
 	@Nonnull
-	private final HeapPriorityQueueSet<T> priorityQueue;
+	private final KeyGroupedInternalPriorityQueue<T> priorityQueue;
 	@Nonnull
 	private final KeyExtractorFunction<T> keyExtractorFunction;
 	@Nonnull
@@ -50,7 +51,7 @@ public class HeapPriorityQueueSnapshotRestoreWrapper<T extends HeapPriorityQueue
 	private final int totalKeyGroups;
 
 	public HeapPriorityQueueSnapshotRestoreWrapper(
-		@Nonnull HeapPriorityQueueSet<T> priorityQueue,
+		@Nonnull KeyGroupedInternalPriorityQueue<T> priorityQueue,
 		@Nonnull RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo,
 		@Nonnull KeyExtractorFunction<T> keyExtractorFunction,
 		@Nonnull KeyGroupRange localKeyGroupRange,
@@ -67,7 +68,12 @@ public class HeapPriorityQueueSnapshotRestoreWrapper<T extends HeapPriorityQueue
 	@Nonnull
 	@Override
 	public StateSnapshot stateSnapshot() {
-		final T[] queueDump = (T[]) priorityQueue.toArray(new HeapPriorityQueueElement[priorityQueue.size()]);
+		if (priorityQueue instanceof TimingWheelPriorityQueueSet) {
+			return ((TimingWheelPriorityQueueSet<T>) priorityQueue).stateSnapshot(metaInfo.deepCopy());
+		}
+
+		final HeapPriorityQueueSet<T> heapPriorityQueue = (HeapPriorityQueueSet<T>) priorityQueue;
+		final T[] queueDump = (T[]) heapPriorityQueue.toArray(new HeapPriorityQueueElement[heapPriorityQueue.size()]);
 		return new HeapPriorityQueueStateSnapshot<>(
 			queueDump,
 			keyExtractorFunction,
@@ -86,7 +92,7 @@ public class HeapPriorityQueueSnapshotRestoreWrapper<T extends HeapPriorityQueue
 	}
 
 	@Nonnull
-	public HeapPriorityQueueSet<T> getPriorityQueue() {
+	public KeyGroupedInternalPriorityQueue<T> getPriorityQueue() {
 		return priorityQueue;
 	}
 
@@ -101,6 +107,21 @@ public class HeapPriorityQueueSnapshotRestoreWrapper<T extends HeapPriorityQueue
 	public HeapPriorityQueueSnapshotRestoreWrapper<T> forUpdatedSerializer(
 		@Nonnull TypeSerializer<T> updatedSerializer) {
 
+		return forUpdatedSerializer(updatedSerializer, false);
+	}
+
+	/**
+	 * Returns a deep copy of the snapshot, where the serializer is changed to the given serializer. Queues that keep
+	 * their elements in serialized form re-encode them if the new serializer requires a migration.
+	 */
+	public HeapPriorityQueueSnapshotRestoreWrapper<T> forUpdatedSerializer(
+		@Nonnull TypeSerializer<T> updatedSerializer,
+		boolean requiresMigration) {
+
+		if (priorityQueue instanceof TimingWheelPriorityQueueSet) {
+			((TimingWheelPriorityQueueSet<T>) priorityQueue).updateElementSerializer(updatedSerializer, requiresMigration);
+		}
+
 		RegisteredPriorityQueueStateBackendMetaInfo<T> updatedMetaInfo =
 			new RegisteredPriorityQueueStateBackendMetaInfo<>(metaInfo.getName(), updatedSerializer);
 
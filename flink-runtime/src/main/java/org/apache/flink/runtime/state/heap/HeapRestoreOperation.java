@@ -24,14 +24,17 @@ import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.fs.FSDataInputStream;
 import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
 import org.apache.flink.runtime.state.KeyExtractorFunction;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeOffsets;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
 import org.apache.flink.runtime.state.KeyGroupsStateHandle;
 import org.apache.flink.runtime.state.Keyed;
 import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.PriorityComparable;
+import org.apache.flink.runtime.state.PriorityQueueSetFactory;
 import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.RegisteredPriorityQueueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.RestoreOperation;
@@ -40,6 +43,7 @@ import org.apache.flink.runtime.state.StateSerializerProvider;
 import org.apache.flink.runtime.state.StateSnapshotKeyGroupReader;
 import org.apache.flink.runtime.state.StateSnapshotRestore;
 import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.UncompressedStreamCompressionDecorator;
 import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
 import org.apache.flink.util.Preconditions;
@@ -67,7 +71,7 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 	private final Map<String, StateTable<K, ?, ?>> registeredKVStates;
 	private final Map<String, HeapPriorityQueueSnapshotRestoreWrapper> registeredPQStates;
 	private final CloseableRegistry cancelStreamRegistry;
-	private final HeapPriorityQueueSetFactory priorityQueueSetFactory;
+	private final PriorityQueueSetFactory priorityQueueSetFactory;
 	@Nonnull
 	private final KeyGroupRange keyGroupRange;
 	@Nonnegative
@@ -82,7 +86,7 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 		Map<String, StateTable<K, ?, ?>> registeredKVStates,
 		Map<String, HeapPriorityQueueSnapshotRestoreWrapper> registeredPQStates,
 		CloseableRegistry cancelStreamRegistry,
-		HeapPriorityQueueSetFactory priorityQueueSetFactory,
+		PriorityQueueSetFactory priorityQueueSetFactory,
 		@Nonnull KeyGroupRange keyGroupRange,
 		int numberOfKeyGroups,
 		HeapSnapshotStrategy<K> snapshotStrategy,
@@ -114,6 +118,12 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 				continue;
 			}
 
+			if (keyedStateHandle instanceof IncrementalRemoteKeyedStateHandle) {
+				restoreIncrementalStateHandle((IncrementalRemoteKeyedStateHandle) keyedStateHandle, !keySerializerRestored);
+				keySerializerRestored = true;
+				continue;
+			}
+
 			if (!(keyedStateHandle instanceof KeyGroupsStateHandle)) {
 				throw new IllegalStateException("Unexpected state handle type, " +
 					"expected: " + KeyGroupsStateHandle.class +
@@ -133,14 +143,7 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 				serializationProxy.read(inView);
 
 				if (!keySerializerRestored) {
-					// check for key serializer compatibility; this also reconfigures the
-					// key serializer to be compatible, if it is required and is possible
-					TypeSerializerSchemaCompatibility<K> keySerializerSchemaCompat =
-						keySerializerProvider.setPreviousSerializerSnapshotForRestoredState(serializationProxy.getKeySerializerSnapshot());
-					if (keySerializerSchemaCompat.isCompatibleAfterMigration() || keySerializerSchemaCompat.isIncompatible()) {
-						throw new StateMigrationException("The new key serializer must be compatible.");
-					}
-
+					checkKeySerializerCompatibility(serializationProxy);
 					keySerializerRestored = true;
 				}
 
@@ -157,7 +160,8 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 					keyGroupsStateHandle.getGroupRangeOffsets(),
 					kvStatesById, restoredMetaInfos.size(),
 					serializationProxy.getReadVersion(),
-					serializationProxy.isUsingKeyGroupCompression());
+					serializationProxy.isUsingKeyGroupCompression(),
+					false);
 			} finally {
 				if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
 					IOUtils.closeQuietly(fsDataInputStream);
@@ -167,6 +171,109 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 		return null;
 	}
 
+	private void checkKeySerializerCompatibility(KeyedBackendSerializationProxy<K> serializationProxy) throws StateMigrationException {
+		// check for key serializer compatibility; this also reconfigures the
+		// key serializer to be compatible, if it is required and is possible
+		TypeSerializerSchemaCompatibility<K> keySerializerSchemaCompat =
+			keySerializerProvider.setPreviousSerializerSnapshotForRestoredState(serializationProxy.getKeySerializerSnapshot());
+		if (keySerializerSchemaCompat.isCompatibleAfterMigration() || keySerializerSchemaCompat.isIncompatible()) {
+			throw new StateMigrationException("The new key serializer must be compatible.");
+		}
+	}
+
+	/**
+	 * Restores a handle of {@link HeapIncrementalSnapshotStrategy}. The meta data file registers all states and
+	 * contains the complete priority queue state, the chain files are applied on top of each other to restore the
+	 * key/value state.
+	 */
+	private void restoreIncrementalStateHandle(
+		IncrementalRemoteKeyedStateHandle stateHandle,
+		boolean restoreKeySerializer) throws Exception {
+
+		final StreamStateHandle metaStateHandle = stateHandle.getMetaStateHandle();
+		FSDataInputStream fsDataInputStream = metaStateHandle.openInputStream();
+		cancelStreamRegistry.registerCloseable(fsDataInputStream);
+
+		try {
+			DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(fsDataInputStream);
+
+			KeyedBackendSerializationProxy<K> serializationProxy =
+				new KeyedBackendSerializationProxy<>(userCodeClassLoader);
+
+			serializationProxy.read(inView);
+
+			if (restoreKeySerializer) {
+				checkKeySerializerCompatibility(serializationProxy);
+			}
+
+			List<StateMetaInfoSnapshot> restoredMetaInfos =
+				serializationProxy.getStateMetaInfoSnapshots();
+
+			final Map<Integer, StateMetaInfoSnapshot> kvStatesById = new HashMap<>();
+
+			createOrCheckStateForMetaInfo(restoredMetaInfos, kvStatesById);
+
+			int numPQStates = 0;
+			for (StateMetaInfoSnapshot metaInfoSnapshot : restoredMetaInfos) {
+				if (metaInfoSnapshot.getBackendStateType() == StateMetaInfoSnapshot.BackendStateType.PRIORITY_QUEUE) {
+					++numPQStates;
+				}
+			}
+
+			readStateHandleStateData(
+				fsDataInputStream,
+				inView,
+				HeapIncrementalSnapshotStrategy.readKeyGroupRangeOffsets(
+					fsDataInputStream, metaStateHandle, stateHandle.getKeyGroupRange(), keyGroupRange),
+				kvStatesById,
+				numPQStates,
+				serializationProxy.getReadVersion(),
+				serializationProxy.isUsingKeyGroupCompression(),
+				false);
+		} finally {
+			if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
+				IOUtils.closeQuietly(fsDataInputStream);
+			}
+		}
+
+		for (StreamStateHandle chainFile : HeapIncrementalSnapshotStrategy.getChainFiles(stateHandle)) {
+			fsDataInputStream = chainFile.openInputStream();
+			cancelStreamRegistry.registerCloseable(fsDataInputStream);
+
+			try {
+				DataInputViewStreamWrapper inView = new DataInputViewStreamWrapper(fsDataInputStream);
+
+				KeyedBackendSerializationProxy<K> serializationProxy =
+					new KeyedBackendSerializationProxy<>(userCodeClassLoader);
+
+				serializationProxy.read(inView);
+
+				List<StateMetaInfoSnapshot> restoredMetaInfos =
+					serializationProxy.getStateMetaInfoSnapshots();
+
+				final Map<Integer, StateMetaInfoSnapshot> kvStatesById = new HashMap<>();
+				for (StateMetaInfoSnapshot metaInfoSnapshot : restoredMetaInfos) {
+					kvStatesById.put(kvStatesById.size(), metaInfoSnapshot);
+				}
+
+				readStateHandleStateData(
+					fsDataInputStream,
+					inView,
+					HeapIncrementalSnapshotStrategy.readKeyGroupRangeOffsets(
+						fsDataInputStream, chainFile, stateHandle.getKeyGroupRange(), keyGroupRange),
+					kvStatesById,
+					restoredMetaInfos.size(),
+					serializationProxy.getReadVersion(),
+					serializationProxy.isUsingKeyGroupCompression(),
+					true);
+			} finally {
+				if (cancelStreamRegistry.unregisterCloseable(fsDataInputStream)) {
+					IOUtils.closeQuietly(fsDataInputStream);
+				}
+			}
+		}
+	}
+
 	private void createOrCheckStateForMetaInfo(
 		List<StateMetaInfoSnapshot> restoredMetaInfo,
 		Map<Integer, StateMetaInfoSnapshot> kvStatesById) {
@@ -208,7 +315,7 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 		RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo) {
 
 		final String stateName = metaInfo.getName();
-		final HeapPriorityQueueSet<T> priorityQueue = priorityQueueSetFactory.create(
+		final KeyGroupedInternalPriorityQueue<T> priorityQueue = priorityQueueSetFactory.create(
 			stateName,
 			metaInfo.getElementSerializer());
 
@@ -230,7 +337,8 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 		Map<Integer, StateMetaInfoSnapshot> kvStatesById,
 		int numStates,
 		int readVersion,
-		boolean isCompressed) throws IOException {
+		boolean isCompressed,
+		boolean isStateChanges) throws IOException {
 
 		final StreamCompressionDecorator streamCompressionDecorator = isCompressed ?
 			SnappyStreamCompressionDecorator.INSTANCE : UncompressedStreamCompressionDecorator.INSTANCE;
@@ -256,7 +364,8 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 					kvStatesById,
 					keyGroupIndex,
 					numStates,
-					readVersion);
+					readVersion,
+					isStateChanges);
 			}
 		}
 	}
@@ -266,7 +375,8 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 		Map<Integer, StateMetaInfoSnapshot> kvStatesById,
 		int keyGroupIndex,
 		int numStates,
-		int readVersion) throws IOException {
+		int readVersion,
+		boolean isStateChanges) throws IOException {
 
 		DataInputViewStreamWrapper inView =
 			new DataInputViewStreamWrapper(inputStream);
@@ -289,7 +399,14 @@ public class HeapRestoreOperation<K> implements RestoreOperation<Void> {
 						stateMetaInfoSnapshot.getBackendStateType() + ".");
 			}
 
-			StateSnapshotKeyGroupReader keyGroupReader = registeredState.keyGroupReader(readVersion);
+			StateSnapshotKeyGroupReader keyGroupReader;
+			if (isStateChanges) {
+				// incremental heap snapshots only contain the changes of key/value states
+				Preconditions.checkState(registeredState instanceof StateTable, "Unexpected state in state changes.");
+				keyGroupReader = StateTableByKeyGroupReaders.changesReader((StateTable<?, ?, ?>) registeredState);
+			} else {
+				keyGroupReader = registeredState.keyGroupReader(readVersion);
+			}
 			keyGroupReader.readMappingsInKeyGroup(inView, keyGroupIndex);
 		}
 	}
@@ -225,6 +225,14 @@ class HeapSnapshotStrategy<K>
 		return task;
 	}
 
+	/**
+	 * Notifies the strategy that the checkpoint with the given id was completed. Called by the thread that modifies the
+	 * state.
+	 */
+	void notifyCheckpointComplete(long checkpointId) {
+		// full snapshots do not depend on previous checkpoints
+	}
+
 	@Override
 	public void finalizeSnapshotBeforeReturnHook(Runnable runnable) {
 		snapshotStrategySynchronicityTrait.finalizeSnapshotBeforeReturnHook(runnable);
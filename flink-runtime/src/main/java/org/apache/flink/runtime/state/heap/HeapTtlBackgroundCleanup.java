@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Background cleanup of the states with TTL of a {@link HeapKeyedStateBackend}. Each state is tracked by a
+ * {@link HeapTtlExpiryIndex}, and every run of the cleanup scans the due key-groups of the states in turn, until its
+ * time budget is used up. The next run continues where the previous one stopped.
+ */
+public class HeapTtlBackgroundCleanup {
+
+	/** The interval in which the cleanup runs, in milliseconds. */
+	@Nonnegative
+	private final long interval;
+
+	/** The time that one run of the cleanup may take, in nanoseconds. */
+	@Nonnegative
+	private final long timeBudgetNanos;
+
+	@Nonnull
+	private final TtlTimeProvider timeProvider;
+
+	@Nonnull
+	private final InternalKeyContext<?> keyContext;
+
+	/** The indexes of all registered states. */
+	@Nonnull
+	private final List<HeapTtlExpiryIndex<?, ?, ?>> expiryIndexes;
+
+	/** The position of the index with which the next run starts. */
+	private int nextIndex;
+
+	public HeapTtlBackgroundCleanup(
+		@Nonnegative long interval,
+		@Nonnegative long timeBudget,
+		@Nonnull TtlTimeProvider timeProvider,
+		@Nonnull InternalKeyContext<?> keyContext) {
+
+		checkArgument(interval > 0, "The cleanup interval must be positive.");
+		checkArgument(timeBudget > 0, "The cleanup time budget must be positive.");
+		this.interval = interval;
+		this.timeBudgetNanos = TimeUnit.MILLISECONDS.toNanos(timeBudget);
+		this.timeProvider = timeProvider;
+		this.keyContext = keyContext;
+		this.expiryIndexes = new ArrayList<>();
+	}
+
+	long getInterval() {
+		return interval;
+	}
+
+	/**
+	 * Registers the table of a state with TTL and returns the callback to run on every access of the state. A
+	 * previous registration of the same state is replaced.
+	 */
+	@Nonnull
+	<N, S> Runnable register(
+		@Nonnull String stateName,
+		@Nonnull StateTable<?, N, S> stateTable,
+		long ttl,
+		@Nonnull Function<S, S> unexpiredOrNull) {
+
+		final HeapTtlExpiryIndex<?, N, S> expiryIndex = new HeapTtlExpiryIndex<>(
+			stateName,
+			stateTable,
+			ttl,
+			unexpiredOrNull,
+			keyContext.getKeyGroupRange().getStartKeyGroup(),
+			keyContext.getKeyGroupRange().getNumberOfKeyGroups());
+
+		// entries that were restored or written before the registration expire one TTL from now at the latest
+		expiryIndex.markNonEmptyKeyGroups(timeProvider.currentTimestamp());
+		expiryIndexes.removeIf(index -> index.getStateName().equals(stateName));
+		expiryIndexes.add(expiryIndex);
+		nextIndex = 0;
+
+		return () -> expiryIndex.markAccessed(keyContext.getCurrentKeyGroupIndex(), timeProvider.currentTimestamp());
+	}
+
+	/**
+	 * Removes expired entries of the registered states until the time budget is used up.
+	 */
+	void run() {
+		final long now = timeProvider.currentTimestamp();
+		final long deadlineNanos = System.nanoTime() + timeBudgetNanos;
+		for (int i = 0; i < expiryIndexes.size(); ++i) {
+			if (!expiryIndexes.get(nextIndex).cleanup(now, deadlineNanos)) {
+				return;
+			}
+			nextIndex = (nextIndex + 1) % expiryIndexes.size();
+		}
+	}
+}
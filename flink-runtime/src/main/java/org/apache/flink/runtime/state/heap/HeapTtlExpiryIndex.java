@@ -0,0 +1,218 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.internal.InternalKvState.StateIncrementalVisitor;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+
+/**
+ * Coarse index of the key-groups of one state with TTL by the time at which their entries expire. Every access of the
+ * state marks the current key-group in the bucket of the time at which the accessed entry expires. Once all times of a
+ * bucket have passed, the key-groups of the bucket are scanned, and their expired entries are removed.
+ *
+ * <p>Key-groups that still contain entries after the scan are marked again for the time at which these entries expire
+ * at the latest. So every entry is scanned after it expired, even if it is never accessed again, or if a visitor
+ * skipped it because the state map was modified during the scan.
+ *
+ * @param <K> type of the keys.
+ * @param <N> type of the namespaces.
+ * @param <S> type of the state values, including their timestamps.
+ */
+class HeapTtlExpiryIndex<K, N, S> {
+
+	/** The number of buckets into which the time to live is divided. */
+	private static final int BUCKETS_PER_TTL = 64;
+
+	/** Recommended number of entries that the state visitor returns at once. */
+	private static final int VISITOR_BATCH_SIZE = 64;
+
+	@Nonnull
+	private final String stateName;
+
+	@Nonnull
+	private final StateTable<K, N, S> stateTable;
+
+	/** The time to live of the state entries, in milliseconds. */
+	@Nonnegative
+	private final long ttl;
+
+	/** The range of expiration times covered by one bucket. */
+	@Nonnegative
+	private final long bucketWidth;
+
+	/** Returns the unexpired part of a state value, or null if all of it has expired. */
+	@Nonnull
+	private final Function<S, S> unexpiredOrNull;
+
+	/** The first key-group of the backend. Key-groups are stored relative to it. */
+	private final int firstKeyGroup;
+
+	/** The number of key-groups of the backend. */
+	private final int numberOfKeyGroups;
+
+	/** The key-groups with entries that may expire in a bucket, by bucket. */
+	@Nonnull
+	private final TreeMap<Long, BitSet> buckets;
+
+	/** The bucket that was marked last, cached because most accesses mark the same bucket. */
+	private long lastMarkedBucket;
+
+	@Nullable
+	private BitSet lastMarkedKeyGroups;
+
+	/** The key-groups of the due bucket that remain to be scanned. */
+	@Nullable
+	private BitSet dueKeyGroups;
+
+	/** The key-group that is currently scanned, relative to the first key-group. */
+	private int scannedKeyGroup;
+
+	/** The visitor of the currently scanned key-group, or null if no key-group is scanned. */
+	@Nullable
+	private StateIncrementalVisitor<K, N, S> visitor;
+
+	HeapTtlExpiryIndex(
+		@Nonnull String stateName,
+		@Nonnull StateTable<K, N, S> stateTable,
+		@Nonnegative long ttl,
+		@Nonnull Function<S, S> unexpiredOrNull,
+		int firstKeyGroup,
+		int numberOfKeyGroups) {
+
+		this.stateName = stateName;
+		this.stateTable = stateTable;
+		this.ttl = ttl;
+		this.bucketWidth = Math.max(1L, ttl / BUCKETS_PER_TTL);
+		this.unexpiredOrNull = unexpiredOrNull;
+		this.firstKeyGroup = firstKeyGroup;
+		this.numberOfKeyGroups = numberOfKeyGroups;
+		this.buckets = new TreeMap<>();
+		this.lastMarkedBucket = Long.MIN_VALUE;
+	}
+
+	@Nonnull
+	String getStateName() {
+		return stateName;
+	}
+
+	/**
+	 * Marks that the entries of the given key-group may expire after the given access time.
+	 */
+	void markAccessed(int keyGroup, long accessTime) {
+		final long expirationTime = accessTime > Long.MAX_VALUE - ttl ? Long.MAX_VALUE : accessTime + ttl;
+		final long bucket = Math.floorDiv(expirationTime, bucketWidth);
+		if (bucket != lastMarkedBucket || lastMarkedKeyGroups == null) {
+			lastMarkedKeyGroups = buckets.computeIfAbsent(bucket, b -> new BitSet(numberOfKeyGroups));
+			lastMarkedBucket = bucket;
+		}
+		lastMarkedKeyGroups.set(keyGroup - firstKeyGroup);
+	}
+
+	/**
+	 * Marks all key-groups that already contain entries, e.g. after a restore, as accessed at the given time.
+	 */
+	void markNonEmptyKeyGroups(long now) {
+		for (int keyGroup = firstKeyGroup; keyGroup < firstKeyGroup + numberOfKeyGroups; ++keyGroup) {
+			final StateMap<K, N, S> stateMap = stateTable.getMapForKeyGroupScan(keyGroup);
+			if (stateMap != null && stateMap.size() > 0) {
+				markAccessed(keyGroup, now);
+			}
+		}
+	}
+
+	/**
+	 * Removes expired entries from the key-groups of all due buckets, until the deadline passes.
+	 *
+	 * @param now the current time of the TTL time provider.
+	 * @param deadlineNanos the {@link System#nanoTime()} at which the cleanup has to stop.
+	 * @return true if all due key-groups were scanned, false if the deadline passed before.
+	 */
+	boolean cleanup(long now, long deadlineNanos) {
+		while (true) {
+			if (visitor == null && !startNextKeyGroup(now)) {
+				return true;
+			}
+
+			if (visitor.hasNext()) {
+				final Collection<StateEntry<K, N, S>> entries = visitor.nextEntries();
+				for (StateEntry<K, N, S> entry : entries) {
+					final S state = entry.getState();
+					final S unexpired = unexpiredOrNull.apply(state);
+					if (unexpired == null) {
+						visitor.remove(entry);
+					} else if (unexpired != state) {
+						visitor.update(entry, unexpired);
+					}
+				}
+			} else {
+				if (!stateTable.getMapForKeyGroupScan(firstKeyGroup + scannedKeyGroup).isEmpty()) {
+					markAccessed(firstKeyGroup + scannedKeyGroup, now);
+				}
+				visitor = null;
+			}
+
+			if (System.nanoTime() >= deadlineNanos) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Starts the scan of the next key-group of a due bucket. Returns false if there is none.
+	 */
+	private boolean startNextKeyGroup(long now) {
+		while (true) {
+			if (dueKeyGroups != null) {
+				final int keyGroup = dueKeyGroups.nextSetBit(0);
+				if (keyGroup >= 0) {
+					dueKeyGroups.clear(keyGroup);
+					final StateMap<K, N, S> stateMap = stateTable.getMapForKeyGroupScan(firstKeyGroup + keyGroup);
+					if (stateMap != null) {
+						scannedKeyGroup = keyGroup;
+						visitor = stateMap.getStateIncrementalVisitor(VISITOR_BATCH_SIZE);
+						return true;
+					}
+					continue;
+				}
+				dueKeyGroups = null;
+			}
+
+			// a bucket is due once all expiration times that it covers have passed
+			final Map.Entry<Long, BitSet> first = buckets.firstEntry();
+			if (first == null || first.getKey() >= Math.floorDiv(now, bucketWidth)) {
+				return false;
+			}
+			buckets.remove(first.getKey());
+			if (first.getKey() == lastMarkedBucket) {
+				lastMarkedKeyGroups = null;
+			}
+			dueKeyGroups = first.getValue();
+		}
+	}
+}
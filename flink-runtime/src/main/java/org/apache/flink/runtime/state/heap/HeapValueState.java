@@ -24,6 +24,9 @@ import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Heap-backed partitioned {@link ValueState} that is snapshotted into files.
  *
@@ -90,6 +93,16 @@ class HeapValueState<K, N, V>
 		stateTable.put(currentNamespace, value);
 	}
 
+	@Override
+	public List<V> getAll(List<K> keys, N namespace) {
+		final List<V> result = new ArrayList<>(keys.size());
+		for (K key : keys) {
+			final V value = stateTable.get(key, namespace);
+			result.add(value == null ? getDefaultValue() : value);
+		}
+		return result;
+	}
+
 	@SuppressWarnings("unchecked")
 	static <K, N, SV, S extends State, IS extends S> IS create(
 		StateDescriptor<S, SV> stateDesc,
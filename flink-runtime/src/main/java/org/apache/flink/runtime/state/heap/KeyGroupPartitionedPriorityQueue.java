@@ -170,6 +170,14 @@ public class KeyGroupPartitionedPriorityQueue<T, PQ extends InternalPriorityQueu
 		return new KeyGroupConcatenationIterator<>(keyGroupedHeaps);
 	}
 
+	/**
+	 * Returns the sub-queue that holds the elements of the given key-group.
+	 */
+	@Nonnull
+	protected PQ getKeyGroupSubHeap(@Nonnegative int keyGroupId) {
+		return keyGroupedHeaps[globalKeyGroupToLocalIndex(keyGroupId)];
+	}
+
 	private PQ getKeyGroupSubHeapForElement(T element) {
 		return keyGroupedHeaps[computeKeyGroupIndex(element)];
 	}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+
+/**
+ * A {@link PrimitiveKeyStateMap} for keys of type {@link Long}, as serialized by the {@link LongSerializer}.
+ *
+ * @param <N> type of namespace, always {@link org.apache.flink.runtime.state.VoidNamespace}.
+ * @param <S> type of state.
+ */
+class LongKeyStateMap<N, S> extends PrimitiveKeyStateMap<Long, N, S> {
+
+	LongKeyStateMap(TypeSerializer<S> stateSerializer) {
+		super(stateSerializer);
+	}
+
+	@Override
+	long toPrimitiveKey(Long key) {
+		return key;
+	}
+
+	@Override
+	Long fromPrimitiveKey(long primitiveKey) {
+		return primitiveKey;
+	}
+}
@@ -0,0 +1,636 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.StateTransformationFunction;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.util.MathUtils;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Base class of {@link StateMap}s for primitive keys in the {@link VoidNamespace}. The mappings are stored with open
+ * addressing and linear probing in parallel arrays of primitive keys and state objects, so a mapping needs neither an
+ * entry object, nor a boxed key, nor a namespace reference.
+ *
+ * <p>Like the {@link CopyOnWriteStateMap}, this map supports asynchronous snapshots through copy-on-write. The key and
+ * state arrays are split into pages of a fixed number of slots. A snapshot shares the pages of the map, and the first
+ * modification of a page after a snapshot copies only that page, which is tracked by a version per page. State objects
+ * that may be modified in place are copied with the state serializer before they are handed out after a snapshot,
+ * which is tracked by a version per mapping.
+ *
+ * <p>All namespaces passed to this map must be {@link VoidNamespace#INSTANCE}.
+ *
+ * @param <K> type of key.
+ * @param <N> type of namespace, always {@link VoidNamespace}.
+ * @param <S> type of state.
+ */
+abstract class PrimitiveKeyStateMap<K, N, S> extends StateMap<K, N, S> {
+
+	/**
+	 * Initial capacity of the arrays. Must be a power of two.
+	 */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/**
+	 * Max capacity of the arrays. Must be a power of two.
+	 */
+	private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+	/**
+	 * Max number of slots in a page of the arrays, which is the unit of copy-on-write. Must be a power of two.
+	 */
+	private static final int MAXIMUM_PAGE_SIZE = 1 << 10;
+
+	/**
+	 * Marks a mapping to a null state, because null marks a free slot in {@link #states}.
+	 */
+	private static final Object NULL_STATE = new Object();
+
+	/**
+	 * The serializer of the state, used to copy state objects for copy-on-write.
+	 */
+	private final TypeSerializer<S> stateSerializer;
+
+	/**
+	 * The keys of the mappings, split into pages.
+	 */
+	private long[][] keyPages;
+
+	/**
+	 * The states of the mappings, split into pages. Null for free slots and {@link #NULL_STATE} for mappings to null.
+	 */
+	private Object[][] statePages;
+
+	/**
+	 * The map version in which each page was allocated or last copied. A page of an older version than the highest
+	 * required snapshot version may be referenced by a snapshot, and must be copied before it is modified.
+	 */
+	private int[] pageVersions;
+
+	/**
+	 * The map version in which the state of each slot was last replaced or handed out.
+	 */
+	private int[] stateVersions;
+
+	/**
+	 * The number of slots of the arrays.
+	 */
+	private int capacity;
+
+	/**
+	 * The number of bits of a slot that select the slot within its page.
+	 */
+	private int pageShift;
+
+	/**
+	 * The mask that selects the slot within its page.
+	 */
+	private int pageMask;
+
+	/**
+	 * The number of mappings.
+	 */
+	private int size;
+
+	/**
+	 * The map is grown when its size reaches this threshold, which is 3/4 of the capacity.
+	 */
+	private int threshold;
+
+	/**
+	 * Incremented by structural modifications to allow (best effort) detection of concurrent modification.
+	 */
+	private int modCount;
+
+	/**
+	 * The current version of this map, which is incremented by every snapshot.
+	 */
+	private int stateMapVersion;
+
+	/**
+	 * The highest version of this map that is still required by an unreleased snapshot, or 0 if there is none.
+	 */
+	private int highestRequiredSnapshotVersion;
+
+	/**
+	 * The versions of all unreleased snapshots.
+	 */
+	private final TreeSet<Integer> snapshotVersions;
+
+	PrimitiveKeyStateMap(TypeSerializer<S> stateSerializer) {
+		this.stateSerializer = Preconditions.checkNotNull(stateSerializer);
+		this.snapshotVersions = new TreeSet<>();
+		allocate(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Converts a key to its primitive representation.
+	 */
+	abstract long toPrimitiveKey(K key);
+
+	/**
+	 * Converts the primitive representation of a key back to the key.
+	 */
+	abstract K fromPrimitiveKey(long primitiveKey);
+
+	// Public API from StateMap ------------------------------------------------------------------------------
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public S get(K key, N namespace) {
+		final int slot = findSlot(toPrimitiveKey(key));
+		if (slot < 0) {
+			return null;
+		}
+
+		// copy-on-write check for state
+		if (stateVersions[slot] < highestRequiredSnapshotVersion) {
+			final S state = unwrapState(stateAt(slot));
+			if (state != null) {
+				setState(slot, stateSerializer.copy(state));
+			}
+			stateVersions[slot] = stateMapVersion;
+		}
+		return unwrapState(stateAt(slot));
+	}
+
+	@Override
+	public boolean containsKey(K key, N namespace) {
+		return findSlot(toPrimitiveKey(key)) >= 0;
+	}
+
+	@Override
+	public void put(K key, N namespace, S state) {
+		final int slot = putSlot(toPrimitiveKey(key));
+		setState(slot, wrapState(state));
+		stateVersions[slot] = stateMapVersion;
+	}
+
+	@Override
+	public S putAndGetOld(K key, N namespace, S state) {
+		final int slot = putSlot(toPrimitiveKey(key));
+		final S oldState = copyIfShared(slot);
+		setState(slot, wrapState(state));
+		stateVersions[slot] = stateMapVersion;
+		return oldState;
+	}
+
+	@Override
+	public void remove(K key, N namespace) {
+		final int slot = findSlot(toPrimitiveKey(key));
+		if (slot >= 0) {
+			removeSlot(slot);
+		}
+	}
+
+	@Override
+	public S removeAndGetOld(K key, N namespace) {
+		final int slot = findSlot(toPrimitiveKey(key));
+		if (slot < 0) {
+			return null;
+		}
+		final S oldState = copyIfShared(slot);
+		removeSlot(slot);
+		return oldState;
+	}
+
+	@Override
+	public <T> void transform(
+		K key,
+		N namespace,
+		T value,
+		StateTransformationFunction<S, T> transformation) throws Exception {
+
+		final int slot = putSlot(toPrimitiveKey(key));
+		setState(slot, wrapState(transformation.apply(copyIfShared(slot), value)));
+		stateVersions[slot] = stateMapVersion;
+	}
+
+	@Override
+	public Stream<K> getKeys(N namespace) {
+		return StreamSupport.stream(spliterator(), false)
+			.filter(entry -> entry.getNamespace().equals(namespace))
+			.map(StateEntry::getKey);
+	}
+
+	@Nonnull
+	@Override
+	public Iterator<StateEntry<K, N, S>> iterator() {
+		return new StateEntryIterator();
+	}
+
+	@Override
+	public InternalKvState.StateIncrementalVisitor<K, N, S> getStateIncrementalVisitor(int recommendedMaxNumberOfReturnedRecords) {
+		return new StateIncrementalVisitorImpl(recommendedMaxNumberOfReturnedRecords);
+	}
+
+	@Override
+	public int sizeOfNamespace(Object namespace) {
+		return VoidNamespace.INSTANCE.equals(namespace) ? size : 0;
+	}
+
+	// Snapshotting ------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a snapshot of this {@link PrimitiveKeyStateMap}, to be written in checkpointing. Users should call
+	 * {@link #releaseSnapshot(StateMapSnapshot)} after using the returned object.
+	 *
+	 * @return a snapshot from this {@link PrimitiveKeyStateMap}, for checkpointing.
+	 */
+	@Nonnull
+	@Override
+	public PrimitiveKeyStateMapSnapshot<K, N, S> stateSnapshot() {
+		// we guard against concurrent modifications of highestRequiredSnapshotVersion between snapshot and release.
+		// This method must be called from the same thread that does all the modifications to the map.
+		synchronized (snapshotVersions) {
+			// increase the map version for copy-on-write and register the snapshot
+			if (++stateMapVersion < 0) {
+				// this is just a safety net against overflows, but should never happen in practice
+				throw new IllegalStateException("Version count overflow in PrimitiveKeyStateMap. Enforcing restart.");
+			}
+			highestRequiredSnapshotVersion = stateMapVersion;
+			snapshotVersions.add(stateMapVersion);
+		}
+		// the snapshot keeps the current pages, which are copied before the map modifies them
+		return new PrimitiveKeyStateMapSnapshot<>(this, stateMapVersion, keyPages.clone(), statePages.clone(), size);
+	}
+
+	@Override
+	public void releaseSnapshot(StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>> snapshotToRelease) {
+		PrimitiveKeyStateMapSnapshot<K, N, S> snapshot = (PrimitiveKeyStateMapSnapshot<K, N, S>) snapshotToRelease;
+		Preconditions.checkArgument(snapshot.isOwner(this),
+			"Cannot release snapshot which is owned by a different state map.");
+
+		synchronized (snapshotVersions) {
+			Preconditions.checkState(snapshotVersions.remove(snapshot.getSnapshotVersion()),
+				"Attempt to release unknown snapshot version");
+			highestRequiredSnapshotVersion = snapshotVersions.isEmpty() ? 0 : snapshotVersions.last();
+		}
+	}
+
+	@VisibleForTesting
+	int getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of pages that may be referenced by an unreleased snapshot, and are copied when modified.
+	 */
+	@VisibleForTesting
+	int getNumberOfSharedPages() {
+		int sharedPages = 0;
+		for (int pageVersion : pageVersions) {
+			if (pageVersion < highestRequiredSnapshotVersion) {
+				++sharedPages;
+			}
+		}
+		return sharedPages;
+	}
+
+	@SuppressWarnings("unchecked")
+	N getNamespace() {
+		return (N) VoidNamespace.INSTANCE;
+	}
+
+	@SuppressWarnings("unchecked")
+	static <S> S unwrapState(Object state) {
+		return state == NULL_STATE ? null : (S) state;
+	}
+
+	private static Object wrapState(Object state) {
+		return state == null ? NULL_STATE : state;
+	}
+
+	// Open addressing ---------------------------------------------------------------------------------------
+
+	private void allocate(int capacity) {
+		final int pageSize = Math.min(capacity, MAXIMUM_PAGE_SIZE);
+		final int numberOfPages = capacity / pageSize;
+		keyPages = new long[numberOfPages][pageSize];
+		statePages = new Object[numberOfPages][pageSize];
+		pageVersions = new int[numberOfPages];
+		Arrays.fill(pageVersions, stateMapVersion);
+		stateVersions = new int[capacity];
+		this.capacity = capacity;
+		pageShift = Integer.numberOfTrailingZeros(pageSize);
+		pageMask = pageSize - 1;
+		threshold = capacity == MAXIMUM_CAPACITY ? MAXIMUM_CAPACITY - 1 : (capacity >> 1) + (capacity >> 2);
+	}
+
+	private long keyAt(int slot) {
+		return keyPages[slot >>> pageShift][slot & pageMask];
+	}
+
+	private Object stateAt(int slot) {
+		return statePages[slot >>> pageShift][slot & pageMask];
+	}
+
+	private void setState(int slot, Object state) {
+		statePages[ownPage(slot)][slot & pageMask] = state;
+	}
+
+	private void setMapping(int slot, long primitiveKey, Object state) {
+		final int page = ownPage(slot);
+		keyPages[page][slot & pageMask] = primitiveKey;
+		statePages[page][slot & pageMask] = state;
+	}
+
+	/**
+	 * Copies the key and state page of the given slot if it may be referenced by an unreleased snapshot, and returns
+	 * the index of the page.
+	 */
+	private int ownPage(int slot) {
+		final int page = slot >>> pageShift;
+		if (pageVersions[page] < highestRequiredSnapshotVersion) {
+			keyPages[page] = keyPages[page].clone();
+			statePages[page] = statePages[page].clone();
+			pageVersions[page] = stateMapVersion;
+		}
+		return page;
+	}
+
+	private int homeSlot(long primitiveKey) {
+		return MathUtils.longToIntWithBitMixing(primitiveKey) & (capacity - 1);
+	}
+
+	/**
+	 * Returns the slot of the given key, or a negative value if the key is not contained.
+	 */
+	private int findSlot(long primitiveKey) {
+		final int mask = capacity - 1;
+		for (int slot = homeSlot(primitiveKey); ; slot = (slot + 1) & mask) {
+			if (stateAt(slot) == null) {
+				return -1;
+			}
+			if (keyAt(slot) == primitiveKey) {
+				return slot;
+			}
+		}
+	}
+
+	/**
+	 * Returns the slot of the given key, inserting a mapping to null if the key is not contained.
+	 */
+	private int putSlot(long primitiveKey) {
+		int slot = findSlot(primitiveKey);
+		if (slot >= 0) {
+			return slot;
+		}
+
+		if (size >= threshold) {
+			grow();
+		}
+		final int mask = capacity - 1;
+		slot = homeSlot(primitiveKey);
+		while (stateAt(slot) != null) {
+			slot = (slot + 1) & mask;
+		}
+		setMapping(slot, primitiveKey, NULL_STATE);
+		++size;
+		++modCount;
+		return slot;
+	}
+
+	/**
+	 * Removes the mapping in the given slot, moving back later mappings of the same cluster to keep their probe
+	 * sequences intact.
+	 */
+	private void removeSlot(int slot) {
+		final int mask = capacity - 1;
+		int hole = slot;
+		for (int next = (slot + 1) & mask; stateAt(next) != null; next = (next + 1) & mask) {
+			final int home = homeSlot(keyAt(next));
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				setMapping(hole, keyAt(next), stateAt(next));
+				stateVersions[hole] = stateVersions[next];
+				hole = next;
+			}
+		}
+		setMapping(hole, 0L, null);
+		stateVersions[hole] = 0;
+		--size;
+		++modCount;
+	}
+
+	private void grow() {
+		final int oldCapacity = capacity;
+		Preconditions.checkState(oldCapacity < MAXIMUM_CAPACITY, "Maximum capacity of PrimitiveKeyStateMap reached.");
+
+		final long[][] oldKeyPages = keyPages;
+		final Object[][] oldStatePages = statePages;
+		final int[] oldStateVersions = stateVersions;
+		final int oldPageShift = pageShift;
+		final int oldPageMask = pageMask;
+		allocate(oldCapacity << 1);
+
+		final int mask = capacity - 1;
+		for (int oldSlot = 0; oldSlot < oldCapacity; ++oldSlot) {
+			final Object state = oldStatePages[oldSlot >>> oldPageShift][oldSlot & oldPageMask];
+			if (state != null) {
+				final long primitiveKey = oldKeyPages[oldSlot >>> oldPageShift][oldSlot & oldPageMask];
+				int slot = homeSlot(primitiveKey);
+				while (stateAt(slot) != null) {
+					slot = (slot + 1) & mask;
+				}
+				setMapping(slot, primitiveKey, state);
+				stateVersions[slot] = oldStateVersions[oldSlot];
+			}
+		}
+	}
+
+	/**
+	 * Returns the state in the given slot, or a copy if the state is still referenced by an unreleased snapshot.
+	 */
+	private S copyIfShared(int slot) {
+		final S state = unwrapState(stateAt(slot));
+		return stateVersions[slot] < highestRequiredSnapshotVersion && state != null ?
+			stateSerializer.copy(state) :
+			state;
+	}
+
+	// Iteration ---------------------------------------------------------------------------------------------
+
+	/**
+	 * A mapping of this map, as returned by iterators and visitors.
+	 */
+	private class Entry implements StateEntry<K, N, S> {
+
+		private final K key;
+
+		private final S state;
+
+		Entry(K key, S state) {
+			this.key = key;
+			this.state = state;
+		}
+
+		@Override
+		public K getKey() {
+			return key;
+		}
+
+		@Override
+		public N getNamespace() {
+			return PrimitiveKeyStateMap.this.getNamespace();
+		}
+
+		@Override
+		public S getState() {
+			return state;
+		}
+	}
+
+	/**
+	 * Iterator over state entries in a {@link PrimitiveKeyStateMap} which does not tolerate concurrent modifications.
+	 */
+	private class StateEntryIterator implements Iterator<StateEntry<K, N, S>> {
+
+		private final int expectedModCount;
+
+		private int nextSlot;
+
+		StateEntryIterator() {
+			this.expectedModCount = modCount;
+			this.nextSlot = 0;
+			advance();
+		}
+
+		private void advance() {
+			while (nextSlot < capacity && stateAt(nextSlot) == null) {
+				++nextSlot;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return nextSlot < capacity;
+		}
+
+		@Override
+		public StateEntry<K, N, S> next() {
+			if (modCount != expectedModCount) {
+				throw new ConcurrentModificationException();
+			}
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			final StateEntry<K, N, S> entry = new Entry(fromPrimitiveKey(keyAt(nextSlot)), unwrapState(stateAt(nextSlot)));
+			++nextSlot;
+			advance();
+			return entry;
+		}
+	}
+
+	/**
+	 * Incremental visitor over state entries in a {@link PrimitiveKeyStateMap}. The visitor starts at a free slot and
+	 * walks the slots backwards. Removals only move mappings backwards within a cluster, so mappings that are removed
+	 * during the visit never cause other mappings to be skipped, though some may be returned twice. Mappings that are
+	 * inserted during the visit may be skipped. If the map grows during the visit, all mappings are moved to new slots,
+	 * so the visit starts over on the new arrays.
+	 */
+	private class StateIncrementalVisitorImpl implements InternalKvState.StateIncrementalVisitor<K, N, S> {
+
+		private final int maxTraversedSlots;
+
+		private final Collection<StateEntry<K, N, S>> entriesToReturn;
+
+		/** The slot that was visited last. */
+		private int slot;
+
+		/** The number of slots that remain to be visited. */
+		private int remainingSlots;
+
+		/** The capacity of the map when the visit started, {@link #slot} is only valid for this capacity. */
+		private int visitedCapacity;
+
+		StateIncrementalVisitorImpl(int recommendedMaxNumberOfReturnedRecords) {
+			this.maxTraversedSlots = Math.max(1, recommendedMaxNumberOfReturnedRecords);
+			this.entriesToReturn = new ArrayList<>();
+			start();
+		}
+
+		private void start() {
+			// there is always a free slot, because the load factor is below one
+			int freeSlot = 0;
+			while (stateAt(freeSlot) != null) {
+				++freeSlot;
+			}
+			slot = freeSlot;
+			remainingSlots = capacity - 1;
+			visitedCapacity = capacity;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (visitedCapacity != capacity) {
+				// the map has grown and rehashed all mappings since the last call
+				start();
+			}
+			return size > 0 && remainingSlots > 0;
+		}
+
+		@Override
+		public Collection<StateEntry<K, N, S>> nextEntries() {
+			if (!hasNext()) {
+				return null;
+			}
+
+			entriesToReturn.clear();
+			final int mask = capacity - 1;
+			for (int i = Math.min(remainingSlots, maxTraversedSlots); i > 0; --i) {
+				slot = (slot - 1) & mask;
+				--remainingSlots;
+				if (stateAt(slot) != null) {
+					entriesToReturn.add(new Entry(fromPrimitiveKey(keyAt(slot)), unwrapState(stateAt(slot))));
+				}
+			}
+			return entriesToReturn;
+		}
+
+		@Override
+		public void remove(StateEntry<K, N, S> stateEntry) {
+			PrimitiveKeyStateMap.this.remove(stateEntry.getKey(), stateEntry.getNamespace());
+		}
+
+		@Override
+		public void update(StateEntry<K, N, S> stateEntry, S newValue) {
+			PrimitiveKeyStateMap.this.put(stateEntry.getKey(), stateEntry.getNamespace(), newValue);
+		}
+	}
+}
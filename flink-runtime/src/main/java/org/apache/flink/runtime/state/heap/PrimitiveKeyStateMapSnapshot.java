@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.StateSnapshotTransformer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+
+/**
+ * This class represents the snapshot of a {@link PrimitiveKeyStateMap}.
+ *
+ * <p>The snapshot shares the pages of the key and state arrays of the map, which the map copies before it modifies
+ * them. Like for
+ * the {@link CopyOnWriteStateMapSnapshot}, the state objects in this snapshot must be considered as READ-ONLY, because
+ * they may still be used by the map.
+ *
+ * @param <K> type of key
+ * @param <N> type of namespace
+ * @param <S> type of state
+ */
+class PrimitiveKeyStateMapSnapshot<K, N, S>
+	extends StateMapSnapshot<K, N, S, PrimitiveKeyStateMap<K, N, S>> {
+
+	/**
+	 * Version of the {@link PrimitiveKeyStateMap} when this snapshot was created. This is used to release the snapshot.
+	 */
+	private final int snapshotVersion;
+
+	/**
+	 * The pages of the keys of the map when this snapshot was created.
+	 */
+	@Nonnull
+	private final long[][] keyPages;
+
+	/**
+	 * The pages of the states of the map when this snapshot was created, null for free slots.
+	 */
+	@Nonnull
+	private final Object[][] statePages;
+
+	/**
+	 * The number of mappings in this snapshot.
+	 */
+	@Nonnegative
+	private final int size;
+
+	/**
+	 * Whether this snapshot has been released.
+	 */
+	private boolean released;
+
+	PrimitiveKeyStateMapSnapshot(
+		PrimitiveKeyStateMap<K, N, S> owningStateMap,
+		int snapshotVersion,
+		@Nonnull long[][] keyPages,
+		@Nonnull Object[][] statePages,
+		@Nonnegative int size) {
+		super(owningStateMap);
+
+		this.snapshotVersion = snapshotVersion;
+		this.keyPages = keyPages;
+		this.statePages = statePages;
+		this.size = size;
+		this.released = false;
+	}
+
+	@Override
+	public void release() {
+		if (!released) {
+			owningStateMap.releaseSnapshot(this);
+			released = true;
+		}
+	}
+
+	boolean isReleased() {
+		return released;
+	}
+
+	int getSnapshotVersion() {
+		return snapshotVersion;
+	}
+
+	@Override
+	public void writeState(
+		TypeSerializer<K> keySerializer,
+		TypeSerializer<N> namespaceSerializer,
+		TypeSerializer<S> stateSerializer,
+		@Nonnull DataOutputView dov,
+		@Nullable StateSnapshotTransformer<S> stateSnapshotTransformer) throws IOException {
+
+		final N namespace = owningStateMap.getNamespace();
+		if (stateSnapshotTransformer == null) {
+			dov.writeInt(size);
+			for (int page = 0; page < statePages.length; ++page) {
+				final long[] keys = keyPages[page];
+				final Object[] states = statePages[page];
+				for (int slot = 0; slot < states.length; ++slot) {
+					if (states[slot] != null) {
+						namespaceSerializer.serialize(namespace, dov);
+						keySerializer.serialize(owningStateMap.fromPrimitiveKey(keys[slot]), dov);
+						stateSerializer.serialize(PrimitiveKeyStateMap.unwrapState(states[slot]), dov);
+					}
+				}
+			}
+			return;
+		}
+
+		// the transformer can filter mappings, so they are transformed before the size is written
+		final long[] transformedKeys = new long[size];
+		final Object[] transformedStates = new Object[size];
+		int numberOfTransformed = 0;
+		for (int page = 0; page < statePages.length; ++page) {
+			final long[] keys = keyPages[page];
+			final Object[] states = statePages[page];
+			for (int slot = 0; slot < states.length; ++slot) {
+				if (states[slot] != null) {
+					S transformedState =
+						stateSnapshotTransformer.filterOrTransform(PrimitiveKeyStateMap.unwrapState(states[slot]));
+					if (transformedState != null) {
+						transformedKeys[numberOfTransformed] = keys[slot];
+						transformedStates[numberOfTransformed] = transformedState;
+						++numberOfTransformed;
+					}
+				}
+			}
+		}
+
+		dov.writeInt(numberOfTransformed);
+		for (int i = 0; i < numberOfTransformed; ++i) {
+			namespaceSerializer.serialize(namespace, dov);
+			keySerializer.serialize(owningStateMap.fromPrimitiveKey(transformedKeys[i]), dov);
+			stateSerializer.serialize(PrimitiveKeyStateMap.unwrapState(transformedStates[i]), dov);
+		}
+	}
+}
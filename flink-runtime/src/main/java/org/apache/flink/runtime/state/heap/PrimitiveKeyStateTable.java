@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.StateTransformationFunction;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+
+import javax.annotation.Nonnull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This implementation of {@link StateTable} uses {@link PrimitiveKeyStateMap}s, for states with long or int keys in
+ * the {@link org.apache.flink.runtime.state.VoidNamespace}. Like the {@link CopyOnWriteStateTable}, this implementation
+ * supports asynchronous snapshots.
+ *
+ * <p>A {@link LongSerializer} or {@link IntSerializer} does not guarantee that all keys are longs or ints, because
+ * the serializer is only used for the keys that are written in a snapshot. When a key of another type is accessed,
+ * the table replaces all its maps by {@link CopyOnWriteStateMap}s, and from then on behaves like a
+ * {@link CopyOnWriteStateTable}.
+ *
+ * @param <K> type of key.
+ * @param <N> type of namespace.
+ * @param <S> type of state.
+ */
+class PrimitiveKeyStateTable<K, N, S> extends StateTable<K, N, S> {
+
+	/**
+	 * Whether the maps of this table were replaced by {@link CopyOnWriteStateMap}s, because a key was not of the
+	 * primitive type of the key serializer.
+	 */
+	private boolean copyOnWriteStateMaps;
+
+	/**
+	 * Constructs a new {@code PrimitiveKeyStateTable}.
+	 *
+	 * @param keyContext    the key context.
+	 * @param metaInfo      the meta information, including the type serializer for state copy-on-write.
+	 * @param keySerializer the serializer of the key, see {@link #isSupported}.
+	 */
+	PrimitiveKeyStateTable(
+		InternalKeyContext<K> keyContext,
+		RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo,
+		TypeSerializer<K> keySerializer) {
+		super(keyContext, metaInfo, keySerializer);
+	}
+
+	/**
+	 * Returns whether a state with the given key and namespace serializers can be kept in a
+	 * {@link PrimitiveKeyStateTable}.
+	 */
+	static boolean isSupported(TypeSerializer<?> keySerializer, TypeSerializer<?> namespaceSerializer) {
+		return (keySerializer instanceof LongSerializer || keySerializer instanceof IntSerializer) &&
+			namespaceSerializer instanceof VoidNamespaceSerializer;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	protected StateMap<K, N, S> createStateMap() {
+		final StateMap<?, N, S> stateMap = keySerializer instanceof LongSerializer ?
+			new LongKeyStateMap<>(getStateSerializer()) :
+			new IntKeyStateMap<>(getStateSerializer());
+		return (StateMap<K, N, S>) stateMap;
+	}
+
+	// Main interface methods of StateTable ----------------------------------------------------------------------------
+
+	@Override
+	public S get(N namespace) {
+		checkKeyType(keyContext.getCurrentKey());
+		return super.get(namespace);
+	}
+
+	@Override
+	public boolean containsKey(N namespace) {
+		checkKeyType(keyContext.getCurrentKey());
+		return super.containsKey(namespace);
+	}
+
+	@Override
+	public void remove(N namespace) {
+		checkKeyType(keyContext.getCurrentKey());
+		super.remove(namespace);
+	}
+
+	@Override
+	public S removeAndGetOld(N namespace) {
+		checkKeyType(keyContext.getCurrentKey());
+		return super.removeAndGetOld(namespace);
+	}
+
+	@Override
+	public <T> void transform(
+			N namespace,
+			T value,
+			StateTransformationFunction<S, T> transformation) throws Exception {
+		checkKeyType(keyContext.getCurrentKey());
+		super.transform(namespace, value, transformation);
+	}
+
+	@Override
+	public S get(K key, N namespace) {
+		checkKeyType(key);
+		return super.get(key, namespace);
+	}
+
+	@Override
+	public void put(K key, int keyGroup, N namespace, S state) {
+		checkKeyType(key);
+		super.put(key, keyGroup, namespace, state);
+	}
+
+	/**
+	 * Replaces the maps of this table by {@link CopyOnWriteStateMap}s if the given key is not of the primitive type
+	 * of the key serializer. A null key is left to the preconditions of the {@link StateTable}.
+	 */
+	private void checkKeyType(K key) {
+		if (copyOnWriteStateMaps || key == null) {
+			return;
+		}
+		final boolean primitiveKey = keySerializer instanceof LongSerializer ? key instanceof Long : key instanceof Integer;
+		if (!primitiveKey) {
+			for (int i = 0; i < keyGroupedStateMaps.length; i++) {
+				keyGroupedStateMaps[i] = toCopyOnWriteStateMap(keyGroupedStateMaps[i]);
+			}
+			copyOnWriteStateMaps = true;
+		}
+	}
+
+	private CopyOnWriteStateMap<K, N, S> toCopyOnWriteStateMap(StateMap<K, N, S> stateMap) {
+		final TypeSerializer<S> stateSerializer = getStateSerializer();
+		final CopyOnWriteStateMap<K, N, S> copyOnWriteStateMap = new CopyOnWriteStateMap<>(stateSerializer);
+		for (StateEntry<K, N, S> entry : stateMap) {
+			// the state objects may still be referenced by a running snapshot of the old map
+			final S state = entry.getState();
+			copyOnWriteStateMap.put(
+				entry.getKey(),
+				entry.getNamespace(),
+				state != null ? stateSerializer.copy(state) : null);
+		}
+		return copyOnWriteStateMap;
+	}
+
+	// Snapshotting ----------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a snapshot of this {@link PrimitiveKeyStateTable}, to be written in checkpointing.
+	 *
+	 * @return a snapshot from this {@link PrimitiveKeyStateTable}, for checkpointing.
+	 */
+	@Nonnull
+	@Override
+	public PrimitiveKeyStateTableSnapshot<K, N, S> stateSnapshot() {
+		return new PrimitiveKeyStateTableSnapshot<>(
+			this,
+			getKeySerializer().duplicate(),
+			getNamespaceSerializer().duplicate(),
+			getStateSerializer().duplicate(),
+			getMetaInfo().getStateSnapshotTransformFactory().createForDeserializedState().orElse(null));
+	}
+
+	List<StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>>> getStateMapSnapshotList() {
+		List<StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>>> snapshotList =
+			new ArrayList<>(keyGroupedStateMaps.length);
+		for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+			snapshotList.add(stateMap.stateSnapshot());
+		}
+		return snapshotList;
+	}
+
+	@VisibleForTesting
+	boolean hasCopyOnWriteStateMaps() {
+		return copyOnWriteStateMaps;
+	}
+}
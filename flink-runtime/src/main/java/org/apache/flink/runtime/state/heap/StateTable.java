@@ -288,8 +288,24 @@ public abstract class StateTable<K, N, S>
 		return keyGroupOffset;
 	}
 
-	@VisibleForTesting
-	StateMap<K, N, S> getMapForKeyGroup(int keyGroupIndex) {
+	/**
+	 * Returns the state map for the given key-group, or {@code null} if the key-group is not in the key-group
+	 * range of this table. All accesses to the state of a key-group go through this method.
+	 */
+	protected StateMap<K, N, S> getMapForKeyGroup(int keyGroupIndex) {
+		final int pos = indexToOffset(keyGroupIndex);
+		if (pos >= 0 && pos < keyGroupedStateMaps.length) {
+			return keyGroupedStateMaps[pos];
+		} else {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the state map for the given key-group like {@link #getMapForKeyGroup(int)}, for scans over all
+	 * entries of the key-group that are not accesses to the state of the current key.
+	 */
+	final StateMap<K, N, S> getMapForKeyGroupScan(int keyGroupIndex) {
 		final int pos = indexToOffset(keyGroupIndex);
 		if (pos >= 0 && pos < keyGroupedStateMaps.length) {
 			return keyGroupedStateMaps[pos];
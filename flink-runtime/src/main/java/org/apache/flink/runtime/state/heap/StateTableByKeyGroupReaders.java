@@ -65,6 +65,39 @@ class StateTableByKeyGroupReaders {
 		}
 	}
 
+	/**
+	 * Creates a new reader for the changes of a key-group as written by incremental snapshots of a
+	 * {@link CopyOnWriteStateTable}. The reader first removes all listed removed mappings from the given table and
+	 * then inserts the added or modified mappings.
+	 *
+	 * @param <K> type of key.
+	 * @param <N> type of namespace.
+	 * @param <S> type of state.
+	 * @param stateTable the {@link StateTable} to which the de-serialized changes are applied.
+	 * @return the reader for state changes.
+	 */
+	static <K, N, S> StateSnapshotKeyGroupReader changesReader(StateTable<K, N, S> stateTable) {
+		final TypeSerializer<N> namespaceSerializer = stateTable.getNamespaceSerializer();
+		final TypeSerializer<S> stateSerializer = stateTable.getStateSerializer();
+		final TypeSerializer<K> keySerializer = stateTable.keySerializer;
+		return (inView, keyGroupId) -> {
+			final StateMap<K, N, S> stateMap = stateTable.getMapForKeyGroup(keyGroupId);
+			int numRemovals = inView.readInt();
+			for (int i = 0; i < numRemovals; i++) {
+				N namespace = namespaceSerializer.deserialize(inView);
+				K key = keySerializer.deserialize(inView);
+				stateMap.remove(key, namespace);
+			}
+			int numUpserts = inView.readInt();
+			for (int i = 0; i < numUpserts; i++) {
+				N namespace = namespaceSerializer.deserialize(inView);
+				K key = keySerializer.deserialize(inView);
+				S state = stateSerializer.deserialize(inView);
+				stateMap.put(key, namespace, state);
+			}
+		};
+	}
+
 	private static <K, N, S> StateSnapshotKeyGroupReader createV2PlusReader(
 		StateTable<K, N, S> stateTable) {
 		final TypeSerializer<N> namespaceSerializer = stateTable.getNamespaceSerializer();
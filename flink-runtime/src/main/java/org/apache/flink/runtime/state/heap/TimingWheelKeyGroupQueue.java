@@ -0,0 +1,577 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.runtime.state.InternalPriorityQueue;
+import org.apache.flink.util.CloseableIterator;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * The partition of a {@link TimingWheelPriorityQueueSet} for one key-group. Elements are kept in serialized form and
+ * distributed over the buckets of a timing wheel, where each bucket covers a fixed range of timestamps. All elements
+ * of a bucket share primitive arrays for their timestamps and a byte array for the remainder of their serialized form
+ * (for timers, the key and namespace), so that no object is kept per element. Within a bucket, the elements are
+ * ordered by a binary heap of entry indexes and deduplicated through an open addressing hash index.
+ *
+ * <p>Only the head element is kept in deserialized form.
+ *
+ * @param <T> type of the elements in the queue.
+ */
+final class TimingWheelKeyGroupQueue<T> implements InternalPriorityQueue<T>, HeapPriorityQueueElement {
+
+	/** Serializes and deserializes the elements, shared by all partitions of a queue. */
+	@Nonnull
+	private final TimingWheelPriorityQueueSet.ElementCodec<T> codec;
+
+	/** The range of timestamps covered by one bucket. */
+	@Nonnegative
+	private final long bucketWidth;
+
+	/** The non-empty buckets, indexed by the timestamp divided by the bucket width. */
+	@Nonnull
+	private final TreeMap<Long, Bucket> buckets;
+
+	/** The number of elements in this queue. */
+	@Nonnegative
+	private int size;
+
+	/** The deserialized head element, or null if it has not been deserialized since the head last changed. */
+	@Nullable
+	private T head;
+
+	/** The index of this queue in the heap of key-group partitions. */
+	private int internalIndex;
+
+	TimingWheelKeyGroupQueue(@Nonnull TimingWheelPriorityQueueSet.ElementCodec<T> codec, @Nonnegative long bucketWidth) {
+		this.codec = codec;
+		this.bucketWidth = bucketWidth;
+		this.buckets = new TreeMap<>();
+		this.size = 0;
+		this.internalIndex = HeapPriorityQueueElement.NOT_CONTAINED;
+	}
+
+	@Nullable
+	@Override
+	public T poll() {
+		final T result = peek();
+		if (result != null) {
+			final Map.Entry<Long, Bucket> first = buckets.firstEntry();
+			final Bucket bucket = first.getValue();
+			bucket.removeEntry(bucket.peekEntry());
+			if (bucket.isEmpty()) {
+				buckets.remove(first.getKey());
+			}
+			--size;
+			head = null;
+		}
+		return result;
+	}
+
+	@Nullable
+	@Override
+	public T peek() {
+		if (head == null && size > 0) {
+			final Bucket bucket = buckets.firstEntry().getValue();
+			head = bucket.deserializeEntry(bucket.peekEntry(), codec);
+		}
+		return head;
+	}
+
+	@Override
+	public boolean add(@Nonnull T toAdd) {
+		final DataOutputSerializer serialized = codec.serialize(toAdd);
+		final long timestamp = codec.getTimestamp(serialized);
+		final long bucketIndex = Math.floorDiv(timestamp, bucketWidth);
+
+		final boolean newHead = size == 0 || timestamp < getHeadTimestamp();
+
+		Bucket bucket = buckets.get(bucketIndex);
+		if (bucket == null) {
+			bucket = new Bucket();
+			buckets.put(bucketIndex, bucket);
+		}
+
+		if (bucket.add(
+			timestamp,
+			serialized.getSharedBuffer(),
+			TimingWheelPriorityQueueSet.ElementCodec.TIMESTAMP_BYTES,
+			serialized.length() - TimingWheelPriorityQueueSet.ElementCodec.TIMESTAMP_BYTES)) {
+			++size;
+			if (newHead) {
+				head = null;
+			}
+			return newHead;
+		} else {
+			return false;
+		}
+	}
+
+	@Override
+	public boolean remove(@Nonnull T toRemove) {
+		final DataOutputSerializer serialized = codec.serialize(toRemove);
+		final long timestamp = codec.getTimestamp(serialized);
+		final long bucketIndex = Math.floorDiv(timestamp, bucketWidth);
+
+		final Bucket bucket = buckets.get(bucketIndex);
+		if (bucket == null) {
+			return false;
+		}
+
+		final int entry = bucket.find(
+			timestamp,
+			serialized.getSharedBuffer(),
+			TimingWheelPriorityQueueSet.ElementCodec.TIMESTAMP_BYTES,
+			serialized.length() - TimingWheelPriorityQueueSet.ElementCodec.TIMESTAMP_BYTES);
+		if (entry < 0) {
+			return false;
+		}
+
+		final boolean removesHead = bucket == buckets.firstEntry().getValue() && entry == bucket.peekEntry();
+		bucket.removeEntry(entry);
+		if (bucket.isEmpty()) {
+			buckets.remove(bucketIndex);
+		}
+		--size;
+		if (removesHead) {
+			head = null;
+		}
+		return removesHead;
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public void addAll(@Nullable Collection<? extends T> toAdd) {
+		if (toAdd == null) {
+			return;
+		}
+
+		for (T element : toAdd) {
+			add(element);
+		}
+	}
+
+	/**
+	 * Iterates the elements in no particular order. Every element is deserialized.
+	 */
+	@Nonnull
+	@Override
+	public CloseableIterator<T> iterator() {
+		final Iterator<Bucket> bucketIterator = buckets.values().iterator();
+
+		return CloseableIterator.adapterForIterator(new Iterator<T>() {
+
+			private Bucket bucket = null;
+			private int entry = 0;
+
+			@Override
+			public boolean hasNext() {
+				while (true) {
+					if (bucket != null) {
+						entry = bucket.nextLiveEntry(entry);
+						if (entry >= 0) {
+							return true;
+						}
+					}
+					if (!bucketIterator.hasNext()) {
+						return false;
+					}
+					bucket = bucketIterator.next();
+					entry = 0;
+				}
+			}
+
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return bucket.deserializeEntry(entry++, codec);
+			}
+		});
+	}
+
+	@Override
+	public int getInternalIndex() {
+		return internalIndex;
+	}
+
+	@Override
+	public void setInternalIndex(int newIndex) {
+		this.internalIndex = newIndex;
+	}
+
+	/**
+	 * Writes all elements in the format of the given serializer to the output, which must then be exactly the format
+	 * that the serializer produces for each element.
+	 */
+	void writeElements(@Nonnull DataOutputSerializer out) throws IOException {
+		for (Bucket bucket : buckets.values()) {
+			for (int entry = bucket.nextLiveEntry(0); entry >= 0; entry = bucket.nextLiveEntry(entry + 1)) {
+				bucket.writeEntry(entry, out);
+			}
+		}
+	}
+
+	/**
+	 * Re-encodes all elements from the format of the old serializer into the format of the new serializer.
+	 */
+	void migrateElements(@Nonnull TypeSerializer<T> previousSerializer, @Nonnull TypeSerializer<T> newSerializer) {
+		final TreeMap<Long, Bucket> previousBuckets = new TreeMap<>(buckets);
+		buckets.clear();
+		size = 0;
+		head = null;
+		for (Bucket bucket : previousBuckets.values()) {
+			for (int entry = bucket.nextLiveEntry(0); entry >= 0; entry = bucket.nextLiveEntry(entry + 1)) {
+				codec.setSerializer(previousSerializer);
+				final T element = bucket.deserializeEntry(entry, codec);
+				codec.setSerializer(newSerializer);
+				add(element);
+			}
+		}
+	}
+
+	private long getHeadTimestamp() {
+		final Bucket bucket = buckets.firstEntry().getValue();
+		return bucket.timestamps[bucket.peekEntry()];
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * The elements whose timestamps fall into the range of one bucket of the timing wheel. Entries are only appended;
+	 * removed entries are marked by a negative length and dropped when they make up more than half of the entries.
+	 */
+	private static final class Bucket {
+
+		/** Initial number of entries of a bucket. */
+		private static final int INITIAL_CAPACITY = 4;
+
+		/** Marks a free slot of the hash index. */
+		private static final int FREE = -1;
+
+		/** The timestamps of all entries. */
+		private long[] timestamps = new long[INITIAL_CAPACITY];
+
+		/** The offsets of the serialized remainders of all entries into {@link #data}. */
+		private int[] offsets = new int[INITIAL_CAPACITY];
+
+		/** The lengths of the serialized remainders of all entries, or -1 for removed entries. */
+		private int[] lengths = new int[INITIAL_CAPACITY];
+
+		/** The hash codes of all entries. */
+		private int[] hashes = new int[INITIAL_CAPACITY];
+
+		/** The serialized remainders of all entries. */
+		private byte[] data = new byte[INITIAL_CAPACITY * 16];
+
+		/** The used part of {@link #data}. */
+		private int dataSize = 0;
+
+		/** The number of entries, including removed ones. */
+		private int numEntries = 0;
+
+		/** The number of entries that are not removed. */
+		private int numLiveEntries = 0;
+
+		/** Binary min-heap of entry indexes, ordered by timestamp and then by entry index. */
+		private int[] order = new int[INITIAL_CAPACITY];
+
+		/** The used part of {@link #order}. Removed entries are only dropped when they reach the top. */
+		private int orderSize = 0;
+
+		/** Open addressing hash index with linear probing from hash code to entry index. */
+		private int[] index = newIndex(INITIAL_CAPACITY * 2);
+
+		boolean isEmpty() {
+			return numLiveEntries == 0;
+		}
+
+		/**
+		 * Adds an entry, unless an equal entry is contained. Returns true if the entry was added.
+		 */
+		boolean add(long timestamp, byte[] bytes, int offset, int length) {
+			final int hash = hash(timestamp, bytes, offset, length);
+			final int mask = index.length - 1;
+			int slot = hash & mask;
+			for (int entry; (entry = index[slot]) != FREE; slot = (slot + 1) & mask) {
+				if (isEqual(entry, hash, timestamp, bytes, offset, length)) {
+					return false;
+				}
+			}
+
+			if (numEntries == timestamps.length) {
+				if (numLiveEntries <= numEntries / 2) {
+					compact();
+				} else {
+					grow();
+				}
+				return add(timestamp, bytes, offset, length);
+			}
+
+			if (dataSize + length > data.length) {
+				data = Arrays.copyOf(data, Math.max(data.length * 2, dataSize + length));
+			}
+			System.arraycopy(bytes, offset, data, dataSize, length);
+
+			final int entry = numEntries++;
+			timestamps[entry] = timestamp;
+			offsets[entry] = dataSize;
+			lengths[entry] = length;
+			hashes[entry] = hash;
+			dataSize += length;
+			++numLiveEntries;
+
+			index[slot] = entry;
+			orderAdd(entry);
+			return true;
+		}
+
+		/**
+		 * Returns the index of the entry that is equal to the given one, or -1 if there is none.
+		 */
+		int find(long timestamp, byte[] bytes, int offset, int length) {
+			final int hash = hash(timestamp, bytes, offset, length);
+			final int mask = index.length - 1;
+			for (int slot = hash & mask, entry; (entry = index[slot]) != FREE; slot = (slot + 1) & mask) {
+				if (isEqual(entry, hash, timestamp, bytes, offset, length)) {
+					return entry;
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Returns the index of the entry with the smallest timestamp. The bucket must not be empty.
+		 */
+		int peekEntry() {
+			while (lengths[order[0]] < 0) {
+				orderPoll();
+			}
+			return order[0];
+		}
+
+		void removeEntry(int entry) {
+			final int mask = index.length - 1;
+			int slot = hashes[entry] & mask;
+			while (index[slot] != entry) {
+				slot = (slot + 1) & mask;
+			}
+			removeFromIndex(slot);
+
+			lengths[entry] = -1;
+			--numLiveEntries;
+
+			if (numLiveEntries == 0) {
+				clear();
+			}
+		}
+
+		/**
+		 * Returns the first entry at or after the given index that is not removed, or -1 if there is none.
+		 */
+		int nextLiveEntry(int entry) {
+			for (; entry < numEntries; ++entry) {
+				if (lengths[entry] >= 0) {
+					return entry;
+				}
+			}
+			return -1;
+		}
+
+		<T> T deserializeEntry(int entry, TimingWheelPriorityQueueSet.ElementCodec<T> codec) {
+			return codec.deserialize(timestamps[entry], data, offsets[entry], lengths[entry]);
+		}
+
+		void writeEntry(int entry, DataOutputSerializer out) throws IOException {
+			TimingWheelPriorityQueueSet.ElementCodec.writeTimestamp(timestamps[entry], out);
+			out.write(data, offsets[entry], lengths[entry]);
+		}
+
+		private boolean isEqual(int entry, int hash, long timestamp, byte[] bytes, int offset, int length) {
+			if (hashes[entry] != hash || timestamps[entry] != timestamp || lengths[entry] != length) {
+				return false;
+			}
+			final int entryOffset = offsets[entry];
+			for (int i = 0; i < length; ++i) {
+				if (data[entryOffset + i] != bytes[offset + i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private void clear() {
+			numEntries = 0;
+			dataSize = 0;
+			orderSize = 0;
+			Arrays.fill(index, FREE);
+		}
+
+		private void grow() {
+			final int newCapacity = timestamps.length * 2;
+			timestamps = Arrays.copyOf(timestamps, newCapacity);
+			offsets = Arrays.copyOf(offsets, newCapacity);
+			lengths = Arrays.copyOf(lengths, newCapacity);
+			hashes = Arrays.copyOf(hashes, newCapacity);
+			order = Arrays.copyOf(order, newCapacity);
+			rebuildIndex(newCapacity * 2);
+		}
+
+		/**
+		 * Drops the removed entries and rebuilds the order heap and the hash index for the remaining entries.
+		 */
+		private void compact() {
+			int target = 0;
+			int targetDataSize = 0;
+			for (int entry = 0; entry < numEntries; ++entry) {
+				final int length = lengths[entry];
+				if (length >= 0) {
+					System.arraycopy(data, offsets[entry], data, targetDataSize, length);
+					timestamps[target] = timestamps[entry];
+					offsets[target] = targetDataSize;
+					lengths[target] = length;
+					hashes[target] = hashes[entry];
+					targetDataSize += length;
+					++target;
+				}
+			}
+			numEntries = target;
+			dataSize = targetDataSize;
+
+			orderSize = 0;
+			for (int entry = 0; entry < numEntries; ++entry) {
+				orderAdd(entry);
+			}
+			rebuildIndex(index.length);
+		}
+
+		private void rebuildIndex(int capacity) {
+			index = newIndex(capacity);
+			final int mask = capacity - 1;
+			for (int entry = 0; entry < numEntries; ++entry) {
+				if (lengths[entry] >= 0) {
+					int slot = hashes[entry] & mask;
+					while (index[slot] != FREE) {
+						slot = (slot + 1) & mask;
+					}
+					index[slot] = entry;
+				}
+			}
+		}
+
+		/**
+		 * Frees a slot of the hash index and moves later entries of the probe sequence back into the gap.
+		 */
+		private void removeFromIndex(int freedSlot) {
+			final int mask = index.length - 1;
+			int gap = freedSlot;
+			int slot = freedSlot;
+			while (true) {
+				slot = (slot + 1) & mask;
+				final int entry = index[slot];
+				if (entry == FREE) {
+					break;
+				}
+				final int home = hashes[entry] & mask;
+				final boolean movable = gap <= slot ? (home <= gap || home > slot) : (home <= gap && home > slot);
+				if (movable) {
+					index[gap] = entry;
+					gap = slot;
+				}
+			}
+			index[gap] = FREE;
+		}
+
+		private void orderAdd(int entry) {
+			int position = orderSize++;
+			while (position > 0) {
+				final int parent = (position - 1) >>> 1;
+				if (!isBefore(entry, order[parent])) {
+					break;
+				}
+				order[position] = order[parent];
+				position = parent;
+			}
+			order[position] = entry;
+		}
+
+		private void orderPoll() {
+			final int last = order[--orderSize];
+			int position = 0;
+			while (true) {
+				int child = 2 * position + 1;
+				if (child >= orderSize) {
+					break;
+				}
+				if (child + 1 < orderSize && isBefore(order[child + 1], order[child])) {
+					++child;
+				}
+				if (!isBefore(order[child], last)) {
+					break;
+				}
+				order[position] = order[child];
+				position = child;
+			}
+			order[position] = last;
+		}
+
+		private boolean isBefore(int left, int right) {
+			final long leftTimestamp = timestamps[left];
+			final long rightTimestamp = timestamps[right];
+			return leftTimestamp < rightTimestamp || (leftTimestamp == rightTimestamp && left < right);
+		}
+
+		private static int hash(long timestamp, byte[] bytes, int offset, int length) {
+			int hash = Long.hashCode(timestamp);
+			for (int i = offset; i < offset + length; ++i) {
+				hash = 31 * hash + bytes[i];
+			}
+			// spread the bits, because the low bits select the slot of the hash index
+			return hash ^ (hash >>> 16);
+		}
+
+		private static int[] newIndex(int capacity) {
+			final int[] index = new int[capacity];
+			Arrays.fill(index, FREE);
+			return index;
+		}
+	}
+}
@@ -0,0 +1,279 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.runtime.state.KeyExtractorFunction;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.PriorityComparator;
+import org.apache.flink.runtime.state.RegisteredPriorityQueueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshot;
+import org.apache.flink.runtime.state.metainfo.StateMetaInfoSnapshot;
+import org.apache.flink.util.FlinkRuntimeException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A {@link KeyGroupPartitionedPriorityQueue} that keeps its elements in serialized form in the buckets of a timing
+ * wheel per key-group, see {@link TimingWheelKeyGroupQueue}. This avoids the objects that a
+ * {@link HeapPriorityQueueSet} keeps per element, which matters for very large numbers of timers.
+ *
+ * <p>The queue requires a serializer that writes the priority of an element first, as an 8 byte big-endian long with a
+ * flipped sign bit, and that writes equal elements to equal bytes. This is the format of the byte-ordered timer
+ * serializer. Within a key-group, elements with the same timestamp are polled in the order in which they were
+ * added.
+ *
+ * <p>Snapshots of this queue have exactly the format of snapshots of a {@link HeapPriorityQueueSet}, so the two
+ * implementations can restore from each other's snapshots.
+ *
+ * @param <T> type of the elements in the queue.
+ */
+public class TimingWheelPriorityQueueSet<T>
+	extends KeyGroupPartitionedPriorityQueue<T, TimingWheelKeyGroupQueue<T>> {
+
+	/** Serializes and deserializes the elements for all partitions. */
+	@Nonnull
+	private final ElementCodec<T> codec;
+
+	/** The key-groups with a partition in this queue. */
+	@Nonnull
+	private final KeyGroupRange keyGroupRange;
+
+	public TimingWheelPriorityQueueSet(
+		@Nonnull PriorityComparator<T> elementPriorityComparator,
+		@Nonnull KeyExtractorFunction<T> keyExtractor,
+		@Nonnull TypeSerializer<T> byteOrderedElementSerializer,
+		@Nonnegative long bucketWidth,
+		@Nonnull KeyGroupRange keyGroupRange,
+		@Nonnegative int totalKeyGroups) {
+
+		this(
+			elementPriorityComparator,
+			keyExtractor,
+			new ElementCodec<>(byteOrderedElementSerializer),
+			bucketWidth,
+			keyGroupRange,
+			totalKeyGroups);
+	}
+
+	private TimingWheelPriorityQueueSet(
+		@Nonnull PriorityComparator<T> elementPriorityComparator,
+		@Nonnull KeyExtractorFunction<T> keyExtractor,
+		@Nonnull ElementCodec<T> codec,
+		@Nonnegative long bucketWidth,
+		@Nonnull KeyGroupRange keyGroupRange,
+		@Nonnegative int totalKeyGroups) {
+
+		super(
+			keyExtractor,
+			elementPriorityComparator,
+			(keyGroupId, numKeyGroups, keyExtractorFunction, partitionPriorityComparator) ->
+				new TimingWheelKeyGroupQueue<>(codec, bucketWidth),
+			keyGroupRange,
+			totalKeyGroups);
+
+		checkArgument(bucketWidth > 0, "The bucket width must be positive.");
+		this.codec = codec;
+		this.keyGroupRange = keyGroupRange;
+	}
+
+	/**
+	 * Creates a snapshot of all elements. The serialized elements are copied synchronously.
+	 */
+	@Nonnull
+	public StateSnapshot stateSnapshot(@Nonnull RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo) {
+		final int numberOfKeyGroups = keyGroupRange.getNumberOfKeyGroups();
+		final int[] elementCounts = new int[numberOfKeyGroups];
+		final byte[][] serializedElements = new byte[numberOfKeyGroups][];
+		final DataOutputSerializer out = new DataOutputSerializer(128);
+
+		for (int i = 0; i < numberOfKeyGroups; ++i) {
+			final TimingWheelKeyGroupQueue<T> partition = getKeyGroupSubHeap(keyGroupRange.getStartKeyGroup() + i);
+			out.clear();
+			try {
+				partition.writeElements(out);
+			} catch (IOException e) {
+				throw new FlinkRuntimeException("Error while copying the elements of the priority queue.", e);
+			}
+			elementCounts[i] = partition.size();
+			serializedElements[i] = out.getCopyOfBuffer();
+		}
+
+		return new TimingWheelPriorityQueueStateSnapshot<>(
+			elementCounts,
+			serializedElements,
+			metaInfo,
+			keyGroupRange.getStartKeyGroup());
+	}
+
+	/**
+	 * Changes the serializer of the elements. If the new serializer writes a different format, all elements are
+	 * re-encoded.
+	 */
+	public void updateElementSerializer(@Nonnull TypeSerializer<T> newSerializer, boolean requiresMigration) {
+		final TypeSerializer<T> previousSerializer = codec.serializer;
+		if (requiresMigration) {
+			for (int keyGroup = keyGroupRange.getStartKeyGroup(); keyGroup <= keyGroupRange.getEndKeyGroup(); ++keyGroup) {
+				getKeyGroupSubHeap(keyGroup).migrateElements(previousSerializer, newSerializer);
+			}
+		}
+		codec.setSerializer(newSerializer);
+	}
+
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Converts between elements and their serialized form, which is split into the timestamp and the remaining bytes.
+	 * The buffers are reused, so this class is not thread-safe.
+	 *
+	 * @param <T> type of the elements.
+	 */
+	static final class ElementCodec<T> {
+
+		/** The number of bytes of the serialized timestamp that starts every element. */
+		static final int TIMESTAMP_BYTES = Long.BYTES;
+
+		@Nonnull
+		private TypeSerializer<T> serializer;
+
+		/** Buffer for serializing elements. */
+		private final DataOutputSerializer serializationBuffer = new DataOutputSerializer(128);
+
+		/** Buffer that reassembles elements for deserialization. */
+		private final DataOutputSerializer deserializationBuffer = new DataOutputSerializer(128);
+
+		private final DataInputDeserializer inputView = new DataInputDeserializer();
+
+		ElementCodec(@Nonnull TypeSerializer<T> serializer) {
+			this.serializer = serializer;
+		}
+
+		void setSerializer(@Nonnull TypeSerializer<T> serializer) {
+			this.serializer = serializer;
+		}
+
+		/**
+		 * Serializes the element into a buffer that is only valid until the next call.
+		 */
+		@Nonnull
+		DataOutputSerializer serialize(@Nonnull T element) {
+			serializationBuffer.clear();
+			try {
+				serializer.serialize(element, serializationBuffer);
+			} catch (IOException e) {
+				throw new FlinkRuntimeException("Error while serializing element of the priority queue.", e);
+			}
+			if (serializationBuffer.length() < TIMESTAMP_BYTES) {
+				throw new FlinkRuntimeException("The timing wheel priority queue requires serialized elements that" +
+					" start with an 8 byte timestamp, but the serializer " + serializer + " wrote only " +
+					serializationBuffer.length() + " bytes.");
+			}
+			return serializationBuffer;
+		}
+
+		/**
+		 * Returns the timestamp at the start of a serialized element.
+		 */
+		long getTimestamp(@Nonnull DataOutputSerializer serialized) {
+			final byte[] bytes = serialized.getSharedBuffer();
+			long flipped = 0L;
+			for (int i = 0; i < TIMESTAMP_BYTES; ++i) {
+				flipped = (flipped << 8) | (bytes[i] & 0xFF);
+			}
+			return flipped ^ Long.MIN_VALUE;
+		}
+
+		@Nonnull
+		T deserialize(long timestamp, @Nonnull byte[] bytes, int offset, int length) {
+			deserializationBuffer.clear();
+			try {
+				writeTimestamp(timestamp, deserializationBuffer);
+				deserializationBuffer.write(bytes, offset, length);
+				inputView.setBuffer(deserializationBuffer.getSharedBuffer(), 0, deserializationBuffer.length());
+				return serializer.deserialize(inputView);
+			} catch (IOException e) {
+				throw new FlinkRuntimeException("Error while deserializing element of the priority queue.", e);
+			}
+		}
+
+		static void writeTimestamp(long timestamp, @Nonnull DataOutputView out) throws IOException {
+			out.writeLong(timestamp ^ Long.MIN_VALUE);
+		}
+	}
+
+	/**
+	 * Snapshot of a {@link TimingWheelPriorityQueueSet}, holding a copy of the serialized elements per key-group.
+	 *
+	 * @param <T> type of the elements.
+	 */
+	private static final class TimingWheelPriorityQueueStateSnapshot<T> implements StateSnapshot {
+
+		@Nonnull
+		private final int[] elementCounts;
+
+		@Nonnull
+		private final byte[][] serializedElements;
+
+		@Nonnull
+		private final RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo;
+
+		private final int firstKeyGroup;
+
+		TimingWheelPriorityQueueStateSnapshot(
+			@Nonnull int[] elementCounts,
+			@Nonnull byte[][] serializedElements,
+			@Nonnull RegisteredPriorityQueueStateBackendMetaInfo<T> metaInfo,
+			int firstKeyGroup) {
+
+			this.elementCounts = elementCounts;
+			this.serializedElements = serializedElements;
+			this.metaInfo = metaInfo;
+			this.firstKeyGroup = firstKeyGroup;
+		}
+
+		@Nonnull
+		@Override
+		public StateKeyGroupWriter getKeyGroupWriter() {
+			// same format as written by the KeyGroupPartitioner for heap priority queues
+			return (dov, keyGroupId) -> {
+				final int index = keyGroupId - firstKeyGroup;
+				dov.writeInt(elementCounts[index]);
+				dov.write(serializedElements[index]);
+			};
+		}
+
+		@Nonnull
+		@Override
+		public StateMetaInfoSnapshot getMetaInfoSnapshot() {
+			return metaInfo.snapshot();
+		}
+
+		@Override
+		public void release() {
+		}
+	}
+}
@@ -20,6 +20,8 @@ package org.apache.flink.runtime.state.internal;
 
 import org.apache.flink.api.common.state.ValueState;
 
+import java.util.List;
+
 /**
  * The peer to the {@link ValueState} in the internal state type hierarchy.
  * 
@@ -29,4 +31,21 @@ import org.apache.flink.api.common.state.ValueState;
  * @param <N> The type of the namespace
  * @param <T> The type of elements in the list
  */
-public interface InternalValueState<K, N, T> extends InternalKvState<K, N, T>, ValueState<T> {}
+public interface InternalValueState<K, N, T> extends InternalKvState<K, N, T>, ValueState<T> {
+
+	/**
+	 * Returns the values of this state for each of the given keys under the given namespace, in
+	 * the order of the keys. Keys without a value map to the default value of the state, just
+	 * like {@link #value()} would return it for that key.
+	 *
+	 * <p>This reads the keys independently of the current key of the backend, so that backends
+	 * can serve many lookups at once, e.g. with a single multi-get on the underlying store.
+	 * Unlike {@link #value()}, this is a pure read: state TTL does not clean up expired values
+	 * or refresh timestamps on this access.
+	 *
+	 * @param keys The keys to look up.
+	 * @param namespace The namespace of all lookups.
+	 * @return The list of values, with one element per key.
+	 */
+	List<T> getAll(List<K> keys, N namespace) throws Exception;
+}
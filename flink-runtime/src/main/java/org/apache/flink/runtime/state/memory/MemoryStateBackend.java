@@ -38,10 +38,13 @@ import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.OperatorStateBackend;
 import org.apache.flink.runtime.state.OperatorStateHandle;
+import org.apache.flink.runtime.state.PriorityQueueSetFactory;
 import org.apache.flink.runtime.state.TaskStateManager;
 import org.apache.flink.runtime.state.filesystem.AbstractFileStateBackend;
 import org.apache.flink.runtime.state.heap.HeapKeyedStateBackendBuilder;
 import org.apache.flink.runtime.state.heap.HeapPriorityQueueSetFactory;
+import org.apache.flink.runtime.state.heap.HeapPriorityQueueStateType;
+import org.apache.flink.runtime.state.heap.TimingWheelPriorityQueueSetFactory;
 import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
 import org.apache.flink.util.TernaryBoolean;
 
@@ -117,6 +120,23 @@ public class MemoryStateBackend extends AbstractFileStateBackend implements Conf
 	 * A value of 'UNDEFINED' means not yet configured, in which case the default will be used. */
 	private final TernaryBoolean asynchronousSnapshots;
 
+	/** The implementation of the timer queues.
+	 * A value of 'null' means not yet configured, in which case the default will be used. */
+	@Nullable
+	private final HeapPriorityQueueStateType priorityQueueStateType;
+
+	/** The range of timestamps covered by one bucket of timing wheel timer queues, in milliseconds.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final long timingWheelBucketWidth;
+
+	/** The interval of the background cleanup of states with TTL, in milliseconds.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final long ttlBackgroundCleanupInterval;
+
+	/** The time that one run of the background cleanup of states with TTL may take, in milliseconds.
+	 * A value of '-1' means not yet configured, in which case the default will be used. */
+	private final long ttlBackgroundCleanupTimeBudget;
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -225,6 +245,10 @@ public class MemoryStateBackend extends AbstractFileStateBackend implements Conf
 		this.maxStateSize = maxStateSize;
 
 		this.asynchronousSnapshots = asynchronousSnapshots;
+		this.priorityQueueStateType = null;
+		this.timingWheelBucketWidth = -1L;
+		this.ttlBackgroundCleanupInterval = -1L;
+		this.ttlBackgroundCleanupTimeBudget = -1L;
 	}
 
 	/**
@@ -243,6 +267,23 @@ public class MemoryStateBackend extends AbstractFileStateBackend implements Conf
 		// else check the configuration
 		this.asynchronousSnapshots = original.asynchronousSnapshots.resolveUndefined(
 				configuration.get(CheckpointingOptions.ASYNC_SNAPSHOTS));
+
+		this.priorityQueueStateType = original.priorityQueueStateType != null ?
+			original.priorityQueueStateType :
+			HeapPriorityQueueStateType.valueOf(
+				configuration.get(CheckpointingOptions.HEAP_TIMER_SERVICE_FACTORY).toUpperCase());
+
+		this.timingWheelBucketWidth = original.timingWheelBucketWidth >= 0 ?
+			original.timingWheelBucketWidth :
+			configuration.get(CheckpointingOptions.HEAP_TIMER_SERVICE_TIMING_WHEEL_BUCKET_WIDTH).toMillis();
+
+		this.ttlBackgroundCleanupInterval = original.ttlBackgroundCleanupInterval >= 0 ?
+			original.ttlBackgroundCleanupInterval :
+			configuration.get(CheckpointingOptions.HEAP_TTL_BACKGROUND_CLEANUP_INTERVAL).toMillis();
+
+		this.ttlBackgroundCleanupTimeBudget = original.ttlBackgroundCleanupTimeBudget >= 0 ?
+			original.ttlBackgroundCleanupTimeBudget :
+			configuration.get(CheckpointingOptions.HEAP_TTL_BACKGROUND_CLEANUP_TIME_BUDGET).toMillis();
 	}
 
 	// ------------------------------------------------------------------------
@@ -269,6 +310,55 @@ public class MemoryStateBackend extends AbstractFileStateBackend implements Conf
 		return asynchronousSnapshots.getOrDefault(CheckpointingOptions.ASYNC_SNAPSHOTS.defaultValue());
 	}
 
+	/**
+	 * Gets the implementation of the timer queues of the keyed state backend.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#HEAP_TIMER_SERVICE_FACTORY}.
+	 */
+	public HeapPriorityQueueStateType getPriorityQueueStateType() {
+		return priorityQueueStateType != null ?
+			priorityQueueStateType :
+			HeapPriorityQueueStateType.valueOf(CheckpointingOptions.HEAP_TIMER_SERVICE_FACTORY.defaultValue());
+	}
+
+	/**
+	 * Gets the range of timestamps, in milliseconds, covered by one bucket of timing wheel timer queues.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#HEAP_TIMER_SERVICE_TIMING_WHEEL_BUCKET_WIDTH}.
+	 */
+	public long getTimingWheelBucketWidth() {
+		return timingWheelBucketWidth >= 0 ?
+			timingWheelBucketWidth :
+			CheckpointingOptions.HEAP_TIMER_SERVICE_TIMING_WHEEL_BUCKET_WIDTH.defaultValue().toMillis();
+	}
+
+	/**
+	 * Gets the interval, in milliseconds, of the background cleanup of states with TTL. Zero means that the
+	 * background cleanup is disabled.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#HEAP_TTL_BACKGROUND_CLEANUP_INTERVAL}.
+	 */
+	public long getTtlBackgroundCleanupInterval() {
+		return ttlBackgroundCleanupInterval >= 0 ?
+			ttlBackgroundCleanupInterval :
+			CheckpointingOptions.HEAP_TTL_BACKGROUND_CLEANUP_INTERVAL.defaultValue().toMillis();
+	}
+
+	/**
+	 * Gets the time, in milliseconds, that one run of the background cleanup of states with TTL may take.
+	 *
+	 * <p>If not explicitly configured, this is the default value of
+	 * {@link CheckpointingOptions#HEAP_TTL_BACKGROUND_CLEANUP_TIME_BUDGET}.
+	 */
+	public long getTtlBackgroundCleanupTimeBudget() {
+		return ttlBackgroundCleanupTimeBudget > 0 ?
+			ttlBackgroundCleanupTimeBudget :
+			CheckpointingOptions.HEAP_TTL_BACKGROUND_CLEANUP_TIME_BUDGET.defaultValue().toMillis();
+	}
+
 	// ------------------------------------------------------------------------
 	//  Reconfiguration
 	// ------------------------------------------------------------------------
@@ -329,8 +419,10 @@ public class MemoryStateBackend extends AbstractFileStateBackend implements Conf
 		CloseableRegistry cancelStreamRegistry) throws BackendBuildingException {
 
 		TaskStateManager taskStateManager = env.getTaskStateManager();
-		HeapPriorityQueueSetFactory priorityQueueSetFactory =
-			new HeapPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, 128);
+		PriorityQueueSetFactory priorityQueueSetFactory =
+			getPriorityQueueStateType() == HeapPriorityQueueStateType.TIMING_WHEEL ?
+				new TimingWheelPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, getTimingWheelBucketWidth()) :
+				new HeapPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, 128);
 		return new HeapKeyedStateBackendBuilder<>(
 			kvStateRegistry,
 			keySerializer,
@@ -344,7 +436,9 @@ public class MemoryStateBackend extends AbstractFileStateBackend implements Conf
 			taskStateManager.createLocalRecoveryConfig(),
 			priorityQueueSetFactory,
 			isUsingAsynchronousSnapshots(),
-			cancelStreamRegistry).build();
+			cancelStreamRegistry)
+			.setTtlBackgroundCleanup(getTtlBackgroundCleanupInterval(), getTtlBackgroundCleanupTimeBudget())
+			.build();
 	}
 
 	// ------------------------------------------------------------------------
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.ttl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.util.function.Function;
+
+/**
+ * A keyed state backend that removes expired state with TTL in the background. The backend learns about accesses to
+ * the registered states through a callback, and the task calls {@link #runBackgroundCleanup()} periodically from its
+ * main thread.
+ */
+public interface TtlBackgroundCleanup {
+
+	/**
+	 * Registers a state with TTL for background cleanup.
+	 *
+	 * @param stateName the name of the state.
+	 * @param ttl the time to live of the state entries, in milliseconds.
+	 * @param unexpiredOrNull returns the unexpired part of a state value, or null if all of it has expired.
+	 * @param <S> the type of the state values, including their timestamps.
+	 * @return a callback to run on every access of the state, or null if the backend does not clean up the state.
+	 */
+	@Nullable
+	<S> Runnable registerTtlState(@Nonnull String stateName, long ttl, @Nonnull Function<S, S> unexpiredOrNull);
+
+	/**
+	 * Returns the interval in milliseconds in which {@link #runBackgroundCleanup()} should be called, or 0 if the
+	 * background cleanup is disabled.
+	 */
+	long getBackgroundCleanupInterval();
+
+	/**
+	 * Removes expired state within a bounded time budget. Must be called from the task thread.
+	 */
+	void runBackgroundCleanup();
+}
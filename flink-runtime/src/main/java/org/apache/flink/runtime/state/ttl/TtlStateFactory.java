@@ -87,6 +87,9 @@ public class TtlStateFactory<K, N, SV, TTLSV, S extends State, IS extends S> {
 	private final long ttl;
 	@Nullable
 	private final TtlIncrementalCleanup<K, N, TTLSV> incrementalCleanup;
+	/** The created state with TTL, set once the state is created. */
+	@Nullable
+	private AbstractTtlState<K, N, ?, TTLSV, ?> ttlState;
 
 	private TtlStateFactory(
 		@Nonnull TypeSerializer<N> namespaceSerializer,
@@ -124,8 +127,9 @@ public class TtlStateFactory<K, N, SV, TTLSV, S extends State, IS extends S> {
 			throw new FlinkRuntimeException(message);
 		}
 		IS state = stateFactory.get();
+		ttlState = (AbstractTtlState<K, N, ?, TTLSV, ?>) state;
 		if (incrementalCleanup != null) {
-			incrementalCleanup.setTtlState((AbstractTtlState<K, N, ?, TTLSV, ?>) state);
+			incrementalCleanup.setTtlState(ttlState);
 		}
 		return state;
 	}
@@ -198,7 +202,8 @@ public class TtlStateFactory<K, N, SV, TTLSV, S extends State, IS extends S> {
 			namespaceSerializer, ttlDescriptor, getSnapshotTransformFactory());
 		return new TtlStateContext<>(
 			originalState, ttlConfig, timeProvider, (TypeSerializer<V>) stateDesc.getSerializer(),
-			registerTtlIncrementalCleanupCallback((InternalKvState<?, ?, ?>) originalState));
+			registerTtlBackgroundCleanupCallback(
+				registerTtlIncrementalCleanupCallback((InternalKvState<?, ?, ?>) originalState)));
 	}
 
 	private TtlIncrementalCleanup<K, N, TTLSV> getTtlIncrementalCleanup() {
@@ -220,6 +225,27 @@ public class TtlStateFactory<K, N, SV, TTLSV, S extends State, IS extends S> {
 		return callback;
 	}
 
+	/**
+	 * Registers the state for background cleanup if the backend supports it, and adds the access callback of the
+	 * background cleanup to the given callback.
+	 */
+	private Runnable registerTtlBackgroundCleanupCallback(Runnable accessCallback) {
+		if (!ttlConfig.getCleanupStrategies().isCleanupInBackground() ||
+			!(stateBackend instanceof TtlBackgroundCleanup)) {
+			return accessCallback;
+		}
+
+		Runnable backgroundCleanupCallback = ((TtlBackgroundCleanup) stateBackend).<TTLSV>registerTtlState(
+			stateDesc.getName(), ttl, value -> ttlState.getUnexpiredOrNull(value));
+		if (backgroundCleanupCallback == null) {
+			return accessCallback;
+		}
+		return () -> {
+			accessCallback.run();
+			backgroundCleanupCallback.run();
+		};
+	}
+
 	private boolean isStateIteratorSupported(InternalKvState<?, ?, ?> originalState, int size) {
 		boolean stateIteratorSupported = false;
 		try {
@@ -23,6 +23,8 @@ import org.apache.flink.runtime.state.internal.InternalValueState;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * This class wraps value state with TTL logic.
@@ -50,6 +52,17 @@ class TtlValueState<K, N, T>
 		original.update(wrapWithTs(value));
 	}
 
+	@Override
+	public List<T> getAll(List<K> keys, N namespace) throws Exception {
+		accessCallback.run();
+		List<TtlValue<T>> ttlValues = original.getAll(keys, namespace);
+		List<T> values = new ArrayList<>(ttlValues.size());
+		for (TtlValue<T> ttlValue : ttlValues) {
+			values.add(getUnexpired(ttlValue));
+		}
+		return values;
+	}
+
 	@Nullable
 	@Override
 	public TtlValue<T> getUnexpiredOrNull(@Nonnull TtlValue<T> ttlValue) {
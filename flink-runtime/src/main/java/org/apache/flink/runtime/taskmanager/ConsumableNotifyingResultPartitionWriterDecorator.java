@@ -178,7 +178,8 @@ public class ConsumableNotifyingResultPartitionWriterDecorator implements Result
 		ResultPartitionWriter[] consumableNotifyingPartitionWriters = new ResultPartitionWriter[partitionWriters.length];
 		int counter = 0;
 		for (ResultPartitionDeploymentDescriptor desc : descs) {
-			if (desc.sendScheduleOrUpdateConsumersMessage() && desc.getPartitionType().isPipelined()) {
+			if (desc.sendScheduleOrUpdateConsumersMessage() &&
+					(desc.getPartitionType().isPipelined() || desc.getPartitionType().isHybrid())) {
 				consumableNotifyingPartitionWriters[counter] = new ConsumableNotifyingResultPartitionWriterDecorator(
 					taskActions,
 					jobId,
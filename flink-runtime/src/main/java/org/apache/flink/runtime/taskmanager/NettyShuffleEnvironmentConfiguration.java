@@ -24,6 +24,7 @@ import org.apache.flink.configuration.MemorySize;
 import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.runtime.io.network.netty.NettyConfig;
 import org.apache.flink.runtime.io.network.partition.BoundedBlockingSubpartitionType;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferDebloatConfiguration;
 import org.apache.flink.runtime.util.ConfigurationParserUtils;
 import org.apache.flink.util.Preconditions;
 
@@ -72,10 +73,20 @@ public class NettyShuffleEnvironmentConfiguration {
 
 	private final boolean blockingShuffleCompressionEnabled;
 
+	private final boolean pipelinedShuffleCompressionEnabled;
+
 	private final String compressionCodec;
 
 	private final int maxBuffersPerChannel;
 
+	/** Minimum number of subpartitions of a blocking result partition to use the sort-merge blocking shuffle. */
+	private final int sortShuffleMinParallelism;
+
+	/** Size of the in-memory sort buffer of a sort-merge blocking result partition. */
+	private final int sortShuffleBufferSize;
+
+	private final BufferDebloatConfiguration bufferDebloatConfiguration;
+
 	public NettyShuffleEnvironmentConfiguration(
 			int numNetworkBuffers,
 			int networkBufferSize,
@@ -90,8 +101,12 @@ public class NettyShuffleEnvironmentConfiguration {
 			BoundedBlockingSubpartitionType blockingSubpartitionType,
 			boolean forcePartitionReleaseOnConsumption,
 			boolean blockingShuffleCompressionEnabled,
+			boolean pipelinedShuffleCompressionEnabled,
 			String compressionCodec,
-			int maxBuffersPerChannel) {
+			int maxBuffersPerChannel,
+			int sortShuffleMinParallelism,
+			int sortShuffleBufferSize,
+			BufferDebloatConfiguration bufferDebloatConfiguration) {
 
 		this.numNetworkBuffers = numNetworkBuffers;
 		this.networkBufferSize = networkBufferSize;
@@ -106,8 +121,12 @@ public class NettyShuffleEnvironmentConfiguration {
 		this.blockingSubpartitionType = Preconditions.checkNotNull(blockingSubpartitionType);
 		this.forcePartitionReleaseOnConsumption = forcePartitionReleaseOnConsumption;
 		this.blockingShuffleCompressionEnabled = blockingShuffleCompressionEnabled;
+		this.pipelinedShuffleCompressionEnabled = pipelinedShuffleCompressionEnabled;
 		this.compressionCodec = Preconditions.checkNotNull(compressionCodec);
 		this.maxBuffersPerChannel = maxBuffersPerChannel;
+		this.sortShuffleMinParallelism = sortShuffleMinParallelism;
+		this.sortShuffleBufferSize = sortShuffleBufferSize;
+		this.bufferDebloatConfiguration = Preconditions.checkNotNull(bufferDebloatConfiguration);
 	}
 
 	// ------------------------------------------------------------------------
@@ -164,6 +183,10 @@ public class NettyShuffleEnvironmentConfiguration {
 		return blockingShuffleCompressionEnabled;
 	}
 
+	public boolean isPipelinedShuffleCompressionEnabled() {
+		return pipelinedShuffleCompressionEnabled;
+	}
+
 	public String getCompressionCodec() {
 		return compressionCodec;
 	}
@@ -172,6 +195,18 @@ public class NettyShuffleEnvironmentConfiguration {
 		return maxBuffersPerChannel;
 	}
 
+	public int getSortShuffleMinParallelism() {
+		return sortShuffleMinParallelism;
+	}
+
+	public int getSortShuffleBufferSize() {
+		return sortShuffleBufferSize;
+	}
+
+	public BufferDebloatConfiguration getBufferDebloatConfiguration() {
+		return bufferDebloatConfiguration;
+	}
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -223,8 +258,15 @@ public class NettyShuffleEnvironmentConfiguration {
 
 		boolean blockingShuffleCompressionEnabled =
 			configuration.get(NettyShuffleEnvironmentOptions.BLOCKING_SHUFFLE_COMPRESSION_ENABLED);
+		boolean pipelinedShuffleCompressionEnabled =
+			configuration.get(NettyShuffleEnvironmentOptions.PIPELINED_SHUFFLE_COMPRESSION_ENABLED);
 		String compressionCodec = configuration.getString(NettyShuffleEnvironmentOptions.SHUFFLE_COMPRESSION_CODEC);
 
+		int sortShuffleMinParallelism = configuration.get(NettyShuffleEnvironmentOptions.NETWORK_SORT_SHUFFLE_MIN_PARALLELISM);
+		int sortShuffleBufferSize = getSortShuffleBufferSize(configuration);
+
+		BufferDebloatConfiguration bufferDebloatConfiguration = BufferDebloatConfiguration.fromConfiguration(configuration);
+
 		return new NettyShuffleEnvironmentConfiguration(
 			numberOfNetworkBuffers,
 			pageSize,
@@ -239,8 +281,12 @@ public class NettyShuffleEnvironmentConfiguration {
 			blockingSubpartitionType,
 			forcePartitionReleaseOnConsumption,
 			blockingShuffleCompressionEnabled,
+			pipelinedShuffleCompressionEnabled,
 			compressionCodec,
-			maxBuffersPerChannel);
+			maxBuffersPerChannel,
+			sortShuffleMinParallelism,
+			sortShuffleBufferSize,
+			bufferDebloatConfiguration);
 	}
 
 	/**
@@ -345,6 +391,18 @@ public class NettyShuffleEnvironmentConfiguration {
 		}
 	}
 
+	private static int getSortShuffleBufferSize(Configuration config) {
+		final long sortBufferSize = config.get(NettyShuffleEnvironmentOptions.NETWORK_SORT_SHUFFLE_BUFFER_SIZE).getBytes();
+
+		ConfigurationParserUtils.checkConfigParameter(
+			sortBufferSize > 0 && sortBufferSize <= Integer.MAX_VALUE,
+			sortBufferSize,
+			NettyShuffleEnvironmentOptions.NETWORK_SORT_SHUFFLE_BUFFER_SIZE.key(),
+			"The sort buffer size must be positive and smaller than 2 GB.");
+
+		return (int) sortBufferSize;
+	}
+
 	// ------------------------------------------------------------------------
 
 	@Override
@@ -361,8 +419,12 @@ public class NettyShuffleEnvironmentConfiguration {
 		result = 31 * result + Arrays.hashCode(tempDirs);
 		result = 31 * result + (forcePartitionReleaseOnConsumption ? 1 : 0);
 		result = 31 * result + (blockingShuffleCompressionEnabled ? 1 : 0);
+		result = 31 * result + (pipelinedShuffleCompressionEnabled ? 1 : 0);
 		result = 31 * result + Objects.hashCode(compressionCodec);
 		result = 31 * result + maxBuffersPerChannel;
+		result = 31 * result + sortShuffleMinParallelism;
+		result = 31 * result + sortShuffleBufferSize;
+		result = 31 * result + bufferDebloatConfiguration.hashCode();
 		return result;
 	}
 
@@ -388,7 +450,11 @@ public class NettyShuffleEnvironmentConfiguration {
 					Arrays.equals(this.tempDirs, that.tempDirs) &&
 					this.forcePartitionReleaseOnConsumption == that.forcePartitionReleaseOnConsumption &&
 					this.blockingShuffleCompressionEnabled == that.blockingShuffleCompressionEnabled &&
+					this.pipelinedShuffleCompressionEnabled == that.pipelinedShuffleCompressionEnabled &&
 					this.maxBuffersPerChannel == that.maxBuffersPerChannel &&
+					this.sortShuffleMinParallelism == that.sortShuffleMinParallelism &&
+					this.sortShuffleBufferSize == that.sortShuffleBufferSize &&
+					this.bufferDebloatConfiguration.equals(that.bufferDebloatConfiguration) &&
 					Objects.equals(this.compressionCodec, that.compressionCodec);
 		}
 	}
@@ -407,8 +473,12 @@ public class NettyShuffleEnvironmentConfiguration {
 				", tempDirs=" + Arrays.toString(tempDirs) +
 				", forcePartitionReleaseOnConsumption=" + forcePartitionReleaseOnConsumption +
 				", blockingShuffleCompressionEnabled=" + blockingShuffleCompressionEnabled +
+				", pipelinedShuffleCompressionEnabled=" + pipelinedShuffleCompressionEnabled +
 				", compressionCodec=" + compressionCodec +
 				", maxBuffersPerChannel=" + maxBuffersPerChannel +
+				", sortShuffleMinParallelism=" + sortShuffleMinParallelism +
+				", sortShuffleBufferSize=" + sortShuffleBufferSize +
+				", bufferDebloatConfiguration=" + bufferDebloatConfiguration +
 				'}';
 	}
 }
@@ -22,6 +22,7 @@ import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.JobStatus;
 import org.apache.flink.api.java.tuple.Tuple2;
 import org.apache.flink.core.fs.Path;
+import org.apache.flink.core.testutils.CheckedThread;
 import org.apache.flink.runtime.checkpoint.CheckpointCoordinatorTestingUtils.CheckpointCoordinatorBuilder;
 import org.apache.flink.runtime.checkpoint.CheckpointCoordinatorTestingUtils.CheckpointCoordinatorConfigurationBuilder;
 import org.apache.flink.runtime.concurrent.ManuallyTriggeredScheduledExecutor;
@@ -35,6 +36,9 @@ import org.apache.flink.runtime.jobgraph.OperatorID;
 import org.apache.flink.runtime.jobgraph.tasks.CheckpointCoordinatorConfiguration;
 import org.apache.flink.runtime.messages.checkpoint.AcknowledgeCheckpoint;
 import org.apache.flink.runtime.messages.checkpoint.DeclineCheckpoint;
+import org.apache.flink.runtime.state.CheckpointMetadataOutputStream;
+import org.apache.flink.runtime.state.CheckpointStorage;
+import org.apache.flink.runtime.state.CheckpointStorageLocation;
 import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
@@ -43,10 +47,14 @@ import org.apache.flink.runtime.state.OperatorStateHandle;
 import org.apache.flink.runtime.state.OperatorStreamStateHandle;
 import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
 import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.StateBackend;
 import org.apache.flink.runtime.state.StateHandleID;
 import org.apache.flink.runtime.state.StreamStateHandle;
 import org.apache.flink.runtime.state.filesystem.FileStateHandle;
 import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+import org.apache.flink.runtime.state.memory.MemoryBackendCheckpointStorage;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+import org.apache.flink.runtime.state.memory.NonPersistentMetadataCheckpointStorageLocation;
 import org.apache.flink.runtime.state.testutils.TestCompletedCheckpointStorageLocation;
 import org.apache.flink.runtime.testutils.RecoverableCompletedCheckpointStore;
 import org.apache.flink.util.ExceptionUtils;
@@ -621,6 +629,135 @@ public class CheckpointCoordinatorTest extends TestLogger {
 		}
 	}
 
+	/**
+	 * Tests that acknowledgements which arrive concurrently from many tasks complete the
+	 * checkpoint exactly once.
+	 */
+	@Test
+	public void testConcurrentAcknowledgementsCompleteCheckpointOnce() throws Exception {
+		final JobID jid = new JobID();
+		final int numTasks = 64;
+		final int numThreads = 8;
+
+		final ExecutionAttemptID[] attemptIDs = new ExecutionAttemptID[numTasks];
+		final ExecutionVertex[] vertices = new ExecutionVertex[numTasks];
+		for (int i = 0; i < numTasks; i++) {
+			attemptIDs[i] = new ExecutionAttemptID();
+			vertices[i] = mockExecutionVertex(attemptIDs[i]);
+		}
+
+		CheckpointCoordinator coord = new CheckpointCoordinatorBuilder()
+			.setJobId(jid)
+			.setTasks(vertices)
+			.setTimer(manuallyTriggeredScheduledExecutor)
+			.build();
+
+		final CompletableFuture<CompletedCheckpoint> checkpointFuture =
+			coord.triggerCheckpoint(System.currentTimeMillis(), false);
+		manuallyTriggeredScheduledExecutor.triggerAll();
+		assertEquals(1, coord.getNumberOfPendingCheckpoints());
+
+		final long checkpointId = coord.getPendingCheckpoints().keySet().iterator().next();
+
+		CheckedThread[] threads = new CheckedThread[numThreads];
+		for (int t = 0; t < numThreads; t++) {
+			final int threadIndex = t;
+			threads[t] = new CheckedThread() {
+				@Override
+				public void go() throws Exception {
+					for (int i = threadIndex; i < numTasks; i += numThreads) {
+						coord.receiveAcknowledgeMessage(
+							new AcknowledgeCheckpoint(jid, attemptIDs[i], checkpointId),
+							TASK_MANAGER_LOCATION_INFO);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (CheckedThread thread : threads) {
+			thread.sync();
+		}
+
+		assertEquals(checkpointId, checkpointFuture.get().getCheckpointID());
+		assertEquals(0, coord.getNumberOfPendingCheckpoints());
+		assertEquals(1, coord.getNumberOfRetainedSuccessfulCheckpoints());
+
+		for (ExecutionVertex vertex : vertices) {
+			verify(vertex.getCurrentExecutionAttempt(), times(1)).notifyCheckpointComplete(eq(checkpointId), anyLong());
+		}
+
+		coord.shutdown(JobStatus.FINISHED);
+	}
+
+	/**
+	 * Tests that a checkpoint whose metadata is written while the job fails over is neither added
+	 * to the completed checkpoint store nor acknowledged to the restarted tasks.
+	 */
+	@Test
+	public void testFailoverDuringFinalizationDiscardsCheckpoint() throws Exception {
+		final JobID jid = new JobID();
+		final ExecutionAttemptID attemptID1 = new ExecutionAttemptID();
+		final ExecutionAttemptID attemptID2 = new ExecutionAttemptID();
+		final ExecutionVertex vertex1 = mockExecutionVertex(attemptID1);
+		final ExecutionVertex vertex2 = mockExecutionVertex(attemptID2);
+
+		final AtomicReference<CheckpointCoordinator> coordReference = new AtomicReference<>();
+		final StateBackend backend = new MemoryStateBackend() {
+			@Override
+			public CheckpointStorage createCheckpointStorage(JobID jobId) throws IOException {
+				return new MemoryBackendCheckpointStorage(jobId, null, null, getMaxStateSize()) {
+					@Override
+					public CheckpointStorageLocation initializeLocationForCheckpoint(long checkpointId) {
+						return new NonPersistentMetadataCheckpointStorageLocation(getMaxStateSize()) {
+							@Override
+							public CheckpointMetadataOutputStream createMetadataOutputStream() throws IOException {
+								// the job fails over while the metadata is written
+								try {
+									coordReference.get().abortPendingCheckpoints(
+										new CheckpointException(CheckpointFailureReason.JOB_FAILURE));
+									coordReference.get().restoreLatestCheckpointedState(
+										Collections.emptySet(), false, false);
+								} catch (Exception e) {
+									throw new IOException(e);
+								}
+								return super.createMetadataOutputStream();
+							}
+						};
+					}
+				};
+			}
+		};
+
+		CheckpointCoordinator coord = new CheckpointCoordinatorBuilder()
+			.setJobId(jid)
+			.setTasks(new ExecutionVertex[] { vertex1, vertex2 })
+			.setCheckpointStateBackend(backend)
+			.setTimer(manuallyTriggeredScheduledExecutor)
+			.build();
+		coordReference.set(coord);
+
+		coord.triggerCheckpoint(System.currentTimeMillis(), false);
+		manuallyTriggeredScheduledExecutor.triggerAll();
+		assertEquals(1, coord.getNumberOfPendingCheckpoints());
+
+		final long checkpointId = coord.getPendingCheckpoints().keySet().iterator().next();
+
+		coord.receiveAcknowledgeMessage(new AcknowledgeCheckpoint(jid, attemptID1, checkpointId), TASK_MANAGER_LOCATION_INFO);
+		try {
+			coord.receiveAcknowledgeMessage(new AcknowledgeCheckpoint(jid, attemptID2, checkpointId), TASK_MANAGER_LOCATION_INFO);
+			fail("The checkpoint should not be completed after the failover.");
+		} catch (CheckpointException expected) {
+			assertEquals(CheckpointFailureReason.FINALIZE_CHECKPOINT_FAILURE, expected.getCheckpointFailureReason());
+		}
+
+		assertEquals(0, coord.getNumberOfPendingCheckpoints());
+		assertEquals(0, coord.getNumberOfRetainedSuccessfulCheckpoints());
+		verify(vertex1.getCurrentExecutionAttempt(), never()).notifyCheckpointComplete(anyLong(), anyLong());
+		verify(vertex2.getCurrentExecutionAttempt(), never()).notifyCheckpointComplete(anyLong(), anyLong());
+
+		coord.shutdown(JobStatus.FINISHED);
+	}
+
 	@Test
 	public void testMultipleConcurrentCheckpoints() {
 		try {
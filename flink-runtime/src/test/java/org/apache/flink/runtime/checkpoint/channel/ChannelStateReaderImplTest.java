@@ -78,7 +78,16 @@ public class ChannelStateReaderImplTest {
 
 	@Test
 	public void testWithOffsets() throws IOException {
-		Map<InputChannelStateHandle, byte[]> handlesAndBytes = generateHandlesWithBytes(10, 20);
+		testWithOffsets(false);
+	}
+
+	@Test
+	public void testWithOffsetsCompressed() throws IOException {
+		testWithOffsets(true);
+	}
+
+	private void testWithOffsets(boolean compressionEnabled) throws IOException {
+		Map<InputChannelStateHandle, byte[]> handlesAndBytes = generateHandlesWithBytes(10, 20, compressionEnabled);
 		ChannelStateReader reader = new ChannelStateReaderImpl(taskStateSnapshot(handlesAndBytes.keySet()), new ChannelStateSerializerImpl());
 		for (Map.Entry<InputChannelStateHandle, byte[]> e : handlesAndBytes.entrySet()) {
 			readAndVerify(42, e.getKey().getInfo(), e.getValue(), reader);
@@ -131,7 +140,8 @@ public class ChannelStateReaderImplTest {
 	private ChannelStateDeserializer deserializer(byte[] data) {
 		return new ChannelStateDeserializer() {
 			@Override
-			public void readHeader(InputStream stream) {
+			public ChannelStateDeserializer readHeader(InputStream stream) {
+				return this;
 			}
 
 			@Override
@@ -175,11 +185,14 @@ public class ChannelStateReaderImplTest {
 		return new NetworkBuffer(HeapMemorySegment.FACTORY.allocateUnpooledSegment(len, null), FreeingBufferRecycler.INSTANCE);
 	}
 
-	private Map<InputChannelStateHandle, byte[]> generateHandlesWithBytes(int numHandles, int handleDataSize) throws IOException {
+	private Map<InputChannelStateHandle, byte[]> generateHandlesWithBytes(
+			int numHandles,
+			int handleDataSize,
+			boolean compressionEnabled) throws IOException {
 		Map<Integer, byte[]> offsetsAndBytes = new HashMap<>();
 		ByteArrayOutputStream baos = new ByteArrayOutputStream(100);
 		DataOutputStream out = new DataOutputStream(baos);
-		ChannelStateSerializerImpl serializer = new ChannelStateSerializerImpl();
+		ChannelStateSerializerImpl serializer = new ChannelStateSerializerImpl(compressionEnabled);
 		serializer.writeHeader(out);
 		for (int i = 0; i < numHandles; i++) {
 			offsetsAndBytes.put(baos.size(), writeSomeBytes(handleDataSize, out, serializer));
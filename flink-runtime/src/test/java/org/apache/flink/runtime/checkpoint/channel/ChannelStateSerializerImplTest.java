@@ -40,6 +40,7 @@ import static org.apache.flink.runtime.checkpoint.channel.ChannelStateReaderImpl
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 /**
  * {@link ChannelStateSerializerImpl} test.
@@ -58,12 +59,34 @@ public class ChannelStateSerializerImplTest {
 		}
 	}
 
+	@Test
+	public void testReadWriteCompressed() throws IOException {
+		byte[] data = new byte[4096];
+		Arrays.fill(data, 0, 2048, (byte) 7);
+		System.arraycopy(generateData(2048), 0, data, 2048, 2048);
+		ChannelStateSerializerImpl serializer = new ChannelStateSerializerImpl(true);
+		try (ByteArrayOutputStream baos = new ByteArrayOutputStream(data.length)) {
+			write(data, serializer, baos);
+			assertTrue(baos.size() < data.length);
+			readAndCheck(data, serializer, new ByteArrayInputStream(baos.toByteArray()));
+		}
+	}
+
 	@Test
 	public void testReadWriteWithMultipleBuffers() throws IOException {
+		testReadWriteWithMultipleBuffers(false);
+	}
+
+	@Test
+	public void testReadWriteCompressedWithMultipleBuffers() throws IOException {
+		testReadWriteWithMultipleBuffers(true);
+	}
+
+	private void testReadWriteWithMultipleBuffers(boolean compressionEnabled) throws IOException {
 		int bufSize = 10;
 		int[] numBuffersToWriteAtOnce = {0, 1, 2, 3};
 		byte[] data = generateData(bufSize);
-		ChannelStateSerializer s = new ChannelStateSerializerImpl();
+		ChannelStateSerializer s = new ChannelStateSerializerImpl(compressionEnabled);
 		ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		DataOutputStream out = new DataOutputStream(baos);
 		s.writeHeader(out);
@@ -74,9 +97,8 @@ public class ChannelStateSerializerImplTest {
 		}
 		out.close();
 
-		ChannelStateDeserializer d = new ChannelStateSerializerImpl();
 		ByteArrayInputStream is = new ByteArrayInputStream(baos.toByteArray());
-		d.readHeader(is);
+		ChannelStateDeserializer d = new ChannelStateSerializerImpl().readHeader(is);
 		for (int count : numBuffersToWriteAtOnce) {
 			int expected = bufSize * count;
 			assertEquals(expected, d.readLength(is));
@@ -133,12 +155,12 @@ public class ChannelStateSerializerImplTest {
 	}
 
 	private void readAndCheck(byte[] data, ChannelStateSerializerImpl serializer, ByteArrayInputStream is) throws IOException {
-		serializer.readHeader(is);
-		int size = serializer.readLength(is);
+		ChannelStateDeserializer deserializer = serializer.readHeader(is);
+		int size = deserializer.readLength(is);
 		assertEquals(data.length, size);
 		NetworkBuffer buffer = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(data.length), FreeingBufferRecycler.INSTANCE);
 		try {
-			int read = serializer.readData(is, wrap(buffer), size);
+			int read = deserializer.readData(is, wrap(buffer), size);
 			assertEquals(size, read);
 			assertArrayEquals(data, readBytes(buffer));
 		} finally {
@@ -18,10 +18,12 @@
 
 package org.apache.flink.runtime.io.network;
 
+import org.apache.flink.configuration.Configuration;
 import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.runtime.clusterframework.types.ResourceID;
 import org.apache.flink.runtime.io.network.netty.NettyConfig;
 import org.apache.flink.runtime.io.network.partition.BoundedBlockingSubpartitionType;
+import org.apache.flink.runtime.io.network.partition.consumer.BufferDebloatConfiguration;
 import org.apache.flink.runtime.metrics.groups.UnregisteredMetricGroups;
 import org.apache.flink.runtime.taskmanager.NettyShuffleEnvironmentConfiguration;
 import org.apache.flink.runtime.util.EnvironmentInformation;
@@ -53,8 +55,17 @@ public class NettyShuffleEnvironmentBuilder {
 
 	private boolean blockingShuffleCompressionEnabled = false;
 
+	private boolean pipelinedShuffleCompressionEnabled = false;
+
 	private String compressionCodec = "LZ4";
 
+	private int sortShuffleMinParallelism = Integer.MAX_VALUE;
+
+	private int sortShuffleBufferSize = 8 * 1024 * 1024;
+
+	private BufferDebloatConfiguration bufferDebloatConfiguration =
+		BufferDebloatConfiguration.fromConfiguration(new Configuration());
+
 	private ResourceID taskManagerLocation = ResourceID.generate();
 
 	private NettyConfig nettyConfig;
@@ -101,11 +112,31 @@ public class NettyShuffleEnvironmentBuilder {
 		return this;
 	}
 
+	public NettyShuffleEnvironmentBuilder setPipelinedShuffleCompressionEnabled(boolean pipelinedShuffleCompressionEnabled) {
+		this.pipelinedShuffleCompressionEnabled = pipelinedShuffleCompressionEnabled;
+		return this;
+	}
+
 	public NettyShuffleEnvironmentBuilder setCompressionCodec(String compressionCodec) {
 		this.compressionCodec = compressionCodec;
 		return this;
 	}
 
+	public NettyShuffleEnvironmentBuilder setSortShuffleMinParallelism(int sortShuffleMinParallelism) {
+		this.sortShuffleMinParallelism = sortShuffleMinParallelism;
+		return this;
+	}
+
+	public NettyShuffleEnvironmentBuilder setSortShuffleBufferSize(int sortShuffleBufferSize) {
+		this.sortShuffleBufferSize = sortShuffleBufferSize;
+		return this;
+	}
+
+	public NettyShuffleEnvironmentBuilder setBufferDebloatConfiguration(BufferDebloatConfiguration bufferDebloatConfiguration) {
+		this.bufferDebloatConfiguration = bufferDebloatConfiguration;
+		return this;
+	}
+
 	public NettyShuffleEnvironmentBuilder setNettyConfig(NettyConfig nettyConfig) {
 		this.nettyConfig = nettyConfig;
 		return this;
@@ -132,8 +163,12 @@ public class NettyShuffleEnvironmentBuilder {
 				BoundedBlockingSubpartitionType.AUTO,
 				false,
 				blockingShuffleCompressionEnabled,
+				pipelinedShuffleCompressionEnabled,
 				compressionCodec,
-				maxBuffersPerChannel),
+				maxBuffersPerChannel,
+				sortShuffleMinParallelism,
+				sortShuffleBufferSize,
+				bufferDebloatConfiguration),
 			taskManagerLocation,
 			new TaskEventDispatcher(),
 			metricGroup);
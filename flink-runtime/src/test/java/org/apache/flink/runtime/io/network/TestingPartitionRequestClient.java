@@ -44,6 +44,10 @@ public class TestingPartitionRequestClient implements PartitionRequestClient {
 	public void resumeConsumption(RemoteInputChannel inputChannel) {
 	}
 
+	@Override
+	public void notifyNewBufferSize(RemoteInputChannel inputChannel, int bufferSize) {
+	}
+
 	@Override
 	public void sendTaskEvent(ResultPartitionID partitionId, TaskEvent event, RemoteInputChannel inputChannel) {
 	}
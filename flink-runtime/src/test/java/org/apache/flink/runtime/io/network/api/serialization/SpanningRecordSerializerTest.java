@@ -22,16 +22,20 @@ import org.apache.flink.core.memory.DataInputView;
 import org.apache.flink.core.memory.DataOutputView;
 import org.apache.flink.core.memory.MemorySegment;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
+import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
 import org.apache.flink.testutils.serialization.types.SerializationTestType;
 import org.apache.flink.testutils.serialization.types.SerializationTestTypeFactory;
 import org.apache.flink.testutils.serialization.types.Util;
+import org.apache.flink.types.IntValue;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Random;
 
+import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.buildSingleBuffer;
 import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.createBufferBuilder;
 
 /**
@@ -64,6 +68,35 @@ public class SpanningRecordSerializerTest {
 		Assert.assertTrue(serializer.hasSerializedData());
 	}
 
+	@Test
+	public void testAppendRecords() throws IOException {
+		final SpanningRecordSerializer<IntValue> serializer = new SpanningRecordSerializer<>();
+
+		serializer.serializeRecord(new IntValue(1));
+		serializer.appendRecord(new IntValue(2));
+		serializer.appendRecord(new IntValue(3));
+
+		final BufferBuilder bufferBuilder = createBufferBuilder(32);
+		final BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer();
+		Assert.assertEquals(RecordSerializer.SerializationResult.FULL_RECORD, serializer.copyToBufferBuilder(bufferBuilder));
+		Assert.assertFalse(serializer.hasSerializedData());
+
+		// every record is prefixed by its length
+		final ByteBuffer data = buildSingleBuffer(bufferConsumer).getNioBufferReadable();
+		Assert.assertEquals(24, data.remaining());
+		for (int value = 1; value <= 3; value++) {
+			Assert.assertEquals(4, data.getInt());
+			Assert.assertEquals(value, data.getInt());
+		}
+
+		// a new record starts a new batch
+		serializer.serializeRecord(new IntValue(4));
+		final BufferBuilder bufferBuilder2 = createBufferBuilder(32);
+		final BufferConsumer bufferConsumer2 = bufferBuilder2.createBufferConsumer();
+		serializer.copyToBufferBuilder(bufferBuilder2);
+		Assert.assertEquals(8, buildSingleBuffer(bufferConsumer2).readableBytes());
+	}
+
 	@Test
 	public void testEmptyRecords() throws IOException {
 		final int segmentSize = 11;
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.api.writer;
+
+import org.apache.flink.core.testutils.OneShotLatch;
+import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
+import org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils;
+import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.runtime.io.network.partition.MockResultPartitionWriter;
+import org.apache.flink.types.IntValue;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests for the {@link OutputFlushScheduler}.
+ */
+public class OutputFlushSchedulerTest extends TestLogger {
+
+	@Test
+	public void testPeriodicFlush() {
+		OutputFlushScheduler scheduler = new OutputFlushScheduler(false);
+		FlushCountingPartitionWriter partitionWriter = new FlushCountingPartitionWriter();
+		scheduler.register(createRecordWriter(partitionWriter), 10);
+
+		tick(scheduler, 9);
+		assertEquals(0, partitionWriter.numberOfFlushes);
+
+		tick(scheduler, 1);
+		assertEquals(1, partitionWriter.numberOfFlushes);
+
+		tick(scheduler, 10);
+		assertEquals(2, partitionWriter.numberOfFlushes);
+	}
+
+	@Test
+	public void testTimeoutLongerThanWheel() {
+		long timeout = 3 * OutputFlushScheduler.WHEEL_SIZE + 7;
+		OutputFlushScheduler scheduler = new OutputFlushScheduler(false);
+		FlushCountingPartitionWriter partitionWriter = new FlushCountingPartitionWriter();
+		scheduler.register(createRecordWriter(partitionWriter), timeout);
+
+		tick(scheduler, timeout - 1);
+		assertEquals(0, partitionWriter.numberOfFlushes);
+
+		tick(scheduler, 1);
+		assertEquals(1, partitionWriter.numberOfFlushes);
+	}
+
+	@Test
+	public void testEarlyFlushOfIdleOutput() throws Exception {
+		long checkInterval = 25;
+		OutputFlushScheduler scheduler = new OutputFlushScheduler(false);
+		FlushCountingPartitionWriter partitionWriter = new FlushCountingPartitionWriter();
+		RecordWriter<IntValue> recordWriter = createRecordWriter(partitionWriter);
+		scheduler.register(recordWriter, OutputFlushScheduler.CHECKS_PER_TIMEOUT * checkInterval);
+
+		recordWriter.emit(new IntValue(42));
+
+		// the output was written to since the registration
+		tick(scheduler, checkInterval);
+		assertEquals(0, partitionWriter.numberOfFlushes);
+
+		// the output is idle but holds unflushed data
+		tick(scheduler, checkInterval);
+		assertEquals(1, partitionWriter.numberOfFlushes);
+
+		// nothing left to flush until the regular timeout
+		tick(scheduler, OutputFlushScheduler.CHECKS_PER_TIMEOUT * checkInterval - 1);
+		assertEquals(1, partitionWriter.numberOfFlushes);
+
+		tick(scheduler, 1);
+		assertEquals(2, partitionWriter.numberOfFlushes);
+	}
+
+	@Test
+	public void testCancel() {
+		OutputFlushScheduler scheduler = new OutputFlushScheduler(false);
+		FlushCountingPartitionWriter partitionWriter = new FlushCountingPartitionWriter();
+		OutputFlushScheduler.Registration registration = scheduler.register(createRecordWriter(partitionWriter), 10);
+		assertEquals(1, scheduler.getNumberOfRegisteredWriters());
+
+		registration.cancel();
+		assertEquals(0, scheduler.getNumberOfRegisteredWriters());
+
+		tick(scheduler, 100);
+		assertEquals(0, partitionWriter.numberOfFlushes);
+	}
+
+	@Test
+	public void testFlushDoesNotBlockOtherWriters() throws Exception {
+		OneShotLatch flushStarted = new OneShotLatch();
+		OneShotLatch flushMayComplete = new OneShotLatch();
+		OutputFlushScheduler scheduler = new OutputFlushScheduler(false);
+		FlushCountingPartitionWriter blockingPartitionWriter = new FlushCountingPartitionWriter() {
+			@Override
+			public void flushAll() {
+				super.flushAll();
+				flushStarted.trigger();
+				try {
+					flushMayComplete.await();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		};
+		OutputFlushScheduler.Registration registration = scheduler.register(createRecordWriter(blockingPartitionWriter), 1);
+
+		Thread ticker = new Thread(scheduler::tick);
+		ticker.start();
+		flushStarted.await();
+
+		// other writers can register and cancel while the flush is in progress
+		scheduler.register(createRecordWriter(new FlushCountingPartitionWriter()), 10).cancel();
+		assertEquals(1, scheduler.getNumberOfRegisteredWriters());
+
+		// cancelling the blocked writer waits for its flush
+		CompletableFuture<Void> cancelled = CompletableFuture.runAsync(registration::cancel);
+		Thread.sleep(10);
+		assertFalse(cancelled.isDone());
+
+		flushMayComplete.trigger();
+		cancelled.get();
+		ticker.join();
+
+		assertEquals(0, scheduler.getNumberOfRegisteredWriters());
+		assertEquals(1, blockingPartitionWriter.numberOfFlushes);
+	}
+
+	@Test
+	public void testFlushFailureIsReportedToWriter() throws Exception {
+		RuntimeException expected = new RuntimeException("test exception");
+		OutputFlushScheduler scheduler = new OutputFlushScheduler(false);
+		FlushCountingPartitionWriter partitionWriter = new FlushCountingPartitionWriter() {
+			@Override
+			public void flushAll() {
+				super.flushAll();
+				throw expected;
+			}
+		};
+		RecordWriter<IntValue> recordWriter = createRecordWriter(partitionWriter);
+		scheduler.register(recordWriter, 10);
+
+		tick(scheduler, 100);
+		assertEquals(1, partitionWriter.numberOfFlushes);
+		assertEquals(0, scheduler.getNumberOfRegisteredWriters());
+
+		try {
+			recordWriter.emit(new IntValue(42));
+			fail("The flush failure should be reported by the writer.");
+		} catch (IOException e) {
+			assertSame(expected, e.getCause());
+		}
+	}
+
+	private static RecordWriter<IntValue> createRecordWriter(ResultPartitionWriter partitionWriter) {
+		// no timeout, so that the writer is not registered at the shared scheduler
+		return new RecordWriterBuilder<IntValue>().setTimeout(-1).build(partitionWriter);
+	}
+
+	private static void tick(OutputFlushScheduler scheduler, long numberOfTicks) {
+		for (long i = 0; i < numberOfTicks; i++) {
+			scheduler.tick();
+		}
+	}
+
+	private static class FlushCountingPartitionWriter extends MockResultPartitionWriter {
+
+		int numberOfFlushes;
+
+		@Override
+		public boolean addBufferConsumer(BufferConsumer bufferConsumer, int targetChannel, boolean isPriorityEvent) {
+			// keep the buffer alive for the record writer, it is garbage collected with the test
+			return true;
+		}
+
+		@Override
+		public BufferBuilder getBufferBuilder(int targetChannel) {
+			return BufferBuilderTestUtils.createBufferBuilder();
+		}
+
+		@Override
+		public BufferBuilder tryGetBufferBuilder(int targetChannel) {
+			return BufferBuilderTestUtils.createBufferBuilder();
+		}
+
+		@Override
+		public void flushAll() {
+			numberOfFlushes++;
+		}
+	}
+}
@@ -406,6 +406,50 @@ public class RecordWriterTest {
 		}
 	}
 
+	/**
+	 * Tests that {@link RecordWriter#emitAll(List)} writes the same data to every channel as
+	 * emitting the records one by one.
+	 */
+	@Test
+	public void testEmitAllRecords() throws Exception {
+		final int numberOfChannels = 4;
+		final int bufferSize = 32;
+		final int numValues = 50;
+
+		final List<SerializationTestType> records = new ArrayList<>();
+		for (SerializationTestType record : Util.randomRecords(numValues, SerializationTestTypeFactory.INT)) {
+			records.add(record);
+		}
+
+		final Queue<BufferConsumer>[] expectedQueues = createQueues(numberOfChannels);
+		final RecordWriter<SerializationTestType> expectedWriter = createRecordWriter(
+			new CollectingPartitionWriter(expectedQueues, new TestPooledBufferProvider(Integer.MAX_VALUE, bufferSize)));
+		for (SerializationTestType record : records) {
+			expectedWriter.emit(record);
+		}
+		expectedWriter.flushAll();
+
+		final Queue<BufferConsumer>[] queues = createQueues(numberOfChannels);
+		final RecordWriter<SerializationTestType> writer = createRecordWriter(
+			new CollectingPartitionWriter(queues, new TestPooledBufferProvider(Integer.MAX_VALUE, bufferSize)));
+		writer.emitAll(records.subList(0, 1));
+		writer.emitAll(records.subList(1, 17));
+		writer.emitAll(new ArrayList<>());
+		writer.emitAll(records.subList(17, numValues));
+		writer.flushAll();
+
+		for (int i = 0; i < numberOfChannels; i++) {
+			assertEquals(expectedQueues[i].size(), queues[i].size());
+			while (!queues[i].isEmpty()) {
+				final Buffer expected = buildSingleBuffer(expectedQueues[i].remove());
+				final Buffer actual = buildSingleBuffer(queues[i].remove());
+				assertEquals(expected.getNioBufferReadable(), actual.getNioBufferReadable());
+				expected.recycleBuffer();
+				actual.recycleBuffer();
+			}
+		}
+	}
+
 	/**
 	 * Tests that the RecordWriter is available iif the respective LocalBufferPool has at-least one available buffer.
 	 */
@@ -597,6 +641,15 @@ public class RecordWriterTest {
 		Assert.assertEquals(numValues, assertRecords);
 	}
 
+	@SuppressWarnings("unchecked")
+	private static Queue<BufferConsumer>[] createQueues(int numberOfChannels) {
+		final Queue<BufferConsumer>[] queues = new Queue[numberOfChannels];
+		for (int i = 0; i < numberOfChannels; i++) {
+			queues[i] = new ArrayDeque<>();
+		}
+		return queues;
+	}
+
 	/**
 	 * Creates the {@link RecordWriter} instance based on whether it is a broadcast writer.
 	 */
@@ -225,6 +225,23 @@ public class BufferBuilderAndConsumerTest {
 		assertEquals(0, bufferBuilder.getWritableBytes());
 	}
 
+	@Test
+	public void testTrim() {
+		BufferBuilder bufferBuilder = createBufferBuilder();
+		BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer();
+
+		bufferBuilder.trim(2 * Integer.BYTES);
+		assertEquals(2 * Integer.BYTES, bufferBuilder.appendAndCommit(toByteBuffer(0, 1, 2)));
+		assertTrue(bufferBuilder.isFull());
+		assertContent(bufferConsumer, 0, 1);
+
+		// the capacity never drops below the written bytes and never exceeds the segment
+		bufferBuilder.trim(1);
+		assertEquals(2 * Integer.BYTES, bufferBuilder.getMaxCapacity());
+		bufferBuilder.trim(2 * BUFFER_SIZE);
+		assertEquals(BUFFER_SIZE, bufferBuilder.getMaxCapacity());
+	}
+
 	private static void testIsFinished(int writes) {
 		BufferBuilder bufferBuilder = createBufferBuilder();
 		BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer();
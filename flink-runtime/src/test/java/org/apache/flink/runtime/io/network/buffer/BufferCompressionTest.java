@@ -179,6 +179,19 @@ public class BufferCompressionTest {
 		assertEquals(numBytes, compressedBuffer.readableBytes());
 	}
 
+	@Test
+	public void testCompressToBuffer() {
+		Buffer target = new NetworkBuffer(MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE), FreeingBufferRecycler.INSTANCE);
+
+		Buffer compressedBuffer = compressor.compressToBuffer(bufferToCompress, target);
+		assertEquals(target, compressedBuffer);
+		assertTrue(compressedBuffer.isCompressed());
+		assertTrue(compressedBuffer.readableBytes() < bufferToCompress.readableBytes());
+
+		Buffer decompressedBuffer = decompress(decompressor, compressedBuffer, decompressToOriginalBuffer);
+		verifyDecompressionResult(decompressedBuffer, 0, NUM_LONGS);
+	}
+
 	private static Buffer createBufferAndFillWithLongValues(boolean isDirect) {
 		MemorySegment segment;
 		if (isDirect) {
@@ -214,6 +214,14 @@ public class CancelPartitionRequestTest {
 		public void resumeConsumption() {
 		}
 
+		@Override
+		public void notifyNewBufferSize(int newBufferSize) {
+		}
+
+		@Override
+		public void enableCompression() {
+		}
+
 		@Override
 		public boolean isAvailable(int numCreditsAvailable) {
 			return true;
@@ -134,6 +134,9 @@ public class ClientTransportErrorHandlingTest {
 		// First request is successful
 		requestClient.requestSubpartition(new ResultPartitionID(), 0, rich[0], 0);
 
+		// Wait until the first request is written, so that the second one is not batched with it
+		ch.eventLoop().submit(() -> {}).sync();
+
 		// Second request is *not* successful
 		requestClient.requestSubpartition(new ResultPartitionID(), 0, rich[1], 0);
 
@@ -28,12 +28,14 @@ import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.AddCredit;
+import org.apache.flink.runtime.io.network.netty.NettyMessage.BatchedAddCredit;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.BufferResponse;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.CloseRequest;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.ErrorResponse;
 import org.apache.flink.runtime.io.network.netty.NettyMessage.PartitionRequest;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
+import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelBuilder;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
 import org.apache.flink.runtime.io.network.partition.consumer.RemoteInputChannel;
@@ -50,6 +52,7 @@ import org.apache.flink.shaded.netty4.io.netty.channel.embedded.EmbeddedChannel;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.List;
 
 import static org.apache.flink.runtime.io.network.netty.PartitionRequestQueueTest.blockChannel;
 import static org.apache.flink.runtime.io.network.partition.InputChannelTestUtils.createRemoteInputChannel;
@@ -192,7 +195,11 @@ public class CreditBasedPartitionRequestClientHandlerTest {
 		BufferCompressor compressor = new BufferCompressor(bufferSize, compressionCodec);
 		BufferDecompressor decompressor = new BufferDecompressor(bufferSize, compressionCodec);
 		NetworkBufferPool networkBufferPool = new NetworkBufferPool(10, bufferSize, 2);
-		SingleInputGate inputGate = new SingleInputGateBuilder().setBufferDecompressor(decompressor).build();
+		// buffers of pipelined partitions are already decompressed on receipt
+		SingleInputGate inputGate = new SingleInputGateBuilder()
+			.setResultPartitionType(ResultPartitionType.BLOCKING)
+			.setBufferDecompressor(decompressor)
+			.build();
 		RemoteInputChannel inputChannel = createRemoteInputChannel(inputGate, null, networkBufferPool);
 		inputGate.setInputChannels(inputChannel);
 
@@ -410,6 +417,68 @@ public class CreditBasedPartitionRequestClientHandlerTest {
 		}
 	}
 
+	/**
+	 * Verifies that the credits of several input channels, which are enqueued while the channel
+	 * is not writable, are announced with a single {@link BatchedAddCredit} message.
+	 */
+	@Test
+	public void testBatchedCreditAnnouncement() throws Exception {
+		final CreditBasedPartitionRequestClientHandler handler = new CreditBasedPartitionRequestClientHandler();
+		final NetworkBufferAllocator allocator = new NetworkBufferAllocator(handler);
+		final EmbeddedChannel channel = new EmbeddedChannel(handler);
+		final PartitionRequestClient client = new NettyPartitionRequestClient(
+			channel, handler, mock(ConnectionID.class), mock(PartitionRequestClientFactory.class));
+
+		final NetworkBufferPool networkBufferPool = new NetworkBufferPool(10, 32, 2);
+		final SingleInputGate inputGate = createSingleInputGate(2);
+		final RemoteInputChannel[] inputChannels = new RemoteInputChannel[2];
+		inputChannels[0] = createRemoteInputChannel(inputGate, client, networkBufferPool);
+		inputChannels[1] = createRemoteInputChannel(inputGate, client, networkBufferPool);
+		try {
+			inputGate.setInputChannels(inputChannels);
+			final BufferPool bufferPool = networkBufferPool.createBufferPool(6, 6);
+			inputGate.setBufferPool(bufferPool);
+			inputGate.assignExclusiveSegments();
+
+			inputChannels[0].requestSubpartition(0);
+			inputChannels[1].requestSubpartition(0);
+			assertThat(channel.readOutbound(), instanceOf(PartitionRequest.class));
+			assertThat(channel.readOutbound(), instanceOf(PartitionRequest.class));
+
+			ByteBuf channelBlockingBuffer = blockChannel(channel);
+
+			for (RemoteInputChannel inputChannel : inputChannels) {
+				handler.channelRead(mock(ChannelHandlerContext.class), createBufferResponse(
+					TestBufferFactory.createBuffer(32),
+					0,
+					inputChannel.getInputChannelId(),
+					1,
+					allocator));
+			}
+			channel.runPendingTasks();
+			assertNull(channel.readOutbound());
+
+			// Flush the buffer to make the channel writable again
+			channel.flush();
+			assertSame(channelBlockingBuffer, channel.readOutbound());
+
+			Object readFromOutbound = channel.readOutbound();
+			assertThat(readFromOutbound, instanceOf(BatchedAddCredit.class));
+			List<AddCredit> credits = ((BatchedAddCredit) readFromOutbound).credits;
+			assertEquals(2, credits.size());
+			for (int i = 0; i < inputChannels.length; i++) {
+				assertEquals(inputChannels[i].getInputChannelId(), credits.get(i).receiverId);
+				assertEquals(2, credits.get(i).credit);
+				assertEquals(0, inputChannels[i].getUnannouncedCredit());
+			}
+
+			assertNull(channel.readOutbound());
+		} finally {
+			releaseResource(inputGate, networkBufferPool);
+			channel.close();
+		}
+	}
+
 	/**
 	 * Verifies that {@link RemoteInputChannel} is enqueued in the pipeline, but {@link AddCredit}
 	 * message is not sent actually when this input channel is released.
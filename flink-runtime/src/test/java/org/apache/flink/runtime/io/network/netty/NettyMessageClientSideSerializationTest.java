@@ -24,20 +24,31 @@ import org.apache.flink.runtime.io.network.TestingPartitionRequestClient;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
 import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
+import org.apache.flink.runtime.io.network.buffer.FileRegionBuffer;
 import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
 import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.io.network.partition.consumer.InputChannelID;
 import org.apache.flink.runtime.io.network.partition.consumer.RemoteInputChannel;
 import org.apache.flink.runtime.io.network.partition.consumer.SingleInputGate;
+import org.apache.flink.shaded.netty4.io.netty.buffer.ByteBuf;
+import org.apache.flink.shaded.netty4.io.netty.buffer.Unpooled;
 import org.apache.flink.shaded.netty4.io.netty.channel.embedded.EmbeddedChannel;
 import org.apache.flink.util.TestLogger;
 
 import org.junit.After;
 import org.junit.Before;
+import org.junit.ClassRule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Random;
 
 import static org.apache.flink.runtime.io.network.netty.NettyMessage.BufferResponse;
@@ -49,8 +60,10 @@ import static org.apache.flink.runtime.io.network.netty.NettyTestUtil.verifyErro
 import static org.apache.flink.runtime.io.network.partition.InputChannelTestUtils.createRemoteInputChannel;
 import static org.apache.flink.runtime.io.network.partition.InputChannelTestUtils.createSingleInputGate;
 import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.hamcrest.Matchers.instanceOf;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -59,6 +72,9 @@ import static org.junit.Assert.assertTrue;
  */
 public class NettyMessageClientSideSerializationTest extends TestLogger {
 
+	@ClassRule
+	public static final TemporaryFolder TEMP_FOLDER = new TemporaryFolder();
+
 	private static final int BUFFER_SIZE = 1024;
 
 	private static final BufferCompressor COMPRESSOR = new BufferCompressor(BUFFER_SIZE, "LZ4");
@@ -145,6 +161,51 @@ public class NettyMessageClientSideSerializationTest extends TestLogger {
 		testBufferResponse(false, true);
 	}
 
+	@Test
+	public void testFileRegionBufferResponse() throws Exception {
+		final ByteBuffer data = ByteBuffer.allocate(BUFFER_SIZE);
+		for (int i = 0; i < BUFFER_SIZE; i += 8) {
+			data.putLong(i);
+		}
+		data.flip();
+
+		final Path file = TEMP_FOLDER.newFile().toPath();
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			fileChannel.write(data);
+
+			final FileRegionBuffer fileRegionBuffer = new FileRegionBuffer(
+				fileChannel, 0, BUFFER_SIZE, Buffer.DataType.DATA_BUFFER, false, null);
+			final BufferResponse expected = new BufferResponse(
+				fileRegionBuffer,
+				random.nextInt(),
+				inputChannelId,
+				random.nextInt());
+
+			// the header and the file region are written separately, so Netty can transfer the region zero-copy
+			channel.writeOutbound(expected);
+			final ByteBuf header = channel.readOutbound();
+			final Object region = channel.readOutbound();
+			assertThat(region, instanceOf(FileRegionBuffer.class));
+
+			final ByteArrayOutputStream body = new ByteArrayOutputStream();
+			fileRegionBuffer.transferTo(Channels.newChannel(body), 0);
+			fileRegionBuffer.recycleBuffer();
+			assertTrue(fileRegionBuffer.isRecycled());
+
+			assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(header, Unpooled.wrappedBuffer(body.toByteArray()))));
+			final BufferResponse actual = channel.readInbound();
+
+			verifyBufferResponseHeader(expected, actual);
+			final Buffer decodedBuffer = actual.getBuffer();
+			assertNotNull(decodedBuffer);
+			assertEquals(BUFFER_SIZE, decodedBuffer.readableBytes());
+			for (int i = 0; i < BUFFER_SIZE; i += 8) {
+				assertEquals(i, decodedBuffer.asByteBuf().readLong());
+			}
+			actual.releaseBuffer();
+		}
+	}
+
 	private void testErrorResponse(ErrorResponse expect) {
 		ErrorResponse actual = encodeAndDecode(expect, channel);
 		verifyErrorResponse(expect, actual);
@@ -27,6 +27,8 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
 import static org.apache.flink.runtime.io.network.netty.NettyTestUtil.encodeAndDecode;
@@ -120,4 +122,51 @@ public class NettyMessageServerSideSerializationTest extends TestLogger {
 
 		assertEquals(expected.receiverId, actual.receiverId);
 	}
+
+	@Test
+	public void testNewBufferSize() {
+		NettyMessage.NewBufferSize expected = new NettyMessage.NewBufferSize(
+			random.nextInt(Integer.MAX_VALUE) + 1,
+			new InputChannelID());
+		NettyMessage.NewBufferSize actual = encodeAndDecode(expected, channel);
+
+		assertEquals(expected.bufferSize, actual.bufferSize);
+		assertEquals(expected.receiverId, actual.receiverId);
+	}
+
+	@Test
+	public void testBatchedPartitionRequest() {
+		List<NettyMessage.PartitionRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			requests.add(new NettyMessage.PartitionRequest(
+				new ResultPartitionID(),
+				random.nextInt(),
+				new InputChannelID(),
+				random.nextInt()));
+		}
+		NettyMessage.BatchedPartitionRequest actual = encodeAndDecode(new NettyMessage.BatchedPartitionRequest(requests), channel);
+
+		assertEquals(requests.size(), actual.requests.size());
+		for (int i = 0; i < requests.size(); i++) {
+			assertEquals(requests.get(i).partitionId, actual.requests.get(i).partitionId);
+			assertEquals(requests.get(i).queueIndex, actual.requests.get(i).queueIndex);
+			assertEquals(requests.get(i).receiverId, actual.requests.get(i).receiverId);
+			assertEquals(requests.get(i).credit, actual.requests.get(i).credit);
+		}
+	}
+
+	@Test
+	public void testBatchedAddCredit() {
+		List<NettyMessage.AddCredit> credits = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			credits.add(new NettyMessage.AddCredit(random.nextInt(Integer.MAX_VALUE) + 1, new InputChannelID()));
+		}
+		NettyMessage.BatchedAddCredit actual = encodeAndDecode(new NettyMessage.BatchedAddCredit(credits), channel);
+
+		assertEquals(credits.size(), actual.credits.size());
+		for (int i = 0; i < credits.size(); i++) {
+			assertEquals(credits.get(i).credit, actual.credits.get(i).credit);
+			assertEquals(credits.get(i).receiverId, actual.credits.get(i).receiverId);
+		}
+	}
 }
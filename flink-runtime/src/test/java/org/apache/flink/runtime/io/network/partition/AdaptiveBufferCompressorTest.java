@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
+import org.apache.flink.runtime.io.network.buffer.NetworkBuffer;
+import org.apache.flink.runtime.io.network.util.TestPooledBufferProvider;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link AdaptiveBufferCompressor}.
+ */
+public class AdaptiveBufferCompressorTest extends TestLogger {
+
+	private static final int BUFFER_SIZE = 32 * 1024;
+
+	private final BufferCompressor bufferCompressor = new BufferCompressor(BUFFER_SIZE, "LZ4");
+
+	@Test
+	public void testCompressibleDataIsCompressed() {
+		TestPooledBufferProvider bufferProvider = new TestPooledBufferProvider(1, BUFFER_SIZE);
+		AdaptiveBufferCompressor compressor = new AdaptiveBufferCompressor(bufferCompressor, bufferProvider);
+
+		for (int i = 0; i < 10; i++) {
+			Buffer buffer = createBuffer(false);
+			Buffer compressed = compressor.compress(buffer);
+
+			assertNotSame(buffer, compressed);
+			assertTrue(compressed.isCompressed());
+			assertTrue(buffer.isRecycled());
+			assertTrue(compressor.isActive());
+			compressed.recycleBuffer();
+		}
+		assertEquals(1, bufferProvider.getNumberOfCreatedBuffers());
+	}
+
+	@Test
+	public void testIncompressibleDataIsProbedPeriodically() {
+		TestPooledBufferProvider bufferProvider = new TestPooledBufferProvider(1, BUFFER_SIZE);
+		AdaptiveBufferCompressor compressor = new AdaptiveBufferCompressor(bufferCompressor, bufferProvider);
+
+		Buffer buffer = createBuffer(true);
+		assertSame(buffer, compressor.compress(buffer));
+		assertFalse(compressor.isActive());
+		// the buffer requested for the compression was returned
+		assertEquals(1, bufferProvider.getNumberOfAvailableBuffers());
+
+		for (int i = 1; i < AdaptiveBufferCompressor.PROBE_INTERVAL; i++) {
+			assertSame(buffer, compressor.compress(buffer));
+		}
+		assertFalse(compressor.isActive());
+
+		// the probe finds compressible data and activates the compression again
+		Buffer compressed = compressor.compress(createBuffer(false));
+		assertTrue(compressed.isCompressed());
+		assertTrue(compressor.isActive());
+	}
+
+	@Test
+	public void testNoCompressionWithoutAvailableBuffer() {
+		TestPooledBufferProvider bufferProvider = new TestPooledBufferProvider(1, BUFFER_SIZE);
+		AdaptiveBufferCompressor compressor = new AdaptiveBufferCompressor(bufferCompressor, bufferProvider);
+
+		Buffer compressed = compressor.compress(createBuffer(false));
+		assertTrue(compressed.isCompressed());
+
+		// the only buffer is still in use
+		Buffer buffer = createBuffer(false);
+		assertSame(buffer, compressor.compress(buffer));
+		assertTrue(compressor.isActive());
+	}
+
+	private static Buffer createBuffer(boolean random) {
+		MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE);
+		if (random) {
+			byte[] bytes = new byte[BUFFER_SIZE];
+			new Random(42).nextBytes(bytes);
+			segment.put(0, bytes);
+		}
+		return new NetworkBuffer(segment, FreeingBufferRecycler.INSTANCE, Buffer.DataType.DATA_BUFFER, BUFFER_SIZE);
+	}
+}
@@ -18,9 +18,14 @@
 
 package org.apache.flink.runtime.io.network.partition;
 
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
 import org.apache.flink.runtime.io.disk.FileChannelManager;
 import org.apache.flink.runtime.io.disk.FileChannelManagerImpl;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils;
+import org.apache.flink.runtime.io.network.buffer.FileRegionBuffer;
+import org.apache.flink.runtime.io.network.buffer.FreeingBufferRecycler;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
 import org.apache.flink.runtime.util.EnvironmentInformation;
 
@@ -28,14 +33,18 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 
 import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.buildSomeBuffer;
 import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.createFilledFinishedBufferConsumer;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -154,16 +163,65 @@ public class FileChannelBoundedDataTest extends BoundedDataTestBase {
 		subpartition.release();
 	}
 
+	@Test
+	public void testZeroCopyReaderReturnsFileRegions() throws Exception {
+		final int numberOfBuffers = 3;
+		try (final BoundedData data = FileChannelBoundedData.create(createTempPath(), BUFFER_SIZE, true)) {
+			for (int i = 0; i < numberOfBuffers; i++) {
+				data.writeBuffer(BufferBuilderTestUtils.buildBufferWithAscendingInts(BUFFER_SIZE, 100 + i, i));
+			}
+			data.finishWrite();
+
+			final MemorySegment segment = MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE);
+			try (BoundedData.Reader reader = data.createReader()) {
+				// the number of regions is not limited by the reader's memory
+				for (int i = 0; i < numberOfBuffers; i++) {
+					final Buffer next = reader.nextBuffer();
+					assertThat(next, instanceOf(FileRegionBuffer.class));
+					assertEquals((100 + i) * 4, next.getSize());
+
+					final Buffer buffer = ((FileRegionBuffer) next).readInto(segment, FreeingBufferRecycler.INSTANCE);
+					assertTrue(next.isRecycled());
+					BufferBuilderTestUtils.validateBufferWithAscendingInts(buffer, 100 + i, i);
+				}
+				assertNull(reader.nextBuffer());
+			}
+		}
+	}
+
+	@Test
+	public void testZeroCopyReaderClosesFileOnlyAfterAllRegionsReleased() throws Exception {
+		try (final BoundedData data = FileChannelBoundedData.create(createTempPath(), BUFFER_SIZE, true)) {
+			writeBuffers(data, 1);
+
+			final BoundedData.Reader reader = data.createReader();
+			final FileRegionBuffer region = (FileRegionBuffer) reader.nextBuffer();
+			assertNotNull(region);
+			reader.close();
+
+			// the region can still be read after the reader was closed
+			final Buffer buffer = region.readInto(
+				MemorySegmentFactory.allocateUnpooledSegment(BUFFER_SIZE), FreeingBufferRecycler.INSTANCE);
+			assertEquals(BUFFER_SIZE, buffer.getSize());
+			assertTrue(region.isRecycled());
+		}
+	}
+
 	private static ResultSubpartition createFileBoundedBlockingSubpartition() {
 		final ResultPartition resultPartition = new ResultPartitionBuilder()
 			.setNetworkBufferSize(BUFFER_SIZE)
 			.setResultPartitionType(ResultPartitionType.BLOCKING)
 			.setBoundedBlockingSubpartitionType(BoundedBlockingSubpartitionType.FILE)
 			.setFileChannelManager(fileChannelManager)
+			.setSSLEnabled(true)
 			.build();
 		return resultPartition.subpartitions[0];
 	}
 
+	private static Path createTempPath() throws IOException {
+		return new File(TMP_FOLDER.newFolder(), "zerocopydata").toPath();
+	}
+
 	private static void writeBuffers(BoundedData data, int numberOfBuffers) throws IOException {
 		for (int i = 0; i < numberOfBuffers; i++) {
 			data.writeBuffer(buildSomeBuffer(BUFFER_SIZE));
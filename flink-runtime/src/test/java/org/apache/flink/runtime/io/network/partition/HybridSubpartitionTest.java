@@ -0,0 +1,291 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.disk.FileChannelManager;
+import org.apache.flink.runtime.io.disk.FileChannelManagerImpl;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
+import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+
+import static org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils.createBufferBuilder;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link HybridSubpartition}.
+ */
+public class HybridSubpartitionTest {
+
+	private static final int BUFFER_SIZE = 1024;
+
+	@ClassRule
+	public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
+	private FileChannelManager fileChannelManager;
+
+	@Before
+	public void setup() throws Exception {
+		fileChannelManager = new FileChannelManagerImpl(new String[] {TMP_FOLDER.newFolder().getPath()}, "testing");
+	}
+
+	@After
+	public void shutdown() throws Exception {
+		fileChannelManager.close();
+	}
+
+	@Test
+	public void testPartitionTypeCreatesHybridSubpartitions() {
+		final ResultPartition partition = PartitionTestUtils.createPartition(ResultPartitionType.HYBRID, fileChannelManager);
+
+		assertTrue(partition.getAllPartitions()[0] instanceof HybridSubpartition);
+		assertTrue(partition instanceof ReleaseOnConsumptionResultPartition);
+	}
+
+	@Test
+	public void testSpillsWithoutReader() throws Exception {
+		final HybridSubpartition subpartition = createSubpartition(false);
+
+		for (int i = 0; i < 5; i++) {
+			subpartition.add(createFinishedBufferConsumer(i));
+		}
+		subpartition.finish();
+		assertEquals(6, subpartition.getTotalNumberOfSpilledBuffers());
+		assertEquals(5, subpartition.getBuffersInBacklog());
+
+		final CountingAvailabilityListener listener = new CountingAvailabilityListener();
+		final ResultSubpartitionView view = subpartition.createReadView(listener);
+		assertEquals(1, listener.numNotifications);
+
+		readBuffersAndEndOfPartition(view, 0, 5, false);
+		assertEquals(0, subpartition.getBuffersInBacklog());
+
+		subpartition.release();
+		assertEquals(0, spillFiles().length);
+	}
+
+	@Test
+	public void testKeepsBuffersInMemoryForFastReader() throws Exception {
+		final HybridSubpartition subpartition = createSubpartition(false);
+		final ResultSubpartitionView view = subpartition.createReadView(new NoOpBufferAvailablityListener());
+
+		for (int i = 0; i < 5; i++) {
+			subpartition.add(createFinishedBufferConsumer(i));
+			readBuffers(view, i, 1, false);
+		}
+		subpartition.finish();
+		readBuffersAndEndOfPartition(view, 5, 0, false);
+
+		assertEquals(0, subpartition.getTotalNumberOfSpilledBuffers());
+		assertEquals(0, spillFiles().length);
+		subpartition.release();
+	}
+
+	@Test
+	public void testSpillsWhenReaderFallsBehind() throws Exception {
+		final HybridSubpartition subpartition = createSubpartition(false);
+		final ResultSubpartitionView view = subpartition.createReadView(new NoOpBufferAvailablityListener());
+
+		// the partition keeps only one finished buffer in memory for the reader, not counting the
+		// last buffer, which may still be written to
+		subpartition.add(createFinishedBufferConsumer(0));
+		subpartition.add(createFinishedBufferConsumer(1));
+		assertEquals(0, subpartition.getTotalNumberOfSpilledBuffers());
+		subpartition.add(createFinishedBufferConsumer(2));
+		assertEquals(2, subpartition.getTotalNumberOfSpilledBuffers());
+
+		// the reader catches up on the spilled buffers, while new buffers stay in memory
+		readBuffers(view, 0, 1, false);
+		subpartition.add(createFinishedBufferConsumer(3));
+		assertEquals(2, subpartition.getTotalNumberOfSpilledBuffers());
+
+		subpartition.finish();
+
+		readBuffersAndEndOfPartition(view, 1, 3, false);
+
+		subpartition.release();
+	}
+
+	@Test
+	public void testSpillsWhenBufferPoolIsExhaustedByStalledReader() throws Exception {
+		final int numSubpartitions = 2;
+		final int numBuffers = 20;
+		// the pool has the minimum size, and the subpartitions would keep many more buffers in memory
+		final NetworkBufferPool networkBufferPool = new NetworkBufferPool(numSubpartitions + 1, BUFFER_SIZE, 1);
+		final ResultPartition partition = new ResultPartitionBuilder()
+			.setResultPartitionType(ResultPartitionType.HYBRID)
+			.setNumberOfSubpartitions(numSubpartitions)
+			.setNetworkBufferPool(networkBufferPool)
+			.setNetworkBufferSize(BUFFER_SIZE)
+			.setNetworkBuffersPerChannel(numBuffers)
+			.setFileChannelManager(fileChannelManager)
+			.build();
+		partition.setup();
+
+		final ResultSubpartitionView[] views = new ResultSubpartitionView[numSubpartitions];
+		for (int i = 0; i < numSubpartitions; i++) {
+			views[i] = partition.getAllPartitions()[i].createReadView(new NoOpBufferAvailablityListener());
+		}
+
+		// the readers do not consume anything, the producer must not wait for them
+		for (int i = 0; i < numBuffers; i++) {
+			for (int subpartition = 0; subpartition < numSubpartitions; subpartition++) {
+				final BufferBuilder bufferBuilder = partition.getBufferBuilder(subpartition);
+				final BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer();
+				fillAndFinish(bufferBuilder, i);
+				partition.addBufferConsumer(bufferConsumer, subpartition, false);
+			}
+		}
+		partition.finish();
+
+		for (int i = 0; i < numSubpartitions; i++) {
+			final HybridSubpartition subpartition = (HybridSubpartition) partition.getAllPartitions()[i];
+			assertThat(subpartition.getTotalNumberOfSpilledBuffers(), greaterThan(0L));
+			readBuffersAndEndOfPartition(views[i], 0, numBuffers, false);
+		}
+
+		partition.release();
+		networkBufferPool.destroyAllBufferPools();
+		networkBufferPool.destroy();
+	}
+
+	@Test
+	public void testSpilledBuffersAreCompressed() throws Exception {
+		final HybridSubpartition subpartition = createSubpartition(true);
+
+		for (int i = 0; i < 3; i++) {
+			subpartition.add(createFinishedBufferConsumer(i));
+		}
+		subpartition.finish();
+
+		final ResultSubpartitionView view = subpartition.createReadView(new NoOpBufferAvailablityListener());
+		readBuffersAndEndOfPartition(view, 0, 3, true);
+
+		subpartition.release();
+	}
+
+	@Test
+	public void testReleaseDeletesSpillFile() throws Exception {
+		final HybridSubpartition subpartition = createSubpartition(false);
+		subpartition.add(createFinishedBufferConsumer(0));
+		subpartition.add(createFinishedBufferConsumer(1));
+		assertEquals(1, spillFiles().length);
+
+		subpartition.release();
+
+		assertTrue(subpartition.isReleased());
+		assertFalse(subpartition.add(createFinishedBufferConsumer(2)));
+		assertEquals(0, spillFiles().length);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private HybridSubpartition createSubpartition(boolean compressionEnabled) {
+		final ResultPartition partition = PartitionTestUtils.createPartition(
+			ResultPartitionType.HYBRID, fileChannelManager, compressionEnabled, BUFFER_SIZE);
+		return (HybridSubpartition) partition.getAllPartitions()[0];
+	}
+
+	private File[] spillFiles() {
+		final File[] files = fileChannelManager.getPaths()[0].listFiles();
+		assertNotNull(files);
+		return files;
+	}
+
+	private static BufferConsumer createFinishedBufferConsumer(int value) {
+		final BufferBuilder bufferBuilder = createBufferBuilder(BUFFER_SIZE);
+		final BufferConsumer bufferConsumer = bufferBuilder.createBufferConsumer();
+		fillAndFinish(bufferBuilder, value);
+		return bufferConsumer;
+	}
+
+	private static void fillAndFinish(BufferBuilder bufferBuilder, int value) {
+		final ByteBuffer data = ByteBuffer.allocate(BUFFER_SIZE);
+		while (data.hasRemaining()) {
+			data.putInt(value);
+		}
+		data.flip();
+		bufferBuilder.appendAndCommit(data);
+		bufferBuilder.finish();
+	}
+
+	private static void readBuffers(
+			ResultSubpartitionView view,
+			int firstValue,
+			int numBuffers,
+			boolean compressed) throws Exception {
+
+		final BufferDecompressor decompressor = new BufferDecompressor(BUFFER_SIZE, "LZ4");
+		for (int i = firstValue; i < firstValue + numBuffers; i++) {
+			final BufferAndBacklog next = view.getNextBuffer();
+			assertNotNull(next);
+			assertTrue(next.buffer().isBuffer());
+
+			Buffer buffer = next.buffer();
+			if (buffer.isCompressed()) {
+				buffer = decompressor.decompressToIntermediateBuffer(buffer);
+			}
+			else {
+				assertFalse(compressed);
+			}
+			assertEquals(BUFFER_SIZE, buffer.readableBytes());
+			assertEquals(i, buffer.getNioBufferReadable().getInt());
+
+			if (buffer != next.buffer()) {
+				buffer.recycleBuffer();
+			}
+			next.buffer().recycleBuffer();
+		}
+	}
+
+	private static void readBuffersAndEndOfPartition(
+			ResultSubpartitionView view,
+			int firstValue,
+			int numBuffers,
+			boolean compressed) throws Exception {
+
+		readBuffers(view, firstValue, numBuffers, compressed);
+
+		final BufferAndBacklog endOfPartition = view.getNextBuffer();
+		assertNotNull(endOfPartition);
+		assertFalse(endOfPartition.buffer().isBuffer());
+		assertFalse(endOfPartition.isDataAvailable());
+		assertThat(endOfPartition.buffer().readableBytes(), greaterThan(0));
+		endOfPartition.buffer().recycleBuffer();
+
+		assertNull(view.getNextBuffer());
+	}
+}
@@ -346,6 +346,7 @@ public class InputGateFairnessTest {
 				numberOfInputChannels,
 				SingleInputGateBuilder.NO_OP_PRODUCER_CHECKER,
 				STUB_BUFFER_POOL_FACTORY,
+				null,
 				null);
 
 			try {
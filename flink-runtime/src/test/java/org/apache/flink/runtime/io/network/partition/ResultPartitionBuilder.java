@@ -67,8 +67,16 @@ public class ResultPartitionBuilder {
 
 	private boolean blockingShuffleCompressionEnabled = false;
 
+	private boolean pipelinedShuffleCompressionEnabled = false;
+
 	private String compressionCodec = "LZ4";
 
+	private int sortShuffleMinParallelism = Integer.MAX_VALUE;
+
+	private int sortShuffleBufferSize = 8 * 1024 * 1024;
+
+	private boolean sslEnabled = false;
+
 	public ResultPartitionBuilder setResultPartitionIndex(int partitionIndex) {
 		this.partitionIndex = partitionIndex;
 		return this;
@@ -147,11 +155,31 @@ public class ResultPartitionBuilder {
 		return this;
 	}
 
+	public ResultPartitionBuilder setPipelinedShuffleCompressionEnabled(boolean pipelinedShuffleCompressionEnabled) {
+		this.pipelinedShuffleCompressionEnabled = pipelinedShuffleCompressionEnabled;
+		return this;
+	}
+
 	public ResultPartitionBuilder setCompressionCodec(String compressionCodec) {
 		this.compressionCodec = compressionCodec;
 		return this;
 	}
 
+	public ResultPartitionBuilder setSortShuffleMinParallelism(int sortShuffleMinParallelism) {
+		this.sortShuffleMinParallelism = sortShuffleMinParallelism;
+		return this;
+	}
+
+	public ResultPartitionBuilder setSortShuffleBufferSize(int sortShuffleBufferSize) {
+		this.sortShuffleBufferSize = sortShuffleBufferSize;
+		return this;
+	}
+
+	public ResultPartitionBuilder setSSLEnabled(boolean sslEnabled) {
+		this.sslEnabled = sslEnabled;
+		return this;
+	}
+
 	ResultPartitionBuilder setBoundedBlockingSubpartitionType(
 			@SuppressWarnings("SameParameterValue") BoundedBlockingSubpartitionType blockingSubpartitionType) {
 		this.blockingSubpartitionType = blockingSubpartitionType;
@@ -169,8 +197,12 @@ public class ResultPartitionBuilder {
 			networkBufferSize,
 			releasedOnConsumption,
 			blockingShuffleCompressionEnabled,
+			pipelinedShuffleCompressionEnabled,
 			compressionCodec,
-			maxBuffersPerChannel);
+			maxBuffersPerChannel,
+			sortShuffleMinParallelism,
+			sortShuffleBufferSize,
+			sslEnabled);
 
 		FunctionWithException<BufferPoolOwner, BufferPool, IOException> factory = bufferPoolFactory.orElseGet(() ->
 			resultPartitionFactory.createBufferPoolFactory(numberOfSubpartitions, partitionType));
@@ -63,6 +63,19 @@ public class ResultPartitionFactoryTest extends TestLogger {
 		Arrays.stream(resultPartition.subpartitions).forEach(sp -> assertThat(sp, instanceOf(BoundedBlockingSubpartition.class)));
 	}
 
+	@Test
+	public void testSortMergeBlockingSubpartitionsCreated() throws Exception {
+		final ResultPartition resultPartition = createResultPartition(false, ResultPartitionType.BLOCKING, 1);
+		Arrays.stream(resultPartition.subpartitions).forEach(sp -> assertThat(sp, instanceOf(BoundedBlockingSubpartition.class)));
+		resultPartition.release();
+	}
+
+	@Test
+	public void testPipelinedSubpartitionsCreatedIgnoringSortShuffle() {
+		final ResultPartition resultPartition = createResultPartition(false, ResultPartitionType.PIPELINED, 1);
+		Arrays.stream(resultPartition.subpartitions).forEach(sp -> assertThat(sp, instanceOf(PipelinedSubpartition.class)));
+	}
+
 	@Test
 	public void testPipelinedSubpartitionsCreated() {
 		final ResultPartition resultPartition = createResultPartition(false, ResultPartitionType.PIPELINED);
@@ -90,6 +103,13 @@ public class ResultPartitionFactoryTest extends TestLogger {
 	private static ResultPartition createResultPartition(
 			boolean releasePartitionOnConsumption,
 			ResultPartitionType partitionType) {
+		return createResultPartition(releasePartitionOnConsumption, partitionType, Integer.MAX_VALUE);
+	}
+
+	private static ResultPartition createResultPartition(
+			boolean releasePartitionOnConsumption,
+			ResultPartitionType partitionType,
+			int sortShuffleMinParallelism) {
 		ResultPartitionFactory factory = new ResultPartitionFactory(
 			new ResultPartitionManager(),
 			fileChannelManager,
@@ -100,8 +120,12 @@ public class ResultPartitionFactoryTest extends TestLogger {
 			SEGMENT_SIZE,
 			releasePartitionOnConsumption,
 			false,
+			false,
 			"LZ4",
-			Integer.MAX_VALUE);
+			Integer.MAX_VALUE,
+			sortShuffleMinParallelism,
+			8 * 1024 * 1024,
+			false);
 
 		final ResultPartitionDeploymentDescriptor descriptor = new ResultPartitionDeploymentDescriptor(
 			PartitionDescriptorBuilder
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition;
+
+import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils;
+import org.apache.flink.runtime.io.network.buffer.BufferPool;
+import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link SortMergeBoundedData} and the underlying {@link PartitionedFile}.
+ */
+public class SortMergeBoundedDataTest extends BoundedDataTestBase {
+
+	/** The size of the network buffers of the sort buffer, the entries of the sort buffer span several of them. */
+	private static final int NETWORK_BUFFER_SIZE = 4096;
+
+	private NetworkBufferPool networkBufferPool;
+
+	@Before
+	public void setup() {
+		networkBufferPool = new NetworkBufferPool(2048, NETWORK_BUFFER_SIZE, 1);
+	}
+
+	@After
+	public void tearDown() {
+		networkBufferPool.destroyAllBufferPools();
+		assertEquals(networkBufferPool.getTotalNumberOfMemorySegments(), networkBufferPool.getNumberOfAvailableMemorySegments());
+		networkBufferPool.destroy();
+	}
+
+	@Override
+	protected boolean isRegionBased() {
+		return true;
+	}
+
+	@Override
+	protected BoundedData createBoundedData(Path tempFilePath) throws IOException {
+		return createBoundedDataWithRegion(tempFilePath, 4 * BUFFER_SIZE);
+	}
+
+	@Override
+	protected BoundedData createBoundedDataWithRegion(Path tempFilePath, int regionSize) throws IOException {
+		final PartitionedFileWriter fileWriter = createFileWriter(tempFilePath, 1, regionSize / NETWORK_BUFFER_SIZE);
+		return new SortMergeBoundedData(fileWriter, 0, BUFFER_SIZE);
+	}
+
+	@Test
+	public void testWriteAndReadInterleavedSubpartitions() throws Exception {
+		final int numSubpartitions = 10;
+		final int numBuffersPerSubpartition = 100;
+		final int bufferSize = 1024;
+
+		final PartitionedFileWriter fileWriter = createFileWriter(
+			createTempFile().toPath(), numSubpartitions, 16 * bufferSize / NETWORK_BUFFER_SIZE);
+		final SortMergeBoundedData[] data = new SortMergeBoundedData[numSubpartitions];
+		for (int i = 0; i < numSubpartitions; i++) {
+			data[i] = new SortMergeBoundedData(fileWriter, i, bufferSize);
+		}
+
+		// write the buffers round robin, the value of every int encodes the subpartition
+		for (int round = 0; round < numBuffersPerSubpartition; round++) {
+			for (int i = 0; i < numSubpartitions; i++) {
+				final int numInts = 1 + (round + i) % (bufferSize / 4);
+				data[i].writeBuffer(BufferBuilderTestUtils.buildBufferWithAscendingInts(
+					bufferSize, numInts, i * 1_000_000 + round));
+			}
+		}
+
+		for (int i = 0; i < numSubpartitions; i++) {
+			assertNull(fileWriter.getPartitionedFile());
+			data[i].finishWrite();
+		}
+
+		final PartitionedFile partitionedFile = fileWriter.getPartitionedFile();
+		assertNotNull(partitionedFile);
+		assertTrue(partitionedFile.getNumRegions() > 1);
+
+		for (int i = 0; i < numSubpartitions; i++) {
+			final BoundedData.Reader reader = data[i].createReader();
+			for (int round = 0; round < numBuffersPerSubpartition; round++) {
+				final Buffer buffer = reader.nextBuffer();
+				assertNotNull(buffer);
+				BufferBuilderTestUtils.validateBufferWithAscendingInts(
+					buffer, 1 + (round + i) % (bufferSize / 4), i * 1_000_000 + round);
+				buffer.recycleBuffer();
+			}
+			assertNull(reader.nextBuffer());
+			reader.close();
+		}
+
+		for (SortMergeBoundedData subpartitionData : data) {
+			subpartitionData.close();
+		}
+	}
+
+	@Test
+	public void testDeleteFilesOnlyAfterAllSubpartitionsClosed() throws Exception {
+		final Path dataFilePath = createTempFile().toPath();
+		final PartitionedFileWriter fileWriter = createFileWriter(dataFilePath, 2, 2);
+		final SortMergeBoundedData data1 = new SortMergeBoundedData(fileWriter, 0, BUFFER_SIZE);
+		final SortMergeBoundedData data2 = new SortMergeBoundedData(fileWriter, 1, BUFFER_SIZE);
+
+		data1.writeBuffer(BufferBuilderTestUtils.buildSomeBuffer());
+		data2.writeBuffer(BufferBuilderTestUtils.buildSomeBuffer());
+		data1.finishWrite();
+		data2.finishWrite();
+
+		final PartitionedFile partitionedFile = fileWriter.getPartitionedFile();
+		assertNotNull(partitionedFile);
+
+		data1.close();
+		assertTrue(Files.exists(partitionedFile.getDataFilePath()));
+		assertTrue(Files.exists(partitionedFile.getIndexFilePath()));
+
+		data2.close();
+		assertFalse(Files.exists(partitionedFile.getDataFilePath()));
+		assertFalse(Files.exists(partitionedFile.getIndexFilePath()));
+	}
+
+	@Test
+	public void testEmptySubpartitionsHaveNoData() throws Exception {
+		final PartitionedFileWriter fileWriter = createFileWriter(createTempFile().toPath(), 3, 2);
+		final SortMergeBoundedData[] data = new SortMergeBoundedData[3];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = new SortMergeBoundedData(fileWriter, i, BUFFER_SIZE);
+		}
+
+		data[1].writeBuffer(BufferBuilderTestUtils.buildSomeBuffer(100));
+		for (SortMergeBoundedData subpartitionData : data) {
+			subpartitionData.finishWrite();
+		}
+
+		assertEquals(0, data[0].getSize());
+		assertEquals(100 + BufferReaderWriterUtil.HEADER_LENGTH, data[1].getSize());
+
+		try (BoundedData.Reader reader = data[0].createReader()) {
+			assertNull(reader.nextBuffer());
+		}
+		try (BoundedData.Reader reader = data[1].createReader()) {
+			final Buffer buffer = reader.nextBuffer();
+			assertNotNull(buffer);
+			assertEquals(100, buffer.getSize());
+			buffer.recycleBuffer();
+			assertNull(reader.nextBuffer());
+		}
+
+		for (SortMergeBoundedData subpartitionData : data) {
+			subpartitionData.close();
+		}
+	}
+
+	@Test
+	public void testSortBufferLeavesBuffersForProducer() throws Exception {
+		final int numSubpartitions = 4;
+		final int numSortBuffers = 3;
+		final BufferPool bufferPool = networkBufferPool.createBufferPool(
+			numSubpartitions + 1 + numSortBuffers, numSubpartitions + 1 + numSortBuffers);
+		final PartitionedFileWriter fileWriter = PartitionedFileWriter.create(
+			createTempFile().toPath(), numSubpartitions, 100, () -> bufferPool);
+		final SortMergeBoundedData[] data = new SortMergeBoundedData[numSubpartitions];
+		for (int i = 0; i < numSubpartitions; i++) {
+			data[i] = new SortMergeBoundedData(fileWriter, i, NETWORK_BUFFER_SIZE);
+		}
+
+		for (int round = 0; round < 50; round++) {
+			for (int i = 0; i < numSubpartitions; i++) {
+				data[i].writeBuffer(BufferBuilderTestUtils.buildBufferWithAscendingInts(
+					NETWORK_BUFFER_SIZE, 1 + round % 100, i * 1_000_000 + round));
+				// the sort buffer must leave one buffer per subpartition and one more to the producer
+				assertTrue(bufferPool.bestEffortGetNumOfUsedBuffers() <= numSortBuffers);
+			}
+		}
+		assertEquals(numSortBuffers, bufferPool.bestEffortGetNumOfUsedBuffers());
+
+		for (SortMergeBoundedData subpartitionData : data) {
+			subpartitionData.finishWrite();
+		}
+		assertEquals(0, bufferPool.bestEffortGetNumOfUsedBuffers());
+
+		for (int i = 0; i < numSubpartitions; i++) {
+			try (BoundedData.Reader reader = data[i].createReader()) {
+				for (int round = 0; round < 50; round++) {
+					final Buffer buffer = reader.nextBuffer();
+					assertNotNull(buffer);
+					BufferBuilderTestUtils.validateBufferWithAscendingInts(buffer, 1 + round % 100, i * 1_000_000 + round);
+					buffer.recycleBuffer();
+				}
+				assertNull(reader.nextBuffer());
+			}
+			data[i].close();
+		}
+	}
+
+	@Test
+	public void testWriteWithoutAvailableSortBuffers() throws Exception {
+		final BufferPool bufferPool = networkBufferPool.createBufferPool(4, 4);
+		final PartitionedFileWriter fileWriter = PartitionedFileWriter.create(
+			createTempFile().toPath(), 1, 2, () -> bufferPool);
+		final SortMergeBoundedData data = new SortMergeBoundedData(fileWriter, 0, NETWORK_BUFFER_SIZE);
+
+		// the producer holds all buffers of the pool, so every buffer is written as a region of its own
+		final List<Buffer> producerBuffers = new ArrayList<>();
+		Buffer producerBuffer;
+		while ((producerBuffer = bufferPool.requestBuffer()) != null) {
+			producerBuffers.add(producerBuffer);
+		}
+
+		data.writeBuffer(BufferBuilderTestUtils.buildSomeBuffer(100));
+		data.writeBuffer(BufferBuilderTestUtils.buildSomeBuffer(200));
+		data.finishWrite();
+
+		assertEquals(2, fileWriter.getPartitionedFile().getNumRegions());
+		try (BoundedData.Reader reader = data.createReader()) {
+			assertEquals(100, reader.nextBuffer().getSize());
+			assertEquals(200, reader.nextBuffer().getSize());
+			assertNull(reader.nextBuffer());
+		}
+
+		producerBuffers.forEach(Buffer::recycleBuffer);
+		data.close();
+	}
+
+	private PartitionedFileWriter createFileWriter(Path dataFilePath, int numSubpartitions, int numSortBuffers) throws IOException {
+		final BufferPool bufferPool = networkBufferPool.createBufferPool(
+			numSubpartitions + 1 + numSortBuffers, Integer.MAX_VALUE);
+		return PartitionedFileWriter.create(dataFilePath, numSubpartitions, numSortBuffers, () -> bufferPool);
+	}
+
+	private static File createTempFile() throws IOException {
+		return new File(TMP_FOLDER.newFolder(), "partitioned-data");
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.io.network.partition.consumer;
+
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.MemorySize;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
+import org.apache.flink.runtime.util.clock.ManualClock;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.OptionalInt;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link BufferDebloater}.
+ */
+public class BufferDebloaterTest extends TestLogger {
+
+	private static final int MAX_BUFFER_SIZE = 32 * 1024;
+
+	private static final int MIN_BUFFER_SIZE = 1024;
+
+	private final ManualClock clock = new ManualClock();
+
+	@Test
+	public void testBufferSizeFollowsThroughput() {
+		BufferDebloater debloater = createDebloater();
+
+		// 1 MB/s allows 1 MB in flight within the 1 s target
+		consume(debloater, 1024 * 1024, 1000);
+
+		assertTrue(debloater.shouldRecalculate());
+		assertEquals(OptionalInt.of(8 * 1024), debloater.recalculateBufferSize(128));
+		assertEquals(8 * 1024, debloater.getBufferSize());
+		assertEquals(1024 * 1024, debloater.getThroughput());
+		assertEquals(Integer.MAX_VALUE, debloater.getDesiredNumberOfBuffers());
+		assertFalse(debloater.shouldRecalculate());
+	}
+
+	@Test
+	public void testSmallChangesAreNotAnnounced() {
+		BufferDebloater debloater = createDebloater();
+
+		consume(debloater, 1024 * 1024, 1000);
+		assertEquals(OptionalInt.of(8 * 1024), debloater.recalculateBufferSize(128));
+
+		// 10% less buffers in use are below the threshold of 25%
+		consume(debloater, 1024 * 1024, 1000);
+		assertEquals(OptionalInt.empty(), debloater.recalculateBufferSize(116));
+		assertEquals(8 * 1024, debloater.getBufferSize());
+	}
+
+	@Test
+	public void testBufferSizeIsBounded() {
+		BufferDebloater debloater = createDebloater();
+
+		consume(debloater, 1024 * 1024, 1000);
+		assertEquals(OptionalInt.of(MIN_BUFFER_SIZE), debloater.recalculateBufferSize(10_000));
+		// even buffers of minimum size hold too much data, so the number of buffers is limited
+		assertEquals(1024, debloater.getDesiredNumberOfBuffers());
+
+		consume(debloater, 100 * 1024 * 1024, 1000);
+		assertEquals(OptionalInt.of(MAX_BUFFER_SIZE), debloater.recalculateBufferSize(10));
+		assertEquals(Integer.MAX_VALUE, debloater.getDesiredNumberOfBuffers());
+	}
+
+	@Test
+	public void testIdleTimeIsExcluded() {
+		BufferDebloater debloater = createDebloater();
+
+		debloater.markIdle();
+		clock.advanceTime(900, TimeUnit.MILLISECONDS);
+		consume(debloater, 1024 * 1024, 1000);
+
+		assertEquals(OptionalInt.of(8 * 1024), debloater.recalculateBufferSize(128));
+		assertEquals(1024 * 1024, debloater.getThroughput());
+	}
+
+	@Test
+	public void testIdleGateKeepsBufferSize() {
+		BufferDebloater debloater = createDebloater();
+
+		debloater.markIdle();
+		clock.advanceTime(1, TimeUnit.SECONDS);
+
+		assertEquals(OptionalInt.empty(), debloater.recalculateBufferSize(128));
+		assertEquals(MAX_BUFFER_SIZE, debloater.getBufferSize());
+		assertEquals(-1, debloater.getThroughput());
+	}
+
+	private void consume(BufferDebloater debloater, int bytes, long millis) {
+		debloater.onBufferConsumed(bytes);
+		clock.advanceTime(millis, TimeUnit.MILLISECONDS);
+	}
+
+	private BufferDebloater createDebloater() {
+		Configuration configuration = new Configuration();
+		configuration.set(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_ENABLED, true);
+		configuration.set(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_TARGET, Duration.ofSeconds(1));
+		configuration.set(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_PERIOD, Duration.ofMillis(100));
+		configuration.set(
+			NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_MIN_BUFFER_SIZE,
+			MemorySize.parse(MIN_BUFFER_SIZE + "b"));
+		configuration.set(NettyShuffleEnvironmentOptions.NETWORK_BUFFER_DEBLOAT_THRESHOLD_PERCENTAGES, 25);
+
+		return new BufferDebloater(
+			BufferDebloatConfiguration.fromConfiguration(configuration),
+			MAX_BUFFER_SIZE,
+			clock);
+	}
+}
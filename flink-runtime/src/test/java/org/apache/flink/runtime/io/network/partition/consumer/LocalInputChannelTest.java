@@ -22,13 +22,16 @@ import org.apache.flink.runtime.concurrent.FutureUtils;
 import org.apache.flink.runtime.execution.CancelTaskException;
 import org.apache.flink.runtime.io.disk.NoOpFileChannelManager;
 import org.apache.flink.runtime.io.network.TaskEventDispatcher;
+import org.apache.flink.runtime.io.network.buffer.Buffer;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilder;
 import org.apache.flink.runtime.io.network.buffer.BufferBuilderTestUtils;
 import org.apache.flink.runtime.io.network.buffer.BufferConsumer;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.BufferProvider;
+import org.apache.flink.runtime.io.network.buffer.FileRegionBuffer;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
 import org.apache.flink.runtime.io.network.partition.BufferAvailabilityListener;
+import org.apache.flink.runtime.io.network.partition.NoOpResultSubpartitionView;
 import org.apache.flink.runtime.io.network.partition.PartitionNotFoundException;
 import org.apache.flink.runtime.io.network.partition.PartitionTestUtils;
 import org.apache.flink.runtime.io.network.partition.ResultPartition;
@@ -37,6 +40,7 @@ import org.apache.flink.runtime.io.network.partition.ResultPartitionID;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionManager;
 import org.apache.flink.runtime.io.network.partition.ResultPartitionType;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartition;
+import org.apache.flink.runtime.io.network.partition.ResultSubpartition.BufferAndBacklog;
 import org.apache.flink.runtime.io.network.partition.ResultSubpartitionView;
 import org.apache.flink.runtime.io.network.util.TestBufferFactory;
 import org.apache.flink.runtime.io.network.util.TestPartitionProducer;
@@ -47,12 +51,18 @@ import org.apache.flink.util.function.CheckedSupplier;
 import org.apache.flink.shaded.guava18.com.google.common.collect.Lists;
 
 import org.hamcrest.Matchers;
+import org.junit.ClassRule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
 
+import java.io.File;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -67,6 +77,7 @@ import static org.apache.flink.runtime.io.network.partition.InputChannelTestUtil
 import static org.apache.flink.runtime.io.network.partition.InputChannelTestUtils.createSingleInputGate;
 import static org.apache.flink.runtime.io.network.partition.consumer.SingleInputGateTest.TestingResultPartitionManager;
 import static org.apache.flink.util.Preconditions.checkArgument;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertThat;
@@ -86,6 +97,9 @@ import static org.mockito.Mockito.when;
  */
 public class LocalInputChannelTest {
 
+	@ClassRule
+	public static final TemporaryFolder TMP_FOLDER = new TemporaryFolder();
+
 	/**
 	 * Tests the consumption of multiple subpartitions via local input channels.
 	 *
@@ -439,6 +453,51 @@ public class LocalInputChannelTest {
 		assertFalse(bufferAndAvailability.get().buffer().isCompressed());
 	}
 
+	/**
+	 * Verifies that the data of a file region is read into a buffer of the input gate's pool, which
+	 * returns to the pool when it is recycled, and into unpooled memory if the pool has no buffer.
+	 */
+	@Test
+	public void testFileRegionIsReadIntoBufferOfGatePool() throws Exception {
+		final int bufferSize = 4096;
+		final File file = TMP_FOLDER.newFile();
+		final byte[] data = new byte[2 * bufferSize];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) i;
+		}
+		Files.write(file.toPath(), data);
+
+		final NetworkBufferPool networkBufferPool = new NetworkBufferPool(1, bufferSize, 1);
+		try (FileChannel fileChannel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			final BufferPool bufferPool = networkBufferPool.createBufferPool(1, 1);
+			final SingleInputGate inputGate = new SingleInputGateBuilder().setBufferPoolFactory(bufferPool).build();
+			inputGate.setBufferPool(bufferPool);
+
+			final FileRegionResultSubpartitionView subpartitionView = new FileRegionResultSubpartitionView(fileChannel, bufferSize);
+			final LocalInputChannel channel = createLocalInputChannel(
+				inputGate, new TestingResultPartitionManager(subpartitionView));
+			channel.requestSubpartition(0);
+
+			final Buffer pooledBuffer = channel.getNextBuffer().get().buffer();
+			assertEquals(1, bufferPool.bestEffortGetNumOfUsedBuffers());
+			assertEquals(bufferSize, pooledBuffer.getSize());
+			assertEquals((byte) 0, pooledBuffer.getNioBufferReadable().get(0));
+
+			// the only buffer of the pool is still in use, so the next region is read into unpooled memory
+			final Buffer unpooledBuffer = channel.getNextBuffer().get().buffer();
+			assertEquals((byte) bufferSize, unpooledBuffer.getNioBufferReadable().get(0));
+			unpooledBuffer.recycleBuffer();
+
+			pooledBuffer.recycleBuffer();
+			assertEquals(0, bufferPool.bestEffortGetNumOfUsedBuffers());
+
+			channel.releaseAllResources();
+			bufferPool.lazyDestroy();
+		} finally {
+			networkBufferPool.destroy();
+		}
+	}
+
 	@Test(expected = IllegalStateException.class)
 	public void testUnblockReleasedChannel() throws Exception {
 		SingleInputGate inputGate = createSingleInputGate(1);
@@ -464,6 +523,31 @@ public class LocalInputChannelTest {
 		return subpartition.createReadView(() -> {});
 	}
 
+	/**
+	 * Returns consecutive regions of the given file as {@link FileRegionBuffer file region buffers}.
+	 */
+	private static class FileRegionResultSubpartitionView extends NoOpResultSubpartitionView {
+
+		private final FileChannel fileChannel;
+
+		private final int regionSize;
+
+		private long position;
+
+		FileRegionResultSubpartitionView(FileChannel fileChannel, int regionSize) {
+			this.fileChannel = fileChannel;
+			this.regionSize = regionSize;
+		}
+
+		@Override
+		public BufferAndBacklog getNextBuffer() {
+			final Buffer buffer = new FileRegionBuffer(
+				fileChannel, position, regionSize, Buffer.DataType.DATA_BUFFER, false, null);
+			position += regionSize;
+			return new BufferAndBacklog(buffer, true, 1, false);
+		}
+	}
+
 	/**
 	 * Returns the configured number of buffers for each channel in a random order.
 	 */
@@ -30,6 +30,8 @@ import org.apache.flink.runtime.io.network.PartitionRequestClient;
 import org.apache.flink.runtime.io.network.TestingConnectionManager;
 import org.apache.flink.runtime.io.network.TestingPartitionRequestClient;
 import org.apache.flink.runtime.io.network.buffer.Buffer;
+import org.apache.flink.runtime.io.network.buffer.BufferCompressor;
+import org.apache.flink.runtime.io.network.buffer.BufferDecompressor;
 import org.apache.flink.runtime.io.network.buffer.BufferListener.NotificationResult;
 import org.apache.flink.runtime.io.network.buffer.BufferPool;
 import org.apache.flink.runtime.io.network.buffer.NetworkBufferPool;
@@ -119,6 +121,31 @@ public class RemoteInputChannelTest {
 		verify(inputGate, times(2)).notifyChannelNonEmpty(eq(inputChannel));
 	}
 
+	@Test
+	public void testDecompressPipelinedBufferOnReceipt() throws Exception {
+		final SingleInputGate inputGate = new SingleInputGateBuilder()
+			.setBufferDecompressor(new BufferDecompressor(TestBufferFactory.BUFFER_SIZE, "LZ4"))
+			.build();
+		final RemoteInputChannel inputChannel = InputChannelBuilder.newBuilder()
+			.setConnectionManager(new TestingConnectionManager())
+			.buildRemoteChannel(inputGate);
+		inputChannel.requestSubpartition(0);
+
+		final BufferCompressor compressor = new BufferCompressor(TestBufferFactory.BUFFER_SIZE, "LZ4");
+		final Buffer compressedBuffer = compressor.compressToBuffer(
+			TestBufferFactory.createBuffer(TestBufferFactory.BUFFER_SIZE),
+			TestBufferFactory.createBuffer(0));
+		assertTrue(compressedBuffer.isCompressed());
+
+		inputChannel.onBuffer(compressedBuffer, 0, -1);
+
+		final Buffer buffer = inputChannel.getNextBuffer().get().buffer();
+		assertFalse(buffer.isCompressed());
+		assertEquals(TestBufferFactory.BUFFER_SIZE, buffer.getSize());
+		buffer.recycleBuffer();
+		assertTrue(compressedBuffer.isRecycled());
+	}
+
 	@Test
 	public void testConcurrentOnBufferAndRelease() throws Exception {
 		testConcurrentReleaseAndSomething(8192, (inputChannel, buffer, j) -> {
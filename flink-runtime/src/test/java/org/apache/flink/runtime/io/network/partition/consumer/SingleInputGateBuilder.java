@@ -50,6 +50,8 @@ public class SingleInputGateBuilder {
 
 	private BufferDecompressor bufferDecompressor = null;
 
+	private BufferDebloater bufferDebloater = null;
+
 	private SupplierWithException<BufferPool, IOException> bufferPoolFactory = () -> {
 		throw new UnsupportedOperationException();
 	};
@@ -102,6 +104,11 @@ public class SingleInputGateBuilder {
 		return this;
 	}
 
+	SingleInputGateBuilder setBufferDebloater(BufferDebloater bufferDebloater) {
+		this.bufferDebloater = bufferDebloater;
+		return this;
+	}
+
 	public SingleInputGate build() {
 		return new SingleInputGate(
 			"Single Input Gate",
@@ -112,6 +119,7 @@ public class SingleInputGateBuilder {
 			numberOfChannels,
 			partitionProducerStateProvider,
 			bufferPoolFactory,
-			bufferDecompressor);
+			bufferDecompressor,
+			bufferDebloater);
 	}
 }
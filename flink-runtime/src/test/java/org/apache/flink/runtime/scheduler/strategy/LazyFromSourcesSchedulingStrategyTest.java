@@ -32,6 +32,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.apache.flink.api.common.InputDependencyConstraint.ALL;
+import static org.apache.flink.runtime.io.network.partition.ResultPartitionType.HYBRID;
 import static org.apache.flink.runtime.io.network.partition.ResultPartitionType.PIPELINED;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.junit.Assert.assertEquals;
@@ -256,6 +257,30 @@ public class LazyFromSourcesSchedulingStrategyTest extends TestLogger {
 		assertLatestScheduledVerticesAreEqualTo(consumers);
 	}
 
+	/**
+	 * Tests that when partition consumable notified will start available {@link ResultPartitionType#HYBRID} downstream vertices.
+	 */
+	@Test
+	public void testHybridPartitionConsumable() {
+		final TestingSchedulingTopology testingSchedulingTopology = new TestingSchedulingTopology();
+
+		final List<TestingSchedulingExecutionVertex> producers = testingSchedulingTopology.addExecutionVertices()
+			.withParallelism(2).finish();
+		final List<TestingSchedulingExecutionVertex> consumers = testingSchedulingTopology.addExecutionVertices()
+			.withParallelism(2).finish();
+		testingSchedulingTopology.connectAllToAll(producers, consumers).withResultPartitionType(HYBRID).finish();
+
+		final LazyFromSourcesSchedulingStrategy schedulingStrategy = startScheduling(testingSchedulingTopology);
+
+		final TestingSchedulingExecutionVertex producer1 = producers.get(0);
+		final TestingSchedulingResultPartition partition1 = producer1.getProducedResults().iterator().next();
+
+		schedulingStrategy.onExecutionStateChange(producer1.getId(), ExecutionState.RUNNING);
+		schedulingStrategy.onPartitionConsumable(partition1.getId());
+
+		assertLatestScheduledVerticesAreEqualTo(consumers);
+	}
+
 	/**
 	 * Tests that when partition consumable notified will start available {@link ResultPartitionType#BLOCKING} downstream vertices.
 	 */
@@ -18,7 +18,18 @@
 
 package org.apache.flink.runtime.state;
 
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.configuration.CheckpointingOptions;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
 import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.util.IOUtils;
+
+import org.junit.Assume;
 
 import org.junit.Ignore;
 import org.junit.Rule;
@@ -31,6 +42,9 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
 /**
  * Tests for the keyed state backend and operator state backend, as created by the
  * {@link FsStateBackend}.
@@ -38,21 +52,33 @@ import java.util.List;
 @RunWith(Parameterized.class)
 public class FileStateBackendTest extends StateBackendTestBase<FsStateBackend> {
 
-	@Parameterized.Parameters
-	public static List<Boolean> modes() {
-		return Arrays.asList(true, false);
+	@Parameterized.Parameters(name = "async: {0}, incremental: {1}")
+	public static List<Object[]> modes() {
+		return Arrays.asList(
+			new Object[] {true, false},
+			new Object[] {false, false},
+			new Object[] {true, true});
 	}
 
 	@Parameterized.Parameter
 	public boolean useAsyncMode;
 
+	@Parameterized.Parameter(1)
+	public boolean useIncrementalMode;
+
 	@Rule
 	public final TemporaryFolder tempFolder = new TemporaryFolder();
 
+	private int maxDeltaChainLength = CheckpointingOptions.HEAP_INCREMENTAL_MAX_DELTA_CHAIN_LENGTH.defaultValue();
+
 	@Override
 	protected FsStateBackend getStateBackend() throws Exception {
 		File checkpointPath = tempFolder.newFolder();
-		return new FsStateBackend(checkpointPath.toURI(), useAsyncMode);
+		Configuration configuration = new Configuration();
+		configuration.setBoolean(CheckpointingOptions.HEAP_INCREMENTAL_CHECKPOINTS, useIncrementalMode);
+		configuration.setInteger(CheckpointingOptions.HEAP_INCREMENTAL_MAX_DELTA_CHAIN_LENGTH, maxDeltaChainLength);
+		return new FsStateBackend(checkpointPath.toURI(), useAsyncMode)
+			.configure(configuration, getClass().getClassLoader());
 	}
 
 	@Override
@@ -83,4 +109,117 @@ public class FileStateBackendTest extends StateBackendTestBase<FsStateBackend> {
 		super.testConcurrentMapIfQueryable();
 	}
 
+	@Test
+	public void testIncrementalSnapshotChain() throws Exception {
+		Assume.assumeTrue(useIncrementalMode);
+
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+		maxDeltaChainLength = 2;
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+		MapStateDescriptor<Integer, String> mapId = new MapStateDescriptor<>("map", Integer.class, String.class);
+
+		try {
+			ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			MapState<Integer, String> mapState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, mapId);
+
+			for (int i = 0; i < 10; ++i) {
+				backend.setCurrentKey(i);
+				state.update("v" + i);
+				mapState.put(i, "m" + i);
+			}
+
+			// the first checkpoint is a full one
+			KeyedStateHandle snapshot1 = runSnapshot(
+				backend.snapshot(1L, 1L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation()),
+				sharedStateRegistry);
+			assertEquals(1, ((IncrementalRemoteKeyedStateHandle) snapshot1).getSharedState().size());
+			backend.notifyCheckpointComplete(1L);
+
+			// updates, removals, in-place modifications of mutable state and new mappings
+			backend.setCurrentKey(1);
+			state.update("u1");
+			backend.setCurrentKey(2);
+			state.clear();
+			backend.setCurrentKey(3);
+			mapState.put(33, "m33");
+			backend.setCurrentKey(10);
+			state.update("v10");
+
+			KeyedStateHandle snapshot2 = runSnapshot(
+				backend.snapshot(2L, 2L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation()),
+				sharedStateRegistry);
+			assertEquals(2, ((IncrementalRemoteKeyedStateHandle) snapshot2).getSharedState().size());
+			backend.notifyCheckpointComplete(2L);
+
+			// re-add a removed mapping and remove a new one
+			backend.setCurrentKey(2);
+			state.update("u2");
+			backend.setCurrentKey(10);
+			state.clear();
+			backend.setCurrentKey(4);
+			mapState.remove(4);
+
+			KeyedStateHandle snapshot3 = runSnapshot(
+				backend.snapshot(3L, 3L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation()),
+				sharedStateRegistry);
+			assertEquals(3, ((IncrementalRemoteKeyedStateHandle) snapshot3).getSharedState().size());
+			backend.notifyCheckpointComplete(3L);
+
+			backend.setCurrentKey(5);
+			state.update("u5");
+
+			// the chain reached its maximum length, so a new full checkpoint is started
+			KeyedStateHandle snapshot4 = runSnapshot(
+				backend.snapshot(4L, 4L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation()),
+				sharedStateRegistry);
+			assertEquals(1, ((IncrementalRemoteKeyedStateHandle) snapshot4).getSharedState().size());
+
+			backend.dispose();
+
+			backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot2);
+			state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			mapState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, mapId);
+			backend.setCurrentKey(1);
+			assertEquals("u1", state.value());
+			backend.setCurrentKey(2);
+			assertNull(state.value());
+			assertEquals("m2", mapState.get(2));
+			backend.setCurrentKey(3);
+			assertEquals("m33", mapState.get(33));
+			assertEquals("m3", mapState.get(3));
+			backend.setCurrentKey(4);
+			assertEquals("m4", mapState.get(4));
+			backend.setCurrentKey(10);
+			assertEquals("v10", state.value());
+			backend.dispose();
+
+			backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot3);
+			state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			mapState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, mapId);
+			backend.setCurrentKey(2);
+			assertEquals("u2", state.value());
+			backend.setCurrentKey(4);
+			assertEquals("v4", state.value());
+			assertNull(mapState.get(4));
+			backend.setCurrentKey(5);
+			assertEquals("v5", state.value());
+			backend.setCurrentKey(10);
+			assertNull(state.value());
+			backend.dispose();
+
+			backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot4);
+			state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			backend.setCurrentKey(5);
+			assertEquals("u5", state.value());
+			backend.setCurrentKey(1);
+			assertEquals("u1", state.value());
+		} finally {
+			IOUtils.closeQuietly(backend);
+			backend.dispose();
+		}
+	}
+
 }
@@ -40,6 +40,7 @@ import java.io.IOException;
 import java.net.URI;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -346,6 +347,25 @@ public class StateBackendLoadingTest {
 		}
 	}
 
+	/**
+	 * Validates that the heap keyed state backend only creates incremental checkpoints if they are enabled
+	 * with its own option, and not with the general option for incremental checkpoints.
+	 */
+	@Test
+	public void testLoadFileSystemStateBackendIncrementalCheckpoints() throws Exception {
+		final Configuration config = new Configuration();
+		config.setString(backendKey, "filesystem");
+		config.setString(CheckpointingOptions.CHECKPOINTS_DIRECTORY, new Path(tmp.newFolder().toURI()).toString());
+		config.setBoolean(CheckpointingOptions.INCREMENTAL_CHECKPOINTS, true);
+
+		FsStateBackend backend = (FsStateBackend) StateBackendLoader.loadStateBackendFromConfig(config, cl, null);
+		assertFalse(backend.isIncrementalCheckpointsEnabled());
+
+		config.setBoolean(CheckpointingOptions.HEAP_INCREMENTAL_CHECKPOINTS, true);
+		backend = (FsStateBackend) StateBackendLoader.loadStateBackendFromConfig(config, cl, null);
+		assertTrue(backend.isIncrementalCheckpointsEnabled());
+	}
+
 	// ------------------------------------------------------------------------
 	//  High-availability default
 	// ------------------------------------------------------------------------
@@ -2478,7 +2478,7 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> exten
 		backend.dispose();
 		// restore the second snapshot and validate it
 		backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot2);
-		snapshot1.discardState();
+		snapshot2.discardState();
 
 		@SuppressWarnings("unchecked")
 		FoldingState<Integer, String> restored2 = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
@@ -2783,6 +2783,45 @@ public abstract class StateBackendTestBase<B extends AbstractStateBackend> exten
 		backend.dispose();
 	}
 
+	/**
+	 * Verify that reading the values of many keys at once matches the values read per key, and
+	 * does not change the current key.
+	 */
+	@Test
+	public void testValueStateGetAll() throws Exception {
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class, "default");
+
+		InternalValueState<Integer, VoidNamespace, String> state = (InternalValueState<Integer, VoidNamespace, String>)
+			backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+
+		for (int key = 0; key < 100; key += 2) {
+			backend.setCurrentKey(key);
+			state.update("value-" + key);
+		}
+		backend.setCurrentKey(7);
+		state.update("seven");
+
+		List<Integer> keys = new ArrayList<>();
+		for (int key = 99; key >= 0; key--) {
+			keys.add(key);
+		}
+		List<String> values = state.getAll(keys, VoidNamespace.INSTANCE);
+
+		assertEquals(keys.size(), values.size());
+		for (int i = 0; i < keys.size(); i++) {
+			int key = keys.get(i);
+			String expected = key == 7 ? "seven" : key % 2 == 0 ? "value-" + key : "default";
+			assertEquals(expected, values.get(i));
+		}
+
+		assertEquals(7, (int) backend.getCurrentKey());
+		assertEquals("seven", state.value());
+
+		backend.dispose();
+	}
+
 	/**
 	 * Verify that an empty {@code ReduceState} yields {@code null}.
 	 */
@@ -0,0 +1,498 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.changelog;
+
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.configuration.CheckpointingOptions;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.MemorySize;
+import org.apache.flink.runtime.checkpoint.CheckpointOptions;
+import org.apache.flink.runtime.checkpoint.CheckpointType;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.IncrementalRemoteKeyedStateHandle;
+import org.apache.flink.runtime.state.KeyGroupsStateHandle;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.PlaceholderStreamStateHandle;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.SnapshotResult;
+import org.apache.flink.runtime.state.StateBackend;
+import org.apache.flink.runtime.state.StateBackendLoader;
+import org.apache.flink.runtime.state.StateBackendTestBase;
+import org.apache.flink.runtime.state.StateHandleID;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.runtime.state.memory.MemoryStateBackend;
+
+import org.junit.Ignore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RunnableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the keyed state backend and operator state backend, as created by the
+ * {@link ChangelogStateBackend} wrapping an {@link FsStateBackend} with full or incremental snapshots.
+ * The materializations are triggered by the tests.
+ */
+@RunWith(Parameterized.class)
+public class ChangelogStateBackendTest extends StateBackendTestBase<ChangelogStateBackend> {
+
+	@Parameterized.Parameters(name = "incremental materialization: {0}")
+	public static List<Object[]> modes() {
+		return Arrays.asList(
+			new Object[] {false},
+			new Object[] {true});
+	}
+
+	@Parameterized.Parameter
+	public boolean useIncrementalMode;
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private MemorySize flushThreshold = CheckpointingOptions.CHANGELOG_FLUSH_THRESHOLD.defaultValue();
+
+	@Override
+	protected ChangelogStateBackend getStateBackend() throws Exception {
+		Configuration configuration = new Configuration();
+		configuration.setBoolean(CheckpointingOptions.HEAP_INCREMENTAL_CHECKPOINTS, useIncrementalMode);
+		return new ChangelogStateBackend(
+			new FsStateBackend(tempFolder.newFolder().toURI(), true).configure(configuration, getClass().getClassLoader()),
+			Duration.ZERO,
+			flushThreshold);
+	}
+
+	@Override
+	protected boolean isSerializerPresenceRequiredOnRestore() {
+		return true;
+	}
+
+	// disable these because the verification does not work for this state backend
+	@Override
+	@Test
+	public void testValueStateRestoreWithWrongSerializers() {}
+
+	@Override
+	@Test
+	public void testListStateRestoreWithWrongSerializers() {}
+
+	@Override
+	@Test
+	public void testReducingStateRestoreWithWrongSerializers() {}
+
+	@Override
+	@Test
+	public void testMapStateRestoreWithWrongSerializers() {}
+
+	@Ignore
+	@Test
+	public void testConcurrentMapIfQueryable() throws Exception {
+		super.testConcurrentMapIfQueryable();
+	}
+
+	// disable this because changes restored from the log are read with the previous serializer and written with
+	// the new one, so the new serializer is not reconfigured if nothing was materialized
+	@Override
+	@Test
+	public void testKryoRestoreResilienceWithDifferentRegistrationOrder() {}
+
+	// disable this because a checkpoint without any changes and without materialization has no state handle
+	@Override
+	@Test
+	public void testQueryableStateRegistration() {}
+
+	@Test
+	public void testCheckpointsOnlyUploadNewChanges() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+		MapStateDescriptor<Integer, String> mapId = new MapStateDescriptor<>("map", Integer.class, String.class);
+
+		try {
+			ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			MapState<Integer, String> mapState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, mapId);
+
+			for (int i = 0; i < 10; ++i) {
+				backend.setCurrentKey(i);
+				state.update("v" + i);
+				mapState.put(i, "m" + i);
+			}
+
+			KeyedStateHandle snapshot1 = runSnapshot(
+				backend.snapshot(1L, 1L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation()),
+				sharedStateRegistry);
+			assertEquals(1, ((IncrementalRemoteKeyedStateHandle) snapshot1).getSharedState().size());
+			backend.notifyCheckpointComplete(1L);
+
+			backend.setCurrentKey(1);
+			state.update("u1");
+			backend.setCurrentKey(2);
+			state.clear();
+			backend.setCurrentKey(3);
+			mapState.put(33, "m33");
+			for (Iterator<Map.Entry<Integer, String>> iterator = mapState.iterator(); iterator.hasNext();) {
+				if (iterator.next().getKey() == 3) {
+					iterator.remove();
+				}
+			}
+
+			// the log of the first checkpoint is only referenced
+			RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshotFuture =
+				backend.snapshot(2L, 2L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation());
+			snapshotFuture.run();
+			IncrementalRemoteKeyedStateHandle snapshot2 =
+				(IncrementalRemoteKeyedStateHandle) snapshotFuture.get().getJobManagerOwnedSnapshot();
+			assertEquals(2, snapshot2.getSharedState().size());
+			assertEquals(1, countPlaceholders(snapshot2.getSharedState().values()));
+			snapshot2.registerSharedStates(sharedStateRegistry);
+
+			backend.dispose();
+
+			backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot2);
+			state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			mapState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, mapId);
+			backend.setCurrentKey(1);
+			assertEquals("u1", state.value());
+			backend.setCurrentKey(2);
+			assertNull(state.value());
+			assertEquals("m2", mapState.get(2));
+			backend.setCurrentKey(3);
+			assertEquals("m33", mapState.get(33));
+			assertNull(mapState.get(3));
+			backend.setCurrentKey(9);
+			assertEquals("v9", state.value());
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testRestoredChangesOfStatesNotAccessedAgainSurviveMaterialization() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+		ListStateDescriptor<String> listId = new ListStateDescriptor<>("list", String.class);
+
+		try {
+			ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			ListState<String> listState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, listId);
+			for (int i = 0; i < 10; ++i) {
+				backend.setCurrentKey(i);
+				state.update("v" + i);
+				listState.add("a" + i);
+				listState.add("b" + i);
+			}
+
+			KeyedStateHandle snapshot1 = runSnapshot(
+				backend.snapshot(1L, 1L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation()),
+				sharedStateRegistry);
+			backend.dispose();
+
+			// only the value state is accessed before the savepoint and the materialization
+			backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot1);
+			state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			backend.setCurrentKey(4);
+			assertEquals("v4", state.value());
+			state.update("u4");
+
+			// the savepoint contains the changes of the list state as base log
+			KeyedStateHandle savepoint1 = runSnapshot(
+				backend.snapshot(
+					2L,
+					2L,
+					streamFactory,
+					new CheckpointOptions(CheckpointType.SAVEPOINT, CheckpointStorageLocationReference.getDefault())),
+				new SharedStateRegistry());
+			assertTrue(savepoint1 instanceof IncrementalRemoteKeyedStateHandle);
+
+			((ChangelogKeyedStateBackend<Integer>) backend).triggerMaterialization();
+			((ChangelogKeyedStateBackend<Integer>) backend).awaitMaterialization();
+
+			KeyedStateHandle snapshot2 = runSnapshot(
+				backend.snapshot(3L, 3L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation()),
+				sharedStateRegistry);
+			Map<StateHandleID, StreamStateHandle> sharedState = ((IncrementalRemoteKeyedStateHandle) snapshot2).getSharedState();
+			assertEquals(0, countPlaceholders(sharedState.values()));
+			if (!useIncrementalMode) {
+				// the materialized state and the base log with the changes of the list state
+				assertEquals(2, sharedState.size());
+			}
+
+			for (KeyedStateHandle snapshot : Arrays.asList(savepoint1, snapshot2)) {
+				backend.dispose();
+				backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot);
+				state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+				listState = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, listId);
+				backend.setCurrentKey(4);
+				assertEquals("u4", state.value());
+				assertEquals(Arrays.asList("a4", "b4"), toList(listState.get()));
+				backend.setCurrentKey(7);
+				assertEquals("v7", state.value());
+				assertEquals(Arrays.asList("a7", "b7"), toList(listState.get()));
+			}
+
+			// all states were accessed, so the savepoint is a full snapshot of the wrapped backend
+			KeyedStateHandle savepoint2 = runSnapshot(
+				backend.snapshot(
+					4L,
+					4L,
+					streamFactory,
+					new CheckpointOptions(CheckpointType.SAVEPOINT, CheckpointStorageLocationReference.getDefault())),
+				new SharedStateRegistry());
+			assertTrue(savepoint2 instanceof KeyGroupsStateHandle);
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testMaterializationRunsOutsideOfCheckpoints() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+		ChangelogKeyedStateBackend<Integer> backend =
+			(ChangelogKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+
+		try {
+			ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			for (int i = 0; i < 10; ++i) {
+				backend.setCurrentKey(i);
+				state.update("v" + i);
+			}
+
+			KeyedStateHandle snapshot1 = runSnapshot(
+				backend.snapshot(1L, 1L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation()),
+				sharedStateRegistry);
+			assertEquals(1, ((IncrementalRemoteKeyedStateHandle) snapshot1).getSharedState().size());
+			backend.notifyCheckpointComplete(1L);
+
+			backend.triggerMaterialization();
+			backend.awaitMaterialization();
+
+			// the checkpoint references the materialization instead of the log of the first checkpoint
+			IncrementalRemoteKeyedStateHandle snapshot2 = runCheckpoint(backend, 2L, streamFactory);
+			assertEquals(0, countPlaceholders(snapshot2.getSharedState().values()));
+			assertFalse(snapshot2.getSharedState().keySet().containsAll(
+				((IncrementalRemoteKeyedStateHandle) snapshot1).getSharedState().keySet()));
+			snapshot2.registerSharedStates(sharedStateRegistry);
+			backend.notifyCheckpointComplete(2L);
+
+			// nothing changed since the confirmed materialization
+			backend.triggerMaterialization();
+			backend.awaitMaterialization();
+
+			backend.setCurrentKey(3);
+			state.update("u3");
+
+			// the materialization is only referenced, and the new change is uploaded
+			IncrementalRemoteKeyedStateHandle snapshot3 = runCheckpoint(backend, 3L, streamFactory);
+			assertEquals(snapshot2.getSharedState().size() + 1, snapshot3.getSharedState().size());
+			assertEquals(snapshot2.getSharedState().size(), countPlaceholders(snapshot3.getSharedState().values()));
+			assertTrue(snapshot3.getSharedState().keySet().containsAll(snapshot2.getSharedState().keySet()));
+			snapshot3.registerSharedStates(sharedStateRegistry);
+			backend.dispose();
+
+			backend = (ChangelogKeyedStateBackend<Integer>) restoreKeyedBackend(IntSerializer.INSTANCE, snapshot3);
+			state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			backend.setCurrentKey(3);
+			assertEquals("u3", state.value());
+			backend.setCurrentKey(9);
+			assertEquals("v9", state.value());
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testNewMaterializationIsOnlyReferencedByOneCheckpointUntilConfirmed() throws Exception {
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+		ChangelogKeyedStateBackend<Integer> backend =
+			(ChangelogKeyedStateBackend<Integer>) createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+
+		try {
+			ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			for (int i = 0; i < 10; ++i) {
+				backend.setCurrentKey(i);
+				state.update("v" + i);
+			}
+
+			KeyedStateHandle snapshot1 = runSnapshot(
+				backend.snapshot(1L, 1L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation()),
+				sharedStateRegistry);
+			backend.notifyCheckpointComplete(1L);
+
+			backend.setCurrentKey(1);
+			state.update("u1");
+			backend.triggerMaterialization();
+			backend.awaitMaterialization();
+
+			// a cancelled checkpoint does not take the materialization with it
+			RunnableFuture<SnapshotResult<KeyedStateHandle>> cancelled =
+				backend.snapshot(2L, 2L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation());
+			cancelled.cancel(true);
+
+			IncrementalRemoteKeyedStateHandle snapshot3 = runCheckpoint(backend, 3L, streamFactory);
+			assertEquals(0, countPlaceholders(snapshot3.getSharedState().values()));
+			snapshot3.registerSharedStates(sharedStateRegistry);
+
+			// the next checkpoint references the confirmed snapshot, because the materialization may be discarded
+			// with the pending checkpoint
+			IncrementalRemoteKeyedStateHandle snapshot4 = runCheckpoint(backend, 4L, streamFactory);
+			assertEquals(2, snapshot4.getSharedState().size());
+			assertEquals(1, countPlaceholders(snapshot4.getSharedState().values()));
+			assertTrue(snapshot4.getSharedState().keySet().containsAll(
+				((IncrementalRemoteKeyedStateHandle) snapshot1).getSharedState().keySet()));
+			snapshot4.registerSharedStates(sharedStateRegistry);
+
+			// the later checkpoint is confirmed, so the materialization is dropped and the next one is triggered
+			backend.notifyCheckpointComplete(4L);
+			backend.setCurrentKey(2);
+			state.update("u2");
+			backend.triggerMaterialization();
+			backend.awaitMaterialization();
+
+			IncrementalRemoteKeyedStateHandle snapshot5 = runCheckpoint(backend, 5L, streamFactory);
+			assertEquals(0, countPlaceholders(snapshot5.getSharedState().values()));
+			snapshot5.registerSharedStates(sharedStateRegistry);
+			backend.notifyCheckpointComplete(5L);
+			backend.dispose();
+
+			backend = (ChangelogKeyedStateBackend<Integer>) restoreKeyedBackend(IntSerializer.INSTANCE, snapshot5);
+			state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			backend.setCurrentKey(1);
+			assertEquals("u1", state.value());
+			backend.setCurrentKey(2);
+			assertEquals("u2", state.value());
+			backend.setCurrentKey(9);
+			assertEquals("v9", state.value());
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testChangesAboveFlushThresholdAreSpilled() throws Exception {
+		flushThreshold = MemorySize.parse("1b");
+
+		CheckpointStreamFactory streamFactory = createStreamFactory();
+		SharedStateRegistry sharedStateRegistry = new SharedStateRegistry();
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+
+		ValueStateDescriptor<String> kvId = new ValueStateDescriptor<>("id", String.class);
+
+		try {
+			ValueState<String> state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			for (int i = 0; i < 10; ++i) {
+				backend.setCurrentKey(i);
+				state.update("v" + i);
+			}
+
+			// every change is spilled as chunk of its own, which is uploaded as log file
+			KeyedStateHandle snapshot = runSnapshot(
+				backend.snapshot(1L, 1L, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation()),
+				sharedStateRegistry);
+			assertEquals(10, ((IncrementalRemoteKeyedStateHandle) snapshot).getSharedState().size());
+			backend.dispose();
+
+			backend = restoreKeyedBackend(IntSerializer.INSTANCE, snapshot);
+			state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, kvId);
+			for (int i = 0; i < 10; ++i) {
+				backend.setCurrentKey(i);
+				assertEquals("v" + i, state.value());
+			}
+		} finally {
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testLoaderWrapsConfiguredBackend() throws Exception {
+		Configuration config = new Configuration();
+		config.set(CheckpointingOptions.CHANGELOG_ENABLED, true);
+		config.set(CheckpointingOptions.CHANGELOG_MATERIALIZATION_INTERVAL, Duration.ofMinutes(3L));
+
+		StateBackend backend = StateBackendLoader.fromApplicationOrConfigOrDefault(
+			new MemoryStateBackend(), config, getClass().getClassLoader(), null);
+
+		assertTrue(backend instanceof ChangelogStateBackend);
+		assertTrue(((ChangelogStateBackend) backend).getDelegate() instanceof MemoryStateBackend);
+		assertEquals(Duration.ofMinutes(3L).toMillis(), ((ChangelogStateBackend) backend).getMaterializationInterval());
+	}
+
+	private static IncrementalRemoteKeyedStateHandle runCheckpoint(
+		AbstractKeyedStateBackend<?> backend,
+		long checkpointId,
+		CheckpointStreamFactory streamFactory) throws Exception {
+
+		// the placeholders are replaced when the shared state is registered
+		RunnableFuture<SnapshotResult<KeyedStateHandle>> snapshotFuture = backend.snapshot(
+			checkpointId, checkpointId, streamFactory, CheckpointOptions.forCheckpointWithDefaultLocation());
+		snapshotFuture.run();
+		return (IncrementalRemoteKeyedStateHandle) snapshotFuture.get().getJobManagerOwnedSnapshot();
+	}
+
+	private static int countPlaceholders(Collection<StreamStateHandle> handles) {
+		int placeholders = 0;
+		for (StreamStateHandle handle : handles) {
+			if (handle instanceof PlaceholderStreamStateHandle) {
+				++placeholders;
+			}
+		}
+		return placeholders;
+	}
+
+	private static List<String> toList(Iterable<String> values) {
+		List<String> list = new ArrayList<>();
+		values.forEach(list::add);
+		return list;
+	}
+}
@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.filesystem;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.core.fs.FSDataInputStream;
+import org.apache.flink.core.fs.Path;
+import org.apache.flink.runtime.checkpoint.metadata.MetadataV2V3SerializerBase;
+import org.apache.flink.runtime.state.CheckpointStorageLocationReference;
+import org.apache.flink.runtime.state.CheckpointStreamFactory;
+import org.apache.flink.runtime.state.CheckpointStreamFactory.CheckpointStateOutputStream;
+import org.apache.flink.runtime.state.CheckpointedStateScope;
+import org.apache.flink.runtime.state.SharedStateRegistry;
+import org.apache.flink.runtime.state.StreamStateHandle;
+import org.apache.flink.runtime.state.filesystem.FsCheckpointStreamFactory.FsCheckpointStateOutputStream;
+import org.apache.flink.runtime.state.memory.ByteStreamStateHandle;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link FsSegmentCheckpointStateOutputStream} and the {@link SegmentFileStateHandle}, as
+ * created by an {@link FsCheckpointStorage} with segment files enabled.
+ */
+public class FsSegmentCheckpointStateOutputStreamTest {
+
+	private static final long CHECKPOINT_ID = 42L;
+
+	private static final int FILE_SIZE_THRESHOLD = 16;
+
+	@Rule
+	public final TemporaryFolder tempDir = new TemporaryFolder();
+
+	private final Random random = new Random();
+
+	private FsCheckpointStorage storage;
+
+	private CheckpointStreamFactory streamFactory;
+
+	@Before
+	public void createStorage() throws Exception {
+		storage = new FsCheckpointStorage(
+			Path.fromLocalFile(tempDir.newFolder()),
+			null,
+			new JobID(),
+			FILE_SIZE_THRESHOLD,
+			64,
+			true);
+		storage.initializeBaseLocations();
+		storage.initializeLocationForCheckpoint(CHECKPOINT_ID);
+		streamFactory = storage.resolveCheckpointStorageLocation(
+			CHECKPOINT_ID, CheckpointStorageLocationReference.getDefault());
+	}
+
+	@Test
+	public void testStreamsOfCheckpointShareFile() throws Exception {
+		byte[] state1 = randomBytes(100);
+		byte[] state2 = randomBytes(1000);
+		byte[] state3 = randomBytes(20);
+
+		SegmentFileStateHandle handle1 = writeSegment(state1);
+		SegmentFileStateHandle handle2 = writeSegment(state2);
+		SegmentFileStateHandle handle3 = writeSegment(state3);
+
+		assertEquals(handle1.getFilePath(), handle2.getFilePath());
+		assertEquals(handle1.getFilePath(), handle3.getFilePath());
+		assertEquals(0L, handle1.getStartPosition());
+		assertEquals(state1.length, handle2.getStartPosition());
+		assertEquals(state1.length + state2.length, handle3.getStartPosition());
+		assertEquals(state2.length, handle2.getStateSize());
+
+		storage.finishCheckpointStreams(CHECKPOINT_ID);
+
+		assertArrayEquals(state1, readFully(handle1));
+		assertArrayEquals(state2, readFully(handle2));
+		assertArrayEquals(state3, readFully(handle3));
+
+		try (FSDataInputStream in = handle2.openInputStream()) {
+			in.seek(500L);
+			assertEquals(500L, in.getPos());
+			assertEquals(state2[500], (byte) in.read());
+			in.seek(state2.length);
+			assertEquals(-1, in.read());
+		}
+	}
+
+	@Test
+	public void testSmallStateIsInline() throws Exception {
+		byte[] state = randomBytes(FILE_SIZE_THRESHOLD);
+
+		CheckpointStateOutputStream stream = streamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+		stream.write(state);
+		StreamStateHandle handle = stream.closeAndGetHandle();
+
+		assertTrue(handle instanceof ByteStreamStateHandle);
+		assertArrayEquals(state, ((ByteStreamStateHandle) handle).getData());
+	}
+
+	@Test
+	public void testConcurrentStreamsUseDifferentFiles() throws Exception {
+		CheckpointStateOutputStream stream1 = streamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+		CheckpointStateOutputStream stream2 = streamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+		stream1.write(randomBytes(100));
+		stream2.write(randomBytes(100));
+
+		SegmentFileStateHandle handle1 = (SegmentFileStateHandle) stream1.closeAndGetHandle();
+		SegmentFileStateHandle handle2 = (SegmentFileStateHandle) stream2.closeAndGetHandle();
+
+		assertNotEquals(handle1.getFilePath(), handle2.getFilePath());
+	}
+
+	@Test
+	public void testSharedStateAndSavepointsUseOwnFiles() throws Exception {
+		assertTrue(streamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.SHARED)
+			instanceof FsCheckpointStateOutputStream);
+
+		Path savepointDir = Path.fromLocalFile(tempDir.newFolder());
+		CheckpointStreamFactory savepointStreamFactory = storage.resolveCheckpointStorageLocation(
+			CHECKPOINT_ID, AbstractFsCheckpointStorage.encodePathAsReference(savepointDir));
+
+		assertTrue(savepointStreamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE)
+			instanceof FsCheckpointStateOutputStream);
+	}
+
+	@Test
+	public void testClosedStreamKeepsSegmentsOfOtherStreams() throws Exception {
+		byte[] state = randomBytes(100);
+		SegmentFileStateHandle handle = writeSegment(state);
+
+		CheckpointStateOutputStream failedStream = streamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+		failedStream.write(randomBytes(100));
+		failedStream.flush();
+		failedStream.close();
+
+		// the file that the failed stream wrote to is not appended to anymore
+		SegmentFileStateHandle nextHandle = writeSegment(randomBytes(100));
+		assertNotEquals(handle.getFilePath(), nextHandle.getFilePath());
+
+		storage.finishCheckpointStreams(CHECKPOINT_ID);
+
+		assertArrayEquals(state, readFully(handle));
+	}
+
+	@Test
+	public void testFileIsDeletedWhenAllRegisteredSegmentsAreDiscarded() throws Exception {
+		SegmentFileStateHandle handle1 = writeSegment(randomBytes(100));
+		SegmentFileStateHandle handle2 = writeSegment(randomBytes(100));
+		storage.finishCheckpointStreams(CHECKPOINT_ID);
+
+		File file = new File(handle1.getFilePath().getPath());
+		SharedStateRegistry registry = new SharedStateRegistry();
+		handle1.registerSharedStates(registry);
+		handle2.registerSharedStates(registry);
+		// registering a handle again with the same registry does not add a reference
+		handle2.registerSharedStates(registry);
+
+		handle1.discardState();
+		// discarding a handle again does not release another reference
+		handle1.discardState();
+		assertTrue(file.exists());
+
+		handle2.discardState();
+		assertFalse(file.exists());
+	}
+
+	@Test
+	public void testUnregisteredSegmentDiscardsFile() throws Exception {
+		SegmentFileStateHandle handle = writeSegment(randomBytes(100));
+		storage.finishCheckpointStreams(CHECKPOINT_ID);
+
+		handle.discardState();
+
+		assertFalse(new File(handle.getFilePath().getPath()).exists());
+	}
+
+	@Test
+	public void testMetadataSerialization() throws Exception {
+		SegmentFileStateHandle handle = new SegmentFileStateHandle(new Path("file:///some/file"), 123L, 456L);
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		MetadataV2V3SerializerBase.serializeStreamStateHandle(handle, new DataOutputStream(bytes));
+		StreamStateHandle deserialized = MetadataV2V3SerializerBase.deserializeStreamStateHandle(
+			new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertEquals(handle, deserialized);
+	}
+
+	// ------------------------------------------------------------------------
+
+	private SegmentFileStateHandle writeSegment(byte[] state) throws IOException {
+		CheckpointStateOutputStream stream = streamFactory.createCheckpointStateOutputStream(CheckpointedStateScope.EXCLUSIVE);
+		stream.write(state, 0, state.length / 2);
+		assertEquals(state.length / 2, stream.getPos());
+		stream.write(state, state.length / 2, state.length - state.length / 2);
+		return (SegmentFileStateHandle) stream.closeAndGetHandle();
+	}
+
+	private static byte[] readFully(StreamStateHandle handle) throws IOException {
+		byte[] buffer = new byte[(int) handle.getStateSize() + 1];
+		int length = 0;
+		try (FSDataInputStream in = handle.openInputStream()) {
+			int read;
+			while ((read = in.read(buffer, length, buffer.length - length)) > 0) {
+				length += read;
+			}
+		}
+		return Arrays.copyOf(buffer, length);
+	}
+
+	private byte[] randomBytes(int size) {
+		byte[] bytes = new byte[size];
+		random.nextBytes(bytes);
+		return bytes;
+	}
+}
@@ -0,0 +1,155 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.StateTtlConfig;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.time.Time;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.TestLocalRecoveryConfig;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.ttl.MockTtlTimeProvider;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests for the background cleanup of states with TTL in the {@link HeapKeyedStateBackend}.
+ */
+public class HeapTtlBackgroundCleanupTest extends TestLogger {
+
+	private static final long TTL = 100L;
+
+	private static final int NUMBER_OF_KEYS = 1000;
+
+	private MockTtlTimeProvider timeProvider;
+
+	private HeapKeyedStateBackend<Integer> backend;
+
+	private ValueState<String> state;
+
+	@Before
+	public void setUp() throws Exception {
+		final KeyGroupRange keyGroupRange = new KeyGroupRange(0, 15);
+		final int numKeyGroups = keyGroupRange.getNumberOfKeyGroups();
+		final ExecutionConfig executionConfig = new ExecutionConfig();
+		timeProvider = new MockTtlTimeProvider();
+
+		backend = new HeapKeyedStateBackendBuilder<>(
+			mock(TaskKvStateRegistry.class),
+			IntSerializer.INSTANCE,
+			HeapTtlBackgroundCleanupTest.class.getClassLoader(),
+			numKeyGroups,
+			keyGroupRange,
+			executionConfig,
+			timeProvider,
+			Collections.emptyList(),
+			AbstractStateBackend.getCompressionDecorator(executionConfig),
+			TestLocalRecoveryConfig.disabled(),
+			new HeapPriorityQueueSetFactory(keyGroupRange, numKeyGroups, 128),
+			true,
+			new CloseableRegistry())
+			.setTtlBackgroundCleanup(1L, 1000L)
+			.build();
+
+		final ValueStateDescriptor<String> descriptor = new ValueStateDescriptor<>("test", String.class);
+		descriptor.enableTimeToLive(StateTtlConfig.newBuilder(Time.milliseconds(TTL)).build());
+		state = backend.getPartitionedState(VoidNamespace.INSTANCE, VoidNamespaceSerializer.INSTANCE, descriptor);
+	}
+
+	@After
+	public void tearDown() {
+		backend.dispose();
+	}
+
+	@Test
+	public void testExpiredEntriesAreRemovedWithoutAccess() throws Exception {
+		writeKeys(0, NUMBER_OF_KEYS);
+
+		timeProvider.time = TTL / 2;
+		backend.runBackgroundCleanup();
+		assertEquals(NUMBER_OF_KEYS, backend.numKeyValueStateEntries());
+
+		timeProvider.time = 2 * TTL;
+		backend.runBackgroundCleanup();
+		assertEquals(0, backend.numKeyValueStateEntries());
+	}
+
+	@Test
+	public void testUnexpiredEntriesAreKept() throws Exception {
+		writeKeys(0, NUMBER_OF_KEYS);
+
+		timeProvider.time = TTL / 2;
+		writeKeys(0, NUMBER_OF_KEYS / 2);
+
+		// only the entries that were not written again have expired
+		timeProvider.time = TTL + TTL / 4;
+		backend.runBackgroundCleanup();
+		assertEquals(NUMBER_OF_KEYS / 2, backend.numKeyValueStateEntries());
+
+		// the key-groups with unexpired entries are scanned again, once these have expired
+		timeProvider.time = 3 * TTL;
+		backend.runBackgroundCleanup();
+		assertEquals(0, backend.numKeyValueStateEntries());
+	}
+
+	@Test
+	public void testCleanupIsDisabledByDefault() throws Exception {
+		final HeapKeyedStateBackend<Integer> defaultBackend = new HeapKeyedStateBackendBuilder<>(
+			mock(TaskKvStateRegistry.class),
+			IntSerializer.INSTANCE,
+			HeapTtlBackgroundCleanupTest.class.getClassLoader(),
+			16,
+			new KeyGroupRange(0, 15),
+			new ExecutionConfig(),
+			timeProvider,
+			Collections.emptyList(),
+			AbstractStateBackend.getCompressionDecorator(new ExecutionConfig()),
+			TestLocalRecoveryConfig.disabled(),
+			new HeapPriorityQueueSetFactory(new KeyGroupRange(0, 15), 16, 128),
+			true,
+			new CloseableRegistry()).build();
+		try {
+			assertEquals(0L, defaultBackend.getBackgroundCleanupInterval());
+		} finally {
+			defaultBackend.dispose();
+		}
+	}
+
+	private void writeKeys(int from, int to) throws Exception {
+		for (int key = from; key < to; ++key) {
+			backend.setCurrentKey(key);
+			state.update("value-" + key);
+		}
+	}
+}
@@ -0,0 +1,280 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.runtime.state.ArrayListSerializer;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.internal.InternalKvState.StateIncrementalVisitor;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Tests for the {@link PrimitiveKeyStateMap}s.
+ */
+public class PrimitiveKeyStateMapTest extends TestLogger {
+
+	private static final VoidNamespace NAMESPACE = VoidNamespace.INSTANCE;
+
+	/**
+	 * Compares random modifications of the map with a {@link HashMap}. The small key range leads to many collisions
+	 * and removals within clusters.
+	 */
+	@Test
+	public void testRandomModifications() throws Exception {
+		final LongKeyStateMap<VoidNamespace, Integer> stateMap = new LongKeyStateMap<>(IntSerializer.INSTANCE);
+		final HashMap<Long, Integer> referenceMap = new HashMap<>();
+		final Random random = new Random(42);
+
+		for (int i = 0; i < 100_000; ++i) {
+			final long key = random.nextInt(1000) - 500;
+			final int value = random.nextInt();
+			switch (random.nextInt(6)) {
+				case 0:
+					stateMap.put(key, NAMESPACE, value);
+					referenceMap.put(key, value);
+					break;
+				case 1:
+					Assert.assertEquals(referenceMap.put(key, value), stateMap.putAndGetOld(key, NAMESPACE, value));
+					break;
+				case 2:
+					stateMap.remove(key, NAMESPACE);
+					referenceMap.remove(key);
+					break;
+				case 3:
+					Assert.assertEquals(referenceMap.remove(key), stateMap.removeAndGetOld(key, NAMESPACE));
+					break;
+				case 4:
+					stateMap.transform(key, NAMESPACE, value, (previous, v) -> previous == null ? v : previous + v);
+					referenceMap.merge(key, value, Integer::sum);
+					break;
+				default:
+					Assert.assertEquals(referenceMap.get(key), stateMap.get(key, NAMESPACE));
+					Assert.assertEquals(referenceMap.containsKey(key), stateMap.containsKey(key, NAMESPACE));
+			}
+			Assert.assertEquals(referenceMap.size(), stateMap.size());
+		}
+
+		final Map<Long, Integer> iterated = new HashMap<>();
+		for (StateEntry<Long, VoidNamespace, Integer> entry : stateMap) {
+			Assert.assertEquals(NAMESPACE, entry.getNamespace());
+			Assert.assertNull(iterated.put(entry.getKey(), entry.getState()));
+		}
+		Assert.assertEquals(referenceMap, iterated);
+
+		final Map<Long, Integer> visited = new HashMap<>();
+		final StateIncrementalVisitor<Long, VoidNamespace, Integer> visitor = stateMap.getStateIncrementalVisitor(7);
+		while (visitor.hasNext()) {
+			for (StateEntry<Long, VoidNamespace, Integer> entry : visitor.nextEntries()) {
+				Assert.assertNull(visited.put(entry.getKey(), entry.getState()));
+			}
+		}
+		Assert.assertEquals(referenceMap, visited);
+	}
+
+	/**
+	 * Tests that removals through the incremental visitor do not cause other mappings to be skipped.
+	 */
+	@Test
+	public void testVisitorRemovalsDoNotSkipMappings() {
+		final IntKeyStateMap<VoidNamespace, Integer> stateMap = new IntKeyStateMap<>(IntSerializer.INSTANCE);
+		for (int key = 0; key < 10_000; ++key) {
+			stateMap.put(key, NAMESPACE, key);
+		}
+
+		int visitedMappings = 0;
+		final StateIncrementalVisitor<Integer, VoidNamespace, Integer> visitor = stateMap.getStateIncrementalVisitor(3);
+		while (visitor.hasNext()) {
+			for (StateEntry<Integer, VoidNamespace, Integer> entry : visitor.nextEntries()) {
+				++visitedMappings;
+				if (entry.getState() % 2 == 0) {
+					visitor.remove(entry);
+				}
+			}
+		}
+
+		Assert.assertTrue(visitedMappings >= 10_000);
+		Assert.assertEquals(5_000, stateMap.size());
+		for (StateEntry<Integer, VoidNamespace, Integer> entry : stateMap) {
+			Assert.assertEquals(1, entry.getKey() % 2);
+		}
+	}
+
+	/**
+	 * Tests that the incremental visitor still returns all mappings if the map grows during the visit.
+	 */
+	@Test
+	public void testVisitorContinuesAfterGrowth() {
+		final LongKeyStateMap<VoidNamespace, Integer> stateMap = new LongKeyStateMap<>(IntSerializer.INSTANCE);
+		for (long key = 0; key < 10; ++key) {
+			stateMap.put(key, NAMESPACE, (int) key);
+		}
+		final int initialCapacity = stateMap.getCapacity();
+
+		final Set<Long> visitedKeys = new HashSet<>();
+		final StateIncrementalVisitor<Long, VoidNamespace, Integer> visitor = stateMap.getStateIncrementalVisitor(2);
+		Assert.assertTrue(visitor.hasNext());
+		for (StateEntry<Long, VoidNamespace, Integer> entry : visitor.nextEntries()) {
+			visitedKeys.add(entry.getKey());
+		}
+
+		for (long key = 10; key < 1000; ++key) {
+			stateMap.put(key, NAMESPACE, (int) key);
+		}
+		Assert.assertTrue(stateMap.getCapacity() > initialCapacity);
+
+		while (visitor.hasNext()) {
+			for (StateEntry<Long, VoidNamespace, Integer> entry : visitor.nextEntries()) {
+				visitedKeys.add(entry.getKey());
+			}
+		}
+		for (long key = 0; key < 10; ++key) {
+			Assert.assertTrue(visitedKeys.contains(key));
+		}
+	}
+
+	/**
+	 * Tests that mappings to null are distinguished from missing mappings.
+	 */
+	@Test
+	public void testNullStates() {
+		final IntKeyStateMap<VoidNamespace, String> stateMap = new IntKeyStateMap<>(StringSerializer.INSTANCE);
+
+		stateMap.put(-1, NAMESPACE, null);
+		Assert.assertTrue(stateMap.containsKey(-1, NAMESPACE));
+		Assert.assertFalse(stateMap.containsKey(1, NAMESPACE));
+		Assert.assertNull(stateMap.get(-1, NAMESPACE));
+		Assert.assertEquals(1, stateMap.size());
+		Assert.assertEquals(Integer.valueOf(-1), stateMap.iterator().next().getKey());
+
+		Assert.assertNull(stateMap.putAndGetOld(-1, NAMESPACE, "value"));
+		Assert.assertEquals("value", stateMap.removeAndGetOld(-1, NAMESPACE));
+		Assert.assertTrue(stateMap.isEmpty());
+	}
+
+	/**
+	 * Tests that a snapshot is isolated from all modifications of the map, including in-place modifications of
+	 * state objects, and that the map stops copying once the snapshot is released.
+	 */
+	@Test
+	public void testCopyOnWriteIsolation() throws Exception {
+		final ArrayListSerializer<Integer> stateSerializer = new ArrayListSerializer<>(IntSerializer.INSTANCE);
+		final LongKeyStateMap<VoidNamespace, ArrayList<Integer>> stateMap = new LongKeyStateMap<>(stateSerializer);
+
+		final Map<Long, ArrayList<Integer>> expected = new HashMap<>();
+		for (long key = 0; key < 100; ++key) {
+			stateMap.put(key, NAMESPACE, new ArrayList<>(Collections.singletonList((int) key)));
+			expected.put(key, new ArrayList<>(Collections.singletonList((int) key)));
+		}
+
+		final PrimitiveKeyStateMapSnapshot<Long, VoidNamespace, ArrayList<Integer>> snapshot = stateMap.stateSnapshot();
+
+		// modify the map in place, structurally, and beyond its capacity
+		for (long key = 0; key < 50; ++key) {
+			stateMap.get(key, NAMESPACE).add(-1);
+		}
+		for (long key = 50; key < 75; ++key) {
+			stateMap.remove(key, NAMESPACE);
+		}
+		for (long key = 100; key < 1000; ++key) {
+			stateMap.put(key, NAMESPACE, new ArrayList<>());
+		}
+		stateMap.transform(99L, NAMESPACE, 7, (state, value) -> {
+			state.add(value);
+			return state;
+		});
+
+		Assert.assertEquals(expected, readSnapshot(snapshot, stateSerializer));
+		Assert.assertEquals(Integer.valueOf(-1), stateMap.get(0L, NAMESPACE).get(1));
+		Assert.assertEquals(975, stateMap.size());
+
+		snapshot.release();
+		Assert.assertTrue(snapshot.isReleased());
+		final ArrayList<Integer> state = stateMap.get(1L, NAMESPACE);
+		Assert.assertSame(state, stateMap.get(1L, NAMESPACE));
+	}
+
+	/**
+	 * Tests that the first modification after a snapshot only copies the page of the modified slot, not the whole
+	 * arrays of the map.
+	 */
+	@Test
+	public void testCopyOnWriteCopiesOnlyModifiedPages() throws Exception {
+		final LongKeyStateMap<VoidNamespace, Integer> stateMap = new LongKeyStateMap<>(IntSerializer.INSTANCE);
+		final Map<Long, Integer> expected = new HashMap<>();
+		for (long key = 0; key < 10_000; ++key) {
+			stateMap.put(key, NAMESPACE, (int) key);
+			expected.put(key, (int) key);
+		}
+		Assert.assertEquals(0, stateMap.getNumberOfSharedPages());
+
+		final PrimitiveKeyStateMapSnapshot<Long, VoidNamespace, Integer> snapshot = stateMap.stateSnapshot();
+		final int numberOfPages = stateMap.getNumberOfSharedPages();
+		Assert.assertTrue(numberOfPages > 1);
+
+		stateMap.put(42L, NAMESPACE, -1);
+		Assert.assertEquals(numberOfPages - 1, stateMap.getNumberOfSharedPages());
+		stateMap.put(42L, NAMESPACE, -2);
+		Assert.assertEquals(numberOfPages - 1, stateMap.getNumberOfSharedPages());
+
+		stateMap.remove(4242L, NAMESPACE);
+		Assert.assertTrue(stateMap.getNumberOfSharedPages() < numberOfPages - 1);
+
+		Assert.assertEquals(expected, readSnapshot(snapshot, IntSerializer.INSTANCE));
+		Assert.assertEquals(Integer.valueOf(-2), stateMap.get(42L, NAMESPACE));
+		Assert.assertFalse(stateMap.containsKey(4242L, NAMESPACE));
+
+		snapshot.release();
+		Assert.assertEquals(0, stateMap.getNumberOfSharedPages());
+	}
+
+	private static <S> Map<Long, S> readSnapshot(
+		PrimitiveKeyStateMapSnapshot<Long, VoidNamespace, S> snapshot,
+		TypeSerializer<S> stateSerializer) throws IOException {
+
+		final DataOutputSerializer out = new DataOutputSerializer(1024);
+		snapshot.writeState(LongSerializer.INSTANCE, VoidNamespaceSerializer.INSTANCE, stateSerializer, out, null);
+
+		final DataInputDeserializer in = new DataInputDeserializer(out.getCopyOfBuffer());
+		final Map<Long, S> result = new HashMap<>();
+		for (int size = in.readInt(); size > 0; --size) {
+			Assert.assertEquals(NAMESPACE, VoidNamespaceSerializer.INSTANCE.deserialize(in));
+			result.put(LongSerializer.INSTANCE.deserialize(in), stateSerializer.deserialize(in));
+		}
+		return result;
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.LongSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+
+/**
+ * Test for {@link PrimitiveKeyStateTable}.
+ */
+public class PrimitiveKeyStateTableTest {
+
+	private static final VoidNamespace NAMESPACE = VoidNamespace.INSTANCE;
+
+	/**
+	 * Tests that the table falls back to {@link CopyOnWriteStateMap}s when a key is not of the type of the key
+	 * serializer, without losing mappings or breaking a running snapshot.
+	 */
+	@Test
+	public void testFallbackForKeysOfOtherType() throws IOException {
+		@SuppressWarnings("unchecked")
+		final TypeSerializer<Object> keySerializer = (TypeSerializer<Object>) (TypeSerializer<?>) LongSerializer.INSTANCE;
+		final RegisteredKeyValueStateBackendMetaInfo<VoidNamespace, String> metaInfo =
+			new RegisteredKeyValueStateBackendMetaInfo<>(
+				StateDescriptor.Type.VALUE,
+				"test",
+				VoidNamespaceSerializer.INSTANCE,
+				StringSerializer.INSTANCE);
+		Assert.assertTrue(PrimitiveKeyStateTable.isSupported(keySerializer, VoidNamespaceSerializer.INSTANCE));
+
+		final MockInternalKeyContext<Object> keyContext = new MockInternalKeyContext<>();
+		final PrimitiveKeyStateTable<Object, VoidNamespace, String> table =
+			new PrimitiveKeyStateTable<>(keyContext, metaInfo, keySerializer);
+
+		keyContext.setCurrentKeyAndKeyGroup(42L);
+		table.put(NAMESPACE, "long");
+		final PrimitiveKeyStateTableSnapshot<Object, VoidNamespace, String> snapshot = table.stateSnapshot();
+		Assert.assertFalse(table.hasCopyOnWriteStateMaps());
+
+		keyContext.setCurrentKeyAndKeyGroup("44");
+		Assert.assertNull(table.get(NAMESPACE));
+		Assert.assertTrue(table.hasCopyOnWriteStateMaps());
+		table.put(NAMESPACE, "string");
+
+		Assert.assertEquals("string", table.get(NAMESPACE));
+		Assert.assertEquals("long", table.get(42L, NAMESPACE));
+		Assert.assertEquals(2, table.size());
+
+		// the snapshot taken before the fallback still refers to the primitive key maps
+		snapshot.getKeyGroupWriter().writeStateInKeyGroup(
+			new DataOutputViewStreamWrapper(new ByteArrayOutputStreamWithPos(1024)), 0);
+		snapshot.release();
+
+		final PrimitiveKeyStateTableSnapshot<Object, VoidNamespace, String> fallbackSnapshot = table.stateSnapshot();
+		Assert.assertTrue(fallbackSnapshot.getStateMapSnapshotForKeyGroup(0) instanceof CopyOnWriteStateMapSnapshot);
+		fallbackSnapshot.release();
+	}
+}
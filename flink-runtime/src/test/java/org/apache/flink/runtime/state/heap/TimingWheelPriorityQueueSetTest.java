@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.runtime.state.InternalPriorityQueueTestBase;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyGroupedInternalPriorityQueue;
+import org.apache.flink.runtime.state.RegisteredPriorityQueueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshot;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Test for {@link TimingWheelPriorityQueueSet}.
+ */
+public class TimingWheelPriorityQueueSetTest extends InternalPriorityQueueTestBase {
+
+	/** Wide buckets, so that the random test priorities share buckets. */
+	private static final long BUCKET_WIDTH = 1L << 58;
+
+	@Override
+	protected TimingWheelPriorityQueueSet<TestElement> newPriorityQueue(int initialCapacity) {
+		return new TimingWheelPriorityQueueSet<>(
+			TEST_ELEMENT_PRIORITY_COMPARATOR,
+			KEY_EXTRACTOR_FUNCTION,
+			TestElementSerializer.INSTANCE,
+			BUCKET_WIDTH,
+			KEY_GROUP_RANGE,
+			KEY_GROUP_RANGE.getNumberOfKeyGroups());
+	}
+
+	@Override
+	protected boolean testSetSemanticsAgainstDuplicateElements() {
+		return true;
+	}
+
+	@Test
+	public void testSameTimestampIsPolledInInsertionOrder() {
+		final TimingWheelPriorityQueueSet<TestElement> priorityQueue = newPriorityQueue(1);
+		final List<TestElement> elements = new ArrayList<>();
+		for (long key = 0; elements.size() < 100; ++key) {
+			final TestElement element = new TestElement(key, 42L);
+			// the order of elements with equal timestamps is only defined within a key-group
+			if (keyGroupOf(element) == KEY_GROUP_RANGE.getStartKeyGroup()) {
+				elements.add(element);
+				priorityQueue.add(element);
+			}
+		}
+
+		for (TestElement element : elements) {
+			Assert.assertEquals(element, priorityQueue.poll());
+		}
+		Assert.assertTrue(priorityQueue.isEmpty());
+	}
+
+	@Test
+	public void testSnapshotIsCompatibleWithHeapPriorityQueueSet() throws Exception {
+		final HeapPriorityQueueSet<TestElement> heapQueue = new HeapPriorityQueueSetTest().newPriorityQueue(1);
+		final TimingWheelPriorityQueueSet<TestElement> timingWheelQueue = newPriorityQueue(1);
+
+		final Set<TestElement> elements = new HashSet<>();
+		insertRandomElements(heapQueue, elements, 500);
+		timingWheelQueue.addAll(elements);
+
+		final StateSnapshot heapSnapshot = newSnapshotRestoreWrapper(heapQueue).stateSnapshot();
+		final StateSnapshot timingWheelSnapshot = newSnapshotRestoreWrapper(timingWheelQueue).stateSnapshot();
+
+		final HeapPriorityQueueSet<TestElement> restoredHeapQueue = new HeapPriorityQueueSetTest().newPriorityQueue(1);
+		final TimingWheelPriorityQueueSet<TestElement> restoredTimingWheelQueue = newPriorityQueue(1);
+
+		for (int keyGroup = KEY_GROUP_RANGE.getStartKeyGroup(); keyGroup <= KEY_GROUP_RANGE.getEndKeyGroup(); ++keyGroup) {
+			final DataOutputSerializer heapOut = new DataOutputSerializer(128);
+			heapSnapshot.getKeyGroupWriter().writeStateInKeyGroup(heapOut, keyGroup);
+			final DataOutputSerializer timingWheelOut = new DataOutputSerializer(128);
+			timingWheelSnapshot.getKeyGroupWriter().writeStateInKeyGroup(timingWheelOut, keyGroup);
+
+			Assert.assertEquals(heapOut.length(), timingWheelOut.length());
+
+			// restore each snapshot into the other implementation
+			newSnapshotRestoreWrapper(restoredTimingWheelQueue).keyGroupReader(0).readMappingsInKeyGroup(
+				new DataInputDeserializer(heapOut.getCopyOfBuffer()), keyGroup);
+			newSnapshotRestoreWrapper(restoredHeapQueue).keyGroupReader(0).readMappingsInKeyGroup(
+				new DataInputDeserializer(timingWheelOut.getCopyOfBuffer()), keyGroup);
+		}
+
+		Assert.assertEquals(elements.size(), restoredTimingWheelQueue.size());
+		Assert.assertEquals(elements.size(), restoredHeapQueue.size());
+		for (TestElement element : elements) {
+			Assert.assertEquals(
+				heapQueue.getSubsetForKeyGroup(keyGroupOf(element)),
+				restoredTimingWheelQueue.getSubsetForKeyGroup(keyGroupOf(element)));
+			Assert.assertEquals(
+				heapQueue.getSubsetForKeyGroup(keyGroupOf(element)),
+				restoredHeapQueue.getSubsetForKeyGroup(keyGroupOf(element)));
+		}
+
+		TestElement last = null;
+		TestElement element;
+		while ((element = restoredTimingWheelQueue.poll()) != null) {
+			Assert.assertTrue(elements.remove(element));
+			if (last != null) {
+				Assert.assertTrue(last.getPriority() <= element.getPriority());
+			}
+			last = element;
+		}
+		Assert.assertTrue(elements.isEmpty());
+	}
+
+	@Test
+	public void testMigrationKeepsElements() {
+		final TimingWheelPriorityQueueSet<TestElement> priorityQueue = newPriorityQueue(1);
+		final Set<TestElement> elements = new HashSet<>();
+		insertRandomElements(priorityQueue, elements, 200);
+
+		priorityQueue.updateElementSerializer(TestElementSerializer.INSTANCE, true);
+
+		Assert.assertEquals(elements.size(), priorityQueue.size());
+		TestElement element;
+		while ((element = priorityQueue.poll()) != null) {
+			Assert.assertTrue(elements.remove(element));
+		}
+		Assert.assertTrue(elements.isEmpty());
+	}
+
+	private static HeapPriorityQueueSnapshotRestoreWrapper<TestElement> newSnapshotRestoreWrapper(
+		KeyGroupedInternalPriorityQueue<TestElement> priorityQueue) {
+
+		return new HeapPriorityQueueSnapshotRestoreWrapper<>(
+			priorityQueue,
+			new RegisteredPriorityQueueStateBackendMetaInfo<>("test", TestElementSerializer.INSTANCE),
+			KEY_EXTRACTOR_FUNCTION,
+			KEY_GROUP_RANGE,
+			KEY_GROUP_RANGE.getNumberOfKeyGroups());
+	}
+
+	private static int keyGroupOf(TestElement element) {
+		return KeyGroupRangeAssignment.assignToKeyGroup(element.getKey(), KEY_GROUP_RANGE.getNumberOfKeyGroups());
+	}
+}
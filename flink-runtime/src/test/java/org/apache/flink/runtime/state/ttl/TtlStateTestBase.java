@@ -423,6 +423,29 @@ public abstract class TtlStateTestBase {
 		assertEquals(UNEXPIRED_AVAIL, ctx().getUpdateEmpty, ctx().get());
 	}
 
+	@Test
+	@SuppressWarnings("unchecked")
+	public void testGetAllOfValueState() throws Exception {
+		assumeThat(ctx, instanceOf(TtlValueStateTestContext.class));
+
+		initTest();
+		TtlValueState<String, String, String> state = (TtlValueState<String, String, String>) ctx().ttlState;
+
+		timeProvider.time = 0;
+		sbetc.setCurrentKey("key1");
+		state.update("value1");
+
+		timeProvider.time = 50;
+		sbetc.setCurrentKey("key2");
+		state.update("value2");
+
+		timeProvider.time = 120;
+		assertEquals(
+			"Only unexpired values should be returned, independent of the current key",
+			Arrays.asList(null, "value2", null),
+			state.getAll(Arrays.asList("key1", "key2", "key3"), "defaultNamespace"));
+	}
+
 	@Test(expected = StateMigrationException.class)
 	public void testRestoreTtlAndRegisterNonTtlStateCompatFailure() throws Exception {
 		assumeThat(this, not(instanceOf(MockTtlStateTest.class)));
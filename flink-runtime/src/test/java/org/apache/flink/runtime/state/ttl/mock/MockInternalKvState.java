@@ -22,11 +22,13 @@ import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.internal.InternalKvState;
 
 import java.util.Map;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
 /** In memory mock internal state base class. */
 abstract class MockInternalKvState<K, N, T> implements InternalKvState<K, N, T> {
 	Supplier<Map<Object, Object>> values;
+	Function<K, Map<Object, Object>> valuesOfKey;
 	private N currentNamespace;
 	private final Supplier<T> emptyValue;
 
@@ -77,6 +79,16 @@ abstract class MockInternalKvState<K, N, T> implements InternalKvState<K, N, T>
 		return (T) getCurrentKeyValues().computeIfAbsent(currentNamespace, n -> emptyValue.get());
 	}
 
+	/**
+	 * Reads the value of the given key and namespace, independent of the current key and without
+	 * adding an entry for it.
+	 */
+	@SuppressWarnings("unchecked")
+	T getInternal(K key, N namespace) {
+		Object value = valuesOfKey.apply(key).get(namespace);
+		return value != null ? (T) value : emptyValue.get();
+	}
+
 	@SuppressWarnings("WeakerAccess")
 	public void updateInternal(T valueToStore) {
 		getCurrentKeyValues().put(currentNamespace, valueToStore);
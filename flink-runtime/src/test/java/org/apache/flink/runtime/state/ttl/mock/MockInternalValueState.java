@@ -23,6 +23,9 @@ import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /** In memory mock internal value state. */
 class MockInternalValueState<K, N, T>
 	extends MockInternalKvState<K, N, T> implements InternalValueState<K, N, T> {
@@ -37,6 +40,15 @@ class MockInternalValueState<K, N, T>
 		updateInternal(value);
 	}
 
+	@Override
+	public List<T> getAll(List<K> keys, N namespace) {
+		List<T> result = new ArrayList<>(keys.size());
+		for (K key : keys) {
+			result.add(getInternal(key, namespace));
+		}
+		return result;
+	}
+
 	@SuppressWarnings({"unchecked", "unused"})
 	static <N, T, S extends State, IS extends S> IS createState(
 		TypeSerializer<N> namespaceSerializer,
@@ -56,6 +56,7 @@ import org.apache.flink.util.FlinkRuntimeException;
 import javax.annotation.Nonnull;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -124,6 +125,9 @@ public class MockKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		((MockInternalKvState<K, N, SV>) state).values = () -> stateValues
 			.computeIfAbsent(stateDesc.getName(), n -> new HashMap<>())
 			.computeIfAbsent(getCurrentKey(), k -> new HashMap<>());
+		((MockInternalKvState<K, N, SV>) state).valuesOfKey = key -> stateValues
+			.getOrDefault(stateDesc.getName(), Collections.emptyMap())
+			.getOrDefault(key, Collections.emptyMap());
 		return state;
 	}
 
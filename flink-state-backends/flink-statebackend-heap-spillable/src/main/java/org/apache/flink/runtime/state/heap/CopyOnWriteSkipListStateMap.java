@@ -1268,6 +1268,15 @@ public final class CopyOnWriteSkipListStateMap<K, N, S> extends StateMap<K, N, S
 		return highestFinishedSnapshotVersion;
 	}
 
+	/**
+	 * Returns whether some snapshot of this map has not been released yet.
+	 */
+	boolean hasUnreleasedSnapshots() {
+		synchronized (snapshotVersions) {
+			return !snapshotVersions.isEmpty();
+		}
+	}
+
 	@VisibleForTesting
 	Set<Integer> getSnapshotVersions() {
 		return snapshotVersions;
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.util.ExecutorThreadFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Periodically samples the heap usage of the JVM. There is one monitor per JVM, which is shared by all
+ * spillable backends, see {@link #getInstance(long)}.
+ *
+ * <p>The used memory is taken from the usage of the heap pools right after their last garbage collection,
+ * which, unlike the current usage, does not contain garbage that is yet to be collected.
+ */
+public class HeapStatusMonitor {
+
+	private static final Logger LOG = LoggerFactory.getLogger(HeapStatusMonitor.class);
+
+	/**
+	 * The monitor of this JVM, created on first use.
+	 */
+	private static HeapStatusMonitor instance;
+
+	private final long checkIntervalMillis;
+
+	private final List<MemoryPoolMXBean> heapMemoryPools;
+
+	private final List<GarbageCollectorMXBean> garbageCollectors;
+
+	private final ScheduledExecutorService checkExecutor;
+
+	/**
+	 * Id of the last sample, only accessed by the check executor.
+	 */
+	private long lastResultId;
+
+	/**
+	 * The last sample.
+	 */
+	private volatile MonitorResult monitorResult;
+
+	HeapStatusMonitor(long checkIntervalMillis) {
+		this.checkIntervalMillis = checkIntervalMillis;
+		this.heapMemoryPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+			.filter(pool -> pool.getType() == MemoryType.HEAP)
+			.collect(Collectors.toList());
+		this.garbageCollectors = ManagementFactory.getGarbageCollectorMXBeans();
+		this.lastResultId = 0L;
+		this.monitorResult = checkHeapStatus();
+		this.checkExecutor = Executors.newSingleThreadScheduledExecutor(
+			new ExecutorThreadFactory("spillable-heap-status-monitor"));
+		this.checkExecutor.scheduleWithFixedDelay(
+			this::runCheck, checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the last sample of the heap status.
+	 */
+	public MonitorResult getMonitorResult() {
+		return monitorResult;
+	}
+
+	public long getCheckIntervalMillis() {
+		return checkIntervalMillis;
+	}
+
+	void shutDown() {
+		checkExecutor.shutdownNow();
+	}
+
+	private void runCheck() {
+		try {
+			monitorResult = checkHeapStatus();
+		}
+		catch (Throwable t) {
+			LOG.warn("Failed to check the heap status.", t);
+		}
+	}
+
+	private MonitorResult checkHeapStatus() {
+		long usedMemory = 0L;
+		for (MemoryPoolMXBean pool : heapMemoryPools) {
+			MemoryUsage usage = pool.getCollectionUsage();
+			usedMemory += (usage != null ? usage : pool.getUsage()).getUsed();
+		}
+
+		long garbageCollections = 0L;
+		for (GarbageCollectorMXBean garbageCollector : garbageCollectors) {
+			garbageCollections += Math.max(0L, garbageCollector.getCollectionCount());
+		}
+
+		return new MonitorResult(
+			++lastResultId, System.currentTimeMillis(), usedMemory, Runtime.getRuntime().maxMemory(), garbageCollections);
+	}
+
+	/**
+	 * Returns the monitor of this JVM, creating it with the given check interval if it does not exist yet.
+	 */
+	public static synchronized HeapStatusMonitor getInstance(long checkIntervalMillis) {
+		if (instance == null) {
+			LOG.info("Starting heap status monitor with a check interval of {} ms.", checkIntervalMillis);
+			instance = new HeapStatusMonitor(checkIntervalMillis);
+		}
+		return instance;
+	}
+
+	/**
+	 * A sample of the heap status.
+	 */
+	public static class MonitorResult {
+
+		private final long id;
+
+		private final long timestamp;
+
+		private final long usedMemory;
+
+		private final long maxMemory;
+
+		private final long garbageCollections;
+
+		MonitorResult(long id, long timestamp, long usedMemory, long maxMemory, long garbageCollections) {
+			this.id = id;
+			this.timestamp = timestamp;
+			this.usedMemory = usedMemory;
+			this.maxMemory = maxMemory;
+			this.garbageCollections = garbageCollections;
+		}
+
+		public long getId() {
+			return id;
+		}
+
+		public long getTimestamp() {
+			return timestamp;
+		}
+
+		public long getUsedMemory() {
+			return usedMemory;
+		}
+
+		public long getMaxMemory() {
+			return maxMemory;
+		}
+
+		/**
+		 * Returns the total number of garbage collections in the JVM when this sample was taken.
+		 */
+		public long getGarbageCollections() {
+			return garbageCollections;
+		}
+
+		@Override
+		public String toString() {
+			return "MonitorResult{" +
+				"id=" + id +
+				", timestamp=" + timestamp +
+				", usedMemory=" + usedMemory +
+				", maxMemory=" + maxMemory +
+				", garbageCollections=" + garbageCollections +
+				'}';
+		}
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Decides which key groups of the {@link SpillableStateTable}s of a backend are spilled out of the heap,
+ * and which are loaded back, based on the samples of a {@link HeapStatusMonitor}.
+ *
+ * <p>A sample is only acted upon if a garbage collection happened since the last decision, so the effect
+ * of a previous spill or load is visible before the next one is made. When the used heap exceeds the spill
+ * threshold, the least accessed on-heap key groups are spilled, largest first among equally accessed ones.
+ * When it falls below the load threshold, the smallest spilled key groups are loaded back.
+ *
+ * <p>This class is not thread safe and must be called from the task thread.
+ */
+public class SpillAndLoadManager {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SpillAndLoadManager.class);
+
+	private final Supplier<HeapStatusMonitor.MonitorResult> heapStatusSupplier;
+
+	private final Supplier<Collection<? extends StateTable<?, ?, ?>>> stateTablesSupplier;
+
+	private final float spillThreshold;
+
+	private final float loadThreshold;
+
+	private final float spillSizeRatio;
+
+	private final float loadSizeRatio;
+
+	private long lastResultId;
+
+	private long lastGarbageCollections;
+
+	public SpillAndLoadManager(
+		Supplier<HeapStatusMonitor.MonitorResult> heapStatusSupplier,
+		Supplier<Collection<? extends StateTable<?, ?, ?>>> stateTablesSupplier,
+		float spillThreshold,
+		float loadThreshold,
+		float spillSizeRatio,
+		float loadSizeRatio) {
+		Preconditions.checkArgument(spillThreshold > 0 && spillThreshold <= 1,
+			"The spill threshold must be in (0, 1], but is " + spillThreshold);
+		Preconditions.checkArgument(loadThreshold >= 0 && loadThreshold < spillThreshold,
+			"The load threshold must be in [0, spill threshold), but is " + loadThreshold);
+		Preconditions.checkArgument(spillSizeRatio > 0 && spillSizeRatio <= 1,
+			"The spill size ratio must be in (0, 1], but is " + spillSizeRatio);
+		Preconditions.checkArgument(loadSizeRatio > 0 && loadSizeRatio <= 1,
+			"The load size ratio must be in (0, 1], but is " + loadSizeRatio);
+		this.heapStatusSupplier = Preconditions.checkNotNull(heapStatusSupplier);
+		this.stateTablesSupplier = Preconditions.checkNotNull(stateTablesSupplier);
+		this.spillThreshold = spillThreshold;
+		this.loadThreshold = loadThreshold;
+		this.spillSizeRatio = spillSizeRatio;
+		this.loadSizeRatio = loadSizeRatio;
+		this.lastResultId = Long.MIN_VALUE;
+		this.lastGarbageCollections = Long.MIN_VALUE;
+	}
+
+	/**
+	 * Checks the last heap status sample and spills or loads key groups if necessary. This is cheap if
+	 * there is no new sample, so it can be called on every record.
+	 */
+	public void checkResource() {
+		HeapStatusMonitor.MonitorResult result = heapStatusSupplier.get();
+		if (result == null || result.getId() == lastResultId) {
+			return;
+		}
+		lastResultId = result.getId();
+
+		if (result.getGarbageCollections() == lastGarbageCollections) {
+			return;
+		}
+		lastGarbageCollections = result.getGarbageCollections();
+
+		double usedRatio = (double) result.getUsedMemory() / result.getMaxMemory();
+		if (usedRatio > spillThreshold) {
+			spill(result);
+		} else if (usedRatio < loadThreshold) {
+			load(result);
+		}
+	}
+
+	private void spill(HeapStatusMonitor.MonitorResult result) {
+		List<KeyGroupCandidate> candidates = collectCandidates(false);
+		long totalSize = candidates.stream().mapToLong(candidate -> candidate.size).sum();
+		if (totalSize == 0L) {
+			return;
+		}
+
+		candidates.sort(Comparator
+			.comparingInt((KeyGroupCandidate candidate) -> candidate.accessCount)
+			.thenComparing(Comparator.comparingInt((KeyGroupCandidate candidate) -> candidate.size).reversed()));
+
+		long sizeToSpill = (long) Math.ceil(totalSize * spillSizeRatio);
+		long spilledSize = 0L;
+		int spilledKeyGroups = 0;
+		for (KeyGroupCandidate candidate : candidates) {
+			if (spilledSize >= sizeToSpill) {
+				break;
+			}
+			candidate.stateTable.spillKeyGroup(candidate.position);
+			spilledSize += candidate.size;
+			spilledKeyGroups++;
+		}
+
+		for (SpillableStateTable<?, ?, ?> stateTable : getSpillableStateTables()) {
+			stateTable.decayAccessCounts();
+		}
+
+		LOG.debug("Spilled {} key groups with {} entries, heap status was {}.", spilledKeyGroups, spilledSize, result);
+	}
+
+	private void load(HeapStatusMonitor.MonitorResult result) {
+		List<KeyGroupCandidate> candidates = collectCandidates(true);
+		if (candidates.isEmpty()) {
+			return;
+		}
+
+		long totalSize = candidates.stream().mapToLong(candidate -> candidate.size).sum();
+		candidates.sort(Comparator.comparingInt((KeyGroupCandidate candidate) -> candidate.size));
+
+		long sizeToLoad = (long) Math.ceil(totalSize * loadSizeRatio);
+		long loadedSize = 0L;
+		int loadedKeyGroups = 0;
+		for (KeyGroupCandidate candidate : candidates) {
+			if (loadedKeyGroups > 0 && loadedSize >= sizeToLoad) {
+				break;
+			}
+			candidate.stateTable.loadKeyGroup(candidate.position);
+			loadedSize += candidate.size;
+			loadedKeyGroups++;
+		}
+
+		LOG.debug("Loaded {} key groups with {} entries, heap status was {}.", loadedKeyGroups, loadedSize, result);
+	}
+
+	private List<KeyGroupCandidate> collectCandidates(boolean spilled) {
+		List<KeyGroupCandidate> candidates = new ArrayList<>();
+		for (SpillableStateTable<?, ?, ?> stateTable : getSpillableStateTables()) {
+			for (int position = 0; position < stateTable.getNumberOfKeyGroups(); position++) {
+				int size = stateTable.getKeyGroupSize(position);
+				if (stateTable.isSpilled(position) == spilled && (spilled || size > 0)) {
+					candidates.add(new KeyGroupCandidate(
+						stateTable, position, size, stateTable.getAccessCount(position)));
+				}
+			}
+		}
+		return candidates;
+	}
+
+	private List<SpillableStateTable<?, ?, ?>> getSpillableStateTables() {
+		List<SpillableStateTable<?, ?, ?>> stateTables = new ArrayList<>();
+		for (StateTable<?, ?, ?> stateTable : stateTablesSupplier.get()) {
+			if (stateTable instanceof SpillableStateTable) {
+				stateTables.add((SpillableStateTable<?, ?, ?>) stateTable);
+			}
+		}
+		return stateTables;
+	}
+
+	/**
+	 * A key group of a state table that may be spilled or loaded.
+	 */
+	private static final class KeyGroupCandidate {
+
+		final SpillableStateTable<?, ?, ?> stateTable;
+
+		final int position;
+
+		final int size;
+
+		final int accessCount;
+
+		KeyGroupCandidate(SpillableStateTable<?, ?, ?> stateTable, int position, int size, int accessCount) {
+			this.stateTable = stateTable;
+			this.position = position;
+			this.size = size;
+			this.accessCount = accessCount;
+		}
+	}
+}
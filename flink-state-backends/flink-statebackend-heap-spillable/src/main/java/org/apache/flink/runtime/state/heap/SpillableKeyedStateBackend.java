@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.heap.space.Allocator;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+
+/**
+ * A {@link HeapKeyedStateBackend} that moves cold key groups out of the heap when the heap runs full, and
+ * back when there is enough free heap again. The key groups are held in {@link SpillableStateTable}s, and
+ * the {@link SpillAndLoadManager} decides what to move whenever the current key changes.
+ *
+ * <p>Snapshots and restores are the ones of the {@link HeapKeyedStateBackend}, so both backends can restore
+ * each other's checkpoints and savepoints.
+ *
+ * @param <K> The key by which state is keyed.
+ */
+public class SpillableKeyedStateBackend<K> extends HeapKeyedStateBackend<K> {
+
+	private static final Logger LOG = LoggerFactory.getLogger(SpillableKeyedStateBackend.class);
+
+	/**
+	 * Map of registered Key/Value states, shared with the super class.
+	 */
+	private final Map<String, StateTable<K, ?, ?>> registeredKVStates;
+
+	private final SpillAndLoadManager spillAndLoadManager;
+
+	/**
+	 * The allocator for the space of the spilled key groups.
+	 */
+	private final Allocator spaceAllocator;
+
+	public SpillableKeyedStateBackend(
+		TaskKvStateRegistry kvStateRegistry,
+		TypeSerializer<K> keySerializer,
+		ClassLoader userCodeClassLoader,
+		ExecutionConfig executionConfig,
+		TtlTimeProvider ttlTimeProvider,
+		CloseableRegistry cancelStreamRegistry,
+		StreamCompressionDecorator keyGroupCompressionDecorator,
+		Map<String, StateTable<K, ?, ?>> registeredKVStates,
+		Map<String, HeapPriorityQueueSnapshotRestoreWrapper> registeredPQStates,
+		LocalRecoveryConfig localRecoveryConfig,
+		HeapPriorityQueueSetFactory priorityQueueSetFactory,
+		HeapSnapshotStrategy<K> snapshotStrategy,
+		InternalKeyContext<K> keyContext,
+		SpillAndLoadManager spillAndLoadManager,
+		Allocator spaceAllocator) {
+		super(
+			kvStateRegistry,
+			keySerializer,
+			userCodeClassLoader,
+			executionConfig,
+			ttlTimeProvider,
+			cancelStreamRegistry,
+			keyGroupCompressionDecorator,
+			registeredKVStates,
+			registeredPQStates,
+			localRecoveryConfig,
+			priorityQueueSetFactory,
+			snapshotStrategy,
+			keyContext,
+			null);
+		this.registeredKVStates = registeredKVStates;
+		this.spillAndLoadManager = Preconditions.checkNotNull(spillAndLoadManager);
+		this.spaceAllocator = Preconditions.checkNotNull(spaceAllocator);
+		LOG.info("Initializing spillable heap keyed state backend.");
+	}
+
+	@Override
+	public void setCurrentKeyAndKeyGroup(K newKey, int keyGroup) {
+		super.setCurrentKeyAndKeyGroup(newKey, keyGroup);
+		spillAndLoadManager.checkResource();
+	}
+
+	@Override
+	public void dispose() {
+		super.dispose();
+
+		for (StateTable<K, ?, ?> stateTable : registeredKVStates.values()) {
+			if (stateTable instanceof SpillableStateTable) {
+				((SpillableStateTable<K, ?, ?>) stateTable).close();
+			}
+		}
+		IOUtils.closeQuietly(spaceAllocator);
+	}
+}
@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackendBuilder;
+import org.apache.flink.runtime.state.BackendBuildingException;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.LocalRecoveryConfig;
+import org.apache.flink.runtime.state.StreamCompressionDecorator;
+import org.apache.flink.runtime.state.heap.space.ChunkAllocator;
+import org.apache.flink.runtime.state.heap.space.DirectBufferChunkAllocator;
+import org.apache.flink.runtime.state.heap.space.MmapChunkAllocator;
+import org.apache.flink.runtime.state.heap.space.SpaceAllocator;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Builder class for {@link SpillableKeyedStateBackend} which handles all necessary initializations and clean ups.
+ *
+ * @param <K> The data type that the key serializer serializes.
+ */
+public class SpillableKeyedStateBackendBuilder<K> extends AbstractKeyedStateBackendBuilder<K> {
+	/**
+	 * The configuration of local recovery.
+	 */
+	private final LocalRecoveryConfig localRecoveryConfig;
+	/**
+	 * Factory for state that is organized as priority queue.
+	 */
+	private final HeapPriorityQueueSetFactory priorityQueueSetFactory;
+	/**
+	 * Supplies the samples of the heap status.
+	 */
+	private final Supplier<HeapStatusMonitor.MonitorResult> heapStatusSupplier;
+	/**
+	 * Ratio of used heap above which key groups are spilled.
+	 */
+	private float spillThreshold;
+	/**
+	 * Ratio of used heap below which spilled key groups are loaded.
+	 */
+	private float loadThreshold;
+	/**
+	 * Ratio of the on-heap entries to spill at once.
+	 */
+	private float spillSizeRatio;
+	/**
+	 * Ratio of the spilled entries to load at once.
+	 */
+	private float loadSizeRatio;
+	/**
+	 * Size of the chunks that hold the spilled key groups.
+	 */
+	private int chunkSize;
+	/**
+	 * Directories for the memory mapped chunks, or null to keep the chunks in direct memory.
+	 */
+	@Nullable
+	private File[] mmapDirectories;
+
+	public SpillableKeyedStateBackendBuilder(
+		TaskKvStateRegistry kvStateRegistry,
+		TypeSerializer<K> keySerializer,
+		ClassLoader userCodeClassLoader,
+		int numberOfKeyGroups,
+		KeyGroupRange keyGroupRange,
+		ExecutionConfig executionConfig,
+		TtlTimeProvider ttlTimeProvider,
+		@Nonnull Collection<KeyedStateHandle> stateHandles,
+		StreamCompressionDecorator keyGroupCompressionDecorator,
+		LocalRecoveryConfig localRecoveryConfig,
+		HeapPriorityQueueSetFactory priorityQueueSetFactory,
+		Supplier<HeapStatusMonitor.MonitorResult> heapStatusSupplier,
+		CloseableRegistry cancelStreamRegistry) {
+		super(
+			kvStateRegistry,
+			keySerializer,
+			userCodeClassLoader,
+			numberOfKeyGroups,
+			keyGroupRange,
+			executionConfig,
+			ttlTimeProvider,
+			stateHandles,
+			keyGroupCompressionDecorator,
+			cancelStreamRegistry);
+		this.localRecoveryConfig = localRecoveryConfig;
+		this.priorityQueueSetFactory = priorityQueueSetFactory;
+		this.heapStatusSupplier = Preconditions.checkNotNull(heapStatusSupplier);
+		this.spillThreshold = SpillableOptions.SPILL_THRESHOLD.defaultValue();
+		this.loadThreshold = SpillableOptions.LOAD_THRESHOLD.defaultValue();
+		this.spillSizeRatio = SpillableOptions.SPILL_SIZE_RATIO.defaultValue();
+		this.loadSizeRatio = SpillableOptions.LOAD_SIZE_RATIO.defaultValue();
+		this.chunkSize = (int) SpillableOptions.CHUNK_SIZE.defaultValue().getBytes();
+		this.mmapDirectories = null;
+	}
+
+	public SpillableKeyedStateBackendBuilder<K> setSpillThreshold(float spillThreshold) {
+		this.spillThreshold = spillThreshold;
+		return this;
+	}
+
+	public SpillableKeyedStateBackendBuilder<K> setLoadThreshold(float loadThreshold) {
+		this.loadThreshold = loadThreshold;
+		return this;
+	}
+
+	public SpillableKeyedStateBackendBuilder<K> setSpillSizeRatio(float spillSizeRatio) {
+		this.spillSizeRatio = spillSizeRatio;
+		return this;
+	}
+
+	public SpillableKeyedStateBackendBuilder<K> setLoadSizeRatio(float loadSizeRatio) {
+		this.loadSizeRatio = loadSizeRatio;
+		return this;
+	}
+
+	public SpillableKeyedStateBackendBuilder<K> setChunkSize(int chunkSize) {
+		Preconditions.checkArgument(chunkSize > 0, "The chunk size must be positive.");
+		this.chunkSize = chunkSize;
+		return this;
+	}
+
+	public SpillableKeyedStateBackendBuilder<K> setMmapDirectories(@Nullable File[] mmapDirectories) {
+		this.mmapDirectories = mmapDirectories;
+		return this;
+	}
+
+	@Override
+	public SpillableKeyedStateBackend<K> build() throws BackendBuildingException {
+		// Map of registered Key/Value states
+		Map<String, StateTable<K, ?, ?>> registeredKVStates = new HashMap<>();
+		// Map of registered priority queue set states
+		Map<String, HeapPriorityQueueSnapshotRestoreWrapper> registeredPQStates = new HashMap<>();
+		CloseableRegistry cancelStreamRegistryForBackend = new CloseableRegistry();
+		SpillAndLoadManager spillAndLoadManager = new SpillAndLoadManager(
+			heapStatusSupplier,
+			registeredKVStates::values,
+			spillThreshold,
+			loadThreshold,
+			spillSizeRatio,
+			loadSizeRatio);
+		ChunkAllocator chunkAllocator = mmapDirectories != null ?
+			new MmapChunkAllocator(mmapDirectories) :
+			new DirectBufferChunkAllocator();
+		SpaceAllocator spaceAllocator = new SpaceAllocator(chunkAllocator, chunkSize);
+		HeapSnapshotStrategy<K> snapshotStrategy = new HeapSnapshotStrategy<>(
+			new SpillableSnapshotStrategySynchronicityBehavior<>(spaceAllocator),
+			registeredKVStates,
+			registeredPQStates,
+			keyGroupCompressionDecorator,
+			localRecoveryConfig,
+			keyGroupRange,
+			cancelStreamRegistryForBackend,
+			keySerializerProvider);
+		InternalKeyContext<K> keyContext = new InternalKeyContextImpl<>(
+			keyGroupRange,
+			numberOfKeyGroups
+		);
+		HeapRestoreOperation<K> restoreOperation = new HeapRestoreOperation<>(
+			restoreStateHandles,
+			keySerializerProvider,
+			userCodeClassLoader,
+			registeredKVStates,
+			registeredPQStates,
+			cancelStreamRegistry,
+			priorityQueueSetFactory,
+			keyGroupRange,
+			numberOfKeyGroups,
+			snapshotStrategy,
+			keyContext);
+		try {
+			restoreOperation.restore();
+		} catch (Exception e) {
+			IOUtils.closeQuietly(spaceAllocator);
+			throw new BackendBuildingException("Failed when trying to restore spillable heap backend", e);
+		}
+		return new SpillableKeyedStateBackend<>(
+			kvStateRegistry,
+			keySerializerProvider.currentSchemaSerializer(),
+			userCodeClassLoader,
+			executionConfig,
+			ttlTimeProvider,
+			cancelStreamRegistryForBackend,
+			keyGroupCompressionDecorator,
+			registeredKVStates,
+			registeredPQStates,
+			localRecoveryConfig,
+			priorityQueueSetFactory,
+			snapshotStrategy,
+			keyContext,
+			spillAndLoadManager,
+			spaceAllocator);
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.ConfigOptions;
+import org.apache.flink.configuration.MemorySize;
+
+import java.time.Duration;
+
+/**
+ * Configuration options for the spillable heap state backend.
+ */
+public class SpillableOptions {
+
+	/**
+	 * Interval at which the heap status is sampled.
+	 */
+	public static final ConfigOption<Duration> HEAP_STATUS_CHECK_INTERVAL = ConfigOptions
+		.key("state.backend.spillable.heap-status.check-interval")
+		.durationType()
+		.defaultValue(Duration.ofSeconds(1))
+		.withDescription("Interval at which the heap usage is sampled to decide whether key groups " +
+			"should be spilled or loaded.");
+
+	/**
+	 * Ratio of used heap above which key groups are spilled.
+	 */
+	public static final ConfigOption<Float> SPILL_THRESHOLD = ConfigOptions
+		.key("state.backend.spillable.spill-threshold")
+		.floatType()
+		.defaultValue(0.7f)
+		.withDescription("Ratio of the maximum heap size. If the heap usage after the last garbage collection " +
+			"exceeds this ratio, the coldest key groups are spilled out of the heap.");
+
+	/**
+	 * Ratio of used heap below which spilled key groups are loaded.
+	 */
+	public static final ConfigOption<Float> LOAD_THRESHOLD = ConfigOptions
+		.key("state.backend.spillable.load-threshold")
+		.floatType()
+		.defaultValue(0.5f)
+		.withDescription("Ratio of the maximum heap size. If the heap usage after the last garbage collection " +
+			"falls below this ratio, spilled key groups are loaded back onto the heap. Must be lower than " +
+			"the spill threshold.");
+
+	/**
+	 * Ratio of the on-heap state to spill at once.
+	 */
+	public static final ConfigOption<Float> SPILL_SIZE_RATIO = ConfigOptions
+		.key("state.backend.spillable.spill-size-ratio")
+		.floatType()
+		.defaultValue(0.2f)
+		.withDescription("Ratio of the on-heap state entries to spill each time the spill threshold is exceeded.");
+
+	/**
+	 * Ratio of the spilled state to load at once.
+	 */
+	public static final ConfigOption<Float> LOAD_SIZE_RATIO = ConfigOptions
+		.key("state.backend.spillable.load-size-ratio")
+		.floatType()
+		.defaultValue(0.1f)
+		.withDescription("Ratio of the spilled state entries to load each time the heap usage falls below " +
+			"the load threshold.");
+
+	/**
+	 * Size of the chunks that hold the spilled state.
+	 */
+	public static final ConfigOption<MemorySize> CHUNK_SIZE = ConfigOptions
+		.key("state.backend.spillable.chunk-size")
+		.memoryType()
+		.defaultValue(MemorySize.parse("16mb"))
+		.withDescription("Size of the off-heap or memory mapped chunks that hold the spilled state. " +
+			"Larger values are given their own chunk.");
+
+	/**
+	 * Whether spilled state lives in memory mapped files instead of direct memory.
+	 */
+	public static final ConfigOption<Boolean> MMAP_ENABLED = ConfigOptions
+		.key("state.backend.spillable.mmap.enabled")
+		.booleanType()
+		.defaultValue(false)
+		.withDescription("If true, spilled state is kept in memory mapped files in the task manager's temporary " +
+			"directories instead of direct memory.");
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.JobID;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.configuration.ConfigOption;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.runtime.execution.Environment;
+import org.apache.flink.runtime.query.TaskKvStateRegistry;
+import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
+import org.apache.flink.runtime.state.AbstractStateBackend;
+import org.apache.flink.runtime.state.BackendBuildingException;
+import org.apache.flink.runtime.state.CheckpointStorage;
+import org.apache.flink.runtime.state.CompletedCheckpointStorageLocation;
+import org.apache.flink.runtime.state.ConfigurableStateBackend;
+import org.apache.flink.runtime.state.DefaultOperatorStateBackendBuilder;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyedStateHandle;
+import org.apache.flink.runtime.state.OperatorStateBackend;
+import org.apache.flink.runtime.state.OperatorStateHandle;
+import org.apache.flink.runtime.state.StateBackend;
+import org.apache.flink.runtime.state.filesystem.FsStateBackend;
+import org.apache.flink.runtime.state.ttl.TtlTimeProvider;
+
+import javax.annotation.Nonnull;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * A state backend that holds the keyed state on the heap like the {@link FsStateBackend}, but moves cold
+ * key groups out of the heap when the heap usage gets high, see {@link SpillableKeyedStateBackend}.
+ * Snapshots are always asynchronous, and are compatible with the snapshots of the heap keyed state backend.
+ *
+ * <p>The checkpoint and savepoint streams are written with the storage of the given checkpoint stream
+ * backend, typically a {@link FsStateBackend}. Operator state is held on the heap.
+ *
+ * <p>The spilling is configured with the options in {@link SpillableOptions}.
+ */
+public class SpillableStateBackend extends AbstractStateBackend implements ConfigurableStateBackend {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final List<ConfigOption<?>> SPILLABLE_OPTIONS = Arrays.asList(
+		SpillableOptions.HEAP_STATUS_CHECK_INTERVAL,
+		SpillableOptions.SPILL_THRESHOLD,
+		SpillableOptions.LOAD_THRESHOLD,
+		SpillableOptions.SPILL_SIZE_RATIO,
+		SpillableOptions.LOAD_SIZE_RATIO,
+		SpillableOptions.CHUNK_SIZE,
+		SpillableOptions.MMAP_ENABLED);
+
+	/** The state backend that we use for creating checkpoint streams. */
+	private final StateBackend checkpointStreamBackend;
+
+	/** The spilling options, either set explicitly or resolved from the configuration. */
+	private final Configuration configuration;
+
+	/**
+	 * Creates a new {@code SpillableStateBackend} that stores its checkpoint data in the
+	 * file system and location defined by the given URI.
+	 *
+	 * @param checkpointDataUri The URI describing the filesystem and path to the checkpoint data directory.
+	 */
+	public SpillableStateBackend(String checkpointDataUri) {
+		this(new FsStateBackend(checkpointDataUri));
+	}
+
+	/**
+	 * Creates a new {@code SpillableStateBackend} that uses the given state backend to store its
+	 * checkpoint data streams.
+	 *
+	 * @param checkpointStreamBackend The backend write the checkpoint streams to.
+	 */
+	public SpillableStateBackend(StateBackend checkpointStreamBackend) {
+		this.checkpointStreamBackend = checkNotNull(checkpointStreamBackend);
+		this.configuration = new Configuration();
+	}
+
+	/**
+	 * Private constructor that creates a re-configured copy of the state backend.
+	 *
+	 * @param original The state backend to re-configure.
+	 * @param config The configuration.
+	 * @param classLoader The class loader.
+	 */
+	@SuppressWarnings("unchecked")
+	private SpillableStateBackend(SpillableStateBackend original, ReadableConfig config, ClassLoader classLoader) {
+		// reconfigure the state backend backing the streams
+		final StateBackend originalStreamBackend = original.checkpointStreamBackend;
+		this.checkpointStreamBackend = originalStreamBackend instanceof ConfigurableStateBackend ?
+			((ConfigurableStateBackend) originalStreamBackend).configure(config, classLoader) :
+			originalStreamBackend;
+
+		this.configuration = new Configuration(original.configuration);
+		for (ConfigOption<?> option : SPILLABLE_OPTIONS) {
+			if (!configuration.contains(option)) {
+				configuration.set((ConfigOption<Object>) option, config.get(option));
+			}
+		}
+	}
+
+	@Override
+	public SpillableStateBackend configure(ReadableConfig config, ClassLoader classLoader) {
+		return new SpillableStateBackend(this, config, classLoader);
+	}
+
+	/**
+	 * Sets a spilling option, taking precedence over the configuration.
+	 *
+	 * @param option One of the options in {@link SpillableOptions}.
+	 * @param value The value of the option.
+	 */
+	public <T> void setOption(ConfigOption<T> option, T value) {
+		configuration.set(option, value);
+	}
+
+	/**
+	 * Gets the state backend that this spillable state backend uses to persist its bytes to.
+	 */
+	public StateBackend getCheckpointBackend() {
+		return checkpointStreamBackend;
+	}
+
+	// ------------------------------------------------------------------------
+	//  Checkpoint initialization and persistent storage
+	// ------------------------------------------------------------------------
+
+	@Override
+	public CompletedCheckpointStorageLocation resolveCheckpoint(String pointer) throws IOException {
+		return checkpointStreamBackend.resolveCheckpoint(pointer);
+	}
+
+	@Override
+	public CheckpointStorage createCheckpointStorage(JobID jobId) throws IOException {
+		return checkpointStreamBackend.createCheckpointStorage(jobId);
+	}
+
+	// ------------------------------------------------------------------------
+	//  state holding structures
+	// ------------------------------------------------------------------------
+
+	@Override
+	public <K> AbstractKeyedStateBackend<K> createKeyedStateBackend(
+		Environment env,
+		JobID jobID,
+		String operatorIdentifier,
+		TypeSerializer<K> keySerializer,
+		int numberOfKeyGroups,
+		KeyGroupRange keyGroupRange,
+		TaskKvStateRegistry kvStateRegistry,
+		TtlTimeProvider ttlTimeProvider,
+		MetricGroup metricGroup,
+		@Nonnull Collection<KeyedStateHandle> stateHandles,
+		CloseableRegistry cancelStreamRegistry) throws BackendBuildingException {
+
+		HeapPriorityQueueSetFactory priorityQueueSetFactory =
+			new HeapPriorityQueueSetFactory(keyGroupRange, numberOfKeyGroups, 128);
+		HeapStatusMonitor heapStatusMonitor =
+			HeapStatusMonitor.getInstance(configuration.get(SpillableOptions.HEAP_STATUS_CHECK_INTERVAL).toMillis());
+
+		return new SpillableKeyedStateBackendBuilder<>(
+			kvStateRegistry,
+			keySerializer,
+			env.getUserClassLoader(),
+			numberOfKeyGroups,
+			keyGroupRange,
+			env.getExecutionConfig(),
+			ttlTimeProvider,
+			stateHandles,
+			AbstractStateBackend.getCompressionDecorator(env.getExecutionConfig()),
+			env.getTaskStateManager().createLocalRecoveryConfig(),
+			priorityQueueSetFactory,
+			heapStatusMonitor::getMonitorResult,
+			cancelStreamRegistry)
+			.setSpillThreshold(configuration.get(SpillableOptions.SPILL_THRESHOLD))
+			.setLoadThreshold(configuration.get(SpillableOptions.LOAD_THRESHOLD))
+			.setSpillSizeRatio(configuration.get(SpillableOptions.SPILL_SIZE_RATIO))
+			.setLoadSizeRatio(configuration.get(SpillableOptions.LOAD_SIZE_RATIO))
+			.setChunkSize((int) configuration.get(SpillableOptions.CHUNK_SIZE).getBytes())
+			.setMmapDirectories(configuration.get(SpillableOptions.MMAP_ENABLED) ?
+				env.getIOManager().getSpillingDirectories() : null)
+			.build();
+	}
+
+	@Override
+	public OperatorStateBackend createOperatorStateBackend(
+		Environment env,
+		String operatorIdentifier,
+		@Nonnull Collection<OperatorStateHandle> stateHandles,
+		CloseableRegistry cancelStreamRegistry) throws BackendBuildingException {
+
+		return new DefaultOperatorStateBackendBuilder(
+			env.getUserClassLoader(),
+			env.getExecutionConfig(),
+			true,
+			stateHandles,
+			cancelStreamRegistry).build();
+	}
+
+	@Override
+	public String toString() {
+		return "SpillableStateBackend{" +
+			"checkpointStreamBackend=" + checkpointStreamBackend +
+			", configuration=" + configuration +
+			'}';
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.heap.space.Allocator;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nonnull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.apache.flink.runtime.state.heap.CopyOnWriteSkipListStateMap.DEFAULT_LOGICAL_REMOVED_KEYS_RATIO;
+import static org.apache.flink.runtime.state.heap.CopyOnWriteSkipListStateMap.DEFAULT_MAX_KEYS_TO_DELETE_ONE_TIME;
+
+/**
+ * A {@link StateTable} whose key groups are either kept on the heap in {@link CopyOnWriteStateMap}s, or
+ * spilled in serialized form to {@link CopyOnWriteSkipListStateMap}s outside of the heap. Which key groups
+ * are spilled is decided by the {@link SpillAndLoadManager}, based on the accesses counted per key group.
+ *
+ * <p>A spilled key group is served in place by a {@link SpilledStateMap}, which writes the states that are
+ * mutated in place by the heap states back to the serialized form. Accesses never load a spilled key group
+ * back onto the heap, this is only done by the {@link SpillAndLoadManager} when there is enough free heap.
+ *
+ * <p>Both kinds of maps write the same snapshot format, so snapshots of this table can be restored by the
+ * {@link HeapKeyedStateBackend} and vice versa.
+ *
+ * @param <K> type of key
+ * @param <N> type of namespace
+ * @param <S> type of state
+ */
+public class SpillableStateTable<K, N, S> extends StateTable<K, N, S> {
+
+	/**
+	 * The allocator for the space of spilled key groups.
+	 */
+	private final Allocator spaceAllocator;
+
+	/**
+	 * Number of accesses per key group since the last spill.
+	 */
+	private final int[] accessCounts;
+
+	/**
+	 * Replaced maps of spilled key groups that could not be closed yet, because some snapshot still reads them.
+	 */
+	private final List<CopyOnWriteSkipListStateMap<K, N, S>> retiredStateMaps;
+
+	SpillableStateTable(
+		InternalKeyContext<K> keyContext,
+		RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo,
+		TypeSerializer<K> keySerializer,
+		Allocator spaceAllocator) {
+		super(keyContext, metaInfo, keySerializer);
+		this.spaceAllocator = Preconditions.checkNotNull(spaceAllocator);
+		this.accessCounts = new int[keyGroupedStateMaps.length];
+		this.retiredStateMaps = new ArrayList<>();
+	}
+
+	@Override
+	protected CopyOnWriteStateMap<K, N, S> createStateMap() {
+		return new CopyOnWriteStateMap<>(getStateSerializer());
+	}
+
+	@Override
+	protected StateMap<K, N, S> getMapForKeyGroup(int keyGroupIndex) {
+		final int pos = keyGroupIndex - keyGroupOffset;
+		if (pos < 0 || pos >= keyGroupedStateMaps.length) {
+			return null;
+		}
+
+		if (accessCounts[pos] < Integer.MAX_VALUE) {
+			accessCounts[pos]++;
+		}
+		return keyGroupedStateMaps[pos];
+	}
+
+	/**
+	 * Reads the state without handing it out for write-back or counting an access, because this is called
+	 * by queryable state from outside of the task thread.
+	 */
+	@Override
+	public S get(K key, N namespace) {
+		int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(key, keyContext.getNumberOfKeyGroups());
+		int pos = keyGroup - keyGroupOffset;
+		if (pos < 0 || pos >= keyGroupedStateMaps.length) {
+			return null;
+		}
+		StateMap<K, N, S> stateMap = keyGroupedStateMaps[pos];
+		return stateMap instanceof SpilledStateMap
+			? ((SpilledStateMap<K, N, S>) stateMap).getWithoutWriteBack(key, namespace)
+			: stateMap.get(key, namespace);
+	}
+
+	/**
+	 * Re-serializes the spilled key groups outside of the heap when the state serializer changes, because
+	 * they are serialized with the previous one.
+	 */
+	@Override
+	public void setMetaInfo(RegisteredKeyValueStateBackendMetaInfo<N, S> metaInfo) {
+		boolean serializersChanged = !metaInfo.getStateSerializer().equals(getStateSerializer())
+			|| !metaInfo.getNamespaceSerializer().equals(getNamespaceSerializer());
+		super.setMetaInfo(metaInfo);
+		if (serializersChanged) {
+			for (int pos = 0; pos < keyGroupedStateMaps.length; pos++) {
+				if (isSpilled(pos)) {
+					CopyOnWriteSkipListStateMap<K, N, S> previousStateMap =
+						((SpilledStateMap<K, N, S>) keyGroupedStateMaps[pos]).getSpilledStateMap();
+					keyGroupedStateMaps[pos] = createSpilledStateMap(previousStateMap);
+					retiredStateMaps.add(previousStateMap);
+				}
+			}
+			closeReleasedStateMaps();
+		}
+	}
+
+	// Spilling and loading ---------------------------------------------------------------------------------------------
+
+	int getNumberOfKeyGroups() {
+		return keyGroupedStateMaps.length;
+	}
+
+	boolean isSpilled(int pos) {
+		return keyGroupedStateMaps[pos] instanceof SpilledStateMap;
+	}
+
+	int getKeyGroupSize(int pos) {
+		return keyGroupedStateMaps[pos].size();
+	}
+
+	int getAccessCount(int pos) {
+		return accessCounts[pos];
+	}
+
+	/**
+	 * Halves the access counts, so that the decisions follow changes of the access pattern.
+	 */
+	void decayAccessCounts() {
+		for (int pos = 0; pos < accessCounts.length; pos++) {
+			accessCounts[pos] >>>= 1;
+		}
+	}
+
+	/**
+	 * Moves the key group at the given position out of the heap.
+	 */
+	void spillKeyGroup(int pos) {
+		Preconditions.checkState(!isSpilled(pos), "Key group at position %s is already spilled.", pos);
+		closeReleasedStateMaps();
+
+		// a running snapshot keeps reading the heap map through its own copy-on-write view
+		keyGroupedStateMaps[pos] = createSpilledStateMap(keyGroupedStateMaps[pos]);
+	}
+
+	/**
+	 * Moves the spilled key group at the given position back onto the heap.
+	 */
+	void loadKeyGroup(int pos) {
+		Preconditions.checkState(isSpilled(pos), "Key group at position %s is not spilled.", pos);
+
+		CopyOnWriteSkipListStateMap<K, N, S> spilledStateMap =
+			((SpilledStateMap<K, N, S>) keyGroupedStateMaps[pos]).getSpilledStateMap();
+		CopyOnWriteStateMap<K, N, S> stateMap = createStateMap();
+		for (StateEntry<K, N, S> entry : spilledStateMap) {
+			stateMap.put(entry.getKey(), entry.getNamespace(), entry.getState());
+		}
+		keyGroupedStateMaps[pos] = stateMap;
+
+		retiredStateMaps.add(spilledStateMap);
+		closeReleasedStateMaps();
+	}
+
+	/**
+	 * Creates a map outside of the heap with the current serializers, which holds the entries of the given map.
+	 */
+	private SpilledStateMap<K, N, S> createSpilledStateMap(StateMap<K, N, S> stateMap) {
+		CopyOnWriteSkipListStateMap<K, N, S> spilledStateMap = new CopyOnWriteSkipListStateMap<>(
+			getKeySerializer(),
+			getNamespaceSerializer(),
+			getStateSerializer(),
+			spaceAllocator,
+			DEFAULT_MAX_KEYS_TO_DELETE_ONE_TIME,
+			DEFAULT_LOGICAL_REMOVED_KEYS_RATIO);
+		for (StateEntry<K, N, S> entry : stateMap) {
+			spilledStateMap.put(entry.getKey(), entry.getNamespace(), entry.getState());
+		}
+		return new SpilledStateMap<>(spilledStateMap, isMutatedInPlace());
+	}
+
+	/**
+	 * Returns whether the heap states of this table mutate the state objects in place, so that a spilled key
+	 * group has to write them back. The other heap states replace the state objects, or use transformations.
+	 */
+	private boolean isMutatedInPlace() {
+		StateDescriptor.Type stateType = getMetaInfo().getStateType();
+		return stateType != StateDescriptor.Type.VALUE
+			&& stateType != StateDescriptor.Type.REDUCING
+			&& stateType != StateDescriptor.Type.AGGREGATING
+			&& stateType != StateDescriptor.Type.FOLDING;
+	}
+
+	/**
+	 * Closes the retired maps that are no longer read by any snapshot, which frees their space.
+	 */
+	private void closeReleasedStateMaps() {
+		Iterator<CopyOnWriteSkipListStateMap<K, N, S>> iterator = retiredStateMaps.iterator();
+		while (iterator.hasNext()) {
+			CopyOnWriteSkipListStateMap<K, N, S> stateMap = iterator.next();
+			if (!stateMap.hasUnreleasedSnapshots()) {
+				stateMap.close();
+				iterator.remove();
+			}
+		}
+	}
+
+	/**
+	 * Closes all spilled and retired maps. This waits for running snapshots of these maps to finish.
+	 */
+	void close() {
+		for (int pos = 0; pos < keyGroupedStateMaps.length; pos++) {
+			if (isSpilled(pos)) {
+				retiredStateMaps.add(((SpilledStateMap<K, N, S>) keyGroupedStateMaps[pos]).getSpilledStateMap());
+				keyGroupedStateMaps[pos] = createStateMap();
+			}
+		}
+		for (CopyOnWriteSkipListStateMap<K, N, S> stateMap : retiredStateMaps) {
+			stateMap.close();
+		}
+		retiredStateMaps.clear();
+	}
+
+	// Snapshotting ----------------------------------------------------------------------------------------------------
+
+	@Nonnull
+	@Override
+	public SpillableStateTableSnapshot<K, N, S> stateSnapshot() {
+		closeReleasedStateMaps();
+		return new SpillableStateTableSnapshot<>(
+			this,
+			getKeySerializer().duplicate(),
+			getNamespaceSerializer().duplicate(),
+			getStateSerializer().duplicate(),
+			getMetaInfo().getStateSnapshotTransformFactory().createForDeserializedState().orElse(null));
+	}
+
+	List<StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>>> getStateMapSnapshotList() {
+		List<StateMapSnapshot<K, N, S, ? extends StateMap<K, N, S>>> snapshotList =
+			new ArrayList<>(keyGroupedStateMaps.length);
+		for (StateMap<K, N, S> stateMap : keyGroupedStateMaps) {
+			snapshotList.add(stateMap.stateSnapshot());
+		}
+		return snapshotList;
+	}
+}
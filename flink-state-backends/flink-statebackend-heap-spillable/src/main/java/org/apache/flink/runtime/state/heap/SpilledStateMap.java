@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.runtime.state.StateEntry;
+import org.apache.flink.runtime.state.StateTransformationFunction;
+import org.apache.flink.runtime.state.internal.InternalKvState;
+import org.apache.flink.util.Preconditions;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+/**
+ * The {@link StateMap} of a spilled key group of a {@link SpillableStateTable}. It serves the state in place
+ * from a {@link CopyOnWriteSkipListStateMap} outside of the heap, without loading the key group back.
+ *
+ * <p>The skip list map only hands out deserialized copies of the states, while the heap states mutate the
+ * state objects in place, e.g. when adding to a list state. If the states may be mutated in place, this map
+ * therefore remembers the copies it handed out for the current key, and writes them back to the skip list
+ * map before the state of another key is accessed, and before the entries are iterated or snapshotted.
+ *
+ * <p>Like the other state maps, this class is not thread safe and must be accessed from the task thread.
+ *
+ * @param <K> type of key
+ * @param <N> type of namespace
+ * @param <S> type of state
+ */
+class SpilledStateMap<K, N, S> extends StateMap<K, N, S> {
+
+	/**
+	 * The map that holds the serialized state of the key group.
+	 */
+	private final CopyOnWriteSkipListStateMap<K, N, S> spilledStateMap;
+
+	/**
+	 * Whether the states that were handed out have to be written back, because they may be mutated in place.
+	 */
+	private final boolean writeBack;
+
+	/**
+	 * The states that were handed out for the pending key by namespace, which are not written back yet.
+	 */
+	private final Map<N, S> pendingStates;
+
+	/**
+	 * The key of the pending states, or null if there are none.
+	 */
+	private K pendingKey;
+
+	SpilledStateMap(CopyOnWriteSkipListStateMap<K, N, S> spilledStateMap, boolean writeBack) {
+		this.spilledStateMap = Preconditions.checkNotNull(spilledStateMap);
+		this.writeBack = writeBack;
+		this.pendingStates = new HashMap<>();
+	}
+
+	/**
+	 * Returns the map that holds the serialized state, after writing back the pending states.
+	 */
+	CopyOnWriteSkipListStateMap<K, N, S> getSpilledStateMap() {
+		writeBackPendingStates();
+		return spilledStateMap;
+	}
+
+	/**
+	 * Reads the state without handing it out for mutations, e.g. for queryable state. This does not see the
+	 * changes to pending states that are not written back yet.
+	 */
+	S getWithoutWriteBack(K key, N namespace) {
+		return spilledStateMap.get(key, namespace);
+	}
+
+	// Main interface methods of StateMap -------------------------------------------------------
+
+	@Override
+	public int size() {
+		// the pending states are always contained in the skip list map
+		return spilledStateMap.size();
+	}
+
+	@Override
+	public S get(K key, N namespace) {
+		if (Objects.equals(key, pendingKey)) {
+			S pendingState = pendingStates.get(namespace);
+			if (pendingState != null) {
+				return pendingState;
+			}
+		} else {
+			writeBackPendingStates();
+		}
+
+		S state = spilledStateMap.get(key, namespace);
+		addPendingState(key, namespace, state);
+		return state;
+	}
+
+	@Override
+	public boolean containsKey(K key, N namespace) {
+		return spilledStateMap.containsKey(key, namespace);
+	}
+
+	@Override
+	public void put(K key, N namespace, S state) {
+		removePendingState(key, namespace);
+		spilledStateMap.put(key, namespace, state);
+		addPendingState(key, namespace, state);
+	}
+
+	@Override
+	public S putAndGetOld(K key, N namespace, S state) {
+		S pendingState = removePendingState(key, namespace);
+		S oldState = spilledStateMap.putAndGetOld(key, namespace, state);
+		addPendingState(key, namespace, state);
+		return pendingState != null ? pendingState : oldState;
+	}
+
+	@Override
+	public void remove(K key, N namespace) {
+		removePendingState(key, namespace);
+		spilledStateMap.remove(key, namespace);
+	}
+
+	@Override
+	public S removeAndGetOld(K key, N namespace) {
+		S pendingState = removePendingState(key, namespace);
+		S oldState = spilledStateMap.removeAndGetOld(key, namespace);
+		return pendingState != null ? pendingState : oldState;
+	}
+
+	@Override
+	public <T> void transform(
+		K key,
+		N namespace,
+		T value,
+		StateTransformationFunction<S, T> transformation) throws Exception {
+		writeBackPendingStates();
+		spilledStateMap.transform(key, namespace, value, transformation);
+	}
+
+	// Iteration -------------------------------------------------------------------------------------------------------
+
+	@Override
+	public Iterator<StateEntry<K, N, S>> iterator() {
+		writeBackPendingStates();
+		return spilledStateMap.iterator();
+	}
+
+	@Override
+	public Stream<K> getKeys(N namespace) {
+		writeBackPendingStates();
+		return spilledStateMap.getKeys(namespace);
+	}
+
+	@Override
+	public InternalKvState.StateIncrementalVisitor<K, N, S> getStateIncrementalVisitor(
+		int recommendedMaxNumberOfReturnedRecords) {
+		return new WriteBackStateIncrementalVisitor(
+			spilledStateMap.getStateIncrementalVisitor(recommendedMaxNumberOfReturnedRecords));
+	}
+
+	@Override
+	public int sizeOfNamespace(Object namespace) {
+		return spilledStateMap.sizeOfNamespace(namespace);
+	}
+
+	// Snapshotting ----------------------------------------------------------------------------------------------------
+
+	/**
+	 * Creates a snapshot of the skip list map after writing back the pending states. The snapshot is released
+	 * to the skip list map directly.
+	 */
+	@Override
+	public CopyOnWriteSkipListStateMapSnapshot<K, N, S> stateSnapshot() {
+		writeBackPendingStates();
+		return spilledStateMap.stateSnapshot();
+	}
+
+	// ------------------------------------------------------------------------
+
+	private void addPendingState(K key, N namespace, S state) {
+		if (writeBack && state != null) {
+			pendingKey = key;
+			pendingStates.put(namespace, state);
+		}
+	}
+
+	/**
+	 * Removes the pending state of the given key and namespace without writing it back, because it is about
+	 * to be replaced or removed. The pending states of other keys are written back.
+	 */
+	private S removePendingState(K key, N namespace) {
+		if (Objects.equals(key, pendingKey)) {
+			return pendingStates.remove(namespace);
+		}
+		writeBackPendingStates();
+		return null;
+	}
+
+	/**
+	 * Writes the pending states, which may have been mutated in place, back to the skip list map.
+	 */
+	void writeBackPendingStates() {
+		if (pendingKey == null) {
+			return;
+		}
+		for (Map.Entry<N, S> entry : pendingStates.entrySet()) {
+			spilledStateMap.put(pendingKey, entry.getKey(), entry.getValue());
+		}
+		pendingStates.clear();
+		pendingKey = null;
+	}
+
+	/**
+	 * A {@link InternalKvState.StateIncrementalVisitor} over the skip list map, which writes back the pending
+	 * states before it reads or changes entries, because the states may be accessed between the batches.
+	 */
+	private class WriteBackStateIncrementalVisitor implements InternalKvState.StateIncrementalVisitor<K, N, S> {
+
+		private final InternalKvState.StateIncrementalVisitor<K, N, S> visitor;
+
+		WriteBackStateIncrementalVisitor(InternalKvState.StateIncrementalVisitor<K, N, S> visitor) {
+			this.visitor = visitor;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return visitor.hasNext();
+		}
+
+		@Override
+		public Collection<StateEntry<K, N, S>> nextEntries() {
+			writeBackPendingStates();
+			return visitor.nextEntries();
+		}
+
+		@Override
+		public void remove(StateEntry<K, N, S> stateEntry) {
+			writeBackPendingStates();
+			visitor.remove(stateEntry);
+		}
+
+		@Override
+		public void update(StateEntry<K, N, S> stateEntry, S newValue) {
+			writeBackPendingStates();
+			visitor.update(stateEntry, newValue);
+		}
+	}
+}
@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Creates the {@link Chunk}s from which a {@link SpaceAllocator} carves its space.
+ */
+public interface ChunkAllocator extends Closeable {
+
+	/**
+	 * Creates a new chunk with the given id and capacity.
+	 *
+	 * @param chunkId id of the chunk.
+	 * @param size capacity of the chunk in bytes.
+	 * @return the created chunk.
+	 * @throws IOException if the backing memory could not be created.
+	 */
+	Chunk createChunk(int chunkId, int size) throws IOException;
+
+	/**
+	 * Releases the memory backing the given chunk. The chunk must not be used afterwards.
+	 *
+	 * @param chunk the chunk to release.
+	 */
+	void releaseChunk(Chunk chunk);
+}
@@ -0,0 +1,92 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.util.Preconditions;
+
+import static org.apache.flink.runtime.state.heap.space.Constants.NO_SPACE;
+
+/**
+ * A {@link Chunk} backed by a single {@link MemorySegment}. Space is handed out with a bump pointer and is
+ * never returned to the chunk, the owning {@link SpaceAllocator} recycles freed space itself.
+ */
+public class DefaultChunk implements Chunk {
+
+	private final int chunkId;
+
+	private final MemorySegment segment;
+
+	private final int capacity;
+
+	/**
+	 * Number of bytes handed out from the start of the chunk.
+	 */
+	private int allocatedBytes;
+
+	public DefaultChunk(int chunkId, MemorySegment segment) {
+		this.chunkId = chunkId;
+		this.segment = Preconditions.checkNotNull(segment);
+		this.capacity = segment.size();
+		this.allocatedBytes = 0;
+	}
+
+	@Override
+	public int allocate(int len) {
+		if (len > capacity - allocatedBytes) {
+			return NO_SPACE;
+		}
+
+		int offset = allocatedBytes;
+		allocatedBytes += len;
+		return offset;
+	}
+
+	@Override
+	public void free(int interChunkOffset) {
+		// space is recycled by the owning allocator
+	}
+
+	@Override
+	public int getChunkId() {
+		return chunkId;
+	}
+
+	@Override
+	public int getChunkCapacity() {
+		return capacity;
+	}
+
+	@Override
+	public MemorySegment getMemorySegment(int chunkOffset) {
+		return segment;
+	}
+
+	@Override
+	public int getOffsetInSegment(int offsetInChunk) {
+		return offsetInChunk;
+	}
+
+	/**
+	 * Frees the backing memory segment.
+	 */
+	void release() {
+		segment.free();
+	}
+}
@@ -0,0 +1,109 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.util.Preconditions;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * A {@link ChunkAllocator} that backs every chunk with a memory mapped file. The files are spread
+ * round-robin over the given directories and deleted when the chunk is released.
+ */
+public class MmapChunkAllocator implements ChunkAllocator {
+
+	private static final Logger LOG = LoggerFactory.getLogger(MmapChunkAllocator.class);
+
+	private final File[] directories;
+
+	/**
+	 * Prefix of all files created by this allocator, unique per allocator.
+	 */
+	private final String filePrefix;
+
+	/**
+	 * The files of all chunks that have not been released yet, by chunk id.
+	 */
+	private final Map<Integer, File> chunkFiles;
+
+	private int nextDirectory;
+
+	public MmapChunkAllocator(File[] directories) {
+		Preconditions.checkArgument(directories != null && directories.length > 0,
+			"At least one directory is required to map chunks.");
+		this.directories = directories;
+		this.filePrefix = "spillable-chunk-" + UUID.randomUUID() + "-";
+		this.chunkFiles = new HashMap<>();
+		this.nextDirectory = 0;
+	}
+
+	@Override
+	public synchronized Chunk createChunk(int chunkId, int size) throws IOException {
+		File directory = directories[nextDirectory];
+		nextDirectory = (nextDirectory + 1) % directories.length;
+
+		File file = new File(directory, filePrefix + chunkId);
+		MappedByteBuffer buffer;
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(size);
+			buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+		catch (IOException e) {
+			deleteFile(file);
+			throw e;
+		}
+
+		chunkFiles.put(chunkId, file);
+		return new DefaultChunk(chunkId, MemorySegmentFactory.wrapOffHeapMemory(buffer));
+	}
+
+	@Override
+	public synchronized void releaseChunk(Chunk chunk) {
+		((DefaultChunk) chunk).release();
+		File file = chunkFiles.remove(chunk.getChunkId());
+		if (file != null) {
+			deleteFile(file);
+		}
+	}
+
+	@Override
+	public synchronized void close() {
+		for (File file : chunkFiles.values()) {
+			deleteFile(file);
+		}
+		chunkFiles.clear();
+	}
+
+	private static void deleteFile(File file) {
+		if (file.exists() && !file.delete()) {
+			LOG.warn("Could not delete chunk file {}.", file);
+		}
+	}
+}
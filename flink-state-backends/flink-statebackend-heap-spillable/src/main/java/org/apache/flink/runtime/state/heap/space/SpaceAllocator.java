@@ -0,0 +1,212 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.Preconditions;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.apache.flink.runtime.state.heap.space.Constants.FOUR_BYTES_BITS;
+import static org.apache.flink.runtime.state.heap.space.Constants.FOUR_BYTES_MARK;
+import static org.apache.flink.runtime.state.heap.space.Constants.NO_SPACE;
+
+/**
+ * An {@link Allocator} that carves space out of fixed-size chunks created by a {@link ChunkAllocator}.
+ *
+ * <p>Requests are rounded up to power-of-two size classes. Freed blocks go to a free list per size
+ * class and are handed out again by later requests of the same class. Each block is prefixed by a
+ * header with its size class, so {@link #free(long)} only needs the address. Requests that do not fit
+ * into a regular chunk get a dedicated chunk, which is released as soon as the block is freed.
+ *
+ * <p>Space is freed both by the task thread and by asynchronous snapshots, so allocation and free
+ * are synchronized. Chunk lookups are lock-free.
+ */
+public class SpaceAllocator implements Allocator {
+
+	/**
+	 * Size of the header in front of each block, which holds the size class of the block.
+	 */
+	private static final int HEADER_SIZE = Integer.BYTES;
+
+	/**
+	 * Size of the smallest size class, including the header.
+	 */
+	private static final int MIN_BLOCK_SIZE = 16;
+
+	/**
+	 * Size class marker of a block that occupies a dedicated chunk.
+	 */
+	private static final int DEDICATED_CHUNK_CLASS = -1;
+
+	private final ChunkAllocator chunkAllocator;
+
+	private final int chunkSize;
+
+	/**
+	 * All chunks that have not been released, by chunk id.
+	 */
+	private final Map<Integer, Chunk> chunks;
+
+	/**
+	 * Addresses of freed blocks, by size class.
+	 */
+	private final ArrayDeque<Long>[] freeLists;
+
+	/**
+	 * The chunk that new blocks are carved from.
+	 */
+	private Chunk currentChunk;
+
+	private int nextChunkId;
+
+	private long usedBytes;
+
+	private boolean closed;
+
+	@SuppressWarnings("unchecked")
+	public SpaceAllocator(ChunkAllocator chunkAllocator, int chunkSize) {
+		Preconditions.checkArgument(chunkSize >= MIN_BLOCK_SIZE,
+			"The chunk size must be at least " + MIN_BLOCK_SIZE + " bytes, but is " + chunkSize);
+		this.chunkAllocator = Preconditions.checkNotNull(chunkAllocator);
+		this.chunkSize = chunkSize;
+		this.chunks = new ConcurrentHashMap<>();
+		this.freeLists = new ArrayDeque[getSizeClass(chunkSize) + 1];
+		for (int i = 0; i < freeLists.length; i++) {
+			freeLists[i] = new ArrayDeque<>();
+		}
+		this.nextChunkId = 0;
+		this.usedBytes = 0L;
+		this.closed = false;
+	}
+
+	@Override
+	public synchronized long allocate(int size) throws Exception {
+		Preconditions.checkState(!closed, "The allocator has been closed.");
+		Preconditions.checkArgument(size >= 0, "Can't allocate a negative size " + size);
+
+		int blockSize = size + HEADER_SIZE;
+		int sizeClass = getSizeClass(blockSize);
+		if (sizeClass >= freeLists.length || (MIN_BLOCK_SIZE << sizeClass) > chunkSize) {
+			Chunk chunk = createChunk(blockSize);
+			return writeHeader(chunk, chunk.allocate(blockSize), DEDICATED_CHUNK_CLASS, blockSize);
+		}
+
+		blockSize = MIN_BLOCK_SIZE << sizeClass;
+		Long freeAddress = freeLists[sizeClass].poll();
+		if (freeAddress != null) {
+			usedBytes += blockSize;
+			return freeAddress;
+		}
+
+		int offset = currentChunk == null ? NO_SPACE : currentChunk.allocate(blockSize);
+		if (offset == NO_SPACE) {
+			currentChunk = createChunk(chunkSize);
+			offset = currentChunk.allocate(blockSize);
+		}
+		return writeHeader(currentChunk, offset, sizeClass, blockSize);
+	}
+
+	@Override
+	public synchronized void free(long address) {
+		if (closed) {
+			return;
+		}
+
+		Chunk chunk = getChunkById(SpaceUtils.getChunkIdByAddress(address));
+		int headerOffset = SpaceUtils.getChunkOffsetByAddress(address) - HEADER_SIZE;
+		MemorySegment segment = chunk.getMemorySegment(headerOffset);
+		int sizeClass = segment.getInt(chunk.getOffsetInSegment(headerOffset));
+
+		if (sizeClass == DEDICATED_CHUNK_CLASS) {
+			usedBytes -= chunk.getChunkCapacity();
+			chunks.remove(chunk.getChunkId());
+			chunkAllocator.releaseChunk(chunk);
+		} else {
+			usedBytes -= MIN_BLOCK_SIZE << sizeClass;
+			freeLists[sizeClass].add(address);
+		}
+	}
+
+	@Override
+	public Chunk getChunkById(int chunkId) {
+		Chunk chunk = chunks.get(chunkId);
+		Preconditions.checkNotNull(chunk, "chunk " + chunkId + " does not exist.");
+		return chunk;
+	}
+
+	/**
+	 * Returns the number of bytes in blocks that are currently allocated, including headers.
+	 */
+	public synchronized long getUsedBytes() {
+		return usedBytes;
+	}
+
+	/**
+	 * Returns the number of chunks that are currently held by this allocator.
+	 */
+	public int getNumberOfChunks() {
+		return chunks.size();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+
+		closed = true;
+		for (Chunk chunk : chunks.values()) {
+			chunkAllocator.releaseChunk(chunk);
+		}
+		chunks.clear();
+		for (ArrayDeque<Long> freeList : freeLists) {
+			freeList.clear();
+		}
+		currentChunk = null;
+		IOUtils.closeQuietly(chunkAllocator);
+	}
+
+	private Chunk createChunk(int size) throws Exception {
+		int chunkId = nextChunkId++;
+		Chunk chunk = chunkAllocator.createChunk(chunkId, size);
+		chunks.put(chunkId, chunk);
+		return chunk;
+	}
+
+	private long writeHeader(Chunk chunk, int offset, int sizeClass, int blockSize) {
+		MemorySegment segment = chunk.getMemorySegment(offset);
+		segment.putInt(chunk.getOffsetInSegment(offset), sizeClass);
+		usedBytes += blockSize;
+		return ((chunk.getChunkId() & FOUR_BYTES_MARK) << FOUR_BYTES_BITS) | ((offset + HEADER_SIZE) & FOUR_BYTES_MARK);
+	}
+
+	/**
+	 * Returns the smallest size class whose blocks can hold the given number of bytes.
+	 */
+	private static int getSizeClass(int blockSize) {
+		if (blockSize <= MIN_BLOCK_SIZE) {
+			return 0;
+		}
+		return 32 - Integer.numberOfLeadingZeros(blockSize - 1) - Integer.numberOfTrailingZeros(MIN_BLOCK_SIZE);
+	}
+}
@@ -0,0 +1,131 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.heap.space.DirectBufferChunkAllocator;
+import org.apache.flink.runtime.state.heap.space.SpaceAllocator;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SpillAndLoadManager}.
+ */
+public class SpillAndLoadManagerTest extends TestLogger {
+
+	private static final int NUMBER_OF_KEY_GROUPS = 4;
+
+	private SpaceAllocator allocator;
+
+	private SpillableStateTable<Integer, Integer, String> stateTable;
+
+	private AtomicReference<HeapStatusMonitor.MonitorResult> heapStatus;
+
+	private SpillAndLoadManager manager;
+
+	@Before
+	public void setUp() {
+		allocator = new SpaceAllocator(new DirectBufferChunkAllocator(), 4096);
+		MockInternalKeyContext<Integer> keyContext =
+			new MockInternalKeyContext<>(0, NUMBER_OF_KEY_GROUPS - 1, NUMBER_OF_KEY_GROUPS);
+		stateTable = new SpillableStateTable<>(
+			keyContext,
+			new RegisteredKeyValueStateBackendMetaInfo<>(
+				StateDescriptor.Type.VALUE, "test", IntSerializer.INSTANCE, StringSerializer.INSTANCE),
+			IntSerializer.INSTANCE,
+			allocator);
+
+		// key group i holds (i + 1) * 10 entries, so the larger key groups are also accessed more often
+		for (int keyGroup = 0; keyGroup < NUMBER_OF_KEY_GROUPS; keyGroup++) {
+			int added = 0;
+			for (int key = 0; added < (keyGroup + 1) * 10; key++) {
+				if (KeyGroupRangeAssignment.assignToKeyGroup(key, NUMBER_OF_KEY_GROUPS) == keyGroup) {
+					stateTable.put(key, keyGroup, 0, "value-" + key);
+					added++;
+				}
+			}
+		}
+		heapStatus = new AtomicReference<>();
+		manager = new SpillAndLoadManager(
+			heapStatus::get,
+			() -> Collections.singletonList(stateTable),
+			0.7f,
+			0.5f,
+			0.2f,
+			0.5f);
+	}
+
+	@After
+	public void tearDown() {
+		stateTable.close();
+		allocator.close();
+	}
+
+	@Test
+	public void testSpillColdestKeyGroups() {
+		heapStatus.set(new HeapStatusMonitor.MonitorResult(1L, 0L, 80L, 100L, 1L));
+		manager.checkResource();
+
+		// 20% of the 100 entries are spilled, starting with the least accessed key groups
+		assertTrue(stateTable.isSpilled(0));
+		assertTrue(stateTable.isSpilled(1));
+		assertFalse(stateTable.isSpilled(2));
+		assertFalse(stateTable.isSpilled(3));
+
+		// no garbage collection since the last decision
+		heapStatus.set(new HeapStatusMonitor.MonitorResult(2L, 0L, 80L, 100L, 1L));
+		manager.checkResource();
+		assertFalse(stateTable.isSpilled(2));
+	}
+
+	@Test
+	public void testLoadSmallestKeyGroups() {
+		for (int pos = 0; pos < NUMBER_OF_KEY_GROUPS; pos++) {
+			stateTable.spillKeyGroup(pos);
+		}
+
+		heapStatus.set(new HeapStatusMonitor.MonitorResult(1L, 0L, 60L, 100L, 1L));
+		manager.checkResource();
+		for (int pos = 0; pos < NUMBER_OF_KEY_GROUPS; pos++) {
+			assertTrue(stateTable.isSpilled(pos));
+		}
+
+		heapStatus.set(new HeapStatusMonitor.MonitorResult(2L, 0L, 40L, 100L, 2L));
+		manager.checkResource();
+
+		// 50% of the 100 entries are loaded, starting with the smallest key groups
+		assertFalse(stateTable.isSpilled(0));
+		assertFalse(stateTable.isSpilled(1));
+		assertFalse(stateTable.isSpilled(2));
+		assertTrue(stateTable.isSpilled(3));
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap;
+
+import org.apache.flink.api.common.state.StateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.ListSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.core.memory.ByteArrayInputStreamWithPos;
+import org.apache.flink.core.memory.ByteArrayOutputStreamWithPos;
+import org.apache.flink.core.memory.DataInputViewStreamWrapper;
+import org.apache.flink.core.memory.DataOutputViewStreamWrapper;
+import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyedBackendSerializationProxy;
+import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
+import org.apache.flink.runtime.state.StateSnapshot;
+import org.apache.flink.runtime.state.StateSnapshotKeyGroupReader;
+import org.apache.flink.runtime.state.heap.space.DirectBufferChunkAllocator;
+import org.apache.flink.runtime.state.heap.space.SpaceAllocator;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link SpillableStateTable}.
+ */
+public class SpillableStateTableTest extends TestLogger {
+
+	private static final int NUMBER_OF_KEY_GROUPS = 8;
+
+	private SpaceAllocator allocator;
+
+	private MockInternalKeyContext<Integer> keyContext;
+
+	private SpillableStateTable<Integer, Integer, String> stateTable;
+
+	/**
+	 * The expected state by key, in namespaces 0 and 1.
+	 */
+	private Map<Integer, String> referenceState;
+
+	@Before
+	public void setUp() {
+		allocator = new SpaceAllocator(new DirectBufferChunkAllocator(), 4096);
+		keyContext = new MockInternalKeyContext<>(0, NUMBER_OF_KEY_GROUPS - 1, NUMBER_OF_KEY_GROUPS);
+		stateTable = new SpillableStateTable<>(keyContext, createMetaInfo(), IntSerializer.INSTANCE, allocator);
+		referenceState = new HashMap<>();
+		for (int key = 0; key < 100; key++) {
+			put(key, "value-" + key);
+		}
+	}
+
+	@After
+	public void tearDown() {
+		stateTable.close();
+		allocator.close();
+	}
+
+	@Test
+	public void testSpillAndLoadKeepState() {
+		for (int pos = 0; pos < NUMBER_OF_KEY_GROUPS; pos++) {
+			int size = stateTable.getKeyGroupSize(pos);
+			stateTable.spillKeyGroup(pos);
+			assertTrue(stateTable.isSpilled(pos));
+			assertEquals(size, stateTable.getKeyGroupSize(pos));
+		}
+		assertTrue(allocator.getUsedBytes() > 0);
+		verifyState(stateTable, referenceState);
+
+		for (int pos = 0; pos < NUMBER_OF_KEY_GROUPS; pos++) {
+			stateTable.loadKeyGroup(pos);
+			assertFalse(stateTable.isSpilled(pos));
+		}
+		verifyState(stateTable, referenceState);
+		assertEquals(0L, allocator.getUsedBytes());
+	}
+
+	@Test
+	public void testAccessDoesNotLoadSpilledKeyGroup() {
+		int key = 42;
+		int pos = KeyGroupRangeAssignment.assignToKeyGroup(key, NUMBER_OF_KEY_GROUPS);
+		stateTable.spillKeyGroup(pos);
+
+		// reads of queryable state are not counted as accesses
+		int accessCount = stateTable.getAccessCount(pos);
+		assertEquals("value-" + key, stateTable.get(key, 0));
+		assertEquals(accessCount, stateTable.getAccessCount(pos));
+
+		keyContext.setCurrentKeyAndKeyGroup(key);
+		assertEquals("value-" + key, stateTable.get(0));
+		stateTable.put(1, "updated-" + key);
+		assertEquals("updated-" + key, stateTable.get(1));
+		assertTrue(stateTable.isSpilled(pos));
+		assertEquals(accessCount + 3, stateTable.getAccessCount(pos));
+
+		stateTable.decayAccessCounts();
+		assertEquals((accessCount + 3) / 2, stateTable.getAccessCount(pos));
+	}
+
+	@Test
+	public void testStateMutatedInPlaceIsWrittenBack() throws IOException {
+		MockInternalKeyContext<Integer> listKeyContext =
+			new MockInternalKeyContext<>(0, NUMBER_OF_KEY_GROUPS - 1, NUMBER_OF_KEY_GROUPS);
+		RegisteredKeyValueStateBackendMetaInfo<Integer, List<String>> metaInfo =
+			new RegisteredKeyValueStateBackendMetaInfo<>(
+				StateDescriptor.Type.LIST,
+				"list",
+				IntSerializer.INSTANCE,
+				new ListSerializer<>(StringSerializer.INSTANCE));
+		SpillableStateTable<Integer, Integer, List<String>> listStateTable =
+			new SpillableStateTable<>(listKeyContext, metaInfo, IntSerializer.INSTANCE, allocator);
+		try {
+			for (int key = 0; key < 10; key++) {
+				listKeyContext.setCurrentKeyAndKeyGroup(key);
+				listStateTable.put(0, new ArrayList<>(Collections.singletonList("first-" + key)));
+			}
+			for (int pos = 0; pos < NUMBER_OF_KEY_GROUPS; pos++) {
+				listStateTable.spillKeyGroup(pos);
+			}
+
+			// mutate the lists in place, like the heap list state does
+			for (int key = 0; key < 10; key++) {
+				listKeyContext.setCurrentKeyAndKeyGroup(key);
+				listStateTable.get(0).add("second-" + key);
+				listStateTable.get(0).add("third-" + key);
+			}
+			StateSnapshot snapshot = listStateTable.stateSnapshot();
+
+			CopyOnWriteStateTable<Integer, Integer, List<String>> restoredTable =
+				new CopyOnWriteStateTable<>(listKeyContext, metaInfo, IntSerializer.INSTANCE);
+			restoreStateTableFromSnapshot(restoredTable, snapshot, listKeyContext.getKeyGroupRange());
+			snapshot.release();
+
+			for (int key = 0; key < 10; key++) {
+				List<String> expected = Arrays.asList("first-" + key, "second-" + key, "third-" + key);
+				assertEquals(expected, restoredTable.get(key, 0));
+				assertEquals(expected, listStateTable.get(key, 0));
+			}
+			for (int pos = 0; pos < NUMBER_OF_KEY_GROUPS; pos++) {
+				assertTrue(listStateTable.isSpilled(pos));
+			}
+		} finally {
+			listStateTable.close();
+		}
+	}
+
+	@Test
+	public void testSnapshotWhileSpillingAndLoading() throws IOException {
+		for (int pos = 0; pos < NUMBER_OF_KEY_GROUPS; pos += 2) {
+			stateTable.spillKeyGroup(pos);
+		}
+		Map<Integer, String> expectedState = new HashMap<>(referenceState);
+		StateSnapshot snapshot = stateTable.stateSnapshot();
+
+		// moving and modifying the key groups does not affect the running snapshot
+		for (int pos = 0; pos < NUMBER_OF_KEY_GROUPS; pos++) {
+			if (stateTable.isSpilled(pos)) {
+				stateTable.loadKeyGroup(pos);
+			} else {
+				stateTable.spillKeyGroup(pos);
+			}
+		}
+		for (int key = 0; key < 100; key += 3) {
+			put(key, "updated-" + key);
+		}
+
+		CopyOnWriteStateTable<Integer, Integer, String> restoredTable =
+			new CopyOnWriteStateTable<>(keyContext, createMetaInfo(), IntSerializer.INSTANCE);
+		restoreStateTableFromSnapshot(restoredTable, snapshot, keyContext.getKeyGroupRange());
+		snapshot.release();
+		snapshot.release();
+
+		verifyState(restoredTable, expectedState);
+		verifyState(stateTable, referenceState);
+	}
+
+	private void put(int key, String value) {
+		int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(key, NUMBER_OF_KEY_GROUPS);
+		stateTable.put(key, keyGroup, 0, value);
+		stateTable.put(key, keyGroup, 1, value + "-1");
+		referenceState.put(key, value);
+	}
+
+	private static void verifyState(StateTable<Integer, Integer, String> stateTable, Map<Integer, String> expectedState) {
+		assertEquals(expectedState.size() * 2, stateTable.size());
+		for (Map.Entry<Integer, String> entry : expectedState.entrySet()) {
+			assertEquals(entry.getValue(), stateTable.get(entry.getKey(), 0));
+			assertEquals(entry.getValue() + "-1", stateTable.get(entry.getKey(), 1));
+		}
+	}
+
+	private static RegisteredKeyValueStateBackendMetaInfo<Integer, String> createMetaInfo() {
+		return new RegisteredKeyValueStateBackendMetaInfo<>(
+			StateDescriptor.Type.VALUE,
+			"test",
+			IntSerializer.INSTANCE,
+			StringSerializer.INSTANCE);
+	}
+
+	private static <S> void restoreStateTableFromSnapshot(
+		StateTable<Integer, Integer, S> stateTable,
+		StateSnapshot snapshot,
+		KeyGroupRange keyGroupRange) throws IOException {
+
+		final ByteArrayOutputStreamWithPos out = new ByteArrayOutputStreamWithPos(1024 * 1024);
+		final DataOutputViewStreamWrapper dov = new DataOutputViewStreamWrapper(out);
+		final StateSnapshot.StateKeyGroupWriter keyGroupPartitionedSnapshot = snapshot.getKeyGroupWriter();
+		for (Integer keyGroup : keyGroupRange) {
+			keyGroupPartitionedSnapshot.writeStateInKeyGroup(dov, keyGroup);
+		}
+
+		final ByteArrayInputStreamWithPos in = new ByteArrayInputStreamWithPos(out.getBuf());
+		final DataInputViewStreamWrapper div = new DataInputViewStreamWrapper(in);
+
+		final StateSnapshotKeyGroupReader keyGroupReader =
+			StateTableByKeyGroupReaders.readerForVersion(stateTable, KeyedBackendSerializationProxy.VERSION);
+
+		for (Integer keyGroup : keyGroupRange) {
+			keyGroupReader.readMappingsInKeyGroup(div, keyGroup);
+		}
+	}
+}
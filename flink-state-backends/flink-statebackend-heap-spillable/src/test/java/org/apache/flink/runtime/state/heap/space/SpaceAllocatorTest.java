@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.runtime.state.heap.space;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * Tests for {@link SpaceAllocator}.
+ */
+public class SpaceAllocatorTest extends TestLogger {
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	@Test
+	public void testFreedSpaceIsReused() throws Exception {
+		try (SpaceAllocator allocator = new SpaceAllocator(new DirectBufferChunkAllocator(), 1024)) {
+			long address1 = allocator.allocate(20);
+			long address2 = allocator.allocate(20);
+			assertNotEquals(address1, address2);
+			// 20 bytes plus the header are rounded up to 32 bytes
+			assertEquals(64, allocator.getUsedBytes());
+
+			allocator.free(address1);
+			assertEquals(32, allocator.getUsedBytes());
+			assertEquals(address1, allocator.allocate(25));
+			// a request of a different size class does not reuse the block
+			assertNotEquals(address2, allocator.allocate(100));
+			assertEquals(1, allocator.getNumberOfChunks());
+		}
+	}
+
+	@Test
+	public void testNewChunkWhenChunkIsFull() throws Exception {
+		try (SpaceAllocator allocator = new SpaceAllocator(new DirectBufferChunkAllocator(), 1024)) {
+			for (int i = 0; i < 16; i++) {
+				allocator.allocate(60);
+			}
+			assertEquals(1, allocator.getNumberOfChunks());
+
+			long address = allocator.allocate(60);
+			assertEquals(2, allocator.getNumberOfChunks());
+			assertEquals(1, SpaceUtils.getChunkIdByAddress(address));
+		}
+	}
+
+	@Test
+	public void testLargeSpaceUsesDedicatedChunk() throws Exception {
+		try (SpaceAllocator allocator = new SpaceAllocator(new DirectBufferChunkAllocator(), 1024)) {
+			allocator.allocate(10);
+			long address = allocator.allocate(4000);
+			assertEquals(2, allocator.getNumberOfChunks());
+
+			writeAndVerify(allocator, address, 4000);
+
+			allocator.free(address);
+			assertEquals(1, allocator.getNumberOfChunks());
+			assertEquals(16, allocator.getUsedBytes());
+		}
+	}
+
+	@Test
+	public void testMmapChunks() throws Exception {
+		File directory = tempFolder.newFolder();
+		SpaceAllocator allocator = new SpaceAllocator(new MmapChunkAllocator(new File[] {directory}), 1024);
+
+		long address1 = allocator.allocate(100);
+		long address2 = allocator.allocate(2000);
+		writeAndVerify(allocator, address1, 100);
+		writeAndVerify(allocator, address2, 2000);
+		assertEquals(2, directory.list().length);
+
+		allocator.free(address2);
+		assertEquals(1, directory.list().length);
+
+		allocator.close();
+		assertEquals(0, directory.list().length);
+	}
+
+	private static void writeAndVerify(Allocator allocator, long address, int size) {
+		Chunk chunk = allocator.getChunkById(SpaceUtils.getChunkIdByAddress(address));
+		int offsetInChunk = SpaceUtils.getChunkOffsetByAddress(address);
+		MemorySegment segment = chunk.getMemorySegment(offsetInChunk);
+		int offset = chunk.getOffsetInSegment(offsetInChunk);
+		for (int i = 0; i < size; i++) {
+			segment.put(offset + i, (byte) i);
+		}
+		for (int i = 0; i < size; i++) {
+			assertEquals((byte) i, segment.get(offset + i));
+		}
+	}
+}
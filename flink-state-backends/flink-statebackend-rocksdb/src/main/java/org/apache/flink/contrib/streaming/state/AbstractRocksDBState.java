@@ -33,6 +33,8 @@ import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
 import org.rocksdb.WriteOptions;
 
+import javax.annotation.Nullable;
+
 import java.io.IOException;
 import java.util.List;
 
@@ -73,6 +75,10 @@ public abstract class AbstractRocksDBState<K, N, V> implements InternalKvState<K
 
 	private final RocksDBSerializedCompositeKeyBuilder<K> sharedKeyNamespaceSerializer;
 
+	/** The backend's cache of deserialized values, or {@code null} if caching is disabled. */
+	@Nullable
+	private final RocksDBReadCache readCache;
+
 	/**
 	 * Creates a new RocksDB backed state.
 	 *
@@ -101,6 +107,7 @@ public abstract class AbstractRocksDBState<K, N, V> implements InternalKvState<K
 		this.dataOutputView = new DataOutputSerializer(128);
 		this.dataInputView = new DataInputDeserializer();
 		this.sharedKeyNamespaceSerializer = backend.getSharedRocksKeyBuilder();
+		this.readCache = backend.getReadCache();
 	}
 
 	// ------------------------------------------------------------------------
@@ -108,7 +115,9 @@ public abstract class AbstractRocksDBState<K, N, V> implements InternalKvState<K
 	@Override
 	public void clear() {
 		try {
-			backend.db.delete(columnFamily, writeOptions, serializeCurrentKeyWithGroupAndNamespace());
+			byte[] key = serializeCurrentKeyWithGroupAndNamespace();
+			invalidateCachedValue(key);
+			backend.db.delete(columnFamily, writeOptions, key);
 		} catch (RocksDBException e) {
 			throw new FlinkRuntimeException("Error while removing entry from RocksDB", e);
 		}
@@ -228,6 +237,44 @@ public abstract class AbstractRocksDBState<K, N, V> implements InternalKvState<K
 		}
 	}
 
+	/**
+	 * Returns the cached value for the given key, or {@code null} if there is none. Values of mutable
+	 * types are copied so that modifications by the caller do not leak into the cache.
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	<T> T getCachedValue(byte[] key, TypeSerializer<T> serializer) {
+		if (readCache == null) {
+			return null;
+		}
+		T value = (T) readCache.get(columnFamily, key);
+		return value == null || serializer.isImmutableType() ? value : serializer.copy(value);
+	}
+
+	/**
+	 * Puts a value that was read from or written to RocksDB into the cache. Null values are not cached.
+	 */
+	<T> void cacheValue(byte[] key, @Nullable T value, TypeSerializer<T> serializer) {
+		if (readCache == null) {
+			return;
+		}
+		if (value == null) {
+			readCache.invalidate(columnFamily, key);
+		} else {
+			readCache.put(columnFamily, key, serializer.isImmutableType() ? value : serializer.copy(value));
+		}
+	}
+
+	void invalidateCachedValue(byte[] key) {
+		if (readCache != null) {
+			readCache.invalidate(columnFamily, key);
+		}
+	}
+
+	boolean isValueCached(byte[] key) {
+		return readCache != null && readCache.get(columnFamily, key) != null;
+	}
+
 	protected V getDefaultValue() {
 		if (defaultValue != null) {
 			return valueSerializer.copy(defaultValue);
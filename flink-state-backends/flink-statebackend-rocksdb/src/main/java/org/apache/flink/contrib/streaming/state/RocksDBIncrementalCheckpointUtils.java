@@ -64,7 +64,7 @@ public class RocksDBIncrementalCheckpointUtils {
 
 	/**
 	 * The method to clip the db instance according to the target key group range using
-	 * the {@link RocksDB#delete(ColumnFamilyHandle, byte[])}.
+	 * the {@link RocksDB#deleteRange(ColumnFamilyHandle, byte[], byte[])}.
 	 *
 	 * @param db the RocksDB instance to be clipped.
 	 * @param columnFamilyHandles the column families in the db instance.
@@ -77,8 +77,7 @@ public class RocksDBIncrementalCheckpointUtils {
 		@Nonnull List<ColumnFamilyHandle> columnFamilyHandles,
 		@Nonnull KeyGroupRange targetKeyGroupRange,
 		@Nonnull KeyGroupRange currentKeyGroupRange,
-		@Nonnegative int keyGroupPrefixBytes,
-		@Nonnegative long writeBatchSize) throws RocksDBException {
+		@Nonnegative int keyGroupPrefixBytes) throws RocksDBException {
 
 		final byte[] beginKeyGroupBytes = new byte[keyGroupPrefixBytes];
 		final byte[] endKeyGroupBytes = new byte[keyGroupPrefixBytes];
@@ -88,7 +87,7 @@ public class RocksDBIncrementalCheckpointUtils {
 				currentKeyGroupRange.getStartKeyGroup(), beginKeyGroupBytes);
 			RocksDBKeySerializationUtils.serializeKeyGroup(
 				targetKeyGroupRange.getStartKeyGroup(), endKeyGroupBytes);
-			deleteRange(db, columnFamilyHandles, beginKeyGroupBytes, endKeyGroupBytes, writeBatchSize);
+			deleteRange(db, columnFamilyHandles, beginKeyGroupBytes, endKeyGroupBytes);
 		}
 
 		if (currentKeyGroupRange.getEndKeyGroup() > targetKeyGroupRange.getEndKeyGroup()) {
@@ -96,12 +95,13 @@ public class RocksDBIncrementalCheckpointUtils {
 				targetKeyGroupRange.getEndKeyGroup() + 1, beginKeyGroupBytes);
 			RocksDBKeySerializationUtils.serializeKeyGroup(
 				currentKeyGroupRange.getEndKeyGroup() + 1, endKeyGroupBytes);
-			deleteRange(db, columnFamilyHandles, beginKeyGroupBytes, endKeyGroupBytes, writeBatchSize);
+			deleteRange(db, columnFamilyHandles, beginKeyGroupBytes, endKeyGroupBytes);
 		}
 	}
 
 	/**
-	 * Delete the record falls into [beginKeyBytes, endKeyBytes) of the db.
+	 * Delete the record falls into [beginKeyBytes, endKeyBytes) of the db. Each column family gets a single
+	 * range tombstone instead of one tombstone per deleted record, so clipping does not read the clipped data.
 	 *
 	 * @param db the target need to be clipped.
 	 * @param columnFamilyHandles the column family need to be clipped.
@@ -112,25 +112,10 @@ public class RocksDBIncrementalCheckpointUtils {
 		RocksDB db,
 		List<ColumnFamilyHandle> columnFamilyHandles,
 		byte[] beginKeyBytes,
-		byte[] endKeyBytes,
-		@Nonnegative long writeBatchSize) throws RocksDBException {
+		byte[] endKeyBytes) throws RocksDBException {
 
 		for (ColumnFamilyHandle columnFamilyHandle : columnFamilyHandles) {
-			try (RocksIteratorWrapper iteratorWrapper = RocksDBOperationUtils.getRocksIterator(db, columnFamilyHandle);
-				RocksDBWriteBatchWrapper writeBatchWrapper = new RocksDBWriteBatchWrapper(db, writeBatchSize)) {
-
-				iteratorWrapper.seek(beginKeyBytes);
-
-				while (iteratorWrapper.isValid()) {
-					final byte[] currentKey = iteratorWrapper.key();
-					if (beforeThePrefixBytes(currentKey, endKeyBytes)) {
-						writeBatchWrapper.remove(columnFamilyHandle, currentKey);
-					} else {
-						break;
-					}
-					iteratorWrapper.next();
-				}
-			}
+			db.deleteRange(columnFamilyHandle, beginKeyBytes, endKeyBytes);
 		}
 	}
 
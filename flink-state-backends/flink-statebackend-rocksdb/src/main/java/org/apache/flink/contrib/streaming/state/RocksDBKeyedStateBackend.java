@@ -75,6 +75,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.File;
 import java.io.IOException;
@@ -154,6 +155,10 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	 */
 	private final long writeBatchSize;
 
+	/** Cache of deserialized values for point lookups, or {@code null} if caching is disabled. */
+	@Nullable
+	private final RocksDBReadCache readCache;
+
 	/**
 	 * Information about the k/v states, maintained in the order as we create them. This is used to retrieve the
 	 * column family that is used for a state and also for sanity checks when restoring.
@@ -226,7 +231,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		PriorityQueueSetFactory priorityQueueFactory,
 		RocksDbTtlCompactFiltersManager ttlCompactFiltersManager,
 		InternalKeyContext<K> keyContext,
-		@Nonnegative long writeBatchSize) {
+		@Nonnegative long writeBatchSize,
+		@Nullable RocksDBReadCache readCache) {
 
 		super(
 			kvStateRegistry,
@@ -253,6 +259,7 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		this.writeOptions = new WriteOptions().setDisableWAL(true);
 		checkArgument(writeBatchSize >= 0, "Write batch size have to be no negative value.");
 		this.writeBatchSize = writeBatchSize;
+		this.readCache = readCache;
 		this.db = db;
 		this.rocksDBResourceGuard = rocksDBResourceGuard;
 		this.checkpointSnapshotStrategy = checkpointSnapshotStrategy;
@@ -307,8 +314,8 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	}
 
 	@Override
-	public void setCurrentKey(K newKey) {
-		super.setCurrentKey(newKey);
+	public void setCurrentKeyAndKeyGroup(K newKey, int keyGroup) {
+		super.setCurrentKeyAndKeyGroup(newKey, keyGroup);
 		sharedRocksKeyBuilder.setKeyAndKeyGroup(getCurrentKey(), getCurrentKeyGroupIndex());
 	}
 
@@ -332,6 +339,10 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 
 			IOUtils.closeQuietly(writeBatchWrapper);
 
+			if (readCache != null) {
+				readCache.clear();
+			}
+
 			// Metric collection occurs on a background thread. When this method returns
 			// it is guaranteed that thr RocksDB reference has been invalidated
 			// and no more metric collection will be attempted against the database.
@@ -651,6 +662,10 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 		}
 		Tuple2<ColumnFamilyHandle, RegisteredKeyValueStateBackendMetaInfo<N, SV>> registerResult = tryRegisterKvStateInformation(
 			stateDesc, namespaceSerializer, snapshotTransformFactory);
+		if (readCache != null) {
+			// the registration may have migrated the stored values to a new serializer
+			readCache.invalidateColumnFamily(registerResult.f0);
+		}
 		return stateFactory.createState(stateDesc, registerResult, RocksDBKeyedStateBackend.this);
 	}
 
@@ -720,4 +735,9 @@ public class RocksDBKeyedStateBackend<K> extends AbstractKeyedStateBackend<K> {
 	long getWriteBatchSize() {
 		return writeBatchSize;
 	}
+
+	@Nullable
+	RocksDBReadCache getReadCache() {
+		return readCache;
+	}
 }
@@ -113,6 +113,8 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
 	private RocksDBNativeMetricOptions nativeMetricOptions;
 	private int numberOfTransferingThreads;
 	private long writeBatchSize = RocksDBConfigurableOptions.WRITE_BATCH_SIZE.defaultValue().getBytes();
+	private int readCacheSize = RocksDBOptions.READ_CACHE_SIZE.defaultValue();
+	private long uploadRateLimit = 0L;
 
 	private RocksDB injectedTestDB; // for testing
 	private ColumnFamilyHandle injectedDefaultColumnFamilyHandle; // for testing
@@ -232,6 +234,21 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
 		return this;
 	}
 
+	/**
+	 * Sets the TaskManager-wide upload bandwidth of incremental checkpoints in bytes per second, zero means unlimited.
+	 */
+	RocksDBKeyedStateBackendBuilder<K> setUploadRateLimit(long uploadRateLimit) {
+		checkArgument(uploadRateLimit >= 0, "Upload rate limit should be non negative.");
+		this.uploadRateLimit = uploadRateLimit;
+		return this;
+	}
+
+	RocksDBKeyedStateBackendBuilder<K> setReadCacheSize(int readCacheSize) {
+		checkArgument(readCacheSize >= 0, "Read cache size should be non negative.");
+		this.readCacheSize = readCacheSize;
+		return this;
+	}
+
 	private static void checkAndCreateDirectory(File directory) throws IOException {
 		if (directory.exists()) {
 			if (!directory.isDirectory()) {
@@ -336,6 +353,7 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
 				throw new BackendBuildingException(errMsg, e);
 			}
 		}
+		RocksDBReadCache readCache = readCacheSize > 0 ? new RocksDBReadCache(readCacheSize, metricGroup) : null;
 		InternalKeyContext<K> keyContext = new InternalKeyContextImpl<>(
 			keyGroupRange,
 			numberOfKeyGroups
@@ -364,7 +382,8 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
 			priorityQueueFactory,
 			ttlCompactFiltersManager,
 			keyContext,
-			writeBatchSize);
+			writeBatchSize,
+			readCache);
 	}
 
 	private AbstractRocksDBRestoreOperation<K> getRocksDBRestoreOperation(
@@ -409,8 +428,7 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
 				nativeMetricOptions,
 				metricGroup,
 				restoreStateHandles,
-				ttlCompactFiltersManager,
-				writeBatchSize);
+				ttlCompactFiltersManager);
 		} else {
 			return new RocksDBFullRestoreOperation<>(
 				keyGroupRange,
@@ -453,6 +471,10 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
 			keyGroupCompressionDecorator);
 		RocksDBSnapshotStrategyBase<K> checkpointSnapshotStrategy;
 		if (enableIncrementalCheckpointing) {
+			RocksDBStateUploader stateUploader = new RocksDBStateUploader(
+				numberOfTransferingThreads,
+				uploadRateLimit > 0 ? RocksDBUploadRateLimiter.getSharedInstance(uploadRateLimit) : null,
+				metricGroup);
 			// TODO eventually we might want to separate savepoint and snapshot strategy, i.e. having 2 strategies.
 			checkpointSnapshotStrategy = new RocksIncrementalSnapshotStrategy<>(
 				db,
@@ -467,7 +489,7 @@ public class RocksDBKeyedStateBackendBuilder<K> extends AbstractKeyedStateBacken
 				backendUID,
 				materializedSstFiles,
 				lastCompletedCheckpointId,
-				numberOfTransferingThreads);
+				stateUploader);
 		} else {
 			checkpointSnapshotStrategy = savepointSnapshotStrategy;
 		}
@@ -42,7 +42,9 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import static org.apache.flink.runtime.state.StateSnapshotTransformer.CollectionStateSnapshotTransformer.TransformStrategy.STOP_ON_FIRST_INCLUDED;
 
@@ -53,6 +55,10 @@ import static org.apache.flink.runtime.state.StateSnapshotTransformer.Collection
  * {@link org.rocksdb.StringAppendOperator} on the column family that we use for our state since
  * we use the {@code merge()} call.
  *
+ * <p>Elements are stored back to back, separated by the {@link #DELIMITER} that the merge operator
+ * also inserts between merged values. The element serializer determines where an element ends, so
+ * {@link #get()} can deserialize the elements lazily while iterating over the merged value.
+ *
  * @param <K> The type of the key.
  * @param <N> The type of the namespace.
  * @param <V> The type of the values in the list state.
@@ -108,7 +114,13 @@ class RocksDBListState<K, N, V>
 
 	@Override
 	public Iterable<V> get() {
-		return getInternal();
+		try {
+			byte[] key = serializeCurrentKeyWithGroupAndNamespace();
+			byte[] valueBytes = backend.db.get(columnFamily, key);
+			return valueBytes == null ? null : new LazyListIterable<>(valueBytes, elementSerializer);
+		} catch (RocksDBException e) {
+			throw new FlinkRuntimeException("Error while retrieving data from RocksDB", e);
+		}
 	}
 
 	@Override
@@ -283,6 +295,43 @@ class RocksDBListState<K, N, V>
 			backend);
 	}
 
+	/**
+	 * An {@link Iterable} over the serialized elements of a list, which deserializes each element only when
+	 * the iterator reaches it. Every iterator reads the elements from the beginning with its own input view,
+	 * so the iterable stays valid while the state is accessed or modified.
+	 */
+	private static class LazyListIterable<V> implements Iterable<V> {
+
+		private final byte[] valueBytes;
+
+		private final TypeSerializer<V> elementSerializer;
+
+		LazyListIterable(byte[] valueBytes, TypeSerializer<V> elementSerializer) {
+			this.valueBytes = valueBytes;
+			this.elementSerializer = elementSerializer;
+		}
+
+		@Override
+		public Iterator<V> iterator() {
+			final DataInputDeserializer in = new DataInputDeserializer(valueBytes);
+
+			return new Iterator<V>() {
+				@Override
+				public boolean hasNext() {
+					return in.available() > 0;
+				}
+
+				@Override
+				public V next() {
+					if (!hasNext()) {
+						throw new NoSuchElementException();
+					}
+					return deserializeNextElement(in, elementSerializer);
+				}
+			};
+		}
+	}
+
 	static class StateSnapshotTransformerWrapper<T> implements StateSnapshotTransformer<byte[]> {
 		private final StateSnapshotTransformer<T> elementTransformer;
 		private final TypeSerializer<T> elementSerializer;
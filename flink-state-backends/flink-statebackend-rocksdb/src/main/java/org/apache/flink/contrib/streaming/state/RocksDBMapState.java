@@ -118,9 +118,19 @@ class RocksDBMapState<K, N, UK, UV>
 	@Override
 	public UV get(UK userKey) throws IOException, RocksDBException {
 		byte[] rawKeyBytes = serializeCurrentKeyWithGroupAndNamespacePlusUserKey(userKey, userKeySerializer);
+		UV cachedValue = getCachedValue(rawKeyBytes, userValueSerializer);
+		if (cachedValue != null) {
+			return cachedValue;
+		}
+
 		byte[] rawValueBytes = backend.db.get(columnFamily, rawKeyBytes);
+		if (rawValueBytes == null) {
+			return null;
+		}
 
-		return (rawValueBytes == null ? null : deserializeUserValue(dataInputView, rawValueBytes, userValueSerializer));
+		UV userValue = deserializeUserValue(dataInputView, rawValueBytes, userValueSerializer);
+		cacheValue(rawKeyBytes, userValue, userValueSerializer);
+		return userValue;
 	}
 
 	@Override
@@ -130,6 +140,7 @@ class RocksDBMapState<K, N, UK, UV>
 		byte[] rawValueBytes = serializeValueNullSensitive(userValue, userValueSerializer);
 
 		backend.db.put(columnFamily, writeOptions, rawKeyBytes, rawValueBytes);
+		cacheValue(rawKeyBytes, userValue, userValueSerializer);
 	}
 
 	@Override
@@ -143,6 +154,7 @@ class RocksDBMapState<K, N, UK, UV>
 				byte[] rawKeyBytes = serializeCurrentKeyWithGroupAndNamespacePlusUserKey(entry.getKey(), userKeySerializer);
 				byte[] rawValueBytes = serializeValueNullSensitive(entry.getValue(), userValueSerializer);
 				writeBatchWrapper.put(columnFamily, rawKeyBytes, rawValueBytes);
+				cacheValue(rawKeyBytes, entry.getValue(), userValueSerializer);
 			}
 		}
 	}
@@ -151,12 +163,17 @@ class RocksDBMapState<K, N, UK, UV>
 	public void remove(UK userKey) throws IOException, RocksDBException {
 		byte[] rawKeyBytes = serializeCurrentKeyWithGroupAndNamespacePlusUserKey(userKey, userKeySerializer);
 
+		invalidateCachedValue(rawKeyBytes);
 		backend.db.delete(columnFamily, writeOptions, rawKeyBytes);
 	}
 
 	@Override
 	public boolean contains(UK userKey) throws IOException, RocksDBException {
 		byte[] rawKeyBytes = serializeCurrentKeyWithGroupAndNamespacePlusUserKey(userKey, userKeySerializer);
+		if (isValueCached(rawKeyBytes)) {
+			return true;
+		}
+
 		byte[] rawValueBytes = backend.db.get(columnFamily, rawKeyBytes);
 
 		return (rawValueBytes != null);
@@ -263,6 +280,7 @@ class RocksDBMapState<K, N, UK, UV>
 				while (iterator.isValid()) {
 					byte[] keyBytes = iterator.key();
 					if (startWithKeyPrefix(keyPrefixBytes, keyBytes)) {
+						invalidateCachedValue(keyBytes);
 						rocksDBWriteBatchWrapper.remove(columnFamily, keyBytes);
 					} else {
 						break;
@@ -428,6 +446,7 @@ class RocksDBMapState<K, N, UK, UV>
 			rawValueBytes = null;
 
 			try {
+				invalidateCachedValue(rawKeyBytes);
 				db.delete(columnFamily, writeOptions, rawKeyBytes);
 			} catch (RocksDBException e) {
 				throw new FlinkRuntimeException("Error while removing data from RocksDB.", e);
@@ -477,6 +496,7 @@ class RocksDBMapState<K, N, UK, UV>
 				rawValueBytes = serializeValueNullSensitive(value, valueSerializer);
 
 				db.put(columnFamily, writeOptions, rawKeyBytes, rawValueBytes);
+				cacheValue(rawKeyBytes, value, valueSerializer);
 			} catch (IOException | RocksDBException e) {
 				throw new FlinkRuntimeException("Error while putting data into RocksDB.", e);
 			}
@@ -65,6 +65,20 @@ public class RocksDBOptions {
 		.defaultValue(1)
 		.withDescription("The number of threads (per stateful operator) used to transfer (download and upload) files in RocksDBStateBackend.");
 
+	/**
+	 * The bandwidth per second that all RocksDB backends of a TaskManager may use to upload incremental checkpoint files.
+	 */
+	@Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
+	public static final ConfigOption<MemorySize> CHECKPOINT_UPLOAD_RATE_LIMIT = ConfigOptions
+		.key("state.backend.rocksdb.checkpoint.transfer.upload-rate-limit")
+		.memoryType()
+		.noDefaultValue()
+		.withDescription("The maximum number of bytes per second that all RocksDBStateBackends of a TaskManager " +
+			"together use to upload the files of incremental checkpoints. The bandwidth is shared evenly among the " +
+			"uploading threads of all slots. This should be configured per cluster; if jobs in the same TaskManager " +
+			"configure different values, the most recently created backend determines the limit. " +
+			"If not set, the upload bandwidth is not limited.");
+
 	/**
 	 * This determines if compaction filter to cleanup state with TTL is enabled.
 	 *
@@ -110,6 +124,19 @@ public class RocksDBOptions {
 			"managed memory budget of the task slot, and divide the memory over write buffers, indexes, " +
 			"block caches, etc. That way, the three major uses of memory of RocksDB will be capped.");
 
+	/**
+	 * The number of deserialized values that are cached per backend in front of RocksDB.
+	 */
+	@Documentation.Section(Documentation.Sections.EXPERT_ROCKSDB)
+	public static final ConfigOption<Integer> READ_CACHE_SIZE = ConfigOptions
+		.key("state.backend.rocksdb.read-cache.size")
+		.intType()
+		.defaultValue(0)
+		.withDescription("The maximum number of deserialized values that each RocksDB keyed state backend caches " +
+			"for point lookups on value and map state. The cache is write-through and saves the RocksDB access and " +
+			"the deserialization on a hit; values of mutable types are copied on each access. " +
+			"A value of 0 disables the cache.");
+
 	@Documentation.Section(Documentation.Sections.STATE_BACKEND_ROCKSDB)
 	public static final ConfigOption<MemorySize> FIX_PER_SLOT_MEMORY_SIZE = ConfigOptions
 		.key("state.backend.rocksdb.memory.fixed-per-slot")
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.annotation.VisibleForTesting;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
+
+import org.rocksdb.ColumnFamilyHandle;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * A bounded LRU cache of deserialized state values that sits in front of the point lookups of
+ * {@link RocksDBValueState} and {@link RocksDBMapState}. Entries are addressed by column family and
+ * the serialized composite key as it is stored in RocksDB, so the cache has exactly the key equality
+ * of the database. A hit saves the JNI call and the value deserialization.
+ *
+ * <p>The cache is write-through: the states put every written value into the cache and invalidate
+ * every deleted key, so that it never returns a value that differs from the database. Values of
+ * mutable types are copied by the states on the way in and out of the cache.
+ *
+ * <p>The cache is only accessed from the task thread and is therefore not thread-safe. The metrics
+ * may be read from other threads and are only approximate.
+ */
+class RocksDBReadCache {
+
+	static final String METRIC_GROUP_NAME = "readCache";
+
+	/** The maximum number of cached values. */
+	private final int maxEntries;
+
+	/** The cached values in access order, the eldest entry is evicted first. */
+	private final LinkedHashMap<CacheKey, Object> entries;
+
+	private long hitCount;
+
+	private long missCount;
+
+	RocksDBReadCache(int maxEntries, @Nullable MetricGroup metricGroup) {
+		checkArgument(maxEntries > 0, "The read cache size must be positive.");
+		this.maxEntries = maxEntries;
+		this.entries = new LinkedHashMap<CacheKey, Object>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<CacheKey, Object> eldest) {
+				return size() > RocksDBReadCache.this.maxEntries;
+			}
+		};
+
+		if (metricGroup != null) {
+			registerMetrics(metricGroup.addGroup(METRIC_GROUP_NAME));
+		}
+	}
+
+	/**
+	 * Returns the cached value for the given key, or {@code null} if the key is not cached.
+	 */
+	@Nullable
+	Object get(@Nonnull ColumnFamilyHandle columnFamily, @Nonnull byte[] key) {
+		Object value = entries.get(new CacheKey(columnFamily, key));
+		if (value == null) {
+			missCount++;
+		} else {
+			hitCount++;
+		}
+		return value;
+	}
+
+	/**
+	 * Caches the given value. The key array is retained and must not be modified by the caller afterwards.
+	 */
+	void put(@Nonnull ColumnFamilyHandle columnFamily, @Nonnull byte[] key, @Nonnull Object value) {
+		entries.put(new CacheKey(columnFamily, key), value);
+	}
+
+	void invalidate(@Nonnull ColumnFamilyHandle columnFamily, @Nonnull byte[] key) {
+		entries.remove(new CacheKey(columnFamily, key));
+	}
+
+	/**
+	 * Drops all cached values of the given column family, e.g. after its values were migrated to a new serializer.
+	 */
+	void invalidateColumnFamily(@Nonnull ColumnFamilyHandle columnFamily) {
+		Iterator<CacheKey> iterator = entries.keySet().iterator();
+		while (iterator.hasNext()) {
+			if (iterator.next().columnFamily == columnFamily) {
+				iterator.remove();
+			}
+		}
+	}
+
+	void clear() {
+		entries.clear();
+	}
+
+	@VisibleForTesting
+	int size() {
+		return entries.size();
+	}
+
+	@VisibleForTesting
+	long getHitCount() {
+		return hitCount;
+	}
+
+	@VisibleForTesting
+	long getMissCount() {
+		return missCount;
+	}
+
+	@VisibleForTesting
+	double getHitRatio() {
+		long hits = hitCount;
+		long lookups = hits + missCount;
+		return lookups == 0 ? 0.0 : (double) hits / lookups;
+	}
+
+	private void registerMetrics(MetricGroup group) {
+		group.gauge("hitCount", (Gauge<Long>) this::getHitCount);
+		group.gauge("missCount", (Gauge<Long>) this::getMissCount);
+		group.gauge("hitRatio", (Gauge<Double>) this::getHitRatio);
+		group.gauge("size", (Gauge<Integer>) this::size);
+	}
+
+	/** The key of a cached value: the column family and the serialized composite key. */
+	private static final class CacheKey {
+
+		private final ColumnFamilyHandle columnFamily;
+
+		private final byte[] key;
+
+		private final int hashCode;
+
+		CacheKey(ColumnFamilyHandle columnFamily, byte[] key) {
+			this.columnFamily = columnFamily;
+			this.key = key;
+			this.hashCode = 31 * System.identityHashCode(columnFamily) + Arrays.hashCode(key);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (o == null || getClass() != o.getClass()) {
+				return false;
+			}
+			CacheKey that = (CacheKey) o;
+			return columnFamily == that.columnFamily && Arrays.equals(key, that.key);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
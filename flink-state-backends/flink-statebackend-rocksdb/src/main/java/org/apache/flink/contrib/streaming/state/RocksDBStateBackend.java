@@ -23,6 +23,7 @@ import org.apache.flink.api.common.JobID;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.configuration.CheckpointingOptions;
 import org.apache.flink.configuration.IllegalConfigurationException;
+import org.apache.flink.configuration.MemorySize;
 import org.apache.flink.configuration.ReadableConfig;
 import org.apache.flink.core.fs.CloseableRegistry;
 import org.apache.flink.core.fs.Path;
@@ -73,6 +74,8 @@ import java.util.UUID;
 
 import static org.apache.flink.contrib.streaming.state.RocksDBConfigurableOptions.WRITE_BATCH_SIZE;
 import static org.apache.flink.contrib.streaming.state.RocksDBOptions.CHECKPOINT_TRANSFER_THREAD_NUM;
+import static org.apache.flink.contrib.streaming.state.RocksDBOptions.CHECKPOINT_UPLOAD_RATE_LIMIT;
+import static org.apache.flink.contrib.streaming.state.RocksDBOptions.READ_CACHE_SIZE;
 import static org.apache.flink.contrib.streaming.state.RocksDBOptions.TIMER_SERVICE_FACTORY;
 import static org.apache.flink.contrib.streaming.state.RocksDBOptions.TTL_COMPACT_FILTER_ENABLED;
 import static org.apache.flink.util.Preconditions.checkArgument;
@@ -113,6 +116,8 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 
 	private static final int UNDEFINED_NUMBER_OF_TRANSFER_THREADS = -1;
 	private static final long UNDEFINED_WRITE_BATCH_SIZE = -1;
+	private static final int UNDEFINED_READ_CACHE_SIZE = -1;
+	private static final long UNDEFINED_UPLOAD_RATE_LIMIT = -1;
 
 	// ------------------------------------------------------------------------
 
@@ -178,6 +183,16 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 	 */
 	private long writeBatchSize;
 
+	/**
+	 * Max number of deserialized values cached per backend in front of RocksDB, 0 disables the cache.
+	 */
+	private int readCacheSize;
+
+	/**
+	 * TaskManager-wide upload bandwidth of incremental checkpoints in bytes per second, 0 means unlimited.
+	 */
+	private long uploadRateLimit;
+
 	// ------------------------------------------------------------------------
 
 	/**
@@ -279,6 +294,8 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 		this.enableTtlCompactionFilter = TernaryBoolean.UNDEFINED;
 		this.memoryConfiguration = new RocksDBMemoryConfiguration();
 		this.writeBatchSize = UNDEFINED_WRITE_BATCH_SIZE;
+		this.readCacheSize = UNDEFINED_READ_CACHE_SIZE;
+		this.uploadRateLimit = UNDEFINED_UPLOAD_RATE_LIMIT;
 	}
 
 	/**
@@ -326,6 +343,21 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 		} else {
 			this.writeBatchSize = original.writeBatchSize;
 		}
+
+		if (original.readCacheSize == UNDEFINED_READ_CACHE_SIZE) {
+			this.readCacheSize = config.get(READ_CACHE_SIZE);
+		} else {
+			this.readCacheSize = original.readCacheSize;
+		}
+		checkArgument(readCacheSize >= 0, "Read cache size have to be no negative.");
+
+		if (original.uploadRateLimit == UNDEFINED_UPLOAD_RATE_LIMIT) {
+			this.uploadRateLimit = config.getOptional(CHECKPOINT_UPLOAD_RATE_LIMIT)
+				.map(MemorySize::getBytes)
+				.orElse(0L);
+		} else {
+			this.uploadRateLimit = original.uploadRateLimit;
+		}
 		this.enableTtlCompactionFilter = original.enableTtlCompactionFilter
 			.resolveUndefined(config.get(TTL_COMPACT_FILTER_ENABLED));
 
@@ -544,7 +576,9 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 			.setEnableTtlCompactionFilter(isTtlCompactionFilterEnabled())
 			.setNumberOfTransferingThreads(getNumberOfTransferThreads())
 			.setNativeMetricOptions(resourceContainer.getMemoryWatcherOptions(defaultMetricOptions))
-			.setWriteBatchSize(getWriteBatchSize());
+			.setWriteBatchSize(getWriteBatchSize())
+			.setReadCacheSize(getReadCacheSize())
+			.setUploadRateLimit(getUploadRateLimit());
 		return builder.build();
 	}
 
@@ -929,6 +963,42 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 		this.writeBatchSize = writeBatchSize;
 	}
 
+	/**
+	 * Gets the max number of deserialized values cached per backend in front of RocksDB.
+	 */
+	public int getReadCacheSize() {
+		return readCacheSize == UNDEFINED_READ_CACHE_SIZE ?
+			READ_CACHE_SIZE.defaultValue() : readCacheSize;
+	}
+
+	/**
+	 * Sets the max number of deserialized values cached per backend in front of RocksDB
+	 * for point lookups on value and map state, zero disables the cache.
+	 * @param readCacheSize The max number of cached values.
+	 */
+	public void setReadCacheSize(int readCacheSize) {
+		checkArgument(readCacheSize >= 0, "Read cache size have to be no negative.");
+		this.readCacheSize = readCacheSize;
+	}
+
+	/**
+	 * Gets the TaskManager-wide upload bandwidth of incremental checkpoints in bytes per second,
+	 * zero means unlimited.
+	 */
+	public long getUploadRateLimit() {
+		return uploadRateLimit == UNDEFINED_UPLOAD_RATE_LIMIT ? 0L : uploadRateLimit;
+	}
+
+	/**
+	 * Sets the upload bandwidth of incremental checkpoints in bytes per second. The limit is shared by all
+	 * RocksDB backends of a TaskManager, zero disables the limit.
+	 * @param uploadRateLimit The upload bandwidth in bytes per second.
+	 */
+	public void setUploadRateLimit(long uploadRateLimit) {
+		checkArgument(uploadRateLimit >= 0, "Upload rate limit have to be no negative.");
+		this.uploadRateLimit = uploadRateLimit;
+	}
+
 	// ------------------------------------------------------------------------
 	//  utilities
 	// ------------------------------------------------------------------------
@@ -956,6 +1026,8 @@ public class RocksDBStateBackend extends AbstractStateBackend implements Configu
 				", enableIncrementalCheckpointing=" + enableIncrementalCheckpointing +
 				", numberOfTransferThreads=" + numberOfTransferThreads +
 				", writeBatchSize=" + writeBatchSize +
+				", readCacheSize=" + readCacheSize +
+				", uploadRateLimit=" + uploadRateLimit +
 				'}';
 	}
 
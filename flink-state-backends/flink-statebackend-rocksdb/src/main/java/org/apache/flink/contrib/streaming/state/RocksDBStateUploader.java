@@ -19,6 +19,11 @@
 package org.apache.flink.contrib.streaming.state;
 
 import org.apache.flink.core.fs.CloseableRegistry;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.metrics.ThreadSafeSimpleCounter;
 import org.apache.flink.runtime.concurrent.FutureUtils;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.CheckpointedStateScope;
@@ -30,25 +35,58 @@ import org.apache.flink.util.IOUtils;
 import org.apache.flink.util.function.CheckedSupplier;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
 /**
  * Help class for uploading RocksDB state files.
+ *
+ * <p>The upload bandwidth can be limited by a {@link RocksDBUploadRateLimiter} that is shared by
+ * all uploaders of the TaskManager.
  */
 public class RocksDBStateUploader extends RocksDBStateDataTransfer {
 	private static final int READ_BUFFER_SIZE = 16 * 1024;
 
+	static final String METRIC_GROUP_NAME = "checkpointUpload";
+
+	@Nullable
+	private final RocksDBUploadRateLimiter rateLimiter;
+
+	/** The number of bytes of the files that were handed to this uploader but are not uploaded yet. */
+	private final AtomicLong queuedBytes;
+
+	private final Counter uploadedBytes;
+
 	public RocksDBStateUploader(int numberOfSnapshottingThreads) {
+		this(numberOfSnapshottingThreads, null, null);
+	}
+
+	RocksDBStateUploader(
+		int numberOfSnapshottingThreads,
+		@Nullable RocksDBUploadRateLimiter rateLimiter,
+		@Nullable MetricGroup metricGroup) {
 		super(numberOfSnapshottingThreads);
+		this.rateLimiter = rateLimiter;
+		this.queuedBytes = new AtomicLong();
+		this.uploadedBytes = new ThreadSafeSimpleCounter();
+
+		if (metricGroup != null) {
+			MetricGroup uploadGroup = metricGroup.addGroup(METRIC_GROUP_NAME);
+			uploadGroup.gauge("queuedBytes", (Gauge<Long>) queuedBytes::get);
+			uploadGroup.counter("uploadedBytes", uploadedBytes);
+			uploadGroup.meter("uploadedBytesPerSecond", new MeterView(uploadedBytes));
+		}
 	}
 
 	/**
@@ -95,21 +133,34 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
 		Map<StateHandleID, CompletableFuture<StreamStateHandle>> futures = new HashMap<>(files.size());
 
 		for (Map.Entry<StateHandleID, Path> entry : files.entrySet()) {
+			final long fileSize = fileSizeOrZero(entry.getValue());
+			queuedBytes.addAndGet(fileSize);
 			final Supplier<StreamStateHandle> supplier =
-				CheckedSupplier.unchecked(() -> uploadLocalFileToCheckpointFs(entry.getValue(), checkpointStreamFactory, closeableRegistry));
+				CheckedSupplier.unchecked(() -> uploadLocalFileToCheckpointFs(entry.getValue(), fileSize, checkpointStreamFactory, closeableRegistry));
 			futures.put(entry.getKey(), CompletableFuture.supplyAsync(supplier, executorService));
 		}
 
 		return futures;
 	}
 
+	private static long fileSizeOrZero(Path filePath) {
+		try {
+			return Files.size(filePath);
+		} catch (IOException e) {
+			// the upload reports the problem with the file
+			return 0L;
+		}
+	}
+
 	private StreamStateHandle uploadLocalFileToCheckpointFs(
 		Path filePath,
+		long queuedFileSize,
 		CheckpointStreamFactory checkpointStreamFactory,
 		CloseableRegistry closeableRegistry) throws IOException {
 
 		InputStream inputStream = null;
 		CheckpointStreamFactory.CheckpointStateOutputStream outputStream = null;
+		long remainingQueuedBytes = queuedFileSize;
 
 		try {
 			final byte[] buffer = new byte[READ_BUFFER_SIZE];
@@ -128,7 +179,16 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
 					break;
 				}
 
+				if (rateLimiter != null) {
+					rateLimiter.acquire(numBytes);
+				}
+
 				outputStream.write(buffer, 0, numBytes);
+
+				uploadedBytes.inc(numBytes);
+				long dequeuedBytes = Math.min(numBytes, remainingQueuedBytes);
+				remainingQueuedBytes -= dequeuedBytes;
+				queuedBytes.addAndGet(-dequeuedBytes);
 			}
 
 			StreamStateHandle result = null;
@@ -138,7 +198,11 @@ public class RocksDBStateUploader extends RocksDBStateDataTransfer {
 			}
 			return result;
 
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for upload bandwidth for " + filePath + '.');
 		} finally {
+			queuedBytes.addAndGet(-remainingQueuedBytes);
 
 			if (closeableRegistry.unregisterCloseable(inputStream)) {
 				IOUtils.closeQuietly(inputStream);
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.annotation.VisibleForTesting;
+
+import javax.annotation.concurrent.GuardedBy;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * Limits the bandwidth that the {@link RocksDBStateUploader}s of a TaskManager use for uploading
+ * incremental checkpoint files, so that checkpoints do not saturate the network shared with the data exchange.
+ *
+ * <p>Uploading threads reserve time slots for each buffer they write. The reservations are handed out
+ * under a fair lock in the order in which the threads ask for them, so the bandwidth is shared evenly
+ * among all uploading threads of all slots. Unused bandwidth is not accumulated, there are no bursts
+ * above the configured rate after an idle period.
+ */
+class RocksDBUploadRateLimiter {
+
+	private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+	private static final Object SHARED_INSTANCE_LOCK = new Object();
+
+	@GuardedBy("SHARED_INSTANCE_LOCK")
+	private static RocksDBUploadRateLimiter sharedInstance;
+
+	private final ReentrantLock lock = new ReentrantLock(true);
+
+	@GuardedBy("lock")
+	private long bytesPerSecond;
+
+	/** The point in time at which the next reservation starts. */
+	@GuardedBy("lock")
+	private long nextFreeNanos;
+
+	@VisibleForTesting
+	RocksDBUploadRateLimiter(long bytesPerSecond) {
+		checkArgument(bytesPerSecond > 0, "The upload rate limit must be positive.");
+		this.bytesPerSecond = bytesPerSecond;
+		this.nextFreeNanos = System.nanoTime();
+	}
+
+	/**
+	 * Returns the limiter that is shared by all RocksDB backends in this TaskManager. If the instance already
+	 * exists, its rate is set to the given one, i.e. the most recently created backend determines the limit.
+	 */
+	static RocksDBUploadRateLimiter getSharedInstance(long bytesPerSecond) {
+		synchronized (SHARED_INSTANCE_LOCK) {
+			if (sharedInstance == null) {
+				sharedInstance = new RocksDBUploadRateLimiter(bytesPerSecond);
+			} else {
+				sharedInstance.setRate(bytesPerSecond);
+			}
+			return sharedInstance;
+		}
+	}
+
+	void setRate(long bytesPerSecond) {
+		checkArgument(bytesPerSecond > 0, "The upload rate limit must be positive.");
+		lock.lock();
+		try {
+			this.bytesPerSecond = bytesPerSecond;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	long getRate() {
+		lock.lock();
+		try {
+			return bytesPerSecond;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Blocks until the given number of bytes may be uploaded without exceeding the rate limit.
+	 */
+	void acquire(int numBytes) throws InterruptedException {
+		final long waitNanos;
+
+		lock.lockInterruptibly();
+		try {
+			final long now = System.nanoTime();
+			if (nextFreeNanos - now < 0) {
+				nextFreeNanos = now;
+			}
+			waitNanos = nextFreeNanos - now;
+			nextFreeNanos += numBytes * NANOS_PER_SECOND / bytesPerSecond;
+		} finally {
+			lock.unlock();
+		}
+
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+}
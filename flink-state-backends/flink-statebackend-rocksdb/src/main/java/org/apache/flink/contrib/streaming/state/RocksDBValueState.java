@@ -23,6 +23,7 @@ import org.apache.flink.api.common.state.StateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.RegisteredKeyValueStateBackendMetaInfo;
 import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.util.FlinkRuntimeException;
@@ -31,6 +32,10 @@ import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.RocksDBException;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 /**
  * {@link ValueState} implementation that stores state in RocksDB.
@@ -43,6 +48,9 @@ class RocksDBValueState<K, N, V>
 	extends AbstractRocksDBState<K, N, V>
 	implements InternalValueState<K, N, V> {
 
+	/** Lazily created key builder for the explicit keys of {@link #getAll(List, Object)}. */
+	private RocksDBSerializedCompositeKeyBuilder<K> bulkKeyBuilder;
+
 	/**
 	 * Creates a new {@code RocksDBValueState}.
 	 *
@@ -80,14 +88,21 @@ class RocksDBValueState<K, N, V>
 	@Override
 	public V value() {
 		try {
-			byte[] valueBytes = backend.db.get(columnFamily,
-				serializeCurrentKeyWithGroupAndNamespace());
+			byte[] key = serializeCurrentKeyWithGroupAndNamespace();
+			V cachedValue = getCachedValue(key, valueSerializer);
+			if (cachedValue != null) {
+				return cachedValue;
+			}
+
+			byte[] valueBytes = backend.db.get(columnFamily, key);
 
 			if (valueBytes == null) {
 				return getDefaultValue();
 			}
 			dataInputView.setBuffer(valueBytes);
-			return valueSerializer.deserialize(dataInputView);
+			V value = valueSerializer.deserialize(dataInputView);
+			cacheValue(key, value, valueSerializer);
+			return value;
 		} catch (IOException | RocksDBException e) {
 			throw new FlinkRuntimeException("Error while retrieving data from RocksDB.", e);
 		}
@@ -101,14 +116,52 @@ class RocksDBValueState<K, N, V>
 		}
 
 		try {
-			backend.db.put(columnFamily, writeOptions,
-				serializeCurrentKeyWithGroupAndNamespace(),
-				serializeValue(value));
+			byte[] key = serializeCurrentKeyWithGroupAndNamespace();
+			backend.db.put(columnFamily, writeOptions, key, serializeValue(value));
+			cacheValue(key, value, valueSerializer);
 		} catch (Exception e) {
 			throw new FlinkRuntimeException("Error while adding data to RocksDB", e);
 		}
 	}
 
+	@Override
+	public List<V> getAll(List<K> keys, N namespace) {
+		if (bulkKeyBuilder == null) {
+			// the shared key builder holds the current key, so explicit keys need their own builder
+			bulkKeyBuilder = new RocksDBSerializedCompositeKeyBuilder<>(
+				backend.getKeySerializer(),
+				backend.getKeyGroupPrefixBytes(),
+				32);
+		}
+
+		try {
+			final List<byte[]> keyBytes = new ArrayList<>(keys.size());
+			for (K key : keys) {
+				int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(key, backend.getNumberOfKeyGroups());
+				bulkKeyBuilder.setKeyAndKeyGroup(key, keyGroup);
+				keyBytes.add(bulkKeyBuilder.buildCompositeKeyNamespace(namespace, namespaceSerializer));
+			}
+
+			// the result map is keyed by the identity of the given key arrays and omits absent keys
+			final Map<byte[], byte[]> valueBytes =
+				backend.db.multiGet(Collections.nCopies(keyBytes.size(), columnFamily), keyBytes);
+
+			final List<V> result = new ArrayList<>(keys.size());
+			for (byte[] key : keyBytes) {
+				byte[] value = valueBytes.get(key);
+				if (value == null) {
+					result.add(getDefaultValue());
+				} else {
+					dataInputView.setBuffer(value);
+					result.add(valueSerializer.deserialize(dataInputView));
+				}
+			}
+			return result;
+		} catch (IOException | RocksDBException e) {
+			throw new FlinkRuntimeException("Error while retrieving data from RocksDB.", e);
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	static <K, N, SV, S extends State, IS extends S> IS create(
 		StateDescriptor<S, SV> stateDesc,
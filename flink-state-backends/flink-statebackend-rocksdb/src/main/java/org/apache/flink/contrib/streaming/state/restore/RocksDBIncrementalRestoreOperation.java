@@ -24,7 +24,6 @@ import org.apache.flink.contrib.streaming.state.RocksDBKeyedStateBackend.RocksDb
 import org.apache.flink.contrib.streaming.state.RocksDBNativeMetricOptions;
 import org.apache.flink.contrib.streaming.state.RocksDBOperationUtils;
 import org.apache.flink.contrib.streaming.state.RocksDBStateDownloader;
-import org.apache.flink.contrib.streaming.state.RocksDBWriteBatchWrapper;
 import org.apache.flink.contrib.streaming.state.RocksIteratorWrapper;
 import org.apache.flink.contrib.streaming.state.ttl.RocksDbTtlCompactFiltersManager;
 import org.apache.flink.core.fs.CloseableRegistry;
@@ -51,12 +50,15 @@ import org.rocksdb.ColumnFamilyDescriptor;
 import org.rocksdb.ColumnFamilyHandle;
 import org.rocksdb.ColumnFamilyOptions;
 import org.rocksdb.DBOptions;
+import org.rocksdb.EnvOptions;
+import org.rocksdb.IngestExternalFileOptions;
+import org.rocksdb.Options;
 import org.rocksdb.RocksDB;
 import org.rocksdb.RocksDBException;
+import org.rocksdb.SstFileWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 
 import java.io.File;
@@ -68,6 +70,7 @@ import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -78,7 +81,6 @@ import java.util.UUID;
 import java.util.function.Function;
 
 import static org.apache.flink.contrib.streaming.state.snapshot.RocksSnapshotUtil.SST_FILE_SUFFIX;
-import static org.apache.flink.util.Preconditions.checkArgument;
 
 /**
  * Encapsulates the process of restoring a RocksDB instance from an incremental snapshot.
@@ -90,7 +92,6 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
 	private final SortedMap<Long, Set<StateHandleID>> restoredSstFiles;
 	private long lastCompletedCheckpointId;
 	private UUID backendUID;
-	private final long writeBatchSize;
 
 	public RocksDBIncrementalRestoreOperation(
 		String operatorIdentifier,
@@ -108,8 +109,7 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
 		RocksDBNativeMetricOptions nativeMetricOptions,
 		MetricGroup metricGroup,
 		@Nonnull Collection<KeyedStateHandle> restoreStateHandles,
-		@Nonnull RocksDbTtlCompactFiltersManager ttlCompactFiltersManager,
-		@Nonnegative long writeBatchSize) {
+		@Nonnull RocksDbTtlCompactFiltersManager ttlCompactFiltersManager) {
 		super(keyGroupRange,
 			keyGroupPrefixBytes,
 			numberOfTransferringThreads,
@@ -129,8 +129,6 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
 		this.restoredSstFiles = new TreeMap<>();
 		this.lastCompletedCheckpointId = -1L;
 		this.backendUID = UUID.randomUUID();
-		checkArgument(writeBatchSize >= 0, "Write batch size have to be no negative.");
-		this.writeBatchSize = writeBatchSize;
 	}
 
 	/**
@@ -259,9 +257,11 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
 	}
 
 	/**
-	 * Recovery from multi incremental states with rescaling. For rescaling, this method creates a temporary
-	 * RocksDB instance for a key-groups shard. All contents from the temporary instance are copied into the
-	 * real restore instance and then the temporary instance is discarded.
+	 * Recovery from multi incremental states with rescaling. The handle with the best overlap becomes the base
+	 * instance and is clipped to the target key-group range with range deletions. For every other handle, this
+	 * method creates a temporary RocksDB instance, writes the key-groups of the target range from each column
+	 * family into an SST file, and ingests the files into the real restore instance. The temporary instance
+	 * is discarded afterwards.
 	 */
 	private void restoreWithRescaling(Collection<KeyedStateHandle> restoreStateHandles) throws Exception {
 
@@ -293,10 +293,14 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
 			}
 
 			Path temporaryRestoreInstancePath = instanceBasePath.getAbsoluteFile().toPath().resolve(UUID.randomUUID().toString());
+			Path temporarySstFilesPath = instanceBasePath.getAbsoluteFile().toPath().resolve(UUID.randomUUID().toString());
 			try (RestoredDBInstance tmpRestoreDBInfo = restoreDBInstanceFromStateHandle(
 				(IncrementalRemoteKeyedStateHandle) rawStateHandle,
 				temporaryRestoreInstancePath);
-				RocksDBWriteBatchWrapper writeBatchWrapper = new RocksDBWriteBatchWrapper(this.db, writeBatchSize)) {
+				IngestExternalFileOptions ingestOptions = new IngestExternalFileOptions()) {
+
+				ingestOptions.setMoveFiles(true);
+				Files.createDirectories(temporarySstFilesPath);
 
 				List<ColumnFamilyDescriptor> tmpColumnFamilyDescriptors = tmpRestoreDBInfo.columnFamilyDescriptors;
 				List<ColumnFamilyHandle> tmpColumnFamilyHandles = tmpRestoreDBInfo.columnFamilyHandles;
@@ -309,28 +313,78 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
 						null, tmpRestoreDBInfo.stateMetaInfoSnapshots.get(i))
 						.columnFamilyHandle;
 
-					try (RocksIteratorWrapper iterator = RocksDBOperationUtils.getRocksIterator(tmpRestoreDBInfo.db, tmpColumnFamilyHandle)) {
+					File sstFile = temporarySstFilesPath.resolve(i + SST_FILE_SUFFIX).toFile();
+					boolean hasEntries = writeKeyGroupRangeToSstFile(
+						tmpRestoreDBInfo.db,
+						tmpColumnFamilyHandle,
+						tmpColumnFamilyDescriptors.get(i).getOptions(),
+						startKeyGroupPrefixBytes,
+						stopKeyGroupPrefixBytes,
+						sstFile);
+
+					if (hasEntries) {
+						// the key-group ranges of the handles are disjoint, so ingestion only links the file
+						// into the LSM tree instead of rewriting the entries through the memtable
+						this.db.ingestExternalFile(
+							targetColumnFamilyHandle,
+							Collections.singletonList(sstFile.getAbsolutePath()),
+							ingestOptions);
+					}
+				}
+			} finally {
+				cleanUpPathQuietly(temporaryRestoreInstancePath);
+				cleanUpPathQuietly(temporarySstFilesPath);
+			}
+		}
+	}
+
+	/**
+	 * Writes all entries of the column family whose keys fall into [startKeyGroupPrefixBytes, stopKeyGroupPrefixBytes)
+	 * into the given SST file. The file is only created if there is at least one such entry.
+	 *
+	 * @return true if the file was created, false if the key-group range of the column family is empty.
+	 */
+	private boolean writeKeyGroupRangeToSstFile(
+		RocksDB sourceDb,
+		ColumnFamilyHandle sourceColumnFamilyHandle,
+		ColumnFamilyOptions columnFamilyOptions,
+		byte[] startKeyGroupPrefixBytes,
+		byte[] stopKeyGroupPrefixBytes,
+		File sstFile) throws RocksDBException {
+
+		try (RocksIteratorWrapper iterator = RocksDBOperationUtils.getRocksIterator(sourceDb, sourceColumnFamilyHandle)) {
+
+			iterator.seek(startKeyGroupPrefixBytes);
+
+			if (!iterator.isValid() || !RocksDBIncrementalCheckpointUtils.beforeThePrefixBytes(iterator.key(), stopKeyGroupPrefixBytes)) {
+				return false;
+			}
+
+			try (EnvOptions envOptions = new EnvOptions();
+				Options options = new Options(dbOptions, columnFamilyOptions);
+				SstFileWriter sstFileWriter = new SstFileWriter(envOptions, options)) {
 
-						iterator.seek(startKeyGroupPrefixBytes);
+				sstFileWriter.open(sstFile.getAbsolutePath());
 
-						while (iterator.isValid()) {
+				while (iterator.isValid()) {
 
-							if (RocksDBIncrementalCheckpointUtils.beforeThePrefixBytes(iterator.key(), stopKeyGroupPrefixBytes)) {
-								writeBatchWrapper.put(targetColumnFamilyHandle, iterator.key(), iterator.value());
-							} else {
-								// Since the iterator will visit the record according to the sorted order,
-								// we can just break here.
-								break;
-							}
+					if (RocksDBIncrementalCheckpointUtils.beforeThePrefixBytes(iterator.key(), stopKeyGroupPrefixBytes)) {
+						// the iterator returns the entries in key order, as the SST file writer requires
+						sstFileWriter.put(iterator.key(), iterator.value());
+					} else {
+						// Since the iterator will visit the record according to the sorted order,
+						// we can just break here.
+						break;
+					}
 
-							iterator.next();
-						}
-					} // releases native iterator resources
+					iterator.next();
 				}
-			} finally {
-				cleanUpPathQuietly(temporaryRestoreInstancePath);
+
+				sstFileWriter.finish();
 			}
-		}
+		} // releases native iterator resources
+
+		return true;
 	}
 
 	private void initDBWithRescaling(KeyedStateHandle initialHandle) throws Exception {
@@ -347,8 +401,7 @@ public class RocksDBIncrementalRestoreOperation<K> extends AbstractRocksDBRestor
 				columnFamilyHandles,
 				keyGroupRange,
 				initialHandle.getKeyGroupRange(),
-				keyGroupPrefixBytes,
-				writeBatchSize);
+				keyGroupPrefixBytes);
 		} catch (RocksDBException e) {
 			String errMsg = "Failed to clip DB after initialization.";
 			LOG.error(errMsg, e);
@@ -121,7 +121,7 @@ public class RocksIncrementalSnapshotStrategy<K> extends RocksDBSnapshotStrategy
 		@Nonnull UUID backendUID,
 		@Nonnull SortedMap<Long, Set<StateHandleID>> materializedSstFiles,
 		long lastCompletedCheckpointId,
-		int numberOfTransferingThreads) {
+		@Nonnull RocksDBStateUploader stateUploader) {
 
 		super(
 			DESCRIPTION,
@@ -138,7 +138,7 @@ public class RocksIncrementalSnapshotStrategy<K> extends RocksDBSnapshotStrategy
 		this.backendUID = backendUID;
 		this.materializedSstFiles = materializedSstFiles;
 		this.lastCompletedCheckpointId = lastCompletedCheckpointId;
-		this.stateUploader = new RocksDBStateUploader(numberOfTransferingThreads);
+		this.stateUploader = stateUploader;
 		this.localDirectoryName = backendUID.toString().replaceAll("[\\-]", "");
 	}
 
@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
+import org.apache.flink.api.common.state.ValueState;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.api.common.typeutils.base.IntSerializer;
+import org.apache.flink.api.common.typeutils.base.ListSerializer;
+import org.apache.flink.api.common.typeutils.base.StringSerializer;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.util.IOUtils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for the {@link RocksDBReadCache} in front of {@link RocksDBValueState} and {@link RocksDBMapState}.
+ */
+public class RocksDBReadCacheTest {
+
+	private static final int CACHE_SIZE = 4;
+
+	@Rule
+	public final TemporaryFolder tmp = new TemporaryFolder();
+
+	private RocksDBKeyedStateBackend<Integer> backend;
+
+	private RocksDBReadCache cache;
+
+	@Before
+	public void setupBackend() throws Exception {
+		backend = RocksDBTestUtils.builderForTestDefaults(tmp.newFolder(), IntSerializer.INSTANCE)
+			.setReadCacheSize(CACHE_SIZE)
+			.build();
+		cache = backend.getReadCache();
+	}
+
+	@After
+	public void disposeBackend() {
+		if (backend != null) {
+			IOUtils.closeQuietly(backend);
+			backend.dispose();
+		}
+	}
+
+	@Test
+	public void testCacheIsDisabledByDefault() throws Exception {
+		RocksDBKeyedStateBackend<Integer> uncached =
+			RocksDBTestUtils.builderForTestDefaults(tmp.newFolder(), IntSerializer.INSTANCE).build();
+		try {
+			assertNull(uncached.getReadCache());
+		} finally {
+			IOUtils.closeQuietly(uncached);
+			uncached.dispose();
+		}
+	}
+
+	@Test
+	public void testValueStateReadsThroughCache() throws Exception {
+		ValueState<String> state = backend.getPartitionedState(
+			VoidNamespace.INSTANCE,
+			VoidNamespaceSerializer.INSTANCE,
+			new ValueStateDescriptor<>("value", StringSerializer.INSTANCE));
+
+		backend.setCurrentKey(1);
+		assertNull(state.value());
+		assertEquals(1, cache.getMissCount());
+
+		state.update("a");
+		assertEquals("a", state.value());
+		assertEquals("a", state.value());
+		assertEquals(2, cache.getHitCount());
+
+		state.update("b");
+		assertEquals("b", state.value());
+
+		state.clear();
+		assertNull(state.value());
+
+		backend.setCurrentKey(2);
+		assertNull(state.value());
+	}
+
+	@Test
+	public void testMutableValuesAreCopied() throws Exception {
+		ValueState<List<Integer>> state = backend.getPartitionedState(
+			VoidNamespace.INSTANCE,
+			VoidNamespaceSerializer.INSTANCE,
+			new ValueStateDescriptor<>("list", new ListSerializer<>(IntSerializer.INSTANCE)));
+
+		backend.setCurrentKey(1);
+		List<Integer> written = new ArrayList<>(Arrays.asList(1, 2));
+		state.update(written);
+
+		// modifications without an update must neither reach RocksDB nor the cache
+		written.add(3);
+		List<Integer> read = state.value();
+		assertEquals(Arrays.asList(1, 2), read);
+		read.add(4);
+		assertEquals(Arrays.asList(1, 2), state.value());
+		assertTrue(cache.getHitCount() > 0);
+	}
+
+	@Test
+	public void testMapStateReadsThroughCache() throws Exception {
+		MapState<Integer, String> state = backend.getPartitionedState(
+			VoidNamespace.INSTANCE,
+			VoidNamespaceSerializer.INSTANCE,
+			new MapStateDescriptor<>("map", IntSerializer.INSTANCE, StringSerializer.INSTANCE));
+
+		backend.setCurrentKey(1);
+		state.put(1, "a");
+		state.put(2, "b");
+		assertEquals("a", state.get(1));
+		assertTrue(state.contains(2));
+		assertEquals(2, cache.getHitCount());
+
+		state.remove(1);
+		assertNull(state.get(1));
+		assertFalse(state.contains(1));
+
+		state.put(3, null);
+		assertNull(state.get(3));
+		assertTrue(state.contains(3));
+
+		state.entries().iterator().next().setValue("c");
+		assertEquals("c", state.get(2));
+
+		state.clear();
+		assertNull(state.get(2));
+		assertFalse(state.contains(3));
+	}
+
+	@Test
+	public void testCacheIsBounded() throws Exception {
+		MapState<Integer, Integer> state = backend.getPartitionedState(
+			VoidNamespace.INSTANCE,
+			VoidNamespaceSerializer.INSTANCE,
+			new MapStateDescriptor<>("bounded", IntSerializer.INSTANCE, IntSerializer.INSTANCE));
+
+		backend.setCurrentKey(1);
+		for (int i = 0; i < 3 * CACHE_SIZE; i++) {
+			state.put(i, i);
+		}
+		assertEquals(CACHE_SIZE, cache.size());
+
+		for (int i = 0; i < 3 * CACHE_SIZE; i++) {
+			assertEquals(Integer.valueOf(i), state.get(i));
+		}
+		assertEquals(CACHE_SIZE, cache.size());
+	}
+}
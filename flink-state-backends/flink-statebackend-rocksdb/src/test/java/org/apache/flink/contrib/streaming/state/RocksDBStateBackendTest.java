@@ -19,6 +19,8 @@
 package org.apache.flink.contrib.streaming.state;
 
 import org.apache.flink.api.common.ExecutionConfig;
+import org.apache.flink.api.common.state.ListState;
+import org.apache.flink.api.common.state.ListStateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeutils.base.IntSerializer;
@@ -68,15 +70,18 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Queue;
 import java.util.concurrent.RunnableFuture;
 
 import static junit.framework.TestCase.assertNotNull;
 import static org.apache.flink.contrib.streaming.state.RocksDBKeyedStateBackendBuilder.DB_INSTANCE_DIR_STRING;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
@@ -437,6 +442,49 @@ public class RocksDBStateBackendTest extends StateBackendTestBase<RocksDBStateBa
 		assertEquals(1, allFilesInDbDir.size());
 	}
 
+	@Test
+	public void testListStateIteratesMergedValueLazily() throws Exception {
+		AbstractKeyedStateBackend<Integer> backend = createKeyedBackend(IntSerializer.INSTANCE);
+		try {
+			ListState<String> state = backend.getPartitionedState(
+				VoidNamespace.INSTANCE,
+				VoidNamespaceSerializer.INSTANCE,
+				new ListStateDescriptor<>("list", StringSerializer.INSTANCE));
+
+			backend.setCurrentKey(1);
+			state.addAll(Arrays.asList("a", "b"));
+			state.add("c");
+			state.addAll(Arrays.asList("d", "e"));
+
+			Iterable<String> elements = state.get();
+			List<String> expected = Arrays.asList("a", "b", "c", "d", "e");
+
+			// the iterable reads the value that was merged when get() was called and can be iterated repeatedly
+			state.add("f");
+			for (int i = 0; i < 2; i++) {
+				List<String> actual = new ArrayList<>();
+				elements.forEach(actual::add);
+				assertEquals(expected, actual);
+			}
+
+			Iterator<String> iterator = elements.iterator();
+			for (String element : expected) {
+				assertTrue(iterator.hasNext());
+				assertEquals(element, iterator.next());
+			}
+			assertFalse(iterator.hasNext());
+			try {
+				iterator.next();
+				fail("Expected a NoSuchElementException.");
+			} catch (NoSuchElementException expectedException) {
+				// expected
+			}
+		} finally {
+			IOUtils.closeQuietly(backend);
+			backend.dispose();
+		}
+	}
+
 	@Test
 	public void testSharedIncrementalStateDeRegistration() throws Exception {
 		if (enableIncrementalCheckpointing) {
@@ -0,0 +1,61 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.contrib.streaming.state;
+
+import org.apache.flink.util.TestLogger;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link RocksDBUploadRateLimiter}.
+ */
+public class RocksDBUploadRateLimiterTest extends TestLogger {
+
+	@Test
+	public void testAcquireIsLimitedToRate() throws Exception {
+		final int bytesPerSecond = 10 * 1024 * 1024;
+		final int bufferSize = 16 * 1024;
+		final RocksDBUploadRateLimiter rateLimiter = new RocksDBUploadRateLimiter(bytesPerSecond);
+
+		final long start = System.nanoTime();
+		// one tenth of a second worth of bytes
+		for (int i = 0; i < bytesPerSecond / 10 / bufferSize; i++) {
+			rateLimiter.acquire(bufferSize);
+		}
+		final long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		// the last buffer is not waited for
+		assertTrue("Elapsed only " + elapsedMillis + " ms.", elapsedMillis >= 90);
+	}
+
+	@Test
+	public void testSharedInstanceTakesLatestRate() {
+		RocksDBUploadRateLimiter first = RocksDBUploadRateLimiter.getSharedInstance(1024L);
+		RocksDBUploadRateLimiter second = RocksDBUploadRateLimiter.getSharedInstance(2048L);
+
+		assertSame(first, second);
+		assertEquals(2048L, second.getRate());
+	}
+}
@@ -18,6 +18,8 @@
 
 package org.apache.flink.contrib.streaming.state;
 
+import org.apache.flink.api.common.state.MapState;
+import org.apache.flink.api.common.state.MapStateDescriptor;
 import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeinfo.BasicTypeInfo;
@@ -27,7 +29,10 @@ import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
 import org.apache.flink.runtime.checkpoint.StateAssignmentOperation;
 import org.apache.flink.runtime.state.KeyGroupRange;
 import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
+import org.apache.flink.runtime.state.KeyedStateBackend;
+import org.apache.flink.runtime.state.KeyedStateHandle;
 import org.apache.flink.runtime.state.StateBackend;
+import org.apache.flink.runtime.state.VoidNamespace;
 import org.apache.flink.streaming.api.functions.KeyedProcessFunction;
 import org.apache.flink.streaming.api.operators.KeyedProcessOperator;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
@@ -42,7 +47,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Tests to guard rescaling from checkpoint.
@@ -52,6 +62,10 @@ public class RocksIncrementalCheckpointRescalingTest extends TestLogger {
 	@Rule
 	public TemporaryFolder rootFolder = new TemporaryFolder();
 
+	private static final int RESCALING_MAX_PARALLELISM = 128;
+
+	private static final int SPARSE_KEY_GROUPS = 16;
+
 	private final int maxParallelism = 10;
 
 	private KeySelector<String, String> keySelector = new TestKeySelector();
@@ -351,6 +365,125 @@ public class RocksIncrementalCheckpointRescalingTest extends TestLogger {
 		}
 	}
 
+	/**
+	 * Tests scaling out from 3 to 4 subtasks. The key-group range [96, 127] is restored from the instance of
+	 * [86, 127], which is clipped with range deletions, the other ranges are restored by ingesting SST files.
+	 */
+	@Test
+	public void testScalingOutWithClippingAndIngestion() throws Exception {
+		testRescalingWithClippingAndIngestion(3, 4);
+	}
+
+	/**
+	 * Tests scaling in from 5 to 4 subtasks. The key-group range [32, 63] is restored from the instance of
+	 * [26, 51], which is clipped with range deletions, and from an SST file with the entries of [52, 63].
+	 */
+	@Test
+	public void testScalingInWithClippingAndIngestion() throws Exception {
+		testRescalingWithClippingAndIngestion(5, 4);
+	}
+
+	@SuppressWarnings("unchecked")
+	private void testRescalingWithClippingAndIngestion(int oldParallelism, int newParallelism) throws Exception {
+		final String[] records = new String[500];
+		for (int i = 0; i < records.length; i++) {
+			records[i] = String.valueOf(i);
+		}
+
+		// -----------------------------------------> test with the old parallelism <---------------------------------------
+
+		KeyedOneInputStreamOperatorTestHarness<String, String, Integer>[] oldHarness =
+			new KeyedOneInputStreamOperatorTestHarness[oldParallelism];
+		OperatorSubtaskState[] oldSnapshots = new OperatorSubtaskState[oldParallelism];
+
+		try {
+			List<KeyGroupRange> keyGroupPartitions = StateAssignmentOperation.createKeyGroupPartitions(
+				RESCALING_MAX_PARALLELISM,
+				oldParallelism);
+
+			for (int i = 0; i < oldParallelism; i++) {
+				oldHarness[i] = getHarnessTest(new MultiStateKeyedFunction(), keySelector, RESCALING_MAX_PARALLELISM, oldParallelism, i);
+				oldHarness[i].setStateBackend(getStateBackend());
+				oldHarness[i].open();
+
+				validHarnessResult(oldHarness[i], 1, getRecordsInKeyGroupRange(records, keyGroupPartitions.get(i)));
+
+				oldSnapshots[i] = oldHarness[i].snapshot(0, 0);
+			}
+		} finally {
+			closeHarness(oldHarness);
+		}
+
+		OperatorSubtaskState snapshot = AbstractStreamOperatorTestHarness.repackageState(oldSnapshots);
+
+		// -----------------------------------------> test rescaling to the new parallelism <---------------------------------------
+
+		List<KeyGroupRange> keyGroupPartitions = StateAssignmentOperation.createKeyGroupPartitions(
+			RESCALING_MAX_PARALLELISM,
+			newParallelism);
+
+		boolean restoredWithClipping = false;
+		boolean restoredWithIngestion = false;
+
+		for (int i = 0; i < newParallelism; i++) {
+			KeyGroupRange localKeyGroupRange = keyGroupPartitions.get(i);
+			OperatorSubtaskState initState = AbstractStreamOperatorTestHarness.repartitionOperatorState(
+				snapshot, RESCALING_MAX_PARALLELISM, oldParallelism, newParallelism, i);
+
+			// the handles keep their whole key-group range, so this is the base instance of the restore
+			KeyedStateHandle initialHandle = RocksDBIncrementalCheckpointUtils.chooseTheBestStateHandleForInitial(
+				initState.getManagedKeyedState(), localKeyGroupRange);
+			if (initialHandle != null) {
+				restoredWithClipping |= !localKeyGroupRange.getIntersection(initialHandle.getKeyGroupRange())
+					.equals(initialHandle.getKeyGroupRange());
+			}
+			restoredWithIngestion |= initState.getManagedKeyedState().size() > (initialHandle != null ? 1 : 0);
+
+			try (
+				KeyedOneInputStreamOperatorTestHarness<String, String, Integer> harness =
+					getHarnessTest(new MultiStateKeyedFunction(), keySelector, RESCALING_MAX_PARALLELISM, newParallelism, i)) {
+				harness.setStateBackend(getStateBackend());
+				harness.setup();
+				harness.initializeState(initState);
+				harness.open();
+
+				String[] localRecords = getRecordsInKeyGroupRange(records, localKeyGroupRange);
+				Set<String> expectedKeys = new HashSet<>(Arrays.asList(localRecords));
+				Set<String> expectedSparseKeys = Arrays.stream(localRecords)
+					.filter(record -> getKeyGroup(record) < SPARSE_KEY_GROUPS)
+					.collect(Collectors.toSet());
+
+				// the keys are iterated from the column families of the RocksDB instance, so entries of other
+				// key-groups that were not clipped would show up as well
+				KeyedStateBackend<String> backend = harness.getOperator().getKeyedStateBackend();
+				Assert.assertEquals(expectedKeys, getKeys(backend, "counter"));
+				Assert.assertEquals(expectedKeys, getKeys(backend, "records"));
+				Assert.assertEquals(expectedSparseKeys, getKeys(backend, "sparse"));
+
+				validHarnessResult(harness, 2, localRecords);
+			}
+		}
+
+		Assert.assertTrue(restoredWithClipping);
+		Assert.assertTrue(restoredWithIngestion);
+	}
+
+	private static String[] getRecordsInKeyGroupRange(String[] records, KeyGroupRange keyGroupRange) {
+		return Arrays.stream(records)
+			.filter(record -> keyGroupRange.contains(getKeyGroup(record)))
+			.toArray(String[]::new);
+	}
+
+	private static int getKeyGroup(String record) {
+		return KeyGroupRangeAssignment.assignToKeyGroup(record, RESCALING_MAX_PARALLELISM);
+	}
+
+	private static Set<String> getKeys(KeyedStateBackend<String> backend, String state) {
+		try (Stream<String> keys = backend.getKeys(state, VoidNamespace.INSTANCE)) {
+			return keys.collect(Collectors.toSet());
+		}
+	}
+
 	private void closeHarness(KeyedOneInputStreamOperatorTestHarness<?, ?, ?>[] harnessArr) throws Exception {
 		for (KeyedOneInputStreamOperatorTestHarness<?, ?, ?> harness : harnessArr) {
 			if (harness != null) {
@@ -373,12 +506,21 @@ public class RocksIncrementalCheckpointRescalingTest extends TestLogger {
 	}
 
 	private KeyedOneInputStreamOperatorTestHarness<String, String, Integer> getHarnessTest(
+		KeySelector<String, String> keySelector,
+		int maxParallelism,
+		int taskParallelism,
+		int subtaskIdx) throws Exception {
+		return getHarnessTest(new TestKeyedFunction(), keySelector, maxParallelism, taskParallelism, subtaskIdx);
+	}
+
+	private KeyedOneInputStreamOperatorTestHarness<String, String, Integer> getHarnessTest(
+		KeyedProcessFunction<String, String, Integer> function,
 		KeySelector<String, String> keySelector,
 		int maxParallelism,
 		int taskParallelism,
 		int subtaskIdx) throws Exception {
 		return new KeyedOneInputStreamOperatorTestHarness<>(
-			new KeyedProcessOperator<>(new TestKeyedFunction()),
+			new KeyedProcessOperator<>(function),
 			keySelector,
 			BasicTypeInfo.STRING_TYPE_INFO,
 			maxParallelism,
@@ -412,6 +554,40 @@ public class RocksIncrementalCheckpointRescalingTest extends TestLogger {
 		}
 	}
 
+	/**
+	 * A keyed function with several states for tests. The "sparse" state only has entries in the first
+	 * {@link #SPARSE_KEY_GROUPS} key-groups, so its column family is empty in the key-group ranges of most
+	 * subtasks.
+	 */
+	private class MultiStateKeyedFunction extends KeyedProcessFunction<String, String, Integer> {
+
+		private ValueState<Integer> counterState;
+
+		private MapState<String, Integer> recordsState;
+
+		private ValueState<String> sparseState;
+
+		@Override
+		public void open(Configuration parameters) throws Exception {
+			super.open(parameters);
+			counterState = getRuntimeContext().getState(new ValueStateDescriptor<>("counter", Integer.class));
+			recordsState = getRuntimeContext().getMapState(new MapStateDescriptor<>("records", String.class, Integer.class));
+			sparseState = getRuntimeContext().getState(new ValueStateDescriptor<>("sparse", String.class));
+		}
+
+		@Override
+		public void processElement(String value, Context ctx, Collector<Integer> out) throws Exception {
+			Integer oldCount = counterState.value();
+			Integer newCount = oldCount != null ? oldCount + 1 : 1;
+			counterState.update(newCount);
+			recordsState.put(value, newCount);
+			if (getKeyGroup(ctx.getCurrentKey()) < SPARSE_KEY_GROUPS) {
+				sparseState.update(value);
+			}
+			out.collect(newCount);
+		}
+	}
+
 	/**
 	 * A simple key selector for tests.
 	 */
@@ -574,6 +574,9 @@ public class StreamingJobGraphGenerator {
 			case BATCH:
 				resultPartitionType = ResultPartitionType.BLOCKING;
 				break;
+			case HYBRID:
+				resultPartitionType = ResultPartitionType.HYBRID;
+				break;
 			case UNDEFINED:
 				resultPartitionType = determineResultPartitionType(partitioner);
 				break;
@@ -639,6 +642,7 @@ public class StreamingJobGraphGenerator {
 				&& areOperatorsChainable(upStreamVertex, downStreamVertex, streamGraph)
 				&& (edge.getPartitioner() instanceof ForwardPartitioner)
 				&& edge.getShuffleMode() != ShuffleMode.BATCH
+				&& edge.getShuffleMode() != ShuffleMode.HYBRID
 				&& upStreamVertex.getParallelism() == downStreamVertex.getParallelism()
 				&& streamGraph.isChainingEnabled();
 	}
@@ -255,6 +255,8 @@ public abstract class AbstractStreamOperator<OUT>
 		stateHandler = new StreamOperatorStateHandler(context, getExecutionConfig(), streamTaskCloseableRegistry);
 		timeServiceManager = context.internalTimerServiceManager();
 		stateHandler.initializeOperatorState(this);
+		stateHandler.startTtlBackgroundCleanup(getProcessingTimeService());
+		stateHandler.startPeriodicMaterialization(getProcessingTimeService());
 		runtimeContext.setKeyedStateStore(stateHandler.getKeyedStateStore().orElse(null));
 	}
 
@@ -458,7 +460,7 @@ public abstract class AbstractStreamOperator<OUT>
 	private <T> void setKeyContextElement(StreamRecord<T> record, KeySelector<T, ?> selector) throws Exception {
 		if (selector != null) {
 			Object key = selector.getKey(record.getValue());
-			setCurrentKey(key);
+			stateHandler.setCurrentKey(key, record);
 		}
 	}
 
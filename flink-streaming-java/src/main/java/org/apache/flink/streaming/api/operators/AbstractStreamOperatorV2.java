@@ -205,6 +205,8 @@ public abstract class AbstractStreamOperatorV2<OUT> implements StreamOperator<OU
 		stateHandler = new StreamOperatorStateHandler(context, getExecutionConfig(), cancelables);
 		timeServiceManager = context.internalTimerServiceManager();
 		stateHandler.initializeOperatorState(this);
+		stateHandler.startTtlBackgroundCleanup(getProcessingTimeService());
+		stateHandler.startPeriodicMaterialization(getProcessingTimeService());
 	}
 
 	/**
@@ -387,7 +389,7 @@ public abstract class AbstractStreamOperatorV2<OUT> implements StreamOperator<OU
 	protected <T> void internalSetKeyContextElement(StreamRecord<T> record, KeySelector<T, ?> selector) throws Exception {
 		if (selector != null) {
 			Object key = selector.getKey(record.getValue());
-			setCurrentKey(key);
+			stateHandler.setCurrentKey(key, record);
 		}
 	}
 
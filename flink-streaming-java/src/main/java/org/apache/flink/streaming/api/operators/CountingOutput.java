@@ -24,6 +24,8 @@ import org.apache.flink.streaming.runtime.streamrecord.LatencyMarker;
 import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.util.OutputTag;
 
+import java.util.List;
+
 /**
  * Wrapping {@link Output} that updates metrics on the number of emitted elements.
  */
@@ -58,6 +60,12 @@ public class CountingOutput<OUT> implements Output<StreamRecord<OUT>> {
 		output.collect(outputTag, record);
 	}
 
+	@Override
+	public void collectAll(List<StreamRecord<OUT>> records) {
+		numRecordsOut.inc(records.size());
+		output.collectAll(records);
+	}
+
 	@Override
 	public void close() {
 		output.close();
@@ -25,6 +25,8 @@ import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
 import org.apache.flink.util.Collector;
 import org.apache.flink.util.OutputTag;
 
+import java.util.List;
+
 /**
  * A {@link org.apache.flink.streaming.api.operators.StreamOperator} is supplied with an object
  * of this interface that can be used to emit elements and other messages, such as barriers
@@ -52,4 +54,17 @@ public interface Output<T> extends Collector<T> {
 	<X> void collect(OutputTag<X> outputTag, StreamRecord<X> record);
 
 	void emitLatencyMarker(LatencyMarker latencyMarker);
+
+	/**
+	 * Emits a batch of records. This is equivalent to calling {@link #collect(Object)} for each
+	 * of the records, but outputs that write to the network select the channels, serialize and
+	 * copy the records per batch rather than per record.
+	 *
+	 * @param records The records to collect.
+	 */
+	default void collectAll(List<T> records) {
+		for (T record : records) {
+			collect(record);
+		}
+	}
 }
@@ -33,6 +33,7 @@ import org.apache.flink.runtime.state.AbstractKeyedStateBackend;
 import org.apache.flink.runtime.state.CheckpointStreamFactory;
 import org.apache.flink.runtime.state.DefaultKeyedStateStore;
 import org.apache.flink.runtime.state.KeyGroupRange;
+import org.apache.flink.runtime.state.KeyGroupRangeAssignment;
 import org.apache.flink.runtime.state.KeyGroupStatePartitionStreamProvider;
 import org.apache.flink.runtime.state.KeyedStateBackend;
 import org.apache.flink.runtime.state.OperatorStateBackend;
@@ -41,6 +42,10 @@ import org.apache.flink.runtime.state.StateInitializationContextImpl;
 import org.apache.flink.runtime.state.StatePartitionStreamProvider;
 import org.apache.flink.runtime.state.StateSnapshotContext;
 import org.apache.flink.runtime.state.StateSnapshotContextSynchronousImpl;
+import org.apache.flink.runtime.state.changelog.PeriodicMaterialization;
+import org.apache.flink.runtime.state.ttl.TtlBackgroundCleanup;
+import org.apache.flink.streaming.runtime.streamrecord.StreamRecord;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
 import org.apache.flink.util.CloseableIterable;
 import org.apache.flink.util.IOUtils;
 
@@ -54,6 +59,7 @@ import javax.annotation.Nullable;
 import java.io.Closeable;
 import java.io.IOException;
 import java.util.Optional;
+import java.util.concurrent.ScheduledFuture;
 
 import static org.apache.flink.util.Preconditions.checkState;
 
@@ -73,6 +79,12 @@ public class StreamOperatorStateHandler {
 	private final DefaultKeyedStateStore keyedStateStore;
 	private final OperatorStateBackend operatorStateBackend;
 	private final StreamOperatorStateContext context;
+	/** The periodic background cleanup of expired keyed state, or null if it is not running. */
+	@Nullable
+	private ScheduledFuture<?> ttlBackgroundCleanup;
+	/** The periodic materialization of the keyed state, or null if it is not running. */
+	@Nullable
+	private ScheduledFuture<?> periodicMaterialization;
 
 	public StreamOperatorStateHandler(
 			StreamOperatorStateContext context,
@@ -110,6 +122,39 @@ public class StreamOperatorStateHandler {
 		}
 	}
 
+	/**
+	 * Periodically runs the background cleanup of expired state with TTL if the keyed state backend supports it. The
+	 * cleanup runs as processing time callback, i.e. in the task thread between records.
+	 */
+	public void startTtlBackgroundCleanup(ProcessingTimeService processingTimeService) {
+		if (!(keyedStateBackend instanceof TtlBackgroundCleanup) || ttlBackgroundCleanup != null) {
+			return;
+		}
+		TtlBackgroundCleanup cleanup = (TtlBackgroundCleanup) keyedStateBackend;
+		long interval = cleanup.getBackgroundCleanupInterval();
+		if (interval > 0) {
+			ttlBackgroundCleanup = processingTimeService.scheduleAtFixedRate(
+				timestamp -> cleanup.runBackgroundCleanup(), interval, interval);
+		}
+	}
+
+	/**
+	 * Periodically triggers the materialization of the state if the keyed state backend materializes its state in the
+	 * background. The materialization is triggered as processing time callback, i.e. in the task thread between
+	 * records, and completes asynchronously.
+	 */
+	public void startPeriodicMaterialization(ProcessingTimeService processingTimeService) {
+		if (!(keyedStateBackend instanceof PeriodicMaterialization) || periodicMaterialization != null) {
+			return;
+		}
+		PeriodicMaterialization materialization = (PeriodicMaterialization) keyedStateBackend;
+		long interval = materialization.getMaterializationInterval();
+		if (interval > 0) {
+			periodicMaterialization = processingTimeService.scheduleAtFixedRate(
+				timestamp -> materialization.triggerMaterialization(), interval, interval);
+		}
+	}
+
 	private static void closeFromRegistry(Closeable closeable, CloseableRegistry registry) {
 		if (registry.unregisterCloseable(closeable)) {
 			IOUtils.closeQuietly(closeable);
@@ -117,6 +162,14 @@ public class StreamOperatorStateHandler {
 	}
 
 	public void dispose() throws Exception {
+		if (ttlBackgroundCleanup != null) {
+			ttlBackgroundCleanup.cancel(false);
+			ttlBackgroundCleanup = null;
+		}
+		if (periodicMaterialization != null) {
+			periodicMaterialization.cancel(false);
+			periodicMaterialization = null;
+		}
 		try (Closer closer = Closer.create()) {
 			if (closeableRegistry.unregisterCloseable(operatorStateBackend)) {
 				closer.register(operatorStateBackend);
@@ -286,6 +339,50 @@ public class StreamOperatorStateHandler {
 		}
 	}
 
+	/**
+	 * Sets the current key that was extracted from the given record. The key-group is taken from
+	 * the record if a keyed operator earlier in the chain already computed it for an equal key,
+	 * and is otherwise computed and remembered on the record for the operators that follow.
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public void setCurrentKey(Object key, StreamRecord<?> record) {
+		if (keyedStateBackend != null) {
+			try {
+				// need to work around type restrictions
+				@SuppressWarnings("unchecked,rawtypes")
+				AbstractKeyedStateBackend rawBackend = (AbstractKeyedStateBackend) keyedStateBackend;
+
+				int numberOfKeyGroups = rawBackend.getNumberOfKeyGroups();
+				int keyGroup = record.getKeyGroup(key, numberOfKeyGroups);
+				if (keyGroup < 0) {
+					keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(key, numberOfKeyGroups);
+					if (isImmutableKey(key)) {
+						record.setKeyGroup(key, keyGroup, numberOfKeyGroups);
+					}
+				}
+				rawBackend.setCurrentKeyAndKeyGroup(key, keyGroup);
+			} catch (Exception e) {
+				throw new RuntimeException("Exception occurred while setting the current key context.", e);
+			}
+		}
+	}
+
+	/**
+	 * Only keys of immutable types are remembered on records, because key selectors may return
+	 * the same mutable key object (e.g. a reused tuple) for every record.
+	 */
+	private static boolean isImmutableKey(Object key) {
+		return key instanceof String ||
+			key instanceof Long ||
+			key instanceof Integer ||
+			key instanceof Short ||
+			key instanceof Byte ||
+			key instanceof Character ||
+			key instanceof Boolean ||
+			key instanceof Double ||
+			key instanceof Float;
+	}
+
 	@SuppressWarnings({"unchecked", "rawtypes"})
 	public Object getCurrentKey() {
 		if (keyedStateBackend != null) {
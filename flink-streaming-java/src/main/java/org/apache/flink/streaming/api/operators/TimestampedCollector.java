@@ -59,6 +59,8 @@ public final class TimestampedCollector<T> implements Output<T> {
 		} else {
 			reuse.eraseTimestamp();
 		}
+		// keyed operators further down the chain may reuse the key-group of the input record
+		reuse.copyKeyGroupFrom(timestampBase);
 	}
 
 	public void setAbsoluteTimestamp(long timestamp) {
@@ -37,6 +37,13 @@ public enum ShuffleMode {
 	 */
 	BATCH,
 
+	/**
+	 * The producer streams its result to the consumer while the consumer is running and keeping up,
+	 * and spills it to local files otherwise. The consumer may be started as soon as resources
+	 * allow, but producer and consumer do not need to be online at the same time.
+	 */
+	HYBRID,
+
 	/**
 	 * The shuffle mode is undefined. It leaves it up to the framework to decide the shuffle mode.
 	 * The framework will pick one of {@link ShuffleMode#BATCH} or {@link ShuffleMode#PIPELINED} in
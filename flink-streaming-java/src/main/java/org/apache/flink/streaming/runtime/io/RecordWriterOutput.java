@@ -36,6 +36,8 @@ import org.apache.flink.streaming.runtime.tasks.OperatorChain;
 import org.apache.flink.util.OutputTag;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
@@ -49,18 +51,32 @@ public class RecordWriterOutput<OUT> implements OperatorChain.WatermarkGaugeExpo
 
 	private SerializationDelegate<StreamElement> serializationDelegate;
 
+	private final TypeSerializer<StreamElement> outRecordSerializer;
+
+	/** The delegates for the records of a batch, which are reused across {@link #collectAll(List)} calls. */
+	private final List<SerializationDelegate<StreamElement>> batchDelegates = new ArrayList<>();
+
 	private final StreamStatusProvider streamStatusProvider;
 
 	private final OutputTag outputTag;
 
 	private final WatermarkGauge watermarkGauge = new WatermarkGauge();
 
-	@SuppressWarnings("unchecked")
 	public RecordWriterOutput(
 			RecordWriter<SerializationDelegate<StreamRecord<OUT>>> recordWriter,
 			TypeSerializer<OUT> outSerializer,
 			OutputTag outputTag,
 			StreamStatusProvider streamStatusProvider) {
+		this(recordWriter, outSerializer, outputTag, streamStatusProvider, false);
+	}
+
+	@SuppressWarnings("unchecked")
+	public RecordWriterOutput(
+			RecordWriter<SerializationDelegate<StreamRecord<OUT>>> recordWriter,
+			TypeSerializer<OUT> outSerializer,
+			OutputTag outputTag,
+			StreamStatusProvider streamStatusProvider,
+			boolean compactTimestamps) {
 
 		checkNotNull(recordWriter);
 		this.outputTag = outputTag;
@@ -69,8 +85,7 @@ public class RecordWriterOutput<OUT> implements OperatorChain.WatermarkGaugeExpo
 		this.recordWriter = (RecordWriter<SerializationDelegate<StreamElement>>)
 				(RecordWriter<?>) recordWriter;
 
-		TypeSerializer<StreamElement> outRecordSerializer =
-				new StreamElementSerializer<>(outSerializer);
+		this.outRecordSerializer = new StreamElementSerializer<>(outSerializer, compactTimestamps);
 
 		if (outSerializer != null) {
 			serializationDelegate = new SerializationDelegate<StreamElement>(outRecordSerializer);
@@ -100,6 +115,29 @@ public class RecordWriterOutput<OUT> implements OperatorChain.WatermarkGaugeExpo
 		pushToRecordWriter(record);
 	}
 
+	@Override
+	public void collectAll(List<StreamRecord<OUT>> records) {
+		if (this.outputTag != null) {
+			// we are not responsible for emitting to the main output.
+			return;
+		}
+
+		final int numRecords = records.size();
+		while (batchDelegates.size() < numRecords) {
+			batchDelegates.add(new SerializationDelegate<>(outRecordSerializer));
+		}
+		for (int i = 0; i < numRecords; i++) {
+			batchDelegates.get(i).setInstance(records.get(i));
+		}
+
+		try {
+			recordWriter.emitAll(batchDelegates.subList(0, numRecords));
+		}
+		catch (Exception e) {
+			throw new RuntimeException(e.getMessage(), e);
+		}
+	}
+
 	private <X> void pushToRecordWriter(StreamRecord<X> record) {
 		serializationDelegate.setInstance(record);
 
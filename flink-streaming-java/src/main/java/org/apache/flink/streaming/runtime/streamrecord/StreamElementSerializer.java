@@ -41,6 +41,15 @@ import static java.util.Objects.requireNonNull;
  * <p>This does not behave like a normal {@link TypeSerializer}, instead, this is only used at the
  * stream task/operator level for transmitting StreamRecords and Watermarks.
  *
+ * <p>Record timestamps can optionally be written as zig-zag encoded variable-length longs instead
+ * of fixed 8 byte longs. Such records use a dedicated tag, so the serializer can always read both
+ * encodings, independent of how it was configured for writing.
+ *
+ * <p>The compact timestamps are absolute, not deltas to the timestamp of the previous record in the
+ * same buffer. A delta would make every record depend on the records before it in its channel, but
+ * unaligned checkpoints persist the unconsumed part of an input buffer, which starts at an arbitrary
+ * record, and restore it without the records that were consumed before the checkpoint.
+ *
  * @param <T> The type of value in the StreamRecord
  */
 @Internal
@@ -53,15 +62,23 @@ public final class StreamElementSerializer<T> extends TypeSerializer<StreamEleme
 	private static final int TAG_WATERMARK = 2;
 	private static final int TAG_LATENCY_MARKER = 3;
 	private static final int TAG_STREAM_STATUS = 4;
-
+	private static final int TAG_REC_WITH_COMPACT_TIMESTAMP = 5;
 
 	private final TypeSerializer<T> typeSerializer;
 
+	/** Whether record timestamps are written in the variable-length encoding. */
+	private final boolean compactTimestamps;
+
 	public StreamElementSerializer(TypeSerializer<T> serializer) {
+		this(serializer, false);
+	}
+
+	public StreamElementSerializer(TypeSerializer<T> serializer, boolean compactTimestamps) {
 		if (serializer instanceof StreamElementSerializer) {
 			throw new RuntimeException("StreamRecordSerializer given to StreamRecordSerializer as value TypeSerializer: " + serializer);
 		}
 		this.typeSerializer = requireNonNull(serializer);
+		this.compactTimestamps = compactTimestamps;
 	}
 
 	public TypeSerializer<T> getContainedTypeSerializer() {
@@ -80,7 +97,7 @@ public final class StreamElementSerializer<T> extends TypeSerializer<StreamEleme
 	@Override
 	public StreamElementSerializer<T> duplicate() {
 		TypeSerializer<T> copy = typeSerializer.duplicate();
-		return (copy == typeSerializer) ? this : new StreamElementSerializer<T>(copy);
+		return (copy == typeSerializer) ? this : new StreamElementSerializer<T>(copy, compactTimestamps);
 	}
 
 	// ------------------------------------------------------------------------
@@ -142,6 +159,10 @@ public final class StreamElementSerializer<T> extends TypeSerializer<StreamEleme
 			target.writeLong(source.readLong());
 			typeSerializer.copy(source, target);
 		}
+		else if (tag == TAG_REC_WITH_COMPACT_TIMESTAMP) {
+			writeVarLong(readVarLong(source), target);
+			typeSerializer.copy(source, target);
+		}
 		else if (tag == TAG_REC_WITHOUT_TIMESTAMP) {
 			typeSerializer.copy(source, target);
 		}
@@ -166,7 +187,10 @@ public final class StreamElementSerializer<T> extends TypeSerializer<StreamEleme
 		if (value.isRecord()) {
 			StreamRecord<T> record = value.asRecord();
 
-			if (record.hasTimestamp()) {
+			if (record.hasTimestamp() && compactTimestamps) {
+				target.write(TAG_REC_WITH_COMPACT_TIMESTAMP);
+				writeVarLong(record.getTimestamp(), target);
+			} else if (record.hasTimestamp()) {
 				target.write(TAG_REC_WITH_TIMESTAMP);
 				target.writeLong(record.getTimestamp());
 			} else {
@@ -201,6 +225,10 @@ public final class StreamElementSerializer<T> extends TypeSerializer<StreamEleme
 			long timestamp = source.readLong();
 			return new StreamRecord<T>(typeSerializer.deserialize(source), timestamp);
 		}
+		else if (tag == TAG_REC_WITH_COMPACT_TIMESTAMP) {
+			long timestamp = readVarLong(source);
+			return new StreamRecord<T>(typeSerializer.deserialize(source), timestamp);
+		}
 		else if (tag == TAG_REC_WITHOUT_TIMESTAMP) {
 			return new StreamRecord<T>(typeSerializer.deserialize(source));
 		}
@@ -221,8 +249,8 @@ public final class StreamElementSerializer<T> extends TypeSerializer<StreamEleme
 	@Override
 	public StreamElement deserialize(StreamElement reuse, DataInputView source) throws IOException {
 		int tag = source.readByte();
-		if (tag == TAG_REC_WITH_TIMESTAMP) {
-			long timestamp = source.readLong();
+		if (tag == TAG_REC_WITH_TIMESTAMP || tag == TAG_REC_WITH_COMPACT_TIMESTAMP) {
+			long timestamp = tag == TAG_REC_WITH_TIMESTAMP ? source.readLong() : readVarLong(source);
 			T value = typeSerializer.deserialize(source);
 			StreamRecord<T> reuseRecord = reuse.asRecord();
 			reuseRecord.replace(value, timestamp);
@@ -245,6 +273,34 @@ public final class StreamElementSerializer<T> extends TypeSerializer<StreamEleme
 		}
 	}
 
+	/**
+	 * Writes the given value zig-zag encoded in 7 bit groups, least significant group first. Epoch
+	 * millisecond timestamps take 6 bytes in this encoding.
+	 */
+	private static void writeVarLong(long value, DataOutputView target) throws IOException {
+		long zigZag = (value << 1) ^ (value >> 63);
+		while ((zigZag & ~0x7FL) != 0) {
+			target.write((int) ((zigZag & 0x7F) | 0x80));
+			zigZag >>>= 7;
+		}
+		target.write((int) zigZag);
+	}
+
+	private static long readVarLong(DataInputView source) throws IOException {
+		long zigZag = 0;
+		int shift = 0;
+		int b;
+		do {
+			if (shift > 63) {
+				throw new IOException("Corrupt stream, malformed variable-length timestamp");
+			}
+			b = source.readUnsignedByte();
+			zigZag |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (zigZag >>> 1) ^ -(zigZag & 1);
+	}
+
 	// ------------------------------------------------------------------------
 	//  Utilities
 	// ------------------------------------------------------------------------
@@ -254,7 +310,7 @@ public final class StreamElementSerializer<T> extends TypeSerializer<StreamEleme
 		if (obj instanceof StreamElementSerializer) {
 			StreamElementSerializer<?> other = (StreamElementSerializer<?>) obj;
 
-			return typeSerializer.equals(other.typeSerializer);
+			return compactTimestamps == other.compactTimestamps && typeSerializer.equals(other.typeSerializer);
 		} else {
 			return false;
 		}
@@ -36,6 +36,15 @@ public final class StreamRecord<T> extends StreamElement {
 	/** Flag whether the timestamp is actually set. */
 	private boolean hasTimestamp;
 
+	/** The key for which {@link #keyGroup} was computed by a keyed operator, if any. */
+	private Object key;
+
+	/** The key-group of {@link #key}. */
+	private int keyGroup;
+
+	/** The number of key-groups {@link #keyGroup} was computed for, or 0 if none is known. */
+	private int numberOfKeyGroups;
+
 	/**
 	 * Creates a new StreamRecord. The record does not have a timestamp.
 	 */
@@ -134,29 +143,70 @@ public final class StreamRecord<T> extends StreamElement {
 		this.hasTimestamp = false;
 	}
 
+	// ------------------------------------------------------------------------
+	//  Key-group hint
+	// ------------------------------------------------------------------------
+
+	/**
+	 * Returns the key-group that a keyed operator earlier in the chain computed for this record,
+	 * if it was computed for a key equal to the given key and for the given number of key-groups.
+	 * The hint is only ever compared by equality, so it is harmless if it outlives the value it
+	 * was computed for, e.g. when the record object is reused.
+	 *
+	 * @return The key-group of the given key, or -1 if it is not known.
+	 */
+	public int getKeyGroup(Object key, int numberOfKeyGroups) {
+		if (numberOfKeyGroups == this.numberOfKeyGroups && key != null && key.equals(this.key)) {
+			return keyGroup;
+		} else {
+			return -1;
+		}
+	}
+
+	/**
+	 * Remembers the key-group of the given key for keyed operators later in the chain. The key
+	 * must not be mutated afterwards, see {@link #getKeyGroup(Object, int)}.
+	 */
+	public void setKeyGroup(Object key, int keyGroup, int numberOfKeyGroups) {
+		this.key = key;
+		this.keyGroup = keyGroup;
+		this.numberOfKeyGroups = numberOfKeyGroups;
+	}
+
+	/**
+	 * Copies the key-group hint of the given record into this record.
+	 */
+	public void copyKeyGroupFrom(StreamRecord<?> other) {
+		this.key = other.key;
+		this.keyGroup = other.keyGroup;
+		this.numberOfKeyGroups = other.numberOfKeyGroups;
+	}
+
 	// ------------------------------------------------------------------------
 	//  Copying
 	// ------------------------------------------------------------------------
 
 	/**
 	 * Creates a copy of this stream record. Uses the copied value as the value for the new
-	 * record, i.e., only copies timestamp fields.
+	 * record, i.e., only copies timestamp fields and the key-group hint.
 	 */
 	public StreamRecord<T> copy(T valueCopy) {
 		StreamRecord<T> copy = new StreamRecord<>(valueCopy);
 		copy.timestamp = this.timestamp;
 		copy.hasTimestamp = this.hasTimestamp;
+		copy.copyKeyGroupFrom(this);
 		return copy;
 	}
 
 	/**
 	 * Copies this record into the new stream record. Uses the copied value as the value for the new
-	 * record, i.e., only copies timestamp fields.
+	 * record, i.e., only copies timestamp fields and the key-group hint.
 	 */
 	public void copyTo(T valueCopy, StreamRecord<T> target) {
 		target.value = valueCopy;
 		target.timestamp = this.timestamp;
 		target.hasTimestamp = this.hasTimestamp;
+		target.copyKeyGroupFrom(this);
 	}
 
 	// ------------------------------------------------------------------------
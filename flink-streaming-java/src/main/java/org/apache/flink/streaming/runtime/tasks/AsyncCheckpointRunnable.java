@@ -24,6 +24,7 @@ import org.apache.flink.runtime.checkpoint.CheckpointMetrics;
 import org.apache.flink.runtime.checkpoint.TaskStateSnapshot;
 import org.apache.flink.runtime.execution.Environment;
 import org.apache.flink.runtime.jobgraph.OperatorID;
+import org.apache.flink.runtime.state.CheckpointStorageWorkerView;
 import org.apache.flink.streaming.api.operators.OperatorSnapshotFinalizer;
 import org.apache.flink.streaming.api.operators.OperatorSnapshotFutures;
 import org.apache.flink.util.ExceptionUtils;
@@ -60,6 +61,7 @@ final class AsyncCheckpointRunnable implements Runnable, Closeable {
 	private final CheckpointMetaData checkpointMetaData;
 	private final CheckpointMetrics checkpointMetrics;
 	private final Future<?> channelWrittenFuture;
+	private final CheckpointStorageWorkerView checkpointStorage;
 	private final long asyncStartNanos;
 	private final AtomicReference<AsyncCheckpointState> asyncCheckpointState = new AtomicReference<>(AsyncCheckpointState.RUNNING);
 
@@ -68,6 +70,7 @@ final class AsyncCheckpointRunnable implements Runnable, Closeable {
 			CheckpointMetaData checkpointMetaData,
 			CheckpointMetrics checkpointMetrics,
 			Future<?> channelWrittenFuture,
+			CheckpointStorageWorkerView checkpointStorage,
 			long asyncStartNanos,
 			String taskName,
 			CloseableRegistry closeableRegistry,
@@ -78,6 +81,7 @@ final class AsyncCheckpointRunnable implements Runnable, Closeable {
 		this.checkpointMetaData = checkNotNull(checkpointMetaData);
 		this.checkpointMetrics = checkNotNull(checkpointMetrics);
 		this.channelWrittenFuture = checkNotNull(channelWrittenFuture);
+		this.checkpointStorage = checkNotNull(checkpointStorage);
 		this.asyncStartNanos = asyncStartNanos;
 		this.taskName = checkNotNull(taskName);
 		this.closeableRegistry = checkNotNull(closeableRegistry);
@@ -119,6 +123,9 @@ final class AsyncCheckpointRunnable implements Runnable, Closeable {
 
 			channelWrittenFuture.get();
 
+			// all streams of the checkpoint are closed now, their state must be durable before it is reported
+			checkpointStorage.finishCheckpointStreams(checkpointMetaData.getCheckpointId());
+
 			if (asyncCheckpointState.compareAndSet(AsyncCheckpointState.RUNNING, AsyncCheckpointState.COMPLETED)) {
 
 				reportCompletedSnapshotStates(
@@ -248,6 +255,12 @@ final class AsyncCheckpointRunnable implements Runnable, Closeable {
 			}
 		}
 
+		try {
+			checkpointStorage.finishCheckpointStreams(checkpointMetaData.getCheckpointId());
+		} catch (Exception finishException) {
+			exception = ExceptionUtils.firstOrSuppressed(finishException, exception);
+		}
+
 		if (null != exception) {
 			throw exception;
 		}
@@ -21,6 +21,7 @@ import org.apache.flink.annotation.Internal;
 import org.apache.flink.annotation.VisibleForTesting;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 import org.apache.flink.metrics.Counter;
 import org.apache.flink.metrics.Gauge;
 import org.apache.flink.metrics.SimpleCounter;
@@ -507,7 +508,10 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 			outSerializer = upStreamConfig.getTypeSerializerOut(taskEnvironment.getUserClassLoader());
 		}
 
-		return new RecordWriterOutput<>(recordWriter, outSerializer, sideOutputTag, this);
+		boolean compactTimestamps = taskEnvironment.getTaskManagerInfo().getConfiguration()
+			.getBoolean(NettyShuffleEnvironmentOptions.COMPACT_RECORD_TIMESTAMPS_ENABLED);
+
+		return new RecordWriterOutput<>(recordWriter, outSerializer, sideOutputTag, this, compactTimestamps);
 	}
 
 	/**
@@ -784,6 +788,13 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 			}
 		}
 
+		@Override
+		public void collectAll(List<StreamRecord<T>> records) {
+			for (Output<StreamRecord<T>> output : outputs) {
+				output.collectAll(records);
+			}
+		}
+
 		@Override
 		public <X> void collect(OutputTag<X> outputTag, StreamRecord<X> record) {
 			for (Output<StreamRecord<T>> output : outputs) {
@@ -826,6 +837,14 @@ public class OperatorChain<OUT, OP extends StreamOperator<OUT>> implements Strea
 			}
 		}
 
+		@Override
+		public void collectAll(List<StreamRecord<T>> records) {
+			// every record needs to be copied for the chained outputs
+			for (StreamRecord<T> record : records) {
+				collect(record);
+			}
+		}
+
 		@Override
 		public <X> void collect(OutputTag<X> outputTag, StreamRecord<X> record) {
 			for (int i = 0; i < outputs.length - 1; i++) {
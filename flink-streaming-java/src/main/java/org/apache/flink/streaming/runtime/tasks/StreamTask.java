@@ -951,6 +951,11 @@ public abstract class StreamTask<OUT, OP extends StreamOperator<OUT>>
 		return timerService;
 	}
 
+	@VisibleForTesting
+	RecordWriterDelegate<SerializationDelegate<StreamRecord<OUT>>> getRecordWriter() {
+		return recordWriter;
+	}
+
 	@VisibleForTesting
 	OP getHeadOperator() {
 		return this.headOperator;
@@ -96,7 +96,9 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
 	}
 
 	private ChannelStateWriter openChannelStateWriter() {
-		ChannelStateWriterImpl writer = new ChannelStateWriterImpl(this.checkpointStorage);
+		ChannelStateWriterImpl writer = new ChannelStateWriterImpl(
+			this.checkpointStorage,
+			env.getExecutionConfig().isUseSnapshotCompression());
 		writer.open();
 		return writer;
 	}
@@ -184,6 +186,12 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
 			}
 		}
 
+		try {
+			checkpointStorage.finishCheckpointStreams(metadata.getCheckpointId());
+		} catch (Exception e) {
+			LOG.warn("Could not properly finish the state streams of checkpoint {}.", metadata.getCheckpointId(), e);
+		}
+
 		if (LOG.isDebugEnabled()) {
 			LOG.debug(
 				"{} - did NOT finish synchronous part of checkpoint {}. Alignment duration: {} ms, snapshot duration {} ms",
@@ -237,6 +245,7 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
 			metadata,
 			metrics,
 			channelWrittenFuture,
+			checkpointStorage,
 			System.nanoTime(),
 			taskName,
 			closeableRegistry,
@@ -355,6 +364,11 @@ class SubtaskCheckpointCoordinatorImpl implements SubtaskCheckpointCoordinator {
 		public CheckpointStreamFactory.CheckpointStateOutputStream createTaskOwnedStateStream() throws IOException {
 			return delegate.createTaskOwnedStateStream();
 		}
+
+		@Override
+		public void finishCheckpointStreams(long checkpointId) throws IOException {
+			delegate.finishCheckpointStreams(checkpointId);
+		}
 	}
 
 	private static OperatorSnapshotFutures checkpointStreamOperator(
@@ -42,6 +42,7 @@ import java.util.Random;
 import static junit.framework.TestCase.assertTrue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.junit.Assert.assertEquals;
 
 /**
  * Tests for the facilities provided by {@link AbstractStreamOperator}. This mostly
@@ -84,6 +85,59 @@ public class AbstractStreamOperatorTest {
 		}
 	}
 
+	/**
+	 * Verifies that the key-group remembered on a record is only reused for an equal key, and
+	 * that the key-group computed for the key of the record is remembered on it.
+	 */
+	@Test
+	public void testKeyGroupOfRecordIsOnlyReusedForEqualKey() throws Exception {
+		int maxParallelism = 10;
+		int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(0, maxParallelism);
+		int otherKeyGroup = (keyGroup + 1) % maxParallelism;
+
+		try (KeyedOneInputStreamOperatorTestHarness<Integer, Tuple2<Integer, String>, String> testHarness =
+				createTestHarness(maxParallelism, 1, 0)) {
+			testHarness.open();
+
+			StreamRecord<Tuple2<Integer, String>> record = new StreamRecord<>(new Tuple2<>(0, "SET_STATE:HELLO"));
+			record.setKeyGroup(1, otherKeyGroup, maxParallelism);
+			testHarness.processElement(record);
+			assertEquals(keyGroup, record.getKeyGroup(0, maxParallelism));
+
+			testHarness.processElement(new Tuple2<>(0, "EMIT_STATE"), 0);
+			assertThat(extractResult(testHarness), contains("ON_ELEMENT:0:HELLO"));
+		}
+	}
+
+	/**
+	 * Verifies that the key-group remembered on a record for an equal key is used as it is,
+	 * without computing the key-group of the key again. The remembered key-group differs from
+	 * the computed one, so the state is only visible to records that carry the same hint.
+	 */
+	@Test
+	public void testKeyGroupOfRecordIsReusedForEqualKey() throws Exception {
+		int maxParallelism = 10;
+		int keyGroup = KeyGroupRangeAssignment.assignToKeyGroup(0, maxParallelism);
+		int rememberedKeyGroup = (keyGroup + 1) % maxParallelism;
+
+		try (KeyedOneInputStreamOperatorTestHarness<Integer, Tuple2<Integer, String>, String> testHarness =
+				createTestHarness(maxParallelism, 1, 0)) {
+			testHarness.open();
+
+			StreamRecord<Tuple2<Integer, String>> record = new StreamRecord<>(new Tuple2<>(0, "SET_STATE:HELLO"), 0);
+			record.setKeyGroup(0, rememberedKeyGroup, maxParallelism);
+			testHarness.processElement(record);
+			assertEquals(rememberedKeyGroup, record.getKeyGroup(0, maxParallelism));
+
+			StreamRecord<Tuple2<Integer, String>> emitWithHint = new StreamRecord<>(new Tuple2<>(0, "EMIT_STATE"), 0);
+			emitWithHint.copyKeyGroupFrom(record);
+			testHarness.processElement(emitWithHint);
+			testHarness.processElement(new Tuple2<>(0, "EMIT_STATE"), 0);
+
+			assertThat(extractResult(testHarness), contains("ON_ELEMENT:0:HELLO", "ON_ELEMENT:0:null"));
+		}
+	}
+
 	/**
 	 * Verify that firing event-time timers see the state of the key that was active
 	 * when the timer was set.
@@ -29,12 +29,13 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
 import static org.apache.flink.util.Preconditions.checkState;
 
 /**
- * Wrapping thread around {@link RecordWriter} that sends a fixed number of <tt>LongValue(0)</tt>
- * records.
+ * Wrapping thread around {@link RecordWriter} that sends a fixed number of <tt>LongValue</tt>
+ * records with increasing values, followed by the number of records as the last one.
  */
 public class LongRecordWriterThread extends CheckedThread {
 	private final RecordWriter<LongValue> recordWriter;
 	private final boolean broadcastMode;
+	private final LongValue value;
 
 	/**
 	 * Future to wait on a definition of the number of records to send.
@@ -46,8 +47,20 @@ public class LongRecordWriterThread extends CheckedThread {
 	public LongRecordWriterThread(
 			RecordWriter<LongValue> recordWriter,
 			boolean broadcastMode) {
+		this(recordWriter, broadcastMode, new LongValue());
+	}
+
+	/**
+	 * @param value
+	 * 		the (reused) record to send, which allows to send {@link PaddedLongValue}s of larger sizes
+	 */
+	public LongRecordWriterThread(
+			RecordWriter<LongValue> recordWriter,
+			boolean broadcastMode,
+			LongValue value) {
 		this.recordWriter = checkNotNull(recordWriter);
 		this.broadcastMode = broadcastMode;
+		this.value = checkNotNull(value);
 	}
 
 	public synchronized void shutdown() {
@@ -89,9 +102,9 @@ public class LongRecordWriterThread extends CheckedThread {
 	}
 
 	private void sendRecords(long records) throws IOException, InterruptedException {
-		LongValue value = new LongValue(0);
-
 		for (int i = 1; i < records; i++) {
+			// distinct values, so that hash partitioning spreads the records over all channels
+			value.setValue(i);
 			if (broadcastMode) {
 				recordWriter.broadcastEmit(value);
 			}
@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.streaming.runtime.io.benchmark;
+
+import org.apache.flink.core.memory.DataInputView;
+import org.apache.flink.core.memory.DataOutputView;
+import org.apache.flink.types.LongValue;
+
+import java.io.IOException;
+
+import static org.apache.flink.util.Preconditions.checkArgument;
+
+/**
+ * {@link LongValue} which is padded to a fixed serialized size, to benchmark the network stack with
+ * larger records.
+ */
+public class PaddedLongValue extends LongValue {
+
+	private static final long serialVersionUID = 1L;
+
+	/** The serialized size of a plain {@link LongValue}. */
+	public static final int MIN_RECORD_SIZE = Long.BYTES;
+
+	private final byte[] padding;
+
+	public PaddedLongValue(int recordSize) {
+		checkArgument(recordSize >= MIN_RECORD_SIZE, "The record size must be at least %s bytes.", MIN_RECORD_SIZE);
+		this.padding = new byte[recordSize - MIN_RECORD_SIZE];
+	}
+
+	/**
+	 * Returns a plain {@link LongValue} for the minimal record size, to not add any overhead to the
+	 * default benchmarks, and a {@link PaddedLongValue} otherwise.
+	 */
+	public static LongValue create(int recordSize) {
+		return recordSize == MIN_RECORD_SIZE ? new LongValue() : new PaddedLongValue(recordSize);
+	}
+
+	@Override
+	public void write(DataOutputView out) throws IOException {
+		super.write(out);
+		out.write(padding);
+	}
+
+	@Override
+	public void read(DataInputView in) throws IOException {
+		super.read(in);
+		in.readFully(padding);
+	}
+}
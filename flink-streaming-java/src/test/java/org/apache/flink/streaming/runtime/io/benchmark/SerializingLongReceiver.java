@@ -30,9 +30,21 @@ public class SerializingLongReceiver extends ReceiverThread {
 
 	private final MutableRecordReader<LongValue> reader;
 
+	private final LongValue value;
+
 	@SuppressWarnings("WeakerAccess")
 	public SerializingLongReceiver(InputGate inputGate, int expectedRepetitionsOfExpectedRecord) {
+		this(inputGate, expectedRepetitionsOfExpectedRecord, new LongValue());
+	}
+
+	/**
+	 * @param value
+	 * 		the record to deserialize into, which must match the type of the sent records
+	 */
+	@SuppressWarnings("WeakerAccess")
+	public SerializingLongReceiver(InputGate inputGate, int expectedRepetitionsOfExpectedRecord, LongValue value) {
 		super(expectedRepetitionsOfExpectedRecord);
+		this.value = value;
 		this.reader = new MutableRecordReader<>(
 			inputGate,
 			new String[]{
@@ -43,7 +55,6 @@ public class SerializingLongReceiver extends ReceiverThread {
 	@Override
 	protected void readRecords(long lastExpectedRecord) throws Exception {
 		LOG.debug("readRecords(lastExpectedRecord = {})", lastExpectedRecord);
-		final LongValue value = new LongValue();
 
 		while (running && reader.next(value)) {
 			final long ts = value.getValue();
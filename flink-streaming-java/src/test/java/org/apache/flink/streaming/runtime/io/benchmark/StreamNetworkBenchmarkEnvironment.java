@@ -165,6 +165,13 @@ public class StreamNetworkBenchmarkEnvironment<T extends IOReadableWritable> {
 	 * in {@link SingleInputGateBenchmarkFactory.TestRemoteInputChannel}.
 	 */
 	public SerializingLongReceiver createReceiver() throws Exception {
+		return createReceiver(PaddedLongValue.MIN_RECORD_SIZE);
+	}
+
+	/**
+	 * Creates a receiver for records of the given serialized size, see {@link PaddedLongValue}.
+	 */
+	public SerializingLongReceiver createReceiver(int recordSize) throws Exception {
 		TaskManagerLocation senderLocation = new TaskManagerLocation(
 			ResourceID.generate(),
 			LOCAL_ADDRESS,
@@ -172,7 +179,10 @@ public class StreamNetworkBenchmarkEnvironment<T extends IOReadableWritable> {
 
 		InputGate receiverGate = createInputGate(senderLocation);
 
-		SerializingLongReceiver receiver = new SerializingLongReceiver(receiverGate, channels * partitionIds.length);
+		SerializingLongReceiver receiver = new SerializingLongReceiver(
+			receiverGate,
+			channels * partitionIds.length,
+			PaddedLongValue.create(recordSize));
 
 		receiver.start();
 		return receiver;
@@ -37,6 +37,7 @@ public class StreamNetworkPointToPointBenchmark {
 	private StreamNetworkBenchmarkEnvironment<LongValue> environment;
 	private ReceiverThread receiver;
 	private RecordWriter<LongValue> recordWriter;
+	private LongValue value;
 
 	/**
 	 * Executes the latency benchmark with the given number of records.
@@ -47,7 +48,6 @@ public class StreamNetworkPointToPointBenchmark {
 	 * 		whether to flush the {@link RecordWriter} after the last record
 	 */
 	public void executeBenchmark(long records, boolean flushAfterLastEmit) throws Exception {
-		final LongValue value = new LongValue();
 		value.setValue(0);
 
 		CompletableFuture<?> recordsReceived = receiver.setExpectedRecord(records);
@@ -76,13 +76,24 @@ public class StreamNetworkPointToPointBenchmark {
 	 * 		{@link org.apache.flink.runtime.io.network.api.writer.RecordWriter}'s output flusher thread
 	 */
 	public void setUp(long flushTimeout, Configuration config) throws Exception {
+		setUp(flushTimeout, config, PaddedLongValue.MIN_RECORD_SIZE);
+	}
+
+	/**
+	 * Initializes the latency benchmark for records of the given serialized size.
+	 *
+	 * @param recordSize
+	 * 		serialized size of each record in bytes, see {@link PaddedLongValue}
+	 */
+	public void setUp(long flushTimeout, Configuration config, int recordSize) throws Exception {
 		environment = new StreamNetworkBenchmarkEnvironment<>();
 		environment.setUp(1, 1, false, -1, -1, config);
 
 		ResultPartitionWriter resultPartitionWriter = environment.createResultPartitionWriter(0);
 
 		recordWriter = new RecordWriterBuilder().setTimeout(flushTimeout).build(resultPartitionWriter);
-		receiver = environment.createReceiver();
+		value = PaddedLongValue.create(recordSize);
+		receiver = environment.createReceiver(recordSize);
 	}
 
 	/**
@@ -18,6 +18,8 @@
 
 package org.apache.flink.streaming.runtime.io.benchmark;
 
+import org.apache.flink.configuration.Configuration;
+
 import org.junit.Test;
 
 /**
@@ -35,4 +37,16 @@ public class StreamNetworkPointToPointBenchmarkTest {
 			benchmark.tearDown();
 		}
 	}
+
+	@Test
+	public void testLargeRecords() throws Exception {
+		StreamNetworkPointToPointBenchmark benchmark = new StreamNetworkPointToPointBenchmark();
+		benchmark.setUp(10, new Configuration(), 100_000);
+		try {
+			benchmark.executeBenchmark(100, false);
+		}
+		finally {
+			benchmark.tearDown();
+		}
+	}
 }
@@ -86,6 +86,27 @@ public class StreamNetworkThroughputBenchmark {
 		);
 	}
 
+	public void setUp(
+			int recordWriters,
+			int channels,
+			int flushTimeout,
+			boolean broadcastMode,
+			boolean localMode,
+			int senderBufferPoolSize,
+			int receiverBufferPoolSize,
+			Configuration config) throws Exception {
+		setUp(
+			recordWriters,
+			channels,
+			flushTimeout,
+			broadcastMode,
+			localMode,
+			senderBufferPoolSize,
+			receiverBufferPoolSize,
+			config,
+			PaddedLongValue.MIN_RECORD_SIZE);
+	}
+
 	/**
 	 * Initializes the throughput benchmark with the given parameters.
 	 *
@@ -94,6 +115,10 @@ public class StreamNetworkThroughputBenchmark {
 	 * 		{@link org.apache.flink.runtime.io.network.api.writer.RecordWriter} instances
 	 * @param channels
 	 * 		number of outgoing channels / receivers
+	 * @param config
+	 * 		configuration of the shuffle environments, e.g. to enable SSL for the netty connections
+	 * @param recordSize
+	 * 		serialized size of each record in bytes, see {@link PaddedLongValue}
 	 */
 	public void setUp(
 			int recordWriters,
@@ -103,7 +128,8 @@ public class StreamNetworkThroughputBenchmark {
 			boolean localMode,
 			int senderBufferPoolSize,
 			int receiverBufferPoolSize,
-			Configuration config) throws Exception {
+			Configuration config,
+			int recordSize) throws Exception {
 		environment = new StreamNetworkBenchmarkEnvironment<>();
 		environment.setUp(
 			recordWriters,
@@ -119,10 +145,11 @@ public class StreamNetworkThroughputBenchmark {
 			setChannelSelector(recordWriterBuilder, broadcastMode);
 			writerThreads[writer] = new LongRecordWriterThread(
 				recordWriterBuilder.build(resultPartitionWriter),
-				broadcastMode);
+				broadcastMode,
+				PaddedLongValue.create(recordSize));
 			writerThreads[writer].start();
 		}
-		receiver = environment.createReceiver();
+		receiver = environment.createReceiver(recordSize);
 	}
 
 	protected void setChannelSelector(RecordWriterBuilder recordWriterBuilder, boolean broadcastMode) {
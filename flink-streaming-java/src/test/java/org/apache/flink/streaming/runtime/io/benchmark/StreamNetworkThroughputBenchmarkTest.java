@@ -18,6 +18,7 @@
 
 package org.apache.flink.streaming.runtime.io.benchmark;
 
+import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.NettyShuffleEnvironmentOptions;
 
 import org.junit.Rule;
@@ -73,6 +74,19 @@ public class StreamNetworkThroughputBenchmarkTest {
 		env.tearDown();
 	}
 
+	@Test
+	public void largeRecordsRemoteMode() throws Exception {
+		StreamNetworkThroughputBenchmark benchmark = createBenchmark();
+		// records spanning multiple buffers
+		benchmark.setUp(2, 10, 100, false, false, -1, -1, new Configuration(), 100_000);
+		try {
+			benchmark.executeBenchmark(1_000);
+		}
+		finally {
+			benchmark.tearDown();
+		}
+	}
+
 	@Test
 	public void remoteModeInsufficientBuffersSender() throws Exception {
 		StreamNetworkThroughputBenchmark env = new StreamNetworkThroughputBenchmark();
@@ -95,6 +95,41 @@ public class StreamElementSerializerTest {
 		assertEquals(latencyMarker, serializeAndDeserialize(latencyMarker, serializer));
 	}
 
+	@Test
+	public void testCompactTimestampSerialization() throws Exception {
+		final StreamElementSerializer<Long> compactSerializer =
+				new StreamElementSerializer<>(LongSerializer.INSTANCE, true);
+		final StreamElementSerializer<Long> plainSerializer =
+				new StreamElementSerializer<>(LongSerializer.INSTANCE);
+
+		long[] timestamps = {0L, 1L, -1L, 63L, -64L, 1589454657000L, Long.MAX_VALUE, Long.MIN_VALUE};
+		for (long timestamp : timestamps) {
+			StreamRecord<Long> record = new StreamRecord<>(42L, timestamp);
+			assertEquals(record, serializeAndDeserialize(record, compactSerializer));
+
+			// the encoding is self-describing, so readers do not need to be configured for it
+			DataOutputSerializer output = new DataOutputSerializer(32);
+			compactSerializer.serialize(record, output);
+			DataInputDeserializer input = new DataInputDeserializer(output.getByteArray(), 0, output.length());
+			assertEquals(record, plainSerializer.deserialize(input));
+
+			input = new DataInputDeserializer(output.getByteArray(), 0, output.length());
+			StreamRecord<Long> reuse = new StreamRecord<>(0L);
+			assertEquals(record, plainSerializer.deserialize(reuse, input));
+		}
+
+		StreamRecord<Long> withoutTimestamp = new StreamRecord<>(42L);
+		assertEquals(withoutTimestamp, serializeAndDeserialize(withoutTimestamp, compactSerializer));
+
+		// tag + 6 bytes timestamp + 8 bytes value, instead of tag + 8 bytes timestamp + 8 bytes value
+		DataOutputSerializer output = new DataOutputSerializer(32);
+		compactSerializer.serialize(new StreamRecord<>(42L, 1589454657000L), output);
+		assertEquals(15, output.length());
+
+		assertNotEquals(plainSerializer, compactSerializer);
+		assertEquals(compactSerializer, compactSerializer.duplicate());
+	}
+
 	@SuppressWarnings("unchecked")
 	private static <T, X extends StreamElement> X serializeAndDeserialize(
 			X record,
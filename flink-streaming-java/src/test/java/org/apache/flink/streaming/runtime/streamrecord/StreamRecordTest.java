@@ -162,4 +162,24 @@ public class StreamRecordTest {
 		rec.eraseTimestamp();
 		assertFalse(rec.hasTimestamp());
 	}
+
+	@Test
+	public void testKeyGroup() {
+		StreamRecord<String> rec = new StreamRecord<>("hello");
+		assertEquals(-1, rec.getKeyGroup("key", 128));
+
+		rec.setKeyGroup("key", 42, 128);
+		assertEquals(42, rec.getKeyGroup(new String("key"), 128));
+		assertEquals(-1, rec.getKeyGroup("other", 128));
+		assertEquals(-1, rec.getKeyGroup("key", 256));
+		assertEquals(-1, rec.getKeyGroup(null, 128));
+
+		// the key-group survives replacing the value and is copied along with the record
+		rec.replace("world");
+		assertEquals(42, rec.copy("world").getKeyGroup("key", 128));
+
+		StreamRecord<String> target = new StreamRecord<>(null);
+		rec.copyTo("world", target);
+		assertEquals(42, target.getKeyGroup("key", 128));
+	}
 }
@@ -45,6 +45,7 @@ import org.apache.flink.runtime.state.TaskLocalStateStore;
 import org.apache.flink.runtime.state.TaskLocalStateStoreImpl;
 import org.apache.flink.runtime.state.TaskStateManagerImpl;
 import org.apache.flink.runtime.state.TestTaskStateManager;
+import org.apache.flink.runtime.state.memory.MemoryBackendCheckpointStorage;
 import org.apache.flink.runtime.taskmanager.TestCheckpointResponder;
 import org.apache.flink.streaming.api.operators.OperatorSnapshotFutures;
 import org.apache.flink.util.TestLogger;
@@ -116,6 +117,7 @@ public class LocalStateForwardingTest extends TestLogger {
 			checkpointMetaData,
 			checkpointMetrics,
 			CompletableFuture.completedFuture(null),
+			new MemoryBackendCheckpointStorage(new JobID(), null, null, 1024),
 			0L,
 			testStreamTask.getName(),
 			testStreamTask.getCancelables(),
@@ -995,12 +995,11 @@ public class StreamTaskTest extends TestLogger {
 					throw ex;
 				}
 			}
-		}
 
-		assertTrue(
-			RecordWriter.DEFAULT_OUTPUT_FLUSH_THREAD_NAME + " thread is still running",
-			Thread.getAllStackTraces().keySet().stream()
-				.noneMatch(thread -> thread.getName().startsWith(RecordWriter.DEFAULT_OUTPUT_FLUSH_THREAD_NAME)));
+			assertFalse(
+				"The output is still flushed periodically",
+				streamTask.getRecordWriter().getRecordWriter(0).isFlushedPeriodically());
+		}
 	}
 
 	@Test
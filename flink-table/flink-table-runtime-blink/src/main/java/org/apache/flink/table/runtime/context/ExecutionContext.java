@@ -19,6 +19,9 @@
 package org.apache.flink.table.runtime.context;
 
 import org.apache.flink.api.common.functions.RuntimeContext;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.table.data.RowData;
 
 /**
@@ -40,4 +43,12 @@ public interface ExecutionContext {
 	void setCurrentKey(RowData key);
 
 	RuntimeContext getRuntimeContext();
+
+	/**
+	 * Returns the keyed value state for the given descriptor as the internal state of the state
+	 * backend. Besides the regular access under the current key, it can read the values of many
+	 * keys at once via {@link InternalValueState#getAll(java.util.List, Object)}.
+	 */
+	<V> InternalValueState<RowData, VoidNamespace, V> getInternalValueState(
+		ValueStateDescriptor<V> stateDescriptor) throws Exception;
 }
@@ -19,6 +19,10 @@
 package org.apache.flink.table.runtime.context;
 
 import org.apache.flink.api.common.functions.RuntimeContext;
+import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.VoidNamespaceSerializer;
+import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.streaming.api.operators.AbstractStreamOperator;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.util.Preconditions;
@@ -53,4 +57,15 @@ public final class ExecutionContextImpl implements ExecutionContext {
 	public RuntimeContext getRuntimeContext() {
 		return runtimeContext;
 	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <V> InternalValueState<RowData, VoidNamespace, V> getInternalValueState(
+			ValueStateDescriptor<V> stateDescriptor) throws Exception {
+		stateDescriptor.initializeSerializerUnlessSet(runtimeContext.getExecutionConfig());
+		return (InternalValueState<RowData, VoidNamespace, V>) operator.getKeyedStateBackend().getPartitionedState(
+			VoidNamespace.INSTANCE,
+			VoidNamespaceSerializer.INSTANCE,
+			stateDescriptor);
+	}
 }
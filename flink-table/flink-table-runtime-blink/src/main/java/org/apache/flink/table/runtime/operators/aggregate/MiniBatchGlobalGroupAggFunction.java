@@ -18,8 +18,9 @@
 
 package org.apache.flink.table.runtime.operators.aggregate;
 
-import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.table.data.JoinedRowData;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.runtime.context.ExecutionContext;
@@ -36,6 +37,8 @@ import org.apache.flink.util.Collector;
 
 import javax.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -91,7 +94,7 @@ public class MiniBatchGlobalGroupAggFunction extends MapBundleFunction<RowData,
 	private transient RecordEqualiser equaliser = null;
 
 	// stores the accumulators
-	private transient ValueState<RowData> accState = null;
+	private transient InternalValueState<RowData, VoidNamespace, RowData> accState = null;
 
 	/**
 	 * Creates a {@link MiniBatchGlobalGroupAggFunction}.
@@ -133,7 +136,7 @@ public class MiniBatchGlobalGroupAggFunction extends MapBundleFunction<RowData,
 
 		RowDataTypeInfo accTypeInfo = new RowDataTypeInfo(accTypes);
 		ValueStateDescriptor<RowData> accDesc = new ValueStateDescriptor<>("accState", accTypeInfo);
-		accState = ctx.getRuntimeContext().getState(accDesc);
+		accState = ctx.getInternalValueState(accDesc);
 
 		resultRow = new JoinedRowData();
 	}
@@ -159,6 +162,9 @@ public class MiniBatchGlobalGroupAggFunction extends MapBundleFunction<RowData,
 
 	@Override
 	public void finishBundle(Map<RowData, RowData> buffer, Collector<RowData> out) throws Exception {
+		// read the accumulators of all keys at once, in the iteration order of the buffer
+		List<RowData> stateAccs = accState.getAll(new ArrayList<>(buffer.keySet()), VoidNamespace.INSTANCE);
+		int index = 0;
 		for (Map.Entry<RowData, RowData> entry : buffer.entrySet()) {
 			RowData currentKey = entry.getKey();
 			RowData bufferAcc = entry.getValue();
@@ -167,7 +173,7 @@ public class MiniBatchGlobalGroupAggFunction extends MapBundleFunction<RowData,
 
 			// set current key to access states under the current key
 			ctx.setCurrentKey(currentKey);
-			RowData stateAcc = accState.value();
+			RowData stateAcc = stateAccs.get(index++);
 			if (stateAcc == null) {
 				stateAcc = globalAgg.createAccumulators();
 				firstRow = true;
@@ -18,9 +18,10 @@
 
 package org.apache.flink.table.runtime.operators.aggregate;
 
-import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.table.data.JoinedRowData;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.runtime.context.ExecutionContext;
@@ -99,7 +100,7 @@ public class MiniBatchGroupAggFunction extends MapBundleFunction<RowData, List<R
 	private transient RecordEqualiser equaliser = null;
 
 	// stores the accumulators
-	private transient ValueState<RowData> accState = null;
+	private transient InternalValueState<RowData, VoidNamespace, RowData> accState = null;
 
 	/**
 	 * Creates a {@link MiniBatchGroupAggFunction}.
@@ -139,7 +140,7 @@ public class MiniBatchGroupAggFunction extends MapBundleFunction<RowData, List<R
 
 		RowDataTypeInfo accTypeInfo = new RowDataTypeInfo(accTypes);
 		ValueStateDescriptor<RowData> accDesc = new ValueStateDescriptor<>("accState", accTypeInfo);
-		accState = ctx.getRuntimeContext().getState(accDesc);
+		accState = ctx.getInternalValueState(accDesc);
 
 		//noinspection unchecked
 		inputRowSerializer = (TypeSerializer) InternalSerializers.create(
@@ -161,6 +162,9 @@ public class MiniBatchGroupAggFunction extends MapBundleFunction<RowData, List<R
 
 	@Override
 	public void finishBundle(Map<RowData, List<RowData>> buffer, Collector<RowData> out) throws Exception {
+		// read the accumulators of all keys at once, in the iteration order of the buffer
+		List<RowData> accs = accState.getAll(new ArrayList<>(buffer.keySet()), VoidNamespace.INSTANCE);
+		int index = 0;
 		for (Map.Entry<RowData, List<RowData>> entry : buffer.entrySet()) {
 			RowData currentKey = entry.getKey();
 			List<RowData> inputRows = entry.getValue();
@@ -171,7 +175,7 @@ public class MiniBatchGroupAggFunction extends MapBundleFunction<RowData, List<R
 
 			// set current key to access state under the key
 			ctx.setCurrentKey(currentKey);
-			RowData acc = accState.value();
+			RowData acc = accs.get(index++);
 			if (acc == null) {
 				acc = function.createAccumulators();
 				firstRow = true;
@@ -24,6 +24,8 @@ import org.apache.flink.types.RowKind;
 import org.apache.flink.util.Collector;
 import org.apache.flink.util.Preconditions;
 
+import javax.annotation.Nullable;
+
 /**
  * Utility for deduplicate function.
  */
@@ -44,13 +46,34 @@ class DeduplicateFunctionHelper {
 			boolean generateInsert,
 			ValueState<RowData> state,
 			Collector<RowData> out) throws Exception {
+		// use state to keep the previous row content if we need to generate UPDATE_BEFORE
+		// or use to distinguish the first row, if we need to generate INSERT
+		RowData preRow = generateUpdateBefore || generateInsert ? state.value() : null;
+		processLastRow(preRow, currentRow, generateUpdateBefore, generateInsert, state, out);
+	}
+
+	/**
+	 * Processes element to deduplicate on keys like {@link #processLastRow(RowData, boolean, boolean,
+	 * ValueState, Collector)}, but with the previous row of the key already read from the state.
+	 *
+	 * @param preRow previous row of the current key, only used if UPDATE_BEFORE or INSERT messages
+	 *               are generated
+	 * @param currentRow latest row received by deduplicate function
+	 * @param generateUpdateBefore whether need to send UPDATE_BEFORE message for updates
+	 * @param state state of function, null if generateUpdateBefore is false
+	 * @param out underlying collector
+	 */
+	static void processLastRow(
+			@Nullable RowData preRow,
+			RowData currentRow,
+			boolean generateUpdateBefore,
+			boolean generateInsert,
+			ValueState<RowData> state,
+			Collector<RowData> out) throws Exception {
 		// check message should be insert only.
 		Preconditions.checkArgument(currentRow.getRowKind() == RowKind.INSERT);
 
 		if (generateUpdateBefore || generateInsert) {
-			// use state to keep the previous row content if we need to generate UPDATE_BEFORE
-			// or use to distinguish the first row, if we need to generate INSERT
-			RowData preRow = state.value();
 			state.update(currentRow);
 			if (preRow == null) {
 				// the first row, send INSERT message
@@ -82,10 +105,27 @@ class DeduplicateFunctionHelper {
 			RowData currentRow,
 			ValueState<Boolean> state,
 			Collector<RowData> out) throws Exception {
+		processFirstRow(state.value() != null, currentRow, state, out);
+	}
+
+	/**
+	 * Processes element to deduplicate on keys like {@link #processFirstRow(RowData, ValueState, Collector)},
+	 * but with the existence of the key already read from the state.
+	 *
+	 * @param existed whether the state already contains the current key
+	 * @param currentRow latest row received by deduplicate function
+	 * @param state state of function
+	 * @param out underlying collector
+	 */
+	static void processFirstRow(
+			boolean existed,
+			RowData currentRow,
+			ValueState<Boolean> state,
+			Collector<RowData> out) throws Exception {
 		// check message should be insert only.
 		Preconditions.checkArgument(currentRow.getRowKind() == RowKind.INSERT);
 		// ignore record if it is not first row
-		if (state.value() != null) {
+		if (existed) {
 			return;
 		}
 		state.update(true);
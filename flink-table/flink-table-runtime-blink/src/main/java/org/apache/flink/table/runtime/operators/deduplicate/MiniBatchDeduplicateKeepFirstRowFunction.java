@@ -19,10 +19,11 @@
 package org.apache.flink.table.runtime.operators.deduplicate;
 
 import org.apache.flink.api.common.state.StateTtlConfig;
-import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeinfo.Types;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.runtime.context.ExecutionContext;
 import org.apache.flink.table.runtime.operators.bundle.MapBundleFunction;
@@ -30,6 +31,8 @@ import org.apache.flink.util.Collector;
 
 import javax.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.apache.flink.table.runtime.operators.deduplicate.DeduplicateFunctionHelper.processFirstRow;
@@ -46,7 +49,7 @@ public class MiniBatchDeduplicateKeepFirstRowFunction
 	private final TypeSerializer<RowData> typeSerializer;
 	private final long minRetentionTime;
 	// state stores a boolean flag to indicate whether key appears before.
-	private ValueState<Boolean> state;
+	private InternalValueState<RowData, VoidNamespace, Boolean> state;
 
 	public MiniBatchDeduplicateKeepFirstRowFunction(
 			TypeSerializer<RowData> typeSerializer,
@@ -63,7 +66,7 @@ public class MiniBatchDeduplicateKeepFirstRowFunction
 		if (ttlConfig.isEnabled()) {
 			stateDesc.enableTimeToLive(ttlConfig);
 		}
-		state = ctx.getRuntimeContext().getState(stateDesc);
+		state = ctx.getInternalValueState(stateDesc);
 	}
 
 	@Override
@@ -80,11 +83,14 @@ public class MiniBatchDeduplicateKeepFirstRowFunction
 	@Override
 	public void finishBundle(
 			Map<RowData, RowData> buffer, Collector<RowData> out) throws Exception {
+		// read the flags of all keys at once, in the iteration order of the buffer
+		List<Boolean> existed = state.getAll(new ArrayList<>(buffer.keySet()), VoidNamespace.INSTANCE);
+		int index = 0;
 		for (Map.Entry<RowData, RowData> entry : buffer.entrySet()) {
 			RowData currentKey = entry.getKey();
 			RowData currentRow = entry.getValue();
 			ctx.setCurrentKey(currentKey);
-			processFirstRow(currentRow, state, out);
+			processFirstRow(existed.get(index++) != null, currentRow, state, out);
 		}
 	}
 }
@@ -19,9 +19,10 @@
 package org.apache.flink.table.runtime.operators.deduplicate;
 
 import org.apache.flink.api.common.state.StateTtlConfig;
-import org.apache.flink.api.common.state.ValueState;
 import org.apache.flink.api.common.state.ValueStateDescriptor;
 import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.runtime.state.VoidNamespace;
+import org.apache.flink.runtime.state.internal.InternalValueState;
 import org.apache.flink.table.data.RowData;
 import org.apache.flink.table.runtime.context.ExecutionContext;
 import org.apache.flink.table.runtime.operators.bundle.MapBundleFunction;
@@ -30,6 +31,8 @@ import org.apache.flink.util.Collector;
 
 import javax.annotation.Nullable;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 import static org.apache.flink.table.runtime.operators.deduplicate.DeduplicateFunctionHelper.processLastRow;
@@ -49,7 +52,7 @@ public class MiniBatchDeduplicateKeepLastRowFunction
 	private final TypeSerializer<RowData> typeSerializer;
 	private final long minRetentionTime;
 	// state stores complete row.
-	private ValueState<RowData> state;
+	private InternalValueState<RowData, VoidNamespace, RowData> state;
 
 	public MiniBatchDeduplicateKeepLastRowFunction(
 			RowDataTypeInfo rowTypeInfo,
@@ -72,7 +75,7 @@ public class MiniBatchDeduplicateKeepLastRowFunction
 		if (ttlConfig.isEnabled()) {
 			stateDesc.enableTimeToLive(ttlConfig);
 		}
-		state = ctx.getRuntimeContext().getState(stateDesc);
+		state = ctx.getInternalValueState(stateDesc);
 	}
 
 	@Override
@@ -84,11 +87,17 @@ public class MiniBatchDeduplicateKeepLastRowFunction
 	@Override
 	public void finishBundle(
 			Map<RowData, RowData> buffer, Collector<RowData> out) throws Exception {
+		// the previous rows are only needed to generate UPDATE_BEFORE or INSERT messages,
+		// if so read them for all keys at once, in the iteration order of the buffer
+		List<RowData> preRows = generateUpdateBefore || generateInsert ?
+			state.getAll(new ArrayList<>(buffer.keySet()), VoidNamespace.INSTANCE) : null;
+		int index = 0;
 		for (Map.Entry<RowData, RowData> entry : buffer.entrySet()) {
 			RowData currentKey = entry.getKey();
 			RowData currentRow = entry.getValue();
 			ctx.setCurrentKey(currentKey);
-			processLastRow(currentRow, generateUpdateBefore, generateInsert, state, out);
+			RowData preRow = preRows != null ? preRows.get(index++) : null;
+			processLastRow(preRow, currentRow, generateUpdateBefore, generateInsert, state, out);
 		}
 	}
 }